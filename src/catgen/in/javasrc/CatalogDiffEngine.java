@@ -1027,7 +1027,8 @@ public class CatalogDiffEngine {
         if (suspect instanceof Constraint && field.equals("index"))
             return null;
         if (suspect instanceof Table) {
-            if (field.equals("signature") || field.equals("tuplelimit") )
+            if (field.equals("signature") || field.equals("tuplelimit") ||
+                field.equals("estimatedtuplecount"))
                 return null;
 
             if (field.equals("tableType") && prevType != null) {
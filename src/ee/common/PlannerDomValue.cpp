@@ -17,8 +17,263 @@
 
 #include "PlannerDomValue.h"
 
+#include <arpa/inet.h>
+#include <cstring>
+
 using namespace voltdb;
 
+// The binary plan format is described with BinaryPlanWriter.java.
+// Its integers are big-endian and need not be aligned.
+static const size_t BINARY_HEADER_SIZE = 4;
+static const char BINARY_VERSION = 1;
+
+static inline uint16_t readUInt16(char const* data) {
+   return static_cast<uint16_t>((static_cast<unsigned char>(data[0]) << 8) |
+                                static_cast<unsigned char>(data[1]));
+}
+
+static inline int32_t readInt32(char const* data) {
+   uint32_t value;
+   ::memcpy(&value, data, sizeof value);
+   return static_cast<int32_t>(ntohl(value));
+}
+
+static inline int64_t readInt64(char const* data) {
+   return static_cast<int64_t>((static_cast<uint64_t>(static_cast<uint32_t>(readInt32(data))) << 32) |
+                               static_cast<uint32_t>(readInt32(data + 4)));
+}
+
+size_t PlannerDomValue::binarySize(char const* binary) {
+   switch (*binary) {
+      case BINARY_NULL:
+      case BINARY_FALSE:
+      case BINARY_TRUE:
+         return 1;
+      case BINARY_INT:
+         return 1 + sizeof(int32_t);
+      case BINARY_BIGINT:
+      case BINARY_DOUBLE:
+         return 1 + sizeof(int64_t);
+      case BINARY_STRING:
+         return 1 + sizeof(int32_t) + readInt32(binary + 1) + 1;
+      case BINARY_ARRAY:
+      case BINARY_OBJECT:
+         return 1 + sizeof(int32_t) + readInt32(binary + 1);
+      default:
+         throwTypeException("PlannerDomValue: unknown value tag in binary plan");
+         return 0;
+   }
+}
+
+int32_t PlannerDomValue::binaryAsInt() const {
+   switch (*m_binary) {
+      case BINARY_INT:
+         return readInt32(m_binary + 1);
+      case BINARY_STRING:
+         return (int32_t) strtoimax(m_binary + 1 + sizeof(int32_t), NULL, 10);
+      case BINARY_NULL:
+         throwTypeException("PlannerDomValue: int value is null");
+         return 0;
+      default:
+         throwTypeException("PlannerDomValue: int value is not an integer");
+         return 0;
+   }
+}
+
+int64_t PlannerDomValue::binaryAsInt64() const {
+   switch (*m_binary) {
+      case BINARY_INT:
+         return readInt32(m_binary + 1);
+      case BINARY_BIGINT:
+         return readInt64(m_binary + 1);
+      case BINARY_STRING:
+         return (int64_t) strtoimax(m_binary + 1 + sizeof(int32_t), NULL, 10);
+      case BINARY_NULL:
+         throwTypeException("PlannerDomValue: int64 value is null");
+         return 0;
+      default:
+         throwTypeException("PlannerDomValue: int64 value is non-integral");
+         return 0;
+   }
+}
+
+double PlannerDomValue::binaryAsDouble() const {
+   switch (*m_binary) {
+      case BINARY_DOUBLE: {
+         int64_t bits = readInt64(m_binary + 1);
+         double value;
+         ::memcpy(&value, &bits, sizeof value);
+         return value;
+      }
+      case BINARY_INT:
+         return readInt32(m_binary + 1);
+      case BINARY_BIGINT:
+         return readInt64(m_binary + 1);
+      case BINARY_STRING:
+         return std::strtod(m_binary + 1 + sizeof(int32_t), NULL);
+      case BINARY_NULL:
+         throwTypeException("PlannerDomValue: double value is null");
+         return 0;
+      default:
+         throwTypeException("PlannerDomValue: double value is not a number");
+         return 0;
+   }
+}
+
+bool PlannerDomValue::binaryAsBool() const {
+   if (*m_binary != BINARY_TRUE && *m_binary != BINARY_FALSE) {
+      throwTypeException("PlannerDomValue: value is null or not a bool");
+   }
+   return *m_binary == BINARY_TRUE;
+}
+
+std::string PlannerDomValue::binaryAsStr() const {
+   if (*m_binary != BINARY_STRING) {
+      throwTypeException("PlannerDomValue: value is null or not a string");
+   }
+   return std::string(m_binary + 1 + sizeof(int32_t), readInt32(m_binary + 1));
+}
+
+char const* PlannerDomValue::binaryFind(const char *key) const {
+   if (*m_binary != BINARY_OBJECT) {
+      return nullptr;
+   }
+   int32_t const count = readInt32(m_binary + 1 + sizeof(int32_t));
+   char const* member = m_binary + 1 + 2 * sizeof(int32_t);
+   for (int32_t i = 0; i < count; i++) {
+      uint16_t const keyIndex = readUInt16(member);
+      member += sizeof(uint16_t);
+      if (keyIndex >= m_keys->size()) {
+         throwTypeException("PlannerDomValue: key index out of range in binary plan");
+      }
+      if (::strcmp((*m_keys)[keyIndex], key) == 0) {
+         return member;
+      }
+      member += binarySize(member);
+   }
+   return nullptr;
+}
+
+int PlannerDomValue::binaryArrayLen() const {
+   if (*m_binary != BINARY_ARRAY) {
+      throwTypeException("PlannerDomValue: value is not an array");
+   }
+   return readInt32(m_binary + 1 + sizeof(int32_t));
+}
+
+PlannerDomValue PlannerDomValue::binaryValueAtIndex(int index) const {
+   if (index < 0 || index >= binaryArrayLen()) {
+      throwTypeException("PlannerDomValue: array index is out of range");
+   }
+   if (m_cursor == nullptr || index < m_cursorIndex) {
+      m_cursor = m_binary + 1 + 2 * sizeof(int32_t);
+      m_cursorIndex = 0;
+   }
+   for (; m_cursorIndex < index; m_cursorIndex++) {
+      m_cursor += binarySize(m_cursor);
+   }
+   return PlannerDomValue(m_cursor, m_keys);
+}
+
+Json::Value PlannerDomValue::binaryToJson(char const* binary, std::vector<char const*> const& keys) {
+   PlannerDomValue const value(binary, &keys);
+   switch (*binary) {
+      case BINARY_NULL:
+         return Json::Value();
+      case BINARY_FALSE:
+      case BINARY_TRUE:
+         return Json::Value(value.binaryAsBool());
+      case BINARY_INT:
+         return Json::Value(value.binaryAsInt());
+      case BINARY_BIGINT:
+         return Json::Value(static_cast<Json::Int64>(value.binaryAsInt64()));
+      case BINARY_DOUBLE:
+         return Json::Value(value.binaryAsDouble());
+      case BINARY_STRING:
+         return Json::Value(value.binaryAsStr());
+      case BINARY_ARRAY: {
+         Json::Value array(Json::arrayValue);
+         int const count = value.binaryArrayLen();
+         for (int i = 0; i < count; i++) {
+            array.append(binaryToJson(value.binaryValueAtIndex(i).m_binary, keys));
+         }
+         return array;
+      }
+      case BINARY_OBJECT: {
+         Json::Value object(Json::objectValue);
+         int32_t const count = readInt32(binary + 1 + sizeof(int32_t));
+         char const* member = binary + 1 + 2 * sizeof(int32_t);
+         for (int32_t i = 0; i < count; i++) {
+            char const* key = keys.at(readUInt16(member));
+            member += sizeof(uint16_t);
+            object[key] = binaryToJson(member, keys);
+            member += binarySize(member);
+         }
+         return object;
+      }
+      default:
+         throwTypeException("PlannerDomValue: unknown value tag in binary plan");
+         return Json::Value();
+   }
+}
+
+PlannerDomRoot::PlannerDomRoot(std::string const& plan) :
+   m_binary(isBinaryPlan(plan) ? plan : std::string()),
+   m_document(m_binary.empty() ? fromJSONString(plan.c_str()) : Json::Value()) {
+   if (! m_binary.empty()) {
+      readKeyTable();
+   }
+}
+
+bool PlannerDomRoot::isBinaryPlan(std::string const& plan) {
+   // JSON text never starts with a NUL
+   return plan.size() >= BINARY_HEADER_SIZE && plan[0] == '\0' && plan[1] == 'V' && plan[2] == 'P';
+}
+
+std::string PlannerDomRoot::toJSONString(std::string const& plan) {
+   if (! isBinaryPlan(plan)) {
+      return plan;
+   }
+   PlannerDomRoot root(plan);
+   return Json::FastWriter().write(PlannerDomValue::binaryToJson(root.m_binaryRoot, root.m_keys));
+}
+
+void PlannerDomRoot::readKeyTable() {
+   char const* data = m_binary.data();
+   char const* const end = data + m_binary.size();
+   if (data[BINARY_HEADER_SIZE - 1] != BINARY_VERSION) {
+      char msg[1024];
+      snprintf(msg, sizeof msg, "Unsupported binary plan version %d", data[BINARY_HEADER_SIZE - 1]);
+      PlannerDomValue::throwTypeException(msg);
+   }
+   char const* position = data + BINARY_HEADER_SIZE;
+   if (static_cast<size_t>(end - position) < sizeof(uint16_t)) {
+      PlannerDomValue::throwTypeException("Truncated binary plan");
+   }
+   uint16_t const keyCount = readUInt16(position);
+   position += sizeof(uint16_t);
+   m_keys.reserve(keyCount);
+   for (uint16_t i = 0; i < keyCount; i++) {
+      if (static_cast<size_t>(end - position) < sizeof(uint16_t)) {
+         PlannerDomValue::throwTypeException("Truncated binary plan");
+      }
+      uint16_t const length = readUInt16(position);
+      position += sizeof(uint16_t);
+      if (end - position < length + 1 || position[length] != '\0') {
+         PlannerDomValue::throwTypeException("Truncated binary plan");
+      }
+      m_keys.push_back(position);
+      position += length + 1;
+   }
+   // The root object must take up the rest of the plan.
+   if (static_cast<size_t>(end - position) < 1 + 2 * sizeof(int32_t) ||
+         *position != PlannerDomValue::BINARY_OBJECT ||
+         static_cast<size_t>(end - position) != 1 + sizeof(int32_t) + readInt32(position + 1)) {
+      PlannerDomValue::throwTypeException("Malformed binary plan");
+   }
+   m_binaryRoot = position;
+}
+
 Json::Value PlannerDomRoot::fromJSONString(char const* json) {
    Json::Value document;
    if(! Json::Reader().parse(json, json + strlen(json), document)) {
@@ -22,6 +22,8 @@
 #include <cstdio>
 #include <cstdlib>
 #include <inttypes.h>
+#include <string>
+#include <vector>
 
 namespace voltdb {
 
@@ -29,9 +31,51 @@ namespace voltdb {
      * Represents a JSON value in a parser-library-neutral kind of way. It throws
      * VoltDB-style exceptions when things are amiss and should be otherwise pretty
      * simple to figure out how to use. See plannodes or expressions for examples.
+     *
+     * The value is either part of a parsed JSON document or part of a plan in the
+     * binary plan format the planner produces (see BinaryPlanWriter.java), which is
+     * read in place without building a document first.
      */
    class PlannerDomValue {
+      friend class PlannerDomRoot;
+
+      // Tags of the values of a binary plan
+      enum BinaryTag : char {
+         BINARY_NULL = 0,
+         BINARY_FALSE = 1,
+         BINARY_TRUE = 2,
+         BINARY_INT = 3,
+         BINARY_BIGINT = 4,
+         BINARY_DOUBLE = 5,
+         BINARY_STRING = 6,
+         BINARY_ARRAY = 7,
+         BINARY_OBJECT = 8
+      };
+
       Json::Value const m_value;
+      // For a value of a binary plan, its tag in the plan owned by the PlannerDomRoot,
+      // and the names of the plan's keys by index. Null for a value of a JSON document.
+      char const* m_binary = nullptr;
+      std::vector<char const*> const* m_keys = nullptr;
+      // The element valueAtIndex last found in this array, so that walking the
+      // array in order does not rescan it from the start for every element.
+      mutable int m_cursorIndex = 0;
+      mutable char const* m_cursor = nullptr;
+
+      PlannerDomValue(char const* binary, std::vector<char const*> const* keys) :
+         m_binary(binary), m_keys(keys) {}
+
+      int32_t binaryAsInt() const;
+      int64_t binaryAsInt64() const;
+      double binaryAsDouble() const;
+      bool binaryAsBool() const;
+      std::string binaryAsStr() const;
+      char const* binaryFind(const char *key) const;
+      int binaryArrayLen() const;
+      PlannerDomValue binaryValueAtIndex(int index) const;
+      static size_t binarySize(char const* binary);
+      static Json::Value binaryToJson(char const* binary, std::vector<char const*> const& keys);
+
       public:
       static void throwTypeException(char const* msg) {
          throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
@@ -40,7 +84,9 @@ namespace voltdb {
       PlannerDomValue(Json::Value const &value) : m_value(value) {}
 
       int32_t asInt() const {
-         if (m_value.isNull()) {
+         if (m_binary) {
+            return binaryAsInt();
+         } else if (m_value.isNull()) {
             throwTypeException("PlannerDomValue: int value is null");
          } else if (m_value.isInt()) {
             return m_value.asInt();
@@ -52,7 +98,9 @@ namespace voltdb {
       }
 
       int64_t asInt64() const {
-         if (m_value.isNull()) {
+         if (m_binary) {
+            return binaryAsInt64();
+         } else if (m_value.isNull()) {
             throwTypeException("PlannerDomValue: int64 value is null");
          } else if (m_value.isInt64()) {
             return m_value.asInt64();
@@ -66,7 +114,9 @@ namespace voltdb {
       }
 
       double asDouble() const {
-         if (m_value.isNull()) {
+         if (m_binary) {
+            return binaryAsDouble();
+         } else if (m_value.isNull()) {
             throwTypeException("PlannerDomValue: double value is null");
          } else if (m_value.isDouble()) {
             return m_value.asDouble();
@@ -82,28 +132,48 @@ namespace voltdb {
       }
 
       bool asBool() const {
-         if (m_value.isNull() || ! m_value.isBool()) {
+         if (m_binary) {
+            return binaryAsBool();
+         } else if (m_value.isNull() || ! m_value.isBool()) {
             throwTypeException("PlannerDomValue: value is null or not a bool");
          }
          return m_value.asBool();
       }
 
       std::string asStr() const {
-         if (m_value.isNull() || ! m_value.isString()) {
+         if (m_binary) {
+            return binaryAsStr();
+         } else if (m_value.isNull() || ! m_value.isString()) {
             throwTypeException("PlannerDomValue: value is null or not a string");
          }
          return m_value.asString();
       }
 
       bool hasKey(const char *key) const {
+         if (m_binary) {
+            return binaryFind(key) != nullptr;
+         }
          return m_value.isMember(key);
       }
 
       bool hasNonNullKey(const char *key) const {
+         if (m_binary) {
+            char const* value = binaryFind(key);
+            return value != nullptr && *value != BINARY_NULL;
+         }
          return hasKey(key) && ! m_value[key].isNull();
       }
 
       PlannerDomValue valueForKey(const char *key) const {
+         if (m_binary) {
+            char const* value = binaryFind(key);
+            if (value == nullptr || *value == BINARY_NULL) {
+               char msg[1024];
+               snprintf(msg, sizeof msg, "PlannerDomValue: %s key is null or missing", key);
+               throwTypeException(msg);
+            }
+            return PlannerDomValue(value, m_keys);
+         }
          auto const value = m_value[key];
          if (value.isNull()) {
             char msg[1024];
@@ -114,14 +184,18 @@ namespace voltdb {
       }
 
       int arrayLen() const {
-         if (! m_value.isArray()) {
+         if (m_binary) {
+            return binaryArrayLen();
+         } else if (! m_value.isArray()) {
             throwTypeException("PlannerDomValue: value is not an array");
          }
          return m_value.size();
       }
 
       PlannerDomValue valueAtIndex(int index) const {
-         if (! m_value.isArray()) {
+         if (m_binary) {
+            return binaryValueAtIndex(index);
+         } else if (! m_value.isArray()) {
             throwTypeException("PlannerDomValue: value is not an array");
          }
          return {m_value[index]};
@@ -133,21 +207,36 @@ namespace voltdb {
     * Also owns the memory, as it's sole member var is not a reference, but a value.
     * This means if you're still using the DOM when this object gets popped off the
     * stack, bad things might happen. Best to use the DOM and be done with it.
+    *
+    * A plan in the binary plan format is not parsed, only copied and checked,
+    * and its values are read in place.
     */
    class PlannerDomRoot {
       public:
          PlannerDomRoot(const PlannerDomRoot& other) = delete;
          PlannerDomRoot& operator=(const PlannerDomRoot& other) = delete;
          PlannerDomRoot(const char *json) : m_document(fromJSONString(json)) { }
+         // Either a JSON document or a plan in the binary plan format
+         PlannerDomRoot(std::string const& plan);
          bool isNull() const {
-            return m_document.isNull();
+            return m_binaryRoot == nullptr && m_document.isNull();
          }
          PlannerDomValue operator()() const {
+            if (m_binaryRoot) {
+               return PlannerDomValue(m_binaryRoot, &m_keys);
+            }
             return PlannerDomValue(m_document);
          }
+         static bool isBinaryPlan(std::string const& plan);
+         // The plan as JSON text, whichever form it is in, for messages
+         static std::string toJSONString(std::string const& plan);
       private:
+         std::string const m_binary;
+         std::vector<char const*> m_keys;
+         char const* m_binaryRoot = nullptr;
          Json::Value const m_document;
          static Json::Value fromJSONString(char const* json);
+         void readKeyTable();
    };
 }
 
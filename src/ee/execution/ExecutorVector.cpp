@@ -69,7 +69,7 @@ boost::shared_ptr<ExecutorVector> ExecutorVector::fromJsonPlan(
     } catch (std::exception const& e) {
         char msg[1024 * 100];
         snprintf(msg, 1024 * 100, "Unable to initialize PlanNodeFragment for PlanFragment '%jd' with plan:\n%s: what(): %s",
-                 (intmax_t)fragId, jsonPlan.c_str(), e.what());
+                 (intmax_t)fragId, PlannerDomRoot::toJSONString(jsonPlan).c_str(), e.what());
         VOLT_ERROR("%s", msg);
         throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
     }
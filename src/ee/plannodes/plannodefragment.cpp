@@ -100,17 +100,18 @@ PlanNodeFragment::~PlanNodeFragment()
     }
 }
 
-PlanNodeFragment * PlanNodeFragment::createFromCatalog(const string value) {
+PlanNodeFragment * PlanNodeFragment::createFromCatalog(const string& value) {
     //cout << "DEBUG PlanNodeFragment::createFromCatalog: value.size() == " << value.size() << endl;
     //cout << "DEBUG PlanNodeFragment::createFromCatalog: value == " << value << endl;
 
-    PlannerDomRoot domRoot(value.c_str());
+    // The plan is either JSON or, as the planner produces it, in the binary plan format.
+    PlannerDomRoot domRoot(value);
     try {
         PlanNodeFragment *retval = PlanNodeFragment::fromJSONObject(domRoot());
         return retval;
     } catch (UnexpectedEEException& ue) {
         string prefix("\ncreateFromCatalog:\n");
-        ue.appendContextToMessage(prefix + value);
+        ue.appendContextToMessage(prefix + PlannerDomRoot::toJSONString(value));
         throw;
     }
 }
@@ -78,7 +78,7 @@ class PlanNodeFragment {
     virtual ~PlanNodeFragment();
 
     // construct a new fragment from the catalog's serialization
-    static PlanNodeFragment * createFromCatalog(const std::string);
+    static PlanNodeFragment * createFromCatalog(const std::string&);
 
     // construct a new fragment from a root node (used by testcode)
     PlanNodeFragment(AbstractPlanNode *root_node);
@@ -22,7 +22,13 @@
  and executes commands from Java synchronously.
  */
 
+#include <algorithm>
+#include <fcntl.h>
+#include <poll.h>
+#include <sched.h>
 #include <signal.h>
+#include <time.h>
+#include <sys/mman.h>
 #include <sys/socket.h>
 #include <netinet/tcp.h> // for TCP_NODELAY
 
@@ -48,6 +54,59 @@
 static int g_cleanUpCountdownLatch = -1;
 static pthread_mutex_t g_cleanUpMutex = PTHREAD_MUTEX_INITIALIZER;
 
+/*
+ * The byte stream to one Java site. It starts out as the accepted socket. When the
+ * site sends UseSharedMemory it moves to a pair of single producer, single consumer
+ * byte rings in a file the site created, laid out as described in
+ * SharedMemoryChannel.java. The socket stays open only so each side notices when
+ * the other goes away.
+ */
+class IpcTransport {
+public:
+    // must match SharedMemoryChannel.java
+    enum {
+        kShmMagic = 0x56495043,
+        kShmToEEHead = 64,
+        kShmToEETail = 128,
+        kShmFromEEHead = 192,
+        kShmFromEETail = 256,
+        kShmJavaClosed = 320,
+        kShmEEClosed = 384,
+        kShmHeaderSize = 4096
+    };
+
+    explicit IpcTransport(int fd);
+    ~IpcTransport();
+
+    int fd() const {
+        return m_fd;
+    }
+
+    /** Map the rings. The reply to the request still goes over the socket. */
+    bool prepareSharedMemory(const std::string &path, int32_t ringSize);
+    /** Use the rings mapped by prepareSharedMemory from now on, if any. */
+    void switchToSharedMemory();
+
+    /** Like read(2), except that the rings fill the whole buffer unless the site went away. */
+    ssize_t read(void *data, size_t sz);
+    void writeOrDie(const unsigned char *data, ssize_t sz);
+
+private:
+    bool backoff(int64_t attempt);
+    bool peerAlive();
+    int64_t *position(char *base, size_t offset) {
+        return reinterpret_cast<int64_t*>(base + offset);
+    }
+
+    int m_fd;
+    char *m_shm;
+    char *m_pendingShm;
+    size_t m_shmSize;
+    size_t m_ringSize;
+    char *m_toEE;
+    char *m_fromEE;
+};
+
 namespace voltdb {
 class Pool;
 class StreamBlock;
@@ -85,6 +144,10 @@ public:
 
     ~VoltDBIPC();
 
+    IpcTransport& transport() {
+        return m_transport;
+    }
+
     const voltdb::VoltDBEngine* getEngine() const {
         return m_engine;
     }
@@ -210,6 +273,8 @@ private:
 
     void setViewsEnabled(struct ipc_command*);
 
+    int8_t useSharedMemory(struct ipc_command*);
+
     // We do not adjust the UDF buffer size in the IPC mode.
     // The buffer sizes are always MAX_MSG_SZ (10M)
     void resizeUDFBuffer(int32_t size) {
@@ -231,7 +296,7 @@ private:
     voltdb::VoltDBEngine *m_engine;
     long int m_counter;
 
-    int m_fd;
+    IpcTransport m_transport;
     char *m_perFragmentStatsBuffer;
     char *m_reusedResultBuffer;
     char *m_exceptionBuffer;
@@ -418,6 +483,13 @@ typedef struct {
     char viewNameBytes[0];
 }__attribute__((packed)) set_views_enabled;
 
+typedef struct {
+    struct ipc_command cmd;
+    int32_t ringSize;
+    int32_t pathLength;
+    char path[0];
+}__attribute__((packed)) use_shared_memory_cmd;
+
 using namespace voltdb;
 
 // This is used by the signal dispatcher
@@ -448,6 +520,168 @@ static void writeOrDie(int fd, const unsigned char *data, ssize_t sz) {
     }
 }
 
+// How long a blocked reader or writer on the rings spins, then yields, then
+// sleeps before it checks that the site is still there.
+// Spinning only helps when the site can run at the same time.
+static const int64_t kShmSpins = sysconf(_SC_NPROCESSORS_ONLN) > 1 ? 10000 : 0;
+static const int64_t kShmYields = 100;
+static const long kShmSleepNanos = 50000;
+static const int64_t kShmSleepsPerProbe = 2000;
+
+IpcTransport::IpcTransport(int fd)
+    : m_fd(fd)
+    , m_shm(NULL)
+    , m_pendingShm(NULL)
+    , m_shmSize(0)
+    , m_ringSize(0)
+    , m_toEE(NULL)
+    , m_fromEE(NULL)
+{
+}
+
+IpcTransport::~IpcTransport() {
+    if (m_shm != NULL) {
+        __atomic_store_n(reinterpret_cast<int32_t*>(m_shm + kShmEEClosed), 1, __ATOMIC_RELEASE);
+        munmap(m_shm, m_shmSize);
+    }
+    if (m_pendingShm != NULL) {
+        munmap(m_pendingShm, m_shmSize);
+    }
+}
+
+bool IpcTransport::prepareSharedMemory(const std::string &path, int32_t ringSize) {
+    if (m_shm != NULL || m_pendingShm != NULL || ringSize <= 0 || (ringSize & (ringSize - 1)) != 0) {
+        return false;
+    }
+    int shmFd = open(path.c_str(), O_RDWR);
+    if (shmFd < 0) {
+        printf("Failed to open IPC shared memory file %s\n", path.c_str());
+        return false;
+    }
+    size_t size = kShmHeaderSize + 2 * static_cast<size_t>(ringSize);
+    void *shm = mmap(NULL, size, PROT_READ | PROT_WRITE, MAP_SHARED, shmFd, 0);
+    close(shmFd);
+    if (shm == MAP_FAILED) {
+        printf("Failed to map IPC shared memory file %s\n", path.c_str());
+        return false;
+    }
+    char *base = static_cast<char*>(shm);
+    if (*reinterpret_cast<int32_t*>(base) != kShmMagic ||
+        *reinterpret_cast<int32_t*>(base + sizeof(int32_t)) != ringSize) {
+        printf("IPC shared memory file %s has an unexpected header\n", path.c_str());
+        munmap(shm, size);
+        return false;
+    }
+    m_pendingShm = base;
+    m_shmSize = size;
+    m_ringSize = ringSize;
+    return true;
+}
+
+void IpcTransport::switchToSharedMemory() {
+    if (m_pendingShm == NULL) {
+        return;
+    }
+    m_shm = m_pendingShm;
+    m_pendingShm = NULL;
+    m_toEE = m_shm + kShmHeaderSize;
+    m_fromEE = m_toEE + m_ringSize;
+    if (staticDebugVerbose) {
+        std::cout << "Switched to shared memory rings of " << m_ringSize << " bytes" << std::endl;
+    }
+}
+
+ssize_t IpcTransport::read(void *data, size_t sz) {
+    if (m_shm == NULL) {
+        return ::read(m_fd, data, sz);
+    }
+    char *out = static_cast<char*>(data);
+    int64_t *headPtr = position(m_shm, kShmToEEHead);
+    int64_t *tailPtr = position(m_shm, kShmToEETail);
+    int64_t tail = *tailPtr;
+    size_t done = 0;
+    int64_t attempt = 0;
+    while (done < sz) {
+        int64_t available = __atomic_load_n(headPtr, __ATOMIC_ACQUIRE) - tail;
+        if (available == 0) {
+            if (!backoff(attempt++)) {
+                return done;
+            }
+            continue;
+        }
+        attempt = 0;
+        size_t n = std::min(static_cast<size_t>(available), sz - done);
+        size_t offset = static_cast<size_t>(tail) & (m_ringSize - 1);
+        size_t first = std::min(n, m_ringSize - offset);
+        memcpy(out + done, m_toEE + offset, first);
+        memcpy(out + done + first, m_toEE, n - first);
+        tail += n;
+        __atomic_store_n(tailPtr, tail, __ATOMIC_RELEASE);
+        done += n;
+    }
+    return done;
+}
+
+void IpcTransport::writeOrDie(const unsigned char *data, ssize_t sz) {
+    if (m_shm == NULL) {
+        ::writeOrDie(m_fd, data, sz);
+        return;
+    }
+    int64_t *headPtr = position(m_shm, kShmFromEEHead);
+    int64_t *tailPtr = position(m_shm, kShmFromEETail);
+    int64_t head = *headPtr;
+    ssize_t written = 0;
+    int64_t attempt = 0;
+    while (written < sz) {
+        int64_t space = m_ringSize - (head - __atomic_load_n(tailPtr, __ATOMIC_ACQUIRE));
+        if (space == 0) {
+            if (!backoff(attempt++)) {
+                printf("\n\nIPC write to Java failed, the site went away. Exiting\n\n");
+                fflush(stdout);
+                exit(-1);
+            }
+            continue;
+        }
+        attempt = 0;
+        size_t n = std::min(static_cast<size_t>(space), static_cast<size_t>(sz - written));
+        size_t offset = static_cast<size_t>(head) & (m_ringSize - 1);
+        size_t first = std::min(n, m_ringSize - offset);
+        memcpy(m_fromEE + offset, data + written, first);
+        memcpy(m_fromEE, data + written + first, n - first);
+        head += n;
+        __atomic_store_n(headPtr, head, __ATOMIC_RELEASE);
+        written += n;
+    }
+}
+
+/** @return false once the site has gone away */
+bool IpcTransport::backoff(int64_t attempt) {
+    if (attempt < kShmSpins) {
+        return true;
+    }
+    if (attempt < kShmSpins + kShmYields) {
+        sched_yield();
+        return true;
+    }
+    struct timespec pause = { 0, kShmSleepNanos };
+    nanosleep(&pause, NULL);
+    return (attempt - kShmSpins - kShmYields) % kShmSleepsPerProbe != 0 || peerAlive();
+}
+
+bool IpcTransport::peerAlive() {
+    if (__atomic_load_n(reinterpret_cast<int32_t*>(m_shm + kShmJavaClosed), __ATOMIC_ACQUIRE) != 0) {
+        return false;
+    }
+    // Nothing is sent on the socket once the rings are in use, so anything
+    // readable on it is the site closing it
+    struct pollfd pfd = { m_fd, POLLIN, 0 };
+    if (poll(&pfd, 1, 0) > 0) {
+        char c;
+        return (pfd.revents & (POLLHUP | POLLERR)) == 0 && recv(m_fd, &c, 1, MSG_PEEK | MSG_DONTWAIT) != 0;
+    }
+    return true;
+}
+
 
 /**
  * Utility used for deserializing ParameterSet passed from Java.
@@ -462,7 +696,7 @@ void deserializeParameterSetCommon(int cnt, ReferenceSerializeInputBE &serialize
 VoltDBIPC::VoltDBIPC(int fd)
     : m_engine(NULL)
     , m_counter(0)
-    , m_fd(fd)
+    , m_transport(fd)
     , m_perFragmentStatsBuffer(NULL)
     , m_reusedResultBuffer(NULL)
     , m_exceptionBuffer(NULL)
@@ -586,6 +820,9 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
           deleteMigratedRows(cmd);
           result = kErrorCode_None;
           break;
+      case 35:
+          result = useSharedMemory(cmd);
+          break;
       default:
         result = stub(cmd);
     }
@@ -598,11 +835,13 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
             char msg[5];
             msg[0] = result;
             *reinterpret_cast<int32_t*>(&msg[1]) = 0;//exception length 0
-            writeOrDie(m_fd, (unsigned char*)msg, sizeof(int8_t) + sizeof(int32_t));
+            m_transport.writeOrDie((unsigned char*)msg, sizeof(int8_t) + sizeof(int32_t));
         } else {
-            writeOrDie(m_fd, (unsigned char*)&result, sizeof(int8_t));
+            m_transport.writeOrDie((unsigned char*)&result, sizeof(int8_t));
         }
     }
+    // The reply to UseSharedMemory went over the socket, everything after it uses the rings
+    m_transport.switchToSharedMemory();
     return m_terminate;
 }
 
@@ -904,7 +1143,7 @@ void VoltDBIPC::executePlanFragments(struct ipc_command *cmd) {
     if (errors == 0) {
         // write the results array back across the wire
         const int32_t size = m_engine->getResultsSize();
-        writeOrDie(m_fd, m_engine->getResultsBuffer(), size);
+        m_transport.writeOrDie(m_engine->getResultsBuffer(), size);
     } else {
         sendException(kErrorCode_Error);
     }
@@ -918,12 +1157,12 @@ void VoltDBIPC::setViewsEnabled(struct ipc_command *cmd) {
 
 void VoltDBIPC::sendPerFragmentStatsBuffer() {
     int8_t statusCode = static_cast<int8_t>(kErrorCode_pushPerFragmentStatsBuffer);
-    writeOrDie(m_fd, (unsigned char*)&statusCode, sizeof(int8_t));
+    m_transport.writeOrDie((unsigned char*)&statusCode, sizeof(int8_t));
     // write the per-fragment stats back across the wire
     char *perFragmentStatsBuffer = m_engine->getPerFragmentStatsBuffer();
     int32_t perFragmentStatsBufferSizeToSend = htonl(m_engine->getPerFragmentStatsSize());
-    writeOrDie(m_fd, (unsigned char*)&perFragmentStatsBufferSizeToSend, sizeof(int32_t));
-    writeOrDie(m_fd, (unsigned char*)perFragmentStatsBuffer, m_engine->getPerFragmentStatsSize());
+    m_transport.writeOrDie((unsigned char*)&perFragmentStatsBufferSizeToSend, sizeof(int32_t));
+    m_transport.writeOrDie((unsigned char*)perFragmentStatsBuffer, m_engine->getPerFragmentStatsSize());
 }
 
 void checkBytesRead(ssize_t byteCountExpected, ssize_t byteCountRead, std::string description) {
@@ -939,38 +1178,38 @@ void checkBytesRead(ssize_t byteCountExpected, ssize_t byteCountRead, std::strin
 int VoltDBIPC::callJavaUserDefinedFunction() {
     // Send a special status code indicating that a UDF invocation request is coming on the wire.
     int8_t statusCode = static_cast<int8_t>(kErrorCode_callJavaUserDefinedFunction);
-    writeOrDie(m_fd, (unsigned char*)&statusCode, sizeof(int8_t));
+    m_transport.writeOrDie((unsigned char*)&statusCode, sizeof(int8_t));
 
     // Get the UDF buffer size.
     int32_t* udfBufferInInt32 = reinterpret_cast<int32_t*>(m_udfBuffer);
     int32_t udfBufferSizeToSend = ntohl(*udfBufferInInt32);
     // Send the whole UDF buffer to the wire.
     // Note that the number of bytes we sent includes the bytes for storing the buffer size.
-    writeOrDie(m_fd, (unsigned char*)m_udfBuffer, sizeof(udfBufferSizeToSend) + udfBufferSizeToSend);
+    m_transport.writeOrDie((unsigned char*)m_udfBuffer, sizeof(udfBufferSizeToSend) + udfBufferSizeToSend);
 
     // Wait for the UDF result.
 
     int32_t retval, udfBufferSizeToRecv;
     // read buffer length
-    ssize_t bytes = read(m_fd, &udfBufferSizeToRecv, sizeof(int32_t));
+    ssize_t bytes = m_transport.read(&udfBufferSizeToRecv, sizeof(int32_t));
     checkBytesRead(sizeof(int32_t), bytes, "UDF return value buffer size");
     // The buffer size should exclude the size of the buffer size value
     // and the returning status code value (2 * sizeof(int32_t)).
     udfBufferSizeToRecv = ntohl(udfBufferSizeToRecv) - 2 * sizeof(int32_t);
 
     // read return value, 0 means success, failure otherwise.
-    bytes = read(m_fd, &retval, sizeof(int32_t));
+    bytes = m_transport.read(&retval, sizeof(int32_t));
     checkBytesRead(sizeof(int32_t), bytes, "UDF execution return code");
     retval = ntohl(retval);
 
     // read buffer content, includes the return value of the UDF.
-    bytes = read(m_fd, m_udfBuffer, udfBufferSizeToRecv);
+    bytes = m_transport.read(m_udfBuffer, udfBufferSizeToRecv);
     checkBytesRead(udfBufferSizeToRecv, bytes, "UDF return value buffer content");
     return retval;
 }
 
 void VoltDBIPC::sendException(int8_t errorCode) {
-    writeOrDie(m_fd, (unsigned char*)&errorCode, sizeof(int8_t));
+    m_transport.writeOrDie((unsigned char*)&errorCode, sizeof(int8_t));
 
     const void* exceptionData =
       m_engine->getExceptionOutputSerializer()->data();
@@ -982,7 +1221,7 @@ void VoltDBIPC::sendException(int8_t errorCode) {
     fflush(stdout);
 
     const std::size_t expectedSize = exceptionLength + sizeof(int32_t);
-    writeOrDie(m_fd, (const unsigned char*)exceptionData, expectedSize);
+    m_transport.writeOrDie((const unsigned char*)exceptionData, expectedSize);
 }
 
 int8_t VoltDBIPC::loadTable(struct ipc_command *cmd) {
@@ -1026,6 +1265,15 @@ int8_t VoltDBIPC::loadTable(struct ipc_command *cmd) {
     return kErrorCode_Error;
 }
 
+int8_t VoltDBIPC::useSharedMemory(struct ipc_command *cmd) {
+    use_shared_memory_cmd *useCmd = (use_shared_memory_cmd*) cmd;
+    std::string path(useCmd->path, ntohl(useCmd->pathLength));
+    if (!m_transport.prepareSharedMemory(path, ntohl(useCmd->ringSize))) {
+        return kErrorCode_Error;
+    }
+    return kErrorCode_Success;
+}
+
 int8_t VoltDBIPC::setLogLevels(struct ipc_command *cmd) {
     int64_t logLevels = *((int64_t*)&cmd->data[0]);
     try {
@@ -1079,11 +1327,11 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
     // tell java to send the dependency over the socket
     message[0] = static_cast<int8_t>(kErrorCode_RetrieveDependency);
     *reinterpret_cast<int32_t*>(&message[1]) = htonl(dependencyId);
-    writeOrDie(m_fd, (unsigned char*)message, sizeof(int8_t) + sizeof(int32_t));
+    m_transport.writeOrDie((unsigned char*)message, sizeof(int8_t) + sizeof(int32_t));
 
     // read java's response code
     int8_t responseCode;
-    ssize_t bytes = read(m_fd, &responseCode, sizeof(int8_t));
+    ssize_t bytes = m_transport.read(&responseCode, sizeof(int8_t));
     if (bytes != sizeof(int8_t)) {
         printf("Error - blocking read failed. %jd read %jd attempted",
                 (intmax_t)bytes, (intmax_t)sizeof(int8_t));
@@ -1105,7 +1353,7 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
 
     // start reading the dependency. its length is first
     int32_t dependencyLength;
-    bytes = read(m_fd, &dependencyLength, sizeof(int32_t));
+    bytes = m_transport.read(&dependencyLength, sizeof(int32_t));
     if (bytes != sizeof(int32_t)) {
         printf("Error - blocking read failed. %jd read %jd attempted",
                 (intmax_t)bytes, (intmax_t)sizeof(int32_t));
@@ -1120,7 +1368,7 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
     char *dependencyData = new char[dependencyLength];
     while (bytes != dependencyLength) {
         ssize_t oldBytes = bytes;
-        bytes += read(m_fd, dependencyData + bytes, dependencyLength - bytes);
+        bytes += m_transport.read(dependencyData + bytes, dependencyLength - bytes);
         if (oldBytes == bytes) {
             break;
         }
@@ -1141,12 +1389,12 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
 }
 
 // A file static helper function that
-//   Reads a 4-byte integer from fd that is the length of the following string
+//   Reads a 4-byte integer from the transport that is the length of the following string
 //   Reads the bytes for the string
 //   Returns those bytes as an std::string
-static std::string readLengthPrefixedBytesToStdString(int fd) {
+static std::string readLengthPrefixedBytesToStdString(IpcTransport &transport) {
     int32_t length;
-    ssize_t numBytesRead = read(fd, &length, sizeof(int32_t));
+    ssize_t numBytesRead = transport.read(&length, sizeof(int32_t));
     checkBytesRead(sizeof(int32_t), numBytesRead, "plan bytes length");
     length = static_cast<int32_t>(ntohl(length) - sizeof(int32_t));
     assert(length > 0);
@@ -1155,7 +1403,7 @@ static std::string readLengthPrefixedBytesToStdString(int fd) {
     numBytesRead = 0;
     while (numBytesRead != length) {
         ssize_t oldBytes = numBytesRead;
-        numBytesRead += read(fd, bytes.get() + numBytesRead, length - numBytesRead);
+        numBytesRead += transport.read(bytes.get() + numBytesRead, length - numBytesRead);
         if (oldBytes == numBytesRead) {
             break;
         }
@@ -1188,17 +1436,17 @@ std::string VoltDBIPC::decodeBase64AndDecompress(const std::string& base64Data)
 
     ::memcpy(&message[offset], base64Data.c_str(), base64Data.size());
 
-    writeOrDie(m_fd, message, messageSize);
+    m_transport.writeOrDie(message, messageSize);
 
-    return readLengthPrefixedBytesToStdString(m_fd);
+    return readLengthPrefixedBytesToStdString(m_transport);
 }
 
 std::string VoltDBIPC::planForFragmentId(int64_t fragmentId) {
     char message[sizeof(int8_t) + sizeof(int64_t)];
     message[0] = static_cast<int8_t>(kErrorCode_needPlan);
     *reinterpret_cast<int64_t*>(&message[1]) = htonll(fragmentId);
-    writeOrDie(m_fd, (unsigned char*)message, sizeof(int8_t) + sizeof(int64_t));
-    return readLengthPrefixedBytesToStdString(m_fd);
+    m_transport.writeOrDie((unsigned char*)message, sizeof(int8_t) + sizeof(int64_t));
+    return readLengthPrefixedBytesToStdString(m_transport);
 }
 
 static bool progressUpdateDisabled = true;
@@ -1242,13 +1490,13 @@ int64_t VoltDBIPC::fragmentProgressUpdate(
     if (staticDebugVerbose) {
         std::cout << "Writing progress update " << (int)*message << std::endl;
     }
-    writeOrDie(m_fd, (unsigned char*)message, offset);
+    m_transport.writeOrDie((unsigned char*)message, offset);
     if (staticDebugVerbose) {
         std::cout << "Wrote progress update" << std::endl;
     }
 
     int64_t nextStep;
-    ssize_t bytes = read(m_fd, &nextStep, sizeof(nextStep));
+    ssize_t bytes = m_transport.read(&nextStep, sizeof(nextStep));
     if (bytes != sizeof(nextStep)) {
         printf("Error - blocking read after progress update failed. %jd read %jd attempted",
                 (intmax_t)bytes, (intmax_t)sizeof(nextStep));
@@ -1320,7 +1568,7 @@ void VoltDBIPC::crashVoltDB(voltdb::FatalException e) {
         position += traceLength;
     }
 
-    writeOrDie(m_fd,  (unsigned char*)m_reusedResultBuffer, 5 + messageLength);
+    m_transport.writeOrDie( (unsigned char*)m_reusedResultBuffer, 5 + messageLength);
     exit(-1);
 }
 
@@ -1354,17 +1602,17 @@ void VoltDBIPC::getStats(struct ipc_command *cmd) {
         // write the results array back across the wire
         const int8_t successResult = kErrorCode_Success;
         if (result == 0 || result == 1) {
-            writeOrDie(m_fd, (const unsigned char*)&successResult, sizeof(int8_t));
+            m_transport.writeOrDie((const unsigned char*)&successResult, sizeof(int8_t));
 
             if (result == 1) {
                 const int32_t size = m_engine->getResultsSize();
                 // write the dependency tables back across the wire
                 // the result set includes the total serialization size
-                writeOrDie(m_fd, m_engine->getResultsBuffer(), size);
+                m_transport.writeOrDie(m_engine->getResultsBuffer(), size);
             }
             else {
                 int32_t zero = 0;
-                writeOrDie(m_fd, (const unsigned char*)&zero, sizeof(int32_t));
+                m_transport.writeOrDie((const unsigned char*)&zero, sizeof(int32_t));
             }
         } else {
             sendException(kErrorCode_Error);
@@ -1485,7 +1733,7 @@ void VoltDBIPC::tableStreamSerializeMore(struct ipc_command *cmd) {
             outputSize = offset;
         }
         // Ship it.
-        writeOrDie(m_fd, (unsigned char*)m_tupleBuffer, outputSize);
+        m_transport.writeOrDie((unsigned char*)m_tupleBuffer, outputSize);
 
     } catch (const FatalException &e) {
         crashVoltDB(e);
@@ -1508,7 +1756,7 @@ void VoltDBIPC::tableHashCode( struct ipc_command *cmd) {
     char response[9];
     response[0] = kErrorCode_Success;
     *reinterpret_cast<int64_t*>(&response[1]) = htonll(tableHashCode);
-    writeOrDie(m_fd, (unsigned char*)response, 9);
+    m_transport.writeOrDie((unsigned char*)response, 9);
 }
 
 void VoltDBIPC::exportAction(struct ipc_command *cmd) {
@@ -1524,7 +1772,7 @@ void VoltDBIPC::exportAction(struct ipc_command *cmd) {
 
     // write offset across bigendian.
     result = htonll(result);
-    writeOrDie(m_fd, (unsigned char*)&result, sizeof(result));
+    m_transport.writeOrDie((unsigned char*)&result, sizeof(result));
 }
 
 void VoltDBIPC::deleteMigratedRows(struct ipc_command *cmd) {
@@ -1541,7 +1789,7 @@ void VoltDBIPC::deleteMigratedRows(struct ipc_command *cmd) {
                                                static_cast<int64_t>(ntohll(migrate_msg->undoToken)));
     char response[1];
     response[0] = result ? 1 : 0;
-    writeOrDie(m_fd, (unsigned char*)response, sizeof(int8_t));
+    m_transport.writeOrDie((unsigned char*)response, sizeof(int8_t));
 }
 
 void VoltDBIPC::getUSOForExportTable(struct ipc_command *cmd) {
@@ -1558,11 +1806,11 @@ void VoltDBIPC::getUSOForExportTable(struct ipc_command *cmd) {
     // write offset across bigendian.
     int64_t ackOffsetI64 = static_cast<int64_t>(ackOffset);
     ackOffsetI64 = htonll(ackOffsetI64);
-    writeOrDie(m_fd, (unsigned char*)&ackOffsetI64, sizeof(ackOffsetI64));
+    m_transport.writeOrDie((unsigned char*)&ackOffsetI64, sizeof(ackOffsetI64));
 
     // write the poll data. It is at least 4 bytes of length prefix.
     seqNo = htonll(seqNo);
-    writeOrDie(m_fd, (unsigned char*)&seqNo, sizeof(seqNo));
+    m_transport.writeOrDie((unsigned char*)&seqNo, sizeof(seqNo));
 }
 
 void VoltDBIPC::hashinate(struct ipc_command* cmd) {
@@ -1592,7 +1840,7 @@ void VoltDBIPC::hashinate(struct ipc_command* cmd) {
     char response[5];
     response[0] = kErrorCode_Success;
     *reinterpret_cast<int32_t*>(&response[1]) = htonl(retval);
-    writeOrDie(m_fd, (unsigned char*)response, 5);
+    m_transport.writeOrDie((unsigned char*)response, 5);
 }
 
 void VoltDBIPC::updateHashinator(struct ipc_command *cmd) {
@@ -1635,7 +1883,7 @@ void VoltDBIPC::threadLocalPoolAllocations() {
     char response[9];
     response[0] = kErrorCode_Success;
     *reinterpret_cast<std::size_t*>(&response[1]) = htonll(poolAllocations);
-    writeOrDie(m_fd, (unsigned char*)response, 9);
+    m_transport.writeOrDie((unsigned char*)response, 9);
 }
 
 void VoltDBIPC::pushExportBuffer(
@@ -1666,15 +1914,15 @@ void VoltDBIPC::pushExportBuffer(
     *reinterpret_cast<int32_t*>(&m_reusedResultBuffer[index]) = htonll(generationId);
     if (block != NULL) {
         *reinterpret_cast<int32_t*>(&m_reusedResultBuffer[index]) = htonl(block->rawLength());
-        writeOrDie(m_fd, (unsigned char*)m_reusedResultBuffer, index + 4);
+        m_transport.writeOrDie((unsigned char*)m_reusedResultBuffer, index + 4);
         // Memset the first 8 bytes to initialize the MAGIC_HEADER_SPACE_FOR_JAVA
         ::memset(block->rawPtr(), 0, 8);
-        writeOrDie(m_fd, (unsigned char*)block->rawPtr(), block->rawLength());
+        m_transport.writeOrDie((unsigned char*)block->rawPtr(), block->rawLength());
         // Need the delete in the if statement for valgrind
         delete [] block->rawPtr();
     } else {
         *reinterpret_cast<int32_t*>(&m_reusedResultBuffer[index]) = htonl(0);
-        writeOrDie(m_fd, (unsigned char*)m_reusedResultBuffer, index + 4);
+        m_transport.writeOrDie((unsigned char*)m_reusedResultBuffer, index + 4);
     }
 }
 
@@ -1690,7 +1938,7 @@ void VoltDBIPC::pushEndOfStream(
     ::memcpy( &m_reusedResultBuffer[index], signature.c_str(), signature.size());
     index += static_cast<int32_t>(signature.size());
     *reinterpret_cast<int32_t*>(&m_reusedResultBuffer[index]) = htonl(0);
-    writeOrDie(m_fd, (unsigned char*)m_reusedResultBuffer, index + 4);
+    m_transport.writeOrDie((unsigned char*)m_reusedResultBuffer, index + 4);
 }
 
 void VoltDBIPC::executeTask(struct ipc_command *cmd) {
@@ -1703,7 +1951,7 @@ void VoltDBIPC::executeTask(struct ipc_command *cmd) {
         m_reusedResultBuffer[0] = kErrorCode_Success;
         m_engine->executeTask(taskId, input);
         int32_t responseLength = m_engine->getResultsSize();
-        writeOrDie(m_fd, m_engine->getResultsBuffer(), responseLength);
+        m_transport.writeOrDie(m_engine->getResultsBuffer(), responseLength);
     } catch (const FatalException& e) {
         crashVoltDB(e);
     }
@@ -1723,7 +1971,7 @@ void VoltDBIPC::applyBinaryLog(struct ipc_command *cmd) {
         char response[9];
         response[0] = kErrorCode_Success;
         *reinterpret_cast<int64_t*>(&response[1]) = htonll(rows);
-        writeOrDie(m_fd, (unsigned char*)response, 9);
+        m_transport.writeOrDie((unsigned char*)response, 9);
     } catch (const FatalException& e) {
         crashVoltDB(e);
     }
@@ -1813,7 +2061,7 @@ void *eethread(void *ptr) {
 
         // read the header
         while (bytesread < 4) {
-            std::size_t b = read(fd, data.get() + bytesread, 4 - bytesread);
+            std::size_t b = voltipc->transport().read(data.get() + bytesread, 4 - bytesread);
             if (b == 0) {
                 printf("client eof\n");
                 close(fd);
@@ -1840,7 +2088,7 @@ void *eethread(void *ptr) {
         }
 
         while (bytesread < msg_size) {
-            std::size_t b = read(fd, data.get() + bytesread, msg_size - bytesread);
+            std::size_t b = voltipc->transport().read(data.get() + bytesread, msg_size - bytesread);
             if (b == 0) {
                 printf("client eof\n");
                 close(fd);
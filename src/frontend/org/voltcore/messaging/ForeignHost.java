@@ -402,6 +402,10 @@ public class ForeignHost {
 
         final VoltMessage message =
             m_hostMessenger.getMessageFactory().createMessageFromBuffer(in, sourceHSId);
+        if (destCount > 1) {
+            // no single recipient knows when the others are done with it
+            message.m_pool = null;
+        }
 
         // ENG-1608.  We sniff for SiteFailureMessage here so
         // that a node will participate in the failure resolution protocol
@@ -29,6 +29,12 @@ public abstract class VoltMessage
 
     protected byte m_subject;
 
+    // Pool this message returns to when released, null if it was not taken from a pool
+    VoltMessagePool m_pool;
+
+    // Where a quarantined message was released, reported on any later use
+    private Throwable m_releasedAt;
+
     public int getSerializedSize() {
         return 1;
     }
@@ -51,4 +57,35 @@ public abstract class VoltMessage
     public String getMessageInfo() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Hand this message back to the pool it was deserialized from. Only the last holder of a
+     * message may release it, and must not touch it afterwards. Messages that were not taken
+     * from a pool ignore the call.
+     */
+    public final void release() {
+        assert(isLive());
+        final VoltMessagePool pool = m_pool;
+        if (pool == null) {
+            return;
+        }
+        m_pool = null;
+        // The factory only pools types that implement PoolableMessage
+        ((PoolableMessage) this).reset();
+        if (pool.m_quarantineReleased) {
+            m_releasedAt = new Throwable("Released by " + Thread.currentThread().getName());
+        }
+        pool.offer(this);
+    }
+
+    /**
+     * For assertions in the accessors of pooled message types
+     * @return true, or throws if this message has already been released
+     */
+    protected final boolean isLive() {
+        if (m_releasedAt != null) {
+            throw new IllegalStateException("Use of released " + getClass().getSimpleName(), m_releasedAt);
+        }
+        return true;
+    }
 }
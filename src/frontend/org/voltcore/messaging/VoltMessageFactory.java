@@ -35,17 +35,50 @@ public class VoltMessageFactory {
     // will be sad, and I will have no sympathy. --izzy
     final public static byte VOLTCORE_MESSAGE_ID_MAX = 7;
 
+    // Free lists of the message types that are recycled, indexed by message type
+    private final VoltMessagePool[] m_pools = new VoltMessagePool[256];
+
+    /**
+     * Recycle released messages of this type when deserializing.
+     * @throws IllegalArgumentException if the message type does not implement {@link PoolableMessage}
+     */
+    public void poolMessageType(byte messageType, int capacity) {
+        poolMessageType(messageType, new VoltMessagePool(capacity));
+    }
+
+    void poolMessageType(byte messageType, VoltMessagePool pool) {
+        VoltMessage sample = instantiate_local(messageType);
+        if (sample == null) {
+            sample = instantiate(messageType);
+        }
+        if (!(sample instanceof PoolableMessage)) {
+            throw new IllegalArgumentException(
+                    "Message type " + messageType +
+                    (sample == null ? "" : " (" + sample.getClass().getName() + ")") + " can not be pooled");
+        }
+        m_pools[messageType & 0xff] = pool;
+    }
+
+    public VoltMessagePool getPool(byte messageType) {
+        return m_pools[messageType & 0xff];
+    }
+
     public VoltMessage createMessageFromBuffer(ByteBuffer buffer, long sourceHSId)
     throws IOException
     {
         byte type = buffer.get();
 
-        // instantiate a new message instance according to the id
-        VoltMessage message = instantiate_local(type);
-        if (message == null)
-        {
-            message = instantiate(type);
+        final VoltMessagePool pool = m_pools[type & 0xff];
+        VoltMessage message = pool == null ? null : pool.poll();
+        if (message == null) {
+            // instantiate a new message instance according to the id
+            message = instantiate_local(type);
+            if (message == null)
+            {
+                message = instantiate(type);
+            }
         }
+        message.m_pool = pool;
         message.m_sourceHSId = sourceHSId;
         message.initFromBuffer(buffer.slice().asReadOnlyBuffer());
         return message;
@@ -0,0 +1,92 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.messaging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded free list of deserialized messages of one type. The factory takes instances from
+ * here before constructing new ones, and {@link VoltMessage#release()} hands them back once
+ * the last holder is done. Releasing is explicit, so only message types with a well defined
+ * end of life are pooled and pooling is off unless VOLT_MESSAGE_POOLING is set.
+ *
+ * When assertions are enabled released messages are quarantined instead of reused, so a
+ * holder that touches a message after it was released fails with the stack of the release
+ * rather than silently reading another transaction's data.
+ */
+public class VoltMessagePool {
+    public static final boolean ENABLED = Boolean.getBoolean("VOLT_MESSAGE_POOLING");
+    public static final int CAPACITY = Integer.getInteger("VOLT_MESSAGE_POOL_CAPACITY", 1024);
+
+    private static final boolean ASSERT_ON;
+    static {
+        boolean assertOn = false;
+        assert (assertOn = true);
+        ASSERT_ON = assertOn;
+    }
+
+    private final ArrayBlockingQueue<VoltMessage> m_free;
+    final boolean m_quarantineReleased;
+
+    private final AtomicLong m_created = new AtomicLong();
+    private final AtomicLong m_reused = new AtomicLong();
+    private final AtomicLong m_released = new AtomicLong();
+
+    public VoltMessagePool(int capacity) {
+        this(capacity, ASSERT_ON);
+    }
+
+    VoltMessagePool(int capacity, boolean quarantineReleased) {
+        m_free = new ArrayBlockingQueue<VoltMessage>(capacity);
+        m_quarantineReleased = quarantineReleased;
+    }
+
+    /**
+     * @return a released message ready to be initialized again, or null if none is free
+     */
+    VoltMessage poll() {
+        final VoltMessage message = m_free.poll();
+        if (message != null) {
+            m_reused.incrementAndGet();
+        } else {
+            m_created.incrementAndGet();
+        }
+        return message;
+    }
+
+    void offer(VoltMessage message) {
+        m_released.incrementAndGet();
+        if (!m_quarantineReleased) {
+            // a full pool just lets the message go to the garbage collector
+            m_free.offer(message);
+        }
+    }
+
+    public long getCreatedCount() {
+        return m_created.get();
+    }
+
+    public long getReusedCount() {
+        return m_reused.get();
+    }
+
+    public long getReleasedCount() {
+        return m_released.get();
+    }
+}
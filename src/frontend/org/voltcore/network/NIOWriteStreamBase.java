@@ -21,7 +21,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.Level;
@@ -48,8 +50,19 @@ public abstract class NIOWriteStreamBase {
      */
     protected final ArrayDeque<BBContainer> m_queuedBuffers = new ArrayDeque<BBContainer>();
 
+    /**
+     * Maximum number of pool buffers handed to the channel in one gathering write.
+     * Setting NETWORK_GATHERING_WRITE_BUFFERS to 1 issues one write per buffer.
+     */
+    static final int GATHERING_WRITE_BUFFERS =
+            Math.max(1, Integer.getInteger("NETWORK_GATHERING_WRITE_BUFFERS", 16));
+
+    private final ByteBuffer[] m_gatherBuffers = new ByteBuffer[GATHERING_WRITE_BUFFERS];
+
     protected long m_bytesWritten = 0;
     protected long m_messagesWritten = 0;
+    protected long m_messagesSerialized = 0;
+    protected long m_writeCalls = 0;
 
     /*
      * Used to provide incremental reads of the amount of
@@ -59,20 +72,55 @@ public abstract class NIOWriteStreamBase {
      */
     private long m_lastBytesWritten = 0;
     private long m_lastMessagesWritten = 0;
+    private long m_lastMessagesSerialized = 0;
+    private long m_lastWriteCalls = 0;
+    private final long m_createdNanos = System.nanoTime();
+    private long m_lastIntervalNanos = m_createdNanos;
 
+    /**
+     * Returns bytes written, buffers written, messages serialized, write calls made and
+     * bytes written per second, either since creation or since the last interval read
+     */
     long[] getBytesAndMessagesWritten(boolean interval) {
+        final long now = System.nanoTime();
         if (interval) {
             final long bytesWrittenThisTime = m_bytesWritten - m_lastBytesWritten;
             m_lastBytesWritten = m_bytesWritten;
 
             final long messagesWrittenThisTime = m_messagesWritten - m_lastMessagesWritten;
             m_lastMessagesWritten = m_messagesWritten;
-            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime };
+
+            final long messagesSerializedThisTime = m_messagesSerialized - m_lastMessagesSerialized;
+            m_lastMessagesSerialized = m_messagesSerialized;
+
+            final long writeCallsThisTime = m_writeCalls - m_lastWriteCalls;
+            m_lastWriteCalls = m_writeCalls;
+
+            final long elapsedNanos = now - m_lastIntervalNanos;
+            m_lastIntervalNanos = now;
+            return new long[] {
+                    bytesWrittenThisTime,
+                    messagesWrittenThisTime,
+                    messagesSerializedThisTime,
+                    writeCallsThisTime,
+                    perSecond(bytesWrittenThisTime, elapsedNanos) };
         } else {
-            return new long[] {m_bytesWritten, m_messagesWritten};
+            return new long[] {
+                    m_bytesWritten,
+                    m_messagesWritten,
+                    m_messagesSerialized,
+                    m_writeCalls,
+                    perSecond(m_bytesWritten, now - m_createdNanos) };
         }
     }
 
+    private static long perSecond(long count, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return (long)(count * (TimeUnit.SECONDS.toNanos(1) / (double)elapsedNanos));
+    }
+
     /*
      * Return the number of messages waiting to be written to the network
      */
@@ -88,6 +136,67 @@ public abstract class NIOWriteStreamBase {
 
     abstract int drainTo (final GatheringByteChannel channel) throws IOException;
 
+    /**
+     * Write the current write buffer along with as many queued buffers as fit in one
+     * gathering write. Fully written buffers are discarded and the first buffer with data
+     * left becomes the current write buffer. There must be something to write.
+     * @return bytes written by the channel
+     */
+    protected long gatheringWrite(final GatheringByteChannel channel) throws IOException {
+        if (m_currentWriteBuffer == null) {
+            m_currentWriteBuffer = m_queuedBuffers.poll();
+            m_currentWriteBuffer.b().flip();
+        }
+
+        final int gathered = gatherQueuedBuffers();
+        try {
+            m_writeCalls++;
+            if (gathered == 1) {
+                return channel.write(m_gatherBuffers[0]);
+            } else {
+                return channel.write(m_gatherBuffers, 0, gathered);
+            }
+        } finally {
+            releaseGatheredBuffers(gathered);
+        }
+    }
+
+    /*
+     * Fill the gather array with the current write buffer followed by as many queued
+     * buffers as fit, flipping the queued ones for reading. Returns the number gathered.
+     */
+    private int gatherQueuedBuffers() {
+        m_gatherBuffers[0] = m_currentWriteBuffer.b();
+        int gathered = 1;
+        final Iterator<BBContainer> iter = m_queuedBuffers.iterator();
+        while (gathered < m_gatherBuffers.length && iter.hasNext()) {
+            final ByteBuffer buffer = iter.next().b();
+            buffer.flip();
+            m_gatherBuffers[gathered++] = buffer;
+        }
+        return gathered;
+    }
+
+    /*
+     * Discard the buffers a gathering write fully drained and promote the first one with data
+     * left to be the current write buffer. Gathered buffers behind it were not touched by the
+     * write and are un-flipped so serializeQueuedWrites can keep appending to the last one.
+     */
+    private void releaseGatheredBuffers(int gathered) {
+        int ii = 0;
+        while (ii < gathered && !m_gatherBuffers[ii].hasRemaining()) {
+            m_currentWriteBuffer.discard();
+            m_messagesWritten++;
+            m_currentWriteBuffer = ++ii < gathered ? m_queuedBuffers.poll() : null;
+        }
+        for (int jj = ii + 1; jj < gathered; jj++) {
+            final ByteBuffer buffer = m_gatherBuffers[jj];
+            buffer.position(buffer.limit());
+            buffer.limit(buffer.capacity());
+        }
+        Arrays.fill(m_gatherBuffers, 0, gathered, null);
+    }
+
     protected abstract Deque<DeferredSerialization> getQueuedWrites();
 
     /**
@@ -155,6 +264,7 @@ public abstract class NIOWriteStreamBase {
             }
         }
         updateQueued(bytesQueued, true);
+        m_messagesSerialized += processedWrites;
         return processedWrites;
     }
 
@@ -74,7 +74,7 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
     protected void updateQueued(int queued, boolean noBackpressureSignal) {}
 
     /**
-     * Drain pending buffers one at a time into the socket
+     * Drain pending buffers into the socket, several at a time
      * @param channel
      * @return
      * @throws IOException
@@ -91,23 +91,7 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
                 break;
             }
 
-            ByteBuffer buffer = null;
-            if (m_currentWriteBuffer == null) {
-                m_currentWriteBuffer = m_queuedBuffers.poll();
-                buffer = m_currentWriteBuffer.b();
-                buffer.flip();
-            } else {
-                buffer = m_currentWriteBuffer.b();
-            }
-
-            rc = channel.write(buffer);
-
-            //Discard the buffer back to a pool if no data remains
-            if (!buffer.hasRemaining()) {
-                m_currentWriteBuffer.discard();
-                m_currentWriteBuffer = null;
-                m_messagesWritten++;
-            }
+            rc = gatheringWrite(channel);
             bytesWritten += rc;
 
         } while (rc > 0);
@@ -125,12 +109,20 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
     }
 
     public void enqueue(final ByteBuffer buf) {
+        final DeferredSerialization ds = serializationOf(buf);
+        if (m_isShutdown) return;
+        m_queuedWrites.offer(ds);
+    }
+
+    /**
+     * Wrap a heap buffer so it can be queued like any other write
+     */
+    static DeferredSerialization serializationOf(final ByteBuffer buf) {
         assert(!buf.isDirect());//Don't queue direct buffers, they leak memory without a container
         if (buf.remaining() == 0) {
             throw new IllegalArgumentException("Attempted to queue a zero length buffer");
         }
-        if (m_isShutdown) return;
-        m_queuedWrites.offer(new DeferredSerialization() {
+        return new DeferredSerialization() {
 
             @Override
             public void serialize(final ByteBuffer outbuf) throws IOException {
@@ -144,6 +136,6 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
             public int getSerializedSize() {
                 return buf.remaining();
             }
-        });
+        };
     }
 }
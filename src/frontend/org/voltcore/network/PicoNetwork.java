@@ -79,6 +79,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
@@ -102,6 +105,25 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     protected final NIOReadStream m_readStream = new NIOReadStream();
     protected PicoNIOWriteStream m_writeStream;
     protected final ConcurrentLinkedQueue<Runnable> m_tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /**
+     * Writes queued by other threads in arrival order. Messages that arrive while the network
+     * thread is busy pile up here and are serialized into shared buffers and written together.
+     * The selector is only woken for the first write queued since the thread last looked.
+     */
+    private final ConcurrentLinkedQueue<DeferredSerialization> m_pendingWrites =
+            new ConcurrentLinkedQueue<DeferredSerialization>();
+    private final AtomicBoolean m_wakeupPending = new AtomicBoolean(false);
+
+    /**
+     * When the previous pass had work, wait up to this long for more writes before flushing so
+     * they share a socket write. An idle link always flushes immediately. Zero disables the wait.
+     */
+    static final long COALESCE_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Long.getLong("PICO_COALESCE_MICROS", 0));
+    static final int COALESCE_MAX_MESSAGES = Integer.getInteger("PICO_COALESCE_MAX_MESSAGES", 64);
+    // The network thread while it is parked waiting for more writes, unparked by enqueue
+    private volatile Thread m_coalescingThread = null;
     protected volatile boolean m_shouldStop = false;//volatile boolean is sufficient
     protected long m_messagesRead;
     protected int m_interestOps = 0;
@@ -192,6 +214,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             while (m_shouldStop == false) {
                 LatencyWatchdog.pet();
 
+                final boolean wasBusy = m_hadWork;
                 //Choose a non-blocking select if things are busy
                 if (m_hadWork) {
                     m_selector.selectNow();
@@ -206,6 +229,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                     task.run();
                 }
                 dispatchReadStream();
+                transferPendingWrites();
+                if (wasBusy) {
+                    coalescePendingWrites();
+                }
                 drainWriteStream();
             }
         } catch (CancelledKeyException e) {
@@ -289,6 +316,45 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
         return read;
     }
 
+    /**
+     * Move writes queued by other threads onto the write stream
+     */
+    private void transferPendingWrites() {
+        m_wakeupPending.set(false);
+        DeferredSerialization ds;
+        while ((ds = m_pendingWrites.poll()) != null) {
+            m_writeStream.enqueue(ds);
+        }
+    }
+
+    /**
+     * Hold the flush until enough messages are queued or the deadline passes. The thread
+     * parks in between, woken by each enqueue, so reads wait at most COALESCE_NANOS.
+     */
+    private void coalescePendingWrites() {
+        if (COALESCE_NANOS == 0 || m_writeStream.isEmpty()) {
+            return;
+        }
+        final long deadline = System.nanoTime() + COALESCE_NANOS;
+        m_coalescingThread = Thread.currentThread();
+        try {
+            while (true) {
+                // Anything enqueued before m_coalescingThread was visible is picked up here
+                transferPendingWrites();
+                if (m_writeStream.getOutstandingMessageCount() >= COALESCE_MAX_MESSAGES) {
+                    return;
+                }
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            m_coalescingThread = null;
+        }
+    }
+
     protected void drainWriteStream() throws IOException {
         /*
          * Drain the write stream
@@ -364,6 +430,8 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                     m_readStream.shutdown();
                 } finally {
                     try {
+                        // hand over anything still pending so the write stream cancels it
+                        transferPendingWrites();
                         m_writeStream.shutdown();
                     } finally {
                         try {
@@ -399,7 +467,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    writeInfo[2],
+                                    writeInfo[3],
+                                    writeInfo[4]}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -408,7 +479,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    writeInfo[2],
+                                    writeInfo[3],
+                                    writeInfo[4] }));
             return retval;
     }
 
@@ -513,29 +587,25 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     }
 
     public void enqueue(final DeferredSerialization ds) {
-        m_tasks.offer(new Runnable() {
-            @Override
-            public void run() {
-                m_writeStream.enqueue(ds);
-            }
-        });
-        m_selector.wakeup();
+        m_pendingWrites.offer(ds);
+        final Thread coalescing = m_coalescingThread;
+        if (coalescing != null) {
+            LockSupport.unpark(coalescing);
+        }
+        if (m_wakeupPending.compareAndSet(false, true)) {
+            m_selector.wakeup();
+        }
     }
 
     public void enqueue(final ByteBuffer buf) {
-        m_tasks.offer(new Runnable() {
-            @Override
-            public void run() {
-                m_writeStream.enqueue(buf);
-            }
-        });
-        m_selector.wakeup();
+        enqueue(PicoNIOWriteStream.serializationOf(buf));
     }
 
     public FutureTask<Void> enqueueAndDrain(final ByteBuffer buf) {
+        m_pendingWrites.offer(PicoNIOWriteStream.serializationOf(buf));
         Callable<Void> task = new Callable<Void>() {
             public Void call() throws Exception {
-                m_writeStream.enqueue(buf);
+                transferPendingWrites();
                 drainWriteStream();
                 return null;
             }
@@ -173,11 +173,13 @@ public class TLSEncryptionAdapter {
         final int encryptedBytesDelta;
         final long bytesWritten;
         final int messagesWritten;
+        final int writeCalls;
 
-        public EncryptLedger(int delta, long bytesWritten, int messagesWritten) {
+        public EncryptLedger(int delta, long bytesWritten, int messagesWritten, int writeCalls) {
             this.encryptedBytesDelta = delta;
             this.bytesWritten = bytesWritten;
             this.messagesWritten = messagesWritten;
+            this.writeCalls = writeCalls;
         }
     }
 
@@ -191,6 +193,8 @@ public class TLSEncryptionAdapter {
             delta += queued;
         }
 
+        // the composite buffer hands all of its components to the channel in one gathering write
+        final int writeCalls = m_encryptedMessages.isReadable() ? 1 : 0;
         long bytesWritten = m_encryptedMessages.readBytes(channel, m_encryptedMessages.readableBytes());
         m_encryptedMessages.discardReadComponents();
 
@@ -200,7 +204,7 @@ public class TLSEncryptionAdapter {
             m_numEncryptedMessages = 0;
         }
 
-        return new EncryptLedger(delta, bytesWritten, messagesWritten);
+        return new EncryptLedger(delta, bytesWritten, messagesWritten, writeCalls);
     }
 
     /**
@@ -68,6 +68,7 @@ public class TLSPicoNIOWriteStream extends PicoNIOWriteStream {
                 ledger = m_tlsEncryptionAdapter.drainEncryptedMessages(channel);
                 totalWritten += ledger.bytesWritten;
                 m_messagesWritten += ledger.messagesWritten;
+                m_writeCalls += ledger.writeCalls;
             } while (ledger.bytesWritten > 0);
         } finally {
             if (totalWritten > 0) {
@@ -330,26 +330,11 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
                     return bytesWritten;
                 }
 
-                ByteBuffer buffer = null;
-                if (m_currentWriteBuffer == null) {
-                    m_currentWriteBuffer = m_queuedBuffers.poll();
-                    buffer = m_currentWriteBuffer.b();
-                    buffer.flip();
-                } else {
-                    buffer = m_currentWriteBuffer.b();
-                }
-
-                rc = channel.write(buffer);
+                rc = gatheringWrite(channel);
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
-                    if (!m_hadBackPressure) {
-                        backpressureStarted();
-                    }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
+                //A partially written buffer means the socket is full
+                if (m_currentWriteBuffer != null && !m_hadBackPressure) {
+                    backpressureStarted();
                 }
                 bytesWritten += rc;
 
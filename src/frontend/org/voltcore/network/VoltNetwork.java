@@ -505,6 +505,9 @@ class VoltNetwork implements Runnable, IOStatsIntf
         long totalMessagesRead = 0;
         long totalWritten = 0;
         long totalMessagesWritten = 0;
+        long totalMessagesSerialized = 0;
+        long totalWriteCalls = 0;
+        long totalWrittenPerSecond = 0;
         for (VoltPort p : m_ports) {
             final long read = p.readStream().getBytesRead(interval);
             final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
@@ -513,6 +516,9 @@ class VoltNetwork implements Runnable, IOStatsIntf
             totalMessagesRead += messagesRead;
             totalWritten += writeInfo[0];
             totalMessagesWritten += writeInfo[1];
+            totalMessagesSerialized += writeInfo[2];
+            totalWriteCalls += writeInfo[3];
+            totalWrittenPerSecond += writeInfo[4];
             retval.put(
                     p.connectionId(),
                     Pair.of(
@@ -521,7 +527,10 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    writeInfo[2],
+                                    writeInfo[3],
+                                    writeInfo[4] }));
         }
         retval.put(
                 -1L,
@@ -531,7 +540,10 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                 totalRead,
                                 totalMessagesRead,
                                 totalWritten,
-                                totalMessagesWritten }));
+                                totalMessagesWritten,
+                                totalMessagesSerialized,
+                                totalWriteCalls,
+                                totalWrittenPerSecond }));
         return retval;
     }
 
@@ -75,6 +75,10 @@ public class VoltPort implements Connection
     protected VoltNIOWriteStream m_writeStream;
     protected long m_messagesRead = 0;
     private long m_lastMessagesRead = 0;
+    // nanoTime of the last read that returned data, for transaction stage tracing.
+    // Only taken when TXN_STAGE_SAMPLE_RATE enables that tracing.
+    private static final boolean TRACK_READ_NANOS = Integer.getInteger("TXN_STAGE_SAMPLE_RATE", 0) > 0;
+    private long m_lastReadNanos = 0;
 
     /*
      * This variable will be changed to the actual hostname some time later. It
@@ -206,10 +210,21 @@ public class VoltPort implements Connection
 
         if (read == -1) {
             handleReadStreamEOF();
+        } else if (TRACK_READ_NANOS && read > 0) {
+            m_lastReadNanos = System.nanoTime();
         }
         return read;
     }
 
+    /**
+     * @return the {@link System#nanoTime()} of the last read from the socket that
+     * returned data, or 0 if unknown or stage sampling is disabled. Only meaningful
+     * on the thread handling this port's messages.
+     */
+    public long getLastReadNanos() {
+        return m_lastReadNanos;
+    }
+
     protected void handleReadStreamEOF() throws IOException {
         disableReadSelection();
 
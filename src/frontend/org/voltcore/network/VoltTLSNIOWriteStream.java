@@ -80,6 +80,7 @@ public class VoltTLSNIOWriteStream extends VoltNIOWriteStream {
                 delta += ledger.encryptedBytesDelta;
                 totalWritten += ledger.bytesWritten;
                 m_messagesWritten += ledger.messagesWritten;
+                m_writeCalls += ledger.writeCalls;
                 if (m_tlsEncryptAdapter.getEncryptedMessagesBuffer().isReadable()) {
                     if (!m_hadBackPressure) {
                         backpressureStarted();
@@ -16,9 +16,13 @@
  */
 package org.voltdb;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -40,25 +44,38 @@ import org.voltdb.dtxn.LatencyHistogramStats;
  * Admission control only limits the amount of work each group is willing to accept into the cluster.
  * Because there is no coordination between groups it is possible for all the work to end up at one node.
  * This is guaranteed to happen if one node is slow enough that it can't keep up with the workload.
+ *
+ * Members are divided into admission classes, configured with the ADMISSION_CLASSES system property
+ * and assigned by user or role, so a batch loader can be kept from throttling latency sensitive clients.
+ * Each class gets a weighted share of the group's limits and backpressure is signalled per class, so a
+ * class that fills its share only stops its own members. Shares are reserved rather than borrowed, which
+ * also bounds how much of one class's work the others can end up queued behind. Without configuration
+ * there is a single class with the whole of the group's limits.
  */
 public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
 {
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
+    public static final String DEFAULT_ADMISSION_CLASS = "DEFAULT";
+
+    /*
+     * Admission classes as "name=weight[:user or role,...]" separated by semicolons, for example
+     * "DEFAULT=4;BATCH=1:loader,etl". Members that are not listed belong to DEFAULT, which has a
+     * weight of 1 unless it is listed.
+     */
+    static final List<AdmissionClassSpec> CLASS_SPECS =
+            loadClassSpecs(System.getProperty("ADMISSION_CLASSES", ""));
 
     /*
      * Maximum values for each group are configured when the group is constructed
      */
     final private int MAX_DESIRED_PENDING_BYTES;
-    final private int LESS_THAN_MAX_DESIRED_PENDING_BYTES;
     final private int MAX_DESIRED_PENDING_TXNS;
-    final private int LESS_THAN_MAX_DESIRED_PENDING_TXNS;
 
     private static final VoltLogger hostLog = new VoltLogger("HOST");
 
     private int m_pendingTxnCount = 0;
     private long m_pendingTxnBytes = 0;
-    private boolean m_hadBackPressure = false;
 
     /*
      * If for some reason ACG logs a negative transaction count or outstanding bytes,
@@ -86,9 +103,99 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         public long connectionId();
     }
 
+    static class AdmissionClassSpec {
+        final String m_name;
+        final int m_weight;
+        final Set<String> m_users = new HashSet<String>();
+        final Set<String> m_roles = new HashSet<String>();
+
+        AdmissionClassSpec(String name, int weight) {
+            m_name = name;
+            m_weight = weight;
+        }
+    }
+
+    /*
+     * A weighted share of the group's limits along with the members drawing on it. Pending counts
+     * for the class are also included in the group's totals.
+     */
+    public class AdmissionClass
+    {
+        private final String m_name;
+        private final long m_maxBytes;
+        private final long m_lessThanMaxBytes;
+        private final int m_maxTxns;
+        private final int m_lessThanMaxTxns;
+        private final HashSet<ACGMember> m_members = new HashSet<ACGMember>();
+
+        private int m_pendingTxnCount = 0;
+        private long m_pendingTxnBytes = 0;
+        private boolean m_hadBackPressure = false;
+        private long m_backpressureCount = 0;
+
+        private AdmissionClass(String name, double share) {
+            m_name = name;
+            // A small enough share would round down to limits that never let the class resume
+            m_maxBytes = Math.max(1, (long)(MAX_DESIRED_PENDING_BYTES * share));
+            m_lessThanMaxBytes = Math.max(1, (long)(m_maxBytes * .8));
+            m_maxTxns = Math.max(1, (int)(MAX_DESIRED_PENDING_TXNS * share));
+            m_lessThanMaxTxns = Math.max(1, (int)(m_maxTxns * .8));
+        }
+
+        public String getName() {
+            return m_name;
+        }
+
+        public boolean hasBackPressure() {
+            return m_hadBackPressure;
+        }
 
+        public int getPendingTxnCount() {
+            return m_pendingTxnCount;
+        }
+
+        public long getPendingBytes() {
+            return m_pendingTxnBytes;
+        }
+
+        /**
+         * @return how many times members of this class have been told to stop reading
+         */
+        public long getBackpressureCount() {
+            return m_backpressureCount;
+        }
+
+        private boolean isOverShare() {
+            return m_pendingTxnBytes > m_maxBytes || m_pendingTxnCount > m_maxTxns;
+        }
+
+        private boolean isUnderShare() {
+            return m_pendingTxnBytes < m_lessThanMaxBytes && m_pendingTxnCount < m_lessThanMaxTxns;
+        }
+
+        private void setBackpressure(boolean backpressure) {
+            if (m_hadBackPressure == backpressure) {
+                return;
+            }
+            m_hadBackPressure = backpressure;
+            if (backpressure) {
+                hostLog.debug("TXN back pressure began for admission class " + m_name);
+                m_backpressureCount++;
+                for (ACGMember m : m_members) {
+                    m.onBackpressure();
+                }
+            } else {
+                hostLog.debug("TXN backpressure ended for admission class " + m_name);
+                for (ACGMember m : m_members) {
+                    m.offBackpressure();
+                }
+            }
+        }
+    }
 
-    private final HashSet<ACGMember> m_members = new HashSet<ACGMember>();
+    private final Map<String, AdmissionClass> m_classes = new LinkedHashMap<String, AdmissionClass>();
+    private final AdmissionClass[] m_classArray;
+    private final AdmissionClass m_defaultClass;
 
     /*
      * Reads/writes to the actual InvocationInfo are unsynchronized. There is a single writer
@@ -102,47 +209,161 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
     private final AbstractHistogram m_latencyInfo = LatencyHistogramStats.constructHistogram(true);
 
     public AdmissionControlGroup(int maxBytes, int maxRequests)
+    {
+        this(maxBytes, maxRequests, CLASS_SPECS);
+    }
+
+    AdmissionControlGroup(int maxBytes, int maxRequests, List<AdmissionClassSpec> classSpecs)
     {
         MAX_DESIRED_PENDING_BYTES = maxBytes;
-        LESS_THAN_MAX_DESIRED_PENDING_BYTES = (int)(MAX_DESIRED_PENDING_BYTES * .8);
         MAX_DESIRED_PENDING_TXNS = maxRequests;
-        LESS_THAN_MAX_DESIRED_PENDING_TXNS = (int)(MAX_DESIRED_PENDING_TXNS * .8);
+
+        double totalWeight = 0;
+        for (AdmissionClassSpec spec : classSpecs) {
+            totalWeight += spec.m_weight;
+        }
+        for (AdmissionClassSpec spec : classSpecs) {
+            m_classes.put(spec.m_name, new AdmissionClass(spec.m_name, spec.m_weight / totalWeight));
+        }
+        m_classArray = m_classes.values().toArray(new AdmissionClass[m_classes.size()]);
+        m_defaultClass = m_classes.get(DEFAULT_ADMISSION_CLASS);
     }
 
     public static AdmissionControlGroup getDummy() {
         return new AdmissionControlGroup(Integer.MAX_VALUE, Integer.MAX_VALUE) {
             @Override
-            public void addMember(ACGMember member) {}
+            public void addMember(ACGMember member, AdmissionClass admissionClass) {}
             @Override
             public void removeMember(ACGMember member) {}
             @Override
-            public void increaseBackpressure(int messageSize) {}
+            public void increaseBackpressure(AdmissionClass admissionClass, int messageSize) {}
             @Override
-            public void reduceBackpressure(int messageSize) {}
+            public void reduceBackpressure(AdmissionClass admissionClass, int messageSize) {}
             @Override
-            public boolean queue(int bytes) { return false; }
+            public boolean queue(AdmissionClass admissionClass, int bytes) { return false; }
         };
     }
 
+    /*
+     * A bad ADMISSION_CLASSES value should not keep clients from connecting, so log it and
+     * put everyone in the default class.
+     */
+    static List<AdmissionClassSpec> loadClassSpecs(String config) {
+        try {
+            return parseClassSpecs(config);
+        } catch (IllegalArgumentException e) {
+            networkLog.error("Ignoring ADMISSION_CLASSES \"" + config + "\": " + e.getMessage() +
+                    ". All clients will use the " + DEFAULT_ADMISSION_CLASS + " admission class.");
+            return parseClassSpecs("");
+        }
+    }
+
+    static List<AdmissionClassSpec> parseClassSpecs(String config) {
+        Map<String, AdmissionClassSpec> specs = new LinkedHashMap<String, AdmissionClassSpec>();
+        for (String classConfig : config.split(";")) {
+            classConfig = classConfig.trim();
+            if (classConfig.isEmpty()) {
+                continue;
+            }
+            String[] nameAndRest = classConfig.split("=", 2);
+            String[] weightAndMembers = nameAndRest.length > 1 ? nameAndRest[1].split(":", 2) : new String[] {""};
+            String name = nameAndRest[0].trim().toUpperCase();
+            int weight;
+            try {
+                weight = Integer.parseInt(weightAndMembers[0].trim());
+            } catch (NumberFormatException e) {
+                weight = 0;
+            }
+            if (name.isEmpty() || weight < 1 || specs.containsKey(name)) {
+                throw new IllegalArgumentException("Invalid admission class \"" + classConfig +
+                        "\", expected name=weight[:user or role,...] with a unique name and a positive weight");
+            }
+            AdmissionClassSpec spec = new AdmissionClassSpec(name, weight);
+            if (weightAndMembers.length > 1) {
+                for (String member : weightAndMembers[1].split(",")) {
+                    member = member.trim();
+                    if (!member.isEmpty()) {
+                        // user names are case sensitive, role names are not
+                        spec.m_users.add(member);
+                        spec.m_roles.add(member.toUpperCase());
+                    }
+                }
+            }
+            specs.put(name, spec);
+        }
+        if (!specs.containsKey(DEFAULT_ADMISSION_CLASS)) {
+            specs.put(DEFAULT_ADMISSION_CLASS, new AdmissionClassSpec(DEFAULT_ADMISSION_CLASS, 1));
+        }
+        return new ArrayList<AdmissionClassSpec>(specs.values());
+    }
+
+    /**
+     * Pick the admission class for a user, preferring a class that lists the user by name
+     * over one that lists one of the user's roles.
+     */
+    public static String getAdmissionClassName(String userName, String[] roles) {
+        return getAdmissionClassName(CLASS_SPECS, userName, roles);
+    }
+
+    static String getAdmissionClassName(List<AdmissionClassSpec> classSpecs, String userName, String[] roles) {
+        if (classSpecs.size() == 1) {
+            return DEFAULT_ADMISSION_CLASS;
+        }
+        for (AdmissionClassSpec spec : classSpecs) {
+            if (userName != null && spec.m_users.contains(userName)) {
+                return spec.m_name;
+            }
+        }
+        for (AdmissionClassSpec spec : classSpecs) {
+            for (String role : roles) {
+                if (spec.m_roles.contains(role.toUpperCase())) {
+                    return spec.m_name;
+                }
+            }
+        }
+        return DEFAULT_ADMISSION_CLASS;
+    }
+
+    public AdmissionClass getAdmissionClass(String name) {
+        AdmissionClass admissionClass = m_classes.get(name);
+        return admissionClass == null ? m_defaultClass : admissionClass;
+    }
+
+    public AdmissionClass getDefaultClass() {
+        return m_defaultClass;
+    }
+
     public void addMember(ACGMember member)
+    {
+        addMember(member, m_defaultClass);
+    }
+
+    public void addMember(ACGMember member, AdmissionClass admissionClass)
     {
         assert(m_expectedThreadId == Thread.currentThread().getId());
-        m_members.add(member);
+        admissionClass.m_members.add(member);
     }
 
     public void removeMember(ACGMember member)
     {
         assert(m_expectedThreadId == Thread.currentThread().getId());
-        m_members.remove(member);
+        for (AdmissionClass admissionClass : m_classArray) {
+            admissionClass.m_members.remove(member);
+        }
         m_connectionStates.remove(member.connectionId());
     }
 
+    public void increaseBackpressure(int messageSize)
+    {
+        increaseBackpressure(m_defaultClass, messageSize);
+    }
+
     /*
      * Invoked when accepting a new transaction. Increments pending txn count in addition
      * to tracking the number of request bytes accepted. Can invoke onBackpressure
-     * on all group members if there isn't already a backpressure condition.
+     * on the members of the class if it is over its share.
      */
-    public void increaseBackpressure(int messageSize)
+    public void increaseBackpressure(AdmissionClass admissionClass, int messageSize)
     {
         assert(m_expectedThreadId == Thread.currentThread().getId());
         if (messageSize < 1) {
@@ -150,27 +371,22 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         }
         m_pendingTxnBytes += messageSize;
         m_pendingTxnCount++;
+        admissionClass.m_pendingTxnBytes += messageSize;
+        admissionClass.m_pendingTxnCount++;
 
-        checkAndLogInvariants();
-        if (m_pendingTxnBytes > MAX_DESIRED_PENDING_BYTES || m_pendingTxnCount > MAX_DESIRED_PENDING_TXNS) {
-            if (!m_hadBackPressure) {
-                hostLog.debug("TXN back pressure began");
-                m_hadBackPressure = true;
-                for (ACGMember m : m_members) {
-                    m.onBackpressure();
-                }
-            }
-        }
+        checkAndLogInvariants(admissionClass);
+        updateBackpressure(admissionClass);
     }
 
     /*
      * Check that various invariants are maintained. If they aren't log the error at most once,
      * and take corrective action to maintain the invariants
      */
-    private void checkAndLogInvariants() {
-        if (m_pendingTxnCount < 0 || m_pendingTxnBytes < 0) {
-            boolean badTxnCount = m_pendingTxnCount < 0 ? true : false;
-            boolean badPendingBytes = m_pendingTxnBytes < 0 ? true : false;
+    private void checkAndLogInvariants(AdmissionClass admissionClass) {
+        if (m_pendingTxnCount < 0 || m_pendingTxnBytes < 0 ||
+            admissionClass.m_pendingTxnCount < 0 || admissionClass.m_pendingTxnBytes < 0) {
+            boolean badTxnCount = m_pendingTxnCount < 0 || admissionClass.m_pendingTxnCount < 0;
+            boolean badPendingBytes = m_pendingTxnBytes < 0 || admissionClass.m_pendingTxnBytes < 0;
             if (!m_haveLoggedACGNegativeFailure) {
                 m_haveLoggedACGNegativeFailure = true;
                 if (badTxnCount) {
@@ -188,21 +404,42 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
             }
 
             /*
-             * Repair both. It's possible that repairing it will trigger a repair cascade
+             * Repair them. It's possible that repairing it will trigger a repair cascade
              * effectively rendering the ACG always permissive, but it should right itself
              * once all requests associated with the ACG have left the system and the correct values are indeed 0.
              */
-            m_pendingTxnCount = 0;
-            m_pendingTxnBytes = 0;
+            m_pendingTxnCount = Math.max(m_pendingTxnCount, 0);
+            m_pendingTxnBytes = Math.max(m_pendingTxnBytes, 0);
+            admissionClass.m_pendingTxnCount = Math.max(admissionClass.m_pendingTxnCount, 0);
+            admissionClass.m_pendingTxnBytes = Math.max(admissionClass.m_pendingTxnBytes, 0);
+        }
+    }
+
+    /*
+     * A class over its share stops accepting work until it is back under 80% of its share
+     */
+    private static void updateBackpressure(AdmissionClass admissionClass) {
+        if (admissionClass.m_hadBackPressure) {
+            if (admissionClass.isUnderShare()) {
+                admissionClass.setBackpressure(false);
+            }
+        }
+        else if (admissionClass.isOverShare()) {
+            admissionClass.setBackpressure(true);
         }
     }
 
+    public void reduceBackpressure(int messageSize)
+    {
+        reduceBackpressure(m_defaultClass, messageSize);
+    }
+
     /*
      * Invoked when receiving a response to a transaction. Decrements pending txn count in addition
      * to tracking the number of request bytes accepted. Can invoke offBackpressure
-     * on all group members if there is a backpressure condition that has ended
+     * on the members of the class if its backpressure condition has ended
      */
-    public void reduceBackpressure(int messageSize)
+    public void reduceBackpressure(AdmissionClass admissionClass, int messageSize)
     {
         assert(m_expectedThreadId == Thread.currentThread().getId());
         if (messageSize < 1) {
@@ -211,19 +448,10 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
 
         m_pendingTxnBytes -= messageSize;
         m_pendingTxnCount--;
-        checkAndLogInvariants();
-
-        if ((m_pendingTxnBytes < LESS_THAN_MAX_DESIRED_PENDING_BYTES) &&
-            (m_pendingTxnCount < LESS_THAN_MAX_DESIRED_PENDING_TXNS))
-        {
-            if (m_hadBackPressure) {
-                hostLog.debug("TXN backpressure ended");
-                m_hadBackPressure = false;
-                for (ACGMember m : m_members) {
-                    m.offBackpressure();
-                }
-            }
-        }
+        admissionClass.m_pendingTxnBytes -= messageSize;
+        admissionClass.m_pendingTxnCount--;
+        checkAndLogInvariants(admissionClass);
+        updateBackpressure(admissionClass);
     }
 
     /*
@@ -231,7 +459,12 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
      * Read selection should not be enabled if there is currently backpressure
      */
     public boolean hasBackPressure() {
-        return m_hadBackPressure;
+        for (AdmissionClass admissionClass : m_classArray) {
+            if (admissionClass.m_hadBackPressure) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -242,6 +475,11 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         return m_pendingTxnBytes;
     }
 
+    @Override
+    public boolean queue(int bytes) {
+        return queue(m_defaultClass, bytes);
+    }
+
     /*
      * Invoked when queueing response bytes back to a connection. Can be invoked with positive/negative
      * values to indicate whether data is being flushed or added. The same resource pool counter is used
@@ -251,31 +489,11 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
      * Can signal start/stop backpressure when appropriate. The return value is not used and will be removed
      * in the future.
      */
-    @Override
-    public boolean queue(int bytes) {
+    public boolean queue(AdmissionClass admissionClass, int bytes) {
         m_pendingTxnBytes += bytes;
-        checkAndLogInvariants();
-
-        if (m_pendingTxnBytes > MAX_DESIRED_PENDING_BYTES) {
-            if (!m_hadBackPressure) {
-                hostLog.debug("TXN back pressure began");
-                m_hadBackPressure = true;
-                for (ACGMember m : m_members) {
-                    m.onBackpressure();
-                }
-            }
-        }
-        else if ((m_pendingTxnBytes < LESS_THAN_MAX_DESIRED_PENDING_BYTES) &&
-                (m_pendingTxnCount < LESS_THAN_MAX_DESIRED_PENDING_TXNS)) {
-            if (m_hadBackPressure) {
-                hostLog.debug("TXN backpressure ended");
-                m_hadBackPressure = false;
-                for (ACGMember m : m_members) {
-                    m.offBackpressure();
-                }
-            }
-        }
-
+        admissionClass.m_pendingTxnBytes += bytes;
+        checkAndLogInvariants(admissionClass);
+        updateBackpressure(admissionClass);
         return false;
     }
 
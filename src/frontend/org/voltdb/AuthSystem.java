@@ -28,6 +28,7 @@ import java.security.AccessController;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivilegedAction;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -36,6 +37,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
@@ -68,9 +71,13 @@ import org.voltdb.utils.Encoder;
 import org.voltdb.utils.LogKeys;
 
 import com.google_voltpatches.common.base.Throwables;
+import com.google_voltpatches.common.cache.Cache;
+import com.google_voltpatches.common.cache.CacheBuilder;
 import com.google_voltpatches.common.collect.ImmutableList;
 import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.util.concurrent.ExecutionError;
+import com.google_voltpatches.common.util.concurrent.UncheckedExecutionException;
 
 
 /**
@@ -82,6 +89,13 @@ public class AuthSystem {
 
     private static final VoltLogger authLogger = new VoltLogger("AUTH");
 
+    /**
+     * How long, in seconds, a successfully verified password hash is remembered so that
+     * clients reconnecting with the same credentials skip the bcrypt check. 0 disables it.
+     */
+    static final long VERIFIED_CREDENTIAL_TTL_SECONDS = Long.getLong("AUTH_CACHE_SECONDS", 120);
+    static final long MAX_VERIFIED_CREDENTIALS = Long.getLong("AUTH_CACHE_ENTRIES", 10000);
+
     /**
      * JASS Login configuration entry designator
      */
@@ -354,6 +368,24 @@ public class AuthSystem {
     //Auth system keeps a array of all perms used for auth disabled user not for checking permissions.
     private static String[] m_perm_list;
 
+    /**
+     * Password hashes that passed the bcrypt check, keyed by a salted digest of the
+     * bcrypt shadow password, scheme and password hash rather than the hash itself.
+     * A new AuthSystem is built for every catalog, so changing users or passwords
+     * starts with an empty cache.
+     */
+    private final Cache<String, Boolean> m_verifiedCredentials = CacheBuilder.newBuilder()
+            .maximumSize(MAX_VERIFIED_CREDENTIALS)
+            .expireAfterWrite(VERIFIED_CREDENTIAL_TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+    private final byte[] m_credentialSalt = newCredentialSalt();
+
+    private static byte[] newCredentialSalt() {
+        byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
     AuthSystem(final Database db, boolean enabled) {
         AuthProvider ap = null;
         LoginContext loginContext = null;
@@ -742,7 +774,7 @@ public class AuthSystem {
                 }
             } else {
                 String pwToCheck = (scheme == ClientAuthScheme.HASH_SHA1 ? user.m_bcryptShadowPassword : user.m_bcryptSha2ShadowPassword);
-                matched = BCrypt.checkpw(Encoder.hexEncode(m_password), pwToCheck);
+                matched = checkBcrypt(scheme, m_password, pwToCheck);
             }
 
             if (matched) {
@@ -756,6 +788,51 @@ public class AuthSystem {
         }
     }
 
+    /**
+     * Check a password hash against a bcrypt shadow, reusing the result of an earlier
+     * successful check of the same credentials. Concurrent logins with the same
+     * credentials wait for a single check instead of each running their own.
+     */
+    private boolean checkBcrypt(ClientAuthScheme scheme, final byte[] password, final String shadowPassword)
+            throws Exception {
+        if (VERIFIED_CREDENTIAL_TTL_SECONDS <= 0) {
+            return BCrypt.checkpw(Encoder.hexEncode(password), shadowPassword);
+        }
+        String key = credentialKey(scheme, password, shadowPassword);
+        boolean matched;
+        try {
+            matched = m_verifiedCredentials.get(key, new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return BCrypt.checkpw(Encoder.hexEncode(password), shadowPassword);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            // rethrow whatever the bcrypt check itself threw
+            Throwables.throwIfUnchecked(e.getCause());
+            throw (Exception) e.getCause();
+        }
+        if (!matched) {
+            // only remember successes, a mistyped password should not linger
+            m_verifiedCredentials.invalidate(key);
+        }
+        return matched;
+    }
+
+    private String credentialKey(ClientAuthScheme scheme, byte[] password, String shadowPassword)
+            throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(m_credentialSalt);
+        md.update(shadowPassword.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) scheme.getValue());
+        md.update(password);
+        return Encoder.hexEncode(md.digest());
+    }
+
+    long getVerifiedCredentialCount() {
+        return m_verifiedCredentials.size();
+    }
+
     private static void logAuthSuccess(String user, String fromAddress) {
         //Make sure its logged per user
         if (fromAddress == null) {
@@ -39,6 +39,7 @@ import org.voltdb.catalog.Deployment;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Table;
+import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.PlannerTool;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.settings.ClusterSettings;
@@ -194,6 +195,8 @@ public class CatalogContext {
             m_defaultProcs = defaultProcManager;
             m_ptool = plannerTool.updateWhenNoSchemaChange(database, m_catalogInfo.m_catalogHash);;
         }
+        // Ad hoc statements are planned with the same statistics as the procedures of the catalog.
+        m_ptool.setCatalogEstimates(DatabaseEstimates.fromCatalogJar(m_catalogInfo.m_jarfile, database));
 
         m_jdbc = new JdbcDatabaseMetaDataGenerator(catalog, m_defaultProcs, m_catalogInfo.m_jarfile);
         m_messenger = messenger;
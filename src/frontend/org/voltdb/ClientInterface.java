@@ -89,6 +89,7 @@ import org.voltdb.client.ProcedureCallback;
 import org.voltdb.client.TLSHandshaker;
 import org.voltdb.common.Constants;
 import org.voltdb.dtxn.InitiatorStats.InvocationInfo;
+import org.voltdb.dtxn.StageLatencyStats;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MigratePartitionLeaderInfo;
@@ -234,6 +235,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     private final CopyOnWriteArrayList<AdmissionControlGroup> m_allACGs =
             new CopyOnWriteArrayList<AdmissionControlGroup>();
 
+    // Per-stage latency of the transactions sampled by TXN_STAGE_SAMPLE_RATE
+    private final StageLatencyStats m_stageLatencyStats = new StageLatencyStats();
+
     /*
      * A thread local is a convenient way to keep the ACG out of volt core. The lookup is paired
      * with the CIHM in m_connectionSpecificStuff in fast path code.
@@ -756,7 +760,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             /*
              * Create an input handler.
              */
-            ClientInputHandler handler = new ClientInputHandler(username, m_isAdmin);
+            String admissionClass = AdmissionControlGroup.getAdmissionClassName(
+                    username, context.authSystem.getGroupNamesForUser(username));
+            ClientInputHandler handler = new ClientInputHandler(username, m_isAdmin, admissionClass);
 
             byte buildString[] = VoltDB.instance().getBuildString().getBytes(Charsets.UTF_8);
             responseBuffer = ByteBuffer.allocate(34 + buildString.length);
@@ -791,11 +797,20 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
          */
         private final String m_username;
 
+        /**
+         * Admission class picked from the user and roles at login, and its state
+         * in the ACG of the network thread once the connection is started
+         */
+        private final String m_admissionClassName;
+        private AdmissionControlGroup.AdmissionClass m_admissionClass;
+
         public ClientInputHandler(String username,
-                                  boolean isAdmin)
+                                  boolean isAdmin,
+                                  String admissionClassName)
         {
             m_username = username.intern();
             m_isAdmin = isAdmin;
+            m_admissionClassName = admissionClassName;
         }
 
         @Override
@@ -832,10 +847,12 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void started(final Connection c) {
             m_connection = c;
+            AdmissionControlGroup acg = m_acg.get();
+            m_admissionClass = acg.getAdmissionClass(m_admissionClassName);
             m_cihm.put(c.connectionId(),
-                       new ClientInterfaceHandleManager( m_isAdmin, c, null, m_acg.get()));
-            m_acg.get().addMember(this);
-            if (!m_acg.get().hasBackPressure()) {
+                       new ClientInterfaceHandleManager( m_isAdmin, c, null, acg, m_admissionClass));
+            acg.addMember(this, m_admissionClass);
+            if (!m_admissionClass.hasBackPressure()) {
                 c.enableReadSelection();
             }
         }
@@ -872,7 +889,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             return new Runnable() {
                 @Override
                 public void run() {
-                    if (!m_acg.get().hasBackPressure()) {
+                    if (!m_admissionClass.hasBackPressure()) {
                         m_connection.enableReadSelection();
                     }
                 }
@@ -898,14 +915,14 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             return new QueueMonitor() {
                 @Override
                 public boolean queue(int bytes) {
-                    return m_acg.get().queue(bytes);
+                    return m_acg.get().queue(m_admissionClass, bytes);
                 }
             };
         }
 
         /*
          * IV2 versions of backpressure management invoked by AdmissionControlGroup while
-         * globally enabling/disabling backpressure.
+         * enabling/disabling backpressure for this connection's admission class.
          */
         @Override
         public void onBackpressure() {
@@ -928,6 +945,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         private final Procedure catProc;
         private ClientResponseImpl clientResponse;
         private boolean restartMispartitionedTxn;
+        // only taken for the responses of sampled transactions
+        private final long arrivalNanos;
 
         private ClientResponseWork(InitiateResponseMessage response,
                                    ClientInterfaceHandleManager cihm,
@@ -938,6 +957,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             this.cihm = cihm;
             this.catProc = catProc;
             restartMispartitionedTxn = true;
+            arrivalNanos = response.getStageTrace() != null ? System.nanoTime() : 0;
         }
 
         @Override
@@ -995,6 +1015,12 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     delta,
                     clientResponse.getStatus());
 
+            if (clientData.m_stageTrace != null) {
+                clientData.m_stageTrace.complete(response.getStageTrace(), arrivalNanos, now);
+                m_stageLatencyStats.record(clientData.m_procName, clientData.m_stageTrace);
+                clientData.m_stageTrace.logTrace(clientData.m_procName, clientData.m_clientHandle);
+            }
+
             final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.CI);
             if (traceLog != null) {
                 traceLog.add(() -> VoltTrace.endAsync("recvtxn",
@@ -1974,10 +2000,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     }
 
-    public Map<Long, Pair<String, long[]>> getLiveClientStats()
+    public Map<Long, Pair<String[], long[]>> getLiveClientStats()
     {
-        final Map<Long, Pair<String, long[]>> client_stats =
-            new HashMap<Long, Pair<String, long[]>>();
+        final Map<Long, Pair<String[], long[]>> client_stats =
+            new HashMap<Long, Pair<String[], long[]>>();
 
         // m_cihm hashes connectionId to a ClientInterfaceHandleManager
         // ClientInterfaceHandleManager has the connection object.
@@ -1989,10 +2015,12 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 long readWait = e.getValue().connection.readStream().dataAvailable();
                 long writeWait = e.getValue().connection.writeStream().getOutstandingMessageCount();
                 long outstandingTxns = e.getValue().getOutstandingTxns();
+                AdmissionControlGroup.AdmissionClass admissionClass = e.getValue().m_admissionClass;
                 client_stats.put(
-                        e.getKey(), new Pair<String, long[]>(
-                            e.getValue().connection.getHostnameOrIP(),
-                            new long[] {adminMode, readWait, writeWait, outstandingTxns}));
+                        e.getKey(), new Pair<String[], long[]>(
+                            new String[] {e.getValue().connection.getHostnameOrIP(), admissionClass.getName()},
+                            new long[] {adminMode, readWait, writeWait, outstandingTxns,
+                                        admissionClass.getPendingTxnCount(), admissionClass.getBackpressureCount()}));
             }
         }
         return client_stats;
@@ -2032,6 +2060,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         return statsIterators;
     }
 
+    public StageLatencyStats getStageLatencyStats() {
+        return m_stageLatencyStats;
+    }
+
     public List<AbstractHistogram> getLatencyStats() {
         List<AbstractHistogram> latencyStats = new ArrayList<AbstractHistogram>();
         for (AdmissionControlGroup acg : m_allACGs) {
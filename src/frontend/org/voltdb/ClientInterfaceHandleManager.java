@@ -61,6 +61,7 @@ public class ClientInterfaceHandleManager
     public final ClientInterfaceRepairCallback repairCallback;
     private final long m_expectedThreadId = Thread.currentThread().getId();
     final AdmissionControlGroup m_acg;
+    final AdmissionControlGroup.AdmissionClass m_admissionClass;
 
     private volatile boolean m_wantsTopologyUpdates = false;
 
@@ -94,8 +95,16 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        // null unless the transaction is sampled for stage tracing
+        final TransactionStageTrace m_stageTrace;
         Iv2InFlight(long ciHandle, long clientHandle,
                 int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
+        {
+            this(ciHandle, clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, null);
+        }
+        Iv2InFlight(long ciHandle, long clientHandle,
+                int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
+                TransactionStageTrace stageTrace)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
@@ -103,6 +112,7 @@ public class ClientInterfaceHandleManager
             m_creationTimeNanos = creationTimeNanos;
             m_procName = procName;
             m_initiatorHSId = initiatorHSId;
+            m_stageTrace = stageTrace;
         }
     }
 
@@ -116,11 +126,18 @@ public class ClientInterfaceHandleManager
     }
 
     ClientInterfaceHandleManager(boolean isAdmin, Connection connection, ClientInterfaceRepairCallback repairCallback, AdmissionControlGroup acg)
+    {
+        this(isAdmin, connection, repairCallback, acg, acg.getDefaultClass());
+    }
+
+    ClientInterfaceHandleManager(boolean isAdmin, Connection connection, ClientInterfaceRepairCallback repairCallback,
+            AdmissionControlGroup acg, AdmissionControlGroup.AdmissionClass admissionClass)
     {
         this.isAdmin = isAdmin;
         this.connection = connection;
         this.repairCallback = repairCallback;
         m_acg = acg;
+        m_admissionClass = admissionClass;
     }
 
     /**
@@ -135,9 +152,10 @@ public class ClientInterfaceHandleManager
             @Override
             synchronized long getHandle(boolean isSinglePartition, int partitionId,
                     long clientHandle, int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
-                    boolean isShortCircuitRead) {
+                    boolean isShortCircuitRead, TransactionStageTrace stageTrace) {
                 return super.getHandle(isSinglePartition, partitionId,
-                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead);
+                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead,
+                        stageTrace);
             }
             @Override
             synchronized Iv2InFlight findHandle(long ciHandle) {
@@ -186,6 +204,25 @@ public class ClientInterfaceHandleManager
             String procName,
             long initiatorHSId,
             boolean isShortCircuitRead)
+    {
+        return getHandle(isSinglePartition, partitionId, clientHandle, messageSize, creationTimeNanos,
+                procName, initiatorHSId, isShortCircuitRead, null);
+    }
+
+    /**
+     * Same as above, and keeps the client interface's stage trace of a sampled
+     * transaction until its response is written.
+     */
+    long getHandle(
+            boolean isSinglePartition,
+            int partitionId,
+            long clientHandle,
+            int messageSize,
+            long creationTimeNanos,
+            String procName,
+            long initiatorHSId,
+            boolean isShortCircuitRead,
+            TransactionStageTrace stageTrace)
     {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         if (isShortCircuitRead) {
@@ -207,12 +244,12 @@ public class ClientInterfaceHandleManager
 
         long ciHandle = tracker.m_generator.getNextHandle();
         Iv2InFlight inFlight = new Iv2InFlight(ciHandle, clientHandle, messageSize,
-                                               creationTimeNanos, procName, initiatorHSId);
+                                               creationTimeNanos, procName, initiatorHSId, stageTrace);
 
         tracker.m_inFlights.put(ciHandle, inFlight);
 
         m_outstandingTxns++;
-        m_acg.increaseBackpressure(messageSize);
+        m_acg.increaseBackpressure(m_admissionClass, messageSize);
         return ciHandle;
     }
 
@@ -237,7 +274,7 @@ public class ClientInterfaceHandleManager
 
         Iv2InFlight inFlight = partitionStuff.m_inFlights.remove(ciHandle);
         if (inFlight != null) {
-            m_acg.reduceBackpressure(inFlight.m_messageSize);
+            m_acg.reduceBackpressure(m_admissionClass, inFlight.m_messageSize);
             m_outstandingTxns--;
             return inFlight;
         }
@@ -264,7 +301,7 @@ public class ClientInterfaceHandleManager
 
         Iv2InFlight inFlight = partitionStuff.m_inFlights.remove(ciHandle);
         if (inFlight != null) {
-            m_acg.reduceBackpressure(inFlight.m_messageSize);
+            m_acg.reduceBackpressure(m_admissionClass, inFlight.m_messageSize);
             m_outstandingTxns--;
             return inFlight;
         }
@@ -289,7 +326,7 @@ public class ClientInterfaceHandleManager
         for (PartitionInFlightTracker tracker : m_trackerMap.values()) {
             for (Iv2InFlight inflight : tracker.m_inFlights.values()) {
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(inflight.m_messageSize);
+                m_acg.reduceBackpressure(m_admissionClass, inflight.m_messageSize);
             }
         }
     }
@@ -307,7 +344,7 @@ public class ClientInterfaceHandleManager
                     iter.remove();
                     retval.add(entry.getValue());
                     m_outstandingTxns--;
-                    m_acg.reduceBackpressure(entry.getValue().m_messageSize);
+                    m_acg.reduceBackpressure(m_admissionClass, entry.getValue().m_messageSize);
                 }
             }
         }
@@ -23,7 +23,12 @@ import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.SystemStatsCollector;
 
+/**
+ * Process CPU usage, with the page fault, context switch and disk I/O counters
+ * SystemStatsCollector reads from procfs. Counters that could not be read are -1.
+ */
 public class CpuStats extends StatsSource {
 
     //Note com.sun here
@@ -65,11 +70,30 @@ public class CpuStats extends StatsSource {
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
         columns.add(new VoltTable.ColumnInfo("PERCENT_USED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("MINOR_FAULTS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("MAJOR_FAULTS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("VOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("INVOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("DISK_READ_BYTES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("DISK_WRITE_BYTES", VoltType.BIGINT));
     }
 
     @Override
     protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
-        rowValues[columnNameToIndex.get("PERCENT_USED")] = Math.round(m_osBean.getProcessCpuLoad() * 100);
+        // Prefer the sampled procfs figure, which does not depend on how often this is polled
+        double percent = SystemStatsCollector.getRecentCpuPercent();
+        if (percent < 0) {
+            percent = m_osBean.getProcessCpuLoad() * 100;
+        }
+        rowValues[columnNameToIndex.get("PERCENT_USED")] = Math.round(percent);
+
+        SystemStatsCollector.Datum d = SystemStatsCollector.getRecentSample();
+        rowValues[columnNameToIndex.get("MINOR_FAULTS")] = d == null ? -1 : d.minorfaults;
+        rowValues[columnNameToIndex.get("MAJOR_FAULTS")] = d == null ? -1 : d.majorfaults;
+        rowValues[columnNameToIndex.get("VOLUNTARY_CONTEXT_SWITCHES")] = d == null ? -1 : d.voluntaryswitches;
+        rowValues[columnNameToIndex.get("INVOLUNTARY_CONTEXT_SWITCHES")] = d == null ? -1 : d.involuntaryswitches;
+        rowValues[columnNameToIndex.get("DISK_READ_BYTES")] = d == null ? -1 : d.diskreadbytes;
+        rowValues[columnNameToIndex.get("DISK_WRITE_BYTES")] = d == null ? -1 : d.diskwritebytes;
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -69,6 +69,8 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WRITE_BATCH_SIZE", VoltType.FLOAT));
+        columns.add(new ColumnInfo("BYTES_WRITTEN_PER_SECOND", VoltType.BIGINT));
 
     }
 
@@ -83,6 +85,10 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        // average number of serialized messages carried by each write to the socket
+        rowValues[columnNameToIndex.get("WRITE_BATCH_SIZE")] =
+                counters[5] == 0 ? 0.0 : counters[4] / (double)counters[5];
+        rowValues[columnNameToIndex.get("BYTES_WRITTEN_PER_SECOND")] = counters[6];
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -45,6 +45,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Pair;
 import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.CatalogException;
+import org.voltdb.commandlog.GroupCommitCommandLog;
 import org.voltdb.common.Constants;
 import org.voltdb.common.NodeState;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
@@ -486,6 +487,11 @@ public class Inits {
                             logConfig.getMaxtxns(), VoltDB.instance().getCommandLogPath(),
                             VoltDB.instance().getCommandLogSnapshotPath());
                 }
+                else if (GroupCommitCommandLog.ENABLED) {
+                    m_rvdb.m_commandLog = new GroupCommitCommandLog(logConfig.getSynchronous(),
+                            logConfig.getFsyncinterval(), logConfig.getMaxtxns(),
+                            VoltDB.instance().getCommandLogPath());
+                }
             }
         }
     }
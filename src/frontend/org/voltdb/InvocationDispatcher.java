@@ -49,6 +49,7 @@ import org.voltcore.messaging.ForeignHost;
 import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.Mailbox;
 import org.voltcore.network.Connection;
+import org.voltcore.network.VoltPort;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.RateLimitedLogger;
@@ -1352,8 +1353,20 @@ public final class InvocationDispatcher {
             return CreateTransactionResult.PARTITION_REMOVED;
         }
 
+        TransactionStageTrace stageTrace = null;
+        if (TransactionStageTrace.shouldSample() && !isForReplay) {
+            stageTrace = new TransactionStageTrace(nowNanos);
+            if (cihm.connection instanceof VoltPort) {
+                // Requests planned asynchronously may come back after a newer read, skip those
+                final long readNanos = ((VoltPort) cihm.connection).getLastReadNanos();
+                if (readNanos != 0 && readNanos <= nowNanos) {
+                    stageTrace.set(TransactionStageTrace.Stage.NETWORK_READ, nowNanos - readNanos);
+                }
+            }
+        }
+
         long handle = cihm.getHandle(isSinglePartition, isSinglePartition ? partitions[0] : -1, invocation.getClientHandle(),
-                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead);
+                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead, stageTrace);
 
         Iv2InitiateTaskMessage workRequest =
             new Iv2InitiateTaskMessage(m_siteId,
@@ -1380,6 +1393,12 @@ public final class InvocationDispatcher {
                                                       "dest", CoreUtils.hsIdToString(finalInitiatorHSId)));
         }
 
+        if (stageTrace != null) {
+            stageTrace.end(TransactionStageTrace.Stage.DISPATCH, System.nanoTime());
+            // The initiator times its stages in a trace of its own
+            workRequest.setStageTrace(new TransactionStageTrace());
+        }
+
         Iv2Trace.logCreateTransaction(workRequest);
         m_mailbox.send(initiatorHSId, workRequest);
         return CreateTransactionResult.SUCCESS;
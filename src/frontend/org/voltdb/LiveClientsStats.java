@@ -34,8 +34,8 @@ import org.voltcore.utils.Pair;
 // oddly.
 public class LiveClientsStats extends StatsSource
 {
-    private Map<Long, Pair<String, long[]>> m_clientStats =
-        new HashMap<Long, Pair<String,long[]>>();
+    private Map<Long, Pair<String[], long[]>> m_clientStats =
+        new HashMap<Long, Pair<String[], long[]>>();
 
     public static final ColumnInfo liveClientColumnInfo[] =
         new ColumnInfo[] {new ColumnInfo("CONNECTION_ID", VoltType.BIGINT),
@@ -43,7 +43,10 @@ public class LiveClientsStats extends StatsSource
                           new ColumnInfo("ADMIN", VoltType.TINYINT),
                           new ColumnInfo("OUTSTANDING_REQUEST_BYTES", VoltType.BIGINT),
                           new ColumnInfo("OUTSTANDING_RESPONSE_MESSAGES", VoltType.BIGINT),
-                          new ColumnInfo("OUTSTANDING_TRANSACTIONS", VoltType.BIGINT)
+                          new ColumnInfo("OUTSTANDING_TRANSACTIONS", VoltType.BIGINT),
+                          new ColumnInfo("ADMISSION_CLASS", VoltType.STRING),
+                          new ColumnInfo("ADMISSION_CLASS_OUTSTANDING_TRANSACTIONS", VoltType.BIGINT),
+                          new ColumnInfo("ADMISSION_CLASS_BACKPRESSURE_COUNT", VoltType.BIGINT)
     };
 
     /**
@@ -88,22 +91,26 @@ public class LiveClientsStats extends StatsSource
 
     @Override
     protected void updateStatsRow(Object rowKey, Object[] rowValues) {
-        final Pair<String, long[]> info = m_clientStats.get(rowKey);
+        final Pair<String[], long[]> info = m_clientStats.get(rowKey);
+        final String[] names = info.getFirst();
         final long[] counters = info.getSecond();
 
         rowValues[columnNameToIndex.get("CONNECTION_ID")] = rowKey;
-        rowValues[columnNameToIndex.get("CLIENT_HOSTNAME")] = info.getFirst();
+        rowValues[columnNameToIndex.get("CLIENT_HOSTNAME")] = names[0];
         rowValues[columnNameToIndex.get("ADMIN")] = counters[0];
         rowValues[columnNameToIndex.get("OUTSTANDING_REQUEST_BYTES")] = counters[1];
         rowValues[columnNameToIndex.get("OUTSTANDING_RESPONSE_MESSAGES")] = counters[2];
         rowValues[columnNameToIndex.get("OUTSTANDING_TRANSACTIONS")] = counters[3];
+        rowValues[columnNameToIndex.get("ADMISSION_CLASS")] = names[1];
+        rowValues[columnNameToIndex.get("ADMISSION_CLASS_OUTSTANDING_TRANSACTIONS")] = counters[4];
+        rowValues[columnNameToIndex.get("ADMISSION_CLASS_BACKPRESSURE_COUNT")] = counters[5];
         super.updateStatsRow(rowKey, rowValues);
     }
 
     @Override
     protected Iterator<Object> getStatsRowKeyIterator(boolean interval)
     {
-        m_clientStats = new HashMap<Long, Pair<String,long[]>>();
+        m_clientStats = new HashMap<Long, Pair<String[], long[]>>();
         ClientInterface ci = VoltDB.instance().getClientInterface();
         if (ci != null) {
             m_clientStats.putAll(ci.getLiveClientStats());
@@ -0,0 +1,257 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Renders this node's statistics in the Prometheus text exposition format.
+ *
+ * A refresh reads the StatsSources registered with the local StatsAgent, the same way
+ * a single node contributes to @Statistics, but without distributing the request or
+ * gathering tables from the rest of the cluster. Each refresh precomputes two bodies,
+ * cumulative values and the change since the previous refresh, so a scrape only copies
+ * bytes. The change is computed here rather than by asking the sources for interval
+ * rows, which would reset the interval state that @Statistics callers depend on.
+ *
+ * String columns and integer columns named *_ID become labels, TIMESTAMP is dropped,
+ * and every other numeric column becomes a gauge named voltdb_&lt;selector&gt;_&lt;column&gt;.
+ */
+public class MetricsExporter {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    static final String METRIC_PREFIX = "voltdb_";
+
+    // Selectors whose sources are cheap to read and whose rows are per node or per site
+    static final StatsSelector[] DEFAULT_SELECTORS = {
+        StatsSelector.MEMORY,
+        StatsSelector.CPU,
+        StatsSelector.THREADCPU,
+        StatsSelector.GC,
+        StatsSelector.IOSTATS,
+        StatsSelector.INITIATOR,
+        StatsSelector.PROCEDURE,
+        StatsSelector.TABLE,
+        StatsSelector.INDEX,
+        StatsSelector.STARVATION,
+        StatsSelector.QUEUE,
+        StatsSelector.PLANNER,
+        StatsSelector.LATENCY,
+        StatsSelector.STAGELATENCY,
+        StatsSelector.COMMANDLOG,
+        StatsSelector.REJOIN,
+        StatsSelector.TASKLOG
+    };
+
+    private final StatsSelector[] m_selectors;
+
+    // Only touched by the refreshing thread, under the monitor
+    private Map<String, Double> m_previousValues = null;
+    private long m_previousRefresh = 0;
+
+    private volatile byte[] m_cumulative = null;
+    private volatile byte[] m_interval = null;
+
+    public MetricsExporter() {
+        this(selectorsFromProperty(System.getProperty("METRICS_SELECTORS")));
+    }
+
+    public MetricsExporter(StatsSelector[] selectors) {
+        m_selectors = selectors;
+    }
+
+    static StatsSelector[] selectorsFromProperty(String property) {
+        if (property == null || property.trim().isEmpty()) {
+            return DEFAULT_SELECTORS;
+        }
+        List<StatsSelector> selectors = new ArrayList<>();
+        for (String name : property.split(",")) {
+            try {
+                selectors.add(StatsSelector.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                hostLog.warn("Ignoring unknown statistics selector in METRICS_SELECTORS: " + name);
+            }
+        }
+        return selectors.toArray(new StatsSelector[selectors.size()]);
+    }
+
+    /**
+     * The most recently rendered metrics, or null if no refresh has completed yet.
+     * @param interval  true for the change since the previous refresh instead of the
+     *                  cumulative values
+     */
+    public byte[] getMetrics(boolean interval) {
+        return interval ? m_interval : m_cumulative;
+    }
+
+    /**
+     * Read every configured selector from the local StatsAgent and replace the
+     * published metrics.
+     */
+    public synchronized void refresh(StatsAgent agent, long now) {
+        final long start = System.nanoTime();
+        final StringBuilder cumulative = new StringBuilder(64 * 1024);
+        final StringBuilder interval = new StringBuilder(64 * 1024);
+        final Map<String, Double> values =
+                new HashMap<>(m_previousValues == null ? 1024 : m_previousValues.size() * 2);
+
+        for (StatsSelector selector : m_selectors) {
+            VoltTable table = agent.getStatsAggregate(selector, false, now);
+            if (table != null) {
+                render(selector, table, values, cumulative, interval);
+            }
+        }
+
+        final long elapsedMicros = (System.nanoTime() - start) / 1000;
+        appendGauge(cumulative, "metrics_refresh_micros", elapsedMicros);
+        appendGauge(interval, "metrics_refresh_micros", elapsedMicros);
+        if (m_previousValues != null) {
+            appendGauge(interval, "metrics_interval_millis", now - m_previousRefresh);
+        }
+
+        m_cumulative = cumulative.toString().getBytes(StandardCharsets.UTF_8);
+        // The first refresh has nothing to subtract, so there is no interval body yet
+        m_interval = m_previousValues == null ? null : interval.toString().getBytes(StandardCharsets.UTF_8);
+        m_previousValues = values;
+        m_previousRefresh = now;
+    }
+
+    private void render(StatsSelector selector, VoltTable table, Map<String, Double> values,
+            StringBuilder cumulative, StringBuilder interval) {
+        final int columnCount = table.getColumnCount();
+        final List<Integer> labelColumns = new ArrayList<>();
+        final List<Integer> metricColumns = new ArrayList<>();
+        for (int ii = 0; ii < columnCount; ii++) {
+            String name = table.getColumnName(ii);
+            VoltType type = table.getColumnType(ii);
+            if (name.equals("TIMESTAMP")) {
+                continue;
+            }
+            if (type == VoltType.STRING || (type.isAnyIntegerType() && name.endsWith("_ID"))) {
+                labelColumns.add(ii);
+            } else if (type.isNumber()) {
+                metricColumns.add(ii);
+            }
+        }
+        if (metricColumns.isEmpty()) {
+            return;
+        }
+
+        // Build each row's label set once and reuse it for every metric in the row
+        final String[] labels = new String[table.getRowCount()];
+        table.resetRowPosition();
+        for (int row = 0; table.advanceRow(); row++) {
+            StringBuilder sb = new StringBuilder("{");
+            for (int column : labelColumns) {
+                Object value = table.get(column, table.getColumnType(column));
+                if (table.wasNull()) {
+                    continue;
+                }
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                sb.append(sanitizeName(table.getColumnName(column))).append("=\"");
+                escapeLabelValue(sb, value.toString());
+                sb.append('"');
+            }
+            labels[row] = sb.append('}').toString();
+        }
+
+        final String family = METRIC_PREFIX + sanitizeName(selector.name()) + "_";
+        for (int column : metricColumns) {
+            final String name = family + sanitizeName(table.getColumnName(column));
+            final VoltType type = table.getColumnType(column);
+            cumulative.append("# TYPE ").append(name).append(" gauge\n");
+            interval.append("# TYPE ").append(name).append(" gauge\n");
+            table.resetRowPosition();
+            for (int row = 0; table.advanceRow(); row++) {
+                double value = type.isAnyIntegerType() ? table.getLong(column) : table.getDouble(column);
+                if (table.wasNull()) {
+                    continue;
+                }
+                final String series = name + labels[row];
+                values.put(series, value);
+                cumulative.append(series).append(' ');
+                appendValue(cumulative, value).append('\n');
+
+                // A series missing from the previous refresh started from nothing
+                Double previous = m_previousValues == null ? null : m_previousValues.get(series);
+                interval.append(series).append(' ');
+                appendValue(interval, previous == null ? value : value - previous).append('\n');
+            }
+        }
+        table.resetRowPosition();
+    }
+
+    private static void appendGauge(StringBuilder sb, String name, long value) {
+        sb.append("# TYPE ").append(METRIC_PREFIX).append(name).append(" gauge\n")
+          .append(METRIC_PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    static StringBuilder appendValue(StringBuilder sb, double value) {
+        if (Double.isNaN(value)) {
+            return sb.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            return sb.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return sb.append((long) value);
+        }
+        return sb.append(value);
+    }
+
+    /**
+     * Lower case a column or selector name and replace anything Prometheus does not
+     * allow in metric and label names.
+     */
+    static String sanitizeName(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int ii = 0; ii < name.length(); ii++) {
+            char c = Character.toLowerCase(name.charAt(ii));
+            boolean valid = (c >= 'a' && c <= 'z') || c == '_' || (ii > 0 && c >= '0' && c <= '9');
+            sb.append(valid ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    static void escapeLabelValue(StringBuilder sb, String value) {
+        for (int ii = 0; ii < value.length(); ii++) {
+            char c = value.charAt(ii);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.voltdb;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
@@ -40,12 +41,19 @@ import org.voltdb.utils.SerializationHelper;
  * The ordered set of parameters of the proper types that is passed into
  * a stored procedure OR a plan fragment.
  *
+ * A set created with {@link #fromByteBufferNoCopy(ByteBuffer)} is a view over the
+ * serialized parameters. Each parameter is only decoded the first time it is asked
+ * for, the typed accessors read primitives without boxing them, and flattening the
+ * set copies the original bytes instead of encoding the values again.
  */
 public class ParameterSet implements JSONString {
     private static final ParameterSet EMPTY = fromArray(new Object[0]);
 
     static final byte ARRAY = -99;
 
+    // Placeholder for a parameter of a lazily deserialized set that has not been decoded yet
+    private static final Object UNDECODED = new Object();
+
     static class OneParamInfo {
         Object value;
         byte[] encodedString;
@@ -67,6 +75,18 @@ public class ParameterSet implements JSONString {
     // memoized serialized size (start assuming valid size for empty ParameterSet)
     private final int m_serializedSize;
 
+    /*
+     * For a lazily deserialized set, the serialized parameters starting with the count
+     * and the offset of the type byte of every parameter in it. Parameters are decoded
+     * into m_params on first use. Threads racing to decode the same parameter store
+     * equal values, so that is not synchronized either. Only immutable values whose
+     * state is in final fields (boxed primitives, strings, timestamps and decimals) are
+     * decoded lazily, so a thread that sees one through the unsynchronized array sees
+     * all of it. Arrays and VARBINARY are mutable and decoded up front instead.
+     */
+    private final ByteBuffer m_serialized;
+    private final int[] m_offsets;
+
     public static ParameterSet emptyParameterSet() {
         return EMPTY;
     }
@@ -330,11 +350,57 @@ public class ParameterSet implements JSONString {
         return new ParameterSet(params, size, encodedStrings, encodedStringArrays);
     }
 
+    /**
+     * Deserialize a parameter set lazily. Only the layout of the parameters is read
+     * here, which validates it just as {@link #fromByteBuffer(ByteBuffer)} does, and
+     * the buffer is advanced past them the same way. Values are decoded from the
+     * buffer when they are first used, so its contents must not change for as long
+     * as the parameter set is in use.
+     */
+    public static ParameterSet fromByteBufferNoCopy(ByteBuffer buffer) throws IOException {
+        final int startPos = buffer.position();
+
+        short count = buffer.getShort();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid parameter length " + count + " for ParameterSet." );
+        }
+        if (count == 0) {
+            return new ParameterSet(new Object[0], buffer.position() - startPos, (byte[][]) null, null);
+        }
+        final Object[] params = new Object[count];
+        final int[] offsets = new int[count];
+        Arrays.fill(params, UNDECODED);
+
+        for (int i = 0; i < count; ++i) {
+            offsets[i] = buffer.position() - startPos;
+            if (!skipOneParameter(buffer)) {
+                // Mutable and rare types are decoded right away
+                buffer.position(startPos + offsets[i]);
+                params[i] = readOneParameter(buffer).value;
+            }
+        }
+
+        final ByteBuffer serialized = buffer.duplicate();
+        serialized.limit(buffer.position()).position(startPos);
+        return new ParameterSet(params, buffer.position() - startPos, serialized.slice(), offsets);
+    }
+
     private ParameterSet(Object[] params, int serializedSize, byte[][] encodedStrings, byte[][][] encodedStringArrays) {
         m_params = params;
         m_serializedSize = serializedSize;
         m_encodedStrings = encodedStrings;
         m_encodedStringArrays = encodedStringArrays;
+        m_serialized = null;
+        m_offsets = null;
+    }
+
+    private ParameterSet(Object[] params, int serializedSize, ByteBuffer serialized, int[] offsets) {
+        m_params = params;
+        m_serializedSize = serializedSize;
+        m_encodedStrings = null;
+        m_encodedStringArrays = null;
+        m_serialized = serialized;
+        m_offsets = offsets;
     }
 
     static Object limitType(Object o) {
@@ -347,7 +413,124 @@ public class ParameterSet implements JSONString {
     }
 
     public Object getParam(int index) {
-        return m_params[index];
+        Object param = m_params[index];
+        if (param == UNDECODED) {
+            param = decode(index);
+            m_params[index] = param;
+        }
+        return param;
+    }
+
+    /**
+     * Read an integer parameter without boxing it. Null is the minimum value of the
+     * parameter's type, as for every VoltDB integer.
+     */
+    public long getLong(int index) {
+        if (m_params[index] == UNDECODED) {
+            final int offset = m_offsets[index];
+            final byte type = m_serialized.get(offset);
+            if (type == VoltType.BIGINT.getValue()) {
+                return m_serialized.getLong(offset + 1);
+            }
+            else if (type == VoltType.INTEGER.getValue()) {
+                return m_serialized.getInt(offset + 1);
+            }
+            else if (type == VoltType.SMALLINT.getValue()) {
+                return m_serialized.getShort(offset + 1);
+            }
+            else if (type == VoltType.TINYINT.getValue()) {
+                return m_serialized.get(offset + 1);
+            }
+        }
+        return ((Number) getParam(index)).longValue();
+    }
+
+    /** Read a FLOAT parameter without boxing it */
+    public double getDouble(int index) {
+        if (m_params[index] == UNDECODED && m_serialized.get(m_offsets[index]) == VoltType.FLOAT.getValue()) {
+            return m_serialized.getDouble(m_offsets[index] + 1);
+        }
+        return ((Number) getParam(index)).doubleValue();
+    }
+
+    /** @return the string parameter, decoded on first use, or null for a SQL NULL */
+    public String getString(int index) {
+        final Object param = getParam(index);
+        return param == VoltType.NULL_STRING_OR_VARBINARY ? null : (String) param;
+    }
+
+    /**
+     * @return the type a parameter of a lazily deserialized set was serialized with,
+     * or null if it is an array or the set holds values rather than a buffer
+     */
+    VoltType getSerializedType(int index) {
+        if (m_serialized == null) {
+            return null;
+        }
+        final byte type = m_serialized.get(m_offsets[index]);
+        return type == ARRAY ? null : VoltType.get(type);
+    }
+
+    /**
+     * @return true if a STRING or VARBINARY parameter of a lazily deserialized set
+     * was serialized as exactly these bytes
+     */
+    boolean serializedBytesEqual(int index, byte[] bytes) {
+        final int offset = m_offsets[index];
+        if (m_serialized.getInt(offset + 1) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (m_serialized.get(offset + 5 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object decode(int index) {
+        final int offset = m_offsets[index];
+        final byte type = m_serialized.get(offset);
+        // The common fixed size types straight from the buffer, without a position to move
+        if (type == VoltType.BIGINT.getValue()) {
+            return m_serialized.getLong(offset + 1);
+        }
+        else if (type == VoltType.INTEGER.getValue()) {
+            return m_serialized.getInt(offset + 1);
+        }
+        else if (type == VoltType.FLOAT.getValue()) {
+            return m_serialized.getDouble(offset + 1);
+        }
+        else if (type == VoltType.TIMESTAMP.getValue()) {
+            return new TimestampType(m_serialized.getLong(offset + 1));
+        }
+        else if (type == VoltType.STRING.getValue() && m_serialized.hasArray()) {
+            // Straight from the backing array, without copying out the encoded bytes first
+            final int len = m_serialized.getInt(offset + 1);
+            if (len == VoltType.NULL_STRING_LENGTH) {
+                return VoltType.NULL_STRING_OR_VARBINARY;
+            }
+            if (len < 0 || offset + 5 + len > m_serialized.limit()) {
+                throw new IllegalArgumentException("Invalid string length " + len + " for parameter " + index);
+            }
+            return new String(m_serialized.array(), m_serialized.arrayOffset() + offset + 5, len,
+                              Constants.UTF8ENCODING);
+        }
+        final ByteBuffer in = m_serialized.duplicate();
+        in.position(offset);
+        try {
+            return readOneParameter(in).value;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to deserialize parameter " + index, e);
+        }
+    }
+
+    private void decodeAll() {
+        if (m_serialized != null) {
+            for (int i = 0; i < m_params.length; i++) {
+                getParam(i);
+            }
+        }
     }
 
     public boolean hasParam(int index) {
@@ -359,6 +542,7 @@ public class ParameterSet implements JSONString {
      * @return
      */
     public Object[] toArray() {
+        decodeAll();
         return m_params.clone();
     }
 
@@ -393,6 +577,55 @@ public class ParameterSet implements JSONString {
         return opi.value;
     }
 
+    /**
+     * Advance past one serialized parameter without decoding it.
+     *
+     * @return false, without a defined position, for the mutable types and the rarely
+     * used ones, which must be decoded right away
+     */
+    private static boolean skipOneParameter(ByteBuffer in) {
+        final byte typeByte = in.get();
+        if (typeByte == ARRAY) {
+            // Arrays are mutable, so they are decoded right away
+            return false;
+        }
+        final VoltType type;
+        try {
+            type = VoltType.get(typeByte);
+        } catch (AssertionError ae) {
+            return false;
+        }
+        switch (type) {
+        case NULL:
+            return true;
+        case TINYINT:
+        case BOOLEAN:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case FLOAT:
+        case TIMESTAMP:
+        case DECIMAL:
+            skip(in, type.getLengthInBytesForFixedTypesWithoutCheck());
+            return true;
+        case STRING:
+            final int len = in.getInt();
+            if (len != VoltType.NULL_STRING_LENGTH) {
+                skip(in, len);
+            }
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static void skip(ByteBuffer in, int len) {
+        if (len < 0 || len > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + len);
+    }
+
     static Object getAKosherArray(Object[] array) {
         int tables = 0;
         int integers = 0;
@@ -506,6 +739,7 @@ public class ParameterSet implements JSONString {
 
     @Override
     public String toString() {
+        decodeAll();
         StringBuilder b = new StringBuilder();
         b.append("ParameterSet:");
         for (int i = 0; i < m_params.length; ++i) {
@@ -517,6 +751,7 @@ public class ParameterSet implements JSONString {
 
     @Override
     public String toJSONString() {
+        decodeAll();
         JSONStringer js = new JSONStringer();
         try {
             js.array();
@@ -698,6 +933,10 @@ public class ParameterSet implements JSONString {
     }
 
     public void flattenToBuffer(ByteBuffer buf) throws IOException {
+        if (m_serialized != null) {
+            buf.put(m_serialized.duplicate());
+            return;
+        }
 
         buf.putShort((short)m_params.length);
 
@@ -960,6 +1199,8 @@ public class ParameterSet implements JSONString {
             return false;
         }
         ParameterSet other = (ParameterSet) obj;
+        decodeAll();
+        other.decodeAll();
         return Arrays.deepEquals(m_params, other.m_params);
     }
 
@@ -17,6 +17,8 @@
 
 package org.voltdb;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Iterator;
 
@@ -31,6 +33,22 @@ public class PlannerStatsCollector extends StatsSource {
 
     private static final VoltLogger log = new VoltLogger("HOST");
 
+    /**
+     * Counts the bytes allocated by the planning thread, or null if the JVM can't
+     */
+    private static final com.sun.management.ThreadMXBean s_threadBean = getThreadBean();
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean;
+            }
+        }
+        return null;
+    }
+
     /**
      * Whether to return results in intervals since polling or since the beginning
      */
@@ -118,6 +136,29 @@ public class PlannerStatsCollector extends StatsSource {
     long m_maxPlanningTime = Long.MIN_VALUE;
     long m_lastMaxPlanningTime = Long.MIN_VALUE;
 
+    /**
+     * Bytes allocated by the planning thread before the last planning start
+     */
+    Long m_currentStartMemory = null;
+
+    /**
+     * Total amount of memory allocated for planning
+     */
+    long m_totalPlanningMemory = 0;
+    long m_lastTimedPlanningMemory = 0;
+
+    /**
+     * Least amount of memory allocated for planning
+     */
+    long m_minPlanningMemory = Long.MAX_VALUE;
+    long m_lastMinPlanningMemory = Long.MAX_VALUE;
+
+    /**
+     * Most amount of memory allocated for planning
+     */
+    long m_maxPlanningMemory = Long.MIN_VALUE;
+    long m_lastMaxPlanningMemory = Long.MIN_VALUE;
+
     /**
      * Count of the number of errors that occured during procedure execution
      */
@@ -178,16 +219,19 @@ public class PlannerStatsCollector extends StatsSource {
     }
 
     /**
-     * Called before doing planning. Starts timer.
+     * Called before doing planning. Starts timer and memory count.
      */
     public void startStatsCollection() {
         if (getInvocations() % m_collectionFrequency == 0) {
             m_currentStartTime = System.nanoTime();
+            if (s_threadBean != null) {
+                m_currentStartMemory = s_threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
         }
     }
 
     /**
-     * Called after planning or failing to plan. Records timer and cache stats.
+     * Called after planning or failing to plan. Records timer, memory and cache stats.
      *
      * @param cache1Size   number of entries in level 1 cache
      * @param cache2Size   number of entries in level 2 cache
@@ -212,6 +256,18 @@ public class PlannerStatsCollector extends StatsSource {
             }
             m_currentStartTime = null;
         }
+        if (m_currentStartMemory != null) {
+            // Allocated bytes only grow, unless the count is unavailable (-1)
+            long delta = s_threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - m_currentStartMemory;
+            if (delta >= 0) {
+                m_totalPlanningMemory += delta;
+                m_minPlanningMemory = Math.min(delta, m_minPlanningMemory);
+                m_maxPlanningMemory = Math.max(delta, m_maxPlanningMemory);
+                m_lastMinPlanningMemory = Math.min(delta, m_lastMinPlanningMemory);
+                m_lastMaxPlanningMemory = Math.max(delta, m_lastMaxPlanningMemory);
+            }
+            m_currentStartMemory = null;
+        }
 
         m_cache1Level = cache1Size;
         m_cache2Level = cache2Size;
@@ -249,6 +305,9 @@ public class PlannerStatsCollector extends StatsSource {
         long totalTimedExecutionTime = m_totalPlanningTime;
         long minExecutionTime = m_minPlanningTime;
         long maxExecutionTime = m_maxPlanningTime;
+        long totalPlanningMemory = m_totalPlanningMemory;
+        long minPlanningMemory = m_minPlanningMemory;
+        long maxPlanningMemory = m_maxPlanningMemory;
         long cache1Level = m_cache1Level;
         long cache2Level = m_cache2Level;
         long cache1Hits  = m_cache1Hits;
@@ -265,6 +324,14 @@ public class PlannerStatsCollector extends StatsSource {
             m_lastMinPlanningTime = Long.MAX_VALUE;
             m_lastMaxPlanningTime = Long.MIN_VALUE;
 
+            totalPlanningMemory = m_totalPlanningMemory - m_lastTimedPlanningMemory;
+            m_lastTimedPlanningMemory = m_totalPlanningMemory;
+
+            minPlanningMemory = m_lastMinPlanningMemory;
+            maxPlanningMemory = m_lastMaxPlanningMemory;
+            m_lastMinPlanningMemory = Long.MAX_VALUE;
+            m_lastMaxPlanningMemory = Long.MIN_VALUE;
+
             cache1Level = m_cache1Level - m_lastCache1Level;
             m_lastCache1Level = m_cache1Level;
 
@@ -301,6 +368,14 @@ public class PlannerStatsCollector extends StatsSource {
         } else {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
+        rowValues[columnNameToIndex.get("PLAN_MEMORY_MIN")] = minPlanningMemory;
+        rowValues[columnNameToIndex.get("PLAN_MEMORY_MAX")] = maxPlanningMemory;
+        if (getSampleCount() != 0) {
+            rowValues[columnNameToIndex.get("PLAN_MEMORY_AVG")] =
+                 (totalPlanningMemory / getSampleCount());
+        } else {
+            rowValues[columnNameToIndex.get("PLAN_MEMORY_AVG")] = 0L;
+        }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
     }
 
@@ -321,6 +396,9 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MIN", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLAN_MEMORY_MIN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLAN_MEMORY_MAX", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLAN_MEMORY_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
     }
 
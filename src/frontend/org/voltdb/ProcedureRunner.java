@@ -46,6 +46,7 @@ import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.StmtParameter;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.common.Constants;
 import org.voltdb.compiler.AdHocPlannedStatement;
 import org.voltdb.compiler.AdHocPlannedStmtBatch;
 import org.voltdb.compiler.ProcedureCompiler;
@@ -79,6 +80,7 @@ import com.google_voltpatches.common.base.Charsets;
 public class ProcedureRunner {
 
     private static final VoltLogger log = new VoltLogger("HOST");
+    private static final byte[] CSV_NULL_BYTES = Constants.CSV_NULL.getBytes(Constants.UTF8ENCODING);
     private static final boolean HOST_TRACE_ENABLED;
     static {
         HOST_TRACE_ENABLED = log.isTraceEnabled();
@@ -421,15 +423,21 @@ public class ProcedureRunner {
             else {
                  assert(m_catProc.getStatements().size() >= 1);
                 int curParamOffset = 0;
+                final ParameterSet forwardedParams = getForwardableParams(paramList.length);
                 try {
                     // get all the statements and their corresponding parameters
                     // the parameter offset ensures the right parameters are obtained for each statement
                     for (int i = 0; i < m_catProc.getStatements().size(); i++) {
                         QueuedSQL curStmt = m_sqlStmts.get(i);
                         int numStmtParams = curStmt.stmt.statementParamTypes.length;
-                        Object[] stmtParamList = Arrays.copyOfRange(paramList, curParamOffset,
-                                curParamOffset + numStmtParams);
-                        curStmt.params = getCleanParams(curStmt.stmt, false, stmtParamList);
+                        if (forwardedParams != null) {
+                            curStmt.params = forwardedParams;
+                        }
+                        else {
+                            Object[] stmtParamList = Arrays.copyOfRange(paramList, curParamOffset,
+                                    curParamOffset + numStmtParams);
+                            curStmt.params = getCleanParams(curStmt.stmt, false, stmtParamList);
+                        }
                         curParamOffset += numStmtParams;
 
                         if (getNonVoltDBBackendIfExists() != null) {
@@ -956,6 +964,53 @@ public class ProcedureRunner {
                         " Try explicitly using a " + preferredType + " parameter.");
     }
 
+    /**
+     * A single statement procedure can hand the serialized parameters of its invocation
+     * to the EE as they arrived, instead of having them encoded again by
+     * {@link #getCleanParams}. That is only done when the statement takes all of the
+     * procedure's parameters and every parameter was serialized as the type it is
+     * declared with, so the parameter conversion would have returned it unchanged.
+     *
+     * @return the invocation's parameters, or null if they have to be cleaned
+     */
+    private ParameterSet getForwardableParams(int paramCount) {
+        if (m_sqlStmts.size() != 1 || m_txnState == null || m_txnState.getInvocation() == null ||
+            getNonVoltDBBackendIfExists() != null) {
+            return null;
+        }
+        final ParameterSet params = m_txnState.getInvocation().getParams();
+        if (params.size() != paramCount || paramCount != m_sqlStmts.get(0).stmt.statementParamTypes.length) {
+            return null;
+        }
+        for (int i = 0; i < paramCount; i++) {
+            final VoltType type = params.getSerializedType(i);
+            if (type == null) {
+                return null;
+            }
+            switch (type) {
+            case BIGINT:
+                if (m_paramTypes[i] != long.class) {
+                    return null;
+                }
+                break;
+            case FLOAT:
+                if (m_paramTypes[i] != double.class) {
+                    return null;
+                }
+                break;
+            case STRING:
+                // The converter turns the CSV null string into NULL
+                if (m_paramTypes[i] != String.class || params.serializedBytesEqual(i, CSV_NULL_BYTES)) {
+                    return null;
+                }
+                break;
+            default:
+                return null;
+            }
+        }
+        return params;
+    }
+
     private final ParameterSet getCleanParams(SQLStmt stmt, boolean verifyTypeConv, Object... inArgs) {
         final byte stmtParamTypes[] = stmt.statementParamTypes;
         final int numParamTypes = stmtParamTypes.length;
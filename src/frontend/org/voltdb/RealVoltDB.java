@@ -107,6 +107,7 @@ import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.HostMessenger.HostInfo;
 import org.voltcore.messaging.SiteMailbox;
 import org.voltcore.messaging.SocketJoiner;
+import org.voltcore.messaging.VoltMessagePool;
 import org.voltcore.network.CipherExecutor;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.OnDemandBinaryLogger;
@@ -128,6 +129,7 @@ import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Systemsettings;
 import org.voltdb.catalog.Table;
+import org.voltdb.commandlog.GroupCommitCommandLog;
 import org.voltdb.common.Constants;
 import org.voltdb.common.NodeState;
 import org.voltdb.compiler.AdHocCompilerCache;
@@ -237,6 +239,16 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
 
     private static final boolean DISABLE_JMX = Boolean.valueOf(System.getProperty("DISABLE_JMX", "true"));
 
+    // How often, in seconds, ad hoc planning refreshes its table size estimates from
+    // live table statistics. Zero (the default) keeps the fixed compile-time estimates.
+    private static final int PLANNER_ESTIMATES_REFRESH_INTERVAL =
+            Integer.parseInt(System.getProperty("PLANNER_ESTIMATES_REFRESH_INTERVAL", "0"));
+
+    // How often, in seconds, the HTTP /metrics endpoint re-renders this node's statistics.
+    // Zero disables the refresh and the endpoint.
+    private static final int METRICS_REFRESH_INTERVAL =
+            Integer.parseInt(System.getProperty("METRICS_REFRESH_INTERVAL", "5"));
+
     /** Default deployment file contents if path to deployment is null */
     private static final String[] defaultDeploymentXML = {
         "<?xml version=\"1.0\"?>",
@@ -1393,6 +1405,14 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_cpuStats = new CpuStats();
             getStatsAgent().registerStatsSource(StatsSelector.CPU,
                     0, m_cpuStats);
+            getStatsAgent().registerStatsSource(StatsSelector.THREADCPU,
+                    0, new ThreadCpuStats());
+            getStatsAgent().registerStatsSource(StatsSelector.REJOIN,
+                    0, new RejoinStats());
+            getStatsAgent().registerStatsSource(StatsSelector.TASKLOG,
+                    0, new TaskLogStats());
+            getStatsAgent().registerStatsSource(StatsSelector.RESTORESTATUS,
+                    0, new RestoreStatus());
             m_gcStats = new GcStats();
             getStatsAgent().registerStatsSource(StatsSelector.GC,
                     0, m_gcStats);
@@ -1456,6 +1476,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                         adminIntf,
                         config.m_adminPort,
                         m_config.m_sslExternal ? m_config.m_sslServerContext : null);
+                getStatsAgent().registerStatsSource(StatsSelector.STAGELATENCY,
+                        0, m_clientInterface.getStageLatencyStats());
             } catch (Exception e) {
                 VoltDB.crashLocalVoltDB(e.getMessage(), true, e);
             }
@@ -1602,7 +1624,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             if (m_configuredReplicationFactor == 0) {
                 consoleLog.warn("This is not a highly available cluster. K-Safety is set to 0.");
             }
-            boolean usingCommandLog = m_config.m_isEnterprise
+            boolean usingCommandLog = (m_config.m_isEnterprise || GroupCommitCommandLog.ENABLED)
                     && (m_catalogContext.cluster.getLogconfig() != null)
                     && (m_catalogContext.cluster.getLogconfig().get("log") != null)
                     && m_catalogContext.cluster.getLogconfig().get("log").getEnabled();
@@ -2300,6 +2322,29 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             }
         }, 0, 6, TimeUnit.MINUTES));
 
+        // ad hoc planner table size estimates
+        if (PLANNER_ESTIMATES_REFRESH_INTERVAL > 0) {
+            m_periodicWorks.add(scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    refreshPlannerEstimates();
+                }
+            }, PLANNER_ESTIMATES_REFRESH_INTERVAL, PLANNER_ESTIMATES_REFRESH_INTERVAL, TimeUnit.SECONDS));
+        }
+
+        // node-local metrics for the HTTP /metrics endpoint
+        if (METRICS_REFRESH_INTERVAL > 0) {
+            m_periodicWorks.add(scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    HTTPAdminListener adminListener = m_adminListener;
+                    if (adminListener != null) {
+                        adminListener.refreshMetrics(getStatsAgent());
+                    }
+                }
+            }, METRICS_REFRESH_INTERVAL, METRICS_REFRESH_INTERVAL, TimeUnit.SECONDS));
+        }
+
         // export stream master check
         m_periodicWorks.add(scheduleWork(new Runnable() {
             @Override
@@ -2315,6 +2360,23 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         GCInspector.instance.start(m_periodicPriorityWorkThread, m_gcStats);
     }
 
+    /**
+     * Feed the locally cached table and index statistics into the ad hoc planner's cost estimates.
+     */
+    private void refreshPlannerEstimates() {
+        final CatalogContext context = m_catalogContext;
+        if (context == null || getStatsAgent() == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        VoltTable tableStats = getStatsAgent().getStatsAggregate(StatsSelector.TABLE, false, now);
+        if (tableStats == null) {
+            return;
+        }
+        VoltTable indexStats = getStatsAgent().getStatsAggregate(StatsSelector.INDEX, false, now);
+        context.m_ptool.refreshAdHocEstimates(tableStats, indexStats);
+    }
+
     /**
      * This host can be a leader if partition 0 is on it or it is in the same partition group as a node which has
      * partition 0. This is because the partition group with partition 0 can never be removed by elastic remove.
@@ -2626,7 +2688,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 boolean shutdownAction = false;
 
                 // check license features for community version
-                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())) {
+                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled()) &&
+                        !GroupCommitCommandLog.ENABLED) {
                     consoleLog.error("Command logging is not supported " +
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
@@ -2853,7 +2916,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 boolean shutdownAction = false;
 
                 // check license features for community version
-                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())) {
+                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled()) &&
+                        !GroupCommitCommandLog.ENABLED) {
                     consoleLog.error("Command logging is not supported " +
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
@@ -3221,7 +3285,11 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         hmconfig.internalInterface = m_config.m_internalInterface;
         hmconfig.zkInterface = m_config.m_zkInterface;
         hmconfig.deadHostTimeout = m_config.m_deadHostTimeoutMS;
-        hmconfig.factory = new VoltDbMessageFactory();
+        VoltDbMessageFactory messageFactory = new VoltDbMessageFactory();
+        if (VoltMessagePool.ENABLED) {
+            messageFactory.enableMessagePooling();
+        }
+        hmconfig.factory = messageFactory;
         hmconfig.coreBindIds = m_config.m_networkCoreBindings;
         hmconfig.acceptor = criteria;
         hmconfig.localSitesCount = m_config.m_sitesperhost;
@@ -4312,7 +4380,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         try {
             final ZooKeeper zk = m_messenger.getZK();
             boolean logRecoveryCompleted = false;
-            if (getCommandLog().getClass().getName().equals("org.voltdb.CommandLogImpl")) {
+            if (getCommandLog().isEnabled()) {
                 String requestNode = zk.create(VoltZK.request_truncation_snapshot_node, null,
                         Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
                 if (m_rejoinTruncationReqId == null) {
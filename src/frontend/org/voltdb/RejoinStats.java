@@ -0,0 +1,88 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.rejoin.StreamSnapshotProgress;
+
+/**
+ * Progress of the rejoin or join streams the sites of this host are sending, one
+ * row per site, with the state of the flow control of its targets.
+ */
+public class RejoinStats extends StatsSource {
+
+    private List<StreamSnapshotProgress> m_streams = new ArrayList<>();
+    private long m_now;
+
+    public RejoinStats() {
+        super(false);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_streams = new ArrayList<>(StreamSnapshotProgress.getAll());
+        m_now = System.nanoTime();
+        final List<Object> keys = new ArrayList<>(m_streams);
+        return keys.iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo(VoltSystemProcedure.CNAME_SITE_ID, VoltSystemProcedure.CTYPE_ID));
+        columns.add(new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("STATUS", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("TOTAL_ROWS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("MOVED_ROWS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("PERCENTAGE_MOVED", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("ROWS_PER_SECOND", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("MEGABYTES_PER_SECOND", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("ESTIMATED_REMAINING", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("OUTSTANDING_BLOCKS", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("WINDOW", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("MIN_ROUND_TRIP", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("ACKS_PER_SECOND", VoltType.FLOAT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final StreamSnapshotProgress stream = (StreamSnapshotProgress) rowKey;
+        rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_SITE_ID)] =
+                CoreUtils.getSiteIdFromHSId(stream.getSiteId());
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = stream.getPartitionId();
+        rowValues[columnNameToIndex.get("STATUS")] = stream.isDone() ? "DONE" : "STREAMING";
+        rowValues[columnNameToIndex.get("TOTAL_ROWS")] = stream.getTotalRows();
+        rowValues[columnNameToIndex.get("MOVED_ROWS")] = stream.getMovedRows();
+        rowValues[columnNameToIndex.get("PERCENTAGE_MOVED")] = stream.getPercentageMoved();
+        rowValues[columnNameToIndex.get("ROWS_PER_SECOND")] = stream.getRowsPerSecond(m_now);
+        rowValues[columnNameToIndex.get("MEGABYTES_PER_SECOND")] = stream.getMegabytesPerSecond(m_now);
+        // milliseconds, -1 if unknown
+        rowValues[columnNameToIndex.get("ESTIMATED_REMAINING")] = stream.getEstimatedRemainingMillis(m_now);
+        rowValues[columnNameToIndex.get("OUTSTANDING_BLOCKS")] = stream.getOutstandingBlocks();
+        rowValues[columnNameToIndex.get("WINDOW")] = stream.getWindow();
+        // microseconds
+        rowValues[columnNameToIndex.get("MIN_ROUND_TRIP")] = stream.getMinRoundTripMicros();
+        rowValues[columnNameToIndex.get("ACKS_PER_SECOND")] = stream.getAcksPerSecond();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -51,6 +51,8 @@ import org.voltcore.utils.InstanceId;
 import org.voltcore.utils.Pair;
 import org.voltdb.InvocationDispatcher.OverrideCheck;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.commandlog.GroupCommitCommandLog;
+import org.voltdb.commandlog.GroupCommitLogReinitiator;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.deploymentfile.DrRoleType;
 import org.voltdb.dtxn.TransactionCreator;
@@ -489,7 +491,7 @@ SnapshotCompletionInterest, Promotable
         m_action = action;
         m_hostMessenger = hostMessenger;
         m_zk = hostMessenger.getZK();
-        m_clEnabled = VoltDB.instance().getConfig().m_isEnterprise ? clEnabled : false;
+        m_clEnabled = (VoltDB.instance().getConfig().m_isEnterprise || GroupCommitCommandLog.ENABLED) ? clEnabled : false;
         m_clPath = clPath;
         m_clSnapshotPath = clSnapshotPath;
         m_snapshotPath = snapshotPath;
@@ -505,6 +507,9 @@ SnapshotCompletionInterest, Promotable
         CommandLogReinitiator replayAgent = ProClass.newInstanceOf("org.voltdb.CommandLogReinitiatorImpl",
                 "Command log replay", ProClass.HANDLER_IGNORE, m_hostId, startAction, m_hostMessenger, m_clPath,
                 m_liveHosts);
+        if (replayAgent == null && m_clEnabled && GroupCommitCommandLog.ENABLED) {
+            replayAgent = new GroupCommitLogReinitiator(m_hostId, startAction, m_hostMessenger, m_clPath, m_liveHosts);
+        }
         if (replayAgent != null) {
             m_replayAgent = replayAgent;
         }
@@ -1386,7 +1391,7 @@ SnapshotCompletionInterest, Promotable
          * they can be set individually
          */
         Map<String, SnapshotPathType> paths = new HashMap<String, SnapshotPathType>();
-        if (VoltDB.instance().getConfig().m_isEnterprise) {
+        if (VoltDB.instance().getConfig().m_isEnterprise || GroupCommitCommandLog.ENABLED) {
             if (m_clSnapshotPath != null) {
                 paths.put(m_clSnapshotPath, SnapshotPathType.SNAP_CL);
             }
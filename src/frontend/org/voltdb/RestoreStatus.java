@@ -0,0 +1,100 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.voltcore.utils.Pair;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.sysprocs.saverestore.RestoreProgress;
+import org.voltdb.sysprocs.saverestore.RestoreProgress.Phase;
+import org.voltdb.sysprocs.saverestore.RestoreProgress.PhaseProgress;
+import org.voltdb.sysprocs.saverestore.RestoreProgress.TableProgress;
+
+/**
+ * Progress of the last snapshot restore on this host, one row per table and phase
+ * (read, decompress, load), to tell which phase limits the restore.
+ */
+public class RestoreStatus extends StatsSource {
+
+    public RestoreStatus() {
+        super(false);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        final List<Object> keys = new ArrayList<>();
+        for (TableProgress t : RestoreProgress.getTables()) {
+            for (Phase phase : Phase.values()) {
+                keys.add(Pair.of(t, phase));
+            }
+        }
+        return keys.iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("TABLE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("PHASE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("PATH", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("FILENAME", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("NONCE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("TXNID", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("START_TIME", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("END_TIME", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BYTES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("BUSY_SECONDS", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("THROUGHPUT", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("RESULT", VoltType.STRING));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Pair<TableProgress, Phase> p = (Pair<TableProgress, Phase>) rowKey;
+        final TableProgress t = p.getFirst();
+        final PhaseProgress phase = t.get(p.getSecond());
+        final String result;
+        if (t.getError() != null) {
+            result = "FAILURE";
+        } else if (phase.isFinished()) {
+            result = "SUCCESS";
+        } else {
+            result = "IN PROGRESS";
+        }
+        rowValues[columnNameToIndex.get("TABLE")] = t.tableName;
+        rowValues[columnNameToIndex.get("PHASE")] = p.getSecond().name();
+        rowValues[columnNameToIndex.get("PATH")] = RestoreProgress.getPath();
+        rowValues[columnNameToIndex.get("FILENAME")] = t.getFilename();
+        rowValues[columnNameToIndex.get("NONCE")] = RestoreProgress.getNonce();
+        rowValues[columnNameToIndex.get("TXNID")] = t.getTxnId();
+        // END_TIME is 0 until the table is restored
+        rowValues[columnNameToIndex.get("START_TIME")] = phase.getStartTime();
+        rowValues[columnNameToIndex.get("END_TIME")] = phase.getEndTime();
+        // Seconds the phase's threads spent on its bytes, and the MB per second of one
+        // thread, so the slowest phase per thread is the one to add threads to
+        rowValues[columnNameToIndex.get("BYTES")] = phase.getBytes();
+        rowValues[columnNameToIndex.get("BUSY_SECONDS")] = phase.getBusyNanos() / 1000000000.0;
+        rowValues[columnNameToIndex.get("THROUGHPUT")] = phase.getThroughput();
+        rowValues[columnNameToIndex.get("RESULT")] = result;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
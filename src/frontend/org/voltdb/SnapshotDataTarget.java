@@ -42,6 +42,14 @@ public interface SnapshotDataTarget {
      */
     public ListenableFuture<?> write(Callable<BBContainer> tupleData, int tableId);
 
+    /**
+     * Can this target take another block now? Sites skip a table while one of its
+     * targets says no, and try again later.
+     */
+    public default boolean hasWriteCapacity() {
+        return true;
+    }
+
     /**
      * Site reported failures (like streaming failures
      */
@@ -53,7 +53,9 @@ import org.voltdb.catalog.Table;
 import org.voltdb.iv2.MpInitiator;
 import org.voltdb.iv2.SiteTaskerQueue;
 import org.voltdb.iv2.SnapshotTask;
+import org.voltdb.rejoin.StreamSnapshotDataTarget;
 import org.voltdb.rejoin.StreamSnapshotDataTarget.StreamSnapshotTimeoutException;
+import org.voltdb.rejoin.StreamSnapshotProgress;
 import org.voltdb.sysprocs.saverestore.SnapshotPredicates;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CompressionService;
@@ -157,7 +159,8 @@ public class SnapshotSiteProcessor {
     /**
      * Limit the number of buffers that are outstanding at any given time
      */
-    private static final AtomicInteger m_availableSnapshotBuffers = new AtomicInteger(16);
+    private static final AtomicInteger m_availableSnapshotBuffers =
+            new AtomicInteger(Integer.getInteger("SNAPSHOT_BUFFER_COUNT", 16));
 
     /**
      * The last EE out has to shut off the lights. Cache a list
@@ -174,6 +177,10 @@ public class SnapshotSiteProcessor {
     private ListMultimap<Integer, SnapshotTableTask> m_snapshotTableTasks = null;
     private Map<Integer, TableStreamer> m_streamers = null;
 
+    // Rows streamed so far if this is a stream snapshot for rejoin or join
+    private StreamSnapshotProgress m_streamProgress = null;
+    private final int[] m_streamedRows = new int[1];
+
     private long m_lastSnapshotTxnId;
     private final int m_snapshotPriority;
 
@@ -428,6 +435,13 @@ public class SnapshotSiteProcessor {
             m_streamers.put(tableId, streamer);
         }
 
+        if (format == SnapshotFormat.STREAM) {
+            m_streamProgress = StreamSnapshotProgress.start(context.getSiteId(), context.getPartitionId(),
+                                                            countTuples(context, m_streamers.keySet(), now));
+        } else {
+            m_streamProgress = null;
+        }
+
         /*
          * Resize the buffer pool to contain enough buffers for the number of tasks. The buffer
          * pool will be cleaned up at the end of the snapshot.
@@ -445,6 +459,33 @@ public class SnapshotSiteProcessor {
         }
     }
 
+    /**
+     * @return the number of tuples in the given tables, or -1 if the table stats are not available
+     */
+    private static long countTuples(SystemProcedureExecutionContext context, Set<Integer> tableIds, long now)
+    {
+        final SiteProcedureConnection site = context.getSiteProcedureConnection();
+        if (site == null || tableIds.isEmpty()) {
+            return -1;
+        }
+        final int[] locators = new int[tableIds.size()];
+        int ii = 0;
+        for (int tableId : tableIds) {
+            locators[ii++] = tableId;
+        }
+        final VoltTable[] stats = site.getStats(StatsSelector.TABLE, locators, false, now);
+        if (stats == null || stats.length == 0) {
+            return -1;
+        }
+        long tuples = 0;
+        final VoltTable tableStats = stats[0];
+        tableStats.resetRowPosition();
+        while (tableStats.advanceRow()) {
+            tuples += tableStats.getLong("TUPLE_COUNT");
+        }
+        return tuples;
+    }
+
     /**
      * This is called from the snapshot IO thread when the deferred setup is finished. It sets
      * the data targets and queues a snapshot task onto the site thread.
@@ -466,6 +507,17 @@ public class SnapshotSiteProcessor {
         }
         m_snapshotTargets = targetsToClose;
 
+        final StreamSnapshotProgress progress = m_streamProgress;
+        if (progress != null) {
+            Set<StreamSnapshotDataTarget> streamTargets = new HashSet<StreamSnapshotDataTarget>();
+            for (SnapshotTableTask t : m_snapshotTableTasks.values()) {
+                if (t.getTarget() instanceof StreamSnapshotDataTarget) {
+                    streamTargets.add((StreamSnapshotDataTarget) t.getTarget());
+                }
+            }
+            progress.setTargets(streamTargets);
+        }
+
         // Queue the first snapshot task
         VoltDB.instance().schedulePriorityWork(
                 new Runnable() {
@@ -537,6 +589,16 @@ public class SnapshotSiteProcessor {
         return outputBuffers;
     }
 
+    private static boolean haveWriteCapacity(Collection<SnapshotTableTask> tableTasks)
+    {
+        for (SnapshotTableTask task : tableTasks) {
+            if (!task.getTarget().hasWriteCapacity()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void asyncTerminateReplicatedTableTasks(Collection<SnapshotTableTask> tableTasks)
     {
         for (final SnapshotTableTask tableTask : tableTasks) {
@@ -603,6 +665,12 @@ public class SnapshotSiteProcessor {
             final int tableId = taskEntry.getKey();
             final Collection<SnapshotTableTask> tableTasks = taskEntry.getValue();
 
+            if (!haveWriteCapacity(tableTasks)) {
+                // A target is still waiting on the blocks it already has. Their buffers
+                // are discarded as they are acked, which reschedules the work
+                break;
+            }
+
             final List<BBContainer> outputBuffers = getOutputBuffers(tableTasks, noSchedule);
             if (outputBuffers == null) {
                 // Not enough buffers available
@@ -614,8 +682,13 @@ public class SnapshotSiteProcessor {
 
 
             // Stream more and add a listener to handle any failures
+            m_streamedRows[0] = 0;
             Pair<ListenableFuture<?>, Boolean> streamResult =
-                    m_streamers.get(tableId).streamMore(context, outputBuffers, null);
+                    m_streamers.get(tableId).streamMore(context, outputBuffers,
+                                                        m_streamProgress == null ? null : m_streamedRows);
+            if (m_streamProgress != null) {
+                m_streamProgress.addMovedRows(m_streamedRows[0]);
+            }
             if (streamResult.getFirst() != null) {
                 final ListenableFuture<?> writeFutures = streamResult.getFirst();
                 writeFutures.addListener(new Runnable() {
@@ -665,6 +738,10 @@ public class SnapshotSiteProcessor {
          */
         if (m_snapshotTableTasks.isEmpty()) {
             SNAP_LOG.debug("Finished with tasks");
+            if (m_streamProgress != null) {
+                m_streamProgress.finish();
+                m_streamProgress = null;
+            }
             // In case this is a non-blocking snapshot, do the post-snapshot tasks here.
             runPostSnapshotTasks(context);
             final ArrayList<SnapshotDataTarget> snapshotTargets = m_snapshotTargets;
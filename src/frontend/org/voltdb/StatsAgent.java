@@ -493,6 +493,9 @@ public class StatsAgent extends OpsAgent
         case SNAPSHOTSTATUS:
             stats = collectStats(StatsSelector.SNAPSHOTSTATUS, false);
             break;
+        case RESTORESTATUS:
+            stats = collectStats(StatsSelector.RESTORESTATUS, false);
+            break;
         case MEMORY:
             stats = collectStats(StatsSelector.MEMORY, interval);
             break;
@@ -540,6 +543,9 @@ public class StatsAgent extends OpsAgent
         case LATENCY_HISTOGRAM:
             stats = collectStats(StatsSelector.LATENCY_HISTOGRAM, interval);
             break;
+        case STAGELATENCY:
+            stats = collectStats(StatsSelector.STAGELATENCY, false);
+            break;
         case MANAGEMENT:
             stats = collectManagementStats(interval);
             break;
@@ -571,6 +577,15 @@ public class StatsAgent extends OpsAgent
         case GC:
             stats = collectStats(StatsSelector.GC, interval);
             break;
+        case THREADCPU:
+            stats = collectStats(StatsSelector.THREADCPU, false);
+            break;
+        case REJOIN:
+            stats = collectStats(StatsSelector.REJOIN, false);
+            break;
+        case TASKLOG:
+            stats = collectStats(StatsSelector.TASKLOG, false);
+            break;
         case TTL:
             stats = collectStats(StatsSelector.TTL, interval);
             break;
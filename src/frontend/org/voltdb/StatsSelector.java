@@ -27,6 +27,7 @@ public enum StatsSelector {
     LATENCY,          // invoked as @stat latency
     LATENCY_COMPRESSED,  // before V7.3 this was @Statistics LATENCY
     LATENCY_HISTOGRAM,
+    STAGELATENCY,     // per-procedure latency of each IV2 stage for sampled transactions
     PARTITIONCOUNT,
     IOSTATS,
     MEMORY,           // info about node's memory usage
@@ -35,6 +36,7 @@ public enum StatsSelector {
     MANAGEMENT,       // Returns pretty much everything
     PROCEDUREPROFILE, // performs an aggregation of the procedure statistics
     SNAPSHOTSTATUS,
+    RESTORESTATUS,    // progress of the last snapshot restore on each host, by table and phase
     PROCEDUREINPUT,
     PROCEDUREOUTPUT,
     PROCEDUREDETAIL,  // provides more granular statistics for procedure calls at a per-statement level.
@@ -59,7 +61,10 @@ public enum StatsSelector {
     REBALANCE,      // return elastic rebalance progress
     KSAFETY,        // return ksafety coverage information
     CPU,            // return CPU Stats
+    THREADCPU,      // return CPU used by each thread over the last sample interval
     GC,             // return GC Stats
+    REJOIN,         // return progress of the rejoin and join streams sent by each site
+    TASKLOG,        // return growth and replay rates of the live rejoin task logs
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
     IMPORTER,       // synonym as IMPORT for backward compatibility
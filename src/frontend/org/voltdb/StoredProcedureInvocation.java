@@ -506,7 +506,7 @@ public class StoredProcedureInvocation implements JSONString {
         params = new FutureTask<ParameterSet>(new Callable<ParameterSet>() {
             @Override
             public ParameterSet call() throws Exception {
-                return ParameterSet.fromByteBuffer(duplicate);
+                return ParameterSet.fromByteBufferNoCopy(duplicate);
             }
         });
     }
@@ -172,6 +172,7 @@ public class SystemProcedureCatalog {
         builder.put("@VerifyCatalogAndWriteJar",new Config("org.voltdb.sysprocs.VerifyCatalogAndWriteJar", false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
         builder.put("@UpdateApplicationCatalog",new Config("org.voltdb.sysprocs.UpdateApplicationCatalog", false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
         builder.put("@UpdateClasses",           new Config("org.voltdb.sysprocs.UpdateClasses",            false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
+        builder.put("@CollectPlannerStatistics",new Config("org.voltdb.sysprocs.CollectPlannerStatistics", false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
         builder.put("@LoadMultipartitionTable", new Config("org.voltdb.sysprocs.LoadMultipartitionTable",  false, false, false, 0,    VoltType.INVALID,   false, false, false,     true,   false,            true,         true  ));
         builder.put("@LoadSinglepartitionTable",new Config("org.voltdb.sysprocs.LoadSinglepartitionTable", true,  false, false, 0,    VoltType.VARBINARY, false, false, false,     true,   false,            true,         false ));
         builder.put("@Promote",                 new Config("org.voltdb.sysprocs.Promote",                  false, false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        false ));
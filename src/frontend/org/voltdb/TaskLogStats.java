@@ -0,0 +1,76 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.rejoin.TaskLogImpl;
+
+/**
+ * Growth and replay of the live rejoin task logs on this host, one row per
+ * partition, to tell whether replay is catching up with the log.
+ */
+public class TaskLogStats extends StatsSource {
+
+    public TaskLogStats() {
+        super(false);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        final List<Object> keys = new ArrayList<>(TaskLogImpl.getAll());
+        return keys.iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("STATUS", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("PENDING_TASKS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("LOGGED_TASKS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("LOGGED_BYTES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("REPLAYED_TASKS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("LOG_RATE", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("REPLAY_RATE", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("REPLAY_RATIO", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("ESTIMATED_CATCHUP", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final TaskLogImpl log = (TaskLogImpl) rowKey;
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = log.getPartitionId();
+        rowValues[columnNameToIndex.get("STATUS")] = log.isReplaying() ? "REPLAYING" : "RECORDING";
+        rowValues[columnNameToIndex.get("PENDING_TASKS")] = log.getPendingTasks();
+        rowValues[columnNameToIndex.get("LOGGED_TASKS")] = log.getLoggedTasks();
+        rowValues[columnNameToIndex.get("LOGGED_BYTES")] = log.getLoggedBytes();
+        rowValues[columnNameToIndex.get("REPLAYED_TASKS")] = log.getReplayedTasks();
+        // tasks per second over the last second
+        rowValues[columnNameToIndex.get("LOG_RATE")] = log.getLogRate();
+        rowValues[columnNameToIndex.get("REPLAY_RATE")] = log.getReplayRate();
+        rowValues[columnNameToIndex.get("REPLAY_RATIO")] = log.getCurrentReplayRatio();
+        // milliseconds, -1 if the log isn't shrinking
+        rowValues[columnNameToIndex.get("ESTIMATED_CATCHUP")] =
+                log.isReplaying() ? log.getEstimatedCatchupMillis() : -1L;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -0,0 +1,88 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.ThreadCpuSampler;
+
+/**
+ * CPU used by every JVM thread over the last system statistics sample interval,
+ * hottest first, so hot site, network or export threads show up without a profiler.
+ */
+public class ThreadCpuStats extends StatsSource {
+
+    private ThreadCpuSampler.Snapshot m_snapshot = null;
+
+    public ThreadCpuStats() {
+        super(false);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_snapshot = ThreadCpuSampler.getLatest();
+        final int rows = m_snapshot == null ? 0 : m_snapshot.size();
+        return new Iterator<Object>() {
+            int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < rows;
+            }
+
+            @Override
+            public Object next() {
+                if (index < rows) {
+                    return index++;
+                }
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("THREAD_ID", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("THREAD_NAME", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("ROLE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("CPU_TIME", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("PERCENT_USED", VoltType.FLOAT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        int index = (Integer) rowKey;
+        rowValues[columnNameToIndex.get("THREAD_ID")] = m_snapshot.threadIds[index];
+        rowValues[columnNameToIndex.get("THREAD_NAME")] = m_snapshot.threadNames[index];
+        rowValues[columnNameToIndex.get("ROLE")] = m_snapshot.roles[index].name();
+        // milliseconds, like the other statistics durations
+        rowValues[columnNameToIndex.get("CPU_TIME")] = m_snapshot.cpuNanos[index] / 1000000;
+        rowValues[columnNameToIndex.get("PERCENT_USED")] = m_snapshot.percentUsed(index);
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+}
@@ -0,0 +1,193 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.voltdb.utils.VoltTrace;
+
+/**
+ * Where a sampled transaction spent its time on the way through IV2.
+ *
+ * The client interface and the partition leader each keep their own trace for a
+ * sampled transaction. Both time consecutive stages against a moving mark using
+ * their local {@link System#nanoTime()}, so no clock is compared across hosts.
+ * The leader returns its stage durations in the {@code InitiateResponseMessage}
+ * and the client interface attributes whatever is left of the round trip to
+ * {@link Stage#TRANSPORT}.
+ *
+ * Not thread-safe. A trace is handed between threads only through the mailboxes
+ * and task queues that already carry the transaction.
+ */
+public class TransactionStageTrace {
+
+    public enum Stage {
+        NETWORK_READ,   // socket read to dispatch by the client interface
+        DISPATCH,       // InvocationDispatcher, up to sending the initiation
+        DURABILITY,     // leader arrival until the command log lets the task run
+        QUEUE,          // waiting in the transaction and site task queues
+        EXECUTE,        // procedure execution on the leader's site
+        REPLICATION,    // leader done until every replica has responded
+        TRANSPORT,      // round trip minus the leader stages: mailboxes and wire
+        RESPONSE_WRITE  // response arrival at the client interface to serialization
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    // The stages timed by the partition leader and returned with the response
+    private static final Stage[] LEADER_STAGES =
+        { Stage.DURABILITY, Stage.QUEUE, Stage.EXECUTE, Stage.REPLICATION };
+
+    /** Bytes added to an InitiateResponseMessage that carries a trace */
+    public static final int SERIALIZED_SIZE = 4 + 8 * LEADER_STAGES.length;
+
+    /** Trace one in this many transactions, 0 to disable */
+    public static final int SAMPLE_RATE = Integer.getInteger("TXN_STAGE_SAMPLE_RATE", 0);
+
+    private final long[] m_nanos = new long[STAGES.length];
+    private int m_timedStages = 0;
+    private long m_startNanos;
+    private long m_markNanos;
+
+    public TransactionStageTrace() {
+    }
+
+    public TransactionStageTrace(long startNanos) {
+        m_startNanos = startNanos;
+        m_markNanos = startNanos;
+    }
+
+    /**
+     * @return true if the caller should trace the transaction it is about to
+     * create. Cheap enough to call for every transaction.
+     */
+    public static boolean shouldSample() {
+        return SAMPLE_RATE > 0 &&
+               (SAMPLE_RATE == 1 || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0);
+    }
+
+    /** Start timing the next stage at the given time. */
+    public void mark(long nowNanos) {
+        if (m_startNanos == 0) {
+            m_startNanos = nowNanos;
+        }
+        m_markNanos = nowNanos;
+    }
+
+    /** Charge the time since the last mark to a stage and move the mark. */
+    public void end(Stage stage, long nowNanos) {
+        if (nowNanos > m_markNanos) {
+            m_nanos[stage.ordinal()] += nowNanos - m_markNanos;
+        }
+        m_markNanos = nowNanos;
+        m_timedStages |= 1 << stage.ordinal();
+    }
+
+    /** Record a stage that was timed elsewhere. */
+    public void set(Stage stage, long nanos) {
+        m_nanos[stage.ordinal()] = Math.max(0, nanos);
+        m_timedStages |= 1 << stage.ordinal();
+    }
+
+    public long get(Stage stage) {
+        return m_nanos[stage.ordinal()];
+    }
+
+    public boolean isTimed(Stage stage) {
+        return (m_timedStages & (1 << stage.ordinal())) != 0;
+    }
+
+    public long getStartNanos() {
+        return m_startNanos;
+    }
+
+    /**
+     * Close the client interface's trace once the response is being serialized.
+     *
+     * @param leader      the trace returned by the partition leader, or null if the
+     *                    initiator does not report one (e.g. multi-partition)
+     * @param arrivalNanos when the response reached the client interface
+     * @param nowNanos    now
+     */
+    public void complete(TransactionStageTrace leader, long arrivalNanos, long nowNanos) {
+        if (leader == null) {
+            end(Stage.TRANSPORT, nowNanos);
+            return;
+        }
+        long leaderNanos = 0;
+        for (Stage stage : LEADER_STAGES) {
+            if (leader.isTimed(stage)) {
+                set(stage, leader.get(stage));
+                leaderNanos += leader.get(stage);
+            }
+        }
+        final long roundTrip = arrivalNanos - m_markNanos;
+        set(Stage.TRANSPORT, roundTrip - leaderNanos);
+        m_markNanos = arrivalNanos;
+        end(Stage.RESPONSE_WRITE, nowNanos);
+    }
+
+    public void flattenToBuffer(ByteBuffer buf) {
+        int timed = 0;
+        for (int i = 0; i < LEADER_STAGES.length; i++) {
+            if (isTimed(LEADER_STAGES[i])) {
+                timed |= 1 << i;
+            }
+        }
+        buf.putInt(timed);
+        for (Stage stage : LEADER_STAGES) {
+            buf.putLong(get(stage));
+        }
+    }
+
+    public static TransactionStageTrace fromBuffer(ByteBuffer buf) {
+        final TransactionStageTrace trace = new TransactionStageTrace();
+        final int timed = buf.getInt();
+        for (int i = 0; i < LEADER_STAGES.length; i++) {
+            final long nanos = buf.getLong();
+            if ((timed & (1 << i)) != 0) {
+                trace.set(LEADER_STAGES[i], nanos);
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Queue the stages as consecutive async events in the CI trace category so a
+     * sampled transaction can be viewed as a timeline. Leader stages are laid out
+     * back to back after dispatch since only their durations are known here.
+     */
+    public void logTrace(final String procName, final long clientHandle) {
+        final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.CI);
+        if (traceLog == null) {
+            return;
+        }
+        final String id = "stages-" + clientHandle;
+        long nanos = m_startNanos - (isTimed(Stage.NETWORK_READ) ? get(Stage.NETWORK_READ) : 0);
+        for (Stage stage : STAGES) {
+            if (!isTimed(stage)) {
+                continue;
+            }
+            final String name = stage.name();
+            traceLog.add(() -> VoltTrace.beginAsync(name, id, "name", procName), nanos);
+            nanos += get(stage);
+            traceLog.add(() -> VoltTrace.endAsync(name, id), nanos);
+        }
+    }
+}
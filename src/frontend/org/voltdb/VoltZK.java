@@ -95,6 +95,9 @@ public class VoltZK {
     public static final String user_snapshot_request = "/db/user_snapshot_request";
     public static final String user_snapshot_response = "/db/user_snapshot_response";
     public static final String commandlog_init_barrier = "/db/commmandlog_init_barrier";
+    public static final String commandlog_replay_barrier = "/db/commandlog_replay_barrier";
+    public static final String commandlog_replay_sources = "/db/commandlog_replay_sources";
+    public static final String commandlog_replay_sources_barrier = "/db/commandlog_replay_sources_barrier";
 
     // leader election
 
@@ -0,0 +1,258 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.commandlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+/**
+ * Reads back the records of a group commit command log directory in the order
+ * they were written.
+ *
+ * Only the newest run of consecutive segment uses is read. Segments that were
+ * recycled before that run still carry older headers and are ignored. Reading
+ * stops at the first record that fails its checksum, which is where the last
+ * group commit before a crash was torn.
+ */
+class CommandLogReader {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    interface RecordHandler {
+        void handle(LogRecord record) throws IOException;
+    }
+
+    static class LogRecord {
+        final byte m_type;
+        final long m_spHandle;
+        final long m_sequence;
+
+        // INITIATE_RECORD
+        int[] m_involvedPartitions;
+        Iv2InitiateTaskMessage m_message;
+
+        // FAULT_RECORD
+        int m_partitionId;
+        long m_writerHSId;
+        long[] m_survivorHSIds;
+
+        // TRUNCATION_RECORD
+        Map<Integer, Long> m_partitionTxnIds;
+
+        LogRecord(byte type, long spHandle, long sequence) {
+            m_type = type;
+            m_spHandle = spHandle;
+            m_sequence = sequence;
+        }
+
+        int getPartitionId() {
+            return m_type == CommandLogSegment.FAULT_RECORD ? m_partitionId : TxnEgo.getPartitionId(m_spHandle);
+        }
+    }
+
+    private static class SegmentFile {
+        final File m_file;
+        final long m_sequence;
+        final InstanceId m_instanceId;
+
+        SegmentFile(File file, long sequence, InstanceId instanceId) {
+            m_file = file;
+            m_sequence = sequence;
+            m_instanceId = instanceId;
+        }
+    }
+
+    private final List<SegmentFile> m_segments = new ArrayList<>();
+    private final CRC32 m_crc = new CRC32();
+
+    CommandLogReader(File dir) throws IOException {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final List<SegmentFile> all = new ArrayList<>();
+        for (File f : files) {
+            if (CommandLogSegment.indexOf(f.getName()) < 0) {
+                continue;
+            }
+            final SegmentFile segment = readHeader(f);
+            if (segment != null) {
+                all.add(segment);
+            }
+        }
+        all.sort((a, b) -> Long.compare(a.m_sequence, b.m_sequence));
+        // Keep the consecutive run that ends with the newest segment
+        for (int i = all.size() - 1; i >= 0; i--) {
+            if (!m_segments.isEmpty() && all.get(i).m_sequence != m_segments.get(0).m_sequence - 1) {
+                break;
+            }
+            m_segments.add(0, all.get(i));
+        }
+    }
+
+    /** @return the highest segment sequence found in the directory, or -1 */
+    static long maxSequence(File dir) throws IOException {
+        long max = -1;
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (CommandLogSegment.indexOf(f.getName()) >= 0) {
+                    final SegmentFile segment = readHeader(f);
+                    if (segment != null) {
+                        max = Math.max(max, segment.m_sequence);
+                    }
+                }
+            }
+        }
+        return max;
+    }
+
+    private static SegmentFile readHeader(File f) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            if (raf.length() < CommandLogSegment.HEADER_SIZE) {
+                return null;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(CommandLogSegment.HEADER_SIZE);
+            raf.getChannel().read(header, 0);
+            header.flip();
+            if (header.getInt() != CommandLogSegment.MAGIC || header.getInt() != CommandLogSegment.VERSION) {
+                return null;
+            }
+            final long sequence = header.getLong();
+            final int coord = header.getInt();
+            final long timestamp = header.getLong();
+            return new SegmentFile(f, sequence, new InstanceId(coord, timestamp));
+        }
+    }
+
+    boolean isEmpty() {
+        return m_segments.isEmpty();
+    }
+
+    int getSegmentCount() {
+        return m_segments.size();
+    }
+
+    /** @return the id of the cluster that wrote the newest segment, or null if there is none */
+    InstanceId getInstanceId() {
+        return m_segments.isEmpty() ? null : m_segments.get(m_segments.size() - 1).m_instanceId;
+    }
+
+    /**
+     * Pass every valid record to the handler in log order.
+     *
+     * @param decodeMessages false to skip deserializing the initiate task messages
+     */
+    void read(RecordHandler handler, boolean decodeMessages) throws IOException {
+        for (int i = 0; i < m_segments.size(); i++) {
+            final SegmentFile segment = m_segments.get(i);
+            if (!readSegment(segment, handler, decodeMessages)) {
+                if (i < m_segments.size() - 1) {
+                    LOG.warn("Command log segment " + segment.m_file + " ends with a partial write, ignoring " +
+                             (m_segments.size() - 1 - i) + " newer segments");
+                }
+                return;
+            }
+        }
+    }
+
+    /** @return true if the segment was closed by an end record */
+    private boolean readSegment(SegmentFile segment, RecordHandler handler, boolean decodeMessages)
+            throws IOException {
+        final MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(segment.m_file, "r")) {
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        int position = CommandLogSegment.HEADER_SIZE;
+        while (position + CommandLogSegment.RECORD_HEADER_SIZE <= mapped.limit()) {
+            final int length = mapped.getInt(position);
+            final int crc = mapped.getInt(position + 4);
+            final int start = position + CommandLogSegment.RECORD_HEADER_SIZE;
+            if (length <= 0 || length > mapped.limit() - start ||
+                crc != CommandLogSegment.checksum(mapped, start, start + length, segment.m_sequence, m_crc)) {
+                return false;
+            }
+            final ByteBuffer body = mapped.duplicate();
+            body.limit(start + length).position(start);
+            final byte type = body.get();
+            if (type == CommandLogSegment.END_RECORD) {
+                return true;
+            }
+            handler.handle(decode(type, body, segment.m_sequence, decodeMessages));
+            position = start + length;
+        }
+        return false;
+    }
+
+    private static LogRecord decode(byte type, ByteBuffer body, long sequence, boolean decodeMessages)
+            throws IOException {
+        final LogRecord record = new LogRecord(type, body.getLong(), sequence);
+        switch (type) {
+        case CommandLogSegment.INITIATE_RECORD:
+            final int involved = body.getInt();
+            if (involved > 0) {
+                record.m_involvedPartitions = new int[involved];
+                for (int i = 0; i < involved; i++) {
+                    record.m_involvedPartitions[i] = body.getInt();
+                }
+            }
+            if (decodeMessages) {
+                // Copy out of the mapping, the invocation keeps a reference to its buffer
+                final ByteBuffer message = ByteBuffer.allocate(body.remaining());
+                message.put(body).flip();
+                message.get(); // message type
+                record.m_message = new Iv2InitiateTaskMessage();
+                record.m_message.initFromBuffer(message);
+            }
+            break;
+        case CommandLogSegment.FAULT_RECORD:
+            record.m_partitionId = body.getInt();
+            record.m_writerHSId = body.getLong();
+            record.m_survivorHSIds = new long[body.getInt()];
+            for (int i = 0; i < record.m_survivorHSIds.length; i++) {
+                record.m_survivorHSIds[i] = body.getLong();
+            }
+            break;
+        case CommandLogSegment.TRUNCATION_RECORD:
+            final int partitions = body.getInt();
+            final Map<Integer, Long> txnIds = new HashMap<>();
+            for (int i = 0; i < partitions; i++) {
+                txnIds.put(body.getInt(), body.getLong());
+            }
+            record.m_partitionTxnIds = Collections.unmodifiableMap(txnIds);
+            break;
+        default:
+            throw new IOException("Unknown command log record type " + type);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,208 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.commandlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.voltcore.utils.InstanceId;
+import org.voltdb.iv2.TxnEgo;
+
+/**
+ * A preallocated command log file. The file is filled with zeros once when it is
+ * created and then written in place every time the segment is reused, so a group
+ * commit never has to extend the file before it can fsync.
+ *
+ * Every use of the segment starts with a header carrying a sequence number that
+ * increases across the whole log. Records are checksummed together with that
+ * sequence number, which is how a reader tells the records of the current use from
+ * whatever an earlier use left behind further into the file.
+ *
+ * Layout: header, then records of [int length][int crc][byte type][long spHandle][payload]
+ * up to an end record, which has no spHandle. The end record tells a reader that the
+ * log continues in the segment with the next sequence number.
+ */
+class CommandLogSegment {
+
+    static final int MAGIC = 0x56434C47;    // VCLG
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;      // magic, version, sequence, instance id, padding
+    static final int RECORD_HEADER_SIZE = 8;
+
+    static final byte INITIATE_RECORD = 1;
+    static final byte FAULT_RECORD = 2;
+    static final byte TRUNCATION_RECORD = 3;
+    static final byte END_RECORD = 4;
+
+    // Every segment keeps room for the end record written when the log moves on
+    static final int END_RECORD_SIZE = RECORD_HEADER_SIZE + 1;
+
+    static final String FILE_PREFIX = "groupcommit_";
+    static final String FILE_SUFFIX = ".log";
+    private static final Pattern FILE_PATTERN =
+            Pattern.compile(Pattern.quote(FILE_PREFIX) + "(\\d+)" + Pattern.quote(FILE_SUFFIX));
+
+    private static final int ZERO_FILL_CHUNK = 1024 * 1024;
+
+    final int m_index;
+    final File m_file;
+    final int m_capacity;
+    private final FileChannel m_channel;
+
+    // State of the current use, guarded by the command log lock
+    long m_sequence = -1;
+    int m_reserved;
+    final Map<Integer, Long> m_maxSpHandles = new HashMap<>();
+
+    private CommandLogSegment(int index, File file, int capacity, FileChannel channel) {
+        m_index = index;
+        m_file = file;
+        m_capacity = capacity;
+        m_channel = channel;
+    }
+
+    static File fileFor(File dir, int index) {
+        return new File(dir, FILE_PREFIX + index + FILE_SUFFIX);
+    }
+
+    /** @return the segment index encoded in a file name, or -1 if it is not a segment */
+    static int indexOf(String fileName) {
+        final Matcher m = FILE_PATTERN.matcher(fileName);
+        return m.matches() ? Integer.parseInt(m.group(1)) : -1;
+    }
+
+    /**
+     * Open the segment file with the given index, creating and zero filling it if
+     * it does not exist or is shorter than the capacity.
+     */
+    @SuppressWarnings("resource")
+    static CommandLogSegment open(File dir, int index, int capacity) throws IOException {
+        final File file = fileFor(dir, index);
+        final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            if (channel.size() < capacity) {
+                final ByteBuffer zeros = ByteBuffer.allocateDirect(ZERO_FILL_CHUNK);
+                long position = channel.size();
+                while (position < capacity) {
+                    zeros.clear();
+                    zeros.limit((int) Math.min(ZERO_FILL_CHUNK, capacity - position));
+                    while (zeros.hasRemaining()) {
+                        position += channel.write(zeros, position);
+                    }
+                }
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CommandLogSegment(index, file, capacity, channel);
+    }
+
+    /** Start a new use of the segment, discarding what the previous use tracked. */
+    void reset(long sequence) {
+        m_sequence = sequence;
+        m_reserved = 0;
+        m_maxSpHandles.clear();
+    }
+
+    int remaining() {
+        return m_capacity - m_reserved;
+    }
+
+    void trackSpHandle(long spHandle) {
+        final Integer partition = TxnEgo.getPartitionId(spHandle);
+        final Long max = m_maxSpHandles.get(partition);
+        if (max == null || max < spHandle) {
+            m_maxSpHandles.put(partition, spHandle);
+        }
+    }
+
+    /**
+     * @return true if a truncation snapshot with the given per-partition txnIds
+     * covers every record written to this segment
+     */
+    boolean isCoveredBy(Map<Integer, Long> partitionTxnIds) {
+        for (Map.Entry<Integer, Long> e : m_maxSpHandles.entrySet()) {
+            final Long snapshotTxnId = partitionTxnIds.get(e.getKey());
+            if (snapshotTxnId == null || snapshotTxnId < e.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void write(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += m_channel.write(buf, position);
+        }
+    }
+
+    void force() throws IOException {
+        m_channel.force(false);
+    }
+
+    FileChannel channel() {
+        return m_channel;
+    }
+
+    void close() throws IOException {
+        m_channel.close();
+    }
+
+    static void writeHeader(ByteBuffer buf, long sequence, InstanceId instanceId) {
+        final int start = buf.position();
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putLong(sequence);
+        buf.putInt(instanceId == null ? 0 : instanceId.getCoord());
+        buf.putLong(instanceId == null ? 0 : instanceId.getTimestamp());
+        while (buf.position() < start + HEADER_SIZE) {
+            buf.put((byte) 0);
+        }
+    }
+
+    /**
+     * Fill in the checksum of the record that starts at recordStart and ends at the
+     * buffer's position.
+     */
+    static void sealRecord(ByteBuffer buf, int recordStart, long sequence, CRC32 crc) {
+        final int end = buf.position();
+        buf.putInt(recordStart, end - recordStart - RECORD_HEADER_SIZE);
+        buf.putInt(recordStart + 4, checksum(buf, recordStart + RECORD_HEADER_SIZE, end, sequence, crc));
+    }
+
+    static int checksum(ByteBuffer buf, int start, int end, long sequence, CRC32 crc) {
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        final ByteBuffer body = buf.duplicate();
+        body.limit(end).position(start);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,658 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.commandlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.voltcore.logging.Level;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.InstanceId;
+import org.voltcore.utils.RateLimitedLogger;
+import org.voltdb.CommandLog;
+import org.voltdb.CommandLogStats;
+import org.voltdb.SnapshotCompletionInterest;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltZK;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * Command log for the community edition, enabled with -DGROUP_COMMIT_COMMANDLOG=true.
+ *
+ * Every site on the host appends its initiate task messages to one shared log. A
+ * single writer thread takes whatever has accumulated, writes it and fsyncs it once
+ * for the whole batch, so the cost of an fsync is shared by all the transactions that
+ * arrived while the previous one was in progress. A batch is committed when the
+ * configured number of transactions is pending or when the configured interval has
+ * passed since the first of them arrived, whichever comes first.
+ *
+ * In synchronous mode the sites only run a transaction once its batch is on disk.
+ * In asynchronous mode they run it right away and only wait when too many bytes
+ * are waiting to be written.
+ *
+ * The log is a pool of preallocated segment files (see {@link CommandLogSegment}).
+ * Segments whose records are all covered by a truncation snapshot go back to the
+ * pool and are written over by later records.
+ */
+public class GroupCommitCommandLog implements CommandLog, SnapshotCompletionInterest {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    public static final boolean ENABLED = Boolean.getBoolean("GROUP_COMMIT_COMMANDLOG");
+
+    static final int SEGMENT_SIZE = Integer.getInteger("GROUP_COMMIT_SEGMENT_SIZE_MB", 64) * 1024 * 1024;
+    private static final int MIN_SEGMENT_COUNT = 2;
+
+    // Async logging applies backpressure above this many unwritten bytes
+    private static final long MAX_OUTSTANDING_BYTES = 64L * 1024 * 1024;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final ListenableFuture<Object> DURABLE = Futures.immediateFuture(null);
+
+    private final boolean m_synchronous;
+    private final int m_fsyncIntervalMillis;
+    private final long m_fsyncIntervalNanos;
+    private final int m_maxTxns;
+    private final File m_dir;
+
+    private final ReentrantLock m_lock = new ReentrantLock();
+    private final Condition m_workAvailable = m_lock.newCondition();
+    private final Condition m_batchFull = m_lock.newCondition();
+    private final Condition m_recordsFilled = m_lock.newCondition();
+
+    // Sites checksum their records outside the lock
+    private static final ThreadLocal<CRC32> s_recordCRC = ThreadLocal.withInitial(CRC32::new);
+
+    // Everything below is guarded by m_lock
+    private final List<DurabilityListener> m_listeners = new ArrayList<>();
+    private final List<CommandLogSegment> m_segments = new ArrayList<>();
+    private final ArrayDeque<CommandLogSegment> m_freeSegments = new ArrayDeque<>();
+    private final ArrayDeque<CommandLogSegment> m_inUseSegments = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> m_freeChunks = new ArrayDeque<>();
+    private final CRC32 m_crc = new CRC32();
+    private CommandLogSegment m_current;
+    private Map<Integer, Long> m_truncationPoint = Collections.emptyMap();
+    private InstanceId m_instanceId;
+    private int m_segmentSize;
+    private int m_segmentCount;
+    private long m_sequence;
+
+    private ArrayList<Chunk> m_pending = new ArrayList<>();
+    private Chunk m_chunk;
+    private int m_pendingTxns;
+    private int m_pendingTasks;
+    private long m_firstPendingNanos;
+    private ArrayList<SettableFuture<Boolean>> m_pendingFaults = new ArrayList<>();
+    private SettableFuture<Object> m_backpressure;
+    private boolean m_truncationWanted;
+    private boolean m_shutdown;
+
+    // Written under the lock, read without it for stats
+    private volatile boolean m_initialized;
+    private final AtomicLong m_outstandingBytes = new AtomicLong();
+    private volatile int m_outstandingTxns;
+    private volatile int m_lastCommitIntervalMillis;
+    private volatile boolean m_truncationPending;
+
+    private Thread m_writer;
+
+    /** A run of records bound for consecutive positions of one segment */
+    private static class Chunk {
+        final CommandLogSegment m_segment;
+        final long m_position;
+        final ByteBuffer m_buf;
+        // Records reserved in the chunk that their site has not filled in yet, guarded by m_lock
+        int m_unfilled;
+
+        Chunk(CommandLogSegment segment, long position, ByteBuffer buf) {
+            m_segment = segment;
+            m_position = position;
+            m_buf = buf;
+        }
+    }
+
+    public GroupCommitCommandLog(boolean synchronous, int fsyncIntervalMillis, int maxTxns, String logPath) {
+        m_synchronous = synchronous;
+        m_fsyncIntervalMillis = fsyncIntervalMillis;
+        m_fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        m_maxTxns = maxTxns > 0 ? maxTxns : Integer.MAX_VALUE;
+        m_dir = new File(logPath);
+    }
+
+    @Override
+    public void init(int logSize, long txnId, String coreBinding, Map<Integer, Long> perPartitionTxnId) {
+        start(logSize, perPartitionTxnId);
+    }
+
+    @Override
+    public void initForRejoin(int logSize, long txnId, boolean isRejoin, String coreBinding,
+            Map<Integer, Long> perPartitionTxnId) {
+        start(logSize, perPartitionTxnId);
+    }
+
+    private void start(int logSizeMB, Map<Integer, Long> perPartitionTxnId) {
+        final int segmentCount = Math.max(MIN_SEGMENT_COUNT, (int) ((long) logSizeMB * 1024 * 1024 / SEGMENT_SIZE));
+        try {
+            initialize(segmentCount, SEGMENT_SIZE, VoltDB.instance().getHostMessenger().getInstanceId(),
+                       perPartitionTxnId);
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to create the command log in " + m_dir, true, e);
+        }
+        VoltDB.instance().getSnapshotCompletionMonitor().addInterest(this);
+    }
+
+    /**
+     * Preallocate the segments and start the writer. Every existing segment is reused,
+     * whatever it holds is covered by the snapshot the cluster started from.
+     */
+    void initialize(int segmentCount, int segmentSize, InstanceId instanceId,
+            Map<Integer, Long> truncationPoint) throws IOException {
+        if (!m_dir.exists() && !m_dir.mkdirs()) {
+            throw new IOException("Unable to create command log directory " + m_dir);
+        }
+        final long lastSequence = CommandLogReader.maxSequence(m_dir);
+        m_lock.lock();
+        try {
+            m_segmentSize = segmentSize;
+            m_segmentCount = segmentCount;
+            m_instanceId = instanceId;
+            // Leave a gap after the previous run so a reader never takes it for part of this one
+            m_sequence = lastSequence + 1;
+            if (truncationPoint != null) {
+                m_truncationPoint = new HashMap<>(truncationPoint);
+            }
+            for (int i = 0; i < segmentCount; i++) {
+                final CommandLogSegment segment = CommandLogSegment.open(m_dir, i, segmentSize);
+                m_segments.add(segment);
+                m_freeSegments.add(segment);
+            }
+            nextSegment();
+            m_writer = new Thread(this::runWriter, "Command log writer");
+            m_writer.setDaemon(true);
+            m_writer.start();
+            m_initialized = true;
+        } finally {
+            m_lock.unlock();
+        }
+        LOG.info("Group commit command log started in " + m_dir + " with " + segmentCount + " segments of " +
+                 (segmentSize / 1024 / 1024) + "MB, " + (m_synchronous ? "synchronous" : "asynchronous") +
+                 ", commit every " + m_fsyncIntervalMillis + "ms or " + m_maxTxns + " transactions");
+    }
+
+    @Override
+    public boolean needsInitialization() {
+        return !m_initialized;
+    }
+
+    @Override
+    public ListenableFuture<Object> log(Iv2InitiateTaskMessage message, long spHandle,
+            int[] involvedPartitions, DurabilityListener listener, TransactionTask durabilityHandle) {
+        if (!m_initialized) {
+            // Replay runs before the log is initialized, the truncation snapshot at
+            // the end of it makes the replayed transactions durable.
+            return m_synchronous ? null : DURABLE;
+        }
+        final int involved = involvedPartitions == null ? 0 : involvedPartitions.length;
+        final int messageSize = message == null ? 0 : message.getSerializedSize();
+        final int size = CommandLogSegment.RECORD_HEADER_SIZE + 1 + 8 + 4 + 4 * involved + messageSize;
+        // Only the reservation of the record's place in the log is made under the lock, the
+        // site serializes the record into it afterwards so sites do not wait for each other
+        Chunk chunk = null;
+        ByteBuffer record = null;
+        long sequence = 0;
+        final ListenableFuture<Object> result;
+        m_lock.lock();
+        try {
+            if (message != null) {
+                final ByteBuffer buf = reserve(size, spHandle);
+                chunk = m_chunk;
+                chunk.m_unfilled++;
+                record = buf.duplicate();
+                record.limit(buf.position() + size);
+                buf.position(buf.position() + size);
+                sequence = m_current.m_sequence;
+                m_pendingTxns++;
+                m_outstandingTxns++;
+            }
+            listener.addTransaction(durabilityHandle);
+            addPendingWork();
+
+            if (m_synchronous) {
+                result = null;
+            }
+            else if (m_outstandingBytes.get() > MAX_OUTSTANDING_BYTES) {
+                if (m_backpressure == null) {
+                    m_backpressure = SettableFuture.create();
+                }
+                result = m_backpressure;
+            }
+            else {
+                result = DURABLE;
+            }
+        } finally {
+            m_lock.unlock();
+        }
+
+        if (chunk != null) {
+            final int start = record.position();
+            record.position(start + CommandLogSegment.RECORD_HEADER_SIZE);
+            record.put(CommandLogSegment.INITIATE_RECORD);
+            record.putLong(spHandle);
+            record.putInt(involved);
+            for (int i = 0; i < involved; i++) {
+                record.putInt(involvedPartitions[i]);
+            }
+            try {
+                // The message flattens into a buffer of exactly its own size
+                message.flattenToBuffer(record.slice());
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to serialize " + message + " to the command log", true, e);
+            }
+            record.position(record.limit());
+            CommandLogSegment.sealRecord(record, start, sequence, s_recordCRC.get());
+
+            m_lock.lock();
+            try {
+                if (--chunk.m_unfilled == 0) {
+                    m_recordsFilled.signalAll();
+                }
+            } finally {
+                m_lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public SettableFuture<Boolean> logIv2Fault(long writerHSId, Set<Long> survivorHSId,
+            int partitionId, long spHandle) {
+        final SettableFuture<Boolean> written = SettableFuture.create();
+        if (!m_initialized) {
+            written.set(true);
+            return written;
+        }
+        final int size = CommandLogSegment.RECORD_HEADER_SIZE + 1 + 8 + 4 + 8 + 4 + 8 * survivorHSId.size();
+        m_lock.lock();
+        try {
+            final ByteBuffer buf = reserve(size, spHandle);
+            final int start = buf.position();
+            buf.position(start + CommandLogSegment.RECORD_HEADER_SIZE);
+            buf.put(CommandLogSegment.FAULT_RECORD);
+            buf.putLong(spHandle);
+            buf.putInt(partitionId);
+            buf.putLong(writerHSId);
+            buf.putInt(survivorHSId.size());
+            for (long hsId : survivorHSId) {
+                buf.putLong(hsId);
+            }
+            CommandLogSegment.sealRecord(buf, start, m_current.m_sequence, m_crc);
+            m_pendingFaults.add(written);
+            addPendingWork();
+        } finally {
+            m_lock.unlock();
+        }
+        return written;
+    }
+
+    private void addPendingWork() {
+        if (m_pendingTasks++ == 0) {
+            m_firstPendingNanos = System.nanoTime();
+            m_workAvailable.signal();
+        }
+        if (m_pendingTxns >= m_maxTxns) {
+            m_batchFull.signal();
+        }
+    }
+
+    /**
+     * Make room for a record in the current segment, moving on to the next one if
+     * it does not fit.
+     *
+     * @return the buffer to write the record to at its position
+     */
+    private ByteBuffer reserve(int size, long spHandle) {
+        if (size + CommandLogSegment.END_RECORD_SIZE > m_current.remaining()) {
+            nextSegment();
+            if (size + CommandLogSegment.END_RECORD_SIZE > m_current.remaining()) {
+                VoltDB.crashLocalVoltDB("Command log record of " + size + " bytes is larger than a segment of " +
+                                        m_segmentSize + " bytes", false, null);
+            }
+        }
+        final ByteBuffer buf = chunkFor(size);
+        m_current.m_reserved += size;
+        m_current.trackSpHandle(spHandle);
+        m_outstandingBytes.addAndGet(size);
+        return buf;
+    }
+
+    private ByteBuffer chunkFor(int size) {
+        if (m_chunk == null || m_chunk.m_segment != m_current || m_chunk.m_buf.remaining() < size) {
+            ByteBuffer buf = size <= CHUNK_SIZE ? m_freeChunks.poll() : null;
+            if (buf == null) {
+                buf = ByteBuffer.allocateDirect(Math.max(size, CHUNK_SIZE));
+            }
+            m_chunk = new Chunk(m_current, m_current.m_reserved, buf);
+            m_pending.add(m_chunk);
+        }
+        return m_chunk.m_buf;
+    }
+
+    /**
+     * Close the current segment with an end record and start the next use of a free
+     * one. Grows the log if no segment is free, which only happens when truncation
+     * snapshots are not keeping up.
+     */
+    private void nextSegment() {
+        if (m_current != null) {
+            final ByteBuffer buf = chunkFor(CommandLogSegment.END_RECORD_SIZE);
+            final int start = buf.position();
+            buf.position(start + CommandLogSegment.RECORD_HEADER_SIZE);
+            buf.put(CommandLogSegment.END_RECORD);
+            CommandLogSegment.sealRecord(buf, start, m_current.m_sequence, m_crc);
+            m_current.m_reserved += CommandLogSegment.END_RECORD_SIZE;
+        }
+
+        CommandLogSegment next = m_freeSegments.poll();
+        if (next == null) {
+            RateLimitedLogger.tryLogForMessage(System.currentTimeMillis(), 60, TimeUnit.SECONDS, LOG, Level.WARN,
+                    "All %d command log segments are in use, growing the log. " +
+                    "Truncation snapshots are not keeping up with the transaction rate.", m_segments.size());
+            try {
+                next = CommandLogSegment.open(m_dir, m_segments.size(), m_segmentSize);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to add a command log segment in " + m_dir, true, e);
+            }
+            m_segments.add(next);
+        }
+        next.reset(++m_sequence);
+        m_inUseSegments.add(next);
+        m_current = next;
+        if (m_inUseSegments.size() > m_segmentCount / 2) {
+            m_truncationWanted = true;
+        }
+
+        final int truncationSize = CommandLogSegment.RECORD_HEADER_SIZE + 1 + 8 + 4 + 12 * m_truncationPoint.size();
+        final ByteBuffer buf = chunkFor(CommandLogSegment.HEADER_SIZE + truncationSize);
+        CommandLogSegment.writeHeader(buf, next.m_sequence, m_instanceId);
+        final int start = buf.position();
+        buf.position(start + CommandLogSegment.RECORD_HEADER_SIZE);
+        buf.put(CommandLogSegment.TRUNCATION_RECORD);
+        buf.putLong(0);
+        buf.putInt(m_truncationPoint.size());
+        for (Map.Entry<Integer, Long> e : m_truncationPoint.entrySet()) {
+            buf.putInt(e.getKey());
+            buf.putLong(e.getValue());
+        }
+        CommandLogSegment.sealRecord(buf, start, next.m_sequence, m_crc);
+        next.m_reserved = CommandLogSegment.HEADER_SIZE + truncationSize;
+    }
+
+    private void runWriter() {
+        final List<DurabilityListener> listeners = new ArrayList<>();
+        final List<CommandLog.CompletionChecks> checks = new ArrayList<>();
+        final Set<CommandLogSegment> written = new LinkedHashSet<>();
+        long lastCommitNanos = System.nanoTime();
+        while (true) {
+            final ArrayList<Chunk> chunks;
+            final ArrayList<SettableFuture<Boolean>> faults;
+            final int txns;
+            final boolean requestTruncation;
+            m_lock.lock();
+            try {
+                while (m_pendingTasks == 0 && !m_shutdown) {
+                    m_workAvailable.awaitUninterruptibly();
+                }
+                if (m_pendingTasks == 0) {
+                    return;
+                }
+                // Let the batch grow until it is full or the interval is up
+                long waitNanos;
+                while (!m_shutdown && m_pendingTxns < m_maxTxns &&
+                       (waitNanos = m_firstPendingNanos + m_fsyncIntervalNanos - System.nanoTime()) > 0) {
+                    try {
+                        m_batchFull.awaitNanos(waitNanos);
+                    } catch (InterruptedException e) {}
+                }
+                chunks = m_pending;
+                faults = m_pendingFaults;
+                txns = m_pendingTxns;
+                m_pending = new ArrayList<>();
+                m_pendingFaults = new ArrayList<>();
+                m_chunk = null;
+                m_pendingTxns = 0;
+                m_pendingTasks = 0;
+                listeners.clear();
+                listeners.addAll(m_listeners);
+                checks.clear();
+                for (DurabilityListener listener : listeners) {
+                    checks.add(listener.startNewTaskList(listener.getNumberOfTasks()));
+                }
+                requestTruncation = m_truncationWanted;
+                m_truncationWanted = false;
+                // Sites may still be serializing records into the chunks just taken
+                for (Chunk chunk : chunks) {
+                    while (chunk.m_unfilled > 0) {
+                        m_recordsFilled.awaitUninterruptibly();
+                    }
+                }
+            } finally {
+                m_lock.unlock();
+            }
+
+            long bytes = 0;
+            try {
+                written.clear();
+                for (Chunk chunk : chunks) {
+                    chunk.m_buf.flip();
+                    bytes += chunk.m_buf.remaining();
+                    chunk.m_segment.write(chunk.m_buf, chunk.m_position);
+                    written.add(chunk.m_segment);
+                }
+                for (CommandLogSegment segment : written) {
+                    segment.force();
+                }
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to write to the command log in " + m_dir, true, e);
+            }
+            final long now = System.nanoTime();
+            m_lastCommitIntervalMillis = (int) TimeUnit.NANOSECONDS.toMillis(now - lastCommitNanos);
+            lastCommitNanos = now;
+
+            for (int i = 0; i < checks.size(); i++) {
+                listeners.get(i).processDurabilityChecks(checks.get(i));
+            }
+            for (SettableFuture<Boolean> fault : faults) {
+                fault.set(true);
+            }
+
+            m_lock.lock();
+            try {
+                m_outstandingTxns -= txns;
+                final long outstanding = m_outstandingBytes.addAndGet(-bytes);
+                if (m_backpressure != null && outstanding <= MAX_OUTSTANDING_BYTES / 2) {
+                    m_backpressure.set(null);
+                    m_backpressure = null;
+                }
+                for (Chunk chunk : chunks) {
+                    if (chunk.m_buf.capacity() == CHUNK_SIZE) {
+                        chunk.m_buf.clear();
+                        m_freeChunks.add(chunk.m_buf);
+                    }
+                }
+            } finally {
+                m_lock.unlock();
+            }
+            if (requestTruncation) {
+                requestTruncationSnapshot(false);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        VoltDB.instance().getSnapshotCompletionMonitor().removeInterest(this);
+        stop();
+    }
+
+    /** Commit whatever is pending, stop the writer and close the segments. */
+    void stop() throws InterruptedException {
+        m_lock.lock();
+        try {
+            m_shutdown = true;
+            m_workAvailable.signal();
+            m_batchFull.signal();
+        } finally {
+            m_lock.unlock();
+        }
+        if (m_writer != null) {
+            m_writer.join();
+        }
+        for (CommandLogSegment segment : m_segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to close command log segment " + segment.m_file, e);
+            }
+        }
+    }
+
+    @Override
+    public void initializeLastDurableUniqueId(DurabilityListener listener, long uniqueId) {
+        m_lock.lock();
+        try {
+            listener.initializeLastDurableUniqueId(uniqueId);
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    @Override
+    public void registerDurabilityListener(DurabilityListener durabilityListener) {
+        m_lock.lock();
+        try {
+            m_listeners.add(durabilityListener);
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isSynchronous() {
+        return m_synchronous;
+    }
+
+    @Override
+    public boolean canOfferTask() {
+        // Synchronous logging hands the task back through the durability listener
+        return !m_synchronous || !m_initialized;
+    }
+
+    @Override
+    public void requestTruncationSnapshot(boolean queueIfPending) {
+        if (m_truncationPending && !queueIfPending) {
+            return;
+        }
+        m_truncationPending = true;
+        try {
+            VoltDB.instance().getHostMessenger().getZK().create(VoltZK.request_truncation_snapshot_node, null,
+                    Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+        } catch (Exception e) {
+            LOG.warn("Unable to request a command log truncation snapshot", e);
+            m_truncationPending = false;
+        }
+    }
+
+    /**
+     * Return the oldest segments to the pool once a truncation snapshot covers all
+     * of their records. Segments are only recycled in order so that the log on disk
+     * stays one consecutive run of segments.
+     */
+    @Override
+    public CountDownLatch snapshotCompleted(SnapshotCompletionEvent event) {
+        if (event.truncationSnapshot && event.didSucceed) {
+            recycleSegments(event.partitionTxnIds);
+            m_truncationPending = false;
+        }
+        return new CountDownLatch(0);
+    }
+
+    void recycleSegments(Map<Integer, Long> partitionTxnIds) {
+        m_lock.lock();
+        try {
+            m_truncationPoint = new HashMap<>(partitionTxnIds);
+            while (m_inUseSegments.size() > 1 && m_inUseSegments.peek().isCoveredBy(partitionTxnIds)) {
+                m_freeSegments.add(m_inUseSegments.poll());
+            }
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    int getInUseSegmentCount() {
+        m_lock.lock();
+        try {
+            return m_inUseSegments.size();
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    int getSegmentCount() {
+        m_lock.lock();
+        try {
+            return m_segments.size();
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    @Override
+    public void populateCommandLogStats(Map<String, Integer> columnNameToIndex, Object[] rowValues) {
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_BYTES.name())] = m_outstandingBytes.get();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_TXNS.name())] = (long) m_outstandingTxns;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name())] = getInUseSegmentCount();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.SEGMENT_COUNT.name())] = getSegmentCount();
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.FSYNC_INTERVAL.name())] = m_lastCommitIntervalMillis;
+    }
+}
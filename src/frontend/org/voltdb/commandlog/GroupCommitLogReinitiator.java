@@ -0,0 +1,577 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.commandlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.BinaryPayloadMessage;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.messaging.Mailbox;
+import org.voltcore.messaging.SiteMailbox;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.InstanceId;
+import org.voltcore.zk.ZKCountdownLatch;
+import org.voltcore.zk.ZKUtil;
+import org.voltdb.ClientInterface;
+import org.voltdb.CommandLogReinitiator;
+import org.voltdb.RestoreAgent;
+import org.voltdb.SimpleClientResponseAdapter;
+import org.voltdb.StartAction;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltZK;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.Cartographer;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+/**
+ * Replays the {@link GroupCommitCommandLog} of this host after the snapshot restore.
+ *
+ * Every replica logs the transactions of its partitions, so each partition is replayed
+ * from the log of one host. The hosts first publish what their logs hold of each
+ * partition, and the fault records pick that host: a leader writes a fault record to
+ * itself and its replicas whenever the replica set changes, so a log that misses a
+ * fault record some other log has belongs to a replica that was down for part of the
+ * history and is not replayed. Among the complete logs the longest wins, then the
+ * current leader's.
+ *
+ * Multi-partition transactions are logged once per involved partition. The host that
+ * replays a partition sends a sentinel at the position of the transaction in that
+ * partition's stream and forwards the initiation to the host of the MPI, which
+ * initiates each transaction once in unique id order, followed by the end of log
+ * message. The MPI host holds those initiations in memory until it has all of them.
+ *
+ * Limitations: the log can only be replayed onto the partition count that wrote it.
+ */
+public class GroupCommitLogReinitiator implements CommandLogReinitiator {
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    private static final int MAX_OUTSTANDING_REPLAYS = 10000;
+    private static final int FORWARD_BATCH_SIZE = 1024 * 1024;
+
+    private static final byte[] FORWARD_INITIATIONS = new byte[] { 0 };
+    private static final byte[] FORWARD_DONE = new byte[] { 1 };
+
+    /** What one host's log holds of a partition */
+    static class PartitionLog {
+        final NavigableSet<Long> m_faults = new TreeSet<>();
+        long m_lastSpHandle = Long.MIN_VALUE;
+        boolean m_leader;
+
+        JSONObject toJSON(int partition) throws JSONException {
+            final JSONObject json = new JSONObject();
+            json.put("partition", partition);
+            json.put("last", m_lastSpHandle);
+            json.put("leader", m_leader);
+            final JSONArray faults = new JSONArray();
+            for (long spHandle : m_faults) {
+                faults.put(spHandle);
+            }
+            json.put("faults", faults);
+            return json;
+        }
+
+        static PartitionLog fromJSON(JSONObject json) throws JSONException {
+            final PartitionLog log = new PartitionLog();
+            log.m_lastSpHandle = json.getLong("last");
+            log.m_leader = json.getBoolean("leader");
+            final JSONArray faults = json.getJSONArray("faults");
+            for (int i = 0; i < faults.length(); i++) {
+                log.m_faults.add(faults.getLong(i));
+            }
+            return log;
+        }
+    }
+
+    private final int m_hostId;
+    private final HostMessenger m_messenger;
+    private final Set<Integer> m_liveHosts;
+    private CommandLogReader m_reader;
+
+    private Callback m_callback;
+    private TransactionCreator m_initiator;
+    private Map<Integer, Long> m_snapshotTxnIds;
+    private boolean m_isMPINode;
+    private boolean m_participates;
+    private boolean m_planned;
+
+    // What the log starts after, from the first truncation record
+    private Map<Integer, Long> m_truncationPoint;
+    private int m_maxPartitionId = -1;
+    private boolean m_hasRecords;
+    private final Map<Integer, PartitionLog> m_partitionLogs = new TreeMap<>();
+
+    private final Semaphore m_outstanding = new Semaphore(MAX_OUTSTANDING_REPLAYS);
+    // Multi-partition replays wait on the partitions, so they must not hold up the single partition ones
+    private final Semaphore m_outstandingMps = new Semaphore(MAX_OUTSTANDING_REPLAYS);
+    private final AtomicLong m_failed = new AtomicLong();
+    private final AtomicLong m_replayed = new AtomicLong();
+
+    private SiteMailbox m_forwardMailbox;
+
+    public GroupCommitLogReinitiator(int hostId, StartAction startAction, HostMessenger messenger,
+            String clPath, Set<Integer> liveHosts) {
+        m_hostId = hostId;
+        m_messenger = messenger;
+        m_liveHosts = liveHosts;
+        if (startAction.doesRecover()) {
+            try {
+                m_reader = new CommandLogReader(new File(clPath));
+                m_reader.read(this::scan, false);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to read the command log in " + clPath, true, e);
+            }
+            LOG.info("Found " + m_reader.getSegmentCount() + " command log segments to replay in " + clPath);
+        }
+    }
+
+    private void scan(CommandLogReader.LogRecord record) {
+        if (record.m_type == CommandLogSegment.TRUNCATION_RECORD) {
+            if (m_truncationPoint == null) {
+                m_truncationPoint = new HashMap<>(record.m_partitionTxnIds);
+                m_truncationPoint.remove(MpInitiator.MP_INIT_PID);
+            }
+        }
+        else if (record.m_type == CommandLogSegment.INITIATE_RECORD) {
+            m_hasRecords = true;
+            m_maxPartitionId = Math.max(m_maxPartitionId, record.getPartitionId());
+            final PartitionLog log = partitionLog(record.getPartitionId());
+            log.m_lastSpHandle = Math.max(log.m_lastSpHandle, record.m_spHandle);
+        }
+        else if (record.m_type == CommandLogSegment.FAULT_RECORD) {
+            partitionLog(record.getPartitionId()).m_faults.add(record.m_spHandle);
+        }
+    }
+
+    private PartitionLog partitionLog(int partition) {
+        PartitionLog log = m_partitionLogs.get(partition);
+        if (log == null) {
+            log = new PartitionLog();
+            m_partitionLogs.put(partition, log);
+        }
+        return log;
+    }
+
+    @Override
+    public void setSnapshotTxnId(RestoreAgent.SnapshotInfo info) {
+        m_snapshotTxnIds = info == null ? null : info.partitionToTxnId;
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        m_callback = callback;
+    }
+
+    @Override
+    public void setInitiator(TransactionCreator initiator) {
+        m_initiator = initiator;
+    }
+
+    @Override
+    public void initPartitionTracking() {}
+
+    @Override
+    public void generateReplayPlan(long snapshotTimeStamp, long snapshotTxnId, int newPartitionCount,
+            boolean isMPINode, JSONObject elasticOperationMetadata) {
+        // Hosts with an empty log still publish that they have nothing and forward nothing
+        m_isMPINode = isMPINode;
+        m_participates = true;
+        if (m_reader == null || m_reader.isEmpty()) {
+            return;
+        }
+        if (m_maxPartitionId >= newPartitionCount) {
+            VoltDB.crashGlobalVoltDB("The command log has transactions for partition " + m_maxPartitionId +
+                                     " but the snapshot has " + newPartitionCount + " partitions. The group" +
+                                     " commit command log can only be replayed onto the same partition count.",
+                                     false, null);
+        }
+        m_planned = true;
+    }
+
+    @Override
+    public void replay() {
+        final Thread replay = new Thread(() -> {
+            if (m_participates && m_reader != null) {
+                try {
+                    replayLog();
+                } catch (Exception e) {
+                    VoltDB.crashGlobalVoltDB("Command log replay failed", true, e);
+                }
+            }
+            if (m_callback != null) {
+                m_callback.onReplayCompletion();
+            }
+        }, "Command log replay");
+        replay.setDaemon(true);
+        replay.start();
+    }
+
+    private void replayLog() throws Exception {
+        if (m_isMPINode) {
+            prepareMpForwarding();
+        }
+        final JSONObject local = new JSONObject();
+        local.put("host", m_hostId);
+        local.put("mpi", m_isMPINode);
+        final JSONArray partitions = new JSONArray();
+        for (Map.Entry<Integer, PartitionLog> e : m_partitionLogs.entrySet()) {
+            e.getValue().m_leader = leadsPartition(e.getKey());
+            partitions.put(e.getValue().toJSON(e.getKey()));
+        }
+        local.put("partitions", partitions);
+
+        final Map<Integer, JSONObject> sources = exchangeReplaySources(local);
+        int mpiHost = -1;
+        for (Map.Entry<Integer, JSONObject> e : sources.entrySet()) {
+            if (e.getValue().getBoolean("mpi")) {
+                mpiHost = e.getKey();
+            }
+        }
+        if (mpiHost < 0) {
+            throw new IllegalStateException("No host published that it runs the MPI for command log replay");
+        }
+        final Map<Integer, Integer> replayHosts = selectReplayHosts(sources, m_snapshotTxnIds);
+        final Set<Integer> replayed = new TreeSet<>();
+        for (Map.Entry<Integer, Integer> e : replayHosts.entrySet()) {
+            if (e.getValue() == m_hostId) {
+                replayed.add(e.getKey());
+            }
+        }
+        LOG.info("Replaying partitions " + replayed + " from the command log of this host");
+
+        // Gather the multi-partition transactions of the replayed partitions, once each
+        final TreeMap<Long, Iv2InitiateTaskMessage> mps = new TreeMap<>();
+        if (!replayed.isEmpty()) {
+            m_reader.read(record -> {
+                if (isReplayed(record, replayed) && !record.m_message.isSinglePartition()) {
+                    mps.putIfAbsent(record.m_message.getUniqueId(), record.m_message);
+                }
+            }, true);
+        }
+        Thread mpReplay = null;
+        if (m_isMPINode) {
+            for (Iv2InitiateTaskMessage msg : receiveMpInitiations(sources.size() - 1)) {
+                mps.putIfAbsent(msg.getUniqueId(), msg);
+            }
+            mpReplay = new Thread(() -> {
+                try {
+                    final Map<Integer, SimpleClientResponseAdapter> adapters = new HashMap<>();
+                    for (Iv2InitiateTaskMessage msg : mps.values()) {
+                        initiate(adapters, m_outstandingMps, msg, MpInitiator.MP_INIT_PID, false);
+                    }
+                    m_initiator.sendEOLMessage(MpInitiator.MP_INIT_PID);
+                } catch (Exception e) {
+                    VoltDB.crashGlobalVoltDB("Command log replay of multi-partition transactions failed", true, e);
+                }
+            }, "Command log MP replay");
+            mpReplay.setDaemon(true);
+            mpReplay.start();
+        }
+        else {
+            forwardMpInitiations(mpiHost, mps.values());
+            mps.clear();
+        }
+
+        final Map<Integer, SimpleClientResponseAdapter> adapters = new HashMap<>();
+        if (!replayed.isEmpty()) {
+            m_reader.read(record -> {
+                if (!isReplayed(record, replayed)) {
+                    return;
+                }
+                final int partition = record.getPartitionId();
+                final Iv2InitiateTaskMessage msg = record.m_message;
+                if (msg.isSinglePartition()) {
+                    initiate(adapters, m_outstanding, msg, partition, true);
+                }
+                else {
+                    m_initiator.sendSentinel(msg.getUniqueId(), partition);
+                }
+            }, true);
+        }
+
+        if (mpReplay != null) {
+            mpReplay.join();
+        }
+        m_outstanding.acquire(MAX_OUTSTANDING_REPLAYS);
+        m_outstanding.release(MAX_OUTSTANDING_REPLAYS);
+        m_outstandingMps.acquire(MAX_OUTSTANDING_REPLAYS);
+        m_outstandingMps.release(MAX_OUTSTANDING_REPLAYS);
+        LOG.info("Replayed " + m_replayed.get() + " transactions from the command log, " +
+                 m_failed.get() + " of them failed");
+        awaitReplayBarrier();
+    }
+
+    private boolean isReplayed(CommandLogReader.LogRecord record, Set<Integer> replayed) {
+        if (record.m_type != CommandLogSegment.INITIATE_RECORD) {
+            return false;
+        }
+        final int partition = record.getPartitionId();
+        final Long snapshotTxnId = m_snapshotTxnIds == null ? null : m_snapshotTxnIds.get(partition);
+        if (snapshotTxnId != null && record.m_spHandle <= snapshotTxnId) {
+            return false;
+        }
+        return replayed.contains(partition);
+    }
+
+    /**
+     * Picks the host whose log replays each partition. Only fault records after the
+     * restored snapshot count, the snapshot covers what a replica missed before it.
+     *
+     * @param sources what each host published, by host id
+     * @return the replaying host by partition
+     * @throws IllegalStateException if every log of a partition misses a fault record
+     */
+    static Map<Integer, Integer> selectReplayHosts(Map<Integer, JSONObject> sources,
+            Map<Integer, Long> snapshotTxnIds) throws JSONException {
+        final Map<Integer, Map<Integer, PartitionLog>> byPartition = new TreeMap<>();
+        for (Map.Entry<Integer, JSONObject> e : sources.entrySet()) {
+            final JSONArray partitions = e.getValue().getJSONArray("partitions");
+            for (int i = 0; i < partitions.length(); i++) {
+                final JSONObject json = partitions.getJSONObject(i);
+                Map<Integer, PartitionLog> logs = byPartition.get(json.getInt("partition"));
+                if (logs == null) {
+                    logs = new TreeMap<>();
+                    byPartition.put(json.getInt("partition"), logs);
+                }
+                logs.put(e.getKey(), PartitionLog.fromJSON(json));
+            }
+        }
+
+        final Map<Integer, Integer> replayHosts = new TreeMap<>();
+        for (Map.Entry<Integer, Map<Integer, PartitionLog>> e : byPartition.entrySet()) {
+            final int partition = e.getKey();
+            final Long snapshotTxnId = snapshotTxnIds == null ? null : snapshotTxnIds.get(partition);
+            final long after = snapshotTxnId == null ? Long.MIN_VALUE : snapshotTxnId;
+            final NavigableSet<Long> faults = new TreeSet<>();
+            for (PartitionLog log : e.getValue().values()) {
+                faults.addAll(log.m_faults.tailSet(after, false));
+            }
+            Integer best = null;
+            PartitionLog bestLog = null;
+            for (Map.Entry<Integer, PartitionLog> candidate : e.getValue().entrySet()) {
+                final PartitionLog log = candidate.getValue();
+                if (!log.m_faults.tailSet(after, false).containsAll(faults)) {
+                    LOG.info("Not replaying partition " + partition + " from host " + candidate.getKey() +
+                             ", its command log misses fault records of the other replicas");
+                    continue;
+                }
+                if (bestLog == null || log.m_lastSpHandle > bestLog.m_lastSpHandle ||
+                    (log.m_lastSpHandle == bestLog.m_lastSpHandle && log.m_leader && !bestLog.m_leader)) {
+                    best = candidate.getKey();
+                    bestLog = log;
+                }
+            }
+            if (best == null) {
+                throw new IllegalStateException("No host has a complete command log for partition " + partition +
+                                                ", every log misses fault records of the other replicas");
+            }
+            replayHosts.put(partition, best);
+        }
+        return replayHosts;
+    }
+
+    boolean leadsPartition(int partition) {
+        final Cartographer cartographer = VoltDB.instance().getCartographer();
+        return CoreUtils.getHostIdFromHSId(cartographer.getHSIdForMaster(partition)) == m_hostId;
+    }
+
+    /** Publishes what this host's log holds and returns what every live host published, by host id */
+    Map<Integer, JSONObject> exchangeReplaySources(JSONObject local) throws Exception {
+        final ZooKeeper zk = m_messenger.getZK();
+        ZKUtil.addIfMissing(zk, VoltZK.commandlog_replay_sources, CreateMode.PERSISTENT, null);
+        zk.create(ZKUtil.joinZKPath(VoltZK.commandlog_replay_sources, Integer.toString(m_hostId)),
+                  local.toString().getBytes(StandardCharsets.UTF_8), Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        final ZKCountdownLatch published =
+                new ZKCountdownLatch(zk, VoltZK.commandlog_replay_sources_barrier, m_liveHosts.size());
+        published.countDown(true);
+        published.await();
+
+        final Map<Integer, JSONObject> sources = new TreeMap<>();
+        for (String child : zk.getChildren(VoltZK.commandlog_replay_sources, false)) {
+            final byte[] data = zk.getData(ZKUtil.joinZKPath(VoltZK.commandlog_replay_sources, child), false, null);
+            sources.put(Integer.parseInt(child), new JSONObject(new String(data, StandardCharsets.UTF_8)));
+        }
+        return sources;
+    }
+
+    /** The MPI host listens before it publishes, so nothing is forwarded to a missing mailbox */
+    void prepareMpForwarding() {
+        m_forwardMailbox = new SiteMailbox(m_messenger,
+                m_messenger.getHSIdForLocalSite(HostMessenger.COMMANDLOG_REPLAY_SITE_ID));
+        m_messenger.createMailbox(m_forwardMailbox.getHSId(), m_forwardMailbox);
+    }
+
+    /** Sends the multi-partition initiations to the MPI host in batches, then says it is done */
+    void forwardMpInitiations(int mpiHost, Collection<Iv2InitiateTaskMessage> initiations) throws IOException {
+        final Mailbox mailbox = m_messenger.createMailbox();
+        final long destination = CoreUtils.getHSIdFromHostAndSite(mpiHost, HostMessenger.COMMANDLOG_REPLAY_SITE_ID);
+        try {
+            ByteBuffer batch = ByteBuffer.allocate(FORWARD_BATCH_SIZE);
+            for (Iv2InitiateTaskMessage msg : initiations) {
+                final int size = msg.getSerializedSize();
+                if (batch.position() > 0 && batch.remaining() < 4 + size) {
+                    mailbox.send(destination, new BinaryPayloadMessage(FORWARD_INITIATIONS,
+                                                                       Arrays.copyOf(batch.array(),
+                                                                                               batch.position())));
+                    batch.clear();
+                }
+                if (batch.remaining() < 4 + size) {
+                    batch = ByteBuffer.allocate(4 + size);
+                }
+                batch.putInt(size);
+                msg.flattenToBuffer(batch);
+            }
+            if (batch.position() > 0) {
+                mailbox.send(destination, new BinaryPayloadMessage(FORWARD_INITIATIONS,
+                                                                   Arrays.copyOf(batch.array(),
+                                                                                           batch.position())));
+            }
+            mailbox.send(destination, new BinaryPayloadMessage(FORWARD_DONE, null));
+        } finally {
+            m_messenger.removeMailbox(mailbox.getHSId());
+        }
+        LOG.info("Forwarded " + initiations.size() + " multi-partition transactions to the MPI on host " + mpiHost);
+    }
+
+    /** Collects what the other hosts forward until each of them is done */
+    Collection<Iv2InitiateTaskMessage> receiveMpInitiations(int senders) throws IOException {
+        final List<Iv2InitiateTaskMessage> initiations = new ArrayList<>();
+        try {
+            int done = 0;
+            while (done < senders) {
+                final BinaryPayloadMessage forwarded = (BinaryPayloadMessage) m_forwardMailbox.recvBlocking();
+                if (forwarded.m_metadata[0] == FORWARD_DONE[0]) {
+                    done++;
+                    continue;
+                }
+                final ByteBuffer batch = ByteBuffer.wrap(forwarded.m_payload);
+                while (batch.hasRemaining()) {
+                    final ByteBuffer message = ByteBuffer.allocate(batch.getInt());
+                    batch.get(message.array());
+                    message.get(); // message type
+                    final Iv2InitiateTaskMessage msg = new Iv2InitiateTaskMessage();
+                    msg.initFromBuffer(message);
+                    initiations.add(msg);
+                }
+            }
+        } finally {
+            m_messenger.removeMailbox(m_forwardMailbox.getHSId());
+        }
+        return initiations;
+    }
+
+    /** Replay is done once every host has initiated and completed its part */
+    void awaitReplayBarrier() throws Exception {
+        final ZKCountdownLatch barrier =
+                new ZKCountdownLatch(m_messenger.getZK(), VoltZK.commandlog_replay_barrier, m_liveHosts.size());
+        barrier.countDown(true);
+        barrier.await();
+    }
+
+    private void initiate(Map<Integer, SimpleClientResponseAdapter> adapters, Semaphore outstanding,
+            Iv2InitiateTaskMessage msg, int partition, boolean isSinglePartition) throws IOException {
+        SimpleClientResponseAdapter adapter = adapters.get(partition);
+        if (adapter == null) {
+            adapter = new SimpleClientResponseAdapter(ClientInterface.CL_REPLAY_BASE_CID + partition,
+                                                      "CommandLogReplayAdapter" + partition);
+            m_initiator.bindAdapter(adapter);
+            adapters.put(partition, adapter);
+        }
+        try {
+            outstanding.acquire();
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted waiting to replay " + msg, e);
+        }
+        final StoredProcedureInvocation invocation = msg.getStoredProcedureInvocation();
+        invocation.setClientHandle(adapter.registerCallback(response -> {
+            if (response.getStatus() != ClientResponse.SUCCESS &&
+                response.getStatus() != ClientResponse.USER_ABORT) {
+                m_failed.incrementAndGet();
+            }
+            outstanding.release();
+        }));
+        m_initiator.createTransaction(adapter.connectionId(), msg.getTxnId(), msg.getUniqueId(), invocation,
+                msg.isReadOnly(), isSinglePartition, false, partition, invocation.getSerializedSize(),
+                System.nanoTime());
+        m_replayed.incrementAndGet();
+    }
+
+    @Override
+    public boolean hasReplayedSegments() {
+        return m_planned && m_hasRecords;
+    }
+
+    @Override
+    public boolean hasReplayedTxns() {
+        return m_replayed.get() > 0;
+    }
+
+    @Override
+    public Long getMaxLastSeenTxn() {
+        if (m_truncationPoint == null || m_truncationPoint.isEmpty()) {
+            return null;
+        }
+        long max = Long.MIN_VALUE;
+        for (long txnId : m_truncationPoint.values()) {
+            max = Math.max(max, txnId);
+        }
+        return max;
+    }
+
+    @Override
+    public Map<Integer, Long> getMaxLastSeenTxnByPartition() {
+        return m_truncationPoint;
+    }
+
+    @Override
+    public InstanceId getInstanceId() {
+        return m_reader == null ? null : m_reader.getInstanceId();
+    }
+
+    @Override
+    public void returnAllSegments() {
+        m_reader = null;
+    }
+
+    @Override
+    public void resumeElasticOperationIfNecessary() {}
+}
@@ -19,6 +19,7 @@ package org.voltdb.compiler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import java.util.TimerTask;
 
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.cache.Cache;
@@ -148,6 +150,9 @@ public class AdHocCompilerCache implements Serializable {
         private final int maxEntries;
         private final long maxMemory; // in bytes
         private long currentMemory;   // in bytes
+        // Literal entries that differ only by their constants share one CorePlan,
+        // so its plan fragments are counted against maxMemory once, not per entry.
+        private final IdentityHashMap<CorePlan, Integer> coreRefCounts = new IdentityHashMap<>();
 
         public AdHocStatementCache() {
             // default max entry of 1000
@@ -168,11 +173,42 @@ public class AdHocCompilerCache implements Serializable {
         }
 
         // This method is called just after a new entry has been added
+        private void addMemory(AdHocPlannedStatement value) {
+            int coreSize = value.core.getSerializedSize();
+            this.currentMemory += value.getSerializedSize() - coreSize;
+            Integer refs = coreRefCounts.get(value.core);
+            if (refs == null) {
+                coreRefCounts.put(value.core, 1);
+                this.currentMemory += coreSize;
+            }
+            else {
+                coreRefCounts.put(value.core, refs + 1);
+            }
+        }
+
+        private void releaseMemory(AdHocPlannedStatement value) {
+            int coreSize = value.core.getSerializedSize();
+            this.currentMemory -= value.getSerializedSize() - coreSize;
+            Integer refs = coreRefCounts.get(value.core);
+            assert(refs != null);
+            if (refs == 1) {
+                coreRefCounts.remove(value.core);
+                this.currentMemory -= coreSize;
+            }
+            else {
+                coreRefCounts.put(value.core, refs - 1);
+            }
+        }
+
+        long getCurrentMemory() {
+            return this.currentMemory;
+        }
+
         @Override
         public boolean removeEldestEntry(final Map.Entry<String, AdHocPlannedStatement> eldest) {
             if ((size() > maxEntries) || (this.currentMemory > this.maxMemory))  {
                 ++m_literalEvictions;
-                this.currentMemory -= eldest.getValue().getSerializedSize();
+                releaseMemory(eldest.getValue());
                 return true;
             }
             return false;
@@ -180,15 +216,19 @@ public class AdHocCompilerCache implements Serializable {
 
         @Override
         public AdHocPlannedStatement put(String key, AdHocPlannedStatement value) {
-            this.currentMemory += value.getSerializedSize();
-            return super.put(key,value);
+            addMemory(value);
+            AdHocPlannedStatement previous = super.put(key,value);
+            if (previous != null) {
+                releaseMemory(previous);
+            }
+            return previous;
         }
 
         @Override
         public AdHocPlannedStatement remove(Object key) {
             AdHocPlannedStatement value = super.remove(key);
             if (value != null) {
-                this.currentMemory -= value.getSerializedSize();
+                releaseMemory(value);
             }
             return value;
         }
@@ -196,6 +236,7 @@ public class AdHocCompilerCache implements Serializable {
         @Override
         public void clear() {
             super.clear();
+            coreRefCounts.clear();
             this.currentMemory = 0;
         }
     }
@@ -344,6 +385,17 @@ public class AdHocCompilerCache implements Serializable {
         }
     }
 
+    /**
+     * Drop every cached plan, counting them as evictions. Called when the planner's
+     * estimates changed enough that the cached plans may no longer be the cheapest.
+     */
+    public synchronized void invalidate() {
+        m_literalEvictions += m_literalCache.size();
+        m_planEvictions += m_coreCache.size();
+        m_literalCache.clear();
+        m_coreCache.clear();
+    }
+
     /**
      * Start a timer that prints cache stats to the console every 5s.
      * Used for development until we get better stats integration.
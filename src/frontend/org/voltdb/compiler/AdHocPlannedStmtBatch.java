@@ -31,6 +31,7 @@ import org.voltdb.VoltTypeException;
 import org.voltdb.catalog.Database;
 import org.voltdb.common.Constants;
 import org.voltdb.planner.CorePlan;
+import org.voltdb.plannodes.BinaryPlanReader;
 import org.voltdb.plannodes.PlanNodeTree;
 import org.voltdb.plannodes.SendPlanNode;
 
@@ -351,11 +352,10 @@ public class AdHocPlannedStmtBatch implements Cloneable {
      */
     public String explainStatement(int i, Database db, boolean getJSONString) {
         AdHocPlannedStatement plannedStatement = plannedStatements.get(i);
-        String aggplan = new String(plannedStatement.core.aggregatorFragment, Constants.UTF8ENCODING);
         PlanNodeTree pnt = new PlanNodeTree();
         try {
             String result = null;
-            JSONObject jobj = new JSONObject(aggplan);
+            JSONObject jobj = BinaryPlanReader.toJSONObject(plannedStatement.core.aggregatorFragment);
             if (getJSONString) {
                 result = jobj.toString(4);
             }
@@ -363,10 +363,9 @@ public class AdHocPlannedStmtBatch implements Cloneable {
 
             if (plannedStatement.core.collectorFragment != null) {
                 // multi-partition query plan
-                String collplan = new String(plannedStatement.core.collectorFragment, Constants.UTF8ENCODING);
                 PlanNodeTree collpnt = new PlanNodeTree();
                 // reattach plan fragments
-                JSONObject jobMP = new JSONObject(collplan);
+                JSONObject jobMP = BinaryPlanReader.toJSONObject(plannedStatement.core.collectorFragment);
                 collpnt.loadFromJSONPlan(jobMP, db);
                 assert(collpnt.getRootPlanNode() instanceof SendPlanNode);
                 pnt.getRootPlanNode().reattachFragment(collpnt.getRootPlanNode());
@@ -19,13 +19,142 @@ package org.voltdb.compiler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.VoltTable;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.ColumnRef;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Index;
+import org.voltdb.catalog.Table;
+import org.voltdb.common.Constants;
+import org.voltdb.utils.InMemoryJarfile;
 
 public class DatabaseEstimates {
 
+    private static final VoltLogger compilerLog = new VoltLogger("COMPILER");
+
+    /**
+     * Estimates derived from live table statistics never go below this many
+     * tuples. Very small or empty tables would otherwise make every access path
+     * look free and the planner would lose its preference for indexes, which is
+     * a poor bet for a plan that may be cached while the table grows.
+     */
+    public static final long MIN_LIVE_TUPLE_ESTIMATE = 1000;
+
+    /**
+     * Estimates for a table are significantly different when some count or
+     * selectivity changed by at least this factor, enough to make plans chosen
+     * with the old ones worth replanning.
+     */
+    public static final double SIGNIFICANT_CHANGE_RATIO = 2.0;
+
+    /** Name of the catalog jar entry holding the estimates collected by @CollectPlannerStatistics */
+    public static final String PLANNER_STATISTICS_FILENAME = "planner-statistics.json";
+
+    // Version of the JSON form of the estimates, to be bumped on incompatible changes
+    static final int JSON_VERSION = 1;
+
+    private enum Members {
+        VERSION,
+        TABLES,
+        NAME,
+        TUPLES,
+        INDEXES,
+        ENTRIES,
+        COLUMNS,
+        DISTINCT_VALUES,
+        COMMON_VALUE_FRACTIONS
+    }
+
+    /**
+     * The value distribution of a column: its number of distinct values and the
+     * fractions of the table's rows holding its most common values, which make a
+     * frequency histogram of the values skewed enough to matter.
+     */
+    public static class ColumnEstimates {
+        public final long distinctValues;
+        // most common first
+        public final double[] commonValueFractions;
+
+        public ColumnEstimates(long distinctValues, double[] commonValueFractions) {
+            this.distinctValues = Math.max(distinctValues, 1);
+            this.commonValueFractions = commonValueFractions;
+        }
+
+        /**
+         * The fraction of the rows an equality match returns, averaged over match
+         * values drawn from the column itself. A parameterized plan can't know its
+         * values, and a few very common ones weigh in here as often as they are
+         * likely to be looked up, rather than as 1 in distinctValues.
+         */
+        public double getEqualitySelectivity() {
+            double commonFraction = 0.0;
+            double selectivity = 0.0;
+            for (double fraction : commonValueFractions) {
+                commonFraction += fraction;
+                selectivity += fraction * fraction;
+            }
+            // the other values share the rest of the rows evenly
+            final long otherValues = distinctValues - commonValueFractions.length;
+            if (otherValues > 0 && commonFraction < 1.0) {
+                selectivity += (1.0 - commonFraction) * (1.0 - commonFraction) / otherValues;
+            }
+            return Math.min(Math.max(selectivity, 1.0 / distinctValues), 1.0);
+        }
+    }
+
     public static class TableEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // Per partition entry counts of the indexes with statistics, by index name
+        public final Map<String, Long> indexEntries = new HashMap<>();
+        // Value distributions of the columns with statistics, by column name
+        public final Map<String, ColumnEstimates> columns = new HashMap<>();
+
+        /**
+         * @return the number of entries of the index the planner should expect an index
+         * scan to start from, the estimated table size for indexes without statistics
+         */
+        public long getIndexEntries(String indexName) {
+            Long entries = indexEntries.get(indexName);
+            return entries == null ? maxTuples : entries;
+        }
+
+        /**
+         * @return the selectivity of an equality match on the column, or the given
+         * guess for a column without statistics
+         */
+        public double getEqualitySelectivity(String columnName, double defaultSelectivity) {
+            ColumnEstimates column = columns.get(columnName);
+            return column == null ? defaultSelectivity : column.getEqualitySelectivity();
+        }
+
+        private boolean differsSignificantlyFrom(TableEstimates other) {
+            if (isSignificantChange(maxTuples, other.maxTuples)) {
+                return true;
+            }
+            for (Map.Entry<String, Long> e : indexEntries.entrySet()) {
+                if (isSignificantChange(e.getValue(), other.getIndexEntries(e.getKey()))) {
+                    return true;
+                }
+            }
+            for (Map.Entry<String, ColumnEstimates> e : columns.entrySet()) {
+                ColumnEstimates otherColumn = other.columns.get(e.getKey());
+                if (otherColumn == null ||
+                    isSignificantChange(e.getValue().getEqualitySelectivity(), otherColumn.getEqualitySelectivity())) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
@@ -36,4 +165,285 @@ public class DatabaseEstimates {
 
         return tables.get(tableName);
     }
+
+    /**
+     * Replace the default cardinality guess for a table with an observed tuple count.
+     */
+    public void setTupleCountEstimate(String tableName, long tupleCount) {
+        TableEstimates tableEst = getEstimatesForTable(tableName);
+        tableEst.maxTuples = Math.max(tupleCount, MIN_LIVE_TUPLE_ESTIMATE);
+        tableEst.minTuples = tableEst.maxTuples;
+    }
+
+    /**
+     * Build estimates from the rows of a local {@code @Statistics TABLE} aggregate.
+     * Plan fragments run once per partition, so a partitioned table is estimated at
+     * its average per-partition tuple count while a replicated table is estimated at
+     * its full tuple count. Tables without statistics keep the default estimates.
+     *
+     * @param tableStats table statistics rows, as produced by the sites' TableStats sources
+     * @param db         catalog database used to tell replicated tables from partitioned ones
+     * @return the new estimates
+     */
+    public static DatabaseEstimates fromTableStats(VoltTable tableStats, Database db) {
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        if (tableStats == null) {
+            return estimates;
+        }
+        HashMap<String, long[]> countsByTable = new HashMap<>();
+        tableStats.resetRowPosition();
+        while (tableStats.advanceRow()) {
+            if ( ! "PersistentTable".equals(tableStats.getString("TABLE_TYPE"))) {
+                continue;
+            }
+            Table table = db.getTables().getIgnoreCase(tableStats.getString("TABLE_NAME"));
+            if (table == null) {
+                // Statistics can briefly lag behind a catalog update.
+                continue;
+            }
+            addCount(countsByTable, table, table.getTypeName(), tableStats.getLong("TUPLE_COUNT"));
+        }
+        tableStats.resetRowPosition();
+        for (Map.Entry<String, long[]> e : countsByTable.entrySet()) {
+            long[] counts = e.getValue();
+            estimates.setTupleCountEstimate(e.getKey(), counts[0] / counts[1]);
+        }
+        return estimates;
+    }
+
+    /**
+     * Add the index entry counts of a {@code @Statistics INDEX} aggregate, averaged
+     * per partition like the tuple counts of {@link #fromTableStats}. Partial indexes
+     * hold fewer entries than their tables, and scans of them are cheaper.
+     */
+    public void addIndexStats(VoltTable indexStats, Database db) {
+        if (indexStats == null) {
+            return;
+        }
+        HashMap<String, long[]> countsByIndex = new HashMap<>();
+        HashMap<String, String> tableByIndex = new HashMap<>();
+        indexStats.resetRowPosition();
+        while (indexStats.advanceRow()) {
+            Table table = db.getTables().getIgnoreCase(indexStats.getString("TABLE_NAME"));
+            if (table == null) {
+                continue;
+            }
+            Index index = table.getIndexes().getIgnoreCase(indexStats.getString("INDEX_NAME"));
+            if (index == null) {
+                continue;
+            }
+            tableByIndex.put(index.getTypeName(), table.getTypeName());
+            addCount(countsByIndex, table, index.getTypeName(), indexStats.getLong("ENTRY_COUNT"));
+        }
+        indexStats.resetRowPosition();
+        for (Map.Entry<String, long[]> e : countsByIndex.entrySet()) {
+            long[] counts = e.getValue();
+            getEstimatesForTable(tableByIndex.get(e.getKey())).indexEntries.put(
+                    e.getKey(), Math.max(counts[0] / counts[1], MIN_LIVE_TUPLE_ESTIMATE));
+        }
+    }
+
+    // [0] is the running total (or maximum for replicated tables), [1] the number of sites.
+    private static void addCount(Map<String, long[]> countsByName, Table table, String name, long count) {
+        long[] counts = countsByName.get(name);
+        if (counts == null) {
+            counts = new long[2];
+            countsByName.put(name, counts);
+        }
+        if (table.getIsreplicated()) {
+            counts[0] = Math.max(counts[0], count);
+            counts[1] = 1;
+        }
+        else {
+            counts[0] += count;
+            counts[1]++;
+        }
+    }
+
+    /**
+     * Add the value distributions of columns with no live statistics of their own
+     * from the given estimates, typically the ones persisted with the catalog.
+     */
+    public void addColumnEstimates(DatabaseEstimates other) {
+        for (Map.Entry<String, TableEstimates> e : other.tables.entrySet()) {
+            if (e.getValue().columns.isEmpty()) {
+                continue;
+            }
+            TableEstimates tableEst = getEstimatesForTable(e.getKey());
+            for (Map.Entry<String, ColumnEstimates> column : e.getValue().columns.entrySet()) {
+                if ( ! tableEst.columns.containsKey(column.getKey())) {
+                    tableEst.columns.put(column.getKey(), column.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the estimates for some table changed by at least
+     * {@link #SIGNIFICANT_CHANGE_RATIO}, or only one of the two has estimates for it
+     */
+    public boolean differsSignificantlyFrom(DatabaseEstimates other) {
+        for (Map.Entry<String, TableEstimates> e : tables.entrySet()) {
+            TableEstimates otherTable = other.tables.get(e.getKey());
+            if (otherTable == null) {
+                otherTable = new TableEstimates();
+            }
+            if (e.getValue().differsSignificantlyFrom(otherTable) || otherTable.differsSignificantlyFrom(e.getValue())) {
+                return true;
+            }
+        }
+        for (String tableName : other.tables.keySet()) {
+            if ( ! tables.containsKey(tableName) &&
+                 other.tables.get(tableName).differsSignificantlyFrom(new TableEstimates())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSignificantChange(double before, double after) {
+        if (before <= 0 || after <= 0) {
+            return before != after;
+        }
+        return Math.max(before, after) / Math.min(before, after) >= SIGNIFICANT_CHANGE_RATIO;
+    }
+
+    /**
+     * Record the tuple count estimates in the catalog tables, where catalog diffs
+     * pick up changes to them.
+     */
+    public void applyToCatalog(Database db) {
+        for (Table table : db.getTables()) {
+            TableEstimates tableEst = tables.get(table.getTypeName());
+            table.setEstimatedtuplecount(tableEst == null ? 0 : (int) Math.min(tableEst.maxTuples, Integer.MAX_VALUE));
+        }
+    }
+
+    public String toJSONString() {
+        JSONStringer stringer = new JSONStringer();
+        try {
+            stringer.object();
+            stringer.keySymbolValuePair(Members.VERSION.name(), JSON_VERSION);
+            stringer.key(Members.TABLES.name()).array();
+            for (Map.Entry<String, TableEstimates> e : tables.entrySet()) {
+                TableEstimates tableEst = e.getValue();
+                stringer.object();
+                stringer.keySymbolValuePair(Members.NAME.name(), e.getKey());
+                stringer.keySymbolValuePair(Members.TUPLES.name(), tableEst.maxTuples);
+                stringer.key(Members.INDEXES.name()).array();
+                for (Map.Entry<String, Long> index : tableEst.indexEntries.entrySet()) {
+                    stringer.object();
+                    stringer.keySymbolValuePair(Members.NAME.name(), index.getKey());
+                    stringer.keySymbolValuePair(Members.ENTRIES.name(), index.getValue());
+                    stringer.endObject();
+                }
+                stringer.endArray();
+                stringer.key(Members.COLUMNS.name()).array();
+                for (Map.Entry<String, ColumnEstimates> column : tableEst.columns.entrySet()) {
+                    stringer.object();
+                    stringer.keySymbolValuePair(Members.NAME.name(), column.getKey());
+                    stringer.keySymbolValuePair(Members.DISTINCT_VALUES.name(), column.getValue().distinctValues);
+                    stringer.key(Members.COMMON_VALUE_FRACTIONS.name()).array();
+                    for (double fraction : column.getValue().commonValueFractions) {
+                        stringer.value(fraction);
+                    }
+                    stringer.endArray();
+                    stringer.endObject();
+                }
+                stringer.endArray();
+                stringer.endObject();
+            }
+            stringer.endArray();
+            stringer.endObject();
+        }
+        catch (JSONException e) {
+            throw new RuntimeException("Failed to serialize planner estimates", e);
+        }
+        return stringer.toString();
+    }
+
+    /**
+     * Load estimates saved by {@link #toJSONString}, leaving out the tables, indexes
+     * and columns no longer in the catalog.
+     */
+    public static DatabaseEstimates fromJSONString(String json, Database db) throws JSONException {
+        JSONObject jobj = new JSONObject(json);
+        int version = jobj.getInt(Members.VERSION.name());
+        if (version != JSON_VERSION) {
+            throw new JSONException("Unsupported planner statistics version " + version);
+        }
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        JSONArray jtables = jobj.getJSONArray(Members.TABLES.name());
+        for (int i = 0; i < jtables.length(); i++) {
+            JSONObject jtable = jtables.getJSONObject(i);
+            Table table = db.getTables().get(jtable.getString(Members.NAME.name()));
+            if (table == null) {
+                continue;
+            }
+            estimates.setTupleCountEstimate(table.getTypeName(), jtable.getLong(Members.TUPLES.name()));
+            TableEstimates tableEst = estimates.getEstimatesForTable(table.getTypeName());
+            JSONArray jindexes = jtable.getJSONArray(Members.INDEXES.name());
+            for (int j = 0; j < jindexes.length(); j++) {
+                JSONObject jindex = jindexes.getJSONObject(j);
+                Index index = table.getIndexes().get(jindex.getString(Members.NAME.name()));
+                if (index != null) {
+                    tableEst.indexEntries.put(index.getTypeName(), jindex.getLong(Members.ENTRIES.name()));
+                }
+            }
+            JSONArray jcolumns = jtable.getJSONArray(Members.COLUMNS.name());
+            for (int j = 0; j < jcolumns.length(); j++) {
+                JSONObject jcolumn = jcolumns.getJSONObject(j);
+                Column column = table.getColumns().get(jcolumn.getString(Members.NAME.name()));
+                if (column == null) {
+                    continue;
+                }
+                JSONArray jfractions = jcolumn.getJSONArray(Members.COMMON_VALUE_FRACTIONS.name());
+                double[] fractions = new double[jfractions.length()];
+                for (int k = 0; k < fractions.length; k++) {
+                    fractions[k] = jfractions.getDouble(k);
+                }
+                tableEst.columns.put(column.getTypeName(),
+                        new ColumnEstimates(jcolumn.getLong(Members.DISTINCT_VALUES.name()), fractions));
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Load the estimates persisted in a catalog jar, or the default ones if it has none.
+     * Every node loads the same estimates from the same catalog, so the plans they
+     * make with them agree.
+     */
+    public static DatabaseEstimates fromCatalogJar(InMemoryJarfile jarfile, Database db) {
+        byte[] json = jarfile == null ? null : jarfile.get(PLANNER_STATISTICS_FILENAME);
+        if (json == null) {
+            return new DatabaseEstimates();
+        }
+        try {
+            return fromJSONString(new String(json, Constants.UTF8ENCODING), db);
+        }
+        catch (JSONException e) {
+            compilerLog.warn("Ignoring the planner statistics in the catalog: " + e.getMessage());
+            return new DatabaseEstimates();
+        }
+    }
+
+    /**
+     * @return the columns worth collecting value distributions for: the ones some
+     * index of the table is keyed on, since only index scans are costed by them
+     */
+    public static List<Column> getIndexedColumns(Table table) {
+        List<Column> columns = new ArrayList<>();
+        for (Index index : table.getIndexes()) {
+            if ( ! index.getExpressionsjson().isEmpty()) {
+                continue;
+            }
+            for (ColumnRef colRef : index.getColumns()) {
+                if ( ! columns.contains(colRef.getColumn())) {
+                    columns.add(colRef.getColumn());
+                }
+            }
+        }
+        return columns;
+    }
 }
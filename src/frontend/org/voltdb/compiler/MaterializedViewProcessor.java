@@ -52,6 +52,7 @@ import org.voltdb.planner.*;
 import org.voltdb.planner.parseinfo.StmtTableScan;
 import org.voltdb.planner.parseinfo.StmtTargetTableScan;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.BinaryPlanReader;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.PlanNodeTree;
@@ -741,8 +742,9 @@ public class MaterializedViewProcessor {
     private PlanNodeTree getPlanNodeTreeFromCatalogStatement(Database db, Statement stmt) {
         PlanNodeTree pnt = new PlanNodeTree();
         try {
-            JSONObject jsonPlan = new JSONObject(org.voltdb.utils.CompressionService.decodeBase64AndDecompress(
-                                                    stmt.getFragments().get("0").getPlannodetree()));
+            JSONObject jsonPlan = BinaryPlanReader.toJSONObject(
+                    org.voltdb.utils.CompressionService.decodeBase64AndDecompressToBytes(
+                            stmt.getFragments().get("0").getPlannodetree()));
             pnt.loadFromJSONPlan(jsonPlan, db);
         } catch (JSONException e) {
             e.printStackTrace();
@@ -29,6 +29,7 @@ import org.voltdb.PlannerStatsCollector.CacheUse;
 import org.voltdb.StatsAgent;
 import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
+import org.voltdb.VoltTable;
 import org.voltdb.catalog.Database;
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
@@ -57,6 +58,12 @@ public class PlannerTool {
     private AdHocCompilerCache m_cache;
     private long m_adHocLargeFallbackCount = 0;
     private long m_adHocLargeModeCount = 0;
+    // Table size estimates for ad hoc planning, refreshed from live table statistics
+    // when enabled. Default procedures are always planned with fixed estimates because
+    // every node plans them independently and must arrive at the same plan.
+    private volatile DatabaseEstimates m_adHocEstimates = new DatabaseEstimates();
+    // The estimates persisted in the catalog by @CollectPlannerStatistics
+    private volatile DatabaseEstimates m_catalogEstimates = new DatabaseEstimates();
 
     private final HSQLInterface m_hsql;
 
@@ -120,6 +127,43 @@ public class PlannerTool {
         return this;
     }
 
+    /**
+     * Replace the estimates used to cost ad hoc plans. Plans already in the ad hoc
+     * cache are kept unless the new estimates differ significantly from the old ones,
+     * in which case they are dropped to be planned again with the new estimates.
+     */
+    public void setAdHocEstimates(DatabaseEstimates estimates) {
+        assert(estimates != null);
+        DatabaseEstimates previous = m_adHocEstimates;
+        m_adHocEstimates = estimates;
+        if (estimates.differsSignificantlyFrom(previous)) {
+            compileLog.info("Planner estimates changed significantly, invalidating the ad hoc plan cache");
+            m_cache.invalidate();
+        }
+    }
+
+    /**
+     * Use the estimates persisted in the catalog, which the live statistics
+     * refreshed by {@link #refreshAdHocEstimates} are then completed with.
+     */
+    public void setCatalogEstimates(DatabaseEstimates estimates) {
+        assert(estimates != null);
+        m_catalogEstimates = estimates;
+        setAdHocEstimates(estimates);
+    }
+
+    /**
+     * Estimate from the live table and index statistics of this node, keeping the
+     * value distributions persisted in the catalog, which are too expensive to
+     * collect periodically.
+     */
+    public void refreshAdHocEstimates(VoltTable tableStats, VoltTable indexStats) {
+        DatabaseEstimates estimates = DatabaseEstimates.fromTableStats(tableStats, m_database);
+        estimates.addIndexStats(indexStats, m_database);
+        estimates.addColumnEstimates(m_catalogEstimates);
+        setAdHocEstimates(estimates);
+    }
+
     public HSQLInterface getHSQLInterface() {
         return m_hsql;
     }
@@ -238,7 +282,7 @@ public class PlannerTool {
             String parsedToken = null;
 
             TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            DatabaseEstimates estimates = m_adHocEstimates;
             // This try-with-resources block acquires a global lock on all planning
             // This is required until we figure out how to do parallel planning.
             try (QueryPlanner planner = new QueryPlanner(
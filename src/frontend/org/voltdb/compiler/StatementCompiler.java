@@ -59,8 +59,6 @@ import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.Encoder;
 
-import com.google_voltpatches.common.base.Charsets;
-
 /**
  * Compiles individual SQL statements and updates the given catalog.
  * <br/>Invokes the Optimizer to generate plans.
@@ -69,6 +67,20 @@ import com.google_voltpatches.common.base.Charsets;
 public abstract class StatementCompiler {
 
     public static final int DEFAULT_MAX_JOIN_TABLES = 5;
+    // Joins of more tables than this are not planned for every join order;
+    // a single join order is picked and planned instead.
+    public static final int MAX_JOIN_TABLES =
+            Integer.getInteger("MAX_JOIN_TABLES", DEFAULT_MAX_JOIN_TABLES);
+    public static final int DEFAULT_MAX_DP_JOIN_TABLES = 10;
+    // Inner joins of up to this many tables get the join order with the cheapest
+    // sub-plans, found by dynamic programming over the sets of joined tables.
+    // Its work doubles with each table of a star join, which at 10 tables takes
+    // about as long to plan as every join order of 5 tables.
+    // Larger joins and outer joins get a greedily chosen order; set this to 0
+    // to always use the greedy order. The search keys table sets by bit masks,
+    // so it is capped at 62 tables.
+    public static final int MAX_DP_JOIN_TABLES =
+            Math.min(Integer.getInteger("MAX_DP_JOIN_TABLES", DEFAULT_MAX_DP_JOIN_TABLES), 62);
     private static VoltLogger m_logger = new VoltLogger("COMPILER");
 
     /**
@@ -286,40 +298,20 @@ public abstract class StatementCompiler {
                 assert(function != null);
                 addUDFDependences(function, catalogStmt);
             }
-            // compute a hash of the plan
-            MessageDigest md = null;
-            try {
-                md = MessageDigest.getInstance("SHA-1");
-            }
-            catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-                assert(false);
-                System.exit(-1); // should never happen with healthy jvm
-            }
-
             // Now update our catalog information
             PlanFragment planFragment = catalogStmt.getFragments().add("0");
             planFragment.setHasdependencies(plan.subPlanGraph != null);
             // mark a fragment as non-transactional if it never touches a persistent table
             planFragment.setNontransactional(!fragmentReferencesPersistentTable(plan.rootPlanGraph));
             planFragment.setMultipartition(plan.subPlanGraph != null);
-            byte[] planBytes = writePlanBytes(compiler, planFragment, plan.rootPlanGraph);
-            md.update(planBytes, 0, planBytes.length);
-            // compute the 40 bytes of hex from the 20 byte sha1 hash of the plans
-            md.reset();
-            md.update(planBytes);
-            planFragment.setPlanhash(Encoder.hexEncode(md.digest()));
+            compiler.encodePlanFragment(planFragment, plan.rootPlanGraph);
 
             if (plan.subPlanGraph != null) {
                 planFragment = catalogStmt.getFragments().add("1");
                 planFragment.setHasdependencies(false);
                 planFragment.setNontransactional(false);
                 planFragment.setMultipartition(true);
-                byte[] subBytes = writePlanBytes(compiler, planFragment, plan.subPlanGraph);
-                // compute the 40 bytes of hex from the 20 byte sha1 hash of the plans
-                md.reset();
-                md.update(subBytes);
-                planFragment.setPlanhash(Encoder.hexEncode(md.digest()));
+                compiler.encodePlanFragment(planFragment, plan.subPlanGraph);
             }
 
             // Planner should have rejected with an exception any statement with an unrecognized type.
@@ -458,20 +450,51 @@ public abstract class StatementCompiler {
     }
 
     /**
-     * Update the plan fragment and return the bytes of the plan
+     * The serialized, compressed and hashed form of one plan graph,
+     * ready to be stored in a catalog PlanFragment.
      */
-    static byte[] writePlanBytes(VoltCompiler compiler, PlanFragment fragment, AbstractPlanNode planGraph)
-    throws VoltCompilerException {
-        String json = null;
-        // get the plan bytes
+    static final class EncodedPlan {
+        final byte[] m_plan;
+        final String m_planNodeTree;
+        final String m_planHash;
+
+        EncodedPlan(byte[] plan, String planNodeTree, String planHash) {
+            m_plan = plan;
+            m_planNodeTree = planNodeTree;
+            m_planHash = planHash;
+        }
+    }
+
+    /**
+     * Serialize a plan graph to the binary plan format, then compress it and compute its hash.
+     * This only reads the plan graph, so plans of different statements
+     * may be encoded concurrently.
+     */
+    static EncodedPlan encodePlan(AbstractPlanNode planGraph) {
         PlanNodeList node_list = new PlanNodeList(planGraph, false);
-        json = node_list.toJSONString();
-        compiler.captureDiagnosticJsonFragment(json);
-        // Place serialized version of PlanNodeTree into a PlanFragment
-        byte[] jsonBytes = json.getBytes(Charsets.UTF_8);
-        String bin64String = CompressionService.compressAndBase64Encode(jsonBytes);
-        fragment.setPlannodetree(bin64String);
-        return jsonBytes;
+        byte[] planBytes = node_list.toBinaryPlan();
+        String bin64String = CompressionService.compressAndBase64Encode(planBytes);
+        // compute the 40 bytes of hex from the 20 byte sha1 hash of the plan
+        MessageDigest md = null;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            assert(false);
+            System.exit(-1); // should never happen with healthy jvm
+        }
+        md.update(planBytes);
+        return new EncodedPlan(planBytes, bin64String, Encoder.hexEncode(md.digest()));
+    }
+
+    /**
+     * Place an encoded plan into its PlanFragment.
+     */
+    static void applyEncodedPlan(VoltCompiler compiler, PlanFragment fragment, EncodedPlan encoded) {
+        compiler.captureDiagnosticPlanFragment(encoded.m_plan);
+        fragment.setPlannodetree(encoded.m_planNodeTree);
+        fragment.setPlanhash(encoded.m_planHash);
     }
 
     /**
@@ -637,12 +660,11 @@ public abstract class StatementCompiler {
     static byte[] writePlanBytes(PlanFragment fragment, AbstractPlanNode planGraph) {
         // get the plan bytes
         PlanNodeList node_list = new PlanNodeList(planGraph, false);
-        String json = node_list.toJSONString();
+        byte[] planBytes = node_list.toBinaryPlan();
         // Place serialized version of PlanNodeTree into a PlanFragment
-        byte[] jsonBytes = json.getBytes(Charsets.UTF_8);
-        String bin64String = CompressionService.compressAndBase64Encode(jsonBytes);
+        String bin64String = CompressionService.compressAndBase64Encode(planBytes);
         fragment.setPlannodetree(bin64String);
-        return jsonBytes;
+        return planBytes;
     }
 
     private static String genSelectSqlForNibbleDelete(Table table, Column column,
@@ -30,6 +30,7 @@ import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -37,6 +38,10 @@ import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -48,6 +53,7 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.VoltXMLElement;
+import org.json_voltpatches.JSONException;
 import org.voltcore.TransactionIdManager;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.CatalogContext;
@@ -65,6 +71,7 @@ import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Deployment;
 import org.voltdb.catalog.FilteredCatalogDiffEngine;
+import org.voltdb.catalog.PlanFragment;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
@@ -76,6 +83,8 @@ import org.voltdb.export.ExportDataProcessor;
 import org.voltdb.parser.SQLParser;
 import org.voltdb.planner.ParameterizationInfo;
 import org.voltdb.planner.StatementPartitioning;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.BinaryPlanReader;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.utils.CatalogSchemaTools;
 import org.voltdb.utils.CatalogUtil;
@@ -250,6 +259,8 @@ public class VoltCompiler {
     Catalog m_catalog = null;
 
     DatabaseEstimates m_estimates = new DatabaseEstimates();
+    // Set when new planner statistics make every plan of the previous catalog suspect
+    private boolean m_replanAllStatements = false;
 
     private List<String> m_capturedDiagnosticDetail = null;
 
@@ -269,6 +280,39 @@ public class VoltCompiler {
     // Whether or not to use SQLCommand as a pre-processor for DDL (in voltdb init --classes). Default is false.
     private boolean m_filterWithSQLCommand = false;
 
+    // Statement planning is serialized by the planner, but the json serialization,
+    // compression and hashing of the finished plans is not. When compiling procedures,
+    // plans are queued and encoded on up to this many threads of one shared pool, then
+    // placed in the catalog in the order they were planned, so the catalog is the same
+    // for any thread count.
+    public static final int DEFAULT_PLAN_ENCODER_THREADS =
+            Integer.getInteger("PLAN_ENCODER_THREADS", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Encode queued plans at least this often to bound the plan graphs held in memory.
+    private static final int MAX_PENDING_PLAN_FRAGMENTS = 1024;
+    private static ForkJoinPool s_planEncoderPool = null;
+
+    private int m_planEncoderThreads = DEFAULT_PLAN_ENCODER_THREADS;
+    // plans waiting to be encoded, in planning order, or null to encode each plan immediately
+    private List<PendingPlanFragment> m_pendingPlanFragments = null;
+
+    // wall clock time spent in each phase of the most recent compile, in the order the phases ran
+    private final Map<String, Long> m_phaseNanos = new LinkedHashMap<>();
+    static final String PHASE_SCHEMA = "schema";
+    static final String PHASE_PLANNING = "statement planning";
+    static final String PHASE_PLAN_ENCODING = "plan encoding";
+    static final String PHASE_REPORT = "catalog report";
+    static final String PHASE_SERIALIZATION = "catalog serialization";
+
+    private static class PendingPlanFragment {
+        final PlanFragment m_fragment;
+        final AbstractPlanNode m_planGraph;
+
+        PendingPlanFragment(PlanFragment fragment, AbstractPlanNode planGraph) {
+            m_fragment = fragment;
+            m_planGraph = planGraph;
+        }
+    }
+
     /**
      * Represents output from a compile. This works similarly to Log4j; there
      * are different levels of feedback including info, warning, error, and
@@ -821,6 +865,7 @@ public class VoltCompiler {
         assert(database != null);
 
         // Build DDL from Catalog Data
+        long phaseStart = System.nanoTime();
         String ddlWithBatchSupport = CatalogSchemaTools.toSchema(catalog);
         m_canonicalDDL = CatalogSchemaTools.toSchemaWithoutInlineBatches(ddlWithBatchSupport);
 
@@ -832,6 +877,7 @@ public class VoltCompiler {
             e.printStackTrace();
             return null;
         }
+        addPhaseTime(PHASE_REPORT, phaseStart);
 
         jarOutput.put(AUTOGEN_DDL_FILE_NAME, m_canonicalDDL.getBytes(Constants.UTF8ENCODING));
         if (DEBUG_VERIFY_CATALOG) {
@@ -839,9 +885,12 @@ public class VoltCompiler {
         }
 
         // WRITE CATALOG TO JAR HERE
+        phaseStart = System.nanoTime();
         final String catalogCommands = catalog.serialize();
 
         byte[] catalogBytes = catalogCommands.getBytes(Constants.UTF8ENCODING);
+        addPhaseTime(PHASE_SERIALIZATION, phaseStart);
+        logPhaseTimes();
 
         try {
             // Don't update buildinfo if it's already present, e.g. while upgrading.
@@ -1098,6 +1147,10 @@ public class VoltCompiler {
         // Ugly, ugly hack.
         // If the procedure compilations do not succeed, and we have
         // dropped some UDFs, then we need to restore them.
+        m_phaseNanos.clear();
+        m_stmtCacheHits = 0;
+        m_stmtCacheMisses = 0;
+        long phaseStart = System.nanoTime();
         try {
             //
             // Save the old user defined functions, if there are any,
@@ -1141,7 +1194,8 @@ public class VoltCompiler {
             ddlcompiler.compileToCatalog(db, m_isXDCR);
 
             // add database estimates info
-            addDatabaseEstimatesInfo(m_estimates, db);
+            m_estimates = DatabaseEstimates.fromCatalogJar(jarOutput, db);
+            m_estimates.applyToCatalog(db);
 
             // Process DDL exported tables
             NavigableMap<String, NavigableSet<String>> exportTables = voltDdlTracker.getExportedTables();
@@ -1168,7 +1222,9 @@ public class VoltCompiler {
                 if (previousDBIfAny != null) {
                     previousProcsIfAny = previousDBIfAny.getProcedures();
                 }
+                addPhaseTime(PHASE_SCHEMA, phaseStart);
                 compileProcedures(db, hsql, allProcs, classDependencies, whichProcs, previousProcsIfAny, jarOutput);
+                phaseStart = System.nanoTime();
             }
 
             // add extra classes from the DDL
@@ -1176,6 +1232,7 @@ public class VoltCompiler {
             addExtraClasses(jarOutput);
 
             compileRowLimitDeleteStmts(db, hsql, ddlcompiler.getLimitDeleteStmtToXmlEntries());
+            addPhaseTime(PHASE_SCHEMA, phaseStart);
         }
         catch (Throwable ex) {
             ddlcompiler.restoreSavedFunctions();
@@ -1286,25 +1343,35 @@ public class VoltCompiler {
         procedures.addAll(allProcs);
 
         // Actually parse and handle all the Procedures
-        for (final ProcedureDescriptor procedureDescriptor : procedures) {
-            final String procedureName = procedureDescriptor.m_className;
-            if (procedureDescriptor.m_stmtLiterals == null) {
-                m_currentFilename = procedureName.substring(procedureName.lastIndexOf('.') + 1);
-                m_currentFilename += ".class";
-            }
-            else if (whichProcs == DdlProceduresToLoad.ONLY_SINGLE_STATEMENT_PROCEDURES) {
-                // In planner test mode, especially within the plannerTester framework,
-                // ignore any java procedures referenced in ddl CREATE PROCEDURE statements to allow
-                // re-use of actual application ddl files without introducing class dependencies.
-                // This potentially allows automatic plannerTester regression test support
-                // for all the single-statement procedures of an unchanged application ddl file.
-                continue;
-            }
-            else {
-                m_currentFilename = procedureName;
+        final long planningStart = System.nanoTime();
+        final long encodingBefore = getPhaseNanos(PHASE_PLAN_ENCODING);
+        beginPlanEncoding();
+        try {
+            for (final ProcedureDescriptor procedureDescriptor : procedures) {
+                final String procedureName = procedureDescriptor.m_className;
+                if (procedureDescriptor.m_stmtLiterals == null) {
+                    m_currentFilename = procedureName.substring(procedureName.lastIndexOf('.') + 1);
+                    m_currentFilename += ".class";
+                }
+                else if (whichProcs == DdlProceduresToLoad.ONLY_SINGLE_STATEMENT_PROCEDURES) {
+                    // In planner test mode, especially within the plannerTester framework,
+                    // ignore any java procedures referenced in ddl CREATE PROCEDURE statements to allow
+                    // re-use of actual application ddl files without introducing class dependencies.
+                    // This potentially allows automatic plannerTester regression test support
+                    // for all the single-statement procedures of an unchanged application ddl file.
+                    continue;
+                }
+                else {
+                    m_currentFilename = procedureName;
+                }
+                ProcedureCompiler.compile(this, hsql, m_estimates, db, procedureDescriptor, jarOutput);
             }
-            ProcedureCompiler.compile(this, hsql, m_estimates, db, procedureDescriptor, jarOutput);
+            encodePendingPlanFragments();
+        }
+        finally {
+            m_pendingPlanFragments = null;
         }
+        addPlanningTime(planningStart, encodingBefore);
         // done handling files
         m_currentFilename = NO_FILENAME;
 
@@ -1333,22 +1400,139 @@ public class VoltCompiler {
     }
 
     /** Capture plan content in terse json format. */
-    public void captureDiagnosticJsonFragment(String json) {
+    public void captureDiagnosticPlanFragment(byte[] plan) {
         if (m_capturedDiagnosticDetail == null) {
             return;
         }
-        m_capturedDiagnosticDetail.add(json);
+        try {
+            m_capturedDiagnosticDetail.add(BinaryPlanReader.toJSONString(plan));
+        }
+        catch (JSONException e) {
+            m_capturedDiagnosticDetail.add(e.getMessage());
+        }
+    }
+
+    /**
+     * Set the number of threads used to encode plans while compiling procedures.
+     * 1 encodes each plan on the compiling thread as soon as it is planned. More
+     * threads than PLAN_ENCODER_THREADS are capped to the size of the shared pool.
+     */
+    public void setPlanEncoderThreads(int threads) {
+        m_planEncoderThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Serialize, compress and hash a finished plan into its PlanFragment,
+     * or queue it to be encoded with the rest of the current batch of procedures.
+     */
+    void encodePlanFragment(PlanFragment fragment, AbstractPlanNode planGraph) throws VoltCompilerException {
+        if (m_pendingPlanFragments == null) {
+            long start = System.nanoTime();
+            StatementCompiler.applyEncodedPlan(this, fragment, StatementCompiler.encodePlan(planGraph));
+            addPhaseTime(PHASE_PLAN_ENCODING, start);
+            return;
+        }
+        m_pendingPlanFragments.add(new PendingPlanFragment(fragment, planGraph));
+        if (m_pendingPlanFragments.size() >= MAX_PENDING_PLAN_FRAGMENTS) {
+            encodePendingPlanFragments();
+        }
     }
 
-    static void addDatabaseEstimatesInfo(final DatabaseEstimates estimates, final Database db) {
-        // Not implemented yet. Don't panic.
+    private void beginPlanEncoding() {
+        // Diagnostic capture records each plan's json right after its explain text,
+        // which only the immediate encoding preserves.
+        if (m_planEncoderThreads > 1 && m_capturedDiagnosticDetail == null) {
+            m_pendingPlanFragments = new ArrayList<>();
+        }
+    }
 
-        /*for (Table table : db.getTables()) {
-            DatabaseEstimates.TableEstimates tableEst = new DatabaseEstimates.TableEstimates();
-            tableEst.maxTuples = 1000000;
-            tableEst.minTuples = 100000;
-            estimates.tables.put(table, tableEst);
-        }*/
+    // Fork-join workers are daemon threads that retire when idle, so the pool is never shut down.
+    private static synchronized ForkJoinPool getPlanEncoderPool() {
+        if (s_planEncoderPool == null) {
+            s_planEncoderPool = new ForkJoinPool(Math.max(2, DEFAULT_PLAN_ENCODER_THREADS));
+        }
+        return s_planEncoderPool;
+    }
+
+    /**
+     * Encode all queued plans in parallel, then place them into their fragments
+     * in the order they were queued.
+     */
+    private void encodePendingPlanFragments() throws VoltCompilerException {
+        if (m_pendingPlanFragments == null || m_pendingPlanFragments.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        final List<PendingPlanFragment> pending = m_pendingPlanFragments;
+        final StatementCompiler.EncodedPlan[] encoded = new StatementCompiler.EncodedPlan[pending.size()];
+        // Each task encodes a contiguous slice of the queue
+        final ForkJoinPool pool = getPlanEncoderPool();
+        final int tasks = Math.min(Math.min(m_planEncoderThreads, pool.getParallelism()), pending.size());
+        List<Callable<Void>> slices = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; ++t) {
+            final int from = pending.size() * t / tasks;
+            final int to = pending.size() * (t + 1) / tasks;
+            slices.add(() -> {
+                for (int i = from; i < to; ++i) {
+                    encoded[i] = StatementCompiler.encodePlan(pending.get(i).m_planGraph);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> slice : pool.invokeAll(slices)) {
+                slice.get();
+            }
+        }
+        catch (InterruptedException e) {
+            throw new VoltCompilerException("Interrupted while encoding statement plans.");
+        }
+        catch (ExecutionException e) {
+            throw new VoltCompilerException("Failed to encode statement plans: " + e.getCause());
+        }
+        for (int i = 0; i < pending.size(); ++i) {
+            StatementCompiler.applyEncodedPlan(this, pending.get(i).m_fragment, encoded[i]);
+        }
+        pending.clear();
+        addPhaseTime(PHASE_PLAN_ENCODING, start);
+    }
+
+    private void addPhaseTime(String phase, long startNanos) {
+        m_phaseNanos.merge(phase, System.nanoTime() - startNanos, Long::sum);
+    }
+
+    private long getPhaseNanos(String phase) {
+        Long nanos = m_phaseNanos.get(phase);
+        return nanos == null ? 0 : nanos;
+    }
+
+    /** Planning time is the time spent compiling procedures, less any plan encoding done meanwhile. */
+    private void addPlanningTime(long planningStart, long encodingNanosBefore) {
+        addPhaseTime(PHASE_PLANNING, planningStart + (getPhaseNanos(PHASE_PLAN_ENCODING) - encodingNanosBefore));
+    }
+
+    /**
+     * Get the wall clock time spent in each phase of the most recent compile,
+     * in milliseconds, in the order the phases first ran.
+     */
+    public Map<String, Long> getPhaseTimes() {
+        Map<String, Long> times = new LinkedHashMap<>();
+        for (Entry<String, Long> e : m_phaseNanos.entrySet()) {
+            times.put(e.getKey(), e.getValue() / 1000000);
+        }
+        return times;
+    }
+
+    private void logPhaseTimes() {
+        StringBuilder sb = new StringBuilder("Catalog compilation phase times:");
+        for (Entry<String, Long> e : getPhaseTimes().entrySet()) {
+            sb.append(" ").append(e.getKey()).append(" ").append(e.getValue()).append("ms;");
+        }
+        if (m_stmtCacheHits > 0) {
+            sb.append(" reused the plans of ").append(m_stmtCacheHits).append(" unchanged statements and planned ")
+              .append(m_stmtCacheMisses).append(".");
+        }
+        compilerLog.info(sb.toString());
     }
 
     void addExportTableToConnector(final String targetName, final String tableName, final Database catdb)
@@ -1947,6 +2131,24 @@ public class VoltCompiler {
         }
     }
 
+    /**
+     * Recompile the provided jarfile after new planner statistics were put in it,
+     * planning every statement again rather than reusing the plans of the old catalog.
+     *
+     * @throws VoltCompilerException
+     */
+    public void compileInMemoryJarfileWithNewStatistics(InMemoryJarfile jarfile, Catalog oldCatalog)
+            throws IOException, VoltCompilerException
+    {
+        m_replanAllStatements = true;
+        try {
+            compileInMemoryJarfileWithNewDDL(jarfile, "", oldCatalog);
+        }
+        finally {
+            m_replanAllStatements = false;
+        }
+    }
+
     /**
      * Compile the provided jarfile.  Basically, treat the jarfile as a staging area
      * for the artifacts to be included in the compile, and then compile it in place.
@@ -1964,6 +2166,9 @@ public class VoltCompiler {
         m_warnings.clear();
         m_infos.clear();
         m_errors.clear();
+        m_phaseNanos.clear();
+        m_stmtCacheHits = 0;
+        m_stmtCacheMisses = 0;
 
         // do all the work to get the catalog
         Catalog catalog = currentCatalog.deepCopy();
@@ -1973,6 +2178,7 @@ public class VoltCompiler {
         // Get DDL from InMemoryJar
         byte[] ddlBytes = jarOutput.get(AUTOGEN_DDL_FILE_NAME);
         String canonicalDDL = new String(ddlBytes, Constants.UTF8ENCODING);
+        m_estimates = DatabaseEstimates.fromCatalogJar(jarOutput, db);
 
         try {
             CatalogMap<Procedure> procedures = db.getProcedures();
@@ -1989,71 +2195,81 @@ public class VoltCompiler {
             // classes can be found and copied to the new file that gets written.
             ClassLoader classLoader = jarOutput.getLoader();
 
-            for (Procedure procedure : procedures) {
-                if (! procedure.getHasjava()) {
-                    // Skip the DDL statement stored procedures as @UpdateClasses does not affect them
-                    continue;
-                }
-                // default procedure is also a single statement procedure
-                assert(procedure.getDefaultproc() == false);
+            final long planningStart = System.nanoTime();
+            final long encodingBefore = getPhaseNanos(PHASE_PLAN_ENCODING);
+            beginPlanEncoding();
+            try {
+                for (Procedure procedure : procedures) {
+                    if (! procedure.getHasjava()) {
+                        // Skip the DDL statement stored procedures as @UpdateClasses does not affect them
+                        continue;
+                    }
+                    // default procedure is also a single statement procedure
+                    assert(procedure.getDefaultproc() == false);
 
-                if (procedure.getSystemproc()) {
-                    // UpdateClasses does not need to update system procedures
-                    continue;
-                }
+                    if (procedure.getSystemproc()) {
+                        // UpdateClasses does not need to update system procedures
+                        continue;
+                    }
 
-                // clear up the previous procedure contents before recompiling java user procedures
-                procedure.getStatements().clear();
-                procedure.getParameters().clear();
+                    // clear up the previous procedure contents before recompiling java user procedures
+                    procedure.getStatements().clear();
+                    procedure.getParameters().clear();
 
-                final String className = procedure.getClassname();
+                    final String className = procedure.getClassname();
 
-                // Load the class given the class name
-                Class<?> procClass = classLoader.loadClass(className);
-                // get the short name of the class (no package)
-                String shortName = ProcedureCompiler.deriveShortProcedureName(className);
+                    // Load the class given the class name
+                    Class<?> procClass = classLoader.loadClass(className);
+                    // get the short name of the class (no package)
+                    String shortName = ProcedureCompiler.deriveShortProcedureName(className);
 
-                ProcedureAnnotation pa = (ProcedureAnnotation) procedure.getAnnotation();
-                if (pa == null) {
-                    pa = new ProcedureAnnotation();
-                    procedure.setAnnotation(pa);
-                }
+                    ProcedureAnnotation pa = (ProcedureAnnotation) procedure.getAnnotation();
+                    if (pa == null) {
+                        pa = new ProcedureAnnotation();
+                        procedure.setAnnotation(pa);
+                    }
 
-                // if the procedure is non-transactional, then take this special path here
-                if (VoltNonTransactionalProcedure.class.isAssignableFrom(procClass)) {
-                    ProcedureCompiler.compileNTProcedure(this, procClass, procedure, jarOutput);
-                    continue;
-                }
+                    // if the procedure is non-transactional, then take this special path here
+                    if (VoltNonTransactionalProcedure.class.isAssignableFrom(procClass)) {
+                        ProcedureCompiler.compileNTProcedure(this, procClass, procedure, jarOutput);
+                        continue;
+                    }
 
-                // if still here, that means the procedure is transactional
-                procedure.setTransactional(true);
+                    // if still here, that means the procedure is transactional
+                    procedure.setTransactional(true);
 
-                // iterate through the fields and get valid sql statements
-                Map<String, SQLStmt> stmtMap = ProcedureCompiler.getSQLStmtMap(this, procClass);
-                Map<String, Object> fields = ProcedureCompiler.getFiledsMap(this, stmtMap, procClass, shortName);
-                Method procMethod = (Method) fields.get("@run");
-                assert(procMethod != null);
+                    // iterate through the fields and get valid sql statements
+                    Map<String, SQLStmt> stmtMap = ProcedureCompiler.getSQLStmtMap(this, procClass);
+                    Map<String, Object> fields = ProcedureCompiler.getFiledsMap(this, stmtMap, procClass, shortName);
+                    Method procMethod = (Method) fields.get("@run");
+                    assert(procMethod != null);
 
-                ProcedureCompiler.compileSQLStmtUpdatingProcedureInfomation(this, hsql, m_estimates, db, procedure,
-                        procedure.getSinglepartition(), fields);
+                    ProcedureCompiler.compileSQLStmtUpdatingProcedureInfomation(this, hsql, m_estimates, db, procedure,
+                            procedure.getSinglepartition(), fields);
 
-                // set procedure parameter types
-                Class<?>[] paramTypes = ProcedureCompiler.setParameterTypes(this, procedure, shortName, procMethod);
+                    // set procedure parameter types
+                    Class<?>[] paramTypes = ProcedureCompiler.setParameterTypes(this, procedure, shortName, procMethod);
 
-                ProcedurePartitionData partitionData = ProcedurePartitionData.extractPartitionData(procedure);
-                ProcedureCompiler.addPartitioningInfo(this, procedure, db, paramTypes, partitionData);
+                    ProcedurePartitionData partitionData = ProcedurePartitionData.extractPartitionData(procedure);
+                    ProcedureCompiler.addPartitioningInfo(this, procedure, db, paramTypes, partitionData);
 
-                // put the compiled code for this procedure into the jarFile
-                // need to find the outermost ancestor class for the procedure in the event
-                // that it's actually an inner (or inner inner...) class.
-                // addClassToJar recursively adds all the children, which should include this
-                // class
-                Class<?> ancestor = procClass;
-                while (ancestor.getEnclosingClass() != null) {
-                    ancestor = ancestor.getEnclosingClass();
+                    // put the compiled code for this procedure into the jarFile
+                    // need to find the outermost ancestor class for the procedure in the event
+                    // that it's actually an inner (or inner inner...) class.
+                    // addClassToJar recursively adds all the children, which should include this
+                    // class
+                    Class<?> ancestor = procClass;
+                    while (ancestor.getEnclosingClass() != null) {
+                        ancestor = ancestor.getEnclosingClass();
+                    }
+                    addClassToJar(jarOutput, ancestor);
                 }
-                addClassToJar(jarOutput, ancestor);
+                encodePendingPlanFragments();
             }
+            finally {
+                m_pendingPlanFragments = null;
+            }
+            addPlanningTime(planningStart, encodingBefore);
 
             ////////////////////////////////////////////
             // allow gc to reclaim any cache memory here
@@ -2064,12 +2280,17 @@ public class VoltCompiler {
         }
 
         // generate the catalog report and write it to disk
+        long phaseStart = System.nanoTime();
         generateCatalogReport(catalog, canonicalDDL, standaloneCompiler, m_warnings, jarOutput);
+        addPhaseTime(PHASE_REPORT, phaseStart);
 
         // WRITE CATALOG TO JAR HERE
+        phaseStart = System.nanoTime();
         final String catalogCommands = catalog.serialize();
 
         byte[] catalogBytes = catalogCommands.getBytes(Constants.UTF8ENCODING);
+        addPhaseTime(PHASE_SERIALIZATION, phaseStart);
+        logPhaseTimes();
 
         // Don't update buildinfo if it's already present, e.g. while upgrading.
         // Note when upgrading the version has already been updated by the caller.
@@ -2284,16 +2505,26 @@ public class VoltCompiler {
         m_previousCatalogStmts.put(key, stmt);
     }
 
-    // track hits and misses for debugging
-    static long m_stmtCacheHits = 0;
-    static long m_stmtCacheMisses = 0;
+    // track hits and misses of the most recent compile, for reporting and debugging
+    private long m_stmtCacheHits = 0;
+    private long m_stmtCacheMisses = 0;
+
+    /** Number of statements in the most recent compile whose plans were reused from the previous catalog */
+    public long getReusedStatementCount() {
+        return m_stmtCacheHits;
+    }
+
+    /** Number of cacheable statements in the most recent compile that had to be planned */
+    public long getPlannedStatementCount() {
+        return m_stmtCacheMisses;
+    }
 
     /** Look for a match from the previous catalog that matches the key + sql */
     Statement getCachedStatement(String keyPrefix, String sql) {
         String key = keyPrefix + sql;
 
         Statement candidate = m_previousCatalogStmts.get(key);
-        if (candidate == null) {
+        if (candidate == null || m_replanAllStatements) {
             ++m_stmtCacheMisses;
             return null;
         }
@@ -25,7 +25,9 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 
 import org.apache.commons.lang3.StringUtils;
@@ -451,8 +453,8 @@ public class ReportMaker {
         sb.append("<div class='well well-small'><h4>Explain Plan:</h4>\n");
 
         String plan = escapeHtml4(Encoder.hexDecodeToString(statement.getExplainplan()));
-        plan = plan.replace("\n", "<br/>");
-        plan = plan.replace(" ", "&nbsp;");
+        plan = StringUtils.replace(plan, "\n", "<br/>");
+        plan = StringUtils.replace(plan, " ", "&nbsp;");
 
         for (String tableName : statement.getTablesread().split(",")) {
             if (tableName.length() == 0) {
@@ -472,7 +474,7 @@ public class ReportMaker {
 
             String uname = tableName.toUpperCase();
             String link = "\"<a href='#s-" + tableName + "'>" + uname + "</a>\"";
-            plan = plan.replace("&quot;" + uname + "&quot;", link);
+            plan = StringUtils.replace(plan, "&quot;" + uname + "&quot;", link);
         }
         for (String tableName : statement.getTablesupdated().split(",")) {
             if (tableName.length() == 0) {
@@ -492,7 +494,7 @@ public class ReportMaker {
 
             String uname = tableName.toUpperCase();
             String link = "\"<a href='#s-" + tableName + "'>" + uname + "</a>\"";
-            plan = plan.replace("&quot;" + uname + "&quot;", link);
+            plan = StringUtils.replace(plan, "&quot;" + uname + "&quot;", link);
         }
         for (String tableDotIndexPair : statement.getIndexesused().split(",")) {
             if (tableDotIndexPair.length() == 0) {
@@ -520,7 +522,7 @@ public class ReportMaker {
 
             String uindexName = indexName.toUpperCase();
             String link = "\"<a href='#s-" + tableName + "-" + indexName +"'>" + uindexName + "</a>\"";
-            plan = plan.replace("&quot;" + uindexName + "&quot;", link);
+            plan = StringUtils.replace(plan, "&quot;" + uindexName + "&quot;", link);
         }
 
         sb.append("<tt>").append(plan).append("</tt>");
@@ -1061,54 +1063,75 @@ public class ReportMaker {
 
 
         URL url = Resources.getResource(ReportMaker.class, "template.html");
-        String contents = Resources.toString(url, Charsets.UTF_8);
+        String template = Resources.toString(url, Charsets.UTF_8);
 
         Cluster cluster = catalog.getClusters().get("cluster");
         assert(cluster != null);
         Database db = cluster.getDatabases().get("database");
         assert(db != null);
 
-        String statsData = getStatsHTML(db, minHeap, warnings);
-        contents = contents.replace("##STATS##", statsData);
+        Map<String, String> sections = new HashMap<>();
+        sections.put("STATS", getStatsHTML(db, minHeap, warnings));
 
         // generateProceduresTable needs to happen before generateSchemaTable
         // because some metadata used in the later is generated in the former
-        String procData = generateProceduresTable(db.getTables(), db.getProcedures());
-        contents = contents.replace("##PROCS##", procData);
-
-        String schemaData = generateSchemaTable(db);
-        contents = contents.replace("##SCHEMA##", schemaData);
+        sections.put("PROCS", generateProceduresTable(db.getTables(), db.getProcedures()));
+        sections.put("SCHEMA", generateSchemaTable(db));
 
         DatabaseSizes sizes = CatalogSizing.getCatalogSizes(db, DrRoleType.XDCR.value().equals(cluster.getDrrole()));
-
-        String sizeData = generateSizeTable(sizes);
-        contents = contents.replace("##SIZES##", sizeData);
-
-        String clusterConfig = generateClusterConfiguration(isPro, hostCount, sitesPerHost, kfactor);
-        contents = contents.replace("##CLUSTERCONFIG##", clusterConfig);
-
-        String sizeSummary = generateSizeSummary(sizes);
-        contents = contents.replace("##SIZESUMMARY##", sizeSummary);
-
-        String heapSummary = generateRecommendedServerSettings(sizes);
-        contents = contents.replace("##RECOMMENDEDSERVERSETTINGS##", heapSummary);
-
-        String platformData = PlatformProperties.getPlatformProperties().toHTML();
-        contents = contents.replace("##PLATFORM##", platformData);
-
-        contents = contents.replace("##VERSION##", VoltDB.instance().getVersionString());
-
-        contents = contents.replace("##DDL##", escapeHtml4(autoGenDDL));
+        sections.put("SIZES", generateSizeTable(sizes));
+        sections.put("CLUSTERCONFIG", generateClusterConfiguration(isPro, hostCount, sitesPerHost, kfactor));
+        sections.put("SIZESUMMARY", generateSizeSummary(sizes));
+        sections.put("RECOMMENDEDSERVERSETTINGS", generateRecommendedServerSettings(sizes));
+        sections.put("PLATFORM", PlatformProperties.getPlatformProperties().toHTML());
+        sections.put("VERSION", VoltDB.instance().getVersionString());
+        sections.put("DDL", escapeHtml4(autoGenDDL));
 
         DateFormat df = new SimpleDateFormat("d MMM yyyy HH:mm:ss z");
-        contents = contents.replace("##TIMESTAMP##", df.format(m_timestamp));
+        sections.put("TIMESTAMP", df.format(m_timestamp));
+
+        String contents = fillTemplate(template, sections);
 
         String msg = Encoder.hexEncode(VoltDB.instance().getVersionString() + "," + System.currentTimeMillis());
-        contents = contents.replace("get.py?a=KEY&", String.format("get.py?a=%s&", msg));
+        contents = StringUtils.replace(contents, "get.py?a=KEY&", String.format("get.py?a=%s&", msg));
 
         return contents;
     }
 
+    /**
+     * Replace each ##NAME## placeholder in the template with its section in a
+     * single pass. The report runs to megabytes for large schemas and is rebuilt
+     * on every catalog change. String.replace would compile a regex and copy the
+     * whole report for every placeholder. Inserted sections are not rescanned, and
+     * unknown placeholders are left as they are.
+     */
+    static String fillTemplate(String template, Map<String, String> sections) {
+        int size = template.length();
+        for (String section : sections.values()) {
+            size += section.length();
+        }
+        StringBuilder sb = new StringBuilder(size);
+        int pos = 0;
+        while (true) {
+            int open = template.indexOf("##", pos);
+            int close = (open < 0) ? -1 : template.indexOf("##", open + 2);
+            if (close < 0) {
+                break;
+            }
+            String section = sections.get(template.substring(open + 2, close));
+            if (section == null) {
+                // not a placeholder, so the closing ## may open the next one
+                sb.append(template, pos, close);
+                pos = close;
+                continue;
+            }
+            sb.append(template, pos, open).append(section);
+            pos = close + 2;
+        }
+        sb.append(template, pos, template.length());
+        return sb.toString();
+    }
+
     public static String getLiveSystemOverview()
     {
         // get the start time
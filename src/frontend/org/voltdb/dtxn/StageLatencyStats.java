@@ -0,0 +1,151 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.dtxn;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.IntCountsHistogram;
+import org.voltdb.StatsSource;
+import org.voltdb.TransactionStageTrace;
+import org.voltdb.TransactionStageTrace.Stage;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/** Source of @Statistics STAGELATENCY, the per-procedure latency of each stage
+ * of the IV2 pipeline for the transactions sampled by this client interface
+ * (see {@link TransactionStageTrace}).
+ *
+ * Returns one row per procedure and stage that has been sampled since startup.
+ * Nothing is returned unless sampling is enabled with TXN_STAGE_SAMPLE_RATE.
+ */
+public class StageLatencyStats extends StatsSource {
+
+    // Coarser than the LATENCY histograms: there is one per procedure and stage
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Map<String, AbstractHistogram[]> m_histograms = new ConcurrentHashMap<>();
+
+    // Rows of the current collection, copied so recording can go on meanwhile
+    private final List<Object[]> m_rows = new ArrayList<>();
+
+    public StageLatencyStats() {
+        super(false);
+    }
+
+    /** Add the stages timed by a completed trace to its procedure's histograms. */
+    public void record(String procName, TransactionStageTrace trace) {
+        AbstractHistogram[] histograms = m_histograms.get(procName);
+        if (histograms == null) {
+            histograms = new AbstractHistogram[STAGES.length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new IntCountsHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_VALUE_DIGITS);
+            }
+            final AbstractHistogram[] existing = m_histograms.putIfAbsent(procName, histograms);
+            if (existing != null) {
+                histograms = existing;
+            }
+        }
+        synchronized (histograms) {
+            for (Stage stage : STAGES) {
+                if (trace.isTimed(stage)) {
+                    final long micros = TimeUnit.NANOSECONDS.toMicros(trace.get(stage));
+                    histograms[stage.ordinal()].recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_rows.clear();
+        for (Map.Entry<String, AbstractHistogram[]> e : new TreeMap<>(m_histograms).entrySet()) {
+            final AbstractHistogram[] histograms = e.getValue();
+            synchronized (histograms) {
+                for (Stage stage : STAGES) {
+                    final AbstractHistogram h = histograms[stage.ordinal()];
+                    if (h.getTotalCount() == 0) {
+                        continue;
+                    }
+                    m_rows.add(new Object[] {
+                            e.getKey(),
+                            stage.name(),
+                            h.getTotalCount(),
+                            (long) h.getMean(),
+                            h.getValueAtPercentile(50D),
+                            h.getValueAtPercentile(99D),
+                            h.getValueAtPercentile(99.9D),
+                            h.getMaxValue() });
+                }
+            }
+        }
+        final Iterator<Object[]> it = m_rows.iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PROCEDURE", VoltType.STRING));
+        columns.add(new ColumnInfo("STAGE",     VoltType.STRING));
+        columns.add(new ColumnInfo("COUNT",     VoltType.BIGINT));  // samples
+        columns.add(new ColumnInfo("AVG",       VoltType.BIGINT));  // microseconds
+        columns.add(new ColumnInfo("P50",       VoltType.BIGINT));  // microseconds
+        columns.add(new ColumnInfo("P99",       VoltType.BIGINT));  // microseconds
+        columns.add(new ColumnInfo("P99.9",     VoltType.BIGINT));  // microseconds
+        columns.add(new ColumnInfo("MAX",       VoltType.BIGINT));  // microseconds
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Object[] row = (Object[]) rowKey;
+        rowValues[columnNameToIndex.get("PROCEDURE")] = row[0];
+        rowValues[columnNameToIndex.get("STAGE")]     = row[1];
+        rowValues[columnNameToIndex.get("COUNT")]     = row[2];
+        rowValues[columnNameToIndex.get("AVG")]       = row[3];
+        rowValues[columnNameToIndex.get("P50")]       = row[4];
+        rowValues[columnNameToIndex.get("P99")]       = row[5];
+        rowValues[columnNameToIndex.get("P99.9")]     = row[6];
+        rowValues[columnNameToIndex.get("MAX")]       = row[7];
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -59,7 +59,7 @@ public abstract class BaseInitiator<S extends Scheduler> implements Initiator
     protected Term m_term = null;
     protected Site m_executionSite = null;
     protected Thread m_siteThread = null;
-    protected final RepairLog m_repairLog = new RepairLog();
+    protected final RepairLog m_repairLog = new RepairLog(new RepairLogArena());
 
 
     public BaseInitiator(String zkMailboxNode, HostMessenger messenger, Integer partition,
@@ -18,16 +18,16 @@
 package org.voltdb.iv2;
 
 import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
 
 import org.voltcore.logging.VoltLogger;
-import org.voltdb.HybridCrc32;
 
 /**
  * This class expands the determinism hash with an array
  * of hashes. For speed and memory reasons, this class is a simple int
  * array, even though it's really three ints and then an array of int pairs.
  *
- * The first int is an overall hash, equivalent to the old hash value, but
+ * The first int is an overall hash of every statement and parameter hash,
  * also including the catalog version of the procedure.
  *
  * Then catalog version (not hashed), then the number of DML statements run
@@ -42,6 +42,13 @@ import org.voltdb.HybridCrc32;
  *
  * It is not yet used for replay or command logging.
  *
+ * The parameters of each statement are checksummed on their own with the JDK
+ * CRC32, straight from the buffer they were serialized into for the EE. The JIT
+ * turns that into a carry-less multiply loop, which is much cheaper than the pure
+ * Java CRC32C for the short parameter sets most statements have. The overall hash
+ * folds the statement hashes, the parameter checksums and the header ints together
+ * with the MurmurHash3 32 bit mixing steps, so every bit of them counts.
+ *
  * Use the static helper function in this class to check two arrays and print
  * helpful output.
  */
@@ -64,11 +71,13 @@ public class DeterminismHash {
 
     final int[] m_hashes = new int[MAX_HASHES_COUNT + HEADER_OFFSET];
 
-    protected final HybridCrc32 m_inputCRC = new HybridCrc32();
+    int m_totalHash = 0;
+
+    protected final CRC32 m_paramCRC = new CRC32();
 
     public void reset(int catalogVersion) {
         m_catalogVersion = catalogVersion;
-        m_inputCRC.reset();
+        m_totalHash = 0;
         m_hashCount = 0;
     }
 
@@ -81,9 +90,15 @@ public class DeterminismHash {
         int[] retval = new int[includedHashes + HEADER_OFFSET];
         System.arraycopy(m_hashes, 0, retval, HEADER_OFFSET, includedHashes);
 
-        m_inputCRC.update(m_hashCount);
-        m_inputCRC.update(m_catalogVersion);
-        retval[0] = (int) m_inputCRC.getValue();
+        int total = mix(mix(m_totalHash, m_hashCount), m_catalogVersion);
+        // MurmurHash3 finalization
+        total ^= (m_hashCount + 2) * 4;
+        total ^= total >>> 16;
+        total *= 0x85ebca6b;
+        total ^= total >>> 13;
+        total *= 0xc2b2ae35;
+        total ^= total >>> 16;
+        retval[0] = total;
         retval[1] = m_catalogVersion;
         retval[2] = m_hashCount;
         return retval;
@@ -94,16 +109,35 @@ public class DeterminismHash {
      * if the size isn't too large.
      */
     public void offerStatement(int stmtHash, int offset, ByteBuffer psetBuffer) {
-        m_inputCRC.update(stmtHash);
-        m_inputCRC.updateFromPosition(offset, psetBuffer);
-
+        // The parameters of the statement run from offset to the buffer's position
+        psetBuffer.limit(psetBuffer.position());
+        psetBuffer.position(offset);
+        m_paramCRC.reset();
+        m_paramCRC.update(psetBuffer);
+        assert(psetBuffer.remaining() == 0);
+        psetBuffer.limit(psetBuffer.capacity());
+        final int paramHash = (int) m_paramCRC.getValue();
+
+        m_totalHash = mix(mix(m_totalHash, stmtHash), paramHash);
         if (m_hashCount < MAX_HASHES_COUNT) {
             m_hashes[m_hashCount] = stmtHash;
-            m_hashes[m_hashCount + 1] = (int) m_inputCRC.getValue();
+            m_hashes[m_hashCount + 1] = paramHash;
         }
         m_hashCount += 2;
     }
 
+    /**
+     * MurmurHash3 32 bit body step, folding one more int into the hash.
+     */
+    private static int mix(int hash, int value) {
+        value *= 0xcc9e2d51;
+        value = Integer.rotateLeft(value, 15);
+        value *= 0x1b873593;
+        hash ^= value;
+        hash = Integer.rotateLeft(hash, 13);
+        return hash * 5 + 0xe6546b64;
+    }
+
     /**
      * Compare two hash arrays return true if the same.
      *
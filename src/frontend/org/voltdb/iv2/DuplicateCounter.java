@@ -26,6 +26,7 @@ import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.TransactionStageTrace;
 import org.voltdb.VoltTable;
 import org.voltdb.messaging.CompleteTransactionResponseMessage;
 import org.voltdb.messaging.DummyTransactionResponseMessage;
@@ -58,6 +59,7 @@ public class DuplicateCounter
     final List<Long> m_expectedHSIds;
     final long m_txnId;
     final TransactionInfoBaseMessage m_openMessage;
+    TransactionStageTrace m_stageTrace = null;
 
     DuplicateCounter(
             long destinationHSId,
@@ -212,7 +214,17 @@ public class DuplicateCounter
             txnAbort = false;
         }
 
-        return checkCommon(hashes, message.isRecovering(), r.getResults(), message, txnAbort);
+        // Only the leader's response of a sampled transaction carries a stage trace,
+        // pass it on with whichever response goes back once all replicas are done
+        if (message.getStageTrace() != null) {
+            m_stageTrace = message.getStageTrace();
+        }
+        int result = checkCommon(hashes, message.isRecovering(), r.getResults(), message, txnAbort);
+        if (result == DONE && m_stageTrace != null && m_lastResponse instanceof InitiateResponseMessage) {
+            m_stageTrace.end(TransactionStageTrace.Stage.REPLICATION, System.nanoTime());
+            ((InitiateResponseMessage) m_lastResponse).setStageTrace(m_stageTrace);
+        }
+        return result;
     }
 
     int offer(FragmentResponseMessage message)
@@ -95,6 +95,19 @@ public class MpInitiator extends BaseInitiator<MpScheduler> implements Promotabl
                 m_initiatorMailbox);
         sched.setMpRoSitePool(sitePool);
 
+        // Non-conflicting n-partition writes run concurrently on a second pool, if one is configured
+        final int writePoolSize = Integer.getInteger("mpiWritePoolSize", 0);
+        if (writePoolSize > 0) {
+            MpRoSitePool writePool = new MpRoSitePool(m_initiatorMailbox.getHSId(),
+                    backend,
+                    catalogContext,
+                    m_partitionId,
+                    m_initiatorMailbox,
+                    false,
+                    writePoolSize);
+            sched.setMpWriteSitePool(writePool, new MpWriteConflicts(catalogContext));
+        }
+
         // add ourselves to the ephemeral node list which BabySitters will watch for this
         // partition
         LeaderElector.createParticipantNode(m_messenger.getZK(),
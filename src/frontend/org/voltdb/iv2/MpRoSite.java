@@ -67,7 +67,8 @@ import org.voltdb.sysprocs.LowImpactDeleteNT.ComparisonOperation;
  * An implementation of Site which provides only the functionality
  * necessary to run read-only multi-partition transactions.  A pool
  * of these will be used to run multiple read-only transactions
- * concurrently.
+ * concurrently.  A second pool may coordinate non-conflicting
+ * n-partition writes, which need nothing more from the MPI's site.
  */
 public class MpRoSite implements Runnable, SiteProcedureConnection
 {
@@ -105,7 +106,8 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
     @Override
     public long getLatestUndoToken()
     {
-        throw new RuntimeException("Not needed for RO MP Site, shouldn't be here.");
+        // Only asked for by the big batches of MP writes, the coordinator has no undo log
+        return Site.kInvalidUndoToken;
     }
 
     SiteProcedureConnection getSiteProcedureConnection()
@@ -118,7 +120,8 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
      * access to internal state via m_systemProcedureContext.
      *
      * The only sysproc which should run on the RO MP Site is Adhoc.  Everything
-     * else will yell at you.
+     * else will yell at you.  The write pool never runs sysprocs, its n-partition
+     * writes only reach the SiteProcedureConnection methods below.
      */
     SystemProcedureExecutionContext m_sysprocContext = new SystemProcedureExecutionContext() {
         @Override
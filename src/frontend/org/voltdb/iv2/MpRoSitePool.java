@@ -35,6 +35,7 @@ import org.voltdb.StarvationTracker;
 
 /**
  * Provide a pool of MP Read-only sites to do MP RO work.
+ * A second pool, when configured, runs non-conflicting n-partition writes.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
  */
@@ -119,6 +120,19 @@ class MpRoSitePool {
             CatalogContext context,
             int partitionId,
             InitiatorMailbox initiatorMailbox)
+    {
+        this(siteId, backend, context, partitionId, initiatorMailbox, true,
+                Integer.getInteger("mpiReadPoolSize", DEFAULT_MAX_POOL_SIZE));
+    }
+
+    MpRoSitePool(
+            long siteId,
+            BackendTarget backend,
+            CatalogContext context,
+            int partitionId,
+            InitiatorMailbox initiatorMailbox,
+            boolean readOnly,
+            int poolSize)
     {
         m_siteId = siteId;
         m_backend = backend;
@@ -126,15 +140,11 @@ class MpRoSitePool {
         m_partitionId = partitionId;
         m_initiatorMailbox = initiatorMailbox;
         m_poolThreadFactory =
-            CoreUtils.getThreadFactory("RO MP Site - " + CoreUtils.hsIdToString(m_siteId),
+            CoreUtils.getThreadFactory((readOnly ? "RO" : "RW") + " MP Site - " + CoreUtils.hsIdToString(m_siteId),
                     CoreUtils.MEDIUM_STACK_SIZE);
 
-        Integer poolSize = Integer.getInteger("mpiReadPoolSize");
-        if (poolSize == null) {
-            poolSize = DEFAULT_MAX_POOL_SIZE;
-        }
         m_poolSize = poolSize;
-        tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
+        tmLog.info("Setting maximum size of MPI " + (readOnly ? "read" : "write") + " pool to: " + m_poolSize);
 
         // Construct the initial pool
         for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
@@ -89,6 +90,8 @@ public class MpScheduler extends Scheduler
     // since that's the first point we can be sure is safely agreed on by all nodes.
     // Let the one we can't be sure about linger here.  See ENG-4211 for more.
     long m_repairLogAwaitingTruncate = TransactionInfoBaseMessage.UNUSED_TRUNC_HANDLE;
+    // Completed transactions that have not become the awaiting truncation point yet
+    private final TreeSet<Long> m_repairLogCompleted = new TreeSet<Long>();
 
     MpScheduler(int partitionId, List<Long> buddyHSIds, SiteTaskerQueue taskQueue, int hostId)
     {
@@ -107,6 +110,11 @@ public class MpScheduler extends Scheduler
         m_pendingTasks.setMpRoSitePool(sitePool);
     }
 
+    void setMpWriteSitePool(MpRoSitePool writePool, MpWriteConflicts writeConflicts)
+    {
+        m_pendingTasks.setMpWriteSitePool(writePool, writeConflicts);
+    }
+
     void updateCatalog(String diffCmds, CatalogContext context)
     {
         m_pendingTasks.updateCatalog(diffCmds, context);
@@ -375,8 +383,16 @@ public class MpScheduler extends Scheduler
             task = instantiateNpProcedureTask(m_mailbox, procedureName,
                     m_pendingTasks, mp, involvedPartitionMasters,
                     m_buddyHSIds.get(m_nextBuddy), false, m_hostId);
-        }
 
+            // Without the n-partition task, a write only runs on its partitions if the
+            // MPI has a write pool to overlap it with other n-partition writes
+            if (task == null && !message.isReadOnly() && m_pendingTasks.hasMpWriteSitePool()) {
+                task = new MpProcedureTask(m_mailbox, procedureName,
+                        m_pendingTasks, mp, new ArrayList<Long>(involvedPartitionMasters.values()),
+                        involvedPartitionMasters, getNpBuddyHSId(involvedPartitionMasters),
+                        false, m_hostId, true);
+            }
+        }
 
         if (task == null) {
             task = new MpProcedureTask(m_mailbox, procedureName,
@@ -389,6 +405,20 @@ public class MpScheduler extends Scheduler
         m_pendingTasks.offer(task);
     }
 
+    /**
+     * Prefer a local master of one of the involved partitions as the buddy of an
+     * n-partition write, so its local work never waits behind another one.
+     */
+    private long getNpBuddyHSId(Map<Integer, Long> involvedPartitionMasters)
+    {
+        for (Long hsId : involvedPartitionMasters.values()) {
+            if (m_buddyHSIds.contains(hsId)) {
+                return hsId;
+            }
+        }
+        return m_buddyHSIds.get(m_nextBuddy);
+    }
+
     /**
      * Hacky way to only run @BalancePartitions as n-partition transactions for now.
      * @return true if it's an n-partition transaction
@@ -551,9 +581,19 @@ public class MpScheduler extends Scheduler
         // Only advance the truncation point on completed transactions that sent fragments to SPIs.
         // See ENG-4211 & ENG-14563
         if(msg.shouldCommit() && msg.haveSentMpFragment()) {
+            m_repairLogCompleted.add(msg.getTxnId());
+        }
+        // Writes on the MPI write pool complete out of order, hold the ones that
+        // finished ahead of a write still running until it completes too
+        final long oldestRunning = m_pendingTasks.getOldestConcurrentWrite();
+        Long completed = null;
+        while (!m_repairLogCompleted.isEmpty() && m_repairLogCompleted.first() < oldestRunning) {
+            completed = m_repairLogCompleted.pollFirst();
+        }
+        if (completed != null) {
             m_repairLogTruncationHandle = m_repairLogAwaitingTruncate;
             m_pendingTasks.setRepairLogTruncationHandle(m_repairLogTruncationHandle);
-            m_repairLogAwaitingTruncate = msg.getTxnId();
+            m_repairLogAwaitingTruncate = completed;
         }
     }
 
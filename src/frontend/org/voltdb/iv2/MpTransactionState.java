@@ -373,6 +373,10 @@ public class MpTransactionState extends TransactionState
                     // Will roll-back and throw if this message has an exception
                     checkForException(msg);
                 }
+                // The tables are tracked now. The trace event reads the message later.
+                if (traceLog == null) {
+                    msg.release();
+                }
             }
             checkForDRBufferLimit();
         }
@@ -713,6 +717,16 @@ public class MpTransactionState extends TransactionState
         return m_nPartTxn;
     }
 
+    /** @return the partitions this transaction sends its work to */
+    public Set<Integer> getInvolvedPartitions() {
+        return m_masterHSIds.keySet();
+    }
+
+    /** @return true if the local work goes to the master of one of this transaction's partitions */
+    public boolean isBuddyInvolved() {
+        return m_masterHSIds.containsValue(m_buddyHSId);
+    }
+
     public int getNextFragmentIndex() {
         return m_fragmentIndex++;
     }
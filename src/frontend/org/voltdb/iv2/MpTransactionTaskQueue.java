@@ -18,6 +18,7 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -38,19 +39,34 @@ import org.voltdb.messaging.FragmentTaskMessage;
  * Provide an implementation of the TransactionTaskQueue specifically for the MPI.
  * This class will manage separating the stream of reads and writes to different
  * Sites and block appropriately so that reads and writes never execute concurrently.
+ *
+ * Writes normally run one at a time on the MPI's Site. When a write pool is
+ * configured, n-partition writes that {@link MpWriteConflicts} allows to run
+ * concurrently are started on the pool for as long as the head of the backlog
+ * touches none of the partitions of the writes in flight. Reads and writes may
+ * then also overlap when their table sets do not conflict. Tasks still leave the
+ * backlog in order, so every partition sees its MP transactions in txnId order.
  */
 public class MpTransactionTaskQueue extends TransactionTaskQueue
 {
     protected static final VoltLogger tmLog = new VoltLogger("TM");
 
-    // Track the current writes and reads in progress.  If writes contains anything, reads must be empty,
-    // and vice versa
+    // Track the current writes and reads in progress.  Without a write pool, if writes contains anything,
+    // reads must be empty, and vice versa
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
     private final Map<Long, TransactionTask> m_currentReads = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
 
     private MpRoSitePool m_sitePool = null;
 
+    // Optional pool running non-conflicting n-partition writes concurrently
+    private MpRoSitePool m_writePool = null;
+    private MpWriteConflicts m_writeConflicts = null;
+    // True while the current writes run on the write pool rather than the MPI's Site
+    private boolean m_poolingWrites = false;
+    // Partitions of the writes running on the write pool, mapped to their txnId
+    private final Map<Integer, Long> m_pooledWritePartitions = new HashMap<Integer, Long>();
+
     private long m_repairLogTruncationHandle = Long.MIN_VALUE;
 
     MpTransactionTaskQueue(SiteTaskerQueue queue)
@@ -63,14 +79,32 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         m_sitePool = sitePool;
     }
 
+    void setMpWriteSitePool(MpRoSitePool writePool, MpWriteConflicts writeConflicts)
+    {
+        m_writePool = writePool;
+        m_writeConflicts = writeConflicts;
+    }
+
+    boolean hasMpWriteSitePool()
+    {
+        return m_writePool != null;
+    }
+
     synchronized void updateCatalog(String diffCmds, CatalogContext context)
     {
         m_sitePool.updateCatalog(diffCmds, context);
+        if (m_writePool != null) {
+            m_writePool.updateCatalog(diffCmds, context);
+            m_writeConflicts.updateCatalog(context);
+        }
     }
 
     synchronized void updateSettings(CatalogContext context)
     {
         m_sitePool.updateSettings(context);
+        if (m_writePool != null) {
+            m_writePool.updateSettings(context);
+        }
     }
 
     void shutdown()
@@ -78,6 +112,9 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         if (m_sitePool != null) {
             m_sitePool.shutdown();
         }
+        if (m_writePool != null) {
+            m_writePool.shutdown();
+        }
     }
 
     /**
@@ -102,30 +139,33 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     synchronized void repair(SiteTasker task, List<Long> masters, Map<Integer, Long> partitionMasters, boolean balanceSPI)
     {
         // We know that every Site assigned to the MPI (either the main writer or
-        // any of the MP read pool) will only have one active transaction at a time,
-        // and that we either have active reads or active writes, but never both.
-        // Figure out which we're doing, and then poison all of the appropriate sites.
-        Map<Long, TransactionTask> currentSet;
-        boolean readonly = true;
+        // any of the MP read or write pool) will only have one active transaction at a time.
+        // Reads and writes only run together when a write pool is configured, so
+        // poison the sites of whichever of them are active.
         if (!m_currentReads.isEmpty()) {
-            assert(m_currentWrites.isEmpty());
             if (tmLog.isDebugEnabled()) {
                 tmLog.debug("MpTTQ: repairing reads. MigratePartitionLeader:" + balanceSPI);
             }
             for (Long txnId : m_currentReads.keySet()) {
                 m_sitePool.repair(txnId, task);
             }
-            currentSet = m_currentReads;
         }
-        else {
+        if (!m_currentWrites.isEmpty() || m_currentReads.isEmpty()) {
             if (tmLog.isDebugEnabled()) {
                 tmLog.debug("MpTTQ: repairing writes. MigratePartitionLeader:" + balanceSPI);
             }
-            m_taskQueue.offer(task);
-            currentSet = m_currentWrites;
-            readonly = false;
+            if (m_poolingWrites) {
+                for (Long txnId : m_currentWrites.keySet()) {
+                    m_writePool.repair(txnId, task);
+                }
+            }
+            else {
+                m_taskQueue.offer(task);
+            }
         }
-        for (Entry<Long, TransactionTask> e : currentSet.entrySet()) {
+        List<Entry<Long, TransactionTask>> current = new ArrayList<>(m_currentReads.entrySet());
+        current.addAll(m_currentWrites.entrySet());
+        for (Entry<Long, TransactionTask> e : current) {
             if (e.getValue() instanceof MpProcedureTask) {
                 MpProcedureTask next = (MpProcedureTask)e.getValue();
                 if (tmLog.isDebugEnabled()) {
@@ -183,6 +223,9 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         if (task.getTransactionState().isReadOnly()) {
             m_sitePool.doWork(task.getTxnId(), task);
         }
+        else if (m_poolingWrites) {
+            m_writePool.doWork(task.getTxnId(), task);
+        }
         else {
             m_taskQueue.offer(task);
         }
@@ -192,30 +235,44 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     {
         // Do we have something to do?
         // - If so, is it a write?
-        //   - If so, are there reads or writes outstanding?
+        //   - If so, are there writes, or reads it conflicts with, outstanding?
         //     - if not, pull it from the backlog, add it to current write set, and queue it
+        //       (on the write pool if it may run concurrently with other writes)
         //     - if so, bail for now
-        //   - If not, are there writes outstanding?
-        //     - if not, while there are reads on the backlog and the pool has capacity:
-        //       - pull the read from the backlog, add it to the current read set, and queue it.
-        //       - bail when done
-        //     - if so, bail for now
+        //   - While the current writes are on the write pool, keep pulling writes that may
+        //     run concurrently, touch none of their partitions and conflict with none of
+        //     the current reads, and queue them on the pool
+        //   - If not, while there are reads on the backlog that conflict with none of the
+        //     outstanding writes and the pool has capacity:
+        //     - pull the read from the backlog, add it to the current read set, and queue it.
+        //     - bail when done
+        //   Reads and writes always conflict unless there is a write pool.
 
         boolean retval = false;
         if (!m_backlog.isEmpty()) {
             // We may not queue the next task, just peek to get the read-only state
             TransactionTask task = m_backlog.peekFirst();
             if (!task.getTransactionState().isReadOnly()) {
-                if (m_currentReads.isEmpty() && m_currentWrites.isEmpty()) {
+                if (m_currentWrites.isEmpty() && !conflictsWithAny(task, m_currentReads)) {
                     task = m_backlog.pollFirst();
-                    m_currentWrites.put(task.getTxnId(), task);
-                    taskQueueOffer(task);
+                    m_poolingWrites = canRunConcurrently(task) && m_writePool.canAcceptWork();
+                    startWrite(task);
+                    retval = true;
+                    task = m_backlog.peekFirst();
+                }
+                while (m_poolingWrites && task != null && canRunConcurrently(task) &&
+                       !touchesPooledPartitions(task) && !conflictsWithAny(task, m_currentReads) &&
+                       m_writePool.canAcceptWork())
+                {
+                    task = m_backlog.pollFirst();
+                    startWrite(task);
                     retval = true;
+                    task = m_backlog.peekFirst();
                 }
             }
-            else if (m_currentWrites.isEmpty()) {
+            else {
                 while (task != null && task.getTransactionState().isReadOnly() &&
-                       m_sitePool.canAcceptWork())
+                       !conflictsWithAny(task, m_currentWrites) && m_sitePool.canAcceptWork())
                 {
                     task = m_backlog.pollFirst();
                     assert(task.getTransactionState().isReadOnly());
@@ -231,6 +288,74 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         return retval;
     }
 
+    private void startWrite(TransactionTask task)
+    {
+        if (m_poolingWrites) {
+            for (Integer partition : ((MpTransactionState) task.getTransactionState()).getInvolvedPartitions()) {
+                m_pooledWritePartitions.put(partition, task.getTxnId());
+            }
+        }
+        m_currentWrites.put(task.getTxnId(), task);
+        taskQueueOffer(task);
+    }
+
+    private boolean canRunConcurrently(TransactionTask task)
+    {
+        return m_writePool != null &&
+               task instanceof MpProcedureTask &&
+               !task.getTransactionState().isReadOnly() &&
+               m_writeConflicts.canRunConcurrently((MpTransactionState) task.getTransactionState());
+    }
+
+    /**
+     * @return true if the task may not run while the given transactions do, which is
+     * always the case without a write pool, or when either is not a stored procedure
+     */
+    private boolean conflictsWithAny(TransactionTask task, Map<Long, TransactionTask> current)
+    {
+        if (current.isEmpty()) {
+            return false;
+        }
+        if (m_writeConflicts == null || !(task instanceof MpProcedureTask)) {
+            return true;
+        }
+        for (TransactionTask other : current.values()) {
+            if (!(other instanceof MpProcedureTask) ||
+                m_writeConflicts.conflicts((MpTransactionState) task.getTransactionState(),
+                                           (MpTransactionState) other.getTransactionState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean touchesPooledPartitions(TransactionTask task)
+    {
+        for (Integer partition : ((MpTransactionState) task.getTransactionState()).getInvolvedPartitions()) {
+            if (m_pooledWritePartitions.containsKey(partition)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the oldest txnId of the current writes, or Long.MAX_VALUE if they are
+     * not running concurrently with other transactions. Transactions may complete
+     * out of order while they do, and the repair log must not be truncated past a
+     * write still running.
+     */
+    synchronized long getOldestConcurrentWrite()
+    {
+        long oldest = Long.MAX_VALUE;
+        if (m_poolingWrites || !m_currentReads.isEmpty()) {
+            for (long txnId : m_currentWrites.keySet()) {
+                oldest = Math.min(oldest, txnId);
+            }
+        }
+        return oldest;
+    }
+
     /**
      * Indicate that the transaction associated with txnId is complete.  Perform
      * management of reads/writes in progress then call taskQueueOffer() to
@@ -248,7 +373,12 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         else {
             assert(m_currentWrites.containsKey(txnId));
             m_currentWrites.remove(txnId);
-            assert(m_currentWrites.isEmpty());
+            if (m_poolingWrites) {
+                m_pooledWritePartitions.values().removeIf(writeTxnId -> writeTxnId == txnId);
+                m_writePool.completeWork(txnId);
+                m_poolingWrites = !m_currentWrites.isEmpty();
+            }
+            assert(m_poolingWrites || m_currentWrites.isEmpty());
         }
         if (taskQueueOffer()) {
             ++offered;
@@ -257,14 +387,12 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     }
 
     /**
-     * Restart the current task at the head of the queue.  This will be called
-     * instead of flush by the currently blocking MP transaction in the event a
-     * restart is necessary.
+     * Restart the given current task.  This will be called instead of flush by
+     * the currently blocking MP transaction in the event a restart is necessary.
      */
-    @Override
-    synchronized void restart()
+    synchronized void restart(long txnId)
     {
-        if (!m_currentReads.isEmpty()) {
+        if (m_currentReads.containsKey(txnId)) {
             // re-submit all the tasks in the current read set to the pool.
             // the pool will ensure that things submitted with the same
             // txnID will go to the the MpRoSite which is currently running it
@@ -273,11 +401,9 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
             }
         }
         else {
-            assert(!m_currentWrites.isEmpty());
-            TransactionTask task;
-            // There currently should only ever be one current write.  This
-            // is the awkward way to get a single value out of a Map
-            task = m_currentWrites.entrySet().iterator().next().getValue();
+            // Writes on the write pool go back to the MpRoSite running them
+            TransactionTask task = m_currentWrites.get(txnId);
+            assert(task != null);
             taskQueueOffer(task);
         }
     }
@@ -0,0 +1,178 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.catalog.MaterializedViewHandlerInfo;
+import org.voltdb.catalog.MaterializedViewInfo;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.Table;
+import org.voltdb.catalog.TableRef;
+
+/**
+ * Decide which multi-partition transactions the MpTransactionTaskQueue may run
+ * concurrently.
+ *
+ * A partitioned row lives in exactly one partition, so two n-partition writes can
+ * only conflict on a partitioned table through a partition they share, and the
+ * queue never overlaps writes that share a partition. Replicated tables live in
+ * every partition, and every site of a host takes part in a replicated write, so a
+ * procedure whose planned statements update one never overlaps another write.
+ * Every write must also borrow its local work from one of its own partitions,
+ * otherwise the borrow could wait behind another n-partition write on the buddy.
+ *
+ * Reads take no site for themselves, so any write, replicated ones included, may
+ * overlap the reads whose table sets it does not conflict with: neither updates a
+ * table the other reads or updates. The tables a procedure updates include the
+ * materialized views on them. Ad hoc and system procedures have no planned table
+ * sets and conflict with everything.
+ *
+ * This should be owned by the MpTransactionTaskQueue and expects all operations
+ * to be done while holding its lock.
+ */
+class MpWriteConflicts {
+
+    /** The tables the statements of a procedure read and update, by lower case name */
+    static class TableSet {
+        final Set<String> m_read = new HashSet<>();
+        final Set<String> m_updated = new HashSet<>();
+        boolean m_updatesReplicated;
+
+        boolean conflictsWith(TableSet other)
+        {
+            return !Collections.disjoint(m_updated, other.m_read) ||
+                   !Collections.disjoint(m_updated, other.m_updated) ||
+                   !Collections.disjoint(other.m_updated, m_read);
+        }
+    }
+
+    // A procedure with a table not in the catalog maps to this, it conflicts with everything
+    private static final TableSet UNKNOWN = new TableSet();
+
+    private CatalogContext m_catalogContext;
+
+    // Table sets of the procedures seen so far, by procedure name
+    private final Map<String, TableSet> m_tableSets = new HashMap<>();
+
+    MpWriteConflicts(CatalogContext context)
+    {
+        m_catalogContext = context;
+    }
+
+    void updateCatalog(CatalogContext context)
+    {
+        m_catalogContext = context;
+        m_tableSets.clear();
+    }
+
+    /**
+     * @return true if the transaction may run concurrently with other writes that
+     * touch none of its partitions
+     */
+    boolean canRunConcurrently(MpTransactionState txn)
+    {
+        if (txn.isReadOnly() || !txn.isNPartTxn() || !txn.isBuddyInvolved()) {
+            return false;
+        }
+        final TableSet tables = tableSet(txn);
+        return tables != UNKNOWN && !tables.m_updatesReplicated;
+    }
+
+    /**
+     * @return true unless the table sets of the two transactions show that neither
+     * updates what the other reads or updates
+     */
+    boolean conflicts(MpTransactionState a, MpTransactionState b)
+    {
+        final TableSet tablesA = tableSet(a);
+        final TableSet tablesB = tableSet(b);
+        return tablesA == UNKNOWN || tablesB == UNKNOWN || tablesA.conflictsWith(tablesB);
+    }
+
+    private TableSet tableSet(MpTransactionState txn)
+    {
+        final String procName = txn.getInvocation().getProcName();
+        TableSet tables = m_tableSets.get(procName);
+        if (tables == null) {
+            tables = buildTableSet(m_catalogContext.procedures.get(procName));
+            m_tableSets.put(procName, tables);
+        }
+        return tables;
+    }
+
+    private TableSet buildTableSet(Procedure proc)
+    {
+        // Ad hoc and system procedures have no planned table sets to go by
+        if (proc == null || proc.getSystemproc()) {
+            return UNKNOWN;
+        }
+        final TableSet tables = new TableSet();
+        final Deque<Table> updated = new ArrayDeque<>();
+        for (Statement stmt : proc.getStatements()) {
+            for (String tableName : stmt.getTablesread().split(",")) {
+                if (tableName.isEmpty()) {
+                    continue;
+                }
+                if (m_catalogContext.tables.getIgnoreCase(tableName) == null) {
+                    return UNKNOWN;
+                }
+                tables.m_read.add(tableName.toLowerCase());
+            }
+            for (String tableName : stmt.getTablesupdated().split(",")) {
+                if (tableName.isEmpty()) {
+                    continue;
+                }
+                final Table table = m_catalogContext.tables.getIgnoreCase(tableName);
+                if (table == null) {
+                    return UNKNOWN;
+                }
+                updated.add(table);
+            }
+        }
+        // Updating a table updates the materialized views on it as well
+        while (!updated.isEmpty()) {
+            final Table table = updated.poll();
+            if (!tables.m_updated.add(table.getTypeName().toLowerCase())) {
+                continue;
+            }
+            tables.m_updatesReplicated |= table.getIsreplicated();
+            for (MaterializedViewInfo view : table.getViews()) {
+                updated.add(view.getDest());
+            }
+            for (Table dest : m_catalogContext.tables) {
+                for (MaterializedViewHandlerInfo handler : dest.getMvhandlerinfo()) {
+                    for (TableRef source : handler.getSourcetables()) {
+                        if (source.getTable() == table) {
+                            updated.add(handler.getDesttable());
+                        }
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -19,6 +19,7 @@ package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -34,6 +35,7 @@ import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.TheHashinator;
+import org.voltdb.VoltDB;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.DummyTransactionTaskMessage;
 import org.voltdb.messaging.DumpMessage;
@@ -50,6 +52,9 @@ import com.google_voltpatches.common.collect.Sets;
  * initiator (leader) shed its mortal coil.  This includes recording and sharing messages
  * starting and completing multipartition transactions so that a new MPI can repair the
  * cluster state on promotion.
+ *
+ * With a {@link RepairLogArena} the logged messages are kept serialized off-heap
+ * and only rebuilt when a repair asks for the log contents.
  */
 public class RepairLog
 {
@@ -77,17 +82,25 @@ public class RepairLog
     long m_HSId = Long.MIN_VALUE;
 
     // want voltmessage as payload with message-independent metadata.
+    // The message is either held on the heap or serialized in the arena.
     static class Item
     {
         final VoltMessage m_msg;
+        final RepairLogArena.Entry m_entry;
         final long m_handle;
         final long m_txnId;
         final boolean m_type;
 
         Item(boolean type, VoltMessage msg, long handle, long txnId)
+        {
+            this(type, msg, null, handle, txnId);
+        }
+
+        Item(boolean type, VoltMessage msg, RepairLogArena.Entry entry, long handle, long txnId)
         {
             m_type = type;
             m_msg = msg;
+            m_entry = entry;
             m_handle = handle;
             m_txnId = txnId;
         }
@@ -132,10 +145,19 @@ public class RepairLog
     final Deque<Item> m_logSP;
     final Deque<Item> m_logMP;
 
+    // off-heap message storage, null to keep the messages on the heap
+    final RepairLogArena m_arena;
+
     RepairLog()
+    {
+        this(null);
+    }
+
+    RepairLog(RepairLogArena arena)
     {
         m_logSP = new ArrayDeque<Item>();
         m_logMP = new ArrayDeque<Item>();
+        m_arena = arena;
     }
 
     // get the HSID for dump logging
@@ -186,7 +208,7 @@ public class RepairLog
                 return;
             }
 
-            m_logSP.add(new Item(IS_SP, m, m.getSpHandle(), m.getTxnId()));
+            m_logSP.add(makeItem(IS_SP, m, m.getSpHandle(), m.getTxnId()));
         } else if (msg instanceof FragmentTaskMessage) {
             boolean newMp = false;
             final FragmentTaskMessage m = (FragmentTaskMessage) msg;
@@ -203,7 +225,7 @@ public class RepairLog
             truncate(m.getTruncationHandle(), IS_MP);
             // only log the first fragment of a procedure (and handle 1st case)
             if (newMp) {
-                m_logMP.add(new Item(IS_MP, m, m.getSpHandle(), m.getTxnId()));
+                m_logMP.add(makeItem(IS_MP, m, m.getSpHandle(), m.getTxnId()));
                 m_lastSpHandle = m.getSpHandle();
                 m_mpRepairTruncationHandle = Math.max(m.getTruncationHandle(), m_mpRepairTruncationHandle);
             }
@@ -225,7 +247,7 @@ public class RepairLog
             }
 
             truncate(ctm.getTruncationHandle(), IS_MP);
-            m_logMP.add(new Item(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
+            m_logMP.add(makeItem(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
             m_lastSpHandle = ctm.getSpHandle();
             m_mpRepairTruncationHandle = Math.max(ctm.getTruncationHandle(), m_mpRepairTruncationHandle);
         } else if (msg instanceof DumpMessage) {
@@ -243,6 +265,39 @@ public class RepairLog
         }
     }
 
+    private Item makeItem(boolean type, VoltMessage msg, long handle, long txnId)
+    {
+        if (m_arena != null) {
+            try {
+                return new Item(type, null, m_arena.append(msg), handle, txnId);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to serialize " + msg + " into the repair log", true, e);
+            }
+        }
+        return new Item(type, msg, handle, txnId);
+    }
+
+    private VoltMessage getMessage(Item item)
+    {
+        if (item.m_entry == null) {
+            return item.getMessage();
+        }
+        try {
+            return m_arena.read(item.m_entry);
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to deserialize repair log entry for txnId " +
+                    TxnEgo.txnIdToString(item.getTxnId()), true, e);
+        }
+        return null;
+    }
+
+    private void release(Item item)
+    {
+        if (item.m_entry != null) {
+            m_arena.release(item.m_entry);
+        }
+    }
+
     // trim unnecessary log messages.
     private void truncate(long handle, boolean isSP)
     {
@@ -268,6 +323,7 @@ public class RepairLog
         while ((item = deq.peek()) != null) {
             if (item.canTruncate(handle)) {
                 deq.poll();
+                release(item);
                 truncatedTxns.add(item.m_txnId);
             } else {
                 break;
@@ -275,6 +331,12 @@ public class RepairLog
         }
     }
 
+    // off-heap bytes held by the repair logs of this host, for @Statistics MEMORY
+    public static long getOffHeapBytes()
+    {
+        return RepairLogArena.getHostAllocatedBytes();
+    }
+
     // return the last seen SP handle
     public long getLastSpHandle()
     {
@@ -342,12 +404,28 @@ public class RepairLog
                         ofTotal,
                         item.getHandle(),
                         item.getTxnId(),
-                        item.getMessage());
+                        getMessage(item));
             responses.add(response);
         }
         return responses;
     }
 
+    // drop the whole log and give back its off-heap storage
+    void shutdown()
+    {
+        for (Item item : m_logSP) {
+            release(item);
+        }
+        for (Item item : m_logMP) {
+            release(item);
+        }
+        m_logSP.clear();
+        m_logMP.clear();
+        if (m_arena != null) {
+            m_arena.clear();
+        }
+    }
+
     void registerTransactionCommitInterest(TransactionCommitInterest interest)
     {
         m_txnCommitInterests.add(interest);
@@ -0,0 +1,181 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.messaging.VoltDbMessageFactory;
+
+/**
+ * Append-only off-heap storage for the messages held by a {@link RepairLog}.
+ *
+ * Messages are serialized into direct buffer chunks as they are logged, so a long
+ * repair log costs a few small heap objects per entry instead of the message graph
+ * with its parameter sets. They are only deserialized again when a repair asks for
+ * the log contents.
+ *
+ * Each chunk counts the entries in it that have not been truncated, and goes back
+ * to the DBBPool as a whole once that count drops to zero. Messages larger than a
+ * chunk get a chunk of their own.
+ *
+ * This should be owned by a RepairLog and is not thread-safe.
+ */
+class RepairLogArena {
+
+    static final int CHUNK_SIZE = Integer.getInteger("repairLogChunkSize", 256 * 1024);
+
+    // Off-heap bytes held by all repair logs on this host
+    private static final AtomicLong s_allocatedBytes = new AtomicLong();
+
+    static class Chunk {
+        private final BBContainer m_container;
+        private final int m_capacity;
+        private int m_position = 0;
+        private int m_live = 0;
+
+        private Chunk(BBContainer container, int capacity)
+        {
+            m_container = container;
+            m_capacity = capacity;
+        }
+    }
+
+    /**
+     * Where a logged message lives in the arena.
+     */
+    static class Entry {
+        final Chunk m_chunk;
+        final int m_offset;
+        final int m_length;
+        final long m_sourceHSId;
+
+        private Entry(Chunk chunk, int offset, int length, long sourceHSId)
+        {
+            m_chunk = chunk;
+            m_offset = offset;
+            m_length = length;
+            m_sourceHSId = sourceHSId;
+        }
+    }
+
+    private final VoltDbMessageFactory m_factory = new VoltDbMessageFactory();
+    private Chunk m_current = null;
+    private long m_allocatedBytes = 0;
+
+    /**
+     * @return the number of off-heap bytes held by all repair logs on this host
+     */
+    static long getHostAllocatedBytes()
+    {
+        return s_allocatedBytes.get();
+    }
+
+    /**
+     * @return the number of off-heap bytes held by this arena
+     */
+    long getAllocatedBytes()
+    {
+        return m_allocatedBytes;
+    }
+
+    Entry append(VoltMessage msg) throws IOException
+    {
+        final int length = msg.getSerializedSize();
+        if (m_current == null || m_current.m_capacity - m_current.m_position < length) {
+            if (m_current != null && m_current.m_live == 0) {
+                discard(m_current);
+            }
+            m_current = allocate(length);
+        }
+        final Chunk chunk = m_current;
+        final int offset = chunk.m_position;
+        final ByteBuffer buf = chunk.m_container.b().duplicate();
+        buf.limit(offset + length).position(offset);
+        msg.flattenToBuffer(buf.slice());
+        chunk.m_position += length;
+        chunk.m_live++;
+        return new Entry(chunk, offset, length, msg.m_sourceHSId);
+    }
+
+    VoltMessage read(Entry entry) throws IOException
+    {
+        // Copy onto the heap, the message may keep a reference to its buffer after
+        // the chunk has been recycled
+        final ByteBuffer buf = entry.m_chunk.m_container.b().duplicate();
+        buf.limit(entry.m_offset + entry.m_length).position(entry.m_offset);
+        final ByteBuffer copy = ByteBuffer.allocate(entry.m_length);
+        copy.put(buf).flip();
+        return m_factory.createMessageFromBuffer(copy, entry.m_sourceHSId);
+    }
+
+    /**
+     * Drop a truncated entry, freeing its chunk if nothing else in it is live.
+     */
+    void release(Entry entry)
+    {
+        final Chunk chunk = entry.m_chunk;
+        assert(chunk.m_live > 0);
+        if (--chunk.m_live == 0) {
+            if (chunk == m_current) {
+                // Nothing left to keep, start the chunk over instead of giving it back
+                chunk.m_position = 0;
+            }
+            else {
+                discard(chunk);
+            }
+        }
+    }
+
+    /**
+     * Give back the chunk being written to, once every entry has been released.
+     */
+    void clear()
+    {
+        if (m_current != null) {
+            assert(m_current.m_live == 0);
+            discard(m_current);
+            m_current = null;
+        }
+    }
+
+    private Chunk allocate(int length)
+    {
+        final Chunk chunk;
+        if (length <= CHUNK_SIZE) {
+            chunk = new Chunk(DBBPool.allocateDirectAndPool(CHUNK_SIZE), CHUNK_SIZE);
+        }
+        else {
+            chunk = new Chunk(DBBPool.allocateDirect(length), length);
+        }
+        m_allocatedBytes += chunk.m_capacity;
+        s_allocatedBytes.addAndGet(chunk.m_capacity);
+        return chunk;
+    }
+
+    private void discard(Chunk chunk)
+    {
+        m_allocatedBytes -= chunk.m_capacity;
+        s_allocatedBytes.addAndGet(-chunk.m_capacity);
+        chunk.m_container.discard();
+    }
+}
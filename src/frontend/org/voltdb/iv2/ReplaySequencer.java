@@ -73,6 +73,8 @@ import org.voltdb.messaging.MultiPartitionParticipantMessage;
  */
 public class ReplaySequencer
 {
+    private static final VoltLogger tmLog = new VoltLogger("TM");
+
     // place holder that associates sentinel, first fragment and
     // work that follows in the transaction sequence.
     private class ReplayEntry {
@@ -276,6 +278,11 @@ public class ReplaySequencer
                 // means we wouldn't exist, and both would make us ready.
                 // if it's the sentinel, see if the MPI's command log is done
                 if (head.hasSentinel() && m_mpiEOLReached) {
+                    // Whatever is queued behind it is answered IGNORING, make the loss visible
+                    tmLog.error("Command log replay reached the MPI end of log without the multi-partition " +
+                                "transaction " + UniqueIdGenerator.toShortString(head.m_sentinelUniqueId) +
+                                " this partition logged, the transactions after it " +
+                                "on this partition are not replayed");
                     m_mustDrain = true;
                 }
             }
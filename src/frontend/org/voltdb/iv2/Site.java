@@ -844,6 +844,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 } else if (m_rejoinState == kStateReplayingRejoin) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
+                    // Replay takes a bigger share while the log isn't draining fast enough.
+                    mrm.setRatio(m_rejoinTaskLog.getReplayRatio(m_taskLogReplayRatio));
                     SiteTasker task = m_scheduler.peek();
                     boolean didWork = false;
                     if (task != null) {
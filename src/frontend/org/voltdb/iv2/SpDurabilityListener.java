@@ -159,6 +159,7 @@ public class SpDurabilityListener implements DurabilityListener {
                                                                                       o.getSpHandle())));
                 }
 
+                o.durabilityReached();
                 m_pendingTasks.offer(o);
                 // Make sure all queued tasks for this MP txn are released
                 if (!o.getTransactionState().isSinglePartition()) {
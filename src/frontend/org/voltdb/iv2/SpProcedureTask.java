@@ -26,6 +26,7 @@ import org.voltcore.utils.LatencyWatchdog;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.PartitionDRGateway;
 import org.voltdb.SiteProcedureConnection;
+import org.voltdb.TransactionStageTrace;
 import org.voltdb.VoltTable;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.client.ClientResponse;
@@ -49,10 +50,20 @@ public class SpProcedureTask extends ProcedureTask
         HOST_DEBUG_ENABLED = hostLog.isDebugEnabled();
     }
 
+    private final TransactionStageTrace m_stageTrace;
+
     public SpProcedureTask(Mailbox initiator, String procName, TransactionTaskQueue queue,
                   Iv2InitiateTaskMessage msg)
     {
        super(initiator, procName, new SpTransactionState(msg), queue);
+       m_stageTrace = msg.getStageTrace();
+    }
+
+    @Override
+    void durabilityReached() {
+        if (m_stageTrace != null) {
+            m_stageTrace.end(TransactionStageTrace.Stage.DURABILITY, System.nanoTime());
+        }
     }
 
     @Override
@@ -70,7 +81,14 @@ public class SpProcedureTask extends ProcedureTask
     {
         LatencyWatchdog.pet();
 
+        if (m_stageTrace != null) {
+            m_stageTrace.end(TransactionStageTrace.Stage.QUEUE, System.nanoTime());
+        }
         waitOnDurabilityBackpressureFuture();
+        if (m_stageTrace != null) {
+            // async command logging may still hold the transaction back here
+            m_stageTrace.end(TransactionStageTrace.Stage.DURABILITY, System.nanoTime());
+        }
         if (HOST_DEBUG_ENABLED) {
             hostLog.debug("STARTING: " + this);
         }
@@ -112,6 +130,10 @@ public class SpProcedureTask extends ProcedureTask
         if (txnState.m_initiationMsg != null && !(txnState.m_initiationMsg.isForReplica())) {
             response.setExecutedOnPreviousLeader(true);
         }
+        if (m_stageTrace != null) {
+            m_stageTrace.end(TransactionStageTrace.Stage.EXECUTE, System.nanoTime());
+            response.setStageTrace(m_stageTrace);
+        }
         m_initiator.deliver(response);
         if (EXEC_TRACE_ENABLED) {
             execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
@@ -568,6 +568,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     message.isForReplay());
 
             msg.setSpHandle(newSpHandle);
+            if (message.getStageTrace() != null) {
+                message.getStageTrace().mark(System.nanoTime());
+                msg.setStageTrace(message.getStageTrace());
+            }
             logRepair(msg);
             // Also, if this is a vanilla single-part procedure, make the TXNID
             // be the SpHandle (for now)
@@ -678,6 +682,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         //the transaction will be delivered again by the CL for execution once durable
         //Async command logging has to offer the task immediately with a Future for backpressure
         if (m_cl.canOfferTask()) {
+            task.durabilityReached();
             m_pendingTasks.offer(task.setDurabilityBackpressureFuture(durabilityBackpressureFuture));
         }
     }
@@ -74,6 +74,9 @@ public abstract class TransactionTask extends SiteTasker
 
     protected void durabilityTraceEnd() {}
 
+    // Called when the command log releases the task to the transaction queue
+    void durabilityReached() {}
+
     @Override
     abstract public void run(SiteProcedureConnection siteConnection);
 
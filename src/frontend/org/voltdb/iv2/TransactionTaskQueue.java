@@ -448,21 +448,6 @@ public class TransactionTaskQueue
         return offered;
     }
 
-    /**
-     * Restart the current task at the head of the queue.  This will be called
-     * instead of flush by the currently blocking MP transaction in the event a
-     * restart is necessary.
-     */
-    synchronized void restart()
-    {
-        TransactionTask task = m_backlog.getFirst();
-        if (task.needCoordination() && m_scoreboardEnabled) {
-            coordinatedTaskQueueOffer(task);
-        } else {
-            taskQueueOffer(task);
-        }
-    }
-
     /**
      * How many Tasks are un-runnable?
      * @return
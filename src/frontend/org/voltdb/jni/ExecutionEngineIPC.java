@@ -24,11 +24,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
 import java.nio.channels.SocketChannel;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.BackendTarget;
@@ -99,10 +101,17 @@ import com.google_voltpatches.common.base.Charsets;
  * The return message format for ReceiveDependency consists of a single byte result code.
  *
  * The return message format for Load table consists of a single byte result code.
+ *
+ * With -DEE_IPC_TRANSPORT=shm the site sends UseSharedMemory with the ring size and
+ * the path of a SharedMemoryChannel file right after connecting. Once the EE has
+ * replied over the socket, the same byte stream continues over the rings.
  */
 
 public class ExecutionEngineIPC extends ExecutionEngine {
 
+    /** "shm" to talk to the EE over shared memory rings instead of the socket */
+    static final boolean USE_SHARED_MEMORY = "shm".equalsIgnoreCase(System.getProperty("EE_IPC_TRANSPORT", "socket"));
+
     /** Commands are serialized over the connection */
     private enum Commands {
         Initialize(0)
@@ -134,7 +143,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         , SetViewsEnabled(31)
         , DeleteMigratedRows(32)
         , DisableExternalStreams(33)
-        , ExternalStreamsEnabled(34);
+        , ExternalStreamsEnabled(34)
+        , UseSharedMemory(35);
 
         Commands(final int id) {
             m_id = id;
@@ -153,6 +163,13 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     private class Connection {
         private Socket m_socket = null;
         private SocketChannel m_socketChannel = null;
+        // The socket, or the shared memory rings once they are in use
+        private ByteChannel m_channel = null;
+        // Reused for the fixed size reads
+        private final ByteBuffer m_scratch = ByteBuffer.allocate(8);
+        // Reused for the per-fragment stats and UDF requests, grown as needed
+        private ByteBuffer m_callbackBuffer = ByteBuffer.allocate(1024);
+
         Connection(BackendTarget target, int port) {
             boolean connected = false;
             int retries = 0;
@@ -164,6 +181,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     m_socketChannel.configureBlocking(true);
                     m_socket = m_socketChannel.socket();
                     m_socket.setTcpNoDelay(true);
+                    m_channel = m_socketChannel;
                     connected = true;
                 } catch (final Exception e) {
                     System.out.println(e.getMessage());
@@ -196,6 +214,10 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
         /* Close the socket indicating to the EE it should terminate */
         public void close() throws InterruptedException {
+            if (m_channel instanceof SharedMemoryChannel) {
+                ((SharedMemoryChannel) m_channel).close();
+            }
+            m_channel = null;
             if (m_socketChannel != null) {
                 try {
                     m_socketChannel.close();
@@ -222,8 +244,68 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_dataNetwork.limit(4 + amt);
             m_dataNetwork.rewind();
             while (m_dataNetwork.hasRemaining()) {
-                m_socketChannel.write(m_dataNetwork);
+                m_channel.write(m_dataNetwork);
+            }
+        }
+
+        /**
+         * Move the rest of the conversation with the EE onto shared memory rings.
+         * The request and its reply still go over the socket, which afterwards is
+         * only watched for the EE going away.
+         */
+        void useSharedMemory() throws IOException {
+            final SharedMemoryChannel channel =
+                    SharedMemoryChannel.create("voltdbipc-" + CoreUtils.hsIdToString(m_siteId) + "-",
+                                               SharedMemoryChannel.RING_SIZE, m_socketChannel);
+            try {
+                final byte[] path = channel.getFile().getPath().getBytes(Charsets.UTF_8);
+                m_data.clear();
+                m_data.putInt(Commands.UseSharedMemory.m_id);
+                m_data.putInt(channel.getRingSize());
+                m_data.putInt(path.length);
+                m_data.put(path);
+                m_data.flip();
+                write();
+                if (readStatusByte() != ExecutionEngine.ERRORCODE_SUCCESS) {
+                    throw new IOException("The EE could not map " + channel.getFile());
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
             }
+            channel.unlink();
+            m_socketChannel.configureBlocking(false);
+            m_channel = channel;
+        }
+
+        /** Fill the buffer from the connection */
+        void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (m_channel.read(buffer) == -1) {
+                    throw new EOFException();
+                }
+            }
+        }
+
+        private ByteBuffer readScratch(int size) throws IOException {
+            m_scratch.clear();
+            m_scratch.limit(size);
+            readFully(m_scratch);
+            m_scratch.flip();
+            return m_scratch;
+        }
+
+        /** Read a length prefixed callback request into the reused buffer */
+        private ByteBuffer readCallbackBuffer() throws IOException {
+            final int bufferSize = readInt();
+            if (m_callbackBuffer.capacity() < bufferSize) {
+                m_callbackBuffer = ByteBuffer.allocate(Math.max(bufferSize, m_callbackBuffer.capacity() * 2));
+            }
+            m_callbackBuffer.clear();
+            m_callbackBuffer.limit(bufferSize);
+            readFully(m_callbackBuffer);
+            m_callbackBuffer.flip();
+            return m_callbackBuffer;
         }
 
         /**
@@ -282,12 +364,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
         ByteBuffer getBytes(int size) throws IOException {
             ByteBuffer header = ByteBuffer.allocate(size);
-            while (header.hasRemaining()) {
-                final int read = m_socket.getChannel().read(header);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
+            readFully(header);
             header.flip();
             return header;
         }
@@ -295,15 +372,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         // Read per-fragment stats from the wire.
         void extractPerFragmentStatsInternal() {
             try {
-                int bufferSize = m_connection.readInt();
-                final ByteBuffer perFragmentStatsBuffer = ByteBuffer.allocate(bufferSize);
-                while (perFragmentStatsBuffer.hasRemaining()) {
-                    int read = m_socketChannel.read(perFragmentStatsBuffer);
-                    if (read == -1) {
-                        throw new EOFException();
-                    }
-                }
-                perFragmentStatsBuffer.flip();
+                final ByteBuffer perFragmentStatsBuffer = readCallbackBuffer();
                 // Skip the perFragmentTimingEnabled flag.
                 perFragmentStatsBuffer.get();
                 m_succeededFragmentsCount = perFragmentStatsBuffer.getInt();
@@ -326,15 +395,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         void callJavaUserDefinedFunctionInternal() {
             try {
                 // Read the request content from the wire.
-                int bufferSize = m_connection.readInt();
-                final ByteBuffer udfBuffer = ByteBuffer.allocate(bufferSize);
-                while (udfBuffer.hasRemaining()) {
-                    int read = m_socketChannel.read(udfBuffer);
-                    if (read == -1) {
-                        throw new EOFException();
-                    }
-                }
-                udfBuffer.flip();
+                final ByteBuffer udfBuffer = readCallbackBuffer();
 
                 int functionId = udfBuffer.getInt();
                 UserDefinedFunctionRunner udfRunner = m_functionManager.getFunctionRunnerById(functionId);
@@ -393,18 +454,18 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             int status = kErrorCode_RetrieveDependency;
 
             while (true) {
-                status = m_socket.getInputStream().read();
+                m_scratch.clear();
+                m_scratch.limit(1);
+                status = m_channel.read(m_scratch) == -1 ? -1 : (m_scratch.get(0) & 0xff);
                 if (status == kErrorCode_RetrieveDependency) {
-                    final ByteBuffer dependencyIdBuffer = ByteBuffer.allocate(4);
-                    while (dependencyIdBuffer.hasRemaining()) {
-                        final int read = m_socketChannel.read(dependencyIdBuffer);
-                        if (read == -1) {
-                            throw new IOException("Unable to read enough bytes for dependencyId in order to " +
-                            " satisfy IPC backend request for a dependency table");
-                        }
+                    final int dependencyId;
+                    try {
+                        dependencyId = readInt();
+                    } catch (EOFException e) {
+                        throw new IOException("Unable to read enough bytes for dependencyId in order to " +
+                        " satisfy IPC backend request for a dependency table");
                     }
-                    dependencyIdBuffer.rewind();
-                    sendDependencyTable(dependencyIdBuffer.getInt());
+                    sendDependencyTable(dependencyId);
                 }
                 else if (status == ExecutionEngine.ERRORCODE_PROGRESS_UPDATE) {
                     m_history.append("GOT PROGRESS_UPDATE... ");
@@ -456,25 +517,9 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                             length == 0 ? null : getBytes(length));
                 }
                 else if (status == kErrorCode_pushEndOfStream) {
-                    ByteBuffer header = ByteBuffer.allocate(8);
-                    while (header.hasRemaining()) {
-                        final int read = m_socket.getChannel().read(header);
-                        if (read == -1) {
-                            throw new EOFException();
-                        }
-                    }
-                    header.flip();
-
-                    int partitionId = header.getInt();
-                    int signatureLength = header.getInt();
-                    ByteBuffer sigbuf = ByteBuffer.allocate(signatureLength);
-                    while (sigbuf.hasRemaining()) {
-                        final int read = m_socket.getChannel().read(sigbuf);
-                        if (read == -1) {
-                            throw new EOFException();
-                        }
-                    }
-                    sigbuf.flip();
+                    int partitionId = readInt();
+                    int signatureLength = readInt();
+                    ByteBuffer sigbuf = getBytes(signatureLength);
                     byte signatureBytes[] = new byte[signatureLength];
                     sigbuf.get(signatureBytes);
                     String signature = new String(signatureBytes, "UTF-8");
@@ -491,22 +536,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     m_connection.write();
                 }
                 else if (status == kErrorCode_CrashVoltDB) {
-                    ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
-                    while (lengthBuffer.hasRemaining()) {
-                        final int read = m_socket.getChannel().read(lengthBuffer);
-                        if (read == -1) {
-                            throw new EOFException();
-                        }
-                    }
-                    lengthBuffer.flip();
-                    ByteBuffer messageBuffer = ByteBuffer.allocate(lengthBuffer.getInt());
-                    while (messageBuffer.hasRemaining()) {
-                        final int read = m_socket.getChannel().read(messageBuffer);
-                        if (read == -1) {
-                            throw new EOFException();
-                        }
-                    }
-                    messageBuffer.flip();
+                    ByteBuffer messageBuffer = getBytes(readInt());
                     final int reasonLength = messageBuffer.getInt();
                     final byte reasonBytes[] = new byte[reasonLength];
                     messageBuffer.get(reasonBytes);
@@ -563,30 +593,10 @@ public class ExecutionEngineIPC extends ExecutionEngine {
          * @throws IOException
          */
         public void readResultTables(final VoltTable tables[]) throws IOException {
-            final ByteBuffer resultTablesLengthBytes = ByteBuffer.allocate(4);
-
-            //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
-            while (resultTablesLengthBytes.hasRemaining()) {
-                int read = m_socketChannel.read(resultTablesLengthBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            resultTablesLengthBytes.flip();
-
-            final int resultTablesLength = resultTablesLengthBytes.getInt();
+            final int resultTablesLength = readInt();
 
             // check the dirty-ness of the batch
-            final ByteBuffer dirtyBytes = ByteBuffer.allocate(1);
-            while (dirtyBytes.hasRemaining()) {
-                int read = m_socketChannel.read(dirtyBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            dirtyBytes.flip();
-            // check if anything was changed
-            final boolean dirty  = dirtyBytes.get() > 0;
+            final boolean dirty = readByte() > 0;
             if (dirty) {
                 m_dirty = true;
             }
@@ -599,7 +609,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     .allocate(resultTablesLength);
             //resultTablesBuffer.order(ByteOrder.LITTLE_ENDIAN);
             while (resultTablesBuffer.hasRemaining()) {
-                int read = m_socketChannel.read(resultTablesBuffer);
+                int read = m_channel.read(resultTablesBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -616,32 +626,14 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
         public ByteBuffer readResultsBuffer() throws IOException {
             // check the dirty-ness of the batch
-            final ByteBuffer dirtyBytes = ByteBuffer.allocate(1);
-            while (dirtyBytes.hasRemaining()) {
-                int read = m_socketChannel.read(dirtyBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            dirtyBytes.flip();
-            // check if anything was changed
-            m_dirty |= dirtyBytes.get() > 0;
+            m_dirty |= readByte() > 0;
 
-            final ByteBuffer drBufferSizeBytes = ByteBuffer.allocate(4);
-            //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
-            while (drBufferSizeBytes.hasRemaining()) {
-                int read = m_socketChannel.read(drBufferSizeBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            drBufferSizeBytes.flip();
-            final int drBufferSize = drBufferSizeBytes.getInt();
+            final int drBufferSize = readInt();
 
             final ByteBuffer resultTablesLengthBytes = ByteBuffer.allocate(4);
             //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
             while (resultTablesLengthBytes.hasRemaining()) {
-                int read = m_socketChannel.read(resultTablesLengthBytes);
+                int read = m_channel.read(resultTablesLengthBytes);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -659,7 +651,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             resultTablesBuffer.putInt(drBufferSize);
             resultTablesBuffer.putInt(resultTablesLength);
             while (resultTablesBuffer.hasRemaining()) {
-                int read = m_socketChannel.read(resultTablesBuffer);
+                int read = m_channel.read(resultTablesBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -672,76 +664,28 @@ public class ExecutionEngineIPC extends ExecutionEngine {
          * Read and deserialize a long from the wire.
          */
         public long readLong() throws IOException {
-            final ByteBuffer longBytes = ByteBuffer.allocate(8);
-
-            //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
-            while (longBytes.hasRemaining()) {
-                int read = m_socketChannel.read(longBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            longBytes.flip();
-
-            final long retval = longBytes.getLong();
-            return retval;
+            return readScratch(8).getLong();
         }
 
         /**
          * Read and deserialize an int from the wire.
          */
         public int readInt() throws IOException {
-            final ByteBuffer intBytes = ByteBuffer.allocate(4);
-
-            //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
-            while (intBytes.hasRemaining()) {
-                int read = m_socketChannel.read(intBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            intBytes.flip();
-
-            final int retval = intBytes.getInt();
-            return retval;
+            return readScratch(4).getInt();
         }
 
         /**
          * Read and deserialize a short from the wire.
          */
         public short readShort() throws IOException {
-            final ByteBuffer shortBytes = ByteBuffer.allocate(2);
-
-            //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
-            while (shortBytes.hasRemaining()) {
-                int read = m_socketChannel.read(shortBytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            shortBytes.flip();
-
-            final short retval = shortBytes.getShort();
-            return retval;
+            return readScratch(2).getShort();
         }
 
         /**
          * Read and deserialize a byte from the wire.
          */
         public byte readByte() throws IOException {
-            final ByteBuffer bytes = ByteBuffer.allocate(1);
-
-            //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
-            while (bytes.hasRemaining()) {
-                int read = m_socketChannel.read(bytes);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            bytes.flip();
-
-            final byte retval = bytes.get();
-            return retval;
+            return readScratch(1).get();
         }
 
         /**
@@ -752,7 +696,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
             while (stringBytes.hasRemaining()) {
-                int read = m_socketChannel.read(stringBytes);
+                int read = m_channel.read(stringBytes);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -764,22 +708,14 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
 
         public void throwException(final int errorCode) throws IOException {
-            final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
-            while (lengthBuffer.hasRemaining()) {
-                int read = m_socketChannel.read(lengthBuffer);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            lengthBuffer.flip();
-            final int exceptionLength = lengthBuffer.getInt();//Length is only between EE and Java.
+            final int exceptionLength = readInt();//Length is only between EE and Java.
             if (exceptionLength == 0) {
                 throw new EEException(errorCode);
             } else {
                 final ByteBuffer exceptionBuffer = ByteBuffer.allocate(exceptionLength + 4);
                 exceptionBuffer.putInt(exceptionLength);
                 while(exceptionBuffer.hasRemaining()) {
-                    int read = m_socketChannel.read(exceptionBuffer);
+                    int read = m_channel.read(exceptionBuffer);
                     if (read == -1) {
                         throw new EOFException();
                     }
@@ -848,6 +784,15 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         m_dataNetwork.position(4);
         m_data = m_dataNetwork.slice();
 
+        if (USE_SHARED_MEMORY) {
+            try {
+                m_connection.useSharedMemory();
+            } catch (final IOException e) {
+                System.out.println("Exception: " + e.getMessage());
+                throw new RuntimeException(e);
+            }
+        }
+
         initialize(
                 m_clusterIndex,
                 m_siteId,
@@ -1309,7 +1254,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     private ByteBuffer readMessage() throws IOException {
         final ByteBuffer messageLengthBuffer = ByteBuffer.allocate(4);
         while (messageLengthBuffer.hasRemaining()) {
-            int read = m_connection.m_socketChannel.read(messageLengthBuffer);
+            int read = m_connection.m_channel.read(messageLengthBuffer);
             if (read == -1) {
                 throw new EOFException("End of file reading statistics(1)");
             }
@@ -1321,7 +1266,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
         final ByteBuffer messageBuffer = ByteBuffer.allocate(length);
         while (messageBuffer.hasRemaining()) {
-            int read = m_connection.m_socketChannel.read(messageBuffer);
+            int read = m_connection.m_channel.read(messageBuffer);
             if (read == -1) {
                 throw new EOFException("End of file reading statistics(2)");
             }
@@ -1426,7 +1371,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     private void sendDependencyTable(final int dependencyId) throws IOException{
         final byte[] dependencyBytes = nextDependencyAsBytes(dependencyId);
         if (dependencyBytes == null) {
-            m_connection.m_socket.getOutputStream().write(Connection.kErrorCode_DependencyNotFound);
+            m_connection.m_channel.write(ByteBuffer.wrap(new byte[] { (byte) Connection.kErrorCode_DependencyNotFound }));
             return;
         }
         // 1 for response code + 4 for dependency length prefix + dependencyBytes.length
@@ -1441,7 +1386,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         // finally, write dependency table itself
         message.put(dependencyBytes);
         message.rewind();
-        if (m_connection.m_socketChannel.write(message) != message.capacity()) {
+        if (m_connection.m_channel.write(message) != message.capacity()) {
             throw new IOException("Unable to send dependency table to client. Attempted blocking write of " +
                     message.capacity() + " but not all of it was written");
         }
@@ -1500,7 +1445,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             // Get the count.
             ByteBuffer countBuffer = ByteBuffer.allocate(4);
             while (countBuffer.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(countBuffer);
+                int read = m_connection.m_channel.read(countBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -1512,7 +1457,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             // Get the remaining tuple count.
             ByteBuffer remainingBuffer = ByteBuffer.allocate(8);
             while (remainingBuffer.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(remainingBuffer);
+                int read = m_connection.m_channel.read(remainingBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -1530,7 +1475,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             for (int i = 0; i < count; i++) {
                 ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
                 while (lengthBuffer.hasRemaining()) {
-                    int read = m_connection.m_socketChannel.read(lengthBuffer);
+                    int read = m_connection.m_channel.read(lengthBuffer);
                     if (read == -1) {
                         throw new EOFException();
                     }
@@ -1540,7 +1485,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 ByteBuffer view = outputBuffers.get(i).b().duplicate();
                 view.limit(view.position() + serialized[i]);
                 while (view.hasRemaining()) {
-                    m_connection.m_socketChannel.read(view);
+                    m_connection.m_channel.read(view);
                 }
             }
             return Pair.of(remaining, serialized);
@@ -1569,7 +1514,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             ByteBuffer results = ByteBuffer.allocate(8);
             while (results.remaining() > 0) {
-                m_connection.m_socketChannel.read(results);
+                m_connection.m_channel.read(results);
             }
             results.flip();
             long result_offset = results.getLong();
@@ -1602,7 +1547,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             ByteBuffer results = ByteBuffer.allocate(1);
             while (results.remaining() > 0) {
-                m_connection.m_socketChannel.read(results);
+                m_connection.m_channel.read(results);
             }
             results.flip();
             return results.get();
@@ -1628,7 +1573,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             ByteBuffer results = ByteBuffer.allocate(16);
             while (results.remaining() > 0) {
-                m_connection.m_socketChannel.read(results);
+                m_connection.m_channel.read(results);
             }
             results.flip();
 
@@ -1674,7 +1619,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.readStatusByte();
             ByteBuffer hashCode = ByteBuffer.allocate(8);
             while (hashCode.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(hashCode);
+                int read = m_connection.m_channel.read(hashCode);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1706,7 +1651,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.readStatusByte();
             ByteBuffer part = ByteBuffer.allocate(4);
             while (part.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(part);
+                int read = m_connection.m_channel.read(part);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1754,7 +1699,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.write();
             ByteBuffer rowCount = ByteBuffer.allocate(8);
             while (rowCount.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(rowCount);
+                int read = m_connection.m_channel.read(rowCount);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1778,7 +1723,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.readStatusByte();
             ByteBuffer allocations = ByteBuffer.allocate(8);
             while (allocations.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(allocations);
+                int read = m_connection.m_channel.read(allocations);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1804,7 +1749,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.readStatusByte();
             ByteBuffer length = ByteBuffer.allocate(4);
             while (length.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(length);
+                int read = m_connection.m_channel.read(length);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1813,7 +1758,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             ByteBuffer retval = ByteBuffer.allocate(length.getInt());
             while (retval.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(retval);
+                int read = m_connection.m_channel.read(retval);
                 if (read <= 0) {
                     throw new EOFException();
                 }
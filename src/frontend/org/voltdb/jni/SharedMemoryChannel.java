@@ -0,0 +1,344 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.voltdb.jni;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.voltcore.utils.Bits;
+import org.voltcore.utils.VoltUnsafe;
+
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * The byte stream between an ExecutionEngineIPC site and its thread in the
+ * voltdbipc process, carried by two single producer, single consumer byte rings
+ * in a shared memory file instead of the loopback socket. The protocol on top is
+ * unchanged, it just no longer costs two system calls and two copies through the
+ * kernel per message.
+ *
+ * The rings carry that byte stream rather than mapping the regions JNI hands to
+ * nativeSetBuffers. voltdbipc gives its engine buffers of its own and fills them
+ * from each command, and the EE's calls back into Java (dependencies, UDFs,
+ * per-fragment stats, crashes) are replies in the same stream. Sharing the JNI
+ * regions would need both ends of every command rewritten, a new channel for
+ * those callbacks, and remapping whenever ExecutionEngine grows a buffer. That
+ * would save one memcpy per message on top of what the rings already save.
+ *
+ * Layout, in host byte order, must match IpcTransport in voltdbipc.cpp:
+ * [int magic][int ring size] at 0, then the head and tail of each ring and a closed
+ * flag for each side, each on its own cache line, then at HEADER_SIZE the ring
+ * carrying requests to the EE followed by the ring carrying its replies. Heads and
+ * tails are byte counts that only grow, a position modulo the ring size is the
+ * offset into the ring.
+ *
+ * Java has no futex, so a blocked reader or writer spins, then yields, then parks
+ * in short intervals, and every so often checks that the other side has not closed
+ * the rings or the socket they were negotiated over.
+ *
+ * The rings are unmapped on close, and touching them afterwards crashes the JVM,
+ * so close waits for threads still inside read or write to leave first.
+ */
+public class SharedMemoryChannel implements ByteChannel {
+
+    static final int MAGIC = 0x56495043; // VIPC
+    static final int TO_EE_HEAD = 64;
+    static final int TO_EE_TAIL = 128;
+    static final int FROM_EE_HEAD = 192;
+    static final int FROM_EE_TAIL = 256;
+    static final int JAVA_CLOSED = 320;
+    static final int EE_CLOSED = 384;
+    static final int HEADER_SIZE = 4096;
+
+    /** Size of each ring, a power of two */
+    static final int RING_SIZE = ringSize(Integer.getInteger("EE_IPC_RING_MB", 16));
+
+    // Spinning only helps when the other side can run at the same time
+    private static final long SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 10000 : 0;
+    private static final long YIELDS = 100;
+    private static final long SLEEP_NANOS = 50000;
+    private static final long SLEEPS_PER_PROBE = 2000;
+
+    private final File m_file;
+    private final MappedByteBuffer m_map;
+    private final int m_ringSize;
+    private final SocketChannel m_peer;
+
+    // Absolute addresses of the positions and flags this side uses
+    private final long m_readHead;
+    private final long m_readTail;
+    private final long m_writeHead;
+    private final long m_writeTail;
+    private final long m_closed;
+    private final long m_peerClosed;
+
+    private final ByteBuffer m_readRing;
+    private final ByteBuffer m_writeRing;
+    private final ByteBuffer m_probe = ByteBuffer.allocate(1);
+    private long m_readPosition;
+    private long m_writePosition;
+    private volatile boolean m_open = true;
+    // Threads inside read or write, which close waits out before unmapping the rings
+    private final AtomicInteger m_users = new AtomicInteger();
+
+    static int ringSize(int megabytes) {
+        final int size = Math.max(1, megabytes) * 1024 * 1024;
+        return Integer.bitCount(size) == 1 ? size : Integer.highestOneBit(size) << 1;
+    }
+
+    /**
+     * Create the shared memory file for a site, in /dev/shm when there is one.
+     *
+     * @param peer the socket the rings are negotiated over, probed in non-blocking
+     * mode to notice the EE going away, or null
+     */
+    static SharedMemoryChannel create(String prefix, int ringSize, SocketChannel peer) throws IOException {
+        File dir = new File("/dev/shm");
+        if (!dir.isDirectory() || !dir.canWrite()) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        final File file = File.createTempFile(prefix, ".ipc", dir);
+        try {
+            return new SharedMemoryChannel(file, ringSize, false, peer);
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * @param eeSide true to open the EE's end of an existing file, which only tests
+     * and benchmarks do from Java
+     */
+    SharedMemoryChannel(File file, int ringSize, boolean eeSide, SocketChannel peer) throws IOException {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size " + ringSize + " is not a power of two");
+        }
+        m_file = file;
+        m_ringSize = ringSize;
+        m_peer = peer;
+        final long size = HEADER_SIZE + 2L * ringSize;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (!eeSide) {
+                raf.setLength(size);
+            }
+            else if (raf.length() != size) {
+                throw new IOException("Shared memory file " + file + " is " + raf.length() + " bytes, expected " + size);
+            }
+            m_map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        final long address = ((DirectBuffer) m_map).address();
+        if (!eeSide) {
+            Bits.unsafe.putInt(address, MAGIC);
+            Bits.unsafe.putIntVolatile(null, address + 4, ringSize);
+        }
+        else if (Bits.unsafe.getIntVolatile(null, address) != MAGIC ||
+                 Bits.unsafe.getIntVolatile(null, address + 4) != ringSize) {
+            VoltUnsafe.cleanDirectBuffer(m_map);
+            throw new IOException("Shared memory file " + file + " has an unexpected header");
+        }
+
+        m_readHead = address + (eeSide ? TO_EE_HEAD : FROM_EE_HEAD);
+        m_readTail = address + (eeSide ? TO_EE_TAIL : FROM_EE_TAIL);
+        m_writeHead = address + (eeSide ? FROM_EE_HEAD : TO_EE_HEAD);
+        m_writeTail = address + (eeSide ? FROM_EE_TAIL : TO_EE_TAIL);
+        m_closed = address + (eeSide ? EE_CLOSED : JAVA_CLOSED);
+        m_peerClosed = address + (eeSide ? JAVA_CLOSED : EE_CLOSED);
+        m_readPosition = Bits.unsafe.getLongVolatile(null, m_readTail);
+        m_writePosition = Bits.unsafe.getLongVolatile(null, m_writeHead);
+
+        final ByteBuffer toEE = ring(HEADER_SIZE);
+        final ByteBuffer fromEE = ring(HEADER_SIZE + ringSize);
+        m_readRing = eeSide ? toEE : fromEE;
+        m_writeRing = eeSide ? fromEE : toEE;
+    }
+
+    private ByteBuffer ring(int offset) {
+        final ByteBuffer ring = m_map.duplicate();
+        ring.position(offset).limit(offset + m_ringSize);
+        return ring.slice();
+    }
+
+    File getFile() {
+        return m_file;
+    }
+
+    int getRingSize() {
+        return m_ringSize;
+    }
+
+    /** Remove the file once both sides have it mapped, so nothing is left behind by a crash */
+    void unlink() {
+        m_file.delete();
+    }
+
+    /**
+     * Read what is available, blocking until there is at least one byte.
+     * @return the number of bytes read, or -1 if the other side went away
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        enter();
+        try {
+            return readRing(dst);
+        } finally {
+            m_users.decrementAndGet();
+        }
+    }
+
+    private int readRing(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        long available;
+        long attempt = 0;
+        while ((available = Bits.unsafe.getLongVolatile(null, m_readHead) - m_readPosition) == 0) {
+            if (!backoff(attempt++)) {
+                return -1;
+            }
+        }
+        final int n = (int) Math.min(available, dst.remaining());
+        final int offset = (int) (m_readPosition & (m_ringSize - 1));
+        final int first = Math.min(n, m_ringSize - offset);
+        m_readRing.clear();
+        m_readRing.position(offset).limit(offset + first);
+        dst.put(m_readRing);
+        if (first < n) {
+            m_readRing.clear();
+            m_readRing.limit(n - first);
+            dst.put(m_readRing);
+        }
+        m_readPosition += n;
+        Bits.unsafe.putOrderedLong(null, m_readTail, m_readPosition);
+        return n;
+    }
+
+    /** Write all of the buffer, blocking while the ring is full */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        enter();
+        try {
+            return writeRing(src);
+        } finally {
+            m_users.decrementAndGet();
+        }
+    }
+
+    private int writeRing(ByteBuffer src) throws IOException {
+        final int total = src.remaining();
+        long attempt = 0;
+        while (src.hasRemaining()) {
+            final long space = m_ringSize - (m_writePosition - Bits.unsafe.getLongVolatile(null, m_writeTail));
+            if (space == 0) {
+                if (!backoff(attempt++)) {
+                    throw new EOFException("The other side of " + m_file + " went away");
+                }
+                continue;
+            }
+            attempt = 0;
+            final int n = (int) Math.min(space, src.remaining());
+            final int offset = (int) (m_writePosition & (m_ringSize - 1));
+            final int first = Math.min(n, m_ringSize - offset);
+            final int limit = src.limit();
+            src.limit(src.position() + first);
+            m_writeRing.clear();
+            m_writeRing.position(offset);
+            m_writeRing.put(src);
+            if (first < n) {
+                src.limit(src.position() + n - first);
+                m_writeRing.clear();
+                m_writeRing.put(src);
+            }
+            src.limit(limit);
+            m_writePosition += n;
+            Bits.unsafe.putOrderedLong(null, m_writeHead, m_writePosition);
+        }
+        return total;
+    }
+
+    /** @return false once the other side has gone away */
+    private boolean backoff(long attempt) throws IOException {
+        if (!m_open) {
+            throw new AsynchronousCloseException();
+        }
+        if (attempt < SPINS) {
+            return true;
+        }
+        if (attempt < SPINS + YIELDS) {
+            Thread.yield();
+            return true;
+        }
+        LockSupport.parkNanos(SLEEP_NANOS);
+        return (attempt - SPINS - YIELDS) % SLEEPS_PER_PROBE != 0 || peerAlive();
+    }
+
+    private boolean peerAlive() throws IOException {
+        if (Bits.unsafe.getIntVolatile(null, m_peerClosed) != 0) {
+            return false;
+        }
+        if (m_peer != null) {
+            // Nothing is sent on the socket once the rings are in use
+            m_probe.clear();
+            return m_peer.read(m_probe) != -1;
+        }
+        return true;
+    }
+
+    private void enter() throws IOException {
+        // Pairs with close, which clears m_open before it counts the users
+        m_users.incrementAndGet();
+        if (!m_open) {
+            m_users.decrementAndGet();
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return m_open;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!m_open) {
+                return;
+            }
+            m_open = false;
+        }
+        Bits.unsafe.putIntVolatile(null, m_closed, 1);
+        // A blocked reader or writer notices at its next backoff
+        while (m_users.get() > 0) {
+            LockSupport.parkNanos(SLEEP_NANOS);
+        }
+        VoltUnsafe.cleanDirectBuffer(m_map);
+        m_file.delete();
+    }
+}
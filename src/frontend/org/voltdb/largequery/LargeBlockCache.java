@@ -0,0 +1,106 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.largequery;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A memory bounded cache of large query blocks as they are stored on disk, evicting
+ * the least recently used blocks first. Loads that hit the cache only decompress.
+ */
+class LargeBlockCache {
+
+    private final long m_capacityBytes;
+    private final LinkedHashMap<BlockId, byte[]> m_blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long m_sizeBytes = 0;
+
+    private long m_hits = 0;
+    private long m_misses = 0;
+
+    LargeBlockCache(long capacityBytes) {
+        m_capacityBytes = capacityBytes;
+    }
+
+    boolean isEnabled() {
+        return m_capacityBytes > 0;
+    }
+
+    /**
+     * Cache the stored bytes of a block, evicting older blocks to make room.
+     * Blocks larger than the whole cache are not cached.
+     */
+    synchronized void put(BlockId blockId, byte[] stored) {
+        if (stored.length > m_capacityBytes) {
+            return;
+        }
+        final byte[] previous = m_blocks.put(blockId, stored);
+        if (previous != null) {
+            m_sizeBytes -= previous.length;
+        }
+        m_sizeBytes += stored.length;
+        final Iterator<Map.Entry<BlockId, byte[]>> it = m_blocks.entrySet().iterator();
+        while (m_sizeBytes > m_capacityBytes && it.hasNext()) {
+            final Map.Entry<BlockId, byte[]> eldest = it.next();
+            m_sizeBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the stored bytes of the block, or null if it is not cached
+     */
+    synchronized byte[] get(BlockId blockId) {
+        final byte[] stored = m_blocks.get(blockId);
+        if (stored == null) {
+            m_misses++;
+        } else {
+            m_hits++;
+        }
+        return stored;
+    }
+
+    synchronized boolean contains(BlockId blockId) {
+        return m_blocks.containsKey(blockId);
+    }
+
+    synchronized void remove(BlockId blockId) {
+        final byte[] stored = m_blocks.remove(blockId);
+        if (stored != null) {
+            m_sizeBytes -= stored.length;
+        }
+    }
+
+    synchronized void clear() {
+        m_blocks.clear();
+        m_sizeBytes = 0;
+    }
+
+    synchronized long getSizeBytes() {
+        return m_sizeBytes;
+    }
+
+    synchronized long getHits() {
+        return m_hits;
+    }
+
+    synchronized long getMisses() {
+        return m_misses;
+    }
+}
@@ -27,14 +27,19 @@ import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.utils.VoltFile;
 
@@ -46,17 +51,56 @@ import org.voltdb.utils.VoltFile;
  *
  * This class is also responsible for managing the files in the
  * directory large_query_swap under voltdbroot.
+ *
+ * Blocks are LZ4 compressed on disk, and the most recently used ones are also kept
+ * in a memory bounded cache. Tasks run on a few I/O threads, striped by block id so
+ * the tasks for one block still run in order. When a site loads consecutive blocks,
+ * the next few blocks are read into the cache ahead of it.
  */
 public class LargeBlockManager {
+    private static final VoltLogger LOG = new VoltLogger("HOST");
     private static LargeBlockManager INSTANCE = null;
 
     private final static Set<OpenOption> OPEN_OPTIONS = new HashSet<>();
     private final static FileAttribute<Set<PosixFilePermission>> PERMISSIONS;
 
+    static final int IO_THREADS = Integer.getInteger("LARGE_BLOCK_IO_THREADS", 4);
+    static final long CACHE_BYTES = Long.getLong("LARGE_BLOCK_CACHE_MB", 128) * 1024 * 1024;
+    static final int PREFETCH_BLOCKS = Integer.getInteger("LARGE_BLOCK_PREFETCH", 2);
+    static final boolean COMPRESS = Boolean.parseBoolean(System.getProperty("LARGE_BLOCK_COMPRESS", "true"));
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    /**
+     * Where a block is stored and how to read it back.
+     */
+    private static class StoredBlock {
+        final Path m_path;
+        final int m_length;
+        // -1 if the block is stored uncompressed
+        final int m_compressedLength;
+
+        StoredBlock(Path path, int length, int compressedLength) {
+            m_path = path;
+            m_length = length;
+            m_compressedLength = compressedLength;
+        }
+
+        int storedLength() {
+            return m_compressedLength < 0 ? m_length : m_compressedLength;
+        }
+    }
+
     private final Path m_largeQuerySwapPath;
-    private final Map<BlockId, Path> m_blockPathMap = new HashMap<>();
-    private final Object m_accessLock = new Object();
-    private final ListeningExecutorService m_es = CoreUtils.getCachedSingleThreadExecutor("LargeBlockManager", 1000);
+    private final Map<BlockId, StoredBlock> m_blockPathMap = new ConcurrentHashMap<>();
+    private final ListeningExecutorService[] m_es = new ListeningExecutorService[IO_THREADS];
+    private final LargeBlockCache m_cache;
+    // The last block each site loaded, to detect sequential scans
+    private final Map<Long, Long> m_lastLoadedBlock = new ConcurrentHashMap<>();
+
+    private final AtomicLong m_bytesStored = new AtomicLong();
+    private final AtomicLong m_bytesWritten = new AtomicLong();
+    private final AtomicLong m_prefetches = new AtomicLong();
 
     static {
         OPEN_OPTIONS.add(StandardOpenOption.CREATE_NEW);
@@ -73,12 +117,17 @@ public class LargeBlockManager {
      * @throws IOException if for some reason we cannot delete files
      */
     public static void startup(Path largeQuerySwapPath) throws IOException {
+        startup(largeQuerySwapPath, CACHE_BYTES);
+    }
+
+    // Given package visibility for unit testing with a smaller cache.
+    static void startup(Path largeQuerySwapPath, long cacheBytes) throws IOException {
 
         // There could be an old instance hanging around in the case of some
         // JUnit tests that have an in-process server that is re-used.  This is
         // okay.  Create a new instance of LargeBlockManager regardless.
 
-        INSTANCE = new LargeBlockManager(largeQuerySwapPath);
+        INSTANCE = new LargeBlockManager(largeQuerySwapPath, cacheBytes);
         INSTANCE.startupInstance();
     }
 
@@ -103,8 +152,12 @@ public class LargeBlockManager {
     /**
      * Private constructor---use initializeInstance and getInstance instead.
      */
-    private LargeBlockManager(Path largeQuerySwapPath) {
+    private LargeBlockManager(Path largeQuerySwapPath, long cacheBytes) {
         m_largeQuerySwapPath = largeQuerySwapPath;
+        m_cache = new LargeBlockCache(cacheBytes);
+        for (int i = 0; i < m_es.length; i++) {
+            m_es[i] = CoreUtils.getCachedSingleThreadExecutor("LargeBlockManager " + i, 1000);
+        }
     }
 
     /**
@@ -160,7 +213,25 @@ public class LargeBlockManager {
     }
 
     public Future<LargeBlockResponse> submitTask(LargeBlockTask task) {
-        return m_es.submit(task);
+        return executorFor(task.getBlockId()).submit(task);
+    }
+
+    private ListeningExecutorService executorFor(BlockId blockId) {
+        return m_es[stripeFor(blockId, m_es.length)];
+    }
+
+    /**
+     * A site's block ids are sequential, and BlockId.hashCode() keeps them that way in
+     * its low bits, so the stripe comes from both ids run through the murmur3 finalizer.
+     */
+    static int stripeFor(BlockId blockId, int stripes) {
+        long h = blockId.getSiteId() * 0x9E3779B97F4A7C15L ^ blockId.getBlockId();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) ((h >>> 1) % stripes);
     }
 
     /**
@@ -170,24 +241,43 @@ public class LargeBlockManager {
      * @throws IOException
      */
     void storeBlock(BlockId blockId, ByteBuffer block) throws IOException {
-        synchronized (m_accessLock) {
-            if (m_blockPathMap.containsKey(blockId)) {
-                throw new IllegalArgumentException("Request to store block that is already stored: "
-                                                    + blockId.toString());
-            }
+        if (m_blockPathMap.containsKey(blockId)) {
+            throw new IllegalArgumentException("Request to store block that is already stored: "
+                                                + blockId.toString());
+        }
 
-            int origPosition = block.position();
-            block.position(0);
-            Path blockPath = makeBlockPath(blockId);
-            try (SeekableByteChannel channel = Files.newByteChannel(blockPath, OPEN_OPTIONS, PERMISSIONS)) {
-                channel.write(block);
-            }
-            finally {
-                block.position(origPosition);
+        final int length = block.limit();
+        final byte[] raw = new byte[length];
+        final ByteBuffer dup = block.duplicate();
+        dup.position(0);
+        dup.get(raw);
+
+        byte[] stored = raw;
+        int compressedLength = -1;
+        if (COMPRESS) {
+            final LZ4Compressor compressor = LZ4.fastCompressor();
+            final byte[] compressed = new byte[compressor.maxCompressedLength(length)];
+            final int size = compressor.compress(raw, 0, length, compressed, 0, compressed.length);
+            // Not worth decompressing if it barely shrinks
+            if (size < length - length / 8) {
+                stored = new byte[size];
+                System.arraycopy(compressed, 0, stored, 0, size);
+                compressedLength = size;
             }
+        }
 
-            m_blockPathMap.put(blockId, blockPath);
+        Path blockPath = makeBlockPath(blockId);
+        try (SeekableByteChannel channel = Files.newByteChannel(blockPath, OPEN_OPTIONS, PERMISSIONS)) {
+            final ByteBuffer buf = ByteBuffer.wrap(stored);
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
         }
+
+        m_blockPathMap.put(blockId, new StoredBlock(blockPath, length, compressedLength));
+        m_cache.put(blockId, stored);
+        m_bytesStored.addAndGet(length);
+        m_bytesWritten.addAndGet(stored.length);
     }
 
     /**
@@ -198,20 +288,80 @@ public class LargeBlockManager {
      * @throws IOException
      */
     void loadBlock(BlockId blockId, ByteBuffer block) throws IOException {
-        synchronized (m_accessLock) {
-            if (! m_blockPathMap.containsKey(blockId)) {
-                throw new IllegalArgumentException("Request to load block that is not stored: " + blockId);
-            }
+        final StoredBlock storedBlock = m_blockPathMap.get(blockId);
+        if (storedBlock == null) {
+            throw new IllegalArgumentException("Request to load block that is not stored: " + blockId);
+        }
+
+        prefetchAfter(blockId);
+
+        byte[] stored = m_cache.get(blockId);
+        if (stored == null) {
+            stored = readStoredBytes(storedBlock);
+            m_cache.put(blockId, stored);
+        }
+
+        final byte[] raw;
+        if (storedBlock.m_compressedLength < 0) {
+            raw = stored;
+        } else {
+            raw = new byte[storedBlock.m_length];
+            LZ4.fastDecompressor().decompress(stored, 0, raw, 0, storedBlock.m_length);
+        }
+
+        final ByteBuffer dup = block.duplicate();
+        dup.position(0);
+        dup.put(raw, 0, Math.min(raw.length, dup.remaining()));
+    }
 
-            int origPosition = block.position();
-            block.position(0);
-            Path blockPath = m_blockPathMap.get(blockId);
-            try (SeekableByteChannel channel = Files.newByteChannel(blockPath)) {
-                channel.read(block);
+    private static byte[] readStoredBytes(StoredBlock storedBlock) throws IOException {
+        final byte[] stored = new byte[storedBlock.storedLength()];
+        try (SeekableByteChannel channel = Files.newByteChannel(storedBlock.m_path)) {
+            final ByteBuffer buf = ByteBuffer.wrap(stored);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    throw new IOException("Unexpected end of large query block file " + storedBlock.m_path);
+                }
             }
-            finally {
-                block.position(origPosition);
+        }
+        return stored;
+    }
+
+    /**
+     * If the site is loading its blocks in order, read the next few into the cache,
+     * each on the thread of its own stripe so it stays ordered with its release.
+     */
+    private void prefetchAfter(BlockId blockId) {
+        final long siteId = blockId.getSiteId();
+        final Long last = m_lastLoadedBlock.put(siteId, blockId.getBlockId());
+        if (PREFETCH_BLOCKS <= 0 || !m_cache.isEnabled() || last == null) {
+            return;
+        }
+        final long step = blockId.getBlockId() - last;
+        if (step != 1 && step != -1) {
+            return;
+        }
+        for (int i = 1; i <= PREFETCH_BLOCKS; i++) {
+            final BlockId next = new BlockId(siteId, blockId.getBlockId() + step * i);
+            if (!m_blockPathMap.containsKey(next) || m_cache.contains(next)) {
+                continue;
             }
+            executorFor(next).execute(new Runnable() {
+                @Override
+                public void run() {
+                    final StoredBlock storedBlock = m_blockPathMap.get(next);
+                    if (storedBlock == null || m_cache.contains(next)) {
+                        return;
+                    }
+                    try {
+                        m_cache.put(next, readStoredBytes(storedBlock));
+                        m_prefetches.incrementAndGet();
+                    } catch (IOException e) {
+                        // The load will read it and report the error
+                        LOG.debug("Unable to prefetch large query block " + next + ": " + e.getMessage());
+                    }
+                }
+            });
         }
     }
 
@@ -221,15 +371,14 @@ public class LargeBlockManager {
      * @throws IOException
      */
     void releaseBlock(BlockId blockId) throws IOException {
-        synchronized (m_accessLock) {
-            if (! m_blockPathMap.containsKey(blockId)) {
-                throw new IllegalArgumentException("Request to release block that is not stored: " + blockId);
-            }
-
-            Path blockPath = m_blockPathMap.get(blockId);
-            Files.delete(blockPath);
-            m_blockPathMap.remove(blockId);
+        final StoredBlock storedBlock = m_blockPathMap.get(blockId);
+        if (storedBlock == null) {
+            throw new IllegalArgumentException("Request to release block that is not stored: " + blockId);
         }
+
+        m_cache.remove(blockId);
+        Files.delete(storedBlock.m_path);
+        m_blockPathMap.remove(blockId);
     }
 
     /**
@@ -238,14 +387,12 @@ public class LargeBlockManager {
      * @throws IOException
      */
     private void releaseAllBlocks() throws IOException {
-        synchronized (m_accessLock) {
-            Set<Map.Entry<BlockId, Path>> entries = m_blockPathMap.entrySet();
-            while (! entries.isEmpty()) {
-                Map.Entry<BlockId, Path> entry = entries.iterator().next();
-                Files.delete(entry.getValue());
-                m_blockPathMap.remove(entry.getKey());
-                entries = m_blockPathMap.entrySet();
-            }
+        m_cache.clear();
+        m_lastLoadedBlock.clear();
+        Iterator<Map.Entry<BlockId, StoredBlock>> it = m_blockPathMap.entrySet().iterator();
+        while (it.hasNext()) {
+            Files.delete(it.next().getValue().m_path);
+            it.remove();
         }
     }
 
@@ -255,4 +402,24 @@ public class LargeBlockManager {
         String filename = id.fileNameString();
         return m_largeQuerySwapPath.resolve(filename);
     }
+
+    long getCacheHits() {
+        return m_cache.getHits();
+    }
+
+    long getCacheMisses() {
+        return m_cache.getMisses();
+    }
+
+    long getPrefetchCount() {
+        return m_prefetches.get();
+    }
+
+    /**
+     * @return the bytes written to disk over the bytes stored, 1.0 without compression
+     */
+    double getCompressionRatio() {
+        final long stored = m_bytesStored.get();
+        return stored == 0 ? 1.0 : m_bytesWritten.get() / (double) stored;
+    }
 }
@@ -20,6 +20,7 @@ package org.voltdb.messaging;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
+import org.voltcore.messaging.PoolableMessage;
 import org.voltcore.messaging.Subject;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
@@ -37,7 +38,7 @@ import org.voltdb.iv2.TxnEgo;
  * event of an error, a text message can be embedded in a table attached.
  *
  */
-public class FragmentResponseMessage extends VoltMessage {
+public class FragmentResponseMessage extends VoltMessage implements PoolableMessage {
 
     public static final byte SUCCESS          = 1;
     public static final byte USER_ERROR       = 2;
@@ -143,6 +144,7 @@ public class FragmentResponseMessage extends VoltMessage {
     }
 
     public long getExecutorSiteId() {
+        assert(isLive());
         return m_executorHSId;
     }
 
@@ -151,6 +153,7 @@ public class FragmentResponseMessage extends VoltMessage {
     }
 
     public long getTxnId() {
+        assert(isLive());
         return m_txnId;
     }
 
@@ -167,10 +170,12 @@ public class FragmentResponseMessage extends VoltMessage {
     }
 
     public byte getStatusCode() {
+        assert(isLive());
         return m_status;
     }
 
     public int getTableCount() {
+        assert(isLive());
         return m_dependencyCount;
     }
 
@@ -179,6 +184,7 @@ public class FragmentResponseMessage extends VoltMessage {
     }
 
     public VoltTable getTableAtIndex(int index) {
+        assert(isLive());
         return m_dependencies.get(index).getTableDependency();
     }
 
@@ -195,6 +201,7 @@ public class FragmentResponseMessage extends VoltMessage {
     }
 
     public SerializableException getException() {
+        assert(isLive());
         return m_exception;
     }
 
@@ -305,6 +312,27 @@ public class FragmentResponseMessage extends VoltMessage {
         assert(buf.capacity() == buf.position());
     }
 
+    @Override
+    public void reset() {
+        m_sourceHSId = -1;
+        m_subject = Subject.DEFAULT.getId();
+        m_executorHSId = 0;
+        m_destinationHSId = 0;
+        m_txnId = 0;
+        m_spHandle = 0;
+        m_status = 0;
+        m_dirty = true;
+        m_recovering = false;
+        m_respBufferable = true;
+        m_dependencyCount = 0;
+        m_dependencies.clear();
+        m_exception = null;
+        m_partitionId = 1;
+        m_executedOnPreviousLeader = false;
+        m_restartTimestamp = -1L;
+        m_drBufferSize = 0;
+    }
+
     public void setPartitionId(int partitionId) {
         m_partitionId =partitionId;
     }
@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import org.json_voltpatches.JSONException;
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.Subject;
@@ -36,6 +37,7 @@ import org.voltdb.VoltDB;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.common.Constants;
 import org.voltdb.iv2.TxnEgo;
+import org.voltdb.plannodes.BinaryPlanReader;
 import org.voltdb.utils.Encoder;
 import org.voltdb.utils.LogKeys;
 
@@ -110,7 +112,12 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
             }
             if (m_fragmentPlan != null && m_fragmentPlan.length != 0) {
                 sb.append("\n  FRAGMENT_PLAN ");
-                sb.append(new String(m_fragmentPlan, Charsets.UTF_8));
+                try {
+                    sb.append(BinaryPlanReader.toJSONString(m_fragmentPlan));
+                }
+                catch (JSONException e) {
+                    sb.append(e.getMessage());
+                }
             }
             if (m_stmtText != null && m_stmtText.length != 0) {
                 sb.append("\n  STATEMENT_TEXT ");
@@ -561,7 +568,7 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
         final ByteBuffer paramData = m_items.get(index).m_parameterSet.asReadOnlyBuffer();
         if (paramData != null) {
             try {
-                params = ParameterSet.fromByteBuffer(paramData);
+                params = ParameterSet.fromByteBufferNoCopy(paramData);
             }
             catch (final IOException e) {
                 hostLog.l7dlog(Level.FATAL,
@@ -27,6 +27,7 @@ import org.voltcore.utils.Pair;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.TheHashinator;
+import org.voltdb.TransactionStageTrace;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.iv2.DeterminismHash;
@@ -48,6 +49,7 @@ public class InitiateResponseMessage extends VoltMessage {
     private boolean m_recovering;
     private boolean m_readOnly;
     private boolean m_mpFragmentSent = false;   // Needed to correctly advance the truncation handle
+    private TransactionStageTrace m_stageTrace = null;
     private ClientResponseImpl m_response;
 
     // Mis-partitioned invocation needs to send the invocation back to ClientInterface for restart
@@ -241,6 +243,14 @@ public class InitiateResponseMessage extends VoltMessage {
         return m_mpFragmentSent;
     }
 
+    public TransactionStageTrace getStageTrace() {
+        return m_stageTrace;
+    }
+
+    public void setStageTrace(TransactionStageTrace stageTrace) {
+        m_stageTrace = stageTrace;
+    }
+
     @Override
     public int getSerializedSize()
     {
@@ -255,9 +265,13 @@ public class InitiateResponseMessage extends VoltMessage {
             + 1 // node recovering indication
             + 1 // mispartitioned invocation
             + 1 // for m_executedOnPreviousLeader
-            + 1 // MP fragment was sent to SPIs (used for repair log truncation)
+            + 1 // MP fragment was sent to SPIs (used for repair log truncation), stage trace follows
             + m_response.getSerializedSize();
 
+        if (m_stageTrace != null) {
+            msgsize += TransactionStageTrace.SERIALIZED_SIZE;
+        }
+
         if (m_mispartitioned || isMisrouted()) {
             msgsize += m_invocation.getSerializedSize()
                        + 8 // current hashinator version
@@ -282,8 +296,11 @@ public class InitiateResponseMessage extends VoltMessage {
         buf.put((byte) (m_recovering == true ? 1 : 0));
         buf.put((byte) (m_mispartitioned == true ? 1 : 0));
         buf.put((byte) (m_executedOnPreviousLeader == true ? 1 : 0));
-        buf.put((byte) (m_mpFragmentSent  == true ? 1 : 0));
+        buf.put((byte) ((m_mpFragmentSent  == true ? 1 : 0) | (m_stageTrace != null ? 2 : 0)));
         m_response.flattenToBuffer(buf);
+        if (m_stageTrace != null) {
+            m_stageTrace.flattenToBuffer(buf);
+        }
         if (m_mispartitioned || isMisrouted()) {
             buf.putLong(m_currentHashinatorConfig.getFirst());
             buf.putInt(m_currentHashinatorConfig.getSecond().length);
@@ -307,9 +324,13 @@ public class InitiateResponseMessage extends VoltMessage {
         m_recovering = buf.get() == 1;
         m_mispartitioned = buf.get() == 1;
         m_executedOnPreviousLeader = buf.get() == 1;
-        m_mpFragmentSent = buf.get() == 1;
+        final byte fragmentSentAndTrace = buf.get();
+        m_mpFragmentSent = (fragmentSentAndTrace & 1) != 0;
         m_response = new ClientResponseImpl();
         m_response.initFromBuffer(buf);
+        if ((fragmentSentAndTrace & 2) != 0) {
+            m_stageTrace = TransactionStageTrace.fromBuffer(buf);
+        }
         m_commit = (m_response.getStatus() == ClientResponseImpl.SUCCESS);
         if (m_mispartitioned || isMisrouted()) {
             long hashinatorVersion = buf.getLong();
@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.TransactionStageTrace;
 import org.voltdb.iv2.TxnEgo;
 import org.voltdb.iv2.UniqueIdGenerator;
 import org.voltdb.sysprocs.AdHocBase;
@@ -43,6 +44,7 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
     public static int SINGLE_PARTITION_MASK = 1;
     public static int N_PARTITION_MASK = 2;
     public static int SHOULD_RETURN_TABLES_MASK = 2;
+    public static int STAGE_TRACE_MASK = 4;
 
     long m_clientInterfaceHandle;
     long m_connectionId;
@@ -55,6 +57,8 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
 
     // not serialized.
     AtomicBoolean m_isDurable;
+    // Only whether the transaction is sampled is serialized, each host keeps its own trace
+    TransactionStageTrace m_stageTrace;
 
     /** Empty constructor for de-serialization */
     public Iv2InitiateTaskMessage() {
@@ -215,6 +219,14 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         return m_nPartitions;
     }
 
+    public TransactionStageTrace getStageTrace() {
+        return m_stageTrace;
+    }
+
+    public void setStageTrace(TransactionStageTrace stageTrace) {
+        m_stageTrace = stageTrace;
+    }
+
 
     public int getFixedHeaderSize()
     {
@@ -243,6 +255,7 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         byte flags = 0;
         if (m_isSinglePartition) flags |= SINGLE_PARTITION_MASK;
         if (m_nPartitions != null) flags |= N_PARTITION_MASK;
+        if (m_stageTrace != null) flags |= STAGE_TRACE_MASK;
 
         //Should never generate a response if we have to forward to a replica
         //if (m_shouldReturnResultTables) flags |= SHOULD_RETURN_TABLES_MASK;
@@ -276,6 +289,9 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         byte flags = buf.get();
         m_isSinglePartition = (flags & SINGLE_PARTITION_MASK) != 0;
         m_shouldReturnResultTables = (flags & SHOULD_RETURN_TABLES_MASK) != 0;
+        if ((flags & STAGE_TRACE_MASK) != 0) {
+            m_stageTrace = new TransactionStageTrace();
+        }
         if ((flags & N_PARTITION_MASK) != 0) {
             int partitionCount = buf.getShort();
             m_nPartitions = new int[partitionCount];
@@ -19,6 +19,7 @@ package org.voltdb.messaging;
 
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.messaging.VoltMessageFactory;
+import org.voltcore.messaging.VoltMessagePool;
 import org.voltdb.rejoin.RejoinDataAckMessage;
 import org.voltdb.rejoin.RejoinDataMessage;
 
@@ -55,6 +56,14 @@ public class VoltDbMessageFactory extends VoltMessageFactory
     final public static byte Migrate_Partition_Leader_MESSAGE_ID = VOLTCORE_MESSAGE_ID_MAX + 29;
     final public static byte FLUSH_RO_TXN_MESSAGE_ID = VOLTCORE_MESSAGE_ID_MAX + 30;
 
+    /**
+     * Recycle the high volume message types whose end of life is known. Fragment responses
+     * are released by the multi-partition coordinator once their tables are tracked.
+     */
+    public void enableMessagePooling() {
+        poolMessageType(FRAGMENT_RESPONSE_ID, VoltMessagePool.CAPACITY);
+    }
+
     /**
      * Overridden by subclasses to create message types unknown by voltcore
      * @param messageType
@@ -23,7 +23,6 @@ import java.util.List;
 
 import org.voltdb.ParameterSet;
 import org.voltdb.VoltType;
-import org.voltdb.common.Constants;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.ParameterValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
@@ -222,7 +221,7 @@ public class CompiledPlan {
         }
 
         PlanNodeList planList = new PlanNodeList(planGraph, isLargeQuery);
-        return planList.toJSONString().getBytes(Constants.UTF8ENCODING);
+        return planList.toBinaryPlan();
     }
 
     // A reusable step extracted from boundParamIndexes so it can be applied to two different
@@ -1551,7 +1551,23 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
     }
 
     public boolean hasJoinOrder() {
-        return m_joinOrder != null || m_hasLargeNumberOfTableJoins;
+        return m_joinOrder != null || ! m_joinOrderList.isEmpty();
+    }
+
+    /**
+     * @return true if the join has too many tables to plan every join order
+     * and SelectSubPlanAssembler is left to pick one by the cost of its sub-plans.
+     */
+    public boolean hasJoinOrderToPickByCost() {
+        return m_hasLargeNumberOfTableJoins && m_joinOrderList.isEmpty();
+    }
+
+    /**
+     * @return true if the join has too many tables to plan every join order
+     * and no join order was given.
+     */
+    public boolean hasLargeNumberOfTableJoins() {
+        return m_hasLargeNumberOfTableJoins;
     }
 
     public ArrayList<JoinNode> getJoinOrder() {
@@ -1575,13 +1591,24 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         // prepare the join order if needed
         if (m_joinOrder == null &&
                 m_tableAliasListAsJoinOrder.size() >
-                StatementCompiler.DEFAULT_MAX_JOIN_TABLES) {
+                StatementCompiler.MAX_JOIN_TABLES) {
             // When there are large number of table joins,
             // give up the all permutations.
-            // By default, try the join order with the
-            // SQL query table order first.
             m_hasLargeNumberOfTableJoins = true;
 
+            // Inner joins that are not too large get the join order
+            // with the cheapest sub-plans, see SelectSubPlanAssembler.
+            if (m_tableAliasListAsJoinOrder.size() <= StatementCompiler.MAX_DP_JOIN_TABLES &&
+                    m_joinTree.allInnerJoins()) {
+                return;
+            }
+
+            // Try a greedy join order that follows the join
+            // predicates first, then the SQL query table order.
+            if (tryAddOneJoinOrder(greedyJoinOrder())) {
+                return;
+            }
+
             StringBuilder sb = new StringBuilder();
             String separator = "";
             for (int ii = 0; ii < m_tableAliasListAsJoinOrder.size(); ii++) {
@@ -1608,6 +1635,75 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         }
     }
 
+    /**
+     * Pick a join order for a join of too many tables to enumerate all permutations.
+     * Start with the table that has the most single-table filters, then repeatedly
+     * append the table sharing the most join predicates with the tables already placed,
+     * so that no table gets joined as a cross product while a connected table is still
+     * available. Ties keep the FROM clause order, so a join without any predicates keeps
+     * the SQL query table order. This is O(n^2) in the number of tables.
+     *
+     * @return comma separated table aliases in the chosen order
+     */
+    String greedyJoinOrder() {
+        int tableCount = m_tableAliasListAsJoinOrder.size();
+        Map<String, Integer> aliasIndex = new HashMap<>();
+        for (int ii = 0; ii < tableCount; ii++) {
+            aliasIndex.put(m_tableAliasListAsJoinOrder.get(ii), ii);
+        }
+
+        int[] localFilterCounts = new int[tableCount];
+        int[][] joinFilterCounts = new int[tableCount][tableCount];
+        for (AbstractExpression expr : ExpressionUtil.uncombinePredicate(m_joinTree.getAllFilters())) {
+            TreeSet<Integer> referenced = new TreeSet<>();
+            for (TupleValueExpression tve : expr.findAllTupleValueSubexpressions()) {
+                Integer idx = aliasIndex.get(tve.getTableAlias());
+                if (idx != null) {
+                    referenced.add(idx);
+                }
+            }
+            if (referenced.size() == 1) {
+                localFilterCounts[referenced.first()]++;
+                continue;
+            }
+            for (Integer left : referenced) {
+                for (Integer right : referenced) {
+                    if (left.intValue() != right.intValue()) {
+                        joinFilterCounts[left][right]++;
+                    }
+                }
+            }
+        }
+
+        boolean[] placed = new boolean[tableCount];
+        // Number of join predicates between each unplaced table and the placed ones.
+        int[] connections = new int[tableCount];
+        StringBuilder sb = new StringBuilder();
+        for (int step = 0; step < tableCount; step++) {
+            int next = -1;
+            for (int ii = 0; ii < tableCount; ii++) {
+                if (placed[ii]) {
+                    continue;
+                }
+                if (next == -1 ||
+                        connections[ii] > connections[next] ||
+                        (connections[ii] == connections[next] &&
+                         localFilterCounts[ii] > localFilterCounts[next])) {
+                    next = ii;
+                }
+            }
+            placed[next] = true;
+            for (int ii = 0; ii < tableCount; ii++) {
+                connections[ii] += joinFilterCounts[next][ii];
+            }
+            if (step > 0) {
+                sb.append(",");
+            }
+            sb.append(m_tableAliasListAsJoinOrder.get(next));
+        }
+        return sb.toString();
+    }
+
     private boolean tryAddOneJoinOrder(String joinOrder) {
         ArrayList<String> tableAliases = new ArrayList<>();
         //Don't allow dups for now since self joins aren't supported
@@ -108,7 +108,7 @@ public class PlanSelector implements Cloneable {
      */
     public void outputParsedStatement(AbstractParsedStmt parsedStmt) {
         // output a description of the parsed stmt
-        if (!m_quietPlanner) {
+        if (!m_quietPlanner && m_fullDebug) {
             BuildDirectoryUtils.writeFile("statement-parsed", m_procName + "_" + m_stmtName + ".txt",
                     parsedStmt.toString(), true);
         }
@@ -118,7 +118,7 @@ public class PlanSelector implements Cloneable {
      * @param xmlSQL
      */
     public void outputCompiledStatement(VoltXMLElement xmlSQL) {
-        if (!m_quietPlanner) {
+        if (!m_quietPlanner && m_fullDebug) {
             // output the xml from hsql to disk for debugging
             BuildDirectoryUtils.writeFile("statement-hsql-xml", m_procName + "_" + m_stmtName + ".xml",
                     xmlSQL.toString(), true);
@@ -169,7 +169,11 @@ public class PlanSelector implements Cloneable {
             //* enable for debug */ System.out.println("DEBUG [Best plan] updated ***\n");
         }
 
-        outputPlan(plan, planGraph, filename);
+        // Only the winning plan needs its explain string outside of debug mode;
+        // finalizeOutput produces that one.
+        if (m_fullDebug) {
+            outputPlan(plan, planGraph, filename);
+        }
     }
 
     public void finalizeOutput() {
@@ -51,43 +51,46 @@ import org.voltdb.utils.PermutationGenerator;
  */
 public class SelectSubPlanAssembler extends SubPlanAssembler {
 
-    /** The list of generated plans. This allows their generation in batches.*/
-    ArrayDeque<AbstractPlanNode> m_plans = new ArrayDeque<>();
-
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<>();
 
-    private static final Runtime RUN_TIME = Runtime.getRuntime();
-    // Number of times generateSubPlanForJoinNode() gets called recursively that we collect an estimate of heap size,
-    // and early exit if too large heap size had been used.
-    private static final int PLAN_ESTIMATE_PERIOD = 300;
-    // Stop generating any further possible plans, if we have reached xx% of available JVM heap memory
-    private static final short MAX_HEAP_MEMORY_USAGE_PCT = 80;
-    private static final long MAX_ALLOWED_PLAN_MEMORY = RUN_TIME.maxMemory() * MAX_HEAP_MEMORY_USAGE_PCT / 100;
+    /** The join order whose plans are being generated */
+    private JoinNode m_joinTree = null;
+    /** The nodes of that join order, in the order they are joined */
+    private List<JoinNode> m_joinNodes = null;
+    /** For each of these nodes, the index of the access path used by the next plan,
+     * null once every combination of access paths has been planned */
+    private int[] m_accessPathIndexes = null;
+
+    /** The access path of each table in the sub-plans of the join order picked by cost */
+    private final Map<String, AccessPath> m_pickedAccessPaths = new HashMap<>();
+    /** The estimates and cost model the picked join order was costed with */
+    private final PlanSelector m_planSelector;
 
-    /**
-     * Stop further planning, if we have used more heap memory than we could hopefully exhaustively plan it out,
-     * at the time this method is called.
-     *
-     * @return whether we should stop further planning. By the time it returns true, GC had already kicked in a few
-     * rounds.
-     */
-    private static boolean shouldStopPlanning() {
-        return RUN_TIME.totalMemory() - RUN_TIME.freeMemory() >= MAX_ALLOWED_PLAN_MEMORY;
-    }
     /**
      *
      * @param db The catalog's Database object.
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param planSelector The plan selector, whose estimates and cost model cost the sub-plans
+     * of large joins
      */
-    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning)
+    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+                           PlanSelector planSelector)
     {
         super(db, selectStmt, partitioning);
+        m_planSelector = planSelector;
         if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
+            if (selectStmt.hasLargeNumberOfTableJoins() && selectStmt.m_joinTree.allInnerJoins()) {
+                // Too many tables to plan every combination of their access paths either
+                pickAccessPaths(m_joinOrders.peek());
+            }
+        } else if (selectStmt.hasJoinOrderToPickByCost()) {
+            // Too many tables to plan every join order
+            m_joinOrders.add(pickJoinOrderByCost());
         } else {
             assert(m_parsedStmt.m_noTableSelectionList.size() == 0);
             m_joinOrders = queueJoinOrders(m_parsedStmt.m_joinTree, true);
@@ -267,15 +270,357 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     }
 
     /**
-     * Pull a join order out of the join orders deque, compute all possible plans
-     * for that join order, then append them to the computed plans deque.
+     * The cheapest sub-plan found by JoinOrderSearch for a set of tables of a join.
+     * It joins one more table to the cheapest sub-plan of the other tables, so like the
+     * plans of any join order, it is a left-deep join.
+     */
+    private static class JoinSubPlan {
+        /** The tables joined, one bit per leaf of the join tree */
+        final long m_tables;
+        /** The sub-plan of all but the last table, or null for a single table */
+        final JoinSubPlan m_outer;
+        /** The last table */
+        final JoinNode m_leaf;
+        /** The access path to the last table */
+        final AccessPath m_accessPath;
+        final AbstractPlanNode m_plan;
+        final double m_cost;
+
+        JoinSubPlan(long tables, JoinSubPlan outer, JoinNode leaf, AccessPath accessPath,
+                    AbstractPlanNode plan, double cost) {
+            m_tables = tables;
+            m_outer = outer;
+            m_leaf = leaf;
+            m_accessPath = accessPath;
+            m_plan = plan;
+            m_cost = cost;
+        }
+    }
+
+    /**
+     * The sub-plans of an inner join, that pick its join order or its access paths by cost.
+     */
+    private class JoinOrderSearch {
+        private final List<JoinNode> m_leaves;
+        private final Map<String, Integer> m_leafIndexes = new HashMap<>();
+        private final List<AbstractExpression> m_filters;
+        /** The tables each filter references, one bit per leaf */
+        private final long[] m_filterTables;
+        /** The tables each table shares a filter with */
+        private final long[] m_neighbours;
+        /** For each table, the join nodes that have it as their inner table, with its access
+         * paths generated, keyed by the outer tables it shares filters with */
+        private final List<Map<Long, JoinNode>> m_innerJoinNodes = new ArrayList<>();
+
+        JoinOrderSearch(JoinNode joinTree) {
+            m_leaves = joinTree.generateLeafNodesJoinOrder();
+            assert(m_leaves.size() < Long.SIZE - 1);
+            for (int ii = 0; ii < m_leaves.size(); ii++) {
+                m_leafIndexes.put(m_leaves.get(ii).getTableAlias(), ii);
+                m_innerJoinNodes.add(new HashMap<>());
+            }
+            m_filters = ExpressionUtil.uncombinePredicate(joinTree.getAllFilters());
+            m_filterTables = new long[m_filters.size()];
+            m_neighbours = new long[m_leaves.size()];
+            for (int ii = 0; ii < m_filters.size(); ii++) {
+                for (TupleValueExpression tve : m_filters.get(ii).findAllTupleValueSubexpressions()) {
+                    Integer table = m_leafIndexes.get(tve.getTableAlias());
+                    if (table != null) {
+                        m_filterTables[ii] |= 1L << table;
+                    }
+                }
+                for (long rest = m_filterTables[ii]; rest != 0; rest &= rest - 1) {
+                    int table = Long.numberOfTrailingZeros(rest);
+                    m_neighbours[table] |= m_filterTables[ii] & ~(1L << table);
+                }
+            }
+        }
+
+        /**
+         * @return the cheapest sub-plan of all the tables, or null if none could be planned.
+         */
+        JoinSubPlan search() {
+            int tableCount = m_leaves.size();
+            long allTables = (1L << tableCount) - 1;
+            // The cheapest sub-plans of each size of table sets, in the order they were found,
+            // so that among equally cheap ones the first found and closest to the FROM clause
+            // order is kept.
+            List<Map<Long, JoinSubPlan>> subPlans = new ArrayList<>();
+            for (int size = 0; size <= tableCount; size++) {
+                subPlans.add(new LinkedHashMap<>());
+            }
+            for (int table = 0; table < tableCount; table++) {
+                keepCheaper(subPlans.get(1), join(null, table));
+            }
+
+            // The sub-plans of the greedy join order bound the cost of those worth extending.
+            double bound = Double.MAX_VALUE;
+            List<JoinSubPlan> greedy = joinInOrder(
+                    Arrays.asList(((ParsedSelectStmt) m_parsedStmt).greedyJoinOrder().split(",")));
+            if (greedy != null) {
+                for (JoinSubPlan subPlan : greedy) {
+                    keepCheaper(subPlans.get(Long.bitCount(subPlan.m_tables)), subPlan);
+                }
+                bound = greedy.get(greedy.size() - 1).m_cost;
+            }
+
+            for (int size = 1; size < tableCount; size++) {
+                for (JoinSubPlan outer : subPlans.get(size).values()) {
+                    if (outer.m_cost > bound) {
+                        continue;
+                    }
+                    // Join the tables sharing filters with the outer ones, and only
+                    // when there are none, plan cross products with any other table.
+                    long candidates = 0;
+                    for (long rest = outer.m_tables; rest != 0; rest &= rest - 1) {
+                        candidates |= m_neighbours[Long.numberOfTrailingZeros(rest)];
+                    }
+                    candidates &= ~outer.m_tables;
+                    if (candidates == 0) {
+                        candidates = allTables & ~outer.m_tables;
+                    }
+                    for (long rest = candidates; rest != 0; rest &= rest - 1) {
+                        JoinSubPlan joined = join(outer, Long.numberOfTrailingZeros(rest));
+                        if (joined != null && joined.m_cost <= bound) {
+                            keepCheaper(subPlans.get(size + 1), joined);
+                        }
+                    }
+                }
+                // Larger sets only need the sub-plans they were extended from.
+                subPlans.set(size, null);
+            }
+            return subPlans.get(tableCount).get(allTables);
+        }
+
+        /**
+         * Join the tables in the given order, each with its cheapest access path.
+         *
+         * @param joinOrder the table aliases in join order.
+         * @return the sub-plans of the join order, one per table, or null if it could not be planned.
+         */
+        List<JoinSubPlan> joinInOrder(List<String> joinOrder) {
+            List<JoinSubPlan> subPlans = new ArrayList<>();
+            JoinSubPlan subPlan = null;
+            for (String alias : joinOrder) {
+                Integer table = m_leafIndexes.get(alias);
+                subPlan = (table == null) ? null : join(subPlan, table);
+                if (subPlan == null) {
+                    return null;
+                }
+                subPlans.add(subPlan);
+            }
+            return subPlans;
+        }
+
+        private void keepCheaper(Map<Long, JoinSubPlan> subPlans, JoinSubPlan subPlan) {
+            if (subPlan == null) {
+                return;
+            }
+            JoinSubPlan kept = subPlans.get(subPlan.m_tables);
+            if (kept == null || subPlan.m_cost < kept.m_cost) {
+                subPlans.put(subPlan.m_tables, subPlan);
+            }
+        }
+
+        /**
+         * Join a table to a sub-plan, with each access path to the table.
+         *
+         * @param outer the sub-plan of the outer tables, null to plan the table alone.
+         * @param table the table to join.
+         * @return the cheapest of the joins, or null if none could be planned.
+         */
+        private JoinSubPlan join(JoinSubPlan outer, int table) {
+            long outerTables = (outer == null) ? 0 : outer.m_tables;
+            JoinNode joinNode = getInnerJoinNode(table, outerTables);
+            JoinNode leaf = (outer == null) ? joinNode : joinNode.getRightNode();
+            JoinSubPlan cheapest = null;
+            for (AccessPath path : leaf.m_accessPaths) {
+                leaf.m_currentAccessPath = path;
+                AbstractPlanNode plan = getAccessPlanForTable(leaf);
+                if (outer != null) {
+                    // A sub-plan is the outer child of the join of every larger set
+                    // it is extended to. Nothing here follows the links to parents,
+                    // so they are dropped rather than piling up.
+                    outer.m_plan.clearParents();
+                    IndexSortablePlanNode joined =
+                            getSelectSubPlanForJoin((BranchNode) joinNode, outer.m_plan, plan);
+                    if (joined == null) {
+                        continue;
+                    }
+                    plan = joined.planNode();
+                }
+                PlanStatistics stats = new PlanStatistics();
+                plan.computeEstimatesRecursively(stats, m_planSelector.m_estimates, m_planSelector.m_paramHints);
+                double cost = m_planSelector.m_costModel.getPlanCost(stats);
+                if (cheapest == null || cost < cheapest.m_cost) {
+                    cheapest = new JoinSubPlan(outerTables | (1L << table), outer,
+                                               m_leaves.get(table), path, plan, cost);
+                }
+            }
+            return cheapest;
+        }
+
+        /**
+         * The access paths to a table as the inner table of a join only depend on the
+         * filters it shares with the outer tables, so they are only generated once for
+         * each set of outer tables it shares filters with. The single table filters of
+         * these outer tables are kept too, for the equivalences they imply.
+         *
+         * @return the table with its access paths when there are no outer tables,
+         * else a join node of the outer tables with the table as its inner node.
+         */
+        private JoinNode getInnerJoinNode(int table, long outerTables) {
+            long tableBit = 1L << table;
+            long related = outerTables & m_neighbours[table];
+            if (related == 0) {
+                // A cross product; any outer table will do.
+                related = Long.lowestOneBit(outerTables);
+            }
+            JoinNode joinNode = m_innerJoinNodes.get(table).get(related);
+            if (joinNode != null) {
+                return joinNode;
+            }
+
+            List<AbstractExpression> filters = new ArrayList<>();
+            for (int ii = 0; ii < m_filters.size(); ii++) {
+                long tables = m_filterTables[ii];
+                if (tables != 0 && (tables & ~(related | tableBit)) == 0 &&
+                        ((tables & tableBit) != 0 || Long.bitCount(tables) == 1)) {
+                    filters.add(m_filters.get(ii).clone());
+                }
+            }
+            JoinNode leaf = JoinNode.reconstructJoinTreeFromTableNodes(
+                    Collections.singletonList(m_leaves.get(table)), JoinType.INNER);
+            ArrayList<AbstractExpression> noneList = new ArrayList<>();
+            if (related == 0) {
+                leaf.setWhereExpression(ExpressionUtil.combinePredicates(filters));
+                leaf.analyzeJoinExpressions(noneList);
+                leaf.m_accessPaths.addAll(getRelevantAccessPathsForTable(leaf.getTableScan(),
+                        leaf.m_joinInnerList, leaf.m_whereInnerList, null));
+                joinNode = leaf;
+            }
+            else {
+                List<JoinNode> outerLeaves = new ArrayList<>();
+                for (long rest = related; rest != 0; rest &= rest - 1) {
+                    outerLeaves.add(m_leaves.get(Long.numberOfTrailingZeros(rest)));
+                }
+                JoinNode outerTree = JoinNode.reconstructJoinTreeFromTableNodes(outerLeaves, JoinType.INNER);
+                BranchNode branch = new BranchNode(-leaf.getId(), JoinType.INNER, outerTree, leaf);
+                branch.setWhereExpression(ExpressionUtil.combinePredicates(filters));
+                branch.analyzeJoinExpressions(noneList);
+                generateInnerAccessPaths(branch);
+                joinNode = branch;
+            }
+            m_innerJoinNodes.get(table).put(related, joinNode);
+            return joinNode;
+        }
+    }
+
+    /**
+     * Pick the join order of an inner join of too many tables to plan every join order,
+     * by dynamic programming over the sets of joined tables. Only the cheapest sub-plan
+     * of each set of tables is kept, and the sub-plans of larger sets are built by joining
+     * one more table to it. Tables are only joined to sets they share filters with, unless
+     * there are none, so that no cross products get planned, and sub-plans costing more
+     * than the plan of the greedy join order are dropped.
+     * The access path each table had in the cheapest plan is kept for planning the picked order.
+     *
+     * @return the join tree of the picked join order.
+     */
+    private JoinNode pickJoinOrderByCost() {
+        JoinNode joinTree = m_parsedStmt.m_joinTree;
+        JoinSubPlan cheapest = new JoinOrderSearch(joinTree).search();
+        if (cheapest == null) {
+            // Not even the greedy join order could be planned this way,
+            // so plan any valid join order the usual way.
+            return queueJoinOrders(joinTree, false).poll();
+        }
+
+        LinkedList<JoinNode> joinOrder = new LinkedList<>();
+        for (JoinSubPlan subPlan = cheapest; subPlan != null; subPlan = subPlan.m_outer) {
+            joinOrder.addFirst(subPlan.m_leaf);
+        }
+        keepAccessPaths(cheapest);
+        JoinNode pickedTree = JoinNode.reconstructJoinTreeFromTableNodes(joinOrder, JoinType.INNER);
+        AbstractExpression combinedWhereExpr = joinTree.getAllFilters();
+        if (combinedWhereExpr != null) {
+            pickedTree.setWhereExpression(combinedWhereExpr.clone());
+        }
+        pickedTree.setId(joinTree.getId());
+        return pickedTree;
+    }
+
+    /**
+     * Pick the access path of each table of a join order of too many tables to plan every
+     * combination of their access paths, by joining the tables in order with the cheapest one.
+     */
+    private void pickAccessPaths(JoinNode joinTree) {
+        List<String> joinOrder = new ArrayList<>();
+        for (JoinNode leaf : joinTree.generateLeafNodesJoinOrder()) {
+            joinOrder.add(leaf.getTableAlias());
+        }
+        List<JoinSubPlan> subPlans = new JoinOrderSearch(joinTree).joinInOrder(joinOrder);
+        if (subPlans != null) {
+            keepAccessPaths(subPlans.get(subPlans.size() - 1));
+        }
+    }
+
+    private void keepAccessPaths(JoinSubPlan subPlan) {
+        for (; subPlan != null; subPlan = subPlan.m_outer) {
+            m_pickedAccessPaths.put(subPlan.m_leaf.getTableAlias(), subPlan.m_accessPath);
+        }
+    }
+
+    /**
+     * Keep only the access path that each inner table had in the sub-plans of the
+     * picked join order, so that the combinations of the other access paths are not
+     * all planned again. The first table keeps all of its access paths, since the one
+     * providing the best order for the rest of the plan may not be the cheapest to join.
+     */
+    private void keepPickedAccessPaths(JoinNode joinTree) {
+        List<JoinNode> leaves = joinTree.generateLeafNodesJoinOrder();
+        for (JoinNode leaf : leaves.subList(1, leaves.size())) {
+            AccessPath picked = m_pickedAccessPaths.get(leaf.getTableAlias());
+            List<AccessPath> kept = new ArrayList<>();
+            for (AccessPath path : leaf.m_accessPaths) {
+                if (picked != null && isSameAccess(path, picked)) {
+                    kept.add(path);
+                }
+            }
+            // The access paths of the whole join could differ from those of the sub-plans.
+            if ( ! kept.isEmpty()) {
+                leaf.m_accessPaths = kept;
+            }
+        }
+    }
+
+    private static boolean isSameAccess(AccessPath path, AccessPath other) {
+        return path.index == other.index &&
+               path.use == other.use &&
+               path.lookupType == other.lookupType &&
+               path.sortDirection == other.sortDirection &&
+               path.indexExprs.size() == other.indexExprs.size() &&
+               path.endExprs.size() == other.endExprs.size();
+    }
+
+    /**
+     * Return the next plan for the current join order, pulling the next join order
+     * out of the join orders deque once all the plans of the current one are returned.
      */
     @Override
     protected AbstractPlanNode nextPlan() {
 
-        // repeat (usually run once) until plans are created
+        // repeat (usually run once) until a plan is created
         // or no more plans can be created
-        while (m_plans.size() == 0) {
+        while (true) {
+            if (m_joinTree != null) {
+                AbstractPlanNode plan = nextPlanForJoinTree();
+                if (plan != null) {
+                    return plan;
+                }
+                m_joinTree = null;
+            }
+
             // get the join order for us to make plans out of
             JoinNode joinTree = m_joinOrders.poll();
 
@@ -323,26 +668,65 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 }
             }
 
-            generateMorePlansForJoinTree(joinTree);
+            startPlansForJoinTree(joinTree);
         }
-        return m_plans.poll();
     }
 
     /**
-     * Given a specific join order, compute all possible sub-plan-graphs for that
-     * join order and add them to the deque of plans. If this doesn't add plans,
-     * it doesn't mean no more plans can be generated. It's possible that the
-     * particular join order it got had no reasonable plans.
+     * Given a specific join order, generate the access paths of all its nodes,
+     * so that nextPlanForJoinTree can build the plans for each combination of them.
      *
      * @param joinTree An array of tables in the join order.
      */
-    private void generateMorePlansForJoinTree(JoinNode joinTree) {
+    private void startPlansForJoinTree(JoinNode joinTree) {
         assert(joinTree != null);
         // generate the access paths for all nodes
         generateAccessPaths(joinTree);
+        if ( ! m_pickedAccessPaths.isEmpty()) {
+            keepPickedAccessPaths(joinTree);
+        }
 
-        List<JoinNode> nodes = joinTree.generateAllNodesJoinOrder();
-        generateSubPlanForJoinNodeRecursively(joinTree, 0, nodes);
+        m_joinTree = joinTree;
+        m_joinNodes = joinTree.generateAllNodesJoinOrder();
+        m_accessPathIndexes = new int[m_joinNodes.size()];
+        for (JoinNode node : m_joinNodes) {
+            if (node.m_accessPaths.isEmpty()) {
+                m_accessPathIndexes = null;
+            }
+        }
+    }
+
+    /**
+     * Build the plan for the next combination of access paths of the nodes of the
+     * current join order, trying the access paths of the last node first. Plans are
+     * built one at a time as they are asked for, so however many combinations there
+     * are, only the plan being costed and the best plan so far are kept.
+     * If this returns null, it doesn't mean no more plans can be generated.
+     * It's possible that the particular join order had no reasonable plans.
+     *
+     * @return the next plan, or null after all combinations have been tried.
+     */
+    private AbstractPlanNode nextPlanForJoinTree() {
+        while (m_accessPathIndexes != null) {
+            for (int ii = 0; ii < m_joinNodes.size(); ii++) {
+                JoinNode node = m_joinNodes.get(ii);
+                node.m_currentAccessPath = node.m_accessPaths.get(m_accessPathIndexes[ii]);
+            }
+            // Move on to the next combination
+            int ii = m_joinNodes.size() - 1;
+            while (ii >= 0 && ++m_accessPathIndexes[ii] == m_joinNodes.get(ii).m_accessPaths.size()) {
+                m_accessPathIndexes[ii--] = 0;
+            }
+            if (ii < 0) {
+                m_accessPathIndexes = null;
+            }
+
+            AbstractPlanNode plan = getSelectSubPlanForJoinNode(m_joinTree);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        return null;
     }
 
     /**
@@ -526,40 +910,6 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         assert(innerChildNode.m_accessPaths.size() > 0);
     }
 
-    /**
-     * generate all possible plans for the tree, or to the extend that further planning would drain JVM heap memory
-     * (at threshold of MAX_HEAP_MEMORY_USAGE_PCT% of available JVM heap memory)
-     *
-     * @param rootNode The root node for the whole join tree.
-     * @param nodes The node list to iterate over.
-     */
-    private void generateSubPlanForJoinNodeRecursively(JoinNode rootNode,
-                                                       int nextNode, List<JoinNode> nodes)
-    {
-        assert(nodes.size() > nextNode);
-        JoinNode joinNode = nodes.get(nextNode);
-        if (nodes.size() == nextNode + 1) {
-            for (AccessPath path : joinNode.m_accessPaths) {
-                joinNode.m_currentAccessPath = path;
-                AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
-                if (plan == null) {
-                    continue;
-                }
-                m_plans.add(plan);
-            }
-            return;
-        }
-
-        // If we have drained heap memory, don't recurse further on.
-        if (! m_plans.isEmpty() && m_plans.size() % PLAN_ESTIMATE_PERIOD == 0 && shouldStopPlanning()) {
-            return;
-        }
-        for (AccessPath path : joinNode.m_accessPaths) {
-            joinNode.m_currentAccessPath = path;
-            generateSubPlanForJoinNodeRecursively(rootNode, nextNode+1, nodes);
-        }
-    }
-
     /**
      * Given a specific join node and access path set for inner and outer tables, construct the plan
      * that gives the right tuples.
@@ -0,0 +1,120 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltdb.common.Constants;
+
+/**
+ * Reads the plan fragments the planner hands to the EE back into JSON objects,
+ * for @Explain and anything else in the frontend that looks inside a plan.
+ * Plans in the binary plan format of {@link BinaryPlanWriter} and JSON plans,
+ * as older catalogs hold them, are both accepted.
+ */
+public class BinaryPlanReader {
+
+    /**
+     * @return the plan as a JSON object, whichever form it is in.
+     */
+    public static JSONObject toJSONObject(byte[] plan) throws JSONException {
+        if ( ! BinaryPlanWriter.isBinaryPlan(plan)) {
+            return new JSONObject(new String(plan, Constants.UTF8ENCODING));
+        }
+        if (plan[BinaryPlanWriter.MAGIC.length] != BinaryPlanWriter.VERSION) {
+            throw new JSONException("Unsupported binary plan version " + plan[BinaryPlanWriter.MAGIC.length]);
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(plan);
+            buf.position(BinaryPlanWriter.HEADER_SIZE);
+            String[] keys = new String[buf.getShort() & 0xFFFF];
+            for (int ii = 0; ii < keys.length; ii++) {
+                keys[ii] = readString(buf, buf.getShort() & 0xFFFF);
+            }
+            Object root = readValue(buf, keys);
+            if ( ! (root instanceof JSONObject)) {
+                throw new JSONException("The root of a binary plan must be an object");
+            }
+            return (JSONObject) root;
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new JSONException("Truncated binary plan");
+        }
+    }
+
+    /**
+     * @return the plan as JSON text, whichever form it is in.
+     */
+    public static String toJSONString(byte[] plan) throws JSONException {
+        if ( ! BinaryPlanWriter.isBinaryPlan(plan)) {
+            return new String(plan, Constants.UTF8ENCODING);
+        }
+        return toJSONObject(plan).toString();
+    }
+
+    private static Object readValue(ByteBuffer buf, String[] keys) throws JSONException {
+        byte tag = buf.get();
+        switch (tag) {
+        case BinaryPlanWriter.NULL:
+            return JSONObject.NULL;
+        case BinaryPlanWriter.FALSE:
+            return Boolean.FALSE;
+        case BinaryPlanWriter.TRUE:
+            return Boolean.TRUE;
+        case BinaryPlanWriter.INT:
+            return buf.getInt();
+        case BinaryPlanWriter.BIGINT:
+            return buf.getLong();
+        case BinaryPlanWriter.DOUBLE:
+            return buf.getDouble();
+        case BinaryPlanWriter.STRING:
+            return readString(buf, buf.getInt());
+        case BinaryPlanWriter.ARRAY: {
+            buf.getInt(); // size
+            int count = buf.getInt();
+            JSONArray jarray = new JSONArray();
+            for (int ii = 0; ii < count; ii++) {
+                jarray.put(readValue(buf, keys));
+            }
+            return jarray;
+        }
+        case BinaryPlanWriter.OBJECT: {
+            buf.getInt(); // size
+            int count = buf.getInt();
+            JSONObject jobj = new JSONObject();
+            for (int ii = 0; ii < count; ii++) {
+                String key = keys[buf.getShort() & 0xFFFF];
+                jobj.put(key, readValue(buf, keys));
+            }
+            return jobj;
+        }
+        default:
+            throw new JSONException("Unknown binary plan value tag " + tag);
+        }
+    }
+
+    private static String readString(ByteBuffer buf, int length) {
+        String value = new String(buf.array(), buf.position(), length, Constants.UTF8ENCODING);
+        buf.position(buf.position() + length + 1);
+        return value;
+    }
+}
@@ -0,0 +1,435 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONString;
+import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONTokener;
+import org.voltdb.common.Constants;
+import org.voltdb.expressions.AbstractExpression;
+
+/**
+ * Serializes a plan in the binary plan format the EE loads plan fragments from,
+ * through the same toJSONString(JSONStringer) methods of the plan nodes and
+ * expressions that produce the JSON form of the plan. The binary form holds the
+ * same document, so every EE loader reads either one.
+ *
+ * The format, all integers big-endian:
+ * <pre>
+ *   header:    0x00 'V' 'P' version
+ *   key table: uint16 count, then per key uint16 length, UTF-8 bytes, 0x00
+ *   root:      one value, an object
+ *   value:     int8 tag, then
+ *     NULL, FALSE, TRUE  nothing
+ *     INT                int32
+ *     BIGINT             int64
+ *     DOUBLE             IEEE 754 double
+ *     STRING             int32 length, UTF-8 bytes, 0x00
+ *     ARRAY              int32 size, int32 count, count values
+ *     OBJECT             int32 size, int32 count, count (uint16 key index, value) pairs
+ * </pre>
+ * The size of a container counts the bytes after it to the end of the container,
+ * so readers skip a member without reading it. The terminating 0x00 lets the EE
+ * use keys and strings in place.
+ *
+ * The version must be bumped with any change to the format, and the EE taught
+ * to read both versions for as long as catalogs holding the old one may be loaded.
+ */
+public class BinaryPlanWriter extends JSONStringer {
+    static final byte[] MAGIC = { 0, 'V', 'P' };
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte BIGINT = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte ARRAY = 7;
+    static final byte OBJECT = 8;
+
+    private byte[] m_buffer = new byte[1024];
+    private int m_position = 0;
+
+    // Offset of the size of each open container, whether it is an object,
+    // and how many members it has so far.
+    private int[] m_starts = new int[16];
+    private boolean[] m_isObject = new boolean[16];
+    private int[] m_counts = new int[16];
+    private int m_top = -1;
+    private boolean m_expectingValue = false;
+
+    private final Map<String, Integer> m_keyIndexes = new HashMap<>();
+    private final List<byte[]> m_keys = new ArrayList<>();
+
+    /**
+     * @return true if the bytes are a plan in the binary plan format rather than JSON.
+     */
+    public static boolean isBinaryPlan(byte[] plan) {
+        return plan != null && plan.length >= HEADER_SIZE &&
+                plan[0] == MAGIC[0] && plan[1] == MAGIC[1] && plan[2] == MAGIC[2];
+    }
+
+    /**
+     * @return the complete binary plan, header and key table first.
+     */
+    public byte[] toByteArray() {
+        if ( ! isDone()) {
+            throw new IllegalStateException("The plan is not complete.");
+        }
+        int keyTableSize = 2;
+        for (byte[] key : m_keys) {
+            keyTableSize += 2 + key.length + 1;
+        }
+        byte[] plan = new byte[HEADER_SIZE + keyTableSize + m_position];
+        System.arraycopy(MAGIC, 0, plan, 0, MAGIC.length);
+        plan[MAGIC.length] = VERSION;
+        int position = HEADER_SIZE;
+        position = putShort(plan, position, m_keys.size());
+        for (byte[] key : m_keys) {
+            position = putShort(plan, position, key.length);
+            System.arraycopy(key, 0, plan, position, key.length);
+            position += key.length + 1;
+        }
+        System.arraycopy(m_buffer, 0, plan, position, m_position);
+        return plan;
+    }
+
+    @Override
+    protected boolean isDone() {
+        return m_top == -1 && m_position > 0;
+    }
+
+    /**
+     * @return the plan as JSON text, for debugging.
+     */
+    @Override
+    public String toString() {
+        if ( ! isDone()) {
+            return null;
+        }
+        try {
+            return BinaryPlanReader.toJSONString(toByteArray());
+        }
+        catch (JSONException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public BinaryPlanWriter array() throws JSONException {
+        push(ARRAY, false, "Misplaced array.");
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter endArray() throws JSONException {
+        pop(false, "Misplaced endArray.");
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter object() throws JSONException {
+        push(OBJECT, true, "Misplaced object.");
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter endObject() throws JSONException {
+        pop(true, "Misplaced endObject.");
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter key(String key) throws JSONException {
+        if (key == null) {
+            throw new JSONException("Null key.");
+        }
+        if (m_top == -1 || ! m_isObject[m_top] || m_expectingValue) {
+            throw new JSONException("Misplaced key.");
+        }
+        Integer index = m_keyIndexes.get(key);
+        if (index == null) {
+            if (m_keys.size() > 0xFFFF) {
+                throw new JSONException("Too many distinct keys in the plan.");
+            }
+            index = m_keys.size();
+            m_keyIndexes.put(key, index);
+            m_keys.add(key.getBytes(Constants.UTF8ENCODING));
+        }
+        ensureCapacity(2);
+        m_position = putShort(m_buffer, m_position, index);
+        m_counts[m_top]++;
+        m_expectingValue = true;
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter value(boolean aValue) throws JSONException {
+        beginValue();
+        m_buffer[m_position++] = aValue ? TRUE : FALSE;
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter value(double aValue) throws JSONException {
+        beginValue();
+        m_buffer[m_position++] = DOUBLE;
+        ensureCapacity(8);
+        m_position = putLong(m_buffer, m_position, Double.doubleToLongBits(aValue));
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter value(long aValue) throws JSONException {
+        beginValue();
+        if (aValue == (int) aValue) {
+            m_buffer[m_position++] = INT;
+            ensureCapacity(4);
+            m_position = putInt(m_buffer, m_position, (int) aValue);
+        }
+        else {
+            m_buffer[m_position++] = BIGINT;
+            ensureCapacity(8);
+            m_position = putLong(m_buffer, m_position, aValue);
+        }
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter value(Object aValue) throws JSONException {
+        if (aValue == null || aValue == JSONObject.NULL) {
+            valueNull();
+        }
+        else if (aValue instanceof String) {
+            valueString((String) aValue);
+        }
+        else if (aValue instanceof Boolean) {
+            value(((Boolean) aValue).booleanValue());
+        }
+        else if (aValue instanceof Integer || aValue instanceof Long ||
+                 aValue instanceof Short || aValue instanceof Byte) {
+            value(((Number) aValue).longValue());
+        }
+        else if (aValue instanceof Number) {
+            value(((Number) aValue).doubleValue());
+        }
+        else if (aValue instanceof JSONString) {
+            value((JSONString) aValue);
+        }
+        else if (aValue instanceof JSONObject || aValue instanceof JSONArray) {
+            valueStructured(aValue);
+        }
+        else if (aValue instanceof Map) {
+            valueStructured(new JSONObject((Map<?, ?>) aValue));
+        }
+        else if (aValue instanceof Collection) {
+            valueStructured(new JSONArray((Collection<?>) aValue));
+        }
+        else {
+            valueString(aValue.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Plan nodes and expressions write their members straight into this writer.
+     * Anything else is only known by its JSON text, which is parsed and written
+     * member by member.
+     */
+    @Override
+    public BinaryPlanWriter value(JSONString jss) throws JSONException {
+        if (jss == null) {
+            valueNull();
+        }
+        else if (jss instanceof AbstractExpression) {
+            object();
+            ((AbstractExpression) jss).toJSONString(this);
+            endObject();
+        }
+        else if (jss instanceof AbstractPlanNode) {
+            object();
+            ((AbstractPlanNode) jss).toJSONString(this);
+            endObject();
+        }
+        else {
+            String asString = jss.toJSONString();
+            if (asString == null) {
+                throw new JSONException("Unexpected null from toJSONString");
+            }
+            valueStructured(new JSONTokener(asString).nextValue());
+        }
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter valueNull() throws JSONException {
+        beginValue();
+        m_buffer[m_position++] = NULL;
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter keySymbolValuePair(String aKey, String aValue) throws JSONException {
+        key(aKey);
+        if (aValue == null) {
+            valueNull();
+        }
+        else {
+            valueString(aValue);
+        }
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter keySymbolValuePair(String aKey, long aValue) throws JSONException {
+        key(aKey);
+        value(aValue);
+        return this;
+    }
+
+    @Override
+    public BinaryPlanWriter keySymbolValuePair(String aKey, boolean aValue) throws JSONException {
+        key(aKey);
+        value(aValue);
+        return this;
+    }
+
+    private void valueString(String aValue) throws JSONException {
+        beginValue();
+        byte[] bytes = aValue.getBytes(Constants.UTF8ENCODING);
+        m_buffer[m_position++] = STRING;
+        ensureCapacity(4 + bytes.length + 1);
+        m_position = putInt(m_buffer, m_position, bytes.length);
+        System.arraycopy(bytes, 0, m_buffer, m_position, bytes.length);
+        m_position += bytes.length;
+        m_buffer[m_position++] = 0;
+    }
+
+    private void valueStructured(Object aValue) throws JSONException {
+        if (aValue instanceof JSONObject) {
+            JSONObject jobj = (JSONObject) aValue;
+            object();
+            for (Iterator<String> keys = jobj.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                key(key);
+                valueStructured(jobj.get(key));
+            }
+            endObject();
+        }
+        else if (aValue instanceof JSONArray) {
+            JSONArray jarray = (JSONArray) aValue;
+            array();
+            for (int ii = 0; ii < jarray.length(); ii++) {
+                valueStructured(jarray.get(ii));
+            }
+            endArray();
+        }
+        else {
+            value(aValue);
+        }
+    }
+
+    /**
+     * Check that a value may go here, count it and make room for its tag.
+     */
+    private void beginValue() throws JSONException {
+        if (m_top == -1) {
+            if (m_position > 0) {
+                throw new JSONException("Value out of sequence.");
+            }
+        }
+        else if (m_isObject[m_top]) {
+            if ( ! m_expectingValue) {
+                throw new JSONException("Value out of sequence.");
+            }
+            m_expectingValue = false;
+        }
+        else {
+            m_counts[m_top]++;
+        }
+        ensureCapacity(1);
+    }
+
+    private void push(byte tag, boolean isObject, String misplaced) throws JSONException {
+        if (m_top == -1 && m_position > 0 ||
+                m_top != -1 && m_isObject[m_top] && ! m_expectingValue) {
+            throw new JSONException(misplaced);
+        }
+        beginValue();
+        m_buffer[m_position++] = tag;
+        ensureCapacity(8);
+        if (++m_top == m_starts.length) {
+            m_starts = Arrays.copyOf(m_starts, m_top * 2);
+            m_isObject = Arrays.copyOf(m_isObject, m_top * 2);
+            m_counts = Arrays.copyOf(m_counts, m_top * 2);
+        }
+        m_starts[m_top] = m_position;
+        m_isObject[m_top] = isObject;
+        m_counts[m_top] = 0;
+        m_position += 8;
+    }
+
+    private void pop(boolean isObject, String misplaced) throws JSONException {
+        if (m_top == -1 || m_isObject[m_top] != isObject || m_expectingValue) {
+            throw new JSONException(misplaced);
+        }
+        int start = m_starts[m_top];
+        putInt(m_buffer, start, m_position - start - 4);
+        putInt(m_buffer, start + 4, m_counts[m_top]);
+        --m_top;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (m_position + bytes > m_buffer.length) {
+            m_buffer = Arrays.copyOf(m_buffer, Math.max(m_buffer.length * 2, m_position + bytes));
+        }
+    }
+
+    private static int putShort(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) (value >>> 8);
+        buffer[position + 1] = (byte) value;
+        return position + 2;
+    }
+
+    private static int putInt(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+        return position + 4;
+    }
+
+    private static int putLong(byte[] buffer, int position, long value) {
+        putInt(buffer, position, (int) (value >>> 32));
+        return putInt(buffer, position + 4, (int) value);
+    }
+}
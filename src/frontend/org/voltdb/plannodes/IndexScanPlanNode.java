@@ -595,6 +595,33 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
         return keyWidth;
     }
 
+    /**
+     * The fraction of the index the search keys are expected to match: 0.1 for
+     * each fully covered column, or its equality selectivity when it has
+     * statistics, and SQRT(0.1) for a range-covered last column.
+     */
+    private double getSearchKeySelectivity(DatabaseEstimates.TableEstimates tableEstimates, double keyWidth) {
+        if (tableEstimates.columns.isEmpty()) {
+            return Math.pow(0.10, keyWidth);
+        }
+        final int coveredColumns = (int) keyWidth;
+        double selectivity = Math.pow(0.10, keyWidth - coveredColumns);
+        List<ColumnRef> indexedColumns = null;
+        if (m_catalogIndex.getExpressionsjson().isEmpty()) {
+            indexedColumns = CatalogUtil.getSortedCatalogItems(m_catalogIndex.getColumns(), "index");
+        }
+        for (int ii = 0; ii < coveredColumns; ii++) {
+            if (indexedColumns == null || ii >= indexedColumns.size()) {
+                selectivity *= 0.10;
+            }
+            else {
+                selectivity *= tableEstimates.getEqualitySelectivity(
+                        indexedColumns.get(ii).getColumn().getTypeName(), 0.10);
+            }
+        }
+        return selectivity;
+    }
+
     @Override
     public void computeCostEstimates(long unusedChildOutputTupleCountEstimate,
                                      DatabaseEstimates estimates,
@@ -664,7 +691,10 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            // Where statistics were collected, the index's own entry count and the value
+            // distributions of its equality-matched columns replace those guesses.
+            tuplesToRead += (int) (tableEstimates.getIndexEntries(m_catalogIndex.getTypeName()) * 0.90 *
+                                   getSearchKeySelectivity(tableEstimates, keyWidth));
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
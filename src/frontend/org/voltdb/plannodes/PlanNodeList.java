@@ -163,32 +163,7 @@ public class PlanNodeList implements JSONString, Comparable<PlanNodeList> {
     public String toJSONString() {
         try {
             JSONStringer stringer = new JSONStringer();
-            stringer.object();
-            m_tree.toJSONString(stringer);
-
-            if (m_executeLists.size() == 1) {
-                stringer.key(EXECUTE_LIST_MEMBER_NAME).array();
-                List<AbstractPlanNode> list = m_executeLists.get(0);
-                for (AbstractPlanNode node : list) {
-                    stringer.value(node.getPlanNodeId().intValue());
-                }
-                stringer.endArray(); //end execution list
-            }
-            else {
-                stringer.key(EXECUTE_LISTS_MEMBER_NAME).array();
-                for (List<AbstractPlanNode> list : m_executeLists) {
-                    stringer.object().key(EXECUTE_LIST_MEMBER_NAME).array();
-                    for (AbstractPlanNode node : list) {
-                        stringer.value(node.getPlanNodeId().intValue());
-                    }
-                    stringer.endArray().endObject(); //end execution list
-                }
-                stringer.endArray(); //end execution list
-            }
-
-            stringer.keySymbolValuePair(IS_LARGE_QUERY_MEMBER_NAME, m_isLargeQuery);
-
-            stringer.endObject(); //end PlanNodeList
+            toJSONString(stringer);
             return stringer.toString();
         }
         catch (JSONException e) {
@@ -202,6 +177,50 @@ public class PlanNodeList implements JSONString, Comparable<PlanNodeList> {
         }
     }
 
+    /**
+     * @return the plan in the binary plan format the EE loads plan fragments from.
+     * @see BinaryPlanWriter
+     */
+    public byte[] toBinaryPlan() {
+        try {
+            BinaryPlanWriter writer = new BinaryPlanWriter();
+            toJSONString(writer);
+            return writer.toByteArray();
+        }
+        catch (JSONException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void toJSONString(JSONStringer stringer) throws JSONException {
+        stringer.object();
+        m_tree.toJSONString(stringer);
+
+        if (m_executeLists.size() == 1) {
+            stringer.key(EXECUTE_LIST_MEMBER_NAME).array();
+            List<AbstractPlanNode> list = m_executeLists.get(0);
+            for (AbstractPlanNode node : list) {
+                stringer.value(node.getPlanNodeId().intValue());
+            }
+            stringer.endArray(); //end execution list
+        }
+        else {
+            stringer.key(EXECUTE_LISTS_MEMBER_NAME).array();
+            for (List<AbstractPlanNode> list : m_executeLists) {
+                stringer.object().key(EXECUTE_LIST_MEMBER_NAME).array();
+                for (AbstractPlanNode node : list) {
+                    stringer.value(node.getPlanNodeId().intValue());
+                }
+                stringer.endArray().endObject(); //end execution list
+            }
+            stringer.endArray(); //end execution list
+        }
+
+        stringer.keySymbolValuePair(IS_LARGE_QUERY_MEMBER_NAME, m_isLargeQuery);
+
+        stringer.endObject(); //end PlanNodeList
+    }
+
     public String toDOTString(String name) {
         StringBuilder sb = new StringBuilder();
         sb.append("digraph ").append(name).append(" {\n");
@@ -27,6 +27,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -93,6 +94,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
 
     // number of sent, but un-acked buffers
     final AtomicInteger m_outstandingWorkCount = new AtomicInteger(0);
+    // how many of them there should be at most
+    private final StreamSnapshotFlowControl m_flowControl = new StreamSnapshotFlowControl();
     // map of sent, but un-acked buffers, packaged up a bit
     private final TreeMap<Integer, SendWork> m_outstandingWork = new TreeMap<Integer, SendWork>();
 
@@ -153,6 +156,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         final Set<Long> m_otherDestHSIds;
         AtomicInteger m_ackCounter;
         final long m_ts;
+        volatile long m_sentNanos;
+
+        // The block compressed for the main destination, if it was compressed ahead of time
+        private Future<byte[]> m_compressed;
 
         final boolean m_isEmpty;
 
@@ -185,6 +192,28 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_future = future;
         }
 
+        /**
+         * Start compressing the block on the compression pool, so a sender has a
+         * ready block to send when the work reaches the head of its queue.
+         */
+        void compressAsync() {
+            if (m_message == null || !m_message.b().isDirect()) {
+                return;
+            }
+            m_compressed = CompressionService.submitCompressionTask(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    synchronized (SendWork.this) {
+                        // discarded before the pool got to it
+                        if (m_message == null) {
+                            return null;
+                        }
+                        return CompressionService.compressBuffer(m_message.b().duplicate());
+                    }
+                }
+            });
+        }
+
         /**
          * Idempotent method to cancel any pending work and release any
          * BBContainters held.
@@ -202,9 +231,14 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
          * a RejoinDataMessage instance, and finally hand it off to the messaging
          * subsystem.
          */
-        protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
+        protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message, byte[] compressed)
+                throws IOException {
             final ByteBuffer messageBuffer = message.b();
-            if (messageBuffer.isDirect()) {
+            m_sentNanos = System.nanoTime();
+            if (compressed != null) {
+                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressed));
+                return compressed.length;
+            } else if (messageBuffer.isDirect()) {
                 byte[] data = CompressionService.compressBuffer(messageBuffer);
                 mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
                 return data.length;
@@ -231,7 +265,13 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             mb.send(Longs.toArray(m_otherDestHSIds), msgFactory.makeDataMessage(m_targetId, compressedBytes));
         }
 
-        public synchronized int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
+        public int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
+            // Wait outside of the lock, the compression task needs it
+            final byte[] compressed = m_compressed == null ? null : m_compressed.get();
+            return doWork(mb, msgFactory, compressed);
+        }
+
+        private synchronized int doWork(Mailbox mb, MessageFactory msgFactory, byte[] compressed) throws Exception {
             // this work has already been discarded
             if (m_message == null) {
                 m_ackCounter = new AtomicInteger(1);
@@ -242,7 +282,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 int sentBytes;
                 if (m_otherDestHSIds != null) {
                     m_ackCounter = new AtomicInteger(m_otherDestHSIds.size()+1);
-                    sentBytes = send(mb, msgFactory, m_message);
+                    sentBytes = send(mb, msgFactory, m_message, compressed);
                     if (m_type == StreamSnapshotMessageType.DATA) {
                         // Copy the header from the real buffer and add a dummy table that the other non-lowest site can parse
                         ByteBuffer dummyBuffer = ByteBuffer.allocate(DATA_HEADER_BYTES);
@@ -267,7 +307,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 }
                 else {
                     m_ackCounter = new AtomicInteger(1);
-                    sentBytes = send(mb, msgFactory, m_message);
+                    sentBytes = send(mb, msgFactory, m_message, compressed);
                 }
                 rejoinLog.trace("Sent " + m_type.name() + " from " + m_targetId +
                         " expected ackCounter " + m_ackCounter +
@@ -400,6 +440,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_outstandingWorkCount.decrementAndGet();
             m_outstandingWork.remove(blockIndex);
             work.discard();
+            m_flowControl.ackReceived(work.m_sentNanos, System.nanoTime());
         }
         else {
             rejoinLog.trace("Received ack for targetId " + m_targetId +
@@ -588,6 +629,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 replicatedTable?m_otherDestHostHSIds:null, chunk, sendFuture);
         m_outstandingWork.put(blockIndex, sendWork);
         m_outstandingWorkCount.incrementAndGet();
+        sendWork.compressAsync();
         m_sender.offer(sendWork);
         return sendFuture;
     }
@@ -597,6 +639,27 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         m_reportedSerializationFailure = ex;
     }
 
+    /**
+     * Hold the site back while the window of unacked blocks is full. A failed or
+     * closed stream never drains, so let the next write report it instead.
+     */
+    @Override
+    public boolean hasWriteCapacity()
+    {
+        return m_outstandingWorkCount.get() < m_flowControl.getWindow() ||
+               m_writeFailed.get() != null || m_closed.get();
+    }
+
+    public StreamSnapshotFlowControl getFlowControl()
+    {
+        return m_flowControl;
+    }
+
+    public int getOutstandingWorkCount()
+    {
+        return m_outstandingWorkCount.get();
+    }
+
     @Override
     public boolean needsFinalClose()
     {
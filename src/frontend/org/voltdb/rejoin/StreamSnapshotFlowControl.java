@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the window of unacked blocks a {@link StreamSnapshotDataTarget} may have
+ * in flight from what it measures on the stream.
+ *
+ * A block is acked once the rejoining site has applied it, so the ack rate is the
+ * rate the receiver can absorb and the shortest round trip seen recently is the
+ * round trip without any queueing at the receiver. The window is their product,
+ * the blocks needed to keep the stream busy, plus a little headroom to probe for
+ * more. While the receiver keeps up, the headroom lets the window grow a few blocks
+ * per rate sample. Once the receiver falls behind, the window settles around what
+ * it applies in a round trip instead of piling blocks up in its queue.
+ *
+ * A round trip measured while blocks are queued overstates the shortest one, so
+ * when the minimum gets old the window drops to the minimum for a while to drain
+ * the queue and measure it again.
+ *
+ * Times are passed in so the controller can be driven by a test clock.
+ */
+public class StreamSnapshotFlowControl {
+
+    static final int MIN_WINDOW = 2;
+    static final int INITIAL_WINDOW = 4;
+    static final int MAX_WINDOW = Integer.getInteger("REJOIN_MAX_WINDOW", 64);
+    static final int HEADROOM = 2;
+
+    // How often the ack rate is sampled, and how long a minimum round trip is trusted
+    static final long RATE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final long MIN_RTT_EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    static final long MIN_PROBE_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private long m_minRttNanos = Long.MAX_VALUE;
+    private long m_minRttTimestamp = Long.MIN_VALUE;
+    private long m_probeRttUntil = Long.MIN_VALUE;
+
+    private long m_rateIntervalStart = Long.MIN_VALUE;
+    private int m_acksInInterval = 0;
+    // Smoothed acks per second, negative until the first interval is complete
+    private double m_ackRate = -1.0;
+    private double m_lastRate = 0.0;
+
+    private volatile int m_window = INITIAL_WINDOW;
+
+    public int getWindow() {
+        return m_window;
+    }
+
+    public synchronized long getMinRttNanos() {
+        return m_minRttNanos == Long.MAX_VALUE ? 0 : m_minRttNanos;
+    }
+
+    public synchronized double getAckRate() {
+        return Math.max(0.0, m_ackRate);
+    }
+
+    /**
+     * Record the ack of a block.
+     *
+     * @param sentNanos when the block was handed to the messaging layer
+     * @param nowNanos  when the ack arrived
+     */
+    public synchronized void ackReceived(long sentNanos, long nowNanos) {
+        final long rtt = Math.max(0, nowNanos - sentNanos);
+        if (m_minRttTimestamp == Long.MIN_VALUE || rtt <= m_minRttNanos) {
+            m_minRttNanos = rtt;
+            m_minRttTimestamp = nowNanos;
+        }
+        else if (nowNanos - m_minRttTimestamp > MIN_RTT_EXPIRY_NANOS && !isProbingRtt(nowNanos)) {
+            // Drain for about as long as the blocks in flight take to clear the queue
+            m_probeRttUntil = nowNanos + Math.max(MIN_PROBE_RTT_NANOS, 2 * rtt);
+            m_minRttNanos = rtt;
+            m_minRttTimestamp = nowNanos;
+            m_window = MIN_WINDOW;
+        }
+
+        if (m_rateIntervalStart == Long.MIN_VALUE) {
+            m_rateIntervalStart = sentNanos;
+        }
+        m_acksInInterval++;
+        final long elapsed = nowNanos - m_rateIntervalStart;
+        if (elapsed >= RATE_INTERVAL_NANOS) {
+            final double rate = m_acksInInterval * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            m_ackRate = m_ackRate < 0 ? rate : (m_ackRate * 3 + rate) / 4;
+            m_lastRate = rate;
+            m_rateIntervalStart = nowNanos;
+            m_acksInInterval = 0;
+            if (!isProbingRtt(nowNanos)) {
+                updateWindow();
+            }
+        }
+    }
+
+    private boolean isProbingRtt(long nowNanos) {
+        return nowNanos < m_probeRttUntil;
+    }
+
+    private void updateWindow() {
+        // Grow on the latest sample so the ramp up isn't held back by the average,
+        // shrink on the average so one slow interval doesn't collapse the window
+        final double rate = Math.max(m_ackRate, m_lastRate);
+        final double inFlight = rate * m_minRttNanos / TimeUnit.SECONDS.toNanos(1);
+        final int window = (int) Math.ceil(inFlight) + HEADROOM;
+        m_window = Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, window));
+    }
+}
@@ -0,0 +1,189 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of the stream snapshot a site on this host is sending to a rejoining
+ * or joining node. The site thread counts the rows it has streamed against the
+ * tuple count of its tables when the stream started, and the data targets of the
+ * site report the bytes on the wire and the state of their flow control.
+ *
+ * The latest stream of every site is kept until the site starts another one.
+ */
+public class StreamSnapshotProgress {
+
+    private static final Map<Long, StreamSnapshotProgress> s_bySite = new ConcurrentSkipListMap<>();
+
+    final long m_siteId;
+    final int m_partitionId;
+    // -1 if the tuple count was not available
+    final long m_totalRows;
+    final long m_startNanos;
+
+    // Only written by the site thread
+    private volatile long m_movedRows = 0;
+    private volatile long m_endNanos = 0;
+    private volatile List<StreamSnapshotDataTarget> m_targets = Collections.emptyList();
+
+    StreamSnapshotProgress(long siteId, int partitionId, long totalRows, long startNanos) {
+        m_siteId = siteId;
+        m_partitionId = partitionId;
+        m_totalRows = totalRows;
+        m_startNanos = startNanos;
+    }
+
+    /**
+     * Start tracking a new stream from the given site, replacing the previous one.
+     */
+    public static StreamSnapshotProgress start(long siteId, int partitionId, long totalRows) {
+        final StreamSnapshotProgress progress =
+                new StreamSnapshotProgress(siteId, partitionId, totalRows, System.nanoTime());
+        s_bySite.put(siteId, progress);
+        return progress;
+    }
+
+    /**
+     * @return the latest stream of every site on this host, in site id order
+     */
+    public static Collection<StreamSnapshotProgress> getAll() {
+        return new ArrayList<>(s_bySite.values());
+    }
+
+    public void setTargets(Collection<StreamSnapshotDataTarget> targets) {
+        m_targets = new ArrayList<>(targets);
+    }
+
+    public void addMovedRows(int rows) {
+        m_movedRows += rows;
+    }
+
+    public void finish() {
+        m_endNanos = System.nanoTime();
+    }
+
+    public long getSiteId() {
+        return m_siteId;
+    }
+
+    public int getPartitionId() {
+        return m_partitionId;
+    }
+
+    public boolean isDone() {
+        return m_endNanos != 0;
+    }
+
+    public long getTotalRows() {
+        return m_totalRows;
+    }
+
+    public long getMovedRows() {
+        return m_movedRows;
+    }
+
+    public long getBytesSent() {
+        long bytes = 0;
+        for (StreamSnapshotDataTarget target : m_targets) {
+            bytes += target.getBytesWritten();
+        }
+        return bytes;
+    }
+
+    public int getOutstandingBlocks() {
+        int blocks = 0;
+        for (StreamSnapshotDataTarget target : m_targets) {
+            blocks += target.getOutstandingWorkCount();
+        }
+        return blocks;
+    }
+
+    public int getWindow() {
+        int window = 0;
+        for (StreamSnapshotDataTarget target : m_targets) {
+            window += target.getFlowControl().getWindow();
+        }
+        return window;
+    }
+
+    /**
+     * @return the shortest recent round trip of any target, in microseconds
+     */
+    public long getMinRoundTripMicros() {
+        long rtt = 0;
+        for (StreamSnapshotDataTarget target : m_targets) {
+            final long targetRtt = target.getFlowControl().getMinRttNanos();
+            if (targetRtt > 0 && (rtt == 0 || targetRtt < rtt)) {
+                rtt = targetRtt;
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMicros(rtt);
+    }
+
+    public double getAcksPerSecond() {
+        double rate = 0;
+        for (StreamSnapshotDataTarget target : m_targets) {
+            rate += target.getFlowControl().getAckRate();
+        }
+        return rate;
+    }
+
+    private double elapsedSeconds(long nowNanos) {
+        final long end = m_endNanos == 0 ? nowNanos : m_endNanos;
+        return Math.max(1, end - m_startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double getPercentageMoved() {
+        if (isDone()) {
+            return 100.0;
+        }
+        if (m_totalRows <= 0) {
+            return 0.0;
+        }
+        return Math.min(100.0, m_movedRows * 100.0 / m_totalRows);
+    }
+
+    public double getRowsPerSecond(long nowNanos) {
+        return m_movedRows / elapsedSeconds(nowNanos);
+    }
+
+    public double getMegabytesPerSecond(long nowNanos) {
+        return getBytesSent() / (1024.0 * 1024.0) / elapsedSeconds(nowNanos);
+    }
+
+    /**
+     * @return the milliseconds left at the average rate so far, or -1 if unknown
+     */
+    public long getEstimatedRemainingMillis(long nowNanos) {
+        if (isDone()) {
+            return 0;
+        }
+        if (m_totalRows < 0 || m_movedRows == 0) {
+            return -1;
+        }
+        final long remainingRows = Math.max(0, m_totalRows - m_movedRows);
+        return (long) (remainingRows / getRowsPerSecond(nowNanos) * 1000);
+    }
+}
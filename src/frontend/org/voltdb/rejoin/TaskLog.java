@@ -68,4 +68,15 @@ public interface TaskLog {
      *                            with the latest one.
      */
     public void enableRecording(long snapshotSpHandle);
+
+    /**
+     * How much of the site's work replay should take while the log is replayed, so
+     * the log drains even when its partition stays busy.
+     *
+     * @param minimumRatio the configured minimum share
+     * @return a share between the minimum and 1, exclusive
+     */
+    public default double getReplayRatio(double minimumRatio) {
+        return minimumRatio;
+    }
 }
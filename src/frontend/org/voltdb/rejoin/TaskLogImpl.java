@@ -19,16 +19,22 @@ package org.voltdb.rejoin;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.EstTime;
 import org.voltdb.VoltDB;
 import org.voltdb.utils.BinaryDeque;
 import org.voltdb.utils.BinaryDequeReader;
@@ -36,21 +42,51 @@ import org.voltdb.utils.PersistentBinaryDeque;
 
 /**
  * A task queue that can overflow to disk.
+ *
+ * Tasks are batched into buffers of about 256KB, which are compressed as they are
+ * written to disk. The task log thread reads the buffers at the head of the log back
+ * and deserializes their tasks ahead of replay, starting while the snapshot is still
+ * streaming, so the site only has to run them.
  */
 public class TaskLogImpl implements TaskLog {
     // Overflow limit in MB. Default is 100GB
     private static final long m_overflowLimit =
             Long.parseLong(System.getProperty("REJOIN_OVERFLOW_LIMIT", "102400"));
+    private static final boolean m_compress =
+            Boolean.parseBoolean(System.getProperty("REJOIN_TASKLOG_COMPRESS", "true"));
+    // Buffers deserialized ahead of replay
+    private static final int PREFETCH_BUFFERS = 3;
+
+    // Open task logs on this host, by partition
+    private static final Map<Integer, TaskLogImpl> s_logs = new ConcurrentSkipListMap<>();
+
+    /**
+     * The tasks of a buffer, deserialized. The buffer is kept until they have all
+     * been replayed because the tasks may still reference it.
+     */
+    private static class TaskBatch {
+        final RejoinTaskBuffer m_buffer;
+        final ArrayDeque<TransactionInfoBaseMessage> m_tasks = new ArrayDeque<>();
+
+        TaskBatch(RejoinTaskBuffer buffer) throws IOException {
+            m_buffer = buffer;
+            TransactionInfoBaseMessage task;
+            while ((task = buffer.nextTask()) != null) {
+                m_tasks.add(task);
+            }
+        }
+    }
 
     private final int m_partitionId;
     private final BinaryDeque m_buffers;
     private final BinaryDequeReader m_reader;
     private RejoinTaskBuffer m_tail = null;
-    private RejoinTaskBuffer m_head = null;
+    private TaskBatch m_head = null;
     //Not using as a bounded queue
-    private final Queue<RejoinTaskBuffer> m_headBuffers = new LinkedBlockingQueue<RejoinTaskBuffer>();
+    private final Queue<TaskBatch> m_headBuffers = new LinkedBlockingQueue<TaskBatch>();
+    private final AtomicBoolean m_prefetchPending = new AtomicBoolean(false);
     // The number of tasks in the current buffer
-    private int m_taskCount = 0;
+    private volatile int m_taskCount = 0;
     private int m_tasksPendingInCurrentTail = 0;
     private long m_snapshotSpHandle = Long.MAX_VALUE;
     private int m_bufferHeadroom = RejoinTaskBuffer.DEFAULT_BUFFER_SIZE;
@@ -58,6 +94,14 @@ public class TaskLogImpl implements TaskLog {
     private final ExecutorService m_es;
     private final String m_cursorId;
 
+    // Only written by the site thread
+    private volatile long m_loggedTasks = 0;
+    private volatile long m_loggedBytes = 0;
+    private volatile long m_replayedTasks = 0;
+    private volatile boolean m_replaying = false;
+    private final TaskLogReplayPacer m_pacer = new TaskLogReplayPacer();
+    private volatile double m_minimumReplayRatio = 0.0;
+
     public TaskLogImpl(int partitionId, File overflowDir) throws IOException {
         /*
          * Rejoin coordinator should have already cleared everything in the
@@ -79,9 +123,31 @@ public class TaskLogImpl implements TaskLog {
         m_partitionId = partitionId;
         m_cursorId = "TaskLog-" + partitionId;
         m_buffers = new PersistentBinaryDeque(
-                Integer.toString(partitionId), null, overflowDir, new VoltLogger("REJOIN"));
+                Integer.toString(partitionId), null, overflowDir, new VoltLogger("REJOIN"), m_compress);
         m_reader = m_buffers.openForRead(m_cursorId);
         m_es = CoreUtils.getSingleThreadExecutor("TaskLog partition " + partitionId);
+        s_logs.put(partitionId, this);
+    }
+
+    /**
+     * @return the open task logs of this host, in partition order
+     */
+    public static Collection<TaskLogImpl> getAll() {
+        return new ArrayList<>(s_logs.values());
+    }
+
+    /**
+     * Deserialize buffers from the head of the log until enough are ready.
+     * Runs on the task log thread.
+     */
+    private void prefetch() throws IOException {
+        while (m_headBuffers.size() < PREFETCH_BUFFERS) {
+            BBContainer cont = m_reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            if (cont == null) {
+                return;
+            }
+            m_headBuffers.offer(new TaskBatch(new RejoinTaskBuffer(cont)));
+        }
     }
 
     /**
@@ -109,6 +175,8 @@ public class TaskLogImpl implements TaskLog {
                             VoltDB.crashLocalVoltDB("On-disk task log is full. Please reduce " +
                                     "workload and try live rejoin again, or use blocking rejoin.");
                         }
+                        // Have the head ready before replay gets to it
+                        prefetch();
                     } catch (Throwable t) {
                         VoltDB.crashLocalVoltDB("Error in task log buffering transactions", true, t);
                     }
@@ -139,14 +207,34 @@ public class TaskLogImpl implements TaskLog {
         }
 
         assert(message != null);
-        bufferCatchup(message.getSerializedSize());
+        final int messageSize = message.getSerializedSize();
+        bufferCatchup(messageSize);
 
         m_bufferHeadroom = m_tail.appendTask(message.m_sourceHSId, message);
         m_taskCount++;
         m_tasksPendingInCurrentTail++;
+        m_loggedTasks++;
+        m_loggedBytes += messageSize;
+        updatePacer();
     }
 
-    private final AtomicInteger m_pendingPolls = new AtomicInteger(0);
+    private void updatePacer() {
+        m_pacer.update(EstTime.currentTimeMillis(), m_loggedTasks, m_replayedTasks, m_taskCount,
+                       m_minimumReplayRatio, m_replaying);
+    }
+
+    private final Runnable m_prefetchTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                prefetch();
+            } catch (Throwable t) {
+                VoltDB.crashLocalVoltDB("Error retrieving buffer data in task log", true, t);
+            } finally {
+                m_prefetchPending.set(false);
+            }
+        }
+    };
 
     private void scheduleDiscard(RejoinTaskBuffer buffer) {
         final RejoinTaskBuffer b = buffer;
@@ -173,28 +261,11 @@ public class TaskLogImpl implements TaskLog {
         if (m_closed) {
             throw new IOException("Closed");
         }
+        m_replaying = true;
         if (m_head == null) {
-            // Get another buffer asynchronously
-            final Runnable r = new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        BBContainer cont = m_reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
-                        if (cont != null) {
-                           m_headBuffers.offer(new RejoinTaskBuffer(cont));
-                        }
-                    } catch (Throwable t) {
-                        VoltDB.crashLocalVoltDB("Error retrieving buffer data in task log", true, t);
-                    } finally {
-                        m_pendingPolls.decrementAndGet();
-                    }
-                }
-            };
-
-            //Always keep three buffers ready to go
-            for (int ii = m_pendingPolls.get() + m_headBuffers.size(); ii < 3; ii++) {
-                m_pendingPolls.incrementAndGet();
-                m_es.execute(r);
+            //Always keep three buffers ready to go, get more asynchronously
+            if (m_headBuffers.size() < PREFETCH_BUFFERS && m_prefetchPending.compareAndSet(false, true)) {
+                m_es.execute(m_prefetchTask);
             }
 
             m_head = m_headBuffers.poll();
@@ -202,13 +273,15 @@ public class TaskLogImpl implements TaskLog {
 
         TransactionInfoBaseMessage nextTask = null;
         if (m_head != null) {
-            nextTask = m_head.nextTask();
+            nextTask = m_head.m_tasks.poll();
             if (nextTask == null) {
-                scheduleDiscard(m_head);
+                scheduleDiscard(m_head.m_buffer);
                 // current buffer is completely consumed, move to the next
                 m_head = null;
             } else {
                 m_taskCount--;
+                m_replayedTasks++;
+                updatePacer();
             }
         } else if ((m_taskCount - m_tasksPendingInCurrentTail == 0) && m_tail != null) {
             m_tasksPendingInCurrentTail = 0;
@@ -218,9 +291,9 @@ public class TaskLogImpl implements TaskLog {
              */
             m_tail.compile();
             if (m_head != null) {
-                scheduleDiscard(m_head);
+                scheduleDiscard(m_head.m_buffer);
             }
-            m_head = m_tail;
+            m_head = new TaskBatch(m_tail);
             m_tail = null;
             nextTask = getNextMessage();
         }
@@ -251,6 +324,7 @@ public class TaskLogImpl implements TaskLog {
             return;
         }
         m_closed = true;
+        s_logs.remove(m_partitionId, this);
         m_es.shutdown();
         if (synchronous) {
             try {
@@ -263,13 +337,13 @@ public class TaskLogImpl implements TaskLog {
             m_buffers.closeAndDelete();
         }
         if (m_head != null) {
-            m_head.discard();
+            m_head.m_buffer.discard();
         }
         if (m_tail != null) {
             m_tail.discard();
         }
-        for (RejoinTaskBuffer buf : m_headBuffers) {
-            buf.discard();
+        for (TaskBatch batch : m_headBuffers) {
+            batch.m_buffer.discard();
         }
     }
 
@@ -277,4 +351,60 @@ public class TaskLogImpl implements TaskLog {
     public void enableRecording(long snapshotSpHandle) {
         m_snapshotSpHandle = snapshotSpHandle;
     }
+
+    @Override
+    public double getReplayRatio(double minimumRatio) {
+        m_minimumReplayRatio = minimumRatio;
+        updatePacer();
+        return m_pacer.getReplayRatio(minimumRatio);
+    }
+
+    public int getPartitionId() {
+        return m_partitionId;
+    }
+
+    public boolean isReplaying() {
+        return m_replaying;
+    }
+
+    public long getPendingTasks() {
+        return m_taskCount;
+    }
+
+    public long getLoggedTasks() {
+        return m_loggedTasks;
+    }
+
+    public long getLoggedBytes() {
+        return m_loggedBytes;
+    }
+
+    public long getReplayedTasks() {
+        return m_replayedTasks;
+    }
+
+    /**
+     * @return tasks logged per second over the last interval
+     */
+    public double getLogRate() {
+        return m_pacer.getLogRate();
+    }
+
+    /**
+     * @return tasks replayed per second over the last interval
+     */
+    public double getReplayRate() {
+        return m_pacer.getReplayRate();
+    }
+
+    public double getCurrentReplayRatio() {
+        return m_pacer.getReplayRatio(m_minimumReplayRatio);
+    }
+
+    /**
+     * @return milliseconds until the log is drained at the current rates, -1 if it isn't shrinking
+     */
+    public long getEstimatedCatchupMillis() {
+        return m_pacer.getEstimatedCatchupMillis(m_taskCount);
+    }
 }
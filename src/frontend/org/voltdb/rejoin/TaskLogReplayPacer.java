@@ -0,0 +1,112 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+/**
+ * Tracks how fast a live rejoin task log grows and drains, and decides how much of
+ * the site's work replay takes once it has started.
+ *
+ * While replaying, the site only runs a new task, which is logged and answered to
+ * its leader right away, when replay has had its share of the work. A larger share
+ * delays the responses the leader waits for, which throttles the leader and with it
+ * the growth of the log. The share goes up a step every interval in which the log
+ * would not drain within the catch-up target at the current rates, and back down
+ * towards the configured minimum once it would.
+ *
+ * Only used from the site thread. The rates and the share are published for stats.
+ */
+class TaskLogReplayPacer {
+
+    static final long INTERVAL_MILLIS = 1000;
+    static final double MAX_REPLAY_RATIO = 0.95;
+    static final double RATIO_STEP = 0.05;
+    static final long CATCHUP_TARGET_SECONDS =
+            Long.parseLong(System.getProperty("REJOIN_CATCHUP_TARGET_SECONDS", "60"));
+
+    private long m_intervalStart = Long.MIN_VALUE;
+    private long m_intervalLogged = 0;
+    private long m_intervalReplayed = 0;
+
+    private volatile double m_logRate = 0.0;
+    private volatile double m_replayRate = 0.0;
+    private volatile double m_replayRatio = Double.NaN;
+
+    /**
+     * Sample the counters, closing the interval if it is over.
+     *
+     * @param minimumRatio the configured minimum share of replay
+     * @param replaying    whether the site is replaying the log yet
+     */
+    void update(long nowMillis, long loggedTasks, long replayedTasks, long pendingTasks,
+                double minimumRatio, boolean replaying) {
+        if (Double.isNaN(m_replayRatio)) {
+            m_replayRatio = minimumRatio;
+        }
+        if (m_intervalStart == Long.MIN_VALUE) {
+            m_intervalStart = nowMillis;
+            m_intervalLogged = loggedTasks;
+            m_intervalReplayed = replayedTasks;
+            return;
+        }
+        final long elapsed = nowMillis - m_intervalStart;
+        if (elapsed < INTERVAL_MILLIS) {
+            return;
+        }
+        m_logRate = (loggedTasks - m_intervalLogged) * 1000.0 / elapsed;
+        m_replayRate = (replayedTasks - m_intervalReplayed) * 1000.0 / elapsed;
+        m_intervalStart = nowMillis;
+        m_intervalLogged = loggedTasks;
+        m_intervalReplayed = replayedTasks;
+
+        if (replaying) {
+            final long catchupMillis = getEstimatedCatchupMillis(pendingTasks);
+            if (catchupMillis < 0 || catchupMillis > CATCHUP_TARGET_SECONDS * 1000) {
+                m_replayRatio = Math.min(MAX_REPLAY_RATIO, m_replayRatio + RATIO_STEP);
+            } else {
+                m_replayRatio = Math.max(minimumRatio, m_replayRatio - RATIO_STEP);
+            }
+        }
+    }
+
+    double getReplayRatio(double minimumRatio) {
+        return Double.isNaN(m_replayRatio) ? minimumRatio : Math.max(minimumRatio, m_replayRatio);
+    }
+
+    double getLogRate() {
+        return m_logRate;
+    }
+
+    double getReplayRate() {
+        return m_replayRate;
+    }
+
+    /**
+     * @return the milliseconds to drain the pending tasks at the current rates,
+     * or -1 if the log is not shrinking
+     */
+    long getEstimatedCatchupMillis(long pendingTasks) {
+        if (pendingTasks <= 0) {
+            return 0;
+        }
+        final double drainRate = m_replayRate - m_logRate;
+        if (drainRate <= 0) {
+            return -1;
+        }
+        return (long) (pendingTasks / drainRate * 1000);
+    }
+}
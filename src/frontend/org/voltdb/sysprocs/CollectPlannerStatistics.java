@@ -0,0 +1,164 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.CatalogContext;
+import org.voltdb.TableType;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Table;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.common.Constants;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DatabaseEstimates.ColumnEstimates;
+
+/**
+ * Non-transactional procedure to implement the @CollectPlannerStatistics system procedure.
+ *
+ * Collects the table and index entry counts of the cluster and the value distributions
+ * of the indexed columns, persists them in the catalog, and replans every statement of
+ * the stored procedures with them. The ad hoc planner uses them too from then on.
+ *
+ * Rather than sampling rows, the number of distinct values of a column is estimated by
+ * APPROX_COUNT_DISTINCT, and the counts of its most common values make a frequency
+ * histogram of the values skewed enough to matter for index selection.
+ */
+public class CollectPlannerStatistics extends UpdateApplicationBase {
+    VoltLogger log = new VoltLogger("HOST");
+
+    // Most common values kept per column, at most
+    static final int MAX_HISTOGRAM_SIZE = 1000;
+    // Columns with more distinct values than this are too expensive to group by,
+    // and too selective for the frequencies of their values to matter much.
+    static final long MAX_GROUPED_DISTINCT_VALUES = 100000;
+
+    public CompletableFuture<ClientResponse> run(int histogramSize) throws Exception {
+        if (!allowPausedModeWork(false, isAdminConnection())) {
+            return makeQuickResponse(
+                    ClientResponse.SERVER_UNAVAILABLE,
+                    "Server is paused and is available in read-only mode - please try again later.");
+        }
+        if (histogramSize < 0 || histogramSize > MAX_HISTOGRAM_SIZE) {
+            return makeQuickResponse(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    "The histogram size must be between 0 and " + MAX_HISTOGRAM_SIZE + ".");
+        }
+
+        CatalogContext context = VoltDB.instance().getCatalogContext();
+        ClientResponse tableStats = callProcedure("@Statistics", "TABLE", 0).get(1, TimeUnit.MINUTES);
+        if (tableStats.getStatus() != ClientResponse.SUCCESS) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE,
+                    "Unable to collect table statistics: " + tableStats.getStatusString());
+        }
+        ClientResponse indexStats = callProcedure("@Statistics", "INDEX", 0).get(1, TimeUnit.MINUTES);
+        if (indexStats.getStatus() != ClientResponse.SUCCESS) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE,
+                    "Unable to collect index statistics: " + indexStats.getStatusString());
+        }
+        DatabaseEstimates estimates = DatabaseEstimates.fromTableStats(tableStats.getResults()[0], context.database);
+        estimates.addIndexStats(indexStats.getResults()[0], context.database);
+
+        if (histogramSize > 0) {
+            for (Table table : context.database.getTables()) {
+                if (TableType.isStream(table.getTabletype())) {
+                    continue;
+                }
+                for (Column column : DatabaseEstimates.getIndexedColumns(table)) {
+                    ColumnEstimates columnEst = collectColumnEstimates(table, column, histogramSize);
+                    if (columnEst != null) {
+                        estimates.getEstimatesForTable(table.getTypeName()).columns.put(column.getTypeName(), columnEst);
+                    }
+                }
+            }
+        }
+
+        logCatalogUpdateInvocation("@CollectPlannerStatistics");
+
+        return updateApplication("@CollectPlannerStatistics",
+                                 estimates.toJSONString().getBytes(Constants.UTF8ENCODING),
+                                 null,
+                                 new String[0],
+                                 null,
+                                 false, /* isPromotion */
+                                 context.cluster.getUseddlschema());
+    }
+
+    /**
+     * @return the value distribution of the column, or null if it can't be collected
+     */
+    private ColumnEstimates collectColumnEstimates(Table table, Column column, int histogramSize) throws Exception {
+        final String columnName = column.getTypeName();
+        final String countDistinct;
+        switch (VoltType.get((byte) column.getType())) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case DECIMAL:
+        case TIMESTAMP:
+            countDistinct = "APPROX_COUNT_DISTINCT(" + columnName + ")";
+            break;
+        case STRING:
+            countDistinct = "COUNT(DISTINCT " + columnName + ")";
+            break;
+        default:
+            // FLOAT, VARBINARY and geo values are rarely indexed for equality matches
+            return null;
+        }
+        final String tableName = table.getTypeName();
+        VoltTable counts = runQuery(String.format("SELECT COUNT(*), %s FROM %s;", countDistinct, tableName));
+        if (counts == null || ! counts.advanceRow()) {
+            return null;
+        }
+        final long rows = counts.getLong(0);
+        final long distinctValues = counts.getLong(1);
+        if (rows == 0 || distinctValues == 0) {
+            return null;
+        }
+        if (distinctValues > MAX_GROUPED_DISTINCT_VALUES) {
+            return new ColumnEstimates(distinctValues, new double[0]);
+        }
+        VoltTable common = runQuery(String.format(
+                "SELECT %2$s, COUNT(*) AS C FROM %1$s WHERE %2$s IS NOT NULL GROUP BY %2$s ORDER BY C DESC, %2$s LIMIT %3$d;",
+                tableName, columnName, Math.min(histogramSize, distinctValues)));
+        if (common == null) {
+            return null;
+        }
+        double[] fractions = new double[common.getRowCount()];
+        for (int ii = 0; common.advanceRow(); ii++) {
+            fractions[ii] = (double) common.getLong(1) / rows;
+        }
+        return new ColumnEstimates(distinctValues, fractions);
+    }
+
+    private VoltTable runQuery(String sql) throws Exception {
+        ClientResponse response = callProcedure("@AdHoc", sql).get(1, TimeUnit.MINUTES);
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            log.warn("@CollectPlannerStatistics skipped a column after failing to run \"" + sql + "\": " +
+                     response.getStatusString());
+            return null;
+        }
+        return response.getResults()[0];
+    }
+}
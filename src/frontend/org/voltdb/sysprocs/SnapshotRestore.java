@@ -100,6 +100,7 @@ import org.voltdb.sysprocs.SnapshotRestoreResultSet.RestoreResultKey;
 import org.voltdb.sysprocs.saverestore.ClusterSaveFileState;
 import org.voltdb.sysprocs.saverestore.DuplicateRowHandler;
 import org.voltdb.sysprocs.saverestore.HashinatorSnapshotData;
+import org.voltdb.sysprocs.saverestore.RestoreProgress;
 import org.voltdb.sysprocs.saverestore.SavedTableConverter;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
@@ -182,7 +183,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
             TableSaveFile savefile = getTableSaveFile(
                     f,
                     st.getLocalSites().length * 2,
-                    relevantPartitionSet.toArray(new Integer[relevantPartitionSet.size()]));
+                    relevantPartitionSet.toArray(new Integer[relevantPartitionSet.size()]),
+                    RestoreProgress.forTable(tableName));
 
             m_saveFiles.offer(savefile);
             for (int part_id : savefile.getPartitionIds())
@@ -474,6 +476,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 m_filePathType = (String) params[1];
                 m_filePath = SnapshotUtil.getRealPath(SnapshotPathType.valueOf(m_filePathType), m_filePath);
                 m_fileNonce = (String) params[2];
+                RestoreProgress.begin(m_filePath, m_fileNonce);
                 /*
                  * Initialize a duplicate row handling policy for this restore.
                  * if path type is not SNAP_PATH use local path specified by type
@@ -1296,7 +1299,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
             startAction == StartAction.CREATE && mode != org.voltdb.OperationMode.INITIALIZING;
 
         final boolean isCLEnabled =
-            VoltDB.instance().getCommandLog().getClass().getSimpleName().equals("CommandLogImpl");
+            VoltDB.instance().getCommandLog().isEnabled();
 
         final boolean isStartedWithCreateAction = startAction == StartAction.CREATE;
 
@@ -1551,6 +1554,18 @@ public class SnapshotRestore extends VoltSystemProcedure {
         return savefile;
             }
 
+    private static TableSaveFile getTableSaveFile(
+            File saveFile,
+            int readAheadChunks,
+            Integer relevantPartitionIds[],
+            RestoreProgress.TableProgress progress) throws IOException
+    {
+        TableSaveFile savefile = getTableSaveFile(saveFile, readAheadChunks, relevantPartitionIds);
+        savefile.setProgress(progress);
+        progress.setFile(saveFile.getName(), savefile.getTxnId());
+        return savefile;
+    }
+
     /*
      * Block the execution site thread distributing the async mailbox fragment.
      * Has to be done from this thread because it uses the existing plumbing
@@ -1601,8 +1616,10 @@ public class SnapshotRestore extends VoltSystemProcedure {
             long curTime = System.currentTimeMillis();
             if (m_nextReportTime == 0 || curTime > m_nextReportTime) {
                 m_nextReportTime = curTime + m_reportInterval;
+                final RestoreProgress.TableProgress progress = RestoreProgress.getTable(tableName);
                 SNAP_LOG.info("Table " + tableName + ": " + count
-                        + " tuples restored from snapshot. Next progress report at "
+                        + " tuples restored from snapshot" + (progress == null ? "" : " (" + progress + ")")
+                        + ". Next progress report at "
                         + m_reportDateFormat.format(new Date(m_nextReportTime)));
             }
         }
@@ -2150,11 +2167,13 @@ public class SnapshotRestore extends VoltSystemProcedure {
             boolean asPartitioned,
             boolean isRecover) {
         String hostname = CoreUtils.getHostnameOrAddress();
+        final RestoreProgress.TableProgress progress = RestoreProgress.forTable(tableName);
         TableSaveFile savefile = null;
         try {
-            savefile = getTableSaveFile(getSaveFileForReplicatedTable(tableName), 3, null);
+            savefile = getTableSaveFile(getSaveFileForReplicatedTable(tableName), 3, null, progress);
             assert(savefile.getCompleted());
         } catch (IOException e) {
+            progress.fail(e.getMessage());
             VoltTable result = constructResultsTable();
             result.addRow(m_hostId, hostname, CoreUtils.getSiteIdFromHSId(m_siteId), tableName, -1,
                     "FAILURE", "Unable to load table: " + tableName + " error:\n" + CoreUtils.throwableToString(e));
@@ -2193,6 +2212,7 @@ public class SnapshotRestore extends VoltSystemProcedure {
             destHostSiteIds = tracker.getSitesForHost(destHostId);
         }
 
+        progress.startLoader();
         try {
             int chunkCount = 0;
             while (savefile.hasMoreChunks()) {
@@ -2201,6 +2221,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 if (c == null) {
                     continue;   // Should be equivalent to break
                 }
+                final long loadStart = System.nanoTime();
+                final int chunkBytes = c.b().remaining();
                 try {
                     if (needsConversion == null) {
                         VoltTable oldTable =
@@ -2300,11 +2322,13 @@ public class SnapshotRestore extends VoltSystemProcedure {
                         }
                     }
                     results = executeSysProcPlanFragments(pfs, m_mbox);
+                    progress.record(RestoreProgress.Phase.LOAD, chunkBytes, System.nanoTime() - loadStart);
                 } finally {
                     c.discard();
                 }
             }
         } catch (Exception e) {
+            progress.fail(e.getMessage());
             VoltTable result = PrivateVoltTableFactory.createUninitializedVoltTable();
             result = constructResultsTable();
             result.addRow(m_hostId, hostname, CoreUtils.getSiteIdFromHSId(m_siteId), tableName, -1,
@@ -2316,6 +2340,9 @@ public class SnapshotRestore extends VoltSystemProcedure {
             } catch (IOException e) {
                 SNAP_LOG.warn("Error closing table file", e);
             }
+            if (progress.finishLoader()) {
+                SNAP_LOG.info("Table " + tableName + " restored on this host: " + progress);
+            }
         }
 
         return results[0];
@@ -2372,12 +2399,16 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     }
                 }
             }
+            RestoreProgress.forTable(tableName).fail(e.getMessage());
             VoltTable result = constructResultsTable();
             result.addRow(m_hostId, hostname, CoreUtils.getSiteIdFromHSId(m_siteId), tableName, relevantPartitionIds[0],
                     "FAILURE", "Unable to load table: " + tableName + " error:\n" + CoreUtils.throwableToString(e));
             return result;
         }
 
+        // Every site on this host loads chunks from the same files
+        final RestoreProgress.TableProgress progress = RestoreProgress.forTable(tableName);
+        progress.startLoader();
         Boolean needsConversion = null;
         org.voltcore.utils.DBBPool.BBContainer c = null;
         TreeMap<Integer, VoltTable> partitioned_table_cache = new TreeMap<>();
@@ -2398,6 +2429,8 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 if (c == null) {
                     continue;//Should be equivalent to break
                 }
+                final long loadStart = System.nanoTime();
+                final int chunkBytes = c.b().remaining();
 
                 // use if will load as partitioned table
                 Map<Integer, byte[]> partitioned_tables = null;
@@ -2497,8 +2530,10 @@ public class SnapshotRestore extends VoltSystemProcedure {
                 while (vt.advanceRow()) {
                     resultSet.parseRestoreResultRow(vt);
                 }
+                progress.record(RestoreProgress.Phase.LOAD, chunkBytes, System.nanoTime() - loadStart);
             }
         } catch (Exception e) {
+            progress.fail(e.getMessage());
             VoltTable result = PrivateVoltTableFactory.createUninitializedVoltTable();
             result = constructResultsTable();
             result.addRow(m_hostId, hostname, CoreUtils.getSiteIdFromHSId(m_siteId), tableName,
@@ -2516,6 +2551,9 @@ public class SnapshotRestore extends VoltSystemProcedure {
                     }
                 }
             }
+            if (progress.finishLoader()) {
+                SNAP_LOG.info("Table " + tableName + " restored on this host: " + progress);
+            }
         }
 
         VoltTable result = null;
@@ -45,6 +45,7 @@ import org.voltdb.common.Constants;
 import org.voltdb.compiler.CatalogChangeResult;
 import org.voltdb.compiler.ClassMatcher;
 import org.voltdb.compiler.ClassMatcher.ClassNameMatchStatus;
+import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.compiler.VoltCompiler;
 import org.voltdb.compiler.VoltCompiler.VoltCompilerException;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
@@ -171,6 +172,21 @@ public abstract class UpdateApplicationBase extends VoltNTSystemProcedure {
                 // here and let it get filled in correctly later.
                 deploymentString = null;
             }
+            else if ("@CollectPlannerStatistics".equals(invocationName)) {
+                // provided operationBytes are the planner statistics to persist in the catalog
+                try {
+                    newCatalogJar = addPlannerStatisticsToCatalog(context.catalog, oldJar, operationBytes,
+                            drRole == DrRoleType.XDCR);
+                }
+                catch (IOException | VoltCompilerException e) {
+                    retval.errorMsg = e.getMessage();
+                    return retval;
+                }
+                deploymentString = null;
+
+                // statement plans and table estimates change, the schema doesn't
+                retval.hasSchemaChange = false;
+            }
             else {
                 // Shouldn't ever get here
                 retval.errorMsg = invocationName + " is not supported";
@@ -327,6 +343,23 @@ public abstract class UpdateApplicationBase extends VoltNTSystemProcedure {
         return jarfile;
     }
 
+    /**
+     * Put the planner statistics in the catalog jarfile and recompile it, replanning
+     * every statement with them.
+     * @throws VoltCompilerException
+     */
+    protected static InMemoryJarfile addPlannerStatisticsToCatalog(Catalog oldCatalog, InMemoryJarfile jarfile,
+            byte[] statisticsBytes, boolean isXDCR)
+    throws IOException, VoltCompilerException
+    {
+        compilerLog.info("Replanning all statements with new planner statistics");
+        jarfile.put(DatabaseEstimates.PLANNER_STATISTICS_FILENAME, statisticsBytes);
+
+        VoltCompiler compiler = new VoltCompiler(isXDCR);
+        compiler.compileInMemoryJarfileWithNewStatistics(jarfile, oldCatalog);
+        return jarfile;
+    }
+
     /**
      * @return NUll if no classes changed, otherwise return the update jar file.
      *
@@ -0,0 +1,203 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the snapshot restore on this host, by table and by phase. Chunks of a
+ * table are read from disk, checksummed and decompressed on a pool of threads, and
+ * loaded by the sites; each phase counts the bytes it has processed and the time its
+ * threads have spent on them. Reported by @Statistics RESTORESTATUS and in the log.
+ */
+public class RestoreProgress {
+
+    public enum Phase {
+        READ,           // compressed bytes read from the save files
+        DECOMPRESS,     // bytes checksummed and decompressed
+        LOAD            // uncompressed bytes converted and loaded by the sites
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    public static class PhaseProgress {
+        private final AtomicLong m_bytes = new AtomicLong();
+        private final AtomicLong m_busyNanos = new AtomicLong();
+        private volatile long m_startTime;
+        private volatile long m_lastTime;
+        private volatile boolean m_finished;
+
+        void record(long bytes, long nanos) {
+            final long now = System.currentTimeMillis();
+            if (m_startTime == 0) {
+                m_startTime = now - TimeUnit.NANOSECONDS.toMillis(nanos);
+            }
+            m_bytes.addAndGet(bytes);
+            m_busyNanos.addAndGet(nanos);
+            m_lastTime = now;
+        }
+
+        public long getBytes() {
+            return m_bytes.get();
+        }
+
+        public long getBusyNanos() {
+            return m_busyNanos.get();
+        }
+
+        public long getStartTime() {
+            return m_startTime;
+        }
+
+        /** @return when the phase finished, 0 while it is in progress */
+        public long getEndTime() {
+            return m_finished ? m_lastTime : 0;
+        }
+
+        public boolean isFinished() {
+            return m_finished;
+        }
+
+        /** @return MB processed per second spent in the phase, by one thread */
+        public double getThroughput() {
+            final long nanos = m_busyNanos.get();
+            return nanos == 0 ? 0 : (m_bytes.get() / (1024.0 * 1024.0)) / (nanos / 1000000000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1fMB at %.1fMB/s", m_bytes.get() / (1024.0 * 1024.0), getThroughput());
+        }
+    }
+
+    public static class TableProgress {
+        public final String tableName;
+        private final PhaseProgress[] m_phases = new PhaseProgress[PHASES.length];
+        private final AtomicInteger m_loaders = new AtomicInteger();
+        private final AtomicBoolean m_finished = new AtomicBoolean();
+        private volatile String m_filename;
+        private volatile long m_txnId;
+        private volatile String m_error;
+
+        private TableProgress(String tableName) {
+            this.tableName = tableName;
+            for (int i = 0; i < m_phases.length; i++) {
+                m_phases[i] = new PhaseProgress();
+            }
+        }
+
+        public PhaseProgress get(Phase phase) {
+            return m_phases[phase.ordinal()];
+        }
+
+        public void record(Phase phase, long bytes, long nanos) {
+            m_phases[phase.ordinal()].record(bytes, nanos);
+        }
+
+        public String getFilename() {
+            return m_filename;
+        }
+
+        public long getTxnId() {
+            return m_txnId;
+        }
+
+        /** Remember the first save file opened for the table on this host */
+        public void setFile(String filename, long txnId) {
+            if (m_filename == null) {
+                m_filename = filename;
+                m_txnId = txnId;
+            }
+        }
+
+        public String getError() {
+            return m_error;
+        }
+
+        public void fail(String error) {
+            m_error = error;
+        }
+
+        /** A site starts loading the table's chunks */
+        public void startLoader() {
+            m_loaders.incrementAndGet();
+        }
+
+        /**
+         * A site has run out of chunks to load.
+         *
+         * @return true once, when the last site finished and every phase is complete
+         */
+        public boolean finishLoader() {
+            if (m_loaders.decrementAndGet() == 0 && m_finished.compareAndSet(false, true)) {
+                for (PhaseProgress phase : m_phases) {
+                    phase.m_finished = true;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            final PhaseProgress read = get(Phase.READ);
+            final long end = read.isFinished() ? get(Phase.LOAD).m_lastTime : System.currentTimeMillis();
+            return String.format("read %s, verified and decompressed %s, loaded %s, %.1f seconds elapsed",
+                                 read, get(Phase.DECOMPRESS), get(Phase.LOAD),
+                                 read.getStartTime() == 0 ? 0 : (end - read.getStartTime()) / 1000.0);
+        }
+    }
+
+    private static volatile String m_path;
+    private static volatile String m_nonce;
+    private static final ConcurrentMap<String, TableProgress> m_tables = new ConcurrentSkipListMap<>();
+
+    /** Forget the previous restore and start tracking the one from the given snapshot */
+    public static void begin(String path, String nonce) {
+        m_tables.clear();
+        m_path = path;
+        m_nonce = nonce;
+    }
+
+    public static String getPath() {
+        return m_path;
+    }
+
+    public static String getNonce() {
+        return m_nonce;
+    }
+
+    public static TableProgress forTable(String tableName) {
+        return m_tables.computeIfAbsent(tableName, TableProgress::new);
+    }
+
+    /** @return the progress of the table, or null if this host is not restoring it */
+    public static TableProgress getTable(String tableName) {
+        return m_tables.get(tableName);
+    }
+
+    public static Collection<TableProgress> getTables() {
+        return m_tables.values();
+    }
+}
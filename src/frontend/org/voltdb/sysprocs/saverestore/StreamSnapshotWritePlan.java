@@ -64,6 +64,9 @@ import com.google_voltpatches.common.collect.Multimap;
  */
 public class StreamSnapshotWritePlan extends SnapshotWritePlan
 {
+    // How many sender threads the targets of this host share
+    private static final int SEND_STREAMS = Integer.getInteger("REJOIN_SEND_STREAMS", 4);
+
     private int m_siteIndex = 0;
 
     @Override
@@ -195,10 +198,19 @@ public class StreamSnapshotWritePlan extends SnapshotWritePlan
 
         if (haveAnyStreamPairs(localStreams) && !schemas.isEmpty()) {
             Mailbox mb = VoltDB.instance().getHostMessenger().createMailbox();
-            StreamSnapshotDataTarget.SnapshotSender sender = new StreamSnapshotDataTarget.SnapshotSender(mb);
+            // Each target sends on one of the streams so its blocks stay in order,
+            // the targets of different sites compress and send in parallel.
+            int targetCount = 0;
+            for (StreamSnapshotRequestConfig.Stream stream : localStreams) {
+                targetCount += stream.streamPairs.size();
+            }
+            final int streamCount = Math.max(1, Math.min(SEND_STREAMS, targetCount));
+            final StreamSnapshotDataTarget.SnapshotSender[] senders =
+                    new StreamSnapshotDataTarget.SnapshotSender[streamCount];
+            for (int i = 0; i < streamCount; i++) {
+                senders[i] = new StreamSnapshotDataTarget.SnapshotSender(mb);
+            }
             StreamSnapshotAckReceiver ackReceiver = new StreamSnapshotAckReceiver(mb);
-            new Thread(sender, "Stream Snapshot Sender").start();
-            new Thread(ackReceiver, "Stream Snapshot Ack Receiver").start();
             // The mailbox will be removed after all snapshot data targets are finished
             SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(createCompletionTask(mb));
 
@@ -217,10 +229,18 @@ public class StreamSnapshotWritePlan extends SnapshotWritePlan
                                                new StreamSnapshotDataTarget(destHSId,
                                                                             (destHSId == stream.lowestSiteSinkHSId),
                                                                             destsByHostId.get(CoreUtils.getHostIdFromHSId(destHSId)),
-                                                                            hashinatorConfig, schemas, sender, ackReceiver));
+                                                                            hashinatorConfig, schemas,
+                                                                            senders[sdts.size() % streamCount],
+                                                                            ackReceiver));
                     sdts.add(nextTarget);
                 }
             }
+
+            // Start the threads once every target has registered with its sender
+            for (int i = 0; i < streamCount; i++) {
+                new Thread(senders[i], "Stream Snapshot Sender " + i).start();
+            }
+            new Thread(ackReceiver, "Stream Snapshot Ack Receiver").start();
         }
 
         return sdts;
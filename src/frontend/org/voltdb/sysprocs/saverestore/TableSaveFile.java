@@ -29,7 +29,11 @@ import java.util.ArrayDeque;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.Checksum;
 
@@ -41,6 +45,7 @@ import org.json_voltpatches.JSONObject;
 import org.voltcore.TransactionIdManager;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Bits;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.NativeLibraryLoader;
@@ -91,6 +96,34 @@ public class TableSaveFile
      */
     private static final int DEFAULT_CHUNKSIZE =
             org.voltdb.SnapshotSiteProcessor.m_snapshotBufferLength + (1024 * 256);
+    private static final int MAX_COMPRESSED_CHUNKSIZE = CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE);
+
+    /*
+     * Checksumming and decompressing chunks is shared by all the files being read,
+     * the threads go away when no restore is running
+     */
+    private static final int DECOMPRESSION_THREADS = Integer.getInteger("SNAPSHOT_DECOMPRESSION_THREADS",
+            Math.max(1, CoreUtils.availableProcessors() / 2));
+    private static ThreadPoolExecutor m_decompressor = null;
+
+    private static synchronized Executor getDecompressor() {
+        if (m_decompressor == null) {
+            m_decompressor = new ThreadPoolExecutor(DECOMPRESSION_THREADS, DECOMPRESSION_THREADS,
+                    1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                    CoreUtils.getThreadFactory("Snapshot Chunk Decompression"));
+            m_decompressor.allowCoreThreadTimeOut(true);
+        }
+        return m_decompressor;
+    }
+
+    /*
+     * A chunk handed to the decompression pool. Chunks become available in the
+     * order they were read whichever of them is decompressed first.
+     */
+    private static class PendingChunk {
+        Container m_chunk;
+        boolean m_done;
+    }
 
     public TableSaveFile(
             FileInputStream fis,
@@ -403,6 +436,13 @@ public class TableSaveFile
         }
 
         synchronized (this) {
+            while (!m_decompressingChunks.isEmpty()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
             while (!m_availableChunks.isEmpty()) {
                 m_availableChunks.poll().discard();
             }
@@ -432,7 +472,7 @@ public class TableSaveFile
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        if (!m_hasMoreChunks.get()) {
+        if (!m_hasMoreChunks.get() && m_decompressingChunks.isEmpty()) {
             final Container c = m_availableChunks.poll();
             return c;
         }
@@ -444,7 +484,8 @@ public class TableSaveFile
         }
 
         Container c = null;
-        while (c == null && (m_hasMoreChunks.get() || !m_availableChunks.isEmpty())) {
+        while (c == null &&
+               (m_hasMoreChunks.get() || !m_availableChunks.isEmpty() || !m_decompressingChunks.isEmpty())) {
             c = m_availableChunks.poll();
             if (c == null) {
                 try {
@@ -469,7 +510,43 @@ public class TableSaveFile
         if (m_chunkReaderException != null) {
             throw m_chunkReaderException;
         }
-        return m_hasMoreChunks.get() || !m_availableChunks.isEmpty();
+        return m_hasMoreChunks.get() || !m_availableChunks.isEmpty() || !m_decompressingChunks.isEmpty();
+    }
+
+    /**
+     * Count the bytes read and decompressed from this file towards the restore
+     * progress of its table. Must be called before the first chunk is requested.
+     */
+    public void setProgress(RestoreProgress.TableProgress progress) {
+        m_progress = progress;
+    }
+
+    private synchronized BBContainer getInputBuffer() {
+        final BBContainer c = m_inputBuffers.poll();
+        return c != null ? c : DBBPool.allocateDirect(MAX_COMPRESSED_CHUNKSIZE);
+    }
+
+    private synchronized void returnInputBuffer(BBContainer c) {
+        if (m_readerDone) {
+            c.discard();
+        } else {
+            m_inputBuffers.offer(c);
+        }
+    }
+
+    /*
+     * Move the chunks that are done decompressing, up to the first that is not,
+     * to the available chunks
+     */
+    private synchronized void completeChunk(PendingChunk pending) {
+        pending.m_done = true;
+        while (!m_decompressingChunks.isEmpty() && m_decompressingChunks.peek().m_done) {
+            final Container c = m_decompressingChunks.poll().m_chunk;
+            if (c != null) {
+                m_availableChunks.offer(c);
+            }
+        }
+        notifyAll();
     }
 
     // thread safe file channels
@@ -492,6 +569,10 @@ public class TableSaveFile
     private AtomicBoolean m_hasMoreChunks = new AtomicBoolean(true);
     private ConcurrentLinkedQueue<BBContainer> m_buffers = new ConcurrentLinkedQueue<BBContainer>();
     private final ArrayDeque<Container> m_availableChunks = new ArrayDeque<Container>();
+    private final ArrayDeque<PendingChunk> m_decompressingChunks = new ArrayDeque<PendingChunk>();
+    private final ArrayDeque<BBContainer> m_inputBuffers = new ArrayDeque<BBContainer>();
+    private boolean m_readerDone = false;
+    private volatile RestoreProgress.TableProgress m_progress = null;
     private final HashSet<Integer> m_relevantPartitionIds;
     private final ChecksumType m_checksumType;
 
@@ -530,12 +611,12 @@ public class TableSaveFile
         /*
          * The old method was out of hand. Going to start a new one with a different format
          * that should be easier to understand and validate.
+         *
+         * This thread only does the I/O. Each chunk is read into its own input buffer and
+         * checksummed and decompressed on the shared decompression pool, so the disk keeps
+         * streaming while earlier chunks are being decompressed.
          */
         private void readChunksV2() {
-            //For reading the compressed input.
-            final BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
-            final ByteBuffer fileInputBuffer = fileInputBufferC.b();
             long sinceLastFAdvise = Long.MAX_VALUE;
             long positionAtLastFAdvise = 0;
 
@@ -582,12 +663,12 @@ public class TableSaveFile
                 try {
                     m_chunkReads.acquire();
                 } catch (InterruptedException e) {
-                    fileInputBufferC.discard();
-                    return;
+                    break;
                 }
                 boolean expectedAnotherChunk = false;
-                Container c = null;
+                BBContainer fileInputBufferC = null;
                 try {
+                    final long readStart = System.nanoTime();
 
                     /*
                      * Get the length of the next chunk, partition id, crc for partition id, and length prefix,
@@ -601,7 +682,7 @@ public class TableSaveFile
                         }
                         sinceLastFAdvise += read;
                     }
-                    int nextChunkLength = chunkLengthB.getInt(0);
+                    final int nextChunkLength = chunkLengthB.getInt(0);
                     expectedAnotherChunk = true;
 
                     /*
@@ -619,8 +700,10 @@ public class TableSaveFile
                     int generatedValue = (int)partitionIdCRC.getValue();
                     if (generatedValue != nextChunkPartitionIdCRC) {
                         chunkLengthB.position(0);
-                        for (int partitionId : m_partitionIds) {
-                            m_corruptedPartitions.add(partitionId);
+                        synchronized (TableSaveFile.this) {
+                            for (int partitionId : m_partitionIds) {
+                                m_corruptedPartitions.add(partitionId);
+                            }
                         }
                         throw new IOException("Chunk partition ID CRC check failed. " +
                                 "This corrupts all partitions in this file");
@@ -639,17 +722,17 @@ public class TableSaveFile
                         throw new IOException("Corrupted TableSaveFile chunk has negative chunk length");
                     }
 
-                    if (nextChunkLength > fileInputBuffer.capacity()) {
+                    if (nextChunkLength > MAX_COMPRESSED_CHUNKSIZE) {
                         throw new IOException("Corrupted TableSaveFile chunk has unreasonable length " +
                                 "> DEFAULT_CHUNKSIZE bytes");
                     }
 
                     /*
-                     * Go fetch the compressed data so that the uncompressed size is known
-                     * and use that to set nextChunkLength to be the uncompressed length,
-                     * the code ahead that constructs the volt table is expecting
-                     * the uncompressed size/data since it is producing an uncompressed table
+                     * Go fetch the compressed data, the decompression pool will find out its
+                     * uncompressed size
                      */
+                    fileInputBufferC = getInputBuffer();
+                    final ByteBuffer fileInputBuffer = fileInputBufferC.b();
                     fileInputBuffer.clear();
                     fileInputBuffer.limit(nextChunkLength);
                     while (fileInputBuffer.hasRemaining()) {
@@ -660,89 +743,23 @@ public class TableSaveFile
                         sinceLastFAdvise += read;
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
-
-                    /*
-                     * Validate the rest of the chunk. This can fail if the data is corrupted
-                     * or the length value was corrupted.
-                     */
-                    final int calculatedCRC =
-                            DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
-                    if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
-                        if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
-                            continue;
-                        } else {
-                            throw new IOException("CRC mismatch in saved table chunk");
-                        }
+                    if (m_progress != null) {
+                        m_progress.record(RestoreProgress.Phase.READ, nextChunkLength + chunkLengthB.capacity(),
+                                          System.nanoTime() - readStart);
                     }
 
-                    /*
-                     * Now allocate space to store the chunk using the VoltTable serialization representation.
-                     * The chunk will contain an integer row count preceding it so it can
-                     * be sucked straight in. There is a little funny business to overwrite the
-                     * partition id that is not part of the serialization format
-                     */
-                    c = getOutputBuffer(nextChunkPartitionId);
-
-                    /*
-                     * If the length value is wrong or not all data made it to disk this read will
-                     * not complete correctly. There could be overflow, underflow etc.
-                     * so use a try finally block to indicate that all partitions are now corrupt.
-                     * The enclosing exception handlers will do the right thing WRT to
-                     * propagating the error and closing the file.
-                     */
-                    boolean completedRead = false;
-                    try {
-                        final ByteBuffer buf = c.b();
-                        /*
-                         * Assemble a VoltTable out of the chunk of tuples.
-                         * Put in the header that was cached in the constructor,
-                         * then copy the tuple data.
-                         */
-                        buf.clear();
-                        buf.limit(nextChunkLength  + m_tableHeader.capacity());
-                        m_tableHeader.position(0);
-                        buf.put(m_tableHeader);
-                        //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
-                        completedRead = true;
-                    } finally {
-                        if (!completedRead) {
-                            for (int partitionId : m_partitionIds) {
-                                m_corruptedPartitions.add(partitionId);
-                            }
-                            if (m_continueOnCorruptedChunk) {
-                                m_chunkReads.release();
-                                continue;
-                            } else {
-                                throw new IOException("Failed decompression of saved table chunk");
-                            }
-                        }
-                    }
-
-                    /*
-                     * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
-                     * in case it is the length value that is corrupted
-                     */
-                    if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            m_chunkReads.release();
-                            continue;
-                        }
-                    }
-
-                    /*
-                     * VoltTable wants the buffer at the home position 0
-                     */
-                    c.b().position(0);
-
+                    final PendingChunk pending = new PendingChunk();
                     synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
-                        c = null;
-                        TableSaveFile.this.notifyAll();
+                        m_decompressingChunks.offer(pending);
                     }
+                    final BBContainer input = fileInputBufferC;
+                    fileInputBufferC = null;
+                    getDecompressor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            decompressChunk(pending, input, nextChunkPartitionId, nextChunkCRC);
+                        }
+                    });
                 } catch (EOFException eof) {
                     synchronized (TableSaveFile.this) {
                         m_hasMoreChunks.set(false);
@@ -759,29 +776,134 @@ public class TableSaveFile
                         m_chunkReaderException = e;
                         TableSaveFile.this.notifyAll();
                     }
-                } catch (BufferUnderflowException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
+                } finally {
+                    if (fileInputBufferC != null) {
+                        returnInputBuffer(fileInputBufferC);
                     }
-                } catch (BufferOverflowException e) {
+                }
+            }
+            synchronized (TableSaveFile.this) {
+                m_readerDone = true;
+                BBContainer c;
+                while ((c = m_inputBuffers.poll()) != null) {
+                    c.discard();
+                }
+            }
+        }
+
+        /*
+         * Validate and decompress a chunk read by readChunksV2, on the decompression pool
+         */
+        private void decompressChunk(PendingChunk pending, BBContainer fileInputBufferC,
+                int nextChunkPartitionId, int nextChunkCRC) {
+            final long decompressStart = System.nanoTime();
+            final ByteBuffer fileInputBuffer = fileInputBufferC.b();
+            Container c = null;
+            try {
+                final int nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+
+                /*
+                 * Validate the rest of the chunk. This can fail if the data is corrupted
+                 * or the length value was corrupted.
+                 */
+                final int calculatedCRC =
+                        DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
+                if (calculatedCRC != nextChunkCRC) {
                     synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
+                        m_corruptedPartitions.add(nextChunkPartitionId);
                     }
-                } catch (IndexOutOfBoundsException e) {
-                    synchronized (TableSaveFile.this) {
-                        m_hasMoreChunks.set(false);
-                        m_chunkReaderException = new IOException(e);
-                        TableSaveFile.this.notifyAll();
+                    if (m_continueOnCorruptedChunk) {
+                        m_chunkReads.release();
+                        return;
+                    } else {
+                        throw new IOException("CRC mismatch in saved table chunk");
                     }
+                }
+
+                /*
+                 * Now allocate space to store the chunk using the VoltTable serialization representation.
+                 * The chunk will contain an integer row count preceding it so it can
+                 * be sucked straight in. There is a little funny business to overwrite the
+                 * partition id that is not part of the serialization format
+                 */
+                c = getOutputBuffer(nextChunkPartitionId);
+
+                /*
+                 * If the length value is wrong or not all data made it to disk this read will
+                 * not complete correctly. There could be overflow, underflow etc.
+                 * so use a try finally block to indicate that all partitions are now corrupt.
+                 * The enclosing exception handlers will do the right thing WRT to
+                 * propagating the error and closing the file.
+                 */
+                boolean completedRead = false;
+                try {
+                    final ByteBuffer buf = c.b();
+                    /*
+                     * Assemble a VoltTable out of the chunk of tuples.
+                     * Put in the header that was cached in the constructor,
+                     * then copy the tuple data.
+                     */
+                    buf.clear();
+                    buf.limit(nextChunkLength  + m_tableHeader.capacity());
+                    final ByteBuffer tableHeader = m_tableHeader.duplicate();
+                    tableHeader.position(0);
+                    buf.put(tableHeader);
+                    //Doesn't move buffer position, does change the limit
+                    CompressionService.decompressBuffer(fileInputBuffer, buf);
+                    completedRead = true;
                 } finally {
-                    if (c != null) c.discard();
+                    if (!completedRead) {
+                        synchronized (TableSaveFile.this) {
+                            for (int partitionId : m_partitionIds) {
+                                m_corruptedPartitions.add(partitionId);
+                            }
+                        }
+                        if (m_continueOnCorruptedChunk) {
+                            m_chunkReads.release();
+                            return;
+                        } else {
+                            throw new IOException("Failed decompression of saved table chunk");
+                        }
+                    }
+                }
+                if (m_progress != null) {
+                    m_progress.record(RestoreProgress.Phase.DECOMPRESS, nextChunkLength,
+                                      System.nanoTime() - decompressStart);
+                }
+
+                /*
+                 * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
+                 * in case it is the length value that is corrupted
+                 */
+                if (m_relevantPartitionIds != null) {
+                    if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
+                        m_chunkReads.release();
+                        return;
+                    }
                 }
+
+                /*
+                 * VoltTable wants the buffer at the home position 0
+                 */
+                c.b().position(0);
+                pending.m_chunk = c;
+                c = null;
+            } catch (IOException e) {
+                e.printStackTrace();
+                synchronized (TableSaveFile.this) {
+                    m_hasMoreChunks.set(false);
+                    m_chunkReaderException = e;
+                }
+            } catch (BufferUnderflowException | BufferOverflowException | IndexOutOfBoundsException e) {
+                synchronized (TableSaveFile.this) {
+                    m_hasMoreChunks.set(false);
+                    m_chunkReaderException = new IOException(e);
+                }
+            } finally {
+                if (c != null) c.discard();
+                returnInputBuffer(fileInputBufferC);
+                completeChunk(pending);
             }
-            fileInputBufferC.discard();
         }
 
         private void readChunks() {
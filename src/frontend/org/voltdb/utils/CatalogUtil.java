@@ -111,6 +111,7 @@ import org.voltdb.catalog.Systemsettings;
 import org.voltdb.catalog.Table;
 import org.voltdb.catalog.TimeToLive;
 import org.voltdb.client.ClientAuthScheme;
+import org.voltdb.commandlog.GroupCommitCommandLog;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.VoltCompiler;
 import org.voltdb.compiler.deploymentfile.ClusterType;
@@ -149,6 +150,7 @@ import org.voltdb.planner.ActivePlanRepository;
 import org.voltdb.planner.parseinfo.StmtTableScan;
 import org.voltdb.planner.parseinfo.StmtTargetTableScan;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.BinaryPlanReader;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.DbSettings;
 import org.voltdb.settings.NodeSettings;
@@ -2165,7 +2167,7 @@ public abstract class CatalogUtil {
     }
 
     public static void setupCommandLog(PathsType.Commandlog paths, File voltDbRoot) {
-        if (!VoltDB.instance().getConfig().m_isEnterprise) {
+        if (!VoltDB.instance().getConfig().m_isEnterprise && !GroupCommitCommandLog.ENABLED) {
             // dumb defaults if you ask for logging in community version
             return;
         }
@@ -2188,7 +2190,7 @@ public abstract class CatalogUtil {
     }
 
     public static void setupCommandLogSnapshot(PathsType.Commandlogsnapshot paths, File voltDbRoot) {
-        if (!VoltDB.instance().getConfig().m_isEnterprise) {
+        if (!VoltDB.instance().getConfig().m_isEnterprise && !GroupCommitCommandLog.ENABLED) {
             // dumb defaults if you ask for logging in community version
             new VoltFile(voltDbRoot, "command_log_snapshot");
             return;
@@ -3192,7 +3194,7 @@ public abstract class CatalogUtil {
                 byte[] jsonPlan = ActivePlanRepository.planForFragmentId(planId);
                 sb.append("Plan Stmt Text:").append(stmtText);
                 sb.append(", Plan Fragment Id:").append(planId);
-                sb.append(", Json Plan:").append(new String(jsonPlan));
+                sb.append(", Json Plan:").append(planText(jsonPlan));
             }
             sb.append("\n");
         }
@@ -3218,13 +3220,22 @@ public abstract class CatalogUtil {
                 byte[] jsonPlan = ActivePlanRepository.planForFragmentId(planId);
                 sb.append(", Plan Fragment Id:").append(planId);
                 sb.append(", Plan Stmt Text:").append(stmtText);
-                sb.append(", Json Plan:").append(new String(jsonPlan));
+                sb.append(", Json Plan:").append(planText(jsonPlan));
             }
         }
         sb.append("\n");
         return sb.toString();
     }
 
+    private static String planText(byte[] plan) {
+        try {
+            return BinaryPlanReader.toJSONString(plan);
+        }
+        catch (JSONException e) {
+            return e.getMessage();
+        }
+    }
+
     /*
      * Check if the procedure is partitioned or not
      */
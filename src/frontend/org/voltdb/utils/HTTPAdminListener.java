@@ -48,6 +48,8 @@ import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.HTTPClientInterface;
+import org.voltdb.MetricsExporter;
+import org.voltdb.StatsAgent;
 import org.voltdb.VoltDB;
 
 import com.google_voltpatches.common.base.Charsets;
@@ -83,6 +85,7 @@ public class HTTPAdminListener {
     final SessionHandler m_sessionHandler = new SessionHandler();
 
     final HTTPClientInterface httpClientInterface = new HTTPClientInterface();
+    final MetricsExporter m_metrics = new MetricsExporter();
     boolean m_jsonEnabled;
 
     Map<String, String> m_htmlTemplates = new HashMap<>();
@@ -287,6 +290,7 @@ public class HTTPAdminListener {
             servlets.addServletWithMapping(DeploymentRequestServlet.class, "/deployment/*").setAsyncSupported(true);
             servlets.addServletWithMapping(UserProfileServlet.class, "/profile/*").setAsyncSupported(true);
             servlets.addServletWithMapping(LogoutServlet.class, "/logout/*").setAsyncSupported(true);
+            servlets.addServletWithMapping(MetricsServlet.class, "/metrics").setAsyncSupported(true);
 
             httpClientInterface.setTimeout(timeout);
             m_jsonEnabled = jsonEnabled;
@@ -349,6 +353,18 @@ public class HTTPAdminListener {
         try { m_server.destroy(); } catch (Exception e2) {}
     }
 
+    /**
+     * Rebuild the metrics served on /metrics from this node's statistics.
+     */
+    public void refreshMetrics(StatsAgent agent) {
+        // An exception escaping here would cancel the periodic refresh
+        try {
+            m_metrics.refresh(agent, System.currentTimeMillis());
+        } catch (Exception e) {
+            m_log.warn("Failed to refresh HTTP metrics", e);
+        }
+    }
+
     //Clean all active sessions. This is called when UAC happens. If UAC has changed users/password
     //information we need to make users re-login. We could add more smart during UAC that if no user info is modified don't do this.
     //or only clean up the sessions with updated users' credentials.
@@ -0,0 +1,62 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.voltdb.AuthenticationResult;
+import org.voltdb.MetricsExporter;
+import org.voltdb.client.ClientResponse;
+
+/**
+ *
+ * Serves this node's precomputed statistics in Prometheus text format.
+ * Pass interval=true for the change since the previous refresh.
+ */
+public class MetricsServlet extends VoltBaseServlet {
+
+    private static final long serialVersionUID = -2392387408207426893L;
+
+    @Override
+    public void doGet(HttpServletRequest request,
+            HttpServletResponse response)
+            throws IOException, ServletException {
+
+        super.doGet(request, response);
+        AuthenticationResult authResult = authenticate(request);
+        if (!authResult.isAuthenticated()) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().print(buildClientResponse(null, ClientResponse.UNEXPECTED_FAILURE, authResult.m_message));
+            return;
+        }
+        String interval = request.getParameter("interval");
+        byte[] metrics = httpAdminListener.m_metrics.getMetrics("true".equalsIgnoreCase(interval) || "1".equals(interval));
+        if (metrics == null) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.getWriter().print(buildClientResponse(null, ClientResponse.UNEXPECTED_FAILURE,
+                    "Metrics are not available yet, or METRICS_REFRESH_INTERVAL is 0."));
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MetricsExporter.CONTENT_TYPE);
+        response.setContentLength(metrics.length);
+        response.getOutputStream().write(metrics);
+    }
+
+}
@@ -30,11 +30,15 @@ import com.google_voltpatches.common.base.Preconditions;
  *
  */
 public class MinimumRatioMaintainer {
-    private final double ratio;
+    private double ratio;
     private long unrestrictedCount = 1;
     private long restrictedCount = 1;
 
     public MinimumRatioMaintainer(double ratio) {
+        setRatio(ratio);
+    }
+
+    public void setRatio(double ratio) {
         Preconditions.checkArgument(ratio > 0.0);
         Preconditions.checkArgument( ratio < 1.0);
         this.ratio = ratio;
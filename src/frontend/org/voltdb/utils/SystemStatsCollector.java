@@ -17,14 +17,15 @@
 
 package org.voltdb.utils;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.jni.ExecutionEngine;
@@ -36,6 +37,9 @@ import org.voltdb.processtools.ShellTools;
  * periodically.
  * It stored history in three buckets, each with a fixed size.
  * Each bucket should be more granular than the last.
+ * On Linux each sample also carries CPU time, page faults, context switches and
+ * disk I/O read from procfs, and per-thread CPU time is sampled with it
+ * (see {@link ThreadCpuSampler}). Readers never take the sampling lock.
  *
  */
 public class SystemStatsCollector {
@@ -53,10 +57,201 @@ public class SystemStatsCollector {
     static GetRSSMode mode = GetRSSMode.PS;
     static Thread thread = null;
 
-    final static ArrayDeque<Datum> historyL = new ArrayDeque<Datum>(); // every hour
-    final static ArrayDeque<Datum> historyM = new ArrayDeque<Datum>(); // every minute
-    final static ArrayDeque<Datum> historyS = new ArrayDeque<Datum>(); // every 5 seconds
+    // Fields of one sample, stored as consecutive longs in a History ring
+    static final int TIMESTAMP = 0;
+    static final int RSS = 1;
+    static final int JAVA_TOTAL_HEAP = 2;
+    static final int JAVA_USED_HEAP = 3;
+    static final int JAVA_TOTAL_SYS = 4;
+    static final int JAVA_USED_SYS = 5;
+    static final int CPU_MILLIS = 6;
+    static final int MINOR_FAULTS = 7;
+    static final int MAJOR_FAULTS = 8;
+    static final int VOLUNTARY_SWITCHES = 9;
+    static final int INVOLUNTARY_SWITCHES = 10;
+    static final int DISK_READ_BYTES = 11;
+    static final int DISK_WRITE_BYTES = 12;
+    static final int FIELD_COUNT = 13;
+
     final static int historySize = 720;
+    final static History historyL = new History(historySize); // every hour
+    final static History historyM = new History(historySize); // every minute
+    final static History historyS = new History(historySize); // every 5 seconds
+
+    // procfs files held open by the sampler, null until initialize() finds procfs
+    static ProcFile procStat = null;
+    static ProcFile procStatus = null;
+    static ProcFile procIO = null;
+
+    // Clock ticks per second for utime and stime in /proc/<pid>/stat
+    static final long CLOCK_TICKS = 100;
+
+    // Reused by sampleSystemNow(), guarded by the class monitor
+    private static final long[] currentSample = new long[FIELD_COUNT];
+
+    /**
+     * A fixed size ring of samples stored as primitives. Only the sampling thread
+     * writes. Readers copy a sample without locking and discard it if the writer
+     * wrapped around and overwrote it during the copy.
+     */
+    static final class History {
+        private final AtomicLongArray m_samples;
+        private final int m_capacity;
+        private volatile long m_count = 0;
+
+        History(int capacity) {
+            m_capacity = capacity;
+            m_samples = new AtomicLongArray(capacity * FIELD_COUNT);
+        }
+
+        void add(long[] sample) {
+            final long count = m_count;
+            final int offset = slot(count);
+            for (int ii = 0; ii < FIELD_COUNT; ii++) {
+                m_samples.lazySet(offset + ii, sample[ii]);
+            }
+            m_count = count + 1;
+        }
+
+        private int slot(long index) {
+            return (int) (index % m_capacity) * FIELD_COUNT;
+        }
+
+        /**
+         * Copy sample number {@code index} into {@code out}.
+         * @return false if the sample has been overwritten
+         */
+        boolean read(long index, long[] out) {
+            final int offset = slot(index);
+            for (int ii = 0; ii < FIELD_COUNT; ii++) {
+                out[ii] = m_samples.get(offset + ii);
+            }
+            // The writer replaces this slot once it has added m_capacity more samples
+            return m_count <= index + m_capacity - 1;
+        }
+
+        long count() {
+            return m_count;
+        }
+
+        /**
+         * Copy the sample {@code back} samples before the most recent one into {@code out}.
+         * @return false if there is no such sample
+         */
+        boolean readRecent(int back, long[] out) {
+            while (true) {
+                final long count = m_count;
+                if (count <= back || back >= m_capacity - 1) {
+                    return false;
+                }
+                if (read(count - 1 - back, out)) {
+                    return true;
+                }
+            }
+        }
+
+        Datum latest() {
+            final long[] sample = new long[FIELD_COUNT];
+            return readRecent(0, sample) ? new Datum(sample) : null;
+        }
+
+        List<Datum> toList() {
+            final long count = m_count;
+            final List<Datum> result = new ArrayList<Datum>(m_capacity);
+            for (long index = Math.max(0, count - m_capacity + 1); index < count; index++) {
+                final long[] sample = new long[FIELD_COUNT];
+                if (read(index, sample)) {
+                    result.add(new Datum(sample));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A procfs file held open and re-read from the start for every sample,
+     * so sampling neither opens files nor builds strings.
+     */
+    static final class ProcFile {
+        private final RandomAccessFile m_file;
+        private final byte[] m_buffer = new byte[8192];
+        private int m_length = 0;
+
+        ProcFile(String path) throws IOException {
+            m_file = new RandomAccessFile(path, "r");
+        }
+
+        boolean read() {
+            try {
+                m_file.seek(0);
+                m_length = 0;
+                int read;
+                while (m_length < m_buffer.length &&
+                        (read = m_file.read(m_buffer, m_length, m_buffer.length - m_length)) > 0) {
+                    m_length += read;
+                }
+                return m_length > 0;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * The numeric value of space separated field {@code field} counting from zero
+         * after the closing parenthesis of the command name in /proc/<pid>/stat.
+         * The command name may itself contain spaces and parentheses.
+         */
+        long statField(int field) {
+            int pos = m_length - 1;
+            while (pos >= 0 && m_buffer[pos] != ')') {
+                pos--;
+            }
+            if (pos < 0) {
+                return -1;
+            }
+            pos += 2;
+            for (int ii = 0; ii < field && pos < m_length; pos++) {
+                if (m_buffer[pos] == ' ') {
+                    ii++;
+                }
+            }
+            return parseLong(pos);
+        }
+
+        /**
+         * The number following "key:" at the start of a line, as in /proc/<pid>/status
+         * and /proc/<pid>/io, or -1 if there is no such line.
+         */
+        long lineValue(String key) {
+            for (int pos = 0; pos < m_length; pos++) {
+                if (pos == 0 || m_buffer[pos - 1] == '\n') {
+                    int ii = 0;
+                    while (ii < key.length() && pos + ii < m_length && m_buffer[pos + ii] == key.charAt(ii)) {
+                        ii++;
+                    }
+                    if (ii == key.length() && pos + ii < m_length && m_buffer[pos + ii] == ':') {
+                        pos += ii + 1;
+                        while (pos < m_length && (m_buffer[pos] == ' ' || m_buffer[pos] == '\t')) {
+                            pos++;
+                        }
+                        return parseLong(pos);
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private long parseLong(int pos) {
+            if (pos >= m_length || m_buffer[pos] < '0' || m_buffer[pos] > '9') {
+                return -1;
+            }
+            long value = 0;
+            for (; pos < m_length && m_buffer[pos] >= '0' && m_buffer[pos] <= '9'; pos++) {
+                value = value * 10 + (m_buffer[pos] - '0');
+            }
+            return value;
+        }
+    }
 
     /**
      * All the code that is needed to read info from "ps" is
@@ -166,7 +361,8 @@ public class SystemStatsCollector {
     }
 
     /**
-     * Datum class is one sample of memory usage.
+     * Datum class is one sample of memory usage, along with the process counters
+     * read from procfs. Counters that could not be read are -1.
      */
     public static class Datum {
         public final long timestamp;
@@ -175,6 +371,13 @@ public class SystemStatsCollector {
         public final long javausedheapmem;
         public final long javatotalsysmem;
         public final long javausedsysmem;
+        public final long cpumillis;
+        public final long minorfaults;
+        public final long majorfaults;
+        public final long voluntaryswitches;
+        public final long involuntaryswitches;
+        public final long diskreadbytes;
+        public final long diskwritebytes;
 
         /**
          * Constructor accepts some system values and generates some Java values.
@@ -182,16 +385,39 @@ public class SystemStatsCollector {
          * @param rss Resident set size.
          */
         public Datum(long rss) {
-            MemoryMXBean mmxb = ManagementFactory.getMemoryMXBean();
-            MemoryUsage muheap = mmxb.getHeapMemoryUsage();
-            MemoryUsage musys = mmxb.getNonHeapMemoryUsage();
+            this(sampleJavaMemory(System.currentTimeMillis(), rss, new long[FIELD_COUNT]));
+        }
 
-            timestamp = System.currentTimeMillis();
-            this.rss = rss;
-            javatotalheapmem = muheap.getCommitted();
-            javausedheapmem = muheap.getUsed();
-            javatotalsysmem = musys.getCommitted();
-            javausedsysmem = musys.getUsed();
+        Datum(long[] sample) {
+            timestamp = sample[TIMESTAMP];
+            rss = sample[RSS];
+            javatotalheapmem = sample[JAVA_TOTAL_HEAP];
+            javausedheapmem = sample[JAVA_USED_HEAP];
+            javatotalsysmem = sample[JAVA_TOTAL_SYS];
+            javausedsysmem = sample[JAVA_USED_SYS];
+            cpumillis = sample[CPU_MILLIS];
+            minorfaults = sample[MINOR_FAULTS];
+            majorfaults = sample[MAJOR_FAULTS];
+            voluntaryswitches = sample[VOLUNTARY_SWITCHES];
+            involuntaryswitches = sample[INVOLUNTARY_SWITCHES];
+            diskreadbytes = sample[DISK_READ_BYTES];
+            diskwritebytes = sample[DISK_WRITE_BYTES];
+        }
+
+        void toSample(long[] sample) {
+            sample[TIMESTAMP] = timestamp;
+            sample[RSS] = rss;
+            sample[JAVA_TOTAL_HEAP] = javatotalheapmem;
+            sample[JAVA_USED_HEAP] = javausedheapmem;
+            sample[JAVA_TOTAL_SYS] = javatotalsysmem;
+            sample[JAVA_USED_SYS] = javausedsysmem;
+            sample[CPU_MILLIS] = cpumillis;
+            sample[MINOR_FAULTS] = minorfaults;
+            sample[MAJOR_FAULTS] = majorfaults;
+            sample[VOLUNTARY_SWITCHES] = voluntaryswitches;
+            sample[INVOLUNTARY_SWITCHES] = involuntaryswitches;
+            sample[DISK_READ_BYTES] = diskreadbytes;
+            sample[DISK_WRITE_BYTES] = diskwritebytes;
         }
 
         /**
@@ -234,22 +460,19 @@ public class SystemStatsCollector {
      * @param large Add result to large set?
      * @return The generated Datum instance.
      */
-    public static Datum sampleSystemNow(final boolean medium, final boolean large) {
-        Datum d = generateCurrentSample();
-        if (d == null)
+    public static synchronized Datum sampleSystemNow(final boolean medium, final boolean large) {
+        if (!generateCurrentSample(currentSample)) {
             return null;
-        historyS.addLast(d);
-        if (historyS.size() > historySize) historyS.removeFirst();
+        }
+        historyS.add(currentSample);
         if (medium) {
-            historyM.addLast(d);
-            if (historyM.size() > historySize) historyM.removeFirst();
+            historyM.add(currentSample);
         }
         if (large) {
-            historyL.addLast(d);
-            if (historyL.size() > historySize) historyL.removeFirst();
-
+            historyL.add(currentSample);
         }
-        return d;
+        ThreadCpuSampler.sample();
+        return new Datum(currentSample);
     }
 
     /**
@@ -280,11 +503,26 @@ public class SystemStatsCollector {
     /**
      * @return The most recently generated Datum.
      */
-    public static synchronized Datum getRecentSample() {
-        if (historyS.isEmpty()) {
-            return null;
+    public static Datum getRecentSample() {
+        return historyS.latest();
+    }
+
+    /**
+     * Process CPU usage across the two most recent samples, as a percentage of all
+     * available processors, or -1 if procfs has not provided two samples yet.
+     */
+    public static double getRecentCpuPercent() {
+        final long[] latest = new long[FIELD_COUNT];
+        final long[] previous = new long[FIELD_COUNT];
+        if (!historyS.readRecent(0, latest) || !historyS.readRecent(1, previous)) {
+            return -1;
         }
-        return historyS.getLast();
+        final long elapsedMillis = latest[TIMESTAMP] - previous[TIMESTAMP];
+        if (latest[CPU_MILLIS] < 0 || previous[CPU_MILLIS] < 0 || elapsedMillis <= 0) {
+            return -1;
+        }
+        return (latest[CPU_MILLIS] - previous[CPU_MILLIS]) * 100.0 /
+                (elapsedMillis * Runtime.getRuntime().availableProcessors());
     }
 
     /**
@@ -299,14 +537,20 @@ public class SystemStatsCollector {
         pid = Integer.valueOf(pidString);
         initialized = true;
 
-        // get the RSS and other stats from scraping "ps" from the command line
-        PSScraper.PSData psdata = PSScraper.getPSData(pid);
-        assert(psdata.rss > 0);
-
         // figure out how much memory this thing has
         memorysize = pp.ramInMegabytes;
         assert(memorysize > 0);
 
+        // procfs is the cheapest source and the only one for faults, context switches and disk I/O
+        if (getRSSFromProcFS() > 0) {
+            mode = GetRSSMode.PROCFS;
+            return;
+        }
+
+        // get the RSS and other stats from scraping "ps" from the command line
+        PSScraper.PSData psdata = PSScraper.getPSData(pid);
+        assert(psdata.rss > 0);
+
         // now try to figure out the best way to get the rss size
         long rss = -1;
 
@@ -321,10 +565,6 @@ public class SystemStatsCollector {
         catch (Throwable e) { }
         if (rss > 0) mode = GetRSSMode.MACOSX_NATIVE;
 
-        // try procfs
-        rss = getRSSFromProcFS();
-        if (rss > 0) mode = GetRSSMode.PROCFS;
-
         // notify users if stats collection might be slow
         if (mode == GetRSSMode.PS) {
             VoltLogger logger = new VoltLogger("HOST");
@@ -335,61 +575,119 @@ public class SystemStatsCollector {
     }
 
     /**
-     * Get the RSS using the procfs. If procfs is not
-     * around, this will return -1;
+     * Open the procfs files for this process, once. Status and io are optional;
+     * io in particular is not readable in every container.
      */
-    private static long getRSSFromProcFS() {
+    private static synchronized boolean openProcFS() {
+        if (procStat != null) {
+            return true;
+        }
         try {
-            File statFile = new File(String.format("/proc/%d/stat", pid));
-            FileInputStream fis = new FileInputStream(statFile);
-            try {
-                BufferedReader r = new BufferedReader(new InputStreamReader(fis));
-                String stats = r.readLine();
-                String[] parts = stats.split(" ");
-                return Long.parseLong(parts[23]) * 4 * 1024;
-            } finally {
-                fis.close();
+            procStat = new ProcFile(String.format("/proc/%d/stat", pid));
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            procStatus = new ProcFile(String.format("/proc/%d/status", pid));
+        } catch (IOException e) { }
+        try {
+            procIO = new ProcFile(String.format("/proc/%d/io", pid));
+            if (!procIO.read()) {
+                procIO = null;
             }
+        } catch (IOException e) { }
+        return true;
+    }
+
+    /**
+     * Fill in the procfs fields of a sample.
+     * @return false if procfs could not be read
+     */
+    private static synchronized boolean readProcFS(long[] sample) {
+        if (!openProcFS() || !procStat.read()) {
+            return false;
         }
-        catch (Exception e) {
-            return -1;
+        // Fields 10, 12, 14, 15 and 24 of /proc/<pid>/stat, counting from the pid as 1
+        sample[MINOR_FAULTS] = procStat.statField(7);
+        sample[MAJOR_FAULTS] = procStat.statField(9);
+        long utime = procStat.statField(11);
+        long stime = procStat.statField(12);
+        sample[CPU_MILLIS] = utime < 0 || stime < 0 ? -1 : (utime + stime) * 1000 / CLOCK_TICKS;
+        long pages = procStat.statField(21);
+        sample[RSS] = pages < 0 ? -1 : pages * 4 * 1024;
+
+        if (procStatus != null && procStatus.read()) {
+            sample[VOLUNTARY_SWITCHES] = procStatus.lineValue("voluntary_ctxt_switches");
+            sample[INVOLUNTARY_SWITCHES] = procStatus.lineValue("nonvoluntary_ctxt_switches");
+        }
+        if (procIO != null && procIO.read()) {
+            sample[DISK_READ_BYTES] = procIO.lineValue("read_bytes");
+            sample[DISK_WRITE_BYTES] = procIO.lineValue("write_bytes");
         }
+        return sample[RSS] > 0;
+    }
+
+    /**
+     * Get the RSS using the procfs. If procfs is not
+     * around, this will return -1;
+     */
+    private static long getRSSFromProcFS() {
+        long[] sample = new long[FIELD_COUNT];
+        return readProcFS(sample) ? sample[RSS] : -1;
     }
 
     public static synchronized long getRSSMB() {
-        Datum d = generateCurrentSample();
-        return d.rss;
+        long[] sample = new long[FIELD_COUNT];
+        generateCurrentSample(sample);
+        return sample[RSS];
+    }
+
+    private static long[] sampleJavaMemory(long timestamp, long rss, long[] sample) {
+        MemoryMXBean mmxb = ManagementFactory.getMemoryMXBean();
+        MemoryUsage muheap = mmxb.getHeapMemoryUsage();
+        MemoryUsage musys = mmxb.getNonHeapMemoryUsage();
+
+        Arrays.fill(sample, -1);
+        sample[TIMESTAMP] = timestamp;
+        sample[RSS] = rss;
+        sample[JAVA_TOTAL_HEAP] = muheap.getCommitted();
+        sample[JAVA_USED_HEAP] = muheap.getUsed();
+        sample[JAVA_TOTAL_SYS] = musys.getCommitted();
+        sample[JAVA_USED_SYS] = musys.getUsed();
+        return sample;
     }
 
     /**
-     * Poll the operating system and generate a Datum
-     * @return A newly created Datum instance.
+     * Poll the operating system and fill in a sample
+     * @return false if there is no sample to record
      */
-    private static synchronized Datum generateCurrentSample() {
+    private static synchronized boolean generateCurrentSample(long[] sample) {
         // Code used to fake system statistics by tests
         if (testStatsProducer!=null) {
-            return testStatsProducer.getCurrentStatsData();
+            Datum d = testStatsProducer.getCurrentStatsData();
+            if (d == null) {
+                return false;
+            }
+            d.toSample(sample);
+            return true;
         }
 
         // get this info once
         if (!initialized) initialize();
 
-        long rss = -1;
+        sampleJavaMemory(System.currentTimeMillis(), -1, sample);
         switch (mode) {
         case MACOSX_NATIVE:
-            rss = ExecutionEngine.nativeGetRSS();
+            sample[RSS] = ExecutionEngine.nativeGetRSS();
             break;
         case PROCFS:
-            rss = getRSSFromProcFS();
+            readProcFS(sample);
             break;
         case PS:
-            rss = PSScraper.getPSData(pid).rss;
+            sample[RSS] = PSScraper.getPSData(pid).rss;
             break;
         }
-
-        // create a new Datum which adds java stats
-        Datum d = new Datum(rss);
-        return d;
+        return true;
     }
 
     /**
@@ -403,7 +701,7 @@ public class SystemStatsCollector {
      */
     public static synchronized String getGoogleChartURL(int minutes, int width, int height, String timeLabel) {
 
-        ArrayDeque<Datum> history = historyS;
+        History history = historyS;
         if (minutes > 2) history = historyM;
         if (minutes > 30) history = historyL;
 
@@ -436,7 +734,7 @@ public class SystemStatsCollector {
 
         double maxmemdatum = 0;
 
-        for (Datum d : history) {
+        for (Datum d : history.toList()) {
             if (d.timestamp < cropts) continue;
 
             double javaused = d.javausedheapmem + d.javausedsysmem;
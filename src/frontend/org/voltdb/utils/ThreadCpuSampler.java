@@ -0,0 +1,154 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-thread CPU time, sampled by {@link SystemStatsCollector} alongside the process
+ * statistics. Every sample is published as an immutable snapshot, ordered hottest
+ * thread first, so readers never wait for the sampler.
+ */
+public class ThreadCpuSampler {
+
+    /**
+     * What a thread does, judged from the names VoltDB gives its threads.
+     */
+    public enum Role {
+        SITE, NETWORK, EXPORT, OTHER;
+
+        static Role of(String threadName) {
+            if (threadName.contains(" Site - ")) {
+                return SITE;
+            }
+            if (threadName.contains("Network - ")) {
+                return NETWORK;
+            }
+            if (threadName.startsWith("Export") || threadName.contains("ExportDataSource")) {
+                return EXPORT;
+            }
+            return OTHER;
+        }
+    }
+
+    public static class Snapshot {
+        public final long timestamp;
+        // Wall clock nanoseconds since the previous sample, 0 for the first sample
+        public final long intervalNanos;
+        public final long[] threadIds;
+        public final String[] threadNames;
+        public final Role[] roles;
+        public final long[] cpuNanos;
+        public final long[] intervalCpuNanos;
+
+        Snapshot(long timestamp, long intervalNanos, int threadCount) {
+            this.timestamp = timestamp;
+            this.intervalNanos = intervalNanos;
+            threadIds = new long[threadCount];
+            threadNames = new String[threadCount];
+            roles = new Role[threadCount];
+            cpuNanos = new long[threadCount];
+            intervalCpuNanos = new long[threadCount];
+        }
+
+        public int size() {
+            return threadIds.length;
+        }
+
+        /**
+         * CPU used by thread {@code index} over the last interval, as a percentage of one core.
+         */
+        public double percentUsed(int index) {
+            return intervalNanos > 0 ? intervalCpuNanos[index] * 100.0 / intervalNanos : 0;
+        }
+    }
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private static volatile Snapshot latest = null;
+    private static long lastSampleNanos = 0;
+
+    /**
+     * @return The most recent snapshot, or null if CPU time is not measurable on this JVM
+     * or nothing has been sampled yet.
+     */
+    public static Snapshot getLatest() {
+        return latest;
+    }
+
+    static synchronized void sample() {
+        if (!threadBean.isThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final long[] ids = threadBean.getAllThreadIds();
+        final ThreadInfo[] infos = threadBean.getThreadInfo(ids);
+        final long[] cpu = new long[ids.length];
+        for (int ii = 0; ii < ids.length; ii++) {
+            cpu[ii] = threadBean.getThreadCpuTime(ids[ii]);
+        }
+
+        final Snapshot previous = latest;
+        final Map<Long, Integer> previousIndex = new HashMap<>();
+        if (previous != null) {
+            for (int ii = 0; ii < previous.size(); ii++) {
+                previousIndex.put(previous.threadIds[ii], ii);
+            }
+        }
+
+        // Threads that exited between listing and measuring report -1 and are dropped
+        Integer[] order = new Integer[ids.length];
+        long[] interval = new long[ids.length];
+        int live = 0;
+        for (int ii = 0; ii < ids.length; ii++) {
+            if (cpu[ii] < 0 || infos[ii] == null) {
+                continue;
+            }
+            Integer before = previousIndex.get(ids[ii]);
+            interval[ii] = before == null ? cpu[ii] : cpu[ii] - previous.cpuNanos[before];
+            order[live++] = ii;
+        }
+        order = Arrays.copyOf(order, live);
+        final long[] intervalCpu = interval;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(intervalCpu[b], intervalCpu[a]);
+            }
+        });
+
+        Snapshot snapshot = new Snapshot(System.currentTimeMillis(),
+                previous == null ? 0 : now - lastSampleNanos, live);
+        for (int ii = 0; ii < live; ii++) {
+            int index = order[ii];
+            snapshot.threadIds[ii] = ids[index];
+            snapshot.threadNames[ii] = infos[index].getThreadName();
+            snapshot.roles[ii] = Role.of(snapshot.threadNames[ii]);
+            snapshot.cpuNanos[ii] = cpu[index];
+            snapshot.intervalCpuNanos[ii] = interval[index];
+        }
+        lastSampleNanos = now;
+        latest = snapshot;
+    }
+}
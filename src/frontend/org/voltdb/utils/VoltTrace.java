@@ -316,6 +316,16 @@ public class VoltTrace implements Runnable {
             return this;
         }
 
+        /**
+         * Same as {@link #add(Supplier)}, but stamps the event with the given
+         * {@link System#nanoTime()} value instead of the current time. Used to
+         * lay out intervals that were timed before they could be logged.
+         */
+        public TraceEventBatch add(Supplier<TraceEvent> s, long nanos) {
+            m_events.add(new TraceEventWrapper(s, nanos));
+            return this;
+        }
+
         protected TraceEvent nextEvent() {
             final TraceEventWrapper wrapper = m_events.poll();
             if (wrapper != null) {
@@ -331,11 +341,16 @@ public class VoltTrace implements Runnable {
      * at the time of the log.
      */
     private static class TraceEventWrapper {
-        private final long m_ts = System.nanoTime();
+        private final long m_ts;
         private final Supplier<TraceEvent> m_event;
 
         public TraceEventWrapper(Supplier<TraceEvent> event) {
+            this(event, System.nanoTime());
+        }
+
+        public TraceEventWrapper(Supplier<TraceEvent> event, long ts) {
             m_event = event;
+            m_ts = ts;
         }
 
         public TraceEvent get(Category cat, long tid) {
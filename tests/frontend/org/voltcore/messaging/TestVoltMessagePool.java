@@ -0,0 +1,130 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltdb.DependencyPair;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FragmentResponseMessage;
+import org.voltdb.messaging.FragmentTaskMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
+
+import junit.framework.TestCase;
+
+public class TestVoltMessagePool extends TestCase {
+
+    private static ByteBuffer fragmentResponse(long txnId, boolean withTable) throws IOException {
+        FragmentTaskMessage ft = new FragmentTaskMessage(15, 12, txnId, 99, false, false, false, false,
+                TransactionInfoBaseMessage.INITIAL_TIMESTAMP);
+        FragmentResponseMessage fr = new FragmentResponseMessage(ft, 23);
+        fr.setStatus(FragmentResponseMessage.SUCCESS, null);
+        if (withTable) {
+            VoltTable table = new VoltTable(new VoltTable.ColumnInfo("C1", VoltType.STRING));
+            table.addRow("pooled");
+            fr.addDependency(new DependencyPair.TableDependencyPair(7, table));
+        }
+        return VoltMessage.toBuffer(fr);
+    }
+
+    public void testReleasedMessageIsReused() throws IOException {
+        VoltMessageFactory factory = new VoltDbMessageFactory();
+        VoltMessagePool pool = new VoltMessagePool(4, false);
+        factory.poolMessageType(VoltDbMessageFactory.FRAGMENT_RESPONSE_ID, pool);
+
+        FragmentResponseMessage first =
+                (FragmentResponseMessage)factory.createMessageFromBuffer(fragmentResponse(37, true), 5);
+        assertEquals(37, first.getTxnId());
+        assertEquals(1, first.getTableCount());
+        VoltTable table = first.getTableAtIndex(0);
+        first.release();
+        // tables taken out of the message outlive it
+        assertEquals("pooled", table.fetchRow(0).getString(0));
+
+        FragmentResponseMessage second =
+                (FragmentResponseMessage)factory.createMessageFromBuffer(fragmentResponse(38, false), 6);
+        assertSame(first, second);
+        assertEquals(38, second.getTxnId());
+        assertEquals(6, second.m_sourceHSId);
+        assertEquals(0, second.getTableCount());
+        assertEquals(FragmentResponseMessage.SUCCESS, second.getStatusCode());
+        // reserializes exactly like a freshly constructed instance
+        assertEquals(fragmentResponse(38, false), VoltMessage.toBuffer(second));
+
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getReusedCount());
+        assertEquals(1, pool.getReleasedCount());
+    }
+
+    public void testUnpooledMessagesIgnoreRelease() throws IOException {
+        VoltMessageFactory factory = new VoltDbMessageFactory();
+        VoltMessage message = factory.createMessageFromBuffer(fragmentResponse(37, false), 5);
+        message.release();
+        assertEquals(37, ((FragmentResponseMessage)message).getTxnId());
+    }
+
+    public void testOnlyPoolableTypesCanBePooled() {
+        VoltMessageFactory factory = new VoltDbMessageFactory();
+        try {
+            factory.poolMessageType(VoltDbMessageFactory.FRAGMENT_TASK_ID, 4);
+            fail("Pooled a message type that can not be reset");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertNull(factory.getPool(VoltDbMessageFactory.FRAGMENT_TASK_ID));
+    }
+
+    public void testUseAfterReleaseIsDetected() throws IOException {
+        boolean assertOn = false;
+        assert(assertOn = true);
+        if (!assertOn) {
+            return;
+        }
+        VoltMessageFactory factory = new VoltDbMessageFactory();
+        VoltMessagePool pool = new VoltMessagePool(4, true);
+        factory.poolMessageType(VoltDbMessageFactory.FRAGMENT_RESPONSE_ID, pool);
+
+        FragmentResponseMessage message =
+                (FragmentResponseMessage)factory.createMessageFromBuffer(fragmentResponse(37, true), 5);
+        message.release();
+        try {
+            message.getTableCount();
+            fail("Released message was readable");
+        } catch (IllegalStateException expected) {
+            assertNotNull(expected.getCause());
+        }
+        try {
+            message.release();
+            fail("Released message was released twice");
+        } catch (IllegalStateException expected) {
+        }
+
+        // quarantined messages are never handed out again
+        FragmentResponseMessage next =
+                (FragmentResponseMessage)factory.createMessageFromBuffer(fragmentResponse(38, false), 5);
+        assertNotSame(message, next);
+        assertEquals(0, pool.getReusedCount());
+    }
+}
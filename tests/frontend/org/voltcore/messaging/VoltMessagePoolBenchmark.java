@@ -0,0 +1,116 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.messaging;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.voltdb.DependencyPair;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FragmentResponseMessage;
+import org.voltdb.messaging.FragmentTaskMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
+
+/**
+ * Deserializes a stream of fragment responses the way the multi-partition coordinator
+ * receives them, with and without pooling, and reports bytes allocated per message and
+ * garbage collections. Usage: VoltMessagePoolBenchmark [messages]
+ */
+public class VoltMessagePoolBenchmark {
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long[] gcCountAndMillis() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+            millis += gc.getCollectionTime();
+        }
+        return new long[] { count, millis };
+    }
+
+    private static long run(VoltMessageFactory factory, ByteBuffer serialized, int messages) throws Exception {
+        long rows = 0;
+        for (int ii = 0; ii < messages; ii++) {
+            serialized.rewind();
+            FragmentResponseMessage msg =
+                    (FragmentResponseMessage)factory.createMessageFromBuffer(serialized, ii);
+            for (int jj = 0; jj < msg.getTableCount(); jj++) {
+                rows += msg.getTableAtIndex(jj).getRowCount();
+            }
+            msg.release();
+        }
+        return rows;
+    }
+
+    private static void measure(String name, boolean pooled, ByteBuffer serialized, int messages) throws Exception {
+        VoltMessageFactory factory = new VoltDbMessageFactory();
+        if (pooled) {
+            factory.poolMessageType(VoltDbMessageFactory.FRAGMENT_RESPONSE_ID,
+                    new VoltMessagePool(VoltMessagePool.CAPACITY, false));
+        }
+        // warm up
+        run(factory, serialized, messages / 10);
+
+        final long[] gcBefore = gcCountAndMillis();
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        run(factory, serialized, messages);
+        final long elapsedNanos = System.nanoTime() - start;
+        final long allocated = allocatedBytes() - allocatedBefore;
+        final long[] gcAfter = gcCountAndMillis();
+
+        System.out.printf("%-9s %8.1f bytes/msg %8.1f MB/s allocated %5d GCs %6d ms in GC %6d ns/msg%n",
+                name,
+                allocated / (double)messages,
+                allocated / (elapsedNanos / 1000000000.0) / (1024 * 1024),
+                gcAfter[0] - gcBefore[0],
+                gcAfter[1] - gcBefore[1],
+                elapsedNanos / messages);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int messages = args.length > 0 ? Integer.parseInt(args[0]) : 20000000;
+
+        FragmentTaskMessage ft = new FragmentTaskMessage(15, 12, 37, 99, false, false, false, false,
+                TransactionInfoBaseMessage.INITIAL_TIMESTAMP);
+        FragmentResponseMessage fr = new FragmentResponseMessage(ft, 23);
+        fr.setStatus(FragmentResponseMessage.SUCCESS, null);
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("C1", VoltType.BIGINT));
+        table.addRow(1L);
+        fr.addDependency(new DependencyPair.TableDependencyPair(7, table));
+        ByteBuffer serialized = VoltMessage.toBuffer(fr);
+
+        for (int ii = 0; ii < 2; ii++) {
+            measure("unpooled", false, serialized, messages);
+            measure("pooled", true, serialized, messages);
+        }
+    }
+}
@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -57,6 +58,7 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.utils.EstTime;
@@ -203,11 +205,49 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
+            // Like write(ByteBuffer[]) only the first buffer with data is consumed
+            for (int ii = offset; ii < offset + length; ii++) {
+                if (srcs[ii].hasRemaining()) {
+                    return write(srcs[ii]);
+                }
+            }
             return 0;
         }
     }
 
+    /**
+     * Mock channel that accepts bytes until its budget runs out and
+     * remembers everything it was given along with the number of write calls.
+     */
+    private static class CapturingChannel extends MockChannel {
+        CapturingChannel(int budget) {
+            super(SINK, 0);
+            m_budget = budget;
+        }
+        int m_budget;
+        final ByteArrayOutputStream m_captured = new ByteArrayOutputStream();
+        int m_writeCalls = 0;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return (int)write(new ByteBuffer[] { src }, 0, 1);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            m_writeCalls++;
+            int written = 0;
+            for (int ii = offset; ii < offset + length && m_budget > 0; ii++) {
+                while (srcs[ii].hasRemaining() && m_budget > 0) {
+                    m_captured.write(srcs[ii].get());
+                    m_budget--;
+                    written++;
+                }
+            }
+            return written;
+        }
+    }
+
 
     public void testSink() throws IOException {
         MockChannel channel = new MockChannel(MockChannel.SINK, 0);
@@ -389,6 +429,64 @@ public class TestNIOWriteStream extends TestCase {
         wstream.shutdown();
     }
 
+    public void testGatheringWrite() throws IOException {
+        CapturingChannel channel = new CapturingChannel(Integer.MAX_VALUE);
+        MockPort port = new MockPort();
+        VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+
+        // 200 bytes spans fifty 4 byte pool buffers, drained sixteen at a time
+        ByteBuffer tmp = ByteBuffer.allocate(200);
+        for (int ii = 0; ii < 200; ii++) {
+            tmp.put((byte)ii);
+        }
+        tmp.flip();
+        wstream.enqueue(tmp.duplicate());
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(200, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        assertEquals(4, channel.m_writeCalls);
+        assertTrue(Arrays.equals(tmp.array(), channel.m_captured.toByteArray()));
+        wstream.shutdown();
+    }
+
+    public void testPartialGatheringWrite() throws IOException {
+        CapturingChannel channel = new CapturingChannel(130);
+        MockPort port = new MockPort();
+        VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+
+        ByteBuffer first = ByteBuffer.allocate(150);
+        for (int ii = 0; ii < 150; ii++) {
+            first.put((byte)ii);
+        }
+        first.flip();
+        wstream.enqueue(first.duplicate());
+        wstream.serializeQueuedWrites(pool);
+
+        // The third write stops part way through a buffer, the partially filled last
+        // buffer was gathered but untouched and must still accept more serialized data
+        assertEquals(130, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+        ByteBuffer second = ByteBuffer.allocate(10);
+        for (int ii = 0; ii < 10; ii++) {
+            second.put((byte)(150 + ii));
+        }
+        second.flip();
+        wstream.enqueue(second.duplicate());
+        wstream.serializeQueuedWrites(pool);
+        channel.m_budget = Integer.MAX_VALUE;
+        assertEquals(30, wstream.drainTo(channel));
+        // three writes and a zero byte write to fill the socket, then one for the rest
+        assertEquals(5, channel.m_writeCalls);
+        assertTrue(wstream.isEmpty());
+
+        byte expected[] = new byte[160];
+        for (int ii = 0; ii < 160; ii++) {
+            expected[ii] = (byte)ii;
+        }
+        assertTrue(Arrays.equals(expected, channel.m_captured.toByteArray()));
+        wstream.shutdown();
+    }
+
     public void testLastWriteDelta() throws Exception {
         EstTimeUpdater.pause = true;
         Thread.sleep(10);
@@ -196,4 +196,37 @@ public class TestPicoNetwork extends TestCase {
             rawChannel.read(buf);
         }
     }
+
+    @Test
+    public void testSmallMessagesStayInOrder() throws Exception {
+        final int count = 1000;
+        for (int ii = 0; ii < count - 1; ii++) {
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            buf.putInt(4);
+            buf.putInt(ii);
+            buf.flip();
+            pn.enqueue(buf);
+        }
+        ByteBuffer last = ByteBuffer.allocate(8);
+        last.putInt(4);
+        last.putInt(count - 1);
+        last.flip();
+        pn.enqueueAndDrain(last).get();
+
+        ByteBuffer received = ByteBuffer.allocate(8 * count);
+        while (received.hasRemaining()) {
+            rawChannel.read(received);
+        }
+        received.flip();
+        for (int ii = 0; ii < count; ii++) {
+            assertEquals(4, received.getInt());
+            assertEquals(ii, received.getInt());
+        }
+
+        long counters[] = pn.getIOStats(false).get().get(-1L).getSecond();
+        assertEquals(8L * count, counters[2]);
+        // every message was serialized, sharing socket writes whenever they queued up together
+        assertEquals(count, counters[4]);
+        assertTrue(counters[5] >= 1 && counters[5] <= count);
+    }
 }
@@ -0,0 +1,128 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientAuthScheme;
+import org.voltdb.client.ConnectionUtil;
+import org.voltdb.compiler.VoltProjectBuilder;
+
+/**
+ * Starts a server with security enabled and opens many authenticated connections
+ * at once, as clients do when they all reconnect after a node failure, and reports
+ * how long it takes until every connection is authenticated. Connections that are
+ * refused or time out are retried, as a client would.
+ *
+ * Run with -DAUTH_CACHE_SECONDS=0 to compare against checking bcrypt on every login.
+ * Both ends of every connection live in this process, so raise the file descriptor
+ * limit (ulimit -n) well above twice the connection count.
+ *
+ * Usage: ClientConnectionStormBenchmark [connections] [connecting threads]
+ */
+public class ClientConnectionStormBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int connectionCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        VoltProjectBuilder pb = new VoltProjectBuilder();
+        pb.addLiteralSchema("CREATE TABLE T (ID INTEGER NOT NULL);");
+        pb.setSecurityEnabled(true, true);
+        String jarPath = Configuration.getPathToCatalogForTest("connectionstorm.jar");
+        if (!pb.compile(jarPath, 1, 0)) {
+            throw new RuntimeException("Failed to compile the benchmark catalog");
+        }
+        ServerThread server = new ServerThread(jarPath, pb.getPathToDeployment(), BackendTarget.NATIVE_EE_JNI);
+        server.start();
+        server.waitForInitialization();
+
+        final byte[] hashedPassword = ConnectionUtil.getHashedPassword(ClientAuthScheme.HASH_SHA256, "admin");
+        final Queue<SocketChannel> connections = new ConcurrentLinkedQueue<>();
+        final AtomicInteger retries = new AtomicInteger();
+        final AtomicInteger remaining = new AtomicInteger(connectionCount);
+        final CountDownLatch go = new CountDownLatch(1);
+
+        ExecutorService es = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(es.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                        while (remaining.getAndDecrement() > 0) {
+                            connections.add(connect(hashedPassword, retries));
+                        }
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+
+        System.out.printf("Opening %d connections from %d threads\n", connectionCount, threadCount);
+        long start = System.nanoTime();
+        go.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        System.out.printf("All %d connections authenticated in %d ms (%.0f/s) after %d retries\n",
+                connections.size(), elapsedMillis, connections.size() * 1000.0 / Math.max(1, elapsedMillis),
+                retries.get());
+
+        es.shutdown();
+        for (SocketChannel sc : connections) {
+            sc.close();
+        }
+        server.shutdown();
+        System.exit(0);
+    }
+
+    private static SocketChannel connect(byte[] hashedPassword, AtomicInteger retries) throws InterruptedException {
+        while (true) {
+            try {
+                Object[] conn = ConnectionUtil.getAuthenticatedConnection("localhost", "defaultadmin",
+                        hashedPassword, Client.VOLTDB_SERVER_PORT, null, ClientAuthScheme.HASH_SHA256, 30000);
+                return (SocketChannel) conn[0];
+            } catch (IOException e) {
+                retries.incrementAndGet();
+                Thread.sleep(10);
+            }
+        }
+    }
+}
@@ -52,6 +52,17 @@ public class TCPThroughput {
          */
         private ByteBuffer m_buffer = ByteBuffer.allocateDirect(expectedPacketSize);
 
+        /**
+         * Packets handed to the channel each time the port is writable, either in one
+         * gathering write or one write per packet
+         */
+        private final ByteBuffer m_writeBuffers[] = new ByteBuffer[packetsPerWrite];
+        {
+            for (int ii = 0; ii < m_writeBuffers.length; ii++) {
+                m_writeBuffers[ii] = ByteBuffer.allocateDirect(expectedPacketSize);
+            }
+        }
+
         /**
          * Set to true if a socket channel operation throws an IOException. Causes the socket channel to be closed
          * by the selector thread when this port is reached in the change list.
@@ -76,9 +87,20 @@ public class TCPThroughput {
                 if (m_selectionKey.isReadable()) {
                     bytesReceived.addAndGet(m_channel.read(m_buffer));
                 }
-                m_buffer.clear();
                 if (m_selectionKey.isWritable()) {
-                    bytesSent.addAndGet(m_channel.write(m_buffer));
+                    for (ByteBuffer b : m_writeBuffers) {
+                        b.clear();
+                    }
+                    if (gatheringWrites) {
+                        bytesSent.addAndGet(m_channel.write(m_writeBuffers));
+                    } else {
+                        for (ByteBuffer b : m_writeBuffers) {
+                            bytesSent.addAndGet(m_channel.write(b));
+                            if (b.hasRemaining()) {
+                                break;
+                            }
+                        }
+                    }
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -122,6 +144,8 @@ public class TCPThroughput {
     private static final int port = 29600;
     private static final int numPorts = 30;
     static int expectedPacketSize = 600;
+    static int packetsPerWrite = 1;
+    static boolean gatheringWrites = true;
 
     private static ServerSocketChannel servers[];
     private static Selector selector;
@@ -208,6 +232,10 @@ public class TCPThroughput {
                 addressString = parts[1];
             } else if (parts[0].equals("seconds")) {
                 seconds = Integer.parseInt(parts[1]);
+            } else if (parts[0].equals("packets")) {
+                packetsPerWrite = Integer.parseInt(parts[1]);
+            } else if (parts[0].equals("gather")) {
+                gatheringWrites = Boolean.parseBoolean(parts[1]);
             }
         }
 
@@ -411,5 +439,13 @@ public class TCPThroughput {
                 }
             }
         }
+
+        if (!runServer) {
+            System.out.println("TCPThroughputSender result:\n\tpackets per write == " + packetsPerWrite
+                    + "\n\tgathering writes == " + gatheringWrites
+                    + "\n\tbytesSent == " + bytesSent.get()
+                    + "\nmegabytes/sec == " + (bytesSent.get() / seconds / 1024 / 1024));
+            System.exit(0);
+        }
     }
 }
@@ -22,6 +22,13 @@
  */
 package org.voltdb;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+import org.voltdb.AdmissionControlGroup.AdmissionClass;
+import org.voltdb.AdmissionControlGroup.AdmissionClassSpec;
+
 import junit.framework.TestCase;
 
 public class TestAdmissionControlGroup extends TestCase {
@@ -142,4 +149,147 @@ public class TestAdmissionControlGroup extends TestCase {
             acg.reduceBackpressure(-1);
         } catch (IllegalArgumentException e) {}
     }
+
+    public void testParseClassSpecs() {
+        List<AdmissionClassSpec> specs = AdmissionControlGroup.parseClassSpecs("");
+        assertEquals(1, specs.size());
+        assertEquals(AdmissionControlGroup.DEFAULT_ADMISSION_CLASS, specs.get(0).m_name);
+
+        specs = AdmissionControlGroup.parseClassSpecs("default=4; batch=1:loader, etl");
+        assertEquals(2, specs.size());
+        assertEquals("DEFAULT", specs.get(0).m_name);
+        assertEquals(4, specs.get(0).m_weight);
+        assertEquals("BATCH", specs.get(1).m_name);
+        assertEquals("BATCH", AdmissionControlGroup.getAdmissionClassName(specs, "loader", new String[0]));
+        assertEquals("BATCH", AdmissionControlGroup.getAdmissionClassName(specs, "bob", new String[] {"Etl"}));
+        assertEquals("DEFAULT", AdmissionControlGroup.getAdmissionClassName(specs, "Loader", new String[] {"user"}));
+
+        for (String bad : new String[] {"batch", "batch=0", "batch=x", "=1", "a=1;A=2"}) {
+            try {
+                AdmissionControlGroup.parseClassSpecs(bad);
+                fail(bad);
+            } catch (IllegalArgumentException e) {}
+        }
+    }
+
+    public void testBadClassSpecsFallBackToDefault() {
+        List<AdmissionClassSpec> specs = AdmissionControlGroup.loadClassSpecs("batch=x");
+        assertEquals(1, specs.size());
+        assertEquals(AdmissionControlGroup.DEFAULT_ADMISSION_CLASS, specs.get(0).m_name);
+    }
+
+    public void testTinyShareCanResume() {
+        // BATCH gets 0.1% of 1000 transactions, which would truncate to a limit of 0
+        acg = new AdmissionControlGroup(1000, 1000, AdmissionControlGroup.parseClassSpecs("DEFAULT=999;BATCH=1"));
+        AdmissionClass batch = acg.getAdmissionClass("BATCH");
+        ACGMember batchMember = new ACGMember();
+        acg.addMember(batchMember, batch);
+        acg.increaseBackpressure(batch, 1);
+        acg.increaseBackpressure(batch, 1);
+        assertTrue(batch.hasBackPressure());
+        acg.reduceBackpressure(batch, 1);
+        acg.reduceBackpressure(batch, 1);
+        assertFalse(batch.hasBackPressure());
+        assertEquals(1, batchMember.offBackpressure);
+    }
+
+    public void testBackpressureIsPerClass() {
+        acg = new AdmissionControlGroup(1000, 100, AdmissionControlGroup.parseClassSpecs("DEFAULT=3;BATCH=1"));
+        AdmissionClass oltp = acg.getDefaultClass();
+        AdmissionClass batch = acg.getAdmissionClass("BATCH");
+        ACGMember oltpMember = new ACGMember();
+        ACGMember batchMember = new ACGMember();
+        acg.addMember(oltpMember, oltp);
+        acg.addMember(batchMember, batch);
+
+        // batch gets a quarter of the 100 transactions
+        for (int ii = 0; ii < 26; ii++) {
+            acg.increaseBackpressure(batch, 1);
+        }
+        assertTrue(batch.hasBackPressure());
+        assertFalse(oltp.hasBackPressure());
+        assertEquals(1, batchMember.onBackpressure);
+        assertEquals(0, oltpMember.onBackpressure);
+        assertEquals(1, batch.getBackpressureCount());
+        assertEquals(26, batch.getPendingTxnCount());
+
+        // and a quarter of the bytes, responses included
+        acg.queue(oltp, 700);
+        assertFalse(oltp.hasBackPressure());
+        acg.queue(oltp, 51);
+        assertTrue(oltp.hasBackPressure());
+        assertEquals(1, oltpMember.onBackpressure);
+        acg.queue(oltp, -200);
+        assertFalse(oltp.hasBackPressure());
+        assertEquals(1, oltpMember.offBackpressure);
+
+        // batch resumes under 80% of its share
+        for (int ii = 0; ii < 6; ii++) {
+            acg.reduceBackpressure(batch, 1);
+        }
+        assertTrue(batch.hasBackPressure());
+        acg.reduceBackpressure(batch, 1);
+        assertFalse(batch.hasBackPressure());
+        assertEquals(1, batchMember.offBackpressure);
+        assertEquals(1, oltpMember.offBackpressure);
+    }
+
+    /*
+     * Simulate a batch client that submits as fast as admission control lets it alongside
+     * a steady OLTP client, with a server completing work in arrival order. Return the 99th
+     * percentile number of ticks an OLTP transaction waits for.
+     */
+    private static long oltpP99(String classConfig, ACGMember oltpMember) {
+        AdmissionControlGroup group = new AdmissionControlGroup(
+                1024 * 1024 * 8, 1000, AdmissionControlGroup.parseClassSpecs(classConfig));
+        AdmissionClass oltp = group.getDefaultClass();
+        AdmissionClass batch = group.getAdmissionClass("BATCH");
+        ACGMember batchMember = new ACGMember();
+        group.addMember(oltpMember, oltp);
+        group.addMember(batchMember, batch);
+
+        final int ticks = 20000;
+        ArrayDeque<long[]> serverQueue = new ArrayDeque<long[]>();
+        long[] latencies = new long[ticks];
+        int completedOltp = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int ii = 0; ii < 50 && batchMember.onBackpressure == batchMember.offBackpressure; ii++) {
+                group.increaseBackpressure(batch, 1024);
+                serverQueue.add(new long[] {tick, 0});
+            }
+            if (oltpMember.onBackpressure == oltpMember.offBackpressure) {
+                group.increaseBackpressure(oltp, 128);
+                serverQueue.add(new long[] {tick, 1});
+            }
+            for (int ii = 0; ii < 10 && !serverQueue.isEmpty(); ii++) {
+                long[] txn = serverQueue.poll();
+                if (txn[1] == 1) {
+                    group.reduceBackpressure(oltp, 128);
+                    latencies[completedOltp++] = tick - txn[0];
+                } else {
+                    group.reduceBackpressure(batch, 1024);
+                }
+            }
+        }
+        long[] completed = Arrays.copyOf(latencies, completedOltp);
+        Arrays.sort(completed);
+        return completed[(int)(completed.length * .99)];
+    }
+
+    public void testMixedWorkloadIsolation() {
+        ACGMember sharedOltp = new ACGMember();
+        // without configuration BATCH resolves to the one class every client shares
+        long sharedP99 = oltpP99("", sharedOltp);
+        ACGMember isolatedOltp = new ACGMember();
+        long isolatedP99 = oltpP99("DEFAULT=4;BATCH=1", isolatedOltp);
+
+        // the batch load throttles the OLTP client when they share a class
+        assertTrue(sharedOltp.onBackpressure > 0);
+        assertEquals(0, isolatedOltp.onBackpressure);
+        // The server completes 10 transactions a tick. Sharing the class, OLTP waits behind
+        // up to 1000 queued batch transactions, but only behind BATCH's 200 when isolated.
+        assertTrue("shared p99 " + sharedP99, sharedP99 >= 80 && sharedP99 <= 110);
+        assertTrue("isolated p99 " + isolatedP99, isolatedP99 >= 15 && isolatedP99 <= 25);
+        assertTrue("shared p99 " + sharedP99 + ", isolated p99 " + isolatedP99, isolatedP99 * 3 < sharedP99);
+    }
 }
@@ -0,0 +1,102 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import org.mindrot.BCrypt;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.User;
+import org.voltdb.client.ClientAuthScheme;
+import org.voltdb.client.ConnectionUtil;
+import org.voltdb.utils.Encoder;
+
+import junit.framework.TestCase;
+
+public class TestAuthSystem extends TestCase {
+
+    private static AuthSystem buildAuthSystem(String userName, String password) {
+        Catalog catalog = new Catalog();
+        Database db = catalog.getClusters().add("cluster").getDatabases().add("database");
+        db.setSecurityprovider(AuthSystem.AuthProvider.HASH.provider());
+        User user = db.getUsers().add(userName);
+        String salt = BCrypt.gensalt(4);
+        user.setShadowpassword(BCrypt.hashpw(
+                Encoder.hexEncode(ConnectionUtil.getHashedPassword(ClientAuthScheme.HASH_SHA1, password)), salt));
+        user.setSha256shadowpassword(BCrypt.hashpw(
+                Encoder.hexEncode(ConnectionUtil.getHashedPassword(ClientAuthScheme.HASH_SHA256, password)), salt));
+        return new AuthSystem(db, true);
+    }
+
+    private static boolean login(AuthSystem auth, String userName, ClientAuthScheme scheme, String password) {
+        return auth.new HashAuthenticationRequest(userName, ConnectionUtil.getHashedPassword(scheme, password))
+                .authenticate(scheme, "localhost");
+    }
+
+    public void testVerifiedCredentialsAreCached() {
+        AuthSystem auth = buildAuthSystem("alice", "secret");
+
+        assertTrue(login(auth, "alice", ClientAuthScheme.HASH_SHA256, "secret"));
+        assertEquals(1, auth.getVerifiedCredentialCount());
+        assertTrue(login(auth, "alice", ClientAuthScheme.HASH_SHA256, "secret"));
+        assertEquals(1, auth.getVerifiedCredentialCount());
+
+        // each scheme is verified against its own shadow password
+        assertTrue(login(auth, "alice", ClientAuthScheme.HASH_SHA1, "secret"));
+        assertEquals(2, auth.getVerifiedCredentialCount());
+
+        // failures are not remembered
+        assertFalse(login(auth, "alice", ClientAuthScheme.HASH_SHA256, "wrong"));
+        assertFalse(login(auth, "alice", ClientAuthScheme.HASH_SHA256, "wrong"));
+        assertEquals(2, auth.getVerifiedCredentialCount());
+        assertFalse(login(auth, "bob", ClientAuthScheme.HASH_SHA256, "secret"));
+    }
+
+    public void testBcryptFailureIsNotWrapped() {
+        Catalog catalog = new Catalog();
+        Database db = catalog.getClusters().add("cluster").getDatabases().add("database");
+        db.setSecurityprovider(AuthSystem.AuthProvider.HASH.provider());
+        User user = db.getUsers().add("alice");
+        // a well formed shadow password whose cost makes BCrypt throw
+        String shadow = BCrypt.hashpw("secret", BCrypt.gensalt(4)).replace("$04$", "$99$");
+        user.setShadowpassword(shadow);
+        user.setSha256shadowpassword(shadow);
+        AuthSystem auth = new AuthSystem(db, true);
+
+        AuthSystem.HashAuthenticationRequest request = auth.new HashAuthenticationRequest(
+                "alice", ConnectionUtil.getHashedPassword(ClientAuthScheme.HASH_SHA256, "secret"));
+        assertFalse(request.authenticate(ClientAuthScheme.HASH_SHA256, "localhost"));
+        assertEquals(IllegalArgumentException.class, request.getAuthenticationFailureException().getClass());
+        assertEquals(0, auth.getVerifiedCredentialCount());
+    }
+
+    public void testNewCatalogStartsWithEmptyCache() {
+        AuthSystem auth = buildAuthSystem("alice", "secret");
+        assertTrue(login(auth, "alice", ClientAuthScheme.HASH_SHA256, "secret"));
+
+        AuthSystem changed = buildAuthSystem("alice", "changed");
+        assertEquals(0, changed.getVerifiedCredentialCount());
+        assertFalse(login(changed, "alice", ClientAuthScheme.HASH_SHA256, "secret"));
+        assertTrue(login(changed, "alice", ClientAuthScheme.HASH_SHA256, "changed"));
+    }
+}
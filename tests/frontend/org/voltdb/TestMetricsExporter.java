@@ -0,0 +1,128 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMetricsExporter {
+
+    private MockVoltDB m_mvoltdb;
+    private Object[][] m_rows;
+
+    @Before
+    public void setUp() throws Exception {
+        m_mvoltdb = new MockVoltDB();
+        VoltDB.replaceVoltDBInstanceForTest(m_mvoltdb);
+
+        MockStatsSource.columns = Arrays.asList(new VoltTable.ColumnInfo[] {
+                new VoltTable.ColumnInfo("TIMESTAMP", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("PROCEDURE", VoltType.STRING),
+                new VoltTable.ColumnInfo("INVOCATIONS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("AVG_EXECUTION_TIME", VoltType.FLOAT)
+        });
+        m_rows = new Object[][] {
+                { 1000L, 0, "Insert", 10L, 1.5 },
+                { 1000L, 1, "Say \"hi\"", 20L, 2.0 }
+        };
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURE, 0, new MockStatsSource(m_rows));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_mvoltdb.shutdown(null);
+        VoltDB.replaceVoltDBInstanceForTest(null);
+    }
+
+    private static String text(byte[] metrics) {
+        return new String(metrics, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCumulativeMetrics() throws Exception {
+        MetricsExporter exporter = new MetricsExporter(new StatsSelector[] { StatsSelector.PROCEDURE });
+        assertNull(exporter.getMetrics(false));
+
+        exporter.refresh(m_mvoltdb.getStatsAgent(), 1000);
+        String metrics = text(exporter.getMetrics(false));
+        System.out.println(metrics);
+
+        assertTrue(metrics.contains("# TYPE voltdb_procedure_invocations gauge\n"));
+        assertTrue(metrics.contains("voltdb_procedure_invocations{partition_id=\"0\",procedure=\"Insert\"} 10\n"));
+        assertTrue(metrics.contains("voltdb_procedure_invocations{partition_id=\"1\",procedure=\"Say \\\"hi\\\"\"} 20\n"));
+        assertTrue(metrics.contains("voltdb_procedure_avg_execution_time{partition_id=\"0\",procedure=\"Insert\"} 1.5\n"));
+        assertTrue(metrics.contains("voltdb_metrics_refresh_micros "));
+        assertTrue(!metrics.contains("timestamp"));
+        // Labels are not rendered as metrics
+        assertTrue(!metrics.contains("voltdb_procedure_partition_id"));
+    }
+
+    @Test
+    public void testIntervalMetrics() throws Exception {
+        MetricsExporter exporter = new MetricsExporter(new StatsSelector[] { StatsSelector.PROCEDURE });
+        exporter.refresh(m_mvoltdb.getStatsAgent(), 1000);
+        // Nothing to subtract on the first refresh
+        assertNull(exporter.getMetrics(true));
+
+        m_rows[0][3] = 15L;
+        m_rows[1][3] = 50L;
+        exporter.refresh(m_mvoltdb.getStatsAgent(), 6000);
+        String interval = text(exporter.getMetrics(true));
+        System.out.println(interval);
+        assertTrue(interval.contains("voltdb_procedure_invocations{partition_id=\"0\",procedure=\"Insert\"} 5\n"));
+        assertTrue(interval.contains("voltdb_procedure_invocations{partition_id=\"1\",procedure=\"Say \\\"hi\\\"\"} 30\n"));
+        assertTrue(interval.contains("voltdb_procedure_avg_execution_time{partition_id=\"0\",procedure=\"Insert\"} 0\n"));
+        assertTrue(interval.contains("voltdb_metrics_interval_millis 5000\n"));
+
+        // The cumulative body still carries the totals
+        String cumulative = text(exporter.getMetrics(false));
+        assertTrue(cumulative.contains("voltdb_procedure_invocations{partition_id=\"1\",procedure=\"Say \\\"hi\\\"\"} 50\n"));
+    }
+
+    @Test
+    public void testSelectorsFromProperty() {
+        assertEquals(MetricsExporter.DEFAULT_SELECTORS, MetricsExporter.selectorsFromProperty(null));
+        StatsSelector[] selectors = MetricsExporter.selectorsFromProperty("memory, iostats,NOSUCH");
+        assertEquals(2, selectors.length);
+        assertEquals(StatsSelector.MEMORY, selectors[0]);
+        assertEquals(StatsSelector.IOSTATS, selectors[1]);
+    }
+
+    @Test
+    public void testValueFormatting() {
+        assertEquals("42", MetricsExporter.appendValue(new StringBuilder(), 42.0).toString());
+        assertEquals("0.25", MetricsExporter.appendValue(new StringBuilder(), 0.25).toString());
+        assertEquals("NaN", MetricsExporter.appendValue(new StringBuilder(), Double.NaN).toString());
+        assertEquals("+Inf", MetricsExporter.appendValue(new StringBuilder(), Double.POSITIVE_INFINITY).toString());
+        assertEquals("tuple_count_2", MetricsExporter.sanitizeName("TUPLE-COUNT 2"));
+    }
+}
@@ -537,4 +537,95 @@ public class TestParameterSet extends TestCase {
 
         assertTrue(Arrays.deepEquals(pset1array, pset2array));
     }
+
+    public void testNoCopyRoundtrip() throws IOException {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("foo", VoltType.INTEGER));
+        table.addRow(Integer.MAX_VALUE);
+        ParameterSet pset = ParameterSet.fromArrayNoCopy((byte) 2, Short.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE - 1, 1.5, "ABCDE", null, VoltType.NULL_STRING_OR_VARBINARY,
+                new TimestampType(), new BigDecimal(7654321).setScale(VoltDecimalHelper.kDefaultScale),
+                table, new byte[] {'f', 'o', 'o'}, new short[] {Short.MAX_VALUE, 5},
+                new int[] {Integer.MIN_VALUE, 5}, new long[] {Long.MIN_VALUE, 7}, new double[] {5.5},
+                new String[] {"ABC", null, ""}, new byte[][] {{1, 2}, null},
+                new TimestampType[] {new TimestampType()},
+                new BigDecimal[] {new BigDecimal(54321).setScale(VoltDecimalHelper.kDefaultScale)},
+                new VoltTable[] {table});
+
+        // Padding on both sides, the set must only read its own bytes
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize() + 8);
+        buf.putInt(42);
+        pset.flattenToBuffer(buf);
+        buf.putInt(43);
+        buf.flip();
+        buf.getInt();
+        ParameterSet eager = ParameterSet.fromByteBuffer(buf.duplicate());
+        ParameterSet lazy = ParameterSet.fromByteBufferNoCopy(buf);
+        assertEquals(43, buf.getInt());
+        assertEquals(pset.getSerializedSize(), lazy.getSerializedSize());
+        assertEquals(pset.size(), lazy.size());
+
+        assertEquals("ABCDE", lazy.getString(5));
+        assertNull(lazy.getString(7));
+        assertTrue(Arrays.deepEquals(eager.toArray(), lazy.toArray()));
+        assertEquals(eager.toJSONString(), lazy.toJSONString());
+
+        // Flattening copies the serialized bytes, decoded or not
+        ByteBuffer expected = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(expected);
+        expected.flip();
+        for (ParameterSet p : new ParameterSet[] { lazy, ParameterSet.fromByteBufferNoCopy(expected.duplicate()) }) {
+            ByteBuffer actual = ByteBuffer.allocate(p.getSerializedSize());
+            p.flattenToBuffer(actual);
+            assertTrue(Arrays.equals(expected.array(), actual.array()));
+        }
+    }
+
+    public void testNoCopyTypedAccessors() throws IOException {
+        ParameterSet pset = ParameterSet.fromArrayNoCopy((byte) -3, (short) 300, 70000, Long.MIN_VALUE, 2.25, "x");
+        ByteBuffer buf = ByteBuffer.allocateDirect(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        ParameterSet lazy = ParameterSet.fromByteBufferNoCopy(buf);
+
+        assertEquals(-3, lazy.getLong(0));
+        assertEquals(300, lazy.getLong(1));
+        assertEquals(70000, lazy.getLong(2));
+        assertEquals(Long.MIN_VALUE, lazy.getLong(3));
+        assertEquals(2.25, lazy.getDouble(4));
+        assertEquals("x", lazy.getString(5));
+        assertEquals(VoltType.BIGINT, lazy.getSerializedType(3));
+        assertTrue(lazy.serializedBytesEqual(5, new byte[] {'x'}));
+        assertFalse(lazy.serializedBytesEqual(5, new byte[] {'y'}));
+        assertNull(pset.getSerializedType(3));
+    }
+
+    public void testNoCopyDecodesMutableTypesEagerly() throws IOException {
+        ParameterSet pset = ParameterSet.fromArrayNoCopy(1L, new byte[] {1, 2, 3}, new long[] {5, 6},
+                new String[] {"a", "b"});
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        ParameterSet lazy = ParameterSet.fromByteBufferNoCopy(buf);
+
+        // Sites share the set without synchronization, so mutable values must not be
+        // decoded on first use. Wiping the buffer shows they were decoded up front.
+        Arrays.fill(buf.array(), (byte) 0);
+        assertTrue(Arrays.equals(new byte[] {1, 2, 3}, (byte[]) lazy.getParam(1)));
+        assertTrue(Arrays.equals(new long[] {5, 6}, (long[]) lazy.getParam(2)));
+        assertTrue(Arrays.equals(new String[] {"a", "b"}, (String[]) lazy.getParam(3)));
+        assertSame(lazy.getParam(2), lazy.getParam(2));
+    }
+
+    public void testNoCopyTruncated() throws IOException {
+        ParameterSet pset = ParameterSet.fromArrayNoCopy(1L, "a longer string", new String[] {"a", "b"});
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        for (int limit = 2; limit < buf.capacity(); limit++) {
+            ByteBuffer truncated = ByteBuffer.wrap(buf.array(), 0, limit);
+            try {
+                ParameterSet.fromByteBufferNoCopy(truncated);
+                fail("Deserialized a parameter set truncated to " + limit + " bytes");
+            } catch (RuntimeException expected) {}
+        }
+    }
 }
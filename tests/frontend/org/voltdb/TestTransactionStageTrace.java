@@ -0,0 +1,164 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.TransactionStageTrace.Stage;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.dtxn.StageLatencyStats;
+
+import junit.framework.TestCase;
+
+public class TestTransactionStageTrace extends TestCase {
+
+    private static final long US = TimeUnit.MICROSECONDS.toNanos(1);
+
+    // A leader that took 20us for durability, 30us queued, 100us executing and 50us replicating
+    private static TransactionStageTrace leaderTrace(long arrival) {
+        TransactionStageTrace leader = new TransactionStageTrace();
+        leader.mark(arrival);
+        leader.end(Stage.DURABILITY, arrival + 20 * US);
+        leader.end(Stage.QUEUE, arrival + 50 * US);
+        leader.end(Stage.EXECUTE, arrival + 150 * US);
+        leader.end(Stage.REPLICATION, arrival + 200 * US);
+        return leader;
+    }
+
+    public void testStagesAddUpToRoundTrip() {
+        final long read = 1000 * US;
+        TransactionStageTrace trace = new TransactionStageTrace(read + 5 * US);
+        trace.set(Stage.NETWORK_READ, 5 * US);
+        trace.end(Stage.DISPATCH, read + 15 * US);
+
+        // The leader's clock has nothing to do with ours
+        final TransactionStageTrace leader = leaderTrace(-123456789L);
+        final long arrival = read + 15 * US + 260 * US;
+        trace.complete(leader, arrival, arrival + 40 * US);
+
+        assertEquals(5 * US, trace.get(Stage.NETWORK_READ));
+        assertEquals(10 * US, trace.get(Stage.DISPATCH));
+        assertEquals(20 * US, trace.get(Stage.DURABILITY));
+        assertEquals(30 * US, trace.get(Stage.QUEUE));
+        assertEquals(100 * US, trace.get(Stage.EXECUTE));
+        assertEquals(50 * US, trace.get(Stage.REPLICATION));
+        assertEquals(60 * US, trace.get(Stage.TRANSPORT));
+        assertEquals(40 * US, trace.get(Stage.RESPONSE_WRITE));
+
+        long total = 0;
+        for (Stage stage : Stage.values()) {
+            assertTrue(stage.name(), trace.isTimed(stage));
+            total += trace.get(stage);
+        }
+        assertEquals(arrival + 40 * US - read, total);
+        assertEquals(read + 5 * US, trace.getStartNanos());
+    }
+
+    public void testWithoutLeaderStages() {
+        TransactionStageTrace trace = new TransactionStageTrace(100 * US);
+        trace.end(Stage.DISPATCH, 110 * US);
+        // a multi-partition response does not carry a trace
+        trace.complete(null, 0, 500 * US);
+        assertEquals(390 * US, trace.get(Stage.TRANSPORT));
+        assertFalse(trace.isTimed(Stage.NETWORK_READ));
+        assertFalse(trace.isTimed(Stage.EXECUTE));
+        assertFalse(trace.isTimed(Stage.RESPONSE_WRITE));
+    }
+
+    public void testTransportNeverNegative() {
+        TransactionStageTrace trace = new TransactionStageTrace(0);
+        trace.end(Stage.DISPATCH, 10 * US);
+        // leader stages longer than the round trip, e.g. after a clock adjustment
+        trace.complete(leaderTrace(0), 100 * US, 110 * US);
+        assertEquals(0, trace.get(Stage.TRANSPORT));
+        assertEquals(10 * US, trace.get(Stage.RESPONSE_WRITE));
+    }
+
+    public void testLeaderStagesRoundTrip() {
+        TransactionStageTrace leader = new TransactionStageTrace(0);
+        leader.end(Stage.QUEUE, 7);
+        leader.end(Stage.EXECUTE, 20);
+        ByteBuffer buf = ByteBuffer.allocate(TransactionStageTrace.SERIALIZED_SIZE);
+        leader.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        TransactionStageTrace copy = TransactionStageTrace.fromBuffer(buf);
+        assertEquals(7, copy.get(Stage.QUEUE));
+        assertEquals(13, copy.get(Stage.EXECUTE));
+        assertFalse(copy.isTimed(Stage.DURABILITY));
+        assertFalse(copy.isTimed(Stage.REPLICATION));
+    }
+
+    public void testStageLatencyStats() {
+        StageLatencyStats stats = new StageLatencyStats();
+        assertEquals(0, stats.getStatsRows(false, 0L).length);
+
+        for (int i = 1; i <= 100; i++) {
+            TransactionStageTrace trace = new TransactionStageTrace(0);
+            trace.end(Stage.DISPATCH, i * US);
+            stats.record("B", trace);
+        }
+        TransactionStageTrace trace = new TransactionStageTrace(0);
+        trace.set(Stage.NETWORK_READ, 2 * US);
+        trace.end(Stage.DISPATCH, 3 * US);
+        trace.complete(leaderTrace(0), 500 * US, 510 * US);
+        stats.record("A", trace);
+        // longer than the histograms track is clamped rather than dropped
+        trace = new TransactionStageTrace(0);
+        trace.end(Stage.EXECUTE, TimeUnit.MINUTES.toNanos(5));
+        stats.record("C", trace);
+
+        ArrayList<ColumnInfo> columns = stats.getColumnSchema();
+        int procIdx = -1, stageIdx = -1, countIdx = -1, p50Idx = -1, maxIdx = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).name) {
+            case "PROCEDURE": procIdx = i; break;
+            case "STAGE": stageIdx = i; break;
+            case "COUNT": countIdx = i; break;
+            case "P50": p50Idx = i; break;
+            case "MAX": maxIdx = i; break;
+            }
+        }
+
+        Object[][] rows = stats.getStatsRows(false, 0L);
+        // A has all eight stages, B only dispatch, C only execute
+        assertEquals(Stage.values().length + 2, rows.length);
+        assertEquals("A", rows[0][procIdx]);
+        assertEquals(Stage.DISPATCH.name(), rows[1][stageIdx]);
+        assertEquals(3L, rows[1][p50Idx]);
+
+        Object[] b = rows[Stage.values().length];
+        assertEquals("B", b[procIdx]);
+        assertEquals(Stage.DISPATCH.name(), b[stageIdx]);
+        assertEquals(100L, b[countIdx]);
+        assertEquals(50L, b[p50Idx]);
+        assertEquals(100L, b[maxIdx]);
+
+        Object[] c = rows[Stage.values().length + 1];
+        assertEquals(Stage.EXECUTE.name(), c[stageIdx]);
+        assertTrue((Long) c[maxIdx] >= TimeUnit.MINUTES.toMicros(1) * 0.99);
+    }
+}
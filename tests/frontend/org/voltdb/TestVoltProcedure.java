@@ -58,7 +58,12 @@ import java.util.Date;
 
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.catalog.Procedure;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.MpRoSite;
+import org.voltdb.iv2.Site;
+import org.voltdb.iv2.SiteTaskerQueue;
 import org.voltdb.types.TimestampType;
 
 import junit.framework.TestCase;
@@ -480,6 +485,23 @@ public class TestVoltProcedure extends TestCase {
         assertEquals(ClientResponse.SUCCESS, r.getStatus());
     }
 
+    // The MPI's write pool coordinates n-partition writes on MpRoSites
+    public void testWriteOnMpRoSite() {
+        MpRoSite roSite = new MpRoSite(mock(SiteTaskerQueue.class), executionSiteId, BackendTarget.NATIVE_EE_JNI,
+                                       VoltDB.instance().getCatalogContext(), MpInitiator.MP_INIT_PID);
+        Procedure catProc = VoltDB.instance().getCatalogContext().database.getProcedures().get(LongProcedure.class.getName());
+        assertFalse(catProc.getReadonly());
+        assertFalse(catProc.getSinglepartition());
+        ProcedureRunner runner = new ProcedureRunner(new LongProcedure(), roSite, catProc);
+        for (long i = 1; i <= 3; i++) {
+            runner.setupTransaction(null);
+            ClientResponse r = runner.call(i);
+            assertEquals(ClientResponse.SUCCESS, r.getStatus());
+            assertEquals(i, LongProcedure.arg);
+        }
+        assertEquals(Site.kInvalidUndoToken, roSite.getLatestUndoToken());
+    }
+
     private ClientResponse call(Class<? extends NullProcedureWrapper> procedure) {
         return callWithArgs(procedure, (Object) null);
     }
@@ -0,0 +1,71 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.benchmark.inprocess;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.voltdb.client.Client;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * The contentionmark example: every transaction increments one of a very small
+ * number of rows, so they all queue on the same partitions.
+ */
+class ContentionWorkload extends Workload {
+
+    private final int m_tuples;
+
+    ContentionWorkload(InProcessBenchmark.Config config) {
+        super("contentionmark");
+        m_tuples = config.tuples;
+    }
+
+    @Override
+    String ddl() {
+        return "CREATE TABLE counters (\n" +
+               "  id BIGINT NOT NULL,\n" +
+               "  value BIGINT NOT NULL,\n" +
+               "  PRIMARY KEY (id)\n" +
+               ");\n" +
+               "PARTITION TABLE counters ON COLUMN id;\n" +
+               "CREATE PROCEDURE Increment PARTITION ON TABLE counters COLUMN id PARAMETER 1 AS\n" +
+               "  UPDATE counters SET value = value + ? WHERE id = ?;\n" +
+               "CREATE PROCEDURE Init PARTITION ON TABLE counters COLUMN id PARAMETER 0 AS\n" +
+               "  UPSERT INTO counters SELECT CAST (? AS BIGINT), COALESCE(MAX(value),0)\n" +
+               "  FROM counters WHERE id = ?;\n";
+    }
+
+    @Override
+    void load(Client client, InProcessBenchmark.Config config) throws Exception {
+        for (long i = 0; i < m_tuples; i++) {
+            client.callProcedure("Init", i, i);
+        }
+    }
+
+    @Override
+    void invoke(Client client, ProcedureCallback callback, Random random) throws IOException {
+        client.callProcedure(callback, "Increment", (long) random.nextInt(5), (long) random.nextInt(m_tuples));
+    }
+}
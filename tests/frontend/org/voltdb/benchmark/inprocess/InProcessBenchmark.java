@@ -0,0 +1,345 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.benchmark.inprocess;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.ConcurrentHistogram;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.CLIConfig;
+import org.voltdb.InProcessVoltDBServer;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * Runs the voter, voltkv and contentionmark workloads end to end against a
+ * single {@link InProcessVoltDBServer}, one fresh server per workload, and
+ * writes the results as JSON so runs on different builds can be compared.
+ *
+ * Three ways to drive the load:
+ *   closed - a fixed number of transactions outstanding, as fast as they complete
+ *   fixed  - transactions sent at --rate per second, latency from when each was sent
+ *   open   - transactions scheduled at --rate per second, latency from when each
+ *            was scheduled, so time spent queued behind a slow server is counted
+ *            instead of silently lowering the rate (coordinated omission)
+ *
+ * Each result has the committed and failed counts, the throughput, latency
+ * percentiles in microseconds, the throughput of every second and the full
+ * latency histogram, compressed and base64 encoded in HdrHistogram's format.
+ */
+public class InProcessBenchmark {
+
+    // Latencies above an hour are recorded as an hour
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final double[] PERCENTILES = { 50, 90, 95, 99, 99.9, 99.99 };
+
+    static class Config extends CLIConfig {
+        @Option(desc = "Comma separated workloads to run: voter, voltkv, contentionmark.")
+        String workloads = "voter,voltkv,contentionmark";
+
+        @Option(desc = "Sites per host of the in-process server.")
+        int sitesperhost = 8;
+
+        @Option(desc = "How to drive the load: closed, fixed or open.")
+        String mode = "closed";
+
+        @Option(desc = "Transactions per second for the fixed and open modes.")
+        int rate = 50000;
+
+        @Option(desc = "Transactions outstanding in the closed mode.")
+        int outstanding = 200;
+
+        @Option(desc = "Benchmark duration, in seconds.")
+        int duration = 30;
+
+        @Option(desc = "Warmup duration, in seconds.")
+        int warmup = 5;
+
+        @Option(desc = "Number of contestants for voter.")
+        int contestants = 6;
+
+        @Option(desc = "Maximum votes per phone number for voter.")
+        int maxvotes = 2;
+
+        @Option(desc = "Number of keys for voltkv.")
+        int kvkeys = 100000;
+
+        @Option(desc = "Value size in bytes for voltkv.")
+        int kvvaluesize = 1024;
+
+        @Option(desc = "Fraction of voltkv transactions that are gets.")
+        double getputratio = 0.9;
+
+        @Option(desc = "Number of rows contentionmark fights over.")
+        int tuples = 1;
+
+        @Option(desc = "File to write the JSON results to.")
+        String output = "inprocess-benchmark.json";
+
+        @Override
+        public void validate() {
+            if (sitesperhost <= 0) exitWithMessageAndUsage("sitesperhost must be > 0");
+            if (!mode.equals("closed") && !mode.equals("fixed") && !mode.equals("open")) {
+                exitWithMessageAndUsage("mode must be closed, fixed or open");
+            }
+            if (rate <= 0) exitWithMessageAndUsage("rate must be > 0");
+            if (outstanding <= 0) exitWithMessageAndUsage("outstanding must be > 0");
+            if (duration <= 0) exitWithMessageAndUsage("duration must be > 0");
+            if (warmup < 0) exitWithMessageAndUsage("warmup must be >= 0");
+            if (contestants <= 0) exitWithMessageAndUsage("contestants must be > 0");
+            if (kvkeys <= 0) exitWithMessageAndUsage("kvkeys must be > 0");
+            if (kvvaluesize <= 0) exitWithMessageAndUsage("kvvaluesize must be > 0");
+            if (getputratio < 0 || getputratio > 1) exitWithMessageAndUsage("getputratio must be in [0, 1]");
+            if (tuples <= 0) exitWithMessageAndUsage("tuples must be > 0");
+        }
+    }
+
+    /** What one run of a workload measured */
+    static class Result {
+        final String m_workload;
+        final AbstractHistogram m_latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        final AtomicLong m_committed = new AtomicLong();
+        final AtomicLong m_failed = new AtomicLong();
+        final List<Long> m_perSecond = new ArrayList<>();
+        long m_elapsedNanos;
+
+        Result(String workload) {
+            m_workload = workload;
+        }
+
+        double throughput() {
+            return m_committed.get() / (m_elapsedNanos / 1e9);
+        }
+    }
+
+    private final Config m_config;
+
+    InProcessBenchmark(Config config) {
+        m_config = config;
+    }
+
+    /** Records the latency of one transaction if it was started while measuring */
+    private static class Call implements ProcedureCallback {
+        private final Result m_result;
+        private final long m_startNanos;
+        private final Semaphore m_permits;
+
+        Call(Result result, long startNanos, Semaphore permits) {
+            m_result = result;
+            m_startNanos = startNanos;
+            m_permits = permits;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) {
+            final long micros = (System.nanoTime() - m_startNanos) / 1000;
+            if (m_permits != null) {
+                m_permits.release();
+            }
+            if (m_result == null) {
+                return;
+            }
+            if (response.getStatus() == ClientResponse.SUCCESS) {
+                m_result.m_committed.incrementAndGet();
+                m_result.m_latency.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+            }
+            else {
+                m_result.m_failed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drive the workload until endNanos.
+     * @param result where to record, or null while warming up
+     */
+    private void drive(Workload workload, Client client, Random random, long endNanos, Result result)
+            throws IOException, InterruptedException {
+        if (m_config.mode.equals("closed")) {
+            final Semaphore permits = new Semaphore(m_config.outstanding);
+            while (System.nanoTime() < endNanos) {
+                if (permits.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                    workload.invoke(client, new Call(result, System.nanoTime(), permits), random);
+                }
+            }
+            permits.acquire(m_config.outstanding);
+            return;
+        }
+
+        final boolean open = m_config.mode.equals("open");
+        final long interval = TimeUnit.SECONDS.toNanos(1) / m_config.rate;
+        long next = System.nanoTime();
+        while (next < endNanos) {
+            final long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            // Catch up on everything that is due, the park may have overslept
+            while (next <= now && next < endNanos) {
+                workload.invoke(client, new Call(result, open ? next : System.nanoTime(), null), random);
+                next += interval;
+            }
+        }
+        client.drain();
+    }
+
+    Result run(Workload workload) throws Exception {
+        System.out.printf("Starting %s with %d sites per host, %s loop%n",
+                          workload.m_name, m_config.sitesperhost, m_config.mode);
+        final InProcessVoltDBServer server = new InProcessVoltDBServer();
+        server.configPartitionCount(m_config.sitesperhost).start();
+        try {
+            server.runDDLFromString(workload.ddl());
+            final Client client = server.getClient();
+            workload.load(client, m_config);
+
+            final Random random = new Random(0);
+            final long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(m_config.warmup);
+            drive(workload, client, random, warmupEnd, null);
+
+            final Result result = new Result(workload.m_name);
+            final Thread sampler = new Thread(() -> {
+                long last = 0;
+                try {
+                    while (true) {
+                        Thread.sleep(1000);
+                        final long committed = result.m_committed.get();
+                        synchronized (result.m_perSecond) {
+                            result.m_perSecond.add(committed - last);
+                        }
+                        last = committed;
+                    }
+                } catch (InterruptedException e) {
+                    // measurement is over
+                }
+            }, "Throughput sampler");
+            sampler.setDaemon(true);
+
+            final long start = System.nanoTime();
+            sampler.start();
+            drive(workload, client, random, start + TimeUnit.SECONDS.toNanos(m_config.duration), result);
+            result.m_elapsedNanos = System.nanoTime() - start;
+            sampler.interrupt();
+            sampler.join();
+            return result;
+        }
+        finally {
+            server.shutdown();
+        }
+    }
+
+    private void print(Result result) {
+        final AbstractHistogram latency = result.m_latency;
+        System.out.printf("%s: %d committed, %d failed, %.0f txn/s%n", result.m_workload,
+                          result.m_committed.get(), result.m_failed.get(), result.throughput());
+        System.out.printf("  latency us: mean %.0f", latency.getMean());
+        for (double p : PERCENTILES) {
+            System.out.printf(", p%s %d", format(p), latency.getValueAtPercentile(p));
+        }
+        System.out.printf(", max %d%n", latency.getMaxValue());
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    String toJSON(List<Result> results) throws JSONException {
+        final JSONStringer js = new JSONStringer();
+        js.object();
+        js.keySymbolValuePair("timestamp", System.currentTimeMillis());
+        js.keySymbolValuePair("javaVersion", System.getProperty("java.version"));
+        js.keySymbolValuePair("processors", Runtime.getRuntime().availableProcessors());
+        js.keySymbolValuePair("sitesPerHost", m_config.sitesperhost);
+        js.keySymbolValuePair("mode", m_config.mode);
+        js.keySymbolValuePair("rate", m_config.mode.equals("closed") ? 0 : m_config.rate);
+        js.keySymbolValuePair("outstanding", m_config.mode.equals("closed") ? m_config.outstanding : 0);
+        js.keySymbolValuePair("warmupSeconds", m_config.warmup);
+        js.keySymbolValuePair("durationSeconds", m_config.duration);
+        js.key("results").array();
+        for (Result result : results) {
+            final AbstractHistogram latency = result.m_latency;
+            js.object();
+            js.keySymbolValuePair("workload", result.m_workload);
+            js.keySymbolValuePair("committed", result.m_committed.get());
+            js.keySymbolValuePair("failed", result.m_failed.get());
+            js.keySymbolValuePair("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(result.m_elapsedNanos));
+            js.key("throughput").value(result.throughput());
+            js.key("latencyMicros").object();
+            js.key("mean").value(latency.getMean());
+            for (double p : PERCENTILES) {
+                js.keySymbolValuePair("p" + format(p), latency.getValueAtPercentile(p));
+            }
+            js.keySymbolValuePair("max", latency.getMaxValue());
+            js.endObject();
+            js.key("throughputPerSecond").array();
+            synchronized (result.m_perSecond) {
+                for (long count : result.m_perSecond) {
+                    js.value(count);
+                }
+            }
+            js.endArray();
+            final ByteBuffer encoded = ByteBuffer.allocate(latency.getNeededByteBufferCapacity());
+            final int length = latency.encodeIntoCompressedByteBuffer(encoded);
+            js.keySymbolValuePair("histogram", Base64.getEncoder().encodeToString(
+                    Arrays.copyOf(encoded.array(), length)));
+            js.endObject();
+        }
+        js.endArray();
+        js.endObject();
+        return js.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Config config = new Config();
+        config.parse(InProcessBenchmark.class.getName(), args);
+
+        final InProcessBenchmark benchmark = new InProcessBenchmark(config);
+        final List<Result> results = new ArrayList<>();
+        for (String name : config.workloads.split(",")) {
+            final Result result = benchmark.run(Workload.forName(name, config));
+            benchmark.print(result);
+            results.add(result);
+        }
+        try (FileWriter out = new FileWriter(config.output)) {
+            out.write(benchmark.toJSON(results));
+            out.write('\n');
+        }
+        System.out.println("Wrote " + config.output);
+    }
+}
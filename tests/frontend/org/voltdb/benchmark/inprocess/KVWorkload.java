@@ -0,0 +1,83 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.benchmark.inprocess;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.voltdb.client.Client;
+import org.voltdb.client.NullCallback;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * The voltkv example: gets and puts of fixed size values on random keys, using
+ * the default procedures of the partitioned store table.
+ */
+class KVWorkload extends Workload {
+
+    private final int m_keys;
+    private final double m_getRatio;
+    private final byte[] m_value;
+
+    KVWorkload(InProcessBenchmark.Config config) {
+        super("voltkv");
+        m_keys = config.kvkeys;
+        m_getRatio = config.getputratio;
+        m_value = new byte[config.kvvaluesize];
+        new Random(0).nextBytes(m_value);
+    }
+
+    @Override
+    String ddl() {
+        return "CREATE TABLE store (\n" +
+               "  key varchar(250) not null,\n" +
+               "  value varbinary(1048576) not null,\n" +
+               "  PRIMARY KEY (key)\n" +
+               ");\n" +
+               "PARTITION TABLE store ON COLUMN key;\n";
+    }
+
+    private static String key(int i) {
+        return String.format("K%010d", i);
+    }
+
+    @Override
+    void load(Client client, InProcessBenchmark.Config config) throws Exception {
+        for (int i = 0; i < m_keys; i++) {
+            client.callProcedure(new NullCallback(), "STORE.upsert", key(i), m_value);
+        }
+        client.drain();
+    }
+
+    @Override
+    void invoke(Client client, ProcedureCallback callback, Random random) throws IOException {
+        final String key = key(random.nextInt(m_keys));
+        if (random.nextDouble() < m_getRatio) {
+            client.callProcedure(callback, "STORE.select", key);
+        }
+        else {
+            client.callProcedure(callback, "STORE.upsert", key, m_value);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.benchmark.inprocess;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+/**
+ * The Vote procedure of the voter example. Accepts a vote if it is for a valid
+ * contestant and the phone number has votes left.
+ */
+public class Vote extends VoltProcedure {
+
+    static final long VOTE_SUCCESSFUL = 0;
+    static final long ERR_INVALID_CONTESTANT = 1;
+    static final long ERR_VOTER_OVER_VOTE_LIMIT = 2;
+
+    public final SQLStmt checkContestantStmt = new SQLStmt(
+            "SELECT contestant_number FROM contestants WHERE contestant_number = ?;");
+
+    public final SQLStmt checkVoterStmt = new SQLStmt(
+            "SELECT num_votes FROM v_votes_by_phone_number WHERE phone_number = ?;");
+
+    public final SQLStmt checkStateStmt = new SQLStmt(
+            "SELECT state FROM area_code_state WHERE area_code = ?;");
+
+    public final SQLStmt insertVoteStmt = new SQLStmt(
+            "INSERT INTO votes (phone_number, state, contestant_number) VALUES (?, ?, ?);");
+
+    public long run(long phoneNumber, int contestantNumber, long maxVotesPerPhoneNumber) {
+        voltQueueSQL(checkContestantStmt, EXPECT_ZERO_OR_ONE_ROW, contestantNumber);
+        voltQueueSQL(checkVoterStmt, EXPECT_ZERO_OR_ONE_ROW, phoneNumber);
+        voltQueueSQL(checkStateStmt, EXPECT_ZERO_OR_ONE_ROW, (short)(phoneNumber / 10000000L));
+        VoltTable validation[] = voltExecuteSQL();
+
+        if (validation[0].getRowCount() == 0) {
+            return ERR_INVALID_CONTESTANT;
+        }
+        if ((validation[1].getRowCount() == 1) &&
+                (validation[1].asScalarLong() >= maxVotesPerPhoneNumber)) {
+            return ERR_VOTER_OVER_VOTE_LIMIT;
+        }
+        final String state = (validation[2].getRowCount() > 0) ? validation[2].fetchRow(0).getString(0) : "XX";
+
+        voltQueueSQL(insertVoteStmt, EXPECT_SCALAR_MATCH(1), phoneNumber, state, contestantNumber);
+        voltExecuteSQL(true);
+        return VOTE_SUCCESSFUL;
+    }
+}
@@ -0,0 +1,96 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.benchmark.inprocess;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.voltdb.client.Client;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * The voter example: every transaction is a {@link Vote} for a random contestant
+ * from a random phone number, partitioned on the phone number.
+ */
+class VoterWorkload extends Workload {
+
+    private static final String[] AREA_CODES = {
+        "201", "NJ", "212", "NY", "312", "IL", "415", "CA", "512", "TX",
+        "617", "MA", "702", "NV", "808", "HI", "919", "NC", "971", "OR"
+    };
+
+    private final int m_contestants;
+    private final long m_maxVotes;
+
+    VoterWorkload(InProcessBenchmark.Config config) {
+        super("voter");
+        m_contestants = config.contestants;
+        m_maxVotes = config.maxvotes;
+    }
+
+    @Override
+    String ddl() {
+        return "CREATE TABLE contestants (\n" +
+               "  contestant_number integer NOT NULL,\n" +
+               "  contestant_name varchar(50) NOT NULL,\n" +
+               "  CONSTRAINT PK_contestants PRIMARY KEY (contestant_number)\n" +
+               ");\n" +
+               "CREATE TABLE votes (\n" +
+               "  phone_number bigint NOT NULL,\n" +
+               "  state varchar(2) NOT NULL,\n" +
+               "  contestant_number integer NOT NULL\n" +
+               ");\n" +
+               "PARTITION TABLE votes ON COLUMN phone_number;\n" +
+               "CREATE TABLE area_code_state (\n" +
+               "  area_code smallint NOT NULL,\n" +
+               "  state varchar(2) NOT NULL,\n" +
+               "  CONSTRAINT PK_area_code_state PRIMARY KEY (area_code)\n" +
+               ");\n" +
+               "CREATE VIEW v_votes_by_phone_number (phone_number, num_votes) AS\n" +
+               "  SELECT phone_number, COUNT(*) FROM votes GROUP BY phone_number;\n" +
+               "CREATE VIEW v_votes_by_contestant_number_state (contestant_number, state, num_votes) AS\n" +
+               "  SELECT contestant_number, state, COUNT(*) FROM votes GROUP BY contestant_number, state;\n" +
+               "CREATE PROCEDURE PARTITION ON TABLE votes COLUMN phone_number\n" +
+               "  FROM CLASS " + Vote.class.getName() + ";\n";
+    }
+
+    @Override
+    void load(Client client, InProcessBenchmark.Config config) throws Exception {
+        for (int i = 1; i <= m_contestants; i++) {
+            client.callProcedure("CONTESTANTS.insert", i, "Contestant " + i);
+        }
+        for (int i = 0; i < AREA_CODES.length; i += 2) {
+            client.callProcedure("AREA_CODE_STATE.insert", Short.parseShort(AREA_CODES[i]), AREA_CODES[i + 1]);
+        }
+    }
+
+    @Override
+    void invoke(Client client, ProcedureCallback callback, Random random) throws IOException {
+        final long areaCode = Long.parseLong(AREA_CODES[random.nextInt(AREA_CODES.length / 2) * 2]);
+        final long phoneNumber = areaCode * 10000000L + random.nextInt(10000000);
+        // One vote in a hundred is for a contestant that does not exist, like the example
+        final int contestant = random.nextInt(100) == 0 ? m_contestants + 1 : random.nextInt(m_contestants) + 1;
+        client.callProcedure(callback, "Vote", phoneNumber, contestant, m_maxVotes);
+    }
+}
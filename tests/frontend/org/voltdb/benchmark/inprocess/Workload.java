@@ -0,0 +1,65 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.benchmark.inprocess;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.voltdb.client.Client;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * A schema, the data it starts with and the transaction mix that
+ * {@link InProcessBenchmark} drives against it.
+ */
+abstract class Workload {
+
+    final String m_name;
+
+    Workload(String name) {
+        m_name = name;
+    }
+
+    /** The DDL run against the empty database */
+    abstract String ddl();
+
+    /** Load the starting data, before the warmup */
+    void load(Client client, InProcessBenchmark.Config config) throws Exception {}
+
+    /** Queue one transaction of the mix */
+    abstract void invoke(Client client, ProcedureCallback callback, Random random) throws IOException;
+
+    static Workload forName(String name, InProcessBenchmark.Config config) {
+        switch (name.trim().toLowerCase()) {
+        case "voter":
+            return new VoterWorkload(config);
+        case "voltkv":
+            return new KVWorkload(config);
+        case "contentionmark":
+            return new ContentionWorkload(config);
+        default:
+            throw new IllegalArgumentException("Unknown workload " + name);
+        }
+    }
+}
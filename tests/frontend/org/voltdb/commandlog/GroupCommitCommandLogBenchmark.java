@@ -0,0 +1,262 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.commandlog;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram_voltpatches.Histogram;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.CommandLog.CompletionChecks;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+/**
+ * Logs transactions from several threads standing in for sites and reports the
+ * throughput and the latency from logging a transaction to its batch being on disk,
+ * for synchronous and asynchronous logging at several commit intervals. Each site
+ * keeps a window of transactions in flight, like the clients of a partition would.
+ * Synchronous logging holds a response until the fsync, asynchronous logging only
+ * when the log applies backpressure.
+ * Truncation snapshots are simulated by recycling the segments every 100ms.
+ * Usage: GroupCommitCommandLogBenchmark [seconds per run] [sites] [window] [directory]
+ */
+public class GroupCommitCommandLogBenchmark {
+
+    private static final int[] INTERVALS_MILLIS = { 1, 2, 5, 10 };
+    private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int SEGMENT_COUNT = 8;
+
+    /** Times each transaction of one site from log() to its batch's fsync */
+    private static class TimingListener implements DurabilityListener {
+        final Histogram m_latencyMicros = new Histogram(TimeUnit.SECONDS.toMicros(10), 2);
+        // Synchronous logging holds a transaction's response until its batch is on disk
+        final Semaphore m_window;
+        final boolean m_synchronous;
+        final AtomicLong m_lastDurableSpHandle = new AtomicLong();
+        // Guarded by the command log lock
+        private long[] m_logNanos = new long[1024];
+        private int m_added;
+        private long m_lastSpHandle;
+        // Written by the site before it logs the transaction
+        long m_nextSpHandle;
+
+        TimingListener(int window, boolean synchronous) {
+            m_window = new Semaphore(window);
+            m_synchronous = synchronous;
+        }
+
+        @Override
+        public void addTransaction(TransactionTask pendingTask) {
+            if (m_added == m_logNanos.length) {
+                m_logNanos = Arrays.copyOf(m_logNanos, m_added * 2);
+            }
+            m_logNanos[m_added++] = System.nanoTime();
+            m_lastSpHandle = m_nextSpHandle;
+        }
+
+        @Override
+        public int getNumberOfTasks() {
+            return m_added;
+        }
+
+        @Override
+        public CompletionChecks startNewTaskList(int nextMaxRowCnt) {
+            final long[] logNanos = Arrays.copyOf(m_logNanos, m_added);
+            final long lastSpHandle = m_lastSpHandle;
+            m_added = 0;
+            return new CompletionChecks() {
+                @Override
+                public CompletionChecks startNewCheckList(int startSize) {
+                    return this;
+                }
+
+                @Override
+                public void addTask(TransactionTask task) {}
+
+                @Override
+                public void setLastDurableUniqueId(long uniqueId) {}
+
+                @Override
+                public boolean isChanged() {
+                    return logNanos.length > 0;
+                }
+
+                @Override
+                public int getTaskListSize() {
+                    return logNanos.length;
+                }
+
+                @Override
+                public void processChecks() {
+                    final long now = System.nanoTime();
+                    for (long nanos : logNanos) {
+                        m_latencyMicros.recordValue(
+                                Math.min(TimeUnit.NANOSECONDS.toMicros(now - nanos), m_latencyMicros.getHighestTrackableValue()));
+                    }
+                    m_lastDurableSpHandle.set(lastSpHandle);
+                    if (m_synchronous) {
+                        m_window.release(logNanos.length);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void processDurabilityChecks(CompletionChecks completionChecks) {
+            if (completionChecks.isChanged()) {
+                completionChecks.processChecks();
+            }
+        }
+
+        @Override
+        public void configureUniqueIdListener(DurableUniqueIdListener listener, boolean install) {}
+
+        @Override
+        public void createFirstCompletionCheck(boolean isSyncLogging, boolean commandLoggingEnabled) {}
+
+        @Override
+        public boolean completionCheckInitialized() {
+            return true;
+        }
+
+        @Override
+        public void initializeLastDurableUniqueId(long uniqueId) {}
+    }
+
+    private static Iv2InitiateTaskMessage message(long spHandle) {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Insert");
+        spi.setParams(spHandle, "a string parameter of a typical size for a key-value workload");
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(1, 2, 0, spHandle, spHandle, false, true, spi, 0, 0, false);
+        msg.setSpHandle(spHandle);
+        return msg;
+    }
+
+    private static void measure(File dir, boolean synchronous, int intervalMillis, int seconds, int sites,
+            int window) throws Exception {
+        final GroupCommitCommandLog log =
+                new GroupCommitCommandLog(synchronous, intervalMillis, Integer.MAX_VALUE, dir.getPath());
+        final Map<Integer, Long> truncationPoint = new HashMap<>();
+        for (int site = 0; site < sites; site++) {
+            truncationPoint.put(site, TxnEgo.makeZero(site).getTxnId());
+        }
+        log.initialize(SEGMENT_COUNT, SEGMENT_SIZE, new InstanceId(0, 0), truncationPoint);
+
+        final List<TimingListener> listeners = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int site = 0; site < sites; site++) {
+            final TimingListener listener = new TimingListener(window, synchronous);
+            log.registerDurabilityListener(listener);
+            listeners.add(listener);
+            final int partition = site;
+            threads.add(new Thread(() -> {
+                TxnEgo ego = TxnEgo.makeZero(partition);
+                try {
+                    while (System.nanoTime() < deadline) {
+                        listener.m_window.acquire();
+                        ego = ego.makeNext();
+                        final long spHandle = ego.getTxnId();
+                        listener.m_nextSpHandle = spHandle;
+                        final Future<Object> backpressure = log.log(message(spHandle), spHandle, null, listener, null);
+                        if (backpressure != null) {
+                            backpressure.get();
+                        }
+                        if (!synchronous) {
+                            listener.m_window.release();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, "Site " + site));
+        }
+
+        final long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        // Stand in for truncation snapshots so the log stays the same size
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            final Map<Integer, Long> durable = new HashMap<>();
+            for (int site = 0; site < sites; site++) {
+                durable.put(site, listeners.get(site).m_lastDurableSpHandle.get());
+            }
+            log.recycleSegments(durable);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        log.stop();
+        final long elapsedNanos = System.nanoTime() - start;
+
+        final Histogram latency = new Histogram(TimeUnit.SECONDS.toMicros(10), 2);
+        for (TimingListener listener : listeners) {
+            latency.add(listener.m_latencyMicros);
+        }
+        System.out.printf("%-5s %3d ms %10.0f txns/s %7d us p50 %7d us p99 %7d us p99.9 %7d us max %3d segments%n",
+                synchronous ? "sync" : "async",
+                intervalMillis,
+                latency.getTotalCount() / (elapsedNanos / 1000000000.0),
+                latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99),
+                latency.getValueAtPercentile(99.9),
+                latency.getMaxValue(),
+                log.getSegmentCount());
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int sites = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int window = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        final File dir = args.length > 3 ? new File(args[3]) : Files.createTempDirectory("commandlogbench").toFile();
+
+        for (boolean synchronous : new boolean[] { true, false }) {
+            for (int interval : INTERVALS_MILLIS) {
+                measure(dir, synchronous, interval, seconds, sites, window);
+            }
+        }
+        for (File f : dir.listFiles()) {
+            if (CommandLogSegment.indexOf(f.getName()) >= 0) {
+                f.delete();
+            }
+        }
+    }
+}
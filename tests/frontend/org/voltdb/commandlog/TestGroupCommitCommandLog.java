@@ -0,0 +1,346 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.commandlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.CommandLog.CompletionChecks;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+public class TestGroupCommitCommandLog {
+
+    private static final InstanceId INSTANCE_ID = new InstanceId(0, 12345);
+
+    @Rule
+    public final TemporaryFolder m_dir = new TemporaryFolder();
+
+    private GroupCommitCommandLog m_log;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (m_log != null) {
+            m_log.stop();
+        }
+    }
+
+    /** Counts the tasks the log hands to it and the ones it reports as durable */
+    private static class CountingListener implements DurabilityListener {
+        final AtomicInteger m_durable = new AtomicInteger();
+        final AtomicInteger m_batches = new AtomicInteger();
+        int m_added;
+
+        @Override
+        public void addTransaction(TransactionTask pendingTask) {
+            m_added++;
+        }
+
+        @Override
+        public int getNumberOfTasks() {
+            return m_added;
+        }
+
+        @Override
+        public CompletionChecks startNewTaskList(int nextMaxRowCnt) {
+            final int tasks = m_added;
+            m_added = 0;
+            return new CompletionChecks() {
+                @Override
+                public CompletionChecks startNewCheckList(int startSize) {
+                    return this;
+                }
+
+                @Override
+                public void addTask(TransactionTask task) {}
+
+                @Override
+                public void setLastDurableUniqueId(long uniqueId) {}
+
+                @Override
+                public boolean isChanged() {
+                    return tasks > 0;
+                }
+
+                @Override
+                public int getTaskListSize() {
+                    return tasks;
+                }
+
+                @Override
+                public void processChecks() {}
+            };
+        }
+
+        @Override
+        public void processDurabilityChecks(CompletionChecks completionChecks) {
+            if (completionChecks.isChanged()) {
+                m_batches.incrementAndGet();
+                m_durable.addAndGet(completionChecks.getTaskListSize());
+            }
+        }
+
+        @Override
+        public void configureUniqueIdListener(DurableUniqueIdListener listener, boolean install) {}
+
+        @Override
+        public void createFirstCompletionCheck(boolean isSyncLogging, boolean commandLoggingEnabled) {}
+
+        @Override
+        public boolean completionCheckInitialized() {
+            return true;
+        }
+
+        @Override
+        public void initializeLastDurableUniqueId(long uniqueId) {}
+    }
+
+    private static Iv2InitiateTaskMessage message(long spHandle) {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Insert");
+        spi.setParams(spHandle, "a somewhat longer string parameter to fill the segments");
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(1, 2, 0, spHandle, spHandle, false, true, spi, 0, 0, false);
+        msg.setSpHandle(spHandle);
+        return msg;
+    }
+
+    private GroupCommitCommandLog start(boolean synchronous, int segments, int segmentSize) throws IOException {
+        m_log = new GroupCommitCommandLog(synchronous, 2, Integer.MAX_VALUE, m_dir.getRoot().getPath());
+        m_log.initialize(segments, segmentSize, INSTANCE_ID, Collections.singletonMap(0, 0L));
+        return m_log;
+    }
+
+    private static void awaitDurable(CountingListener listener, int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (listener.m_durable.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, listener.m_durable.get());
+    }
+
+    private List<CommandLogReader.LogRecord> readBack() throws IOException {
+        final List<CommandLogReader.LogRecord> records = new ArrayList<>();
+        final CommandLogReader reader = new CommandLogReader(m_dir.getRoot());
+        assertEquals(INSTANCE_ID, reader.getInstanceId());
+        reader.read(r -> {
+            if (r.m_type != CommandLogSegment.TRUNCATION_RECORD) {
+                records.add(r);
+            }
+        }, true);
+        return records;
+    }
+
+    @Test
+    public void testSynchronousGroupCommit() throws Exception {
+        final GroupCommitCommandLog log = start(true, 4, 1024 * 1024);
+        assertFalse(log.needsInitialization());
+        assertTrue(log.isSynchronous());
+        assertFalse(log.canOfferTask());
+
+        // Several sites logging concurrently, each with its own listener
+        final int sites = 4;
+        final int txnsPerSite = 500;
+        final List<CountingListener> listeners = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int site = 0; site < sites; site++) {
+            final CountingListener listener = new CountingListener();
+            log.registerDurabilityListener(listener);
+            listeners.add(listener);
+            final int partition = site;
+            threads.add(new Thread(() -> {
+                TxnEgo ego = TxnEgo.makeZero(partition);
+                for (int i = 0; i < txnsPerSite; i++) {
+                    ego = ego.makeNext();
+                    assertNull(log.log(message(ego.getTxnId()), ego.getTxnId(), null, listener, null));
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (CountingListener listener : listeners) {
+            awaitDurable(listener, txnsPerSite);
+            assertTrue(listener.m_batches.get() <= txnsPerSite);
+        }
+        log.stop();
+        m_log = null;
+
+        final List<CommandLogReader.LogRecord> records = readBack();
+        assertEquals(sites * txnsPerSite, records.size());
+        final long[] lastSpHandle = new long[sites];
+        for (CommandLogReader.LogRecord r : records) {
+            assertEquals(CommandLogSegment.INITIATE_RECORD, r.m_type);
+            assertEquals(r.m_spHandle, r.m_message.getTxnId());
+            assertEquals("Insert", r.m_message.getStoredProcedureName());
+            // Each site's records keep their order
+            assertTrue(r.m_spHandle > lastSpHandle[r.getPartitionId()]);
+            lastSpHandle[r.getPartitionId()] = r.m_spHandle;
+        }
+    }
+
+    @Test
+    public void testAsynchronousDoesNotHoldTasks() throws Exception {
+        final GroupCommitCommandLog log = start(false, 4, 1024 * 1024);
+        assertTrue(log.canOfferTask());
+        final CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+
+        TxnEgo ego = TxnEgo.makeZero(0);
+        for (int i = 0; i < 100; i++) {
+            ego = ego.makeNext();
+            ListenableFuture<Object> backpressure = log.log(message(ego.getTxnId()), ego.getTxnId(), null, listener, null);
+            assertNotNull(backpressure);
+            assertTrue(backpressure.isDone());
+        }
+        awaitDurable(listener, 100);
+
+        final SettableFuture<Boolean> fault =
+                log.logIv2Fault(5L, new HashSet<>(Arrays.asList(6L, 7L)), 0, ego.getTxnId());
+        assertTrue(fault.get(30, TimeUnit.SECONDS));
+        log.stop();
+        m_log = null;
+
+        final List<CommandLogReader.LogRecord> records = readBack();
+        assertEquals(101, records.size());
+        final CommandLogReader.LogRecord faultRecord = records.get(100);
+        assertEquals(CommandLogSegment.FAULT_RECORD, faultRecord.m_type);
+        assertEquals(5L, faultRecord.m_writerHSId);
+        assertEquals(2, faultRecord.m_survivorHSIds.length);
+    }
+
+    @Test
+    public void testRecycledSegmentsAreWrittenOver() throws Exception {
+        final int segmentSize = 16 * 1024;
+        final GroupCommitCommandLog log = start(true, 4, segmentSize);
+        final CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+
+        // Fill the first two segments and note the last record of the first one
+        TxnEgo ego = TxnEgo.makeZero(0);
+        long lastOfFirstSegment = -1;
+        int firstSegmentRecords = 0;
+        int logged = 0;
+        while (log.getInUseSegmentCount() < 3) {
+            final int inUse = log.getInUseSegmentCount();
+            final long previous = ego.getTxnId();
+            ego = ego.makeNext();
+            log.log(message(ego.getTxnId()), ego.getTxnId(), null, listener, null);
+            if (inUse == 1 && log.getInUseSegmentCount() == 2) {
+                lastOfFirstSegment = previous;
+                firstSegmentRecords = logged;
+            }
+            logged++;
+        }
+        awaitDurable(listener, logged);
+
+        // A truncation snapshot that covers the first segment frees it
+        log.recycleSegments(Collections.singletonMap(0, lastOfFirstSegment));
+        assertEquals(2, log.getInUseSegmentCount());
+
+        // Keep going until the log has to grow, which it only does once the
+        // recycled segment has been written over as well
+        final int segments = log.getSegmentCount();
+        for (int i = 0; i < 2 * logged; i++) {
+            ego = ego.makeNext();
+            log.log(message(ego.getTxnId()), ego.getTxnId(), null, listener, null);
+        }
+        awaitDurable(listener, 3 * logged);
+        assertTrue(log.getSegmentCount() > segments);
+        log.stop();
+        m_log = null;
+
+        // Only what followed the truncation point comes back, in order
+        final List<CommandLogReader.LogRecord> records = readBack();
+        assertEquals(3 * logged - firstSegmentRecords, records.size());
+        long expected = lastOfFirstSegment;
+        for (CommandLogReader.LogRecord r : records) {
+            expected = new TxnEgo(expected).makeNext().getTxnId();
+            assertEquals(expected, r.m_spHandle);
+        }
+        assertEquals(ego.getTxnId(), expected);
+    }
+
+    @Test
+    public void testTornWriteEndsTheLog() throws Exception {
+        final GroupCommitCommandLog log = start(true, 2, 1024 * 1024);
+        final CountingListener listener = new CountingListener();
+        log.registerDurabilityListener(listener);
+        TxnEgo ego = TxnEgo.makeZero(0);
+        for (int i = 0; i < 1000; i++) {
+            ego = ego.makeNext();
+            log.log(message(ego.getTxnId()), ego.getTxnId(), null, listener, null);
+        }
+        awaitDurable(listener, 1000);
+        log.stop();
+        m_log = null;
+
+        // Flip a byte in the middle of the log
+        final File segment = CommandLogSegment.fileFor(m_dir.getRoot(), 0);
+        final long position = readBack().size() / 2 * 100;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(position);
+            final int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xff);
+        }
+        final List<CommandLogReader.LogRecord> records = readBack();
+        assertTrue(records.size() > 0);
+        assertTrue(records.size() < 1000);
+        long expected = TxnEgo.makeZero(0).getTxnId();
+        for (CommandLogReader.LogRecord r : records) {
+            expected = new TxnEgo(expected).makeNext().getTxnId();
+            assertEquals(expected, r.m_spHandle);
+        }
+    }
+}
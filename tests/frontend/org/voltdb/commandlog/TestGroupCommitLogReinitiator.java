@@ -0,0 +1,532 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.commandlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltcore.network.Connection;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.CommandLog.CompletionChecks;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.CreateTransactionResult;
+import org.voltdb.InvocationDispatcher.OverrideCheck;
+import org.voltdb.StartAction;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
+import org.voltdb.iv2.TransactionTask;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+public class TestGroupCommitLogReinitiator {
+
+    private static final InstanceId INSTANCE_ID = new InstanceId(0, 12345);
+
+    @Rule
+    public final TemporaryFolder m_dir = new TemporaryFolder();
+
+    private long m_sp0First, m_sp0Second, m_sp1First, m_sp1Torn, m_mpTxnId;
+
+    /** Makes every log call durable right away, the replay only needs what is on disk */
+    private static class NullListener implements DurabilityListener {
+        @Override
+        public void addTransaction(TransactionTask pendingTask) {}
+
+        @Override
+        public int getNumberOfTasks() {
+            return 0;
+        }
+
+        @Override
+        public CompletionChecks startNewTaskList(int nextMaxRowCnt) {
+            return new CompletionChecks() {
+                @Override
+                public CompletionChecks startNewCheckList(int startSize) {
+                    return this;
+                }
+
+                @Override
+                public void addTask(TransactionTask task) {}
+
+                @Override
+                public void setLastDurableUniqueId(long uniqueId) {}
+
+                @Override
+                public boolean isChanged() {
+                    return false;
+                }
+
+                @Override
+                public int getTaskListSize() {
+                    return 0;
+                }
+
+                @Override
+                public void processChecks() {}
+            };
+        }
+
+        @Override
+        public void processDurabilityChecks(CompletionChecks completionChecks) {}
+
+        @Override
+        public void configureUniqueIdListener(DurableUniqueIdListener listener, boolean install) {}
+
+        @Override
+        public void createFirstCompletionCheck(boolean isSyncLogging, boolean commandLoggingEnabled) {}
+
+        @Override
+        public boolean completionCheckInitialized() {
+            return true;
+        }
+
+        @Override
+        public void initializeLastDurableUniqueId(long uniqueId) {}
+    }
+
+    /** Records what the replay initiates and answers every transaction with success */
+    private static class RecordingInitiator implements TransactionCreator {
+        // The MPI host initiates multi partition transactions from a thread of their own
+        final List<String> m_initiated = Collections.synchronizedList(new ArrayList<>());
+        final List<String> m_sentinels = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> m_eols = Collections.synchronizedList(new ArrayList<>());
+        final Map<Long, Connection> m_adapters = new ConcurrentHashMap<>();
+
+        List<String> singlePartition() {
+            synchronized (m_initiated) {
+                return m_initiated.stream().filter(i -> i.endsWith(":true")).collect(Collectors.toList());
+            }
+        }
+
+        List<String> multiPartition() {
+            synchronized (m_initiated) {
+                return m_initiated.stream().filter(i -> i.endsWith(":false")).collect(Collectors.toList());
+            }
+        }
+
+        @Override
+        public CreateTransactionResult createTransaction(long connectionId, StoredProcedureInvocation invocation,
+                boolean isReadOnly, boolean isSinglePartition, boolean isEverySite, int partition,
+                int messageSize, long nowNanos) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CreateTransactionResult createTransaction(long connectionId, long txnId, long uniqueId,
+                StoredProcedureInvocation invocation, boolean isReadOnly, boolean isSinglePartition,
+                boolean isEverySite, int partition, int messageSize, long nowNanos) {
+            m_initiated.add(partition + ":" + txnId + ":" + isSinglePartition);
+            final ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0],
+                                                                       "", invocation.getClientHandle());
+            final ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+            buf.putInt(buf.capacity() - 4);
+            response.flattenToBuffer(buf);
+            buf.flip();
+            m_adapters.get(connectionId).writeStream().enqueue(buf);
+            return CreateTransactionResult.SUCCESS;
+        }
+
+        @Override
+        public ClientResponseImpl dispatch(StoredProcedureInvocation invocation, Connection connection,
+                boolean isAdmin, OverrideCheck bypass) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendSentinel(long uniqueId, int partitionId) {
+            m_sentinels.add(partitionId + ":" + uniqueId);
+        }
+
+        @Override
+        public void sendEOLMessage(int partitionId) {
+            m_eols.add(partitionId);
+        }
+
+        @Override
+        public void bindAdapter(Connection adapter) {
+            m_adapters.put(adapter.connectionId(), adapter);
+        }
+    }
+
+    /** Stands in for ZooKeeper and the host messenger between the hosts of one test */
+    private static class Cluster {
+        final Map<Integer, JSONObject> m_sources = new ConcurrentHashMap<>();
+        final CountDownLatch m_published;
+        final BlockingQueue<List<Iv2InitiateTaskMessage>> m_forwarded = new LinkedBlockingQueue<>();
+
+        Cluster(int hosts) {
+            m_published = new CountDownLatch(hosts);
+        }
+    }
+
+    /** Replays as one host of a cluster, leading the given partitions */
+    private static class LocalReinitiator extends GroupCommitLogReinitiator {
+        private final int m_hostId;
+        private final Cluster m_cluster;
+        private final List<Integer> m_led;
+
+        LocalReinitiator(String path, int hostId, Cluster cluster, Integer... led) {
+            super(hostId, StartAction.RECOVER, null, path, Collections.singleton(hostId));
+            m_hostId = hostId;
+            m_cluster = cluster;
+            m_led = Arrays.asList(led);
+        }
+
+        LocalReinitiator(String path, Integer... led) {
+            this(path, 0, new Cluster(1), led);
+        }
+
+        @Override
+        boolean leadsPartition(int partition) {
+            return m_led.contains(partition);
+        }
+
+        @Override
+        Map<Integer, JSONObject> exchangeReplaySources(JSONObject local) throws Exception {
+            m_cluster.m_sources.put(m_hostId, local);
+            m_cluster.m_published.countDown();
+            m_cluster.m_published.await();
+            return new TreeMap<>(m_cluster.m_sources);
+        }
+
+        @Override
+        void prepareMpForwarding() {}
+
+        @Override
+        void forwardMpInitiations(int mpiHost, Collection<Iv2InitiateTaskMessage> initiations) {
+            m_cluster.m_forwarded.add(new ArrayList<>(initiations));
+        }
+
+        @Override
+        Collection<Iv2InitiateTaskMessage> receiveMpInitiations(int senders) throws IOException {
+            final List<Iv2InitiateTaskMessage> initiations = new ArrayList<>();
+            try {
+                for (int i = 0; i < senders; i++) {
+                    initiations.addAll(m_cluster.m_forwarded.take());
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return initiations;
+        }
+
+        @Override
+        void awaitReplayBarrier() {}
+    }
+
+    private static Iv2InitiateTaskMessage message(long txnId, long spHandle, boolean isSinglePartition) {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName(isSinglePartition ? "Insert" : "UpdateAll");
+        spi.setParams(txnId, "parameter");
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(1, 2, 0, txnId, txnId, false, isSinglePartition, spi, 0, 0, false);
+        msg.setSpHandle(spHandle);
+        return msg;
+    }
+
+    /**
+     * Logs a single partition transaction on each of two partitions, a multi partition
+     * transaction on both, one more on each, and then tears the last record written.
+     */
+    @Before
+    public void writeLog() throws Exception {
+        final GroupCommitCommandLog log = openLog(m_dir.getRoot());
+        final NullListener listener = new NullListener();
+        log.registerDurabilityListener(listener);
+
+        TxnEgo p0 = TxnEgo.makeZero(0).makeNext();
+        TxnEgo p1 = TxnEgo.makeZero(1).makeNext();
+        m_sp0First = p0.getTxnId();
+        m_sp1First = p1.getTxnId();
+        log.log(message(m_sp0First, m_sp0First, true), m_sp0First, null, listener, null);
+        log.log(message(m_sp1First, m_sp1First, true), m_sp1First, null, listener, null);
+
+        m_mpTxnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID).makeNext().getTxnId();
+        p0 = p0.makeNext();
+        p1 = p1.makeNext();
+        log.log(message(m_mpTxnId, p0.getTxnId(), false), p0.getTxnId(), new int[] { 0, 1 }, listener, null);
+        log.log(message(m_mpTxnId, p1.getTxnId(), false), p1.getTxnId(), new int[] { 0, 1 }, listener, null);
+
+        m_sp0Second = p0.makeNext().getTxnId();
+        m_sp1Torn = p1.makeNext().getTxnId();
+        log.log(message(m_sp0Second, m_sp0Second, true), m_sp0Second, null, listener, null);
+        log.log(message(m_sp1Torn, m_sp1Torn, true), m_sp1Torn, null, listener, null);
+        log.stop();
+
+        tearLastInitiateRecord(CommandLogSegment.fileFor(m_dir.getRoot(), 0));
+    }
+
+    private static void tearLastInitiateRecord(File segment) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            long last = -1;
+            long position = CommandLogSegment.HEADER_SIZE;
+            while (position + CommandLogSegment.RECORD_HEADER_SIZE < raf.length()) {
+                raf.seek(position);
+                final int length = raf.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                raf.seek(position + CommandLogSegment.RECORD_HEADER_SIZE);
+                if (raf.readByte() == CommandLogSegment.INITIATE_RECORD) {
+                    last = position;
+                }
+                position += CommandLogSegment.RECORD_HEADER_SIZE + length;
+            }
+            assertTrue(last > 0);
+            // The last byte of the record is part of the message
+            raf.seek(last);
+            final long end = last + CommandLogSegment.RECORD_HEADER_SIZE + raf.readInt() - 1;
+            raf.seek(end);
+            final int b = raf.read();
+            raf.seek(end);
+            raf.write(b ^ 0xff);
+        }
+    }
+
+    private static GroupCommitCommandLog openLog(File dir) throws IOException {
+        final Map<Integer, Long> truncation = new HashMap<>();
+        truncation.put(0, 0L);
+        truncation.put(1, 0L);
+        final GroupCommitCommandLog log = new GroupCommitCommandLog(true, 2, Integer.MAX_VALUE, dir.getPath());
+        log.initialize(2, 1024 * 1024, INSTANCE_ID, truncation);
+        return log;
+    }
+
+    private static RecordingInitiator start(GroupCommitLogReinitiator reinitiator, boolean isMPINode,
+            CountDownLatch done) {
+        final RecordingInitiator initiator = new RecordingInitiator();
+        reinitiator.setSnapshotTxnId(null);
+        reinitiator.setInitiator(initiator);
+        reinitiator.setCallback(done::countDown);
+        reinitiator.generateReplayPlan(0, 0, 2, isMPINode, null);
+        reinitiator.replay();
+        return initiator;
+    }
+
+    private static RecordingInitiator replay(GroupCommitLogReinitiator reinitiator, boolean isMPINode)
+            throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final RecordingInitiator initiator = start(reinitiator, isMPINode, done);
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        return initiator;
+    }
+
+    private static JSONObject source(boolean isMPI, JSONObject... partitions) throws JSONException {
+        final JSONObject json = new JSONObject();
+        json.put("mpi", isMPI);
+        json.put("partitions", new JSONArray(Arrays.asList(partitions)));
+        return json;
+    }
+
+    private static JSONObject partitionLog(int partition, long last, boolean leader, Long... faults)
+            throws JSONException {
+        final GroupCommitLogReinitiator.PartitionLog log = new GroupCommitLogReinitiator.PartitionLog();
+        log.m_lastSpHandle = last;
+        log.m_leader = leader;
+        log.m_faults.addAll(Arrays.asList(faults));
+        return log.toJSON(partition);
+    }
+
+    @Test
+    public void testReplayOnOneHost() throws Exception {
+        final GroupCommitLogReinitiator reinitiator = new LocalReinitiator(m_dir.getRoot().getPath(), 0);
+        assertEquals(INSTANCE_ID, reinitiator.getInstanceId());
+        assertEquals(Long.valueOf(0), reinitiator.getMaxLastSeenTxn());
+
+        final RecordingInitiator initiator = replay(reinitiator, true);
+        assertTrue(reinitiator.hasReplayedSegments());
+        // The only log replays both partitions in log order, without partition 1's torn tail
+        assertEquals(Arrays.asList("0:" + m_sp0First + ":true",
+                                   "1:" + m_sp1First + ":true",
+                                   "0:" + m_sp0Second + ":true"),
+                     initiator.singlePartition());
+        assertFalse(initiator.m_initiated.contains("1:" + m_sp1Torn + ":true"));
+        // The multi partition one once, with a sentinel on each partition
+        assertEquals(Collections.singletonList(MpInitiator.MP_INIT_PID + ":" + m_mpTxnId + ":false"),
+                     initiator.multiPartition());
+        assertEquals(Arrays.asList("0:" + m_mpTxnId, "1:" + m_mpTxnId), initiator.m_sentinels);
+        assertEquals(Collections.singletonList(MpInitiator.MP_INIT_PID), initiator.m_eols);
+        assertTrue(reinitiator.hasReplayedTxns());
+    }
+
+    /**
+     * The MPI host has no replica of partition 1, so the n-partition transaction
+     * only partition 1 logged reaches it through the host that replays partition 1.
+     */
+    @Test
+    public void testNPartitionTransactionIsForwardedToMPIHost() throws Exception {
+        final File mpiDir = m_dir.newFolder();
+        final File otherDir = m_dir.newFolder();
+        final NullListener listener = new NullListener();
+
+        final GroupCommitCommandLog mpiLog = openLog(mpiDir);
+        mpiLog.registerDurabilityListener(listener);
+        final long sp0 = TxnEgo.makeZero(0).makeNext().getTxnId();
+        mpiLog.log(message(sp0, sp0, true), sp0, null, listener, null);
+        mpiLog.stop();
+
+        final GroupCommitCommandLog otherLog = openLog(otherDir);
+        otherLog.registerDurabilityListener(listener);
+        TxnEgo p1 = TxnEgo.makeZero(1).makeNext();
+        final long sp1First = p1.getTxnId();
+        otherLog.log(message(sp1First, sp1First, true), sp1First, null, listener, null);
+        final long nPartition = TxnEgo.makeZero(MpInitiator.MP_INIT_PID).makeNext().getTxnId();
+        p1 = p1.makeNext();
+        otherLog.log(message(nPartition, p1.getTxnId(), false), p1.getTxnId(), new int[] { 1 }, listener, null);
+        final long sp1Second = p1.makeNext().getTxnId();
+        otherLog.log(message(sp1Second, sp1Second, true), sp1Second, null, listener, null);
+        otherLog.stop();
+
+        final Cluster cluster = new Cluster(2);
+        final CountDownLatch done = new CountDownLatch(2);
+        final RecordingInitiator mpi = start(new LocalReinitiator(mpiDir.getPath(), 0, cluster, 0), true, done);
+        final RecordingInitiator other = start(new LocalReinitiator(otherDir.getPath(), 1, cluster, 1), false, done);
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singletonList("0:" + sp0 + ":true"), mpi.singlePartition());
+        assertEquals(Collections.singletonList(MpInitiator.MP_INIT_PID + ":" + nPartition + ":false"),
+                     mpi.multiPartition());
+        assertEquals(Collections.singletonList(MpInitiator.MP_INIT_PID), mpi.m_eols);
+        assertTrue(mpi.m_sentinels.isEmpty());
+
+        assertEquals(Arrays.asList("1:" + sp1First + ":true", "1:" + sp1Second + ":true"), other.m_initiated);
+        assertEquals(Collections.singletonList("1:" + nPartition), other.m_sentinels);
+        assertTrue(other.m_eols.isEmpty());
+    }
+
+    /**
+     * Partition 1's current leader was down while the other replica wrote a fault
+     * record, so its log misses the transactions after that and is not replayed.
+     */
+    @Test
+    public void testLogMissingAFaultRecordIsNotReplayed() throws Exception {
+        final File completeDir = m_dir.newFolder();
+        final File staleDir = m_dir.newFolder();
+        final NullListener listener = new NullListener();
+
+        TxnEgo p1 = TxnEgo.makeZero(1).makeNext();
+        final long before = p1.getTxnId();
+        p1 = p1.makeNext();
+        final long fault = p1.getTxnId();
+        final long after = p1.makeNext().getTxnId();
+
+        final GroupCommitCommandLog completeLog = openLog(completeDir);
+        completeLog.registerDurabilityListener(listener);
+        completeLog.log(message(before, before, true), before, null, listener, null);
+        completeLog.logIv2Fault(1L, Collections.singleton(1L), 1, fault).get();
+        completeLog.log(message(after, after, true), after, null, listener, null);
+        completeLog.stop();
+
+        final GroupCommitCommandLog staleLog = openLog(staleDir);
+        staleLog.registerDurabilityListener(listener);
+        staleLog.log(message(before, before, true), before, null, listener, null);
+        staleLog.stop();
+
+        final Cluster cluster = new Cluster(3);
+        final CountDownLatch done = new CountDownLatch(3);
+        final RecordingInitiator mpi = start(new LocalReinitiator(m_dir.newFolder().getPath(), 0, cluster, 0),
+                                             true, done);
+        final RecordingInitiator complete = start(new LocalReinitiator(completeDir.getPath(), 1, cluster),
+                                                  false, done);
+        final RecordingInitiator stale = start(new LocalReinitiator(staleDir.getPath(), 2, cluster, 1),
+                                               false, done);
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("1:" + before + ":true", "1:" + after + ":true"), complete.m_initiated);
+        assertTrue(stale.m_initiated.isEmpty());
+        assertTrue(mpi.m_initiated.isEmpty());
+        assertEquals(Collections.singletonList(MpInitiator.MP_INIT_PID), mpi.m_eols);
+    }
+
+    @Test
+    public void testSelectReplayHosts() throws Exception {
+        final Map<Integer, JSONObject> sources = new TreeMap<>();
+        // Partition 0: equal logs, the leader's is replayed
+        // Partition 1: host 2 leads but missed fault 30, host 1 has the longer log anyway
+        sources.put(0, source(true, partitionLog(0, 100, false, 10L)));
+        sources.put(1, source(false, partitionLog(0, 100, true, 10L), partitionLog(1, 50, false, 20L, 30L)));
+        sources.put(2, source(false, partitionLog(1, 60, true, 20L)));
+        Map<Integer, Integer> hosts = GroupCommitLogReinitiator.selectReplayHosts(sources, null);
+        assertEquals(Integer.valueOf(1), hosts.get(0));
+        assertEquals(Integer.valueOf(1), hosts.get(1));
+
+        // Faults the restored snapshot covers do not count
+        hosts = GroupCommitLogReinitiator.selectReplayHosts(sources, Collections.singletonMap(1, 30L));
+        assertEquals(Integer.valueOf(2), hosts.get(1));
+
+        // Every log of partition 1 misses a fault the other has
+        sources.put(2, source(false, partitionLog(1, 60, true, 25L)));
+        try {
+            GroupCommitLogReinitiator.selectReplayHosts(sources, null);
+            fail("Replayed a partition without a complete log");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("partition 1"));
+        }
+    }
+
+    @Test
+    public void testNothingToReplay() throws Exception {
+        final GroupCommitLogReinitiator reinitiator =
+                new LocalReinitiator(m_dir.newFolder().getPath(), 0, 1);
+        final RecordingInitiator initiator = replay(reinitiator, true);
+        assertFalse(reinitiator.hasReplayedSegments());
+        assertTrue(initiator.m_initiated.isEmpty());
+        // The MPI still ends the log for the partitions other hosts replay
+        assertEquals(Collections.singletonList(MpInitiator.MP_INIT_PID), initiator.m_eols);
+        assertFalse(reinitiator.hasReplayedTxns());
+    }
+}
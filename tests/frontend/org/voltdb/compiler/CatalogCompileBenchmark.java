@@ -0,0 +1,151 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.voltdb.utils.BuildDirectoryUtils;
+import org.voltdb.utils.InMemoryJarfile;
+
+/**
+ * Compiles a synthetic schema with many tables and single statement procedures,
+ * once encoding plans on the compiling thread and once on a pool of threads,
+ * and reports the time spent in each compile phase. The two catalogs must match.
+ * It then times a live CREATE INDEX against schemas of increasing size, which
+ * should only replan the statements that touch the indexed table.
+ *
+ * Usage: CatalogCompileBenchmark [tables] [procedures per table] [encoder threads]
+ */
+public class CatalogCompileBenchmark {
+
+    static String buildSchema(int tableCount, int procsPerTable) {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < tableCount; t++) {
+            sb.append("CREATE TABLE T").append(t).append(" (")
+              .append("ID BIGINT NOT NULL, GRP INTEGER NOT NULL, NAME VARCHAR(32), ")
+              .append("AMOUNT FLOAT, UPDATED TIMESTAMP, PRIMARY KEY (ID));\n");
+            sb.append("PARTITION TABLE T").append(t).append(" ON COLUMN ID;\n");
+            sb.append("CREATE INDEX T").append(t).append("_GRP ON T").append(t).append(" (GRP, NAME);\n");
+        }
+        for (int t = 0; t < tableCount; t++) {
+            String table = "T" + t;
+            String other = "T" + ((t + 1) % tableCount);
+            for (int p = 0; p < procsPerTable; p++) {
+                String proc = table + "_P" + p;
+                String sql;
+                switch (p % 4) {
+                case 0:
+                    sql = "SELECT NAME, AMOUNT FROM " + table + " WHERE ID = ? AND GRP > " + p;
+                    break;
+                case 1:
+                    sql = "SELECT A.GRP, COUNT(*), SUM(B.AMOUNT) FROM " + table + " A, " + other + " B " +
+                          "WHERE A.ID = B.ID AND A.GRP > ? GROUP BY A.GRP ORDER BY 2 DESC LIMIT " + (p + 1);
+                    break;
+                case 2:
+                    sql = "UPDATE " + table + " SET AMOUNT = AMOUNT + ?, UPDATED = NOW WHERE ID = ?";
+                    break;
+                default:
+                    sql = "DELETE FROM " + table + " WHERE ID = ? AND NAME = '" + proc + "'";
+                    break;
+                }
+                sb.append("CREATE PROCEDURE ").append(proc).append(" AS ").append(sql).append(";\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    static String formatPhaseTimes(Map<String, Long> phaseTimes) {
+        StringBuilder sb = new StringBuilder();
+        for (Entry<String, Long> e : phaseTimes.entrySet()) {
+            sb.append(String.format(", %s %d ms", e.getKey(), e.getValue()));
+        }
+        return sb.toString();
+    }
+
+    static VoltCompiler compile(String schemaPath, int threads) {
+        VoltCompiler compiler = new VoltCompiler(false);
+        compiler.setPlanEncoderThreads(threads);
+        String jarPath = BuildDirectoryUtils.getBuildDirectoryPath() + File.separator + "compilebench.jar";
+        long start = System.nanoTime();
+        if (!compiler.compileFromDDL(jarPath, schemaPath)) {
+            compiler.summarizeErrors(System.err, System.err);
+            throw new RuntimeException("Benchmark schema failed to compile");
+        }
+        long totalMillis = (System.nanoTime() - start) / 1000000;
+        new File(jarPath).delete();
+
+        System.out.printf("%2d encoder thread(s): %6d ms total%s\n",
+                threads, totalMillis, formatPhaseTimes(compiler.getPhaseTimes()));
+        return compiler;
+    }
+
+    static void liveDDL(int tableCount, int procsPerTable) throws Exception {
+        File schemaFile = VoltProjectBuilder.writeStringToTempFile(buildSchema(tableCount, procsPerTable));
+        schemaFile.deleteOnExit();
+        String jarPath = BuildDirectoryUtils.getBuildDirectoryPath() + File.separator + "compilebench-live.jar";
+        VoltCompiler compiler = new VoltCompiler(false);
+        if (!compiler.compileFromDDL(jarPath, schemaFile.getPath())) {
+            compiler.summarizeErrors(System.err, System.err);
+            throw new RuntimeException("Benchmark schema failed to compile");
+        }
+        InMemoryJarfile jarfile = new InMemoryJarfile(jarPath);
+        new File(jarPath).delete();
+
+        VoltCompiler live = new VoltCompiler(false);
+        long start = System.nanoTime();
+        live.compileInMemoryJarfileWithNewDDL(jarfile, "CREATE INDEX T0_NAME ON T0 (NAME);", compiler.getCatalog());
+        long totalMillis = (System.nanoTime() - start) / 1000000;
+        System.out.printf("%4d tables, %5d procedures: %6d ms total, %d statements replanned, %d reused%s\n",
+                tableCount, tableCount * procsPerTable, totalMillis,
+                live.getPlannedStatementCount(), live.getReusedStatementCount(),
+                formatPhaseTimes(live.getPhaseTimes()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tableCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int procsPerTable = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : VoltCompiler.DEFAULT_PLAN_ENCODER_THREADS;
+
+        File schemaFile = VoltProjectBuilder.writeStringToTempFile(buildSchema(tableCount, procsPerTable));
+        schemaFile.deleteOnExit();
+        System.out.printf("Compiling %d tables and %d procedures\n", tableCount, tableCount * procsPerTable);
+
+        // warm up the planner before timing anything
+        compile(schemaFile.getPath(), threads);
+
+        String serial = compile(schemaFile.getPath(), 1).getCatalog().serialize();
+        String parallel = compile(schemaFile.getPath(), threads).getCatalog().serialize();
+        if (!serial.equals(parallel)) {
+            throw new RuntimeException("Catalogs compiled with 1 and " + threads + " encoder threads differ");
+        }
+        System.out.println("Catalogs are identical");
+
+        System.out.println("Live CREATE INDEX on one table:");
+        for (int tables = Math.max(1, tableCount / 4); tables <= tableCount; tables *= 2) {
+            liveDDL(tables, procsPerTable);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.planner.BoundPlan;
+import org.voltdb.planner.CorePlan;
+
+public class TestAdHocCompilerCache extends TestCase {
+
+    private static CorePlan makeCore(int fragmentSize) {
+        return new CorePlan(new byte[fragmentSize], null, new byte[20], null,
+                false, true, new VoltType[] { VoltType.BIGINT }, new byte[20]);
+    }
+
+    private static AdHocPlannedStatement makeStatement(String sql, CorePlan core, long param) {
+        return new AdHocPlannedStatement(sql.getBytes(Constants.UTF8ENCODING), core,
+                ParameterSet.fromArrayNoCopy(param), null);
+    }
+
+    public void testSharedCoreCountedOnce() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(100, 100);
+        AdHocCompilerCache.AdHocStatementCache literals =
+                (AdHocCompilerCache.AdHocStatementCache) cache.m_literalCache;
+        CorePlan core = makeCore(10000);
+        AdHocPlannedStatement one = makeStatement("select * from t where a = 1;", core, 1);
+        AdHocPlannedStatement two = makeStatement("select * from t where a = 2;", core, 2);
+        int coreSize = core.getSerializedSize();
+
+        literals.put("one", one);
+        assertEquals(one.getSerializedSize(), literals.getCurrentMemory());
+
+        // The second literal only adds its own text and parameters.
+        literals.put("two", two);
+        assertEquals(one.getSerializedSize() + two.getSerializedSize() - coreSize,
+                literals.getCurrentMemory());
+
+        // The core is still referenced by the remaining entry.
+        literals.remove("one");
+        assertEquals(two.getSerializedSize(), literals.getCurrentMemory());
+
+        literals.remove("two");
+        assertEquals(0, literals.getCurrentMemory());
+    }
+
+    public void testReplacedEntryIsReleased() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(100, 100);
+        AdHocCompilerCache.AdHocStatementCache literals =
+                (AdHocCompilerCache.AdHocStatementCache) cache.m_literalCache;
+        AdHocPlannedStatement first = makeStatement("select * from t;", makeCore(500), 1);
+        AdHocPlannedStatement second = makeStatement("select * from t;", makeCore(700), 1);
+
+        literals.put("select * from t;", first);
+        literals.put("select * from t;", second);
+        assertEquals(second.getSerializedSize(), literals.getCurrentMemory());
+
+        literals.clear();
+        assertEquals(0, literals.getCurrentMemory());
+    }
+
+    public void testEvictionByMemory() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(1000, 1000);
+        AdHocCompilerCache.AdHocStatementCache literals =
+                (AdHocCompilerCache.AdHocStatementCache) cache.m_literalCache;
+        // Many literals of one shared 1MB core stay well under the memory limit.
+        CorePlan core = makeCore(1024 * 1024);
+        for (int i = 0; i < 500; i++) {
+            literals.put("q" + i, makeStatement("select * from t where a = " + i + ";", core, i));
+        }
+        assertEquals(500, literals.size());
+        assertTrue(literals.getCurrentMemory() < 2 * 1024 * 1024);
+    }
+
+    public void testInvalidate() {
+        AdHocCompilerCache cache = new AdHocCompilerCache(100, 100);
+        AdHocCompilerCache.AdHocStatementCache literals =
+                (AdHocCompilerCache.AdHocStatementCache) cache.m_literalCache;
+        literals.put("select * from t;", makeStatement("select * from t;", makeCore(500), 1));
+        cache.m_coreCache.put("select * from t where a = ?;", new ArrayList<BoundPlan>());
+
+        cache.invalidate();
+        assertEquals(0, cache.getLiteralCacheSize());
+        assertEquals(0, cache.getCoreCacheSize());
+        assertEquals(0, literals.getCurrentMemory());
+        assertEquals(1, cache.m_literalEvictions);
+        assertEquals(1, cache.m_planEvictions);
+    }
+}
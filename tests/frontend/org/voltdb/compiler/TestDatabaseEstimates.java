@@ -0,0 +1,173 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+
+public class TestDatabaseEstimates extends TestCase {
+
+    private static Database makeDatabase() {
+        Catalog catalog = new Catalog();
+        Cluster cluster = catalog.getClusters().add("cluster");
+        Database db = cluster.getDatabases().add("database");
+        Table p = db.getTables().add("P");
+        p.setIsreplicated(false);
+        p.getIndexes().add("P_IDX");
+        p.getColumns().add("SKEWED");
+        db.getTables().add("R").setIsreplicated(true);
+        db.getTables().add("UNSEEN").setIsreplicated(false);
+        return db;
+    }
+
+    private static VoltTable makeTableStats() {
+        return new VoltTable(
+                new VoltTable.ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("TABLE_TYPE", VoltType.STRING),
+                new VoltTable.ColumnInfo("TUPLE_COUNT", VoltType.BIGINT));
+    }
+
+    public void testDefaults() {
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        DatabaseEstimates.TableEstimates est = estimates.getEstimatesForTable("T");
+        assertEquals(1000000, est.maxTuples);
+        assertEquals(100000, est.minTuples);
+    }
+
+    public void testFromTableStats() {
+        Database db = makeDatabase();
+        VoltTable stats = makeTableStats();
+        // two sites on this host
+        stats.addRow("P", "PersistentTable", 40000);
+        stats.addRow("P", "PersistentTable", 60000);
+        stats.addRow("R", "PersistentTable", 7000);
+        stats.addRow("R", "PersistentTable", 7000);
+        // streams and tables missing from the catalog are ignored
+        stats.addRow("S", "StreamedTable", 999999999);
+        stats.addRow("GONE", "PersistentTable", 999999999);
+
+        DatabaseEstimates estimates = DatabaseEstimates.fromTableStats(stats, db);
+        // partitioned tables are costed per partition
+        assertEquals(50000, estimates.getEstimatesForTable("P").maxTuples);
+        assertEquals(50000, estimates.getEstimatesForTable("P").minTuples);
+        // replicated tables are costed at their full size
+        assertEquals(7000, estimates.getEstimatesForTable("R").maxTuples);
+        // tables without statistics keep the defaults
+        assertEquals(1000000, estimates.getEstimatesForTable("UNSEEN").maxTuples);
+        // the stats table is left ready for other readers
+        assertTrue(stats.advanceRow());
+        assertEquals("P", stats.getString("TABLE_NAME"));
+    }
+
+    public void testSmallTablesAreFloored() {
+        Database db = makeDatabase();
+        VoltTable stats = makeTableStats();
+        stats.addRow("P", "PersistentTable", 0);
+        stats.addRow("R", "PersistentTable", 12);
+
+        DatabaseEstimates estimates = DatabaseEstimates.fromTableStats(stats, db);
+        assertEquals(DatabaseEstimates.MIN_LIVE_TUPLE_ESTIMATE, estimates.getEstimatesForTable("P").maxTuples);
+        assertEquals(DatabaseEstimates.MIN_LIVE_TUPLE_ESTIMATE, estimates.getEstimatesForTable("R").maxTuples);
+    }
+
+    public void testIndexStats() {
+        Database db = makeDatabase();
+        VoltTable stats = new VoltTable(
+                new VoltTable.ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("INDEX_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("ENTRY_COUNT", VoltType.BIGINT));
+        stats.addRow("P", "P_IDX", 20000);
+        stats.addRow("P", "P_IDX", 40000);
+        stats.addRow("P", "GONE_IDX", 999999999);
+
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        estimates.addIndexStats(stats, db);
+        DatabaseEstimates.TableEstimates est = estimates.getEstimatesForTable("P");
+        assertEquals(30000, est.getIndexEntries("P_IDX"));
+        // indexes without statistics are as large as their tables
+        assertEquals(est.maxTuples, est.getIndexEntries("GONE_IDX"));
+    }
+
+    public void testSkewedEqualitySelectivity() {
+        // 100 values sharing the rows evenly
+        DatabaseEstimates.ColumnEstimates uniform = new DatabaseEstimates.ColumnEstimates(100, new double[0]);
+        assertEquals(0.01, uniform.getEqualitySelectivity(), 1e-9);
+
+        // the same 100 values, one of them in 90% of the rows
+        DatabaseEstimates.ColumnEstimates skewed = new DatabaseEstimates.ColumnEstimates(100, new double[] { 0.9 });
+        assertEquals(0.9 * 0.9 + 0.1 * 0.1 / 99, skewed.getEqualitySelectivity(), 1e-9);
+
+        DatabaseEstimates.TableEstimates est = new DatabaseEstimates.TableEstimates();
+        est.columns.put("SKEWED", skewed);
+        assertEquals(skewed.getEqualitySelectivity(), est.getEqualitySelectivity("SKEWED", 0.1), 1e-9);
+        assertEquals(0.1, est.getEqualitySelectivity("OTHER", 0.1), 1e-9);
+    }
+
+    public void testJSONRoundTrip() throws Exception {
+        Database db = makeDatabase();
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        estimates.setTupleCountEstimate("P", 250000);
+        DatabaseEstimates.TableEstimates est = estimates.getEstimatesForTable("P");
+        est.indexEntries.put("P_IDX", 125000L);
+        est.columns.put("SKEWED", new DatabaseEstimates.ColumnEstimates(40, new double[] { 0.5, 0.25 }));
+        // dropped tables are left out
+        estimates.setTupleCountEstimate("GONE", 10);
+
+        DatabaseEstimates loaded = DatabaseEstimates.fromJSONString(estimates.toJSONString(), db);
+        DatabaseEstimates.TableEstimates loadedEst = loaded.getEstimatesForTable("P");
+        assertEquals(250000, loadedEst.maxTuples);
+        assertEquals(125000, loadedEst.getIndexEntries("P_IDX"));
+        assertEquals(est.getEqualitySelectivity("SKEWED", 0.1), loadedEst.getEqualitySelectivity("SKEWED", 0.1), 1e-9);
+        assertFalse(loaded.tables.containsKey("GONE"));
+    }
+
+    public void testSignificantChanges() {
+        DatabaseEstimates before = new DatabaseEstimates();
+        before.setTupleCountEstimate("P", 100000);
+        DatabaseEstimates after = new DatabaseEstimates();
+        after.setTupleCountEstimate("P", 150000);
+        assertFalse(after.differsSignificantlyFrom(before));
+
+        after.setTupleCountEstimate("P", 200000);
+        assertTrue(after.differsSignificantlyFrom(before));
+        assertTrue(before.differsSignificantlyFrom(after));
+
+        // a new histogram counts as a change
+        after.setTupleCountEstimate("P", 100000);
+        after.getEstimatesForTable("P").columns.put("SKEWED",
+                new DatabaseEstimates.ColumnEstimates(100, new double[] { 0.9 }));
+        assertTrue(after.differsSignificantlyFrom(before));
+        assertTrue(before.differsSignificantlyFrom(after));
+
+        // estimates for a table default to the fixed ones
+        assertFalse(new DatabaseEstimates().differsSignificantlyFrom(new DatabaseEstimates()));
+        assertTrue(before.differsSignificantlyFrom(new DatabaseEstimates()));
+    }
+}
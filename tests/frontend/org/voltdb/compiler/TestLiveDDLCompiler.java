@@ -27,8 +27,11 @@ import java.io.File;
 
 import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
 import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.Encoder;
+import org.voltdb.utils.InMemoryJarfile;
 import org.voltdb.utils.MiscUtils;
 
 import junit.framework.TestCase;
@@ -107,4 +110,35 @@ public class TestLiveDDLCompiler extends TestCase {
         Table t = db.getTables().get("T");
         assertEquals(null, t);
     }
+
+    public void testLiveDDLReplansOnlyAffectedStatements() throws Exception
+    {
+        File jarOut = new File("livereplan.jar");
+        jarOut.deleteOnExit();
+
+        String schema =
+            "CREATE TABLE T1 (C1 INTEGER NOT NULL, C2 INTEGER NOT NULL);\n" +
+            "CREATE TABLE T2 (C1 INTEGER NOT NULL, C2 INTEGER NOT NULL);\n" +
+            "CREATE PROCEDURE P1 AS SELECT C1 FROM T1 WHERE C2 = ?;\n" +
+            "CREATE PROCEDURE P2 AS SELECT C1 FROM T2 WHERE C2 = ?;\n" +
+            "CREATE PROCEDURE P3 AS UPDATE T2 SET C1 = ? WHERE C2 = ?;\n";
+        File schemaFile = VoltProjectBuilder.writeStringToTempFile(schema);
+        String schemaPath = schemaFile.getPath();
+
+        VoltCompiler compiler = new VoltCompiler(false);
+        boolean success = compiler.compileFromDDL(jarOut.getPath(), schemaPath);
+        assertTrue("Compilation failed unexpectedly", success);
+
+        // Only the statement reading T1 can be affected by a new index on T1
+        InMemoryJarfile jarfile = new InMemoryJarfile(jarOut.getPath());
+        VoltCompiler live = new VoltCompiler(false);
+        live.compileInMemoryJarfileWithNewDDL(jarfile, "CREATE INDEX T1_C2 ON T1 (C2);", compiler.getCatalog());
+        assertEquals(1, live.getPlannedStatementCount());
+        assertEquals(2, live.getReusedStatementCount());
+
+        Database db = live.getCatalog().getClusters().get("cluster").getDatabases().get("database");
+        Statement stmt = db.getProcedures().get("P1").getStatements().iterator().next();
+        String plan = Encoder.hexDecodeToString(stmt.getExplainplan());
+        assertTrue(plan, plan.contains("T1_C2"));
+    }
 }
@@ -1041,6 +1041,30 @@ public class TestVoltCompiler extends TestCase {
         assertTrue(c2.serialize().equals(c1.serialize()));
     }
 
+    public void testPlanEncodingThreadsProduceSameCatalog() {
+        StringBuilder schema = new StringBuilder(
+            "create table books (cash integer not null, title varchar(10), primary key (cash));\n" +
+            "partition table books on column cash;\n" +
+            "create table shelves (id integer not null, cash integer, primary key (id));\n");
+        for (int i = 0; i < 40; i++) {
+            schema.append("create procedure sel" + i + " as select b.title from books b, shelves s " +
+                          "where b.cash = s.cash and s.id > " + i + " order by b.title;\n");
+            schema.append("create procedure upd" + i + " as update books set title = ? where cash = " + i + ";\n");
+        }
+
+        VoltCompiler serial = new VoltCompiler(false);
+        serial.setPlanEncoderThreads(1);
+        assertTrue(compileDDL(schema.toString(), serial));
+
+        VoltCompiler parallel = new VoltCompiler(false);
+        parallel.setPlanEncoderThreads(4);
+        assertTrue(compileDDL(schema.toString(), parallel));
+
+        assertEquals(serial.getCatalog().serialize(), parallel.getCatalog().serialize());
+        assertTrue(parallel.getPhaseTimes().containsKey(VoltCompiler.PHASE_PLANNING));
+        assertTrue(parallel.getPhaseTimes().containsKey(VoltCompiler.PHASE_PLAN_ENCODING));
+    }
+
     //
     // There are DDL tests a number of places. TestDDLCompiler seems more about
     // verifying HSQL behaviour. Additionally, there are users of PlannerAideDeCamp
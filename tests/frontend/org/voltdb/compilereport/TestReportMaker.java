@@ -28,6 +28,8 @@ import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import junit.framework.TestCase;
@@ -429,4 +431,16 @@ public class TestReportMaker extends TestCase {
         report = compileAndGenerateCatalogReport(assumeUniqueDDL, true);
         assertFalse(report.contains("Table " + tableName + " doesn't have any unique index, it will cause full table scans to update/delete DR record and may become slower as table grow."));
     }
+
+    public void testFillTemplate() {
+        Map<String, String> sections = new HashMap<>();
+        sections.put("A", "first ##B##");
+        sections.put("B", "second");
+        assertEquals("<p>first ##B##</p><p>second</p>",
+                ReportMaker.fillTemplate("<p>##A##</p><p>##B##</p>", sections));
+        // unknown and unbalanced markers are left alone
+        assertEquals("## x ##second##C##",
+                ReportMaker.fillTemplate("## x ####B####C##", sections));
+        assertEquals("no placeholders", ReportMaker.fillTemplate("no placeholders", sections));
+    }
 }
@@ -0,0 +1,129 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ParameterSet;
+
+public class TestDeterminismHash extends TestCase
+{
+    private static final int[] STMT_HASHES = { 11, 22, 33 };
+
+    private static byte[][] serializedParams() throws IOException
+    {
+        ParameterSet[] psets = {
+                ParameterSet.fromArrayNoCopy(1L, "one"),
+                ParameterSet.fromArrayNoCopy(2, 2.5, new byte[] {1, 2}),
+                ParameterSet.fromArrayNoCopy("three", 3L)
+        };
+        byte[][] params = new byte[psets.length][];
+        for (int i = 0; i < psets.length; i++) {
+            ByteBuffer buf = ByteBuffer.allocate(psets[i].getSerializedSize());
+            psets[i].flattenToBuffer(buf);
+            params[i] = buf.array();
+        }
+        return params;
+    }
+
+    /**
+     * Offer every statement the way the procedure runner does, with the parameters
+     * serialized one after the other into a shared buffer.
+     */
+    private static DeterminismHash hash(int catalogVersion, int[] stmtHashes, byte[][] params)
+    {
+        DeterminismHash hash = new DeterminismHash();
+        hash.reset(catalogVersion);
+        ByteBuffer psetBuffer = ByteBuffer.allocate(1024);
+        for (int i = 0; i < stmtHashes.length; i++) {
+            int offset = psetBuffer.position();
+            psetBuffer.put(params[i]);
+            hash.offerStatement(stmtHashes[i], offset, psetBuffer);
+            assertEquals(offset + params[i].length, psetBuffer.position());
+        }
+        return hash;
+    }
+
+    public void testIdenticalStatementsHashEqual() throws IOException
+    {
+        int[] left = hash(5, STMT_HASHES, serializedParams()).get();
+        int[] right = hash(5, STMT_HASHES, serializedParams()).get();
+        assertTrue(Arrays.equals(left, right));
+        assertEquals(DeterminismHash.HEADER_OFFSET + 2 * STMT_HASHES.length, left.length);
+        assertEquals(5, left[1]);
+        assertEquals(2 * STMT_HASHES.length, left[2]);
+        assertEquals(-1, DeterminismHash.compareHashes(left, right));
+
+        // The catalog version is part of the total
+        assertFalse(left[0] == hash(6, STMT_HASHES, serializedParams()).get()[0]);
+    }
+
+    public void testOneParameterByteChangesTotal() throws IOException
+    {
+        int[] expected = hash(5, STMT_HASHES, serializedParams()).get();
+        for (int stmt = 0; stmt < STMT_HASHES.length; stmt++) {
+            for (int b = 0; b < serializedParams()[stmt].length; b++) {
+                byte[][] params = serializedParams();
+                params[stmt][b] ^= 0x01;
+                int[] actual = hash(5, STMT_HASHES, params).get();
+                assertFalse("Flipping byte " + b + " of statement " + stmt + " kept the total",
+                            expected[0] == actual[0]);
+            }
+        }
+    }
+
+    public void testCompareReportsDivergingStatement() throws IOException
+    {
+        byte[][] params = serializedParams();
+        int[] left = hash(5, STMT_HASHES, params).get();
+        for (int stmt = 0; stmt < STMT_HASHES.length; stmt++) {
+            // Diverging parameters
+            byte[][] changed = serializedParams();
+            changed[stmt][changed[stmt].length - 1]++;
+            assertEquals(stmt, DeterminismHash.compareHashes(left, hash(5, STMT_HASHES, changed).get()));
+
+            // Diverging SQL
+            int[] stmtHashes = STMT_HASHES.clone();
+            stmtHashes[stmt]++;
+            assertEquals(stmt, DeterminismHash.compareHashes(left, hash(5, stmtHashes, params).get()));
+        }
+    }
+
+    public void testGetIsIdempotent() throws IOException
+    {
+        DeterminismHash hash = hash(5, STMT_HASHES, serializedParams());
+        int[] first = hash.get();
+        int[] second = hash.get();
+        assertNotSame(first, second);
+        assertTrue(Arrays.equals(first, second));
+
+        // Resetting starts over from the same state as a new instance
+        hash.reset(5);
+        assertTrue(Arrays.equals(hash(5, new int[0], new byte[0][]).get(), hash.get()));
+    }
+}
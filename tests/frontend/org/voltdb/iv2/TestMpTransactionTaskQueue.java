@@ -23,6 +23,7 @@
 
 package org.voltdb.iv2;
 
+import static java.util.Arrays.asList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
@@ -35,6 +36,7 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Test;
@@ -53,8 +55,20 @@ public class TestMpTransactionTaskQueue extends TestCase
         return task;
     }
 
+    // An n-partition write the write pool may run
+    MpProcedureTask makeNPartitionWrite(long txnid, Integer... partitions)
+    {
+        MpProcedureTask task = makeTransactionTask(txnid, false);
+        MpTransactionState state = (MpTransactionState)task.getTransactionState();
+        when(state.getInvolvedPartitions()).thenReturn(new HashSet<Integer>(asList(partitions)));
+        when(m_writeConflicts.canRunConcurrently(state)).thenReturn(true);
+        return task;
+    }
+
     SiteTaskerQueue m_writeQueue;
     MpRoSitePool m_MPpool;
+    MpRoSitePool m_writePool;
+    MpWriteConflicts m_writeConflicts;
     MpTransactionTaskQueue m_dut;
 
     @Override
@@ -66,6 +80,18 @@ public class TestMpTransactionTaskQueue extends TestCase
         when(m_MPpool.canAcceptWork()).thenReturn(true);
         m_dut = new MpTransactionTaskQueue(m_writeQueue);
         m_dut.setMpRoSitePool(m_MPpool);
+        m_writePool = mock(MpRoSitePool.class);
+        when(m_writePool.canAcceptWork()).thenReturn(true);
+        m_writeConflicts = mock(MpWriteConflicts.class);
+        when(m_writeConflicts.conflicts(any(MpTransactionState.class), any(MpTransactionState.class))).thenReturn(true);
+    }
+
+    void makeDisjoint(MpProcedureTask first, MpProcedureTask second)
+    {
+        MpTransactionState firstState = (MpTransactionState)first.getTransactionState();
+        MpTransactionState secondState = (MpTransactionState)second.getTransactionState();
+        when(m_writeConflicts.conflicts(firstState, secondState)).thenReturn(false);
+        when(m_writeConflicts.conflicts(secondState, firstState)).thenReturn(false);
     }
 
     // Test cases:
@@ -150,4 +176,112 @@ public class TestMpTransactionTaskQueue extends TestCase
         verify(m_MPpool).doWork(eq(readtxnid), any(TransactionTask.class));
         verify(m_MPpool).doWork(eq(readtxnid2), any(TransactionTask.class));
     }
+
+    // Writes touching disjoint partitions overlap on the write pool, the rest wait their turn
+    @Test
+    public void testConcurrentNPartitionWrites()
+    {
+        m_dut.setMpWriteSitePool(m_writePool, m_writeConflicts);
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        long first = (txnId = txnId.makeNext()).getTxnId();
+        long second = (txnId = txnId.makeNext()).getTxnId();
+        long conflicting = (txnId = txnId.makeNext()).getTxnId();
+        long behindConflict = (txnId = txnId.makeNext()).getTxnId();
+        long exclusive = (txnId = txnId.makeNext()).getTxnId();
+
+        m_dut.offer(makeNPartitionWrite(first, 0, 1));
+        m_dut.offer(makeNPartitionWrite(second, 2, 3));
+        verify(m_writePool).doWork(eq(first), any(TransactionTask.class));
+        verify(m_writePool).doWork(eq(second), any(TransactionTask.class));
+        assertEquals(first, m_dut.getOldestConcurrentWrite());
+
+        // Shares partition 1 with the first write, and nothing may pass it
+        m_dut.offer(makeNPartitionWrite(conflicting, 1, 4));
+        m_dut.offer(makeNPartitionWrite(behindConflict, 5));
+        // Not an n-partition write, runs alone on the MPI's site
+        m_dut.offer(makeTransactionTask(exclusive, false));
+        verify(m_writePool, never()).doWork(eq(conflicting), any(TransactionTask.class));
+        verify(m_writePool, never()).doWork(eq(behindConflict), any(TransactionTask.class));
+
+        m_dut.flush(first);
+        verify(m_writePool).completeWork(first);
+        verify(m_writePool).doWork(eq(conflicting), any(TransactionTask.class));
+        verify(m_writePool).doWork(eq(behindConflict), any(TransactionTask.class));
+        assertEquals(second, m_dut.getOldestConcurrentWrite());
+
+        m_dut.flush(second);
+        m_dut.flush(behindConflict);
+        verify(m_writeQueue, never()).offer(any(TransactionTask.class));
+        m_dut.flush(conflicting);
+        verify(m_writeQueue).offer(any(TransactionTask.class));
+        verify(m_writePool, never()).doWork(eq(exclusive), any(TransactionTask.class));
+        assertEquals(Long.MAX_VALUE, m_dut.getOldestConcurrentWrite());
+
+        // The pool waits for the exclusive write as well
+        long afterExclusive = (txnId = txnId.makeNext()).getTxnId();
+        m_dut.offer(makeNPartitionWrite(afterExclusive, 0));
+        verify(m_writePool, never()).doWork(eq(afterExclusive), any(TransactionTask.class));
+        m_dut.flush(exclusive);
+        verify(m_writePool).doWork(eq(afterExclusive), any(TransactionTask.class));
+    }
+
+    // A restarted write goes back to the pool site it was running on, the others stay put
+    @Test
+    public void testRestartPooledWrite()
+    {
+        m_dut.setMpWriteSitePool(m_writePool, m_writeConflicts);
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        long first = (txnId = txnId.makeNext()).getTxnId();
+        long second = (txnId = txnId.makeNext()).getTxnId();
+        m_dut.offer(makeNPartitionWrite(first, 0));
+        m_dut.offer(makeNPartitionWrite(second, 1));
+
+        m_dut.restart(second);
+        verify(m_writePool).doWork(eq(first), any(TransactionTask.class));
+        verify(m_writePool, times(2)).doWork(eq(second), any(TransactionTask.class));
+        verify(m_writeQueue, never()).offer(any(TransactionTask.class));
+    }
+
+    // With a write pool, reads and writes overlap when their table sets do not conflict
+    @Test
+    public void testReadsOverlapDisjointWrites()
+    {
+        m_dut.setMpWriteSitePool(m_writePool, m_writeConflicts);
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        MpProcedureTask read = makeTransactionTask((txnId = txnId.makeNext()).getTxnId(), true);
+        // Not an n-partition write, runs on the MPI's site
+        MpProcedureTask write = makeTransactionTask((txnId = txnId.makeNext()).getTxnId(), false);
+        MpProcedureTask conflictingRead = makeTransactionTask((txnId = txnId.makeNext()).getTxnId(), true);
+        MpProcedureTask disjointRead = makeTransactionTask((txnId = txnId.makeNext()).getTxnId(), true);
+        makeDisjoint(read, write);
+        makeDisjoint(disjointRead, write);
+
+        m_dut.offer(read);
+        m_dut.offer(write);
+        verify(m_MPpool).doWork(eq(read.getTxnId()), any(TransactionTask.class));
+        verify(m_writeQueue).offer(write);
+        // Reads may complete ahead of the write, the repair log truncation waits for it
+        assertEquals(write.getTxnId(), m_dut.getOldestConcurrentWrite());
+
+        // The disjoint read may not pass the conflicting one ahead of it
+        m_dut.offer(conflictingRead);
+        m_dut.offer(disjointRead);
+        verify(m_MPpool, never()).doWork(eq(conflictingRead.getTxnId()), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(disjointRead.getTxnId()), any(TransactionTask.class));
+
+        m_dut.flush(read.getTxnId());
+        assertEquals(Long.MAX_VALUE, m_dut.getOldestConcurrentWrite());
+
+        m_dut.flush(write.getTxnId());
+        verify(m_MPpool).doWork(eq(conflictingRead.getTxnId()), any(TransactionTask.class));
+        verify(m_MPpool).doWork(eq(disjointRead.getTxnId()), any(TransactionTask.class));
+
+        // A write conflicting with a running read waits for it
+        MpProcedureTask exclusive = makeTransactionTask((txnId = txnId.makeNext()).getTxnId(), false);
+        m_dut.offer(exclusive);
+        verify(m_writeQueue, never()).offer(exclusive);
+        m_dut.flush(conflictingRead.getTxnId());
+        m_dut.flush(disjointRead.getTxnId());
+        verify(m_writeQueue).offer(exclusive);
+    }
 }
@@ -25,6 +25,7 @@ package org.voltdb.iv2;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -83,6 +84,17 @@ public class TestRepairLog
         return msg;
     }
 
+    Iv2InitiateTaskMessage realInitMsg(long truncPt, long handle, int paramBytes)
+    {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("dummy");
+        spi.setParams(handle, new byte[paramBytes]);
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(0l, 0l, truncPt, handle, 0l, false, true, spi, 0l, 0l, false);
+        msg.setSpHandle(handle);
+        return msg;
+    }
+
     VoltMessage truncMsg(long spHandle)
     {
         return new RepairLogTruncationMessage(spHandle);
@@ -388,4 +400,93 @@ public class TestRepairLog
             assertEquals(i, lastCommitted.get());
         }
     }
+
+    @Test
+    public void testOffHeapContents() throws Exception
+    {
+        RepairLog rl = new RepairLog(new RepairLogArena());
+        Iv2InitiateTaskMessage m1 = realInitMsg(Long.MIN_VALUE, 1L, 100);
+        rl.deliver(m1);
+        FragmentTaskMessage m2 =
+            new FragmentTaskMessage(0l, 0l, 2L, 0l, false, false, false, false,
+                    TransactionInfoBaseMessage.INITIAL_TIMESTAMP);
+        m2.addFragment(new byte[20], 12, ByteBuffer.allocate(0));
+        m2.setSpHandle(2L);
+        rl.deliver(m2);
+        CompleteTransactionMessage m3 =
+            new CompleteTransactionMessage(0l, 0l, 2L, false, 0, false, false, false, false, false, false, false);
+        m3.setSpHandle(3L);
+        rl.deliver(m3);
+
+        List<Iv2RepairLogResponseMessage> contents = rl.contents(1l, false);
+        assertEquals(4, contents.size());
+        // the payloads are rebuilt from the arena
+        Iv2InitiateTaskMessage p1 = (Iv2InitiateTaskMessage) contents.get(1).getPayload();
+        assertNotSame(m1, p1);
+        assertEquals(1L, p1.getSpHandle());
+        assertEquals("dummy", p1.getStoredProcedureName());
+        assertEquals(100, ((byte[]) p1.getParameters()[1]).length);
+        FragmentTaskMessage p2 = (FragmentTaskMessage) contents.get(2).getPayload();
+        assertEquals(2L, p2.getTxnId());
+        assertEquals(2L, p2.getSpHandle());
+        CompleteTransactionMessage p3 = (CompleteTransactionMessage) contents.get(3).getPayload();
+        assertEquals(2L, p3.getTxnId());
+        assertEquals(3L, p3.getSpHandle());
+
+        // the MPI only gets the MP part of the log
+        assertEquals(3, rl.contents(1l, true).size());
+        rl.shutdown();
+    }
+
+    @Test
+    public void testOffHeapTruncationReleasesChunks()
+    {
+        RepairLogArena arena = new RepairLogArena();
+        RepairLog rl = new RepairLog(arena);
+        final int perChunk = 4;
+        final int paramBytes = RepairLogArena.CHUNK_SIZE / perChunk - 1024;
+        for (long i = 1; i <= 3 * perChunk; i++) {
+            rl.deliver(realInitMsg(Long.MIN_VALUE, i, paramBytes));
+        }
+        assertEquals(3 * RepairLogArena.CHUNK_SIZE, arena.getAllocatedBytes());
+        assertTrue(RepairLog.getOffHeapBytes() >= arena.getAllocatedBytes());
+
+        // a chunk with a live entry stays
+        rl.deliver(truncMsg(perChunk - 1));
+        assertEquals(3 * RepairLogArena.CHUNK_SIZE, arena.getAllocatedBytes());
+        rl.deliver(truncMsg(perChunk));
+        assertEquals(2 * RepairLogArena.CHUNK_SIZE, arena.getAllocatedBytes());
+        assertEquals(2 * perChunk + 1, rl.contents(1l, false).size());
+
+        // the chunk being written to is reused once it empties
+        rl.deliver(truncMsg(3 * perChunk));
+        assertEquals(RepairLogArena.CHUNK_SIZE, arena.getAllocatedBytes());
+        assertEquals(1, rl.contents(1l, false).size());
+        rl.deliver(realInitMsg(Long.MIN_VALUE, 3 * perChunk + 1, paramBytes));
+        assertEquals(RepairLogArena.CHUNK_SIZE, arena.getAllocatedBytes());
+
+        rl.shutdown();
+        assertEquals(0, arena.getAllocatedBytes());
+    }
+
+    @Test
+    public void testOffHeapOversizedMessage()
+    {
+        RepairLogArena arena = new RepairLogArena();
+        RepairLog rl = new RepairLog(arena);
+        rl.deliver(realInitMsg(Long.MIN_VALUE, 1L, 100));
+        Iv2InitiateTaskMessage big = realInitMsg(Long.MIN_VALUE, 2L, 2 * RepairLogArena.CHUNK_SIZE);
+        rl.deliver(big);
+        assertEquals(RepairLogArena.CHUNK_SIZE + big.getSerializedSize(), arena.getAllocatedBytes());
+
+        List<Iv2RepairLogResponseMessage> contents = rl.contents(1l, false);
+        assertEquals(3, contents.size());
+        Iv2InitiateTaskMessage payload = (Iv2InitiateTaskMessage) contents.get(2).getPayload();
+        assertEquals(2 * RepairLogArena.CHUNK_SIZE, ((byte[]) payload.getParameters()[1]).length);
+
+        rl.deliver(truncMsg(2L));
+        assertEquals(big.getSerializedSize(), arena.getAllocatedBytes());
+        rl.shutdown();
+        assertEquals(0, arena.getAllocatedBytes());
+    }
 }
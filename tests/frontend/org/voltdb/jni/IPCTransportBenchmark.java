@@ -0,0 +1,141 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Round trip latency of the two transports between an ExecutionEngineIPC site
+ * and the EE: the loopback socket with TCP_NODELAY, and SharedMemoryChannel.
+ * The EE end is a Java thread that answers each request the way voltdbipc
+ * answers a plan fragment, with a status byte and a length prefixed result, so
+ * only the transport is measured.
+ * Usage: IPCTransportBenchmark [round trips] [request bytes] [result bytes]
+ */
+public class IPCTransportBenchmark {
+
+    private static void readFully(ByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeFully(ByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /** Answer length prefixed requests until the other side goes away */
+    private static Thread startEE(ByteChannel channel, int resultBytes) {
+        final Thread ee = new Thread(() -> {
+            final ByteBuffer length = ByteBuffer.allocate(4);
+            final ByteBuffer request = ByteBuffer.allocateDirect(1024 * 1024);
+            final ByteBuffer response = ByteBuffer.allocateDirect(5 + resultBytes);
+            response.put((byte) 0).putInt(resultBytes);
+            try {
+                while (true) {
+                    length.clear();
+                    readFully(channel, length);
+                    request.clear();
+                    request.limit(length.getInt(0) - 4);
+                    readFully(channel, request);
+                    response.clear();
+                    writeFully(channel, response);
+                }
+            } catch (IOException e) {
+                // the site closed the connection
+            }
+        }, "EE");
+        ee.setDaemon(true);
+        ee.start();
+        return ee;
+    }
+
+    private static void run(String name, ByteChannel site, int roundTrips, int requestBytes) throws IOException {
+        final ByteBuffer request = ByteBuffer.allocateDirect(4 + requestBytes);
+        final ByteBuffer status = ByteBuffer.allocate(5);
+        final ByteBuffer result = ByteBuffer.allocate(1024 * 1024);
+        final long[] nanos = new long[roundTrips];
+        for (int i = -roundTrips / 10; i < roundTrips; i++) {
+            final long start = System.nanoTime();
+            request.clear();
+            request.putInt(0, 4 + requestBytes);
+            writeFully(site, request);
+            status.clear();
+            readFully(site, status);
+            result.clear();
+            result.limit(status.getInt(1));
+            readFully(site, result);
+            if (i >= 0) {
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        long total = 0;
+        for (long n : nanos) {
+            total += n;
+        }
+        System.out.printf("  %-14s mean %8.1f us  p50 %8.1f us  p99 %8.1f us%n", name,
+                          total / 1000.0 / roundTrips, nanos[roundTrips / 2] / 1000.0,
+                          nanos[(int) (roundTrips * 0.99)] / 1000.0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int roundTrips = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int requestBytes = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        final int resultBytes = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        System.out.printf("%d fragment round trips, %d byte requests, %d byte results%n",
+                          roundTrips, requestBytes, resultBytes);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("localhost", 0));
+            try (SocketChannel site = SocketChannel.open(server.getLocalAddress());
+                 SocketChannel ee = server.accept()) {
+                site.socket().setTcpNoDelay(true);
+                ee.socket().setTcpNoDelay(true);
+                startEE(ee, resultBytes);
+                run("socket", site, roundTrips, requestBytes);
+            }
+        }
+
+        final SharedMemoryChannel site = SharedMemoryChannel.create("ipcbench", SharedMemoryChannel.RING_SIZE, null);
+        final SharedMemoryChannel ee = new SharedMemoryChannel(site.getFile(), site.getRingSize(), true, null);
+        site.unlink();
+        final Thread eeThread = startEE(ee, resultBytes);
+        run("shared memory", site, roundTrips, requestBytes);
+        site.close();
+        eeThread.join();
+        ee.close();
+    }
+}
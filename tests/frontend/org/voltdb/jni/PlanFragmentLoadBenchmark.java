@@ -0,0 +1,226 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.voltdb.ElasticHashinator;
+import org.voltdb.ParameterSet;
+import org.voltdb.TheHashinator.HashinatorConfig;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltType;
+import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.StmtParameter;
+import org.voltdb.common.Constants;
+import org.voltdb.exceptions.EEException;
+import org.voltdb.planner.ActivePlanRepository;
+import org.voltdb.plannodes.BinaryPlanReader;
+import org.voltdb.types.TimestampType;
+import org.voltdb.utils.CompressionService;
+
+/**
+ * Compares plan fragments in JSON and in the binary plan format, over the
+ * read-only fragments of the TPC-C procedures:
+ * the bytes each fragment takes in ActivePlanRepository and the ad hoc plan
+ * cache, and compressed in the catalog, and how long the EE takes to load a
+ * fragment it has not seen. The load time is the time of the first execution
+ * of a fragment, which fetches and loads its plan, less the time of executing
+ * it again from the EE plan cache. The tables are empty, so execution is short.
+ *
+ * Usage: PlanFragmentLoadBenchmark [rounds]
+ */
+public class PlanFragmentLoadBenchmark {
+
+    private static final class Fragment {
+        final String m_sql;
+        final byte[] m_binary;
+        final byte[] m_json;
+        final ParameterSet m_params;
+
+        Fragment(String sql, byte[] binary, byte[] json, ParameterSet params) {
+            m_sql = sql;
+            m_binary = binary;
+            m_json = json;
+            m_params = params;
+        }
+    }
+
+    private static long s_nextFragmentId = 1000000;
+    private static long s_nextTxnId = 1;
+
+    /** A value of the parameter's type, or null if the benchmark does not handle the type */
+    private static Object zeroValue(StmtParameter param) {
+        if (param.getIsarray()) {
+            return null;
+        }
+        switch (VoltType.get((byte) param.getJavatype())) {
+        case TINYINT:   return (byte) 0;
+        case SMALLINT:  return (short) 0;
+        case INTEGER:   return 0;
+        case BIGINT:    return 0L;
+        case FLOAT:     return 0.0;
+        case DECIMAL:   return BigDecimal.ZERO;
+        case STRING:    return "";
+        case VARBINARY: return new byte[0];
+        case TIMESTAMP: return new TimestampType(0);
+        default:        return null;
+        }
+    }
+
+    private static List<Fragment> collectFragments(Database db) throws Exception {
+        List<Fragment> fragments = new ArrayList<>();
+        for (Procedure proc : db.getProcedures()) {
+            for (Statement stmt : proc.getStatements()) {
+                if ( ! stmt.getReadonly()) {
+                    continue;
+                }
+                Object[] values = new Object[stmt.getParameters().size()];
+                boolean supported = true;
+                for (StmtParameter param : stmt.getParameters()) {
+                    values[param.getIndex()] = zeroValue(param);
+                    supported &= values[param.getIndex()] != null;
+                }
+                if ( ! supported) {
+                    continue;
+                }
+                for (PlanFragment frag : stmt.getFragments()) {
+                    if (frag.getHasdependencies()) {
+                        // needs the output of another fragment
+                        continue;
+                    }
+                    byte[] binary = CompressionService.decodeBase64AndDecompressToBytes(frag.getPlannodetree());
+                    byte[] json = BinaryPlanReader.toJSONString(binary).getBytes(Constants.UTF8ENCODING);
+                    fragments.add(new Fragment(stmt.getSqltext(), binary, json, ParameterSet.fromArrayNoCopy(values)));
+                }
+            }
+        }
+        return fragments;
+    }
+
+    /** @return nanoseconds to execute the fragment, or -1 if it failed */
+    private static long execute(ExecutionEngine ee, long fragmentId, Fragment fragment) {
+        long txnId = s_nextTxnId++;
+        long start = System.nanoTime();
+        try {
+            ee.executePlanFragments(1, new long[] { fragmentId }, null, new Object[] { fragment.m_params },
+                                    null, new String[] { fragment.m_sql }, null, null,
+                                    txnId, txnId, txnId - 1, txnId, Long.MAX_VALUE, false);
+        }
+        catch (EEException e) {
+            return -1;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void printSizes(String name, List<Fragment> fragments, boolean binary) {
+        long total = 0;
+        long compressed = 0;
+        for (Fragment fragment : fragments) {
+            byte[] plan = binary ? fragment.m_binary : fragment.m_json;
+            total += plan.length;
+            compressed += CompressionService.compressAndBase64Encode(plan).length();
+        }
+        System.out.printf("  %-7s %8.1f bytes per fragment, %8d in all, %8d compressed in the catalog%n",
+                          name, (double) total / fragments.size(), total, compressed);
+    }
+
+    private static void printLatency(String name, List<Long> loads, List<Long> cached) {
+        long[] sorted = new long[loads.size()];
+        long total = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = loads.get(i);
+            total += sorted[i];
+        }
+        long cachedTotal = 0;
+        for (long nanos : cached) {
+            cachedTotal += nanos;
+        }
+        Arrays.sort(sorted);
+        double cachedMean = cachedTotal / 1000.0 / cached.size();
+        System.out.printf("  %-7s first execution mean %8.1f us  p50 %8.1f us  p99 %8.1f us," +
+                          "  cached %6.1f us,  load %8.1f us%n",
+                          name, total / 1000.0 / sorted.length, sorted[sorted.length / 2] / 1000.0,
+                          sorted[(int) (sorted.length * 0.99)] / 1000.0, cachedMean,
+                          total / 1000.0 / sorted.length - cachedMean);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        VoltDB.instance().readBuildInfo("Test");
+
+        Catalog catalog = TPCCProjectBuilder.getTPCCSchemaCatalog();
+        Database db = catalog.getClusters().get("cluster").getDatabases().get("database");
+        List<Fragment> fragments = collectFragments(db);
+        System.out.printf("%d read-only TPC-C plan fragments, %d rounds%n", fragments.size(), rounds);
+        printSizes("JSON", fragments, false);
+        printSizes("binary", fragments, true);
+
+        ExecutionEngine ee = new ExecutionEngineJNI(
+                0, 1, 0, 1, 0, "", 0, 64 * 1024, 100,
+                new HashinatorConfig(ElasticHashinator.getConfigureBytes(1), 0, 0),
+                true, 4 * 1000);
+        ee.loadCatalog(0, catalog.serialize());
+        ActivePlanRepository.clear();
+
+        // Every execution of a fragment under a new id makes the EE fetch and load its plan.
+        List<Long> jsonLoads = new ArrayList<>();
+        List<Long> jsonCached = new ArrayList<>();
+        List<Long> binaryLoads = new ArrayList<>();
+        List<Long> binaryCached = new ArrayList<>();
+        int failures = 0;
+        for (int round = -rounds / 10; round < rounds; round++) {
+            for (Fragment fragment : fragments) {
+                for (boolean binary : new boolean[] { false, true }) {
+                    long fragmentId = s_nextFragmentId++;
+                    ActivePlanRepository.addFragmentForTest(
+                            fragmentId, binary ? fragment.m_binary : fragment.m_json, fragment.m_sql);
+                    long first = execute(ee, fragmentId, fragment);
+                    long again = execute(ee, fragmentId, fragment);
+                    if (first < 0 || again < 0) {
+                        failures++;
+                        continue;
+                    }
+                    if (round >= 0) {
+                        (binary ? binaryLoads : jsonLoads).add(first);
+                        (binary ? binaryCached : jsonCached).add(again);
+                    }
+                }
+            }
+        }
+        ee.release();
+        if (failures > 0) {
+            System.out.printf("  %d executions failed and were left out%n", failures);
+        }
+        printLatency("JSON", jsonLoads, jsonCached);
+        printLatency("binary", binaryLoads, binaryCached);
+    }
+}
@@ -0,0 +1,166 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import java.io.EOFException;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TestSharedMemoryChannel extends TestCase {
+
+    private SharedMemoryChannel m_site;
+    private SharedMemoryChannel m_ee;
+
+    private void open(int ringSize) throws Exception {
+        m_site = SharedMemoryChannel.create("testshm", ringSize, null);
+        m_ee = new SharedMemoryChannel(m_site.getFile(), ringSize, true, null);
+        m_site.unlink();
+    }
+
+    @Override
+    public void tearDown() {
+        if (m_ee != null) {
+            m_ee.close();
+        }
+        if (m_site != null) {
+            m_site.close();
+        }
+    }
+
+    public void testRingSizeIsAPowerOfTwo() {
+        assertEquals(16 * 1024 * 1024, SharedMemoryChannel.ringSize(16));
+        assertEquals(4 * 1024 * 1024, SharedMemoryChannel.ringSize(3));
+        assertEquals(1024 * 1024, SharedMemoryChannel.ringSize(0));
+    }
+
+    public void testRoundTrip() throws Exception {
+        open(4096);
+        final ByteBuffer request = ByteBuffer.allocate(12);
+        request.putInt(7).putLong(42).flip();
+        assertEquals(12, m_site.write(request));
+
+        final ByteBuffer received = ByteBuffer.allocateDirect(12);
+        while (received.hasRemaining()) {
+            m_ee.read(received);
+        }
+        received.flip();
+        assertEquals(7, received.getInt());
+        assertEquals(42, received.getLong());
+
+        m_ee.write(ByteBuffer.wrap(new byte[] { 3 }));
+        final ByteBuffer status = ByteBuffer.allocate(1);
+        assertEquals(1, m_site.read(status));
+        assertEquals(3, status.get(0));
+        assertFalse(new File(m_site.getFile().getPath()).exists());
+    }
+
+    /**
+     * Messages larger than the ring wrap around it many times while the other side
+     * drains it in odd sized reads.
+     */
+    public void testStreamsThroughWrapAround() throws Exception {
+        open(4096);
+        final byte[] sent = new byte[1024 * 1024];
+        new Random(0).nextBytes(sent);
+        final Thread writer = new Thread(() -> {
+            try {
+                for (int offset = 0; offset < sent.length; offset += 3001) {
+                    m_site.write(ByteBuffer.wrap(sent, offset, Math.min(3001, sent.length - offset)));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        final byte[] received = new byte[sent.length];
+        final ByteBuffer chunk = ByteBuffer.allocate(777);
+        int position = 0;
+        while (position < received.length) {
+            chunk.clear();
+            chunk.limit(Math.min(chunk.capacity(), received.length - position));
+            final int read = m_ee.read(chunk);
+            assertTrue(read > 0);
+            chunk.flip();
+            chunk.get(received, position, read);
+            position += read;
+        }
+        writer.join();
+        assertTrue(Arrays.equals(sent, received));
+    }
+
+    public void testReadSeesTheOtherSideClose() throws Exception {
+        open(4096);
+        m_ee.write(ByteBuffer.wrap(new byte[] { 1, 2 }));
+        m_ee.close();
+        m_ee = null;
+
+        // What was written before the close is still delivered
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        assertEquals(2, m_site.read(buffer));
+        assertEquals(-1, m_site.read(buffer));
+
+        // A writer blocked on the full ring gives up
+        try {
+            m_site.write(ByteBuffer.allocate(8192));
+            fail("Wrote into a ring nobody reads");
+        } catch (EOFException expected) {
+        }
+    }
+
+    /** Closing unmaps the rings, so it must wait for a thread blocked reading them */
+    public void testCloseWhileReading() throws Exception {
+        open(4096);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            try {
+                m_site.read(ByteBuffer.allocate(4));
+                failure.set(new AssertionError("Read from a ring nobody writes"));
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        while (reader.getState() == Thread.State.NEW || reader.getState() == Thread.State.RUNNABLE) {
+            Thread.sleep(1);
+        }
+        m_site.close();
+        reader.join();
+        assertTrue(String.valueOf(failure.get()), failure.get() instanceof AsynchronousCloseException);
+
+        try {
+            m_site.read(ByteBuffer.allocate(4));
+            fail("Read from a closed channel");
+        } catch (ClosedChannelException expected) {
+        }
+        m_site = null;
+    }
+}
@@ -0,0 +1,139 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.largequery;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+/**
+ * Spills blocks the way the EE does for a large ORDER BY: every site stores its
+ * sorted runs, then reads them back in order and releases them, through the
+ * LargeBlockManager tasks. Reports spill and read back throughput, the cache hit
+ * rate and the size on disk. Set LARGE_BLOCK_COMPRESS, LARGE_BLOCK_CACHE_MB,
+ * LARGE_BLOCK_PREFETCH or LARGE_BLOCK_IO_THREADS to compare settings.
+ * Usage: LargeBlockBenchmark [MB per site] [sites] [directory]
+ */
+public class LargeBlockBenchmark {
+
+    // The size of a large temp table block in the EE
+    private static final int BLOCK_SIZE = 8 * 1024 * 1024;
+
+    /** A block of sorted tuples with a key, a few small numbers and a repetitive string */
+    private static ByteBuffer block(int seed) {
+        final Random r = new Random(seed);
+        final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        long key = seed * 1000000L;
+        while (block.remaining() >= 64) {
+            key += r.nextInt(10);
+            block.putLong(key);
+            block.putInt(r.nextInt(100));
+            block.putLong(r.nextInt(1000000));
+            final byte[] name = ("customer_" + r.nextInt(10000) + "_standard").getBytes();
+            block.putShort((short) name.length);
+            block.put(name, 0, Math.min(name.length, 42));
+            while (block.position() % 64 != 0) {
+                block.put((byte) 0);
+            }
+        }
+        block.clear();
+        return block;
+    }
+
+    private static void check(Future<LargeBlockResponse> response) throws Exception {
+        final LargeBlockResponse r = response.get();
+        if (!r.wasSuccessful()) {
+            throw r.getException();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        final int sites = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final Path dir = args.length > 2 ? Paths.get(args[2]) : Paths.get(System.getProperty("java.io.tmpdir"));
+        final int blocksPerSite = Math.max(1, megabytes / (BLOCK_SIZE / (1024 * 1024)));
+
+        final Path swap = Files.createTempDirectory(dir, "large_query_swap");
+        LargeBlockManager.startup(swap);
+        final LargeBlockManager lbm = LargeBlockManager.getInstance();
+        final ByteBuffer[] contents = new ByteBuffer[4];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = block(i);
+        }
+
+        try {
+            final long[] storeNanos = new long[1];
+            final long[] loadNanos = new long[1];
+            final List<Thread> threads = new ArrayList<Thread>();
+            for (int s = 0; s < sites; s++) {
+                final long siteId = s;
+                threads.add(new Thread(() -> {
+                    try {
+                        final ByteBuffer loaded = ByteBuffer.allocateDirect(BLOCK_SIZE);
+                        final long start = System.nanoTime();
+                        for (int b = 0; b < blocksPerSite; b++) {
+                            check(lbm.submitTask(LargeBlockTask.getStoreTask(new BlockId(siteId, b),
+                                                                             contents[b % contents.length].duplicate())));
+                        }
+                        final long stored = System.nanoTime();
+                        for (int b = 0; b < blocksPerSite; b++) {
+                            check(lbm.submitTask(LargeBlockTask.getLoadTask(new BlockId(siteId, b), loaded)));
+                            check(lbm.submitTask(LargeBlockTask.getReleaseTask(new BlockId(siteId, b))));
+                        }
+                        final long end = System.nanoTime();
+                        synchronized (storeNanos) {
+                            storeNanos[0] = Math.max(storeNanos[0], stored - start);
+                            loadNanos[0] = Math.max(loadNanos[0], end - stored);
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }, "Site " + s));
+            }
+            for (Thread t : threads) {
+                t.start();
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            final double totalMB = (double) sites * blocksPerSite * BLOCK_SIZE / (1024 * 1024);
+            final long loads = lbm.getCacheHits() + lbm.getCacheMisses();
+            System.out.printf("%d sites, %.0f MB spilled in %d MB blocks%n", sites, totalMB, BLOCK_SIZE / (1024 * 1024));
+            System.out.printf("  spill     %8.1f MB/s%n", totalMB / (storeNanos[0] / 1e9));
+            System.out.printf("  read back %8.1f MB/s%n", totalMB / (loadNanos[0] / 1e9));
+            System.out.printf("  cache hits %5.1f%%, %d prefetched blocks, %.2f of the bytes on disk%n",
+                              loads == 0 ? 0.0 : 100.0 * lbm.getCacheHits() / loads,
+                              lbm.getPrefetchCount(), lbm.getCompressionRatio());
+        } finally {
+            LargeBlockManager.shutdown();
+            Files.delete(swap);
+        }
+    }
+}
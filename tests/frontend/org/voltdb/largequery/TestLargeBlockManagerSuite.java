@@ -33,13 +33,16 @@ import java.nio.ByteBuffer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.utils.VoltFile;
 
 public class TestLargeBlockManagerSuite {
@@ -235,6 +238,118 @@ public class TestLargeBlockManagerSuite {
         assertThat(path.toString(), endsWith("large_query_swap/" + unsignedMinLong + "___" + unsignedMinLong + ".block"));
     }
 
+    @Test
+    public void testCompressedRoundTrip() throws Exception {
+        LargeBlockManager lbm = LargeBlockManager.getInstance();
+
+        // Tuples with a lot of repetition, like most spilled sort and group by blocks
+        int blockSize = 1024 * 1024;
+        ByteBuffer block = ByteBuffer.allocateDirect(blockSize);
+        for (int i = 0; block.remaining() >= 16; i++) {
+            block.putLong(i);
+            block.putLong(i % 100);
+        }
+
+        BlockId blockId = new BlockId(777, 1);
+        assertTrue(lbm.submitTask(LargeBlockTask.getStoreTask(blockId, block)).get().wasSuccessful());
+        assertTrue(Files.size(lbm.makeBlockPath(blockId)) < blockSize / 2);
+        assertTrue(lbm.getCompressionRatio() < 0.5);
+
+        ByteBuffer loadedBlock = ByteBuffer.allocateDirect(blockSize);
+        assertTrue(lbm.submitTask(LargeBlockTask.getLoadTask(blockId, loadedBlock)).get().wasSuccessful());
+        block.position(0);
+        loadedBlock.position(0);
+        assertEquals(block, loadedBlock);
+
+        assertTrue(lbm.submitTask(LargeBlockTask.getReleaseTask(blockId)).get().wasSuccessful());
+    }
+
+    @Test
+    public void testCacheAndPrefetch() throws Exception {
+        // Random blocks don't compress, so four of them fill the cache
+        final int blockSize = 64 * 1024;
+        LargeBlockManager.startup(m_largeQuerySwapPath, 4 * blockSize);
+        try {
+            LargeBlockManager lbm = LargeBlockManager.getInstance();
+            Random r = new Random(0);
+            byte[][] contents = new byte[10][blockSize];
+            for (int i = 0; i < contents.length; i++) {
+                r.nextBytes(contents[i]);
+                lbm.storeBlock(new BlockId(888, i), ByteBuffer.wrap(contents[i]));
+            }
+
+            // The first blocks were evicted by the later ones
+            ByteBuffer loadedBlock = ByteBuffer.allocateDirect(blockSize);
+            lbm.loadBlock(new BlockId(888, 0), loadedBlock);
+            assertEquals(ByteBuffer.wrap(contents[0]), loadedBlock);
+            assertEquals(1, lbm.getCacheMisses());
+
+            // A second consecutive load reads the next blocks ahead
+            lbm.loadBlock(new BlockId(888, 1), loadedBlock);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (lbm.getPrefetchCount() < LargeBlockManager.PREFETCH_BLOCKS &&
+                   System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(LargeBlockManager.PREFETCH_BLOCKS, lbm.getPrefetchCount());
+
+            long hits = lbm.getCacheHits();
+            lbm.loadBlock(new BlockId(888, 2), loadedBlock);
+            assertEquals(ByteBuffer.wrap(contents[2]), loadedBlock);
+            assertEquals(hits + 1, lbm.getCacheHits());
+
+            for (int i = 0; i < contents.length; i++) {
+                assertTrue(lbm.submitTask(LargeBlockTask.getReleaseTask(new BlockId(888, i))).get().wasSuccessful());
+            }
+        }
+        finally {
+            LargeBlockManager.startup(m_largeQuerySwapPath);
+        }
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() {
+        LargeBlockCache cache = new LargeBlockCache(300);
+        cache.put(new BlockId(1, 1), new byte[100]);
+        cache.put(new BlockId(1, 2), new byte[100]);
+        cache.put(new BlockId(1, 3), new byte[100]);
+        assertEquals(300, cache.getSizeBytes());
+
+        // Touch the oldest so the second block is evicted next
+        assertNotNull(cache.get(new BlockId(1, 1)));
+        cache.put(new BlockId(1, 4), new byte[100]);
+        assertTrue(cache.contains(new BlockId(1, 1)));
+        assertFalse(cache.contains(new BlockId(1, 2)));
+        assertEquals(300, cache.getSizeBytes());
+
+        // Too big to cache at all
+        cache.put(new BlockId(1, 5), new byte[301]);
+        assertFalse(cache.contains(new BlockId(1, 5)));
+
+        cache.remove(new BlockId(1, 3));
+        assertEquals(200, cache.getSizeBytes());
+        assertNull(cache.get(new BlockId(1, 3)));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testStripesSpreadSequentialBlocks() {
+        final int stripes = LargeBlockManager.IO_THREADS;
+        final int blocks = 256 * stripes;
+        for (int site = 0; site < 8; site++) {
+            final long siteId = CoreUtils.getHSIdFromHostAndSite(site / 4, site % 4);
+            final int[] counts = new int[stripes];
+            for (long block = 0; block < blocks; block++) {
+                ++counts[LargeBlockManager.stripeFor(new BlockId(siteId, block), stripes)];
+            }
+            for (int count : counts) {
+                assertTrue("Stripes of site " + siteId + ": " + Arrays.toString(counts),
+                           count > 192 && count < 320);
+            }
+        }
+    }
+
     private boolean swapDirIsEmpty() throws IOException {
         int count = 0;
         try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(m_largeQuerySwapPath)) {
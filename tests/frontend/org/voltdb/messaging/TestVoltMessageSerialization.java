@@ -37,6 +37,8 @@ import org.voltdb.ClientResponseImpl;
 import org.voltdb.DependencyPair;
 import org.voltdb.ParameterSet;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.TransactionStageTrace;
+import org.voltdb.TransactionStageTrace.Stage;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
@@ -159,6 +161,45 @@ public class TestVoltMessageSerialization extends TestCase {
         assertTrue(iresponse2.isReadOnly());
     }
 
+    public void testStageTracedTaskAndResponse() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("elmerfudd");
+        spi.setParams(57, "wrascallywabbit");
+
+        Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 8, 10L, 100045, 99, false, true, spi, 2101, 3101, false);
+        assertNull(((Iv2InitiateTaskMessage) checkVoltMessage(itask)).getStageTrace());
+        itask.setStageTrace(new TransactionStageTrace());
+        Iv2InitiateTaskMessage itask2 = (Iv2InitiateTaskMessage) checkVoltMessage(itask);
+        assertNotNull(itask2.getStageTrace());
+        assertTrue(itask2.isSinglePartition());
+
+        TransactionStageTrace trace = new TransactionStageTrace(1000);
+        trace.end(Stage.DURABILITY, 3000);
+        trace.end(Stage.QUEUE, 3500);
+        trace.end(Stage.EXECUTE, 7500);
+        InitiateResponseMessage iresponse = new InitiateResponseMessage(itask);
+        iresponse.setResults(new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null));
+        iresponse.setMpFragmentSent(true);
+        iresponse.setStageTrace(trace);
+
+        InitiateResponseMessage iresponse2 = (InitiateResponseMessage) checkVoltMessage(iresponse);
+        assertTrue(iresponse2.haveSentMpFragment());
+        TransactionStageTrace trace2 = iresponse2.getStageTrace();
+        assertEquals(2000, trace2.get(Stage.DURABILITY));
+        assertEquals(500, trace2.get(Stage.QUEUE));
+        assertEquals(4000, trace2.get(Stage.EXECUTE));
+        assertFalse(trace2.isTimed(Stage.REPLICATION));
+        // only the leader's stages travel
+        assertFalse(trace2.isTimed(Stage.DISPATCH));
+
+        iresponse.setMpFragmentSent(false);
+        iresponse.setStageTrace(null);
+        iresponse2 = (InitiateResponseMessage) checkVoltMessage(iresponse);
+        assertFalse(iresponse2.haveSentMpFragment());
+        assertNull(iresponse2.getStageTrace());
+    }
+
     public void testMispartitionedResponse() throws IOException {
         StoredProcedureInvocation spi = new StoredProcedureInvocation();
         spi.setClientHandle(25);
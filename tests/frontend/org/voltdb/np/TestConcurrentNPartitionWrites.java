@@ -0,0 +1,269 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.np;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.voltdb.BackendTarget;
+import org.voltdb.ProcedurePartitionData;
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.NullCallback;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.regressionsuites.JUnit4LocalClusterTest;
+import org.voltdb.regressionsuites.LocalCluster;
+
+/*
+ * Run a mix of two-partition transfers, full MP writes and MP reads with and without
+ * the MPI write pool, check that every MP transaction saw a consistent database and
+ * that the write pool raises the throughput.
+ */
+public class TestConcurrentNPartitionWrites extends JUnit4LocalClusterTest {
+    static final String SCHEMA =
+            "CREATE TABLE accounts (id INTEGER NOT NULL PRIMARY KEY, balance BIGINT NOT NULL);" +
+            "PARTITION TABLE accounts ON COLUMN id;" +
+            "CREATE TABLE transfer_log (id INTEGER NOT NULL, amount BIGINT NOT NULL);" +
+            "PARTITION TABLE transfer_log ON COLUMN id;" +
+            "CREATE TABLE audits (audit_id BIGINT NOT NULL, total BIGINT NOT NULL);" +
+            "CREATE TABLE rates (currency VARCHAR(3) NOT NULL PRIMARY KEY, rate BIGINT NOT NULL);";
+
+    static final int ACCOUNTS = 1000;
+    static final long INITIAL_BALANCE = 1000;
+    static final long DURATION_MS = TimeUnit.SECONDS.toMillis(10);
+    static final int OUTSTANDING = 200;
+    static final String[] CURRENCIES = { "EUR", "GBP", "JPY" };
+
+    public static class Transfer extends VoltProcedure {
+        public final SQLStmt get = new SQLStmt("SELECT balance FROM accounts WHERE id = ?;");
+        public final SQLStmt update = new SQLStmt("UPDATE accounts SET balance = balance + ? WHERE id = ?;");
+
+        public long run(int fromId, int toId, long amount) {
+            voltQueueSQL(get, EXPECT_ONE_ROW, fromId);
+            if (voltExecuteSQL()[0].asScalarLong() < amount) {
+                throw new VoltAbortException("Insufficient balance");
+            }
+            voltQueueSQL(update, -amount, fromId);
+            voltQueueSQL(update, amount, toId);
+            voltExecuteSQL(true);
+            return 1;
+        }
+    }
+
+    // Same partitions as a transfer but a different table set
+    public static class LoggedTransfer extends Transfer {
+        public final SQLStmt log = new SQLStmt("INSERT INTO transfer_log VALUES (?, ?);");
+
+        @Override
+        public long run(int fromId, int toId, long amount) {
+            voltQueueSQL(log, fromId, amount);
+            voltExecuteSQL();
+            return super.run(fromId, toId, amount);
+        }
+    }
+
+    // Writes a replicated table, so it never overlaps another write
+    public static class Audit extends VoltProcedure {
+        public final SQLStmt sum = new SQLStmt("SELECT SUM(balance) FROM accounts;");
+        public final SQLStmt insert = new SQLStmt("INSERT INTO audits VALUES (?, ?);");
+
+        public long run(long auditId) {
+            voltQueueSQL(sum);
+            final long total = voltExecuteSQL()[0].asScalarLong();
+            voltQueueSQL(insert, auditId, total);
+            voltExecuteSQL(true);
+            return total;
+        }
+    }
+
+    // Writes a replicated table the transfers leave alone, so the balance reads may overlap it
+    public static class SetRates extends VoltProcedure {
+        public final SQLStmt update = new SQLStmt("UPDATE rates SET rate = rate + 1;");
+
+        public long run() {
+            voltQueueSQL(update);
+            voltExecuteSQL(true);
+            return 1;
+        }
+    }
+
+    // Every rate moves in the same transaction, a consistent read sees them all equal
+    public static class RateSpread extends VoltProcedure {
+        public final SQLStmt spread = new SQLStmt("SELECT MAX(rate) - MIN(rate) FROM rates;");
+
+        public long run() {
+            voltQueueSQL(spread, EXPECT_SCALAR_LONG);
+            return voltExecuteSQL(true)[0].asScalarLong();
+        }
+    }
+
+    // Reads the accounts the transfers write, so it never overlaps one
+    public static class SumBalances extends VoltProcedure {
+        public final SQLStmt sum = new SQLStmt("SELECT SUM(balance) FROM accounts;");
+
+        public long run() {
+            voltQueueSQL(sum, EXPECT_SCALAR_LONG);
+            return voltExecuteSQL(true)[0].asScalarLong();
+        }
+    }
+
+    @Test
+    public void testMixedWriteThroughput() throws Exception {
+        final double serialRate = runMix(0);
+        final double pooledRate = runMix(8);
+        assertTrue("The write pool ran " + pooledRate + " txns/s, no more than the " +
+                   serialRate + " txns/s without it", pooledRate > serialRate);
+    }
+
+    private double runMix(int writePoolSize) throws Exception {
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.setUseDDLSchema(true);
+        builder.addLiteralSchema(SCHEMA);
+        ProcedurePartitionData twoPartitions = new ProcedurePartitionData("accounts", "id", "0", "accounts", "id", "1");
+        builder.addProcedure(Transfer.class, twoPartitions);
+        builder.addProcedure(LoggedTransfer.class, twoPartitions);
+        builder.addProcedure(Audit.class);
+        builder.addProcedure(SetRates.class);
+        builder.addProcedure(RateSpread.class);
+        builder.addProcedure(SumBalances.class);
+
+        Map<String, String> env = new HashMap<>();
+        env.put("mpiWritePoolSize", Integer.toString(writePoolSize));
+        LocalCluster cluster = new LocalCluster("concurrentnpwrites.jar", 8, 1, 0,
+                BackendTarget.NATIVE_EE_JNI, LocalCluster.FailureState.ALL_RUNNING, false, env);
+        cluster.setHasLocalServer(false);
+        cluster.setCallingMethodName("testMixedWriteThroughput" + writePoolSize);
+        assertTrue(cluster.compile(builder));
+        cluster.startUp();
+
+        Client client = ClientFactory.createClient();
+        try {
+            for (String address : cluster.getListenerAddresses()) {
+                client.createConnection(address);
+            }
+            for (int i = 0; i < ACCOUNTS; i++) {
+                client.callProcedure(new NullCallback(), "ACCOUNTS.insert", i, INITIAL_BALANCE);
+            }
+            for (String currency : CURRENCIES) {
+                client.callProcedure(new NullCallback(), "RATES.insert", currency, 100L);
+            }
+            client.drain();
+
+            final long total = ACCOUNTS * INITIAL_BALANCE;
+            final Random random = new Random(writePoolSize);
+            final Semaphore outstanding = new Semaphore(OUTSTANDING);
+            final AtomicLong committed = new AtomicLong();
+            final AtomicLong loggedTransfers = new AtomicLong();
+            final AtomicLong failed = new AtomicLong();
+            final AtomicLong inconsistentReads = new AtomicLong();
+            final AtomicLong rateUpdates = new AtomicLong();
+            long audits = 0;
+
+            final long start = System.currentTimeMillis();
+            while (System.currentTimeMillis() - start < DURATION_MS) {
+                outstanding.acquire();
+                final int kind = random.nextInt(100);
+                final ProcedureCallback callback = response -> {
+                    if (response.getStatus() == ClientResponse.SUCCESS) {
+                        committed.incrementAndGet();
+                        final long result = response.getResults()[0].asScalarLong();
+                        if (kind >= 35 && kind < 70) {
+                            loggedTransfers.incrementAndGet();
+                        }
+                        else if (kind >= 78 && kind < 86) {
+                            rateUpdates.incrementAndGet();
+                        }
+                        else if (kind >= 86 && kind < 92 && result != 0) {
+                            inconsistentReads.incrementAndGet();
+                        }
+                        else if (kind >= 92 && result != total) {
+                            inconsistentReads.incrementAndGet();
+                        }
+                    }
+                    else if (response.getStatus() != ClientResponse.USER_ABORT) {
+                        failed.incrementAndGet();
+                    }
+                    outstanding.release();
+                };
+                final int fromId = random.nextInt(ACCOUNTS);
+                final int toId = (fromId + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                if (kind < 35) {
+                    client.callProcedure(callback, "TestConcurrentNPartitionWrites$Transfer", fromId, toId, 10L);
+                }
+                else if (kind < 70) {
+                    client.callProcedure(callback, "TestConcurrentNPartitionWrites$LoggedTransfer", fromId, toId, 10L);
+                }
+                else if (kind < 78) {
+                    client.callProcedure(callback, "TestConcurrentNPartitionWrites$Audit", audits++);
+                }
+                else if (kind < 86) {
+                    client.callProcedure(callback, "TestConcurrentNPartitionWrites$SetRates");
+                }
+                else if (kind < 92) {
+                    client.callProcedure(callback, "TestConcurrentNPartitionWrites$RateSpread");
+                }
+                else if (kind < 96) {
+                    client.callProcedure(callback, "TestConcurrentNPartitionWrites$SumBalances");
+                }
+                else {
+                    client.callProcedure(callback, "@AdHoc", "SELECT SUM(balance) FROM accounts;");
+                }
+            }
+            client.drain();
+            final double rate = committed.get() * 1000.0 / (System.currentTimeMillis() - start);
+
+            assertEquals(0, failed.get());
+            // Each read saw every transfer and rate update either completely or not at all
+            assertEquals(0, inconsistentReads.get());
+            assertEquals(total, client.callProcedure("@AdHoc", "SELECT SUM(balance) FROM accounts;")
+                                      .getResults()[0].asScalarLong());
+            // Every audit ran serialized against the transfers, so each saw the same total
+            VoltTable inconsistent = client.callProcedure("@AdHoc",
+                    "SELECT COUNT(*) FROM audits WHERE total <> " + total + ";").getResults()[0];
+            assertEquals(0, inconsistent.asScalarLong());
+            assertEquals(loggedTransfers.get(), client.callProcedure("@AdHoc",
+                    "SELECT COUNT(*) FROM transfer_log;").getResults()[0].asScalarLong());
+            assertEquals(100 + rateUpdates.get(), client.callProcedure("@AdHoc",
+                    "SELECT MIN(rate) FROM rates;").getResults()[0].asScalarLong());
+            return rate;
+        }
+        finally {
+            client.close();
+            cluster.shutDown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.hsqldb_voltpatches.HSQLInterface;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DeterminismMode;
+import org.voltdb.compiler.StatementCompiler;
+import org.voltdb.compiler.VoltCompiler;
+import org.voltdb.compiler.VoltCompiler.DdlProceduresToLoad;
+
+/**
+ * Measures how long planning an inner join takes, and how much memory it allocates,
+ * for star joins of a fact table with 3 to 15 dimension tables and for chain joins
+ * of 4 to 16 tables, listed in the FROM clause in the reverse of the chain order.
+ * Joins of up to StatementCompiler.MAX_JOIN_TABLES tables are planned for every join
+ * order, larger ones up to StatementCompiler.MAX_DP_JOIN_TABLES tables for the order
+ * picked by dynamic programming, and the rest for the greedy join order.
+ *
+ * Usage: JoinPlanningBenchmark [rounds]
+ * (with -DMAX_DP_JOIN_TABLES=0 to plan the greedy join order instead of the cheapest,
+ * or -DMAX_DP_JOIN_TABLES=16 to pick all of the join orders by dynamic programming)
+ */
+public class JoinPlanningBenchmark {
+
+    private static final int MAX_TABLES = 16;
+
+    private static final com.sun.management.ThreadMXBean s_threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static int s_nextStatement = 0;
+
+    private static String schema() {
+        StringBuilder ddl = new StringBuilder();
+        ddl.append("CREATE TABLE F (ID INTEGER NOT NULL PRIMARY KEY");
+        for (int ii = 1; ii < MAX_TABLES; ii++) {
+            ddl.append(", D").append(ii).append(" INTEGER NOT NULL");
+        }
+        ddl.append(");\n");
+        for (int ii = 1; ii < MAX_TABLES; ii++) {
+            ddl.append("CREATE TABLE D").append(ii)
+               .append(" (ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR(32) NOT NULL);\n");
+        }
+        for (int ii = 0; ii < MAX_TABLES; ii++) {
+            ddl.append("CREATE TABLE C").append(ii)
+               .append(" (ID INTEGER NOT NULL PRIMARY KEY, NEXT_ID INTEGER NOT NULL);\n");
+        }
+        return ddl.toString();
+    }
+
+    private static String starJoin(int tables) {
+        StringBuilder from = new StringBuilder("SELECT COUNT(*) FROM F");
+        StringBuilder where = new StringBuilder(" WHERE D1.NAME = 'x'");
+        for (int ii = 1; ii < tables; ii++) {
+            from.append(", D").append(ii);
+            where.append(" AND F.D").append(ii).append(" = D").append(ii).append(".ID");
+        }
+        return from.append(where).toString();
+    }
+
+    private static String chainJoin(int tables) {
+        StringBuilder from = new StringBuilder("SELECT COUNT(*) FROM ");
+        StringBuilder where = new StringBuilder(" WHERE C0.ID = 5");
+        for (int ii = tables - 1; ii >= 0; ii--) {
+            from.append("C").append(ii).append(ii > 0 ? ", " : "");
+        }
+        for (int ii = 1; ii < tables; ii++) {
+            where.append(" AND C").append(ii - 1).append(".NEXT_ID = C").append(ii).append(".ID");
+        }
+        return from.append(where).toString();
+    }
+
+    private static CompiledPlan plan(String sql, Database db, HSQLInterface hsql) {
+        String stmtLabel = "stmt-" + s_nextStatement++;
+        try (QueryPlanner planner = new QueryPlanner(sql, stmtLabel, "bench", db,
+                StatementPartitioning.forceSP(), hsql, new DatabaseEstimates(), false,
+                new TrivialCostModel(), null, null, DeterminismMode.FASTER, false)) {
+            planner.parse();
+            return planner.plan();
+        }
+    }
+
+    private static void run(String shape, int tables, String sql, int rounds, Database db, HSQLInterface hsql) {
+        long threadId = Thread.currentThread().getId();
+        for (int ii = 0; ii < rounds / 10; ii++) {
+            plan(sql, db, hsql);
+        }
+        long[] nanos = new long[rounds];
+        long allocated = 0;
+        double cost = 0;
+        for (int ii = 0; ii < rounds; ii++) {
+            long startBytes = s_threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            cost = plan(sql, db, hsql).cost;
+            nanos[ii] = System.nanoTime() - start;
+            allocated += s_threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+        }
+        Arrays.sort(nanos);
+        long total = 0;
+        for (long time : nanos) {
+            total += time;
+        }
+        String planning = tables <= StatementCompiler.MAX_JOIN_TABLES ? "all orders" :
+                          tables <= StatementCompiler.MAX_DP_JOIN_TABLES ? "dynamic" : "greedy";
+        System.out.printf("  %-5s %2d tables  %-10s  mean %8.2f ms  p50 %8.2f ms  p99 %8.2f ms" +
+                          "  %9.1f KB per plan  cost %12.1f%n",
+                          shape, tables, planning, total / 1e6 / rounds, nanos[rounds / 2] / 1e6,
+                          nanos[(int) (rounds * 0.99)] / 1e6, allocated / 1024.0 / rounds, cost);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        File ddl = File.createTempFile("joinplanning", ".sql");
+        ddl.deleteOnExit();
+        try (FileWriter writer = new FileWriter(ddl)) {
+            writer.write(schema());
+        }
+        VoltCompiler compiler = new VoltCompiler(false);
+        HSQLInterface hsql = HSQLInterface.loadHsqldb(ParameterizationInfo.getParamStateManager());
+        compiler.loadSchema(hsql, DdlProceduresToLoad.NO_DDL_PROCEDURES, ddl.getPath());
+        Database db = compiler.getCatalogDatabase();
+        db.getProcedures().add("bench");
+
+        System.out.printf("%d rounds, MAX_JOIN_TABLES %d, MAX_DP_JOIN_TABLES %d%n",
+                          rounds, StatementCompiler.MAX_JOIN_TABLES, StatementCompiler.MAX_DP_JOIN_TABLES);
+        for (int tables = 4; tables <= MAX_TABLES; tables++) {
+            run("star", tables, starJoin(tables), rounds, db, hsql);
+        }
+        for (int tables = 4; tables <= MAX_TABLES; tables++) {
+            run("chain", tables, chainJoin(tables), rounds, db, hsql);
+        }
+    }
+}
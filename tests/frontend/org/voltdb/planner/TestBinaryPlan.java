@@ -0,0 +1,123 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltdb.common.Constants;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.BinaryPlanReader;
+import org.voltdb.plannodes.BinaryPlanWriter;
+import org.voltdb.plannodes.PlanNodeList;
+import org.voltdb.plannodes.PlanNodeTree;
+
+public class TestBinaryPlan extends PlannerTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        setupSchema(TestIndexSelection.class.getResource("testplans-indexselection-ddl.sql"), "testindexselectionplans",
+                                                         true);
+    }
+
+    private static final String[] QUERIES = {
+        "select count(*) from l,t where lname=? and l.a=t.a order by l.b limit ?;",
+        "select l.id, count(*) as tag from l group by l.id order by tag, l.id limit ?;",
+        "select id * 1.5, 'caf\u00e9', cast(null as integer), lname || 'x' from l where lname = 'abc' and id > 5000000000;",
+        "select l.id from l where l.id = ? and exists (select a from t where exists(select 1 from t where t.a = l.id))",
+        "select a, sum(id) as sc1 from l where (a, id) in ( SELECT a, count(id) as sc2 from  l  GROUP BY a ORDER BY a DESC) GROUP BY a",
+        "select a, (select b from t limit 1) b from l ",
+        "select l.id from l union all select a from t;",
+        "select * from c where a in (1, 2, 3, 4, 5, 6, 7, 8, 9, 10) and abs(e) > 1;",
+        "delete from c where a > ? and b < 4;",
+    };
+
+    /**
+     * The binary plan holds the same document as the JSON plan, and loads back into the same plan.
+     */
+    public void testRoundTrip() throws JSONException {
+        int jsonBytes = 0;
+        int binaryBytes = 0;
+        for (String sql : QUERIES) {
+            for (AbstractPlanNode fragment : compileToFragments(sql)) {
+                PlanNodeList list = new PlanNodeList(fragment, false);
+                String json = list.toJSONString();
+                byte[] plan = list.toBinaryPlan();
+                assertTrue(BinaryPlanWriter.isBinaryPlan(plan));
+                jsonBytes += json.length();
+                binaryBytes += plan.length;
+
+                JSONObject decoded = BinaryPlanReader.toJSONObject(plan);
+                assertEquals(sql, new JSONObject(json).toString(), decoded.toString());
+
+                PlanNodeTree reloaded = new PlanNodeTree();
+                reloaded.loadFromJSONPlan(decoded, getDatabase());
+                assertEquals(sql, new PlanNodeTree(fragment).toJSONString(), reloaded.toJSONString());
+            }
+        }
+        // Keys are only spelled out once per plan, and numbers take fixed sizes.
+        assertTrue(binaryBytes + " >= " + jsonBytes, binaryBytes < jsonBytes);
+    }
+
+    public void testLargeQueryFlag() throws JSONException {
+        AbstractPlanNode fragment = compile("select lname from l order by lname;");
+        JSONObject decoded = BinaryPlanReader.toJSONObject(new PlanNodeList(fragment, true).toBinaryPlan());
+        assertTrue(decoded.getBoolean("IS_LARGE_QUERY"));
+    }
+
+    /**
+     * Catalogs compiled before the binary plan format hold JSON plans.
+     */
+    public void testJSONPlansStillRead() throws JSONException {
+        PlanNodeList list = new PlanNodeList(compile(QUERIES[0]), false);
+        byte[] json = list.toJSONString().getBytes(Constants.UTF8ENCODING);
+        assertFalse(BinaryPlanWriter.isBinaryPlan(json));
+        assertEquals(new JSONObject(list.toJSONString()).toString(), BinaryPlanReader.toJSONObject(json).toString());
+        assertEquals(list.toJSONString(), BinaryPlanReader.toJSONString(json));
+    }
+
+    public void testMalformedPlans() {
+        byte[] plan = new PlanNodeList(compile(QUERIES[0]), false).toBinaryPlan();
+
+        byte[] newerVersion = plan.clone();
+        newerVersion[3]++;
+        assertRejected(newerVersion, "Unsupported binary plan version");
+
+        List<Integer> lengths = Arrays.asList(4, 5, 20, plan.length / 2, plan.length - 1);
+        for (int length : lengths) {
+            assertRejected(Arrays.copyOf(plan, length), "Truncated binary plan");
+        }
+    }
+
+    private static void assertRejected(byte[] plan, String expected) {
+        try {
+            BinaryPlanReader.toJSONObject(plan);
+            fail("Expected a malformed plan to be rejected");
+        }
+        catch (JSONException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expected));
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
+import org.voltdb.types.IndexLookupType;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 
@@ -427,6 +428,55 @@ public class TestJoinOrder extends PlannerTestCase {
 
     }
 
+    public void testJoinOrderForManyTables() {
+        String sql;
+        AbstractPlanNode pn;
+
+        // A chain of join predicates that does not follow the FROM clause order
+        // is joined along the chain instead of with cross products.
+        // (Inequalities keep the planner from inferring transitive equivalences.)
+        sql = "select * FROM T1, T2, T3, T4, T5, T6, T7 " +
+                "where T1.A < T7.G and T7.G < T2.B and T2.B < T6.F and " +
+                "T6.F < T3.C and T3.C < T5.E and T5.E < T4.D";
+        pn = compile(sql);
+        validJoinOrder(pn.toExplainPlanString(), "T1", "T7", "T2", "T6", "T3", "T5", "T4");
+
+        // The most filtered table leads the join.
+        sql = "select * FROM T1, T2, T3, T4, T5, T6, T7 " +
+                "where T1.A < T7.G and T7.G < T2.B and T2.B < T6.F and " +
+                "T6.F < T3.C and T3.C < T5.E and T5.E < T4.D and T4.D = 5";
+        pn = compile(sql);
+        validJoinOrder(pn.toExplainPlanString(), "T4", "T5", "T3", "T6", "T2", "T7", "T1");
+
+        // A join order hint still wins.
+        pn = compileSPWithJoinOrder(sql, "T1,T2,T3,T4,T5,T6,T7");
+        validJoinOrder(pn.toExplainPlanString(), "T1", "T2", "T3", "T4", "T5", "T6", "T7");
+    }
+
+    public void testCostBasedJoinOrderForManyTables() {
+        String sql;
+        AbstractPlanNode pn;
+
+        // Tables are joined through their primary keys, starting from the one looked up by a constant.
+        sql = "select * FROM I1, I2, I3, I4, I5, I6, I7 " +
+                "where I1.A < I7.G and I7.G < I2.B and I2.B < I6.F and " +
+                "I6.F < I3.C and I3.C < I5.E and I5.E < I4.D and I4.D = 5";
+        pn = compile(sql);
+        assertEquals(6, pn.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX).size());
+        assertTrue(pn.findAllNodesOfType(PlanNodeType.NESTLOOP).isEmpty());
+        assertTrue(pn.findAllNodesOfType(PlanNodeType.SEQSCAN).isEmpty());
+        validJoinOrder(pn.toExplainPlanString(), "I1", "I7", "I2", "I6", "I3", "I5", "I4");
+
+        sql = "select * FROM I1, I2, I3, I4, I5, I6, I7 " +
+                "where I1.A = I7.G and I7.G = I2.B and I2.B = I6.F and " +
+                "I6.F = I3.C and I3.C = I5.E and I5.E = I4.D and I4.D = 5";
+        pn = compile(sql);
+        assertTrue(pn.findAllNodesOfType(PlanNodeType.SEQSCAN).isEmpty());
+        for (AbstractPlanNode scan : pn.findAllNodesOfType(PlanNodeType.INDEXSCAN)) {
+            assertEquals(IndexLookupType.EQ, ((IndexScanPlanNode) scan).getLookupType());
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(true, TestJoinOrder.class.getResource("testplans-joinorder-ddl.sql"), "testjoinorder");
@@ -2434,13 +2434,13 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments(query);
         assertProjectingCoordinator(lpn);
 
+        // The join order is picked by cost: P1, then P2, P3 and R3 through their indexes.
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.SEQSCAN,
+                PlanNodeType.NESTLOOPINDEX,
+                PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
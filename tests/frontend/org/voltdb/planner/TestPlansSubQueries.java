@@ -1370,37 +1370,38 @@ public class TestPlansSubQueries extends PlannerTestCase {
      * of subqueries' partitioned tables.
      */
     public void testFineGrainedCases() {
+        // In each case P2 is joined through its primary key index.
         // LIMIT comes from replicated table which has no receive node
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(2, 1,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, C FROM R2 LIMIT 5) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         // Distinct apply on replicated table only
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(2, 1,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT Distinct A, C FROM R2 where A > 3) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         // table count
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(2, 1,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT COUNT(*) AS A FROM R2 where C > 3) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         // group by
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(2, 1,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, COUNT(*) C FROM R2 where C > 3 GROUP BY A) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         //
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(2, 1,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, C FROM R2 where C > 3 LIMIT 10) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
-        checkPushedDownJoins(2, 1,
+        checkPushedDownJoins(1, 2,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, C FROM R2 where C > 3 ) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
@@ -0,0 +1,152 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.regressionsuites;
+
+import java.io.IOException;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.compiler.VoltProjectBuilder;
+
+import junit.framework.Test;
+
+/**
+ * Plans chosen with the fixed planner estimates pick the index with the most
+ * equality-matched columns. On skewed data that is the wrong one, and
+ * @CollectPlannerStatistics must get the stored procedures replanned with
+ * the selective index.
+ */
+public class TestPlannerStatisticsSuite extends RegressionSuite {
+
+    static final int ROWS = 200000;
+    static final int CALLS = 40;
+
+    public TestPlannerStatisticsSuite(String name) {
+        super(name);
+    }
+
+    private static void loadSkewedRows(Client client) throws IOException, ProcCallException {
+        final int batch = 10000;
+        for (int start = 0; start < ROWS; start += batch) {
+            VoltTable table = new VoltTable(
+                    new VoltTable.ColumnInfo("SKEWED", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("OTHER", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("SELECTIVE", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("PAYLOAD", VoltType.INTEGER));
+            for (int i = start; i < start + batch; i++) {
+                // about 90% of the rows share both the SKEWED and the OTHER value 0
+                table.addRow(i % 10 == 0 ? i % 100 : 0, i % 20 == 0 ? i % 50 : 0, i, i);
+            }
+            client.callProcedure("@LoadMultipartitionTable", "SKEWED_DATA", (byte) 0, table);
+        }
+    }
+
+    private static String getProcPlan(Client client) throws IOException, ProcCallException {
+        VoltTable vt = client.callProcedure("@ExplainProc", "FindSkewed").getResults()[0];
+        assertTrue(vt.advanceRow());
+        return vt.getString(2);
+    }
+
+    private static long timeCalls(Client client) throws IOException, ProcCallException {
+        final long start = System.nanoTime();
+        for (int i = 1; i <= CALLS; i++) {
+            // rows with neither value in the few tenths not sharing 0
+            final int selective = i * 10 + 1;
+            VoltTable vt = client.callProcedure("FindSkewed", 0, 0, selective).getResults()[0];
+            assertEquals(1, vt.getRowCount());
+            assertEquals(selective, vt.asScalarLong());
+        }
+        return System.nanoTime() - start;
+    }
+
+    public void testReplanWithStatistics() throws Exception {
+        Client client = getClient();
+        loadSkewedRows(client);
+
+        // with the fixed estimates, two equality-matched columns beat one
+        String plan = getProcPlan(client);
+        assertTrue(plan, plan.contains("IDX_SKEWED_OTHER"));
+        timeCalls(client); // warm up
+        final long fixedEstimatesNanos = timeCalls(client);
+
+        ClientResponse cr = client.callProcedure("@CollectPlannerStatistics", 10);
+        assertEquals(ClientResponse.SUCCESS, cr.getStatus());
+
+        // the statistics show that nearly every row matches the two skewed columns
+        plan = getProcPlan(client);
+        assertTrue(plan, plan.contains("IDX_SELECTIVE"));
+        // ad hoc statements are planned with the same statistics
+        VoltTable vt = client.callProcedure("@Explain",
+                "SELECT PAYLOAD FROM SKEWED_DATA WHERE SKEWED = 0 AND OTHER = 0 AND SELECTIVE = 11;").getResults()[0];
+        assertTrue(vt.advanceRow());
+        assertTrue(vt.getString(0), vt.getString(0).contains("IDX_SELECTIVE"));
+
+        timeCalls(client); // warm up
+        final long statisticsNanos = timeCalls(client);
+        assertTrue("Replanned calls took " + statisticsNanos + "ns, calls planned with fixed estimates " +
+                   fixedEstimatesNanos + "ns",
+                   statisticsNanos < fixedEstimatesNanos);
+
+        // collecting again with unchanged data keeps the plans
+        cr = client.callProcedure("@CollectPlannerStatistics", 10);
+        assertEquals(ClientResponse.SUCCESS, cr.getStatus());
+        plan = getProcPlan(client);
+        assertTrue(plan, plan.contains("IDX_SELECTIVE"));
+    }
+
+    public void testInvalidHistogramSize() throws Exception {
+        Client client = getClient();
+        verifyProcFails(client, "histogram size", "@CollectPlannerStatistics", -1);
+    }
+
+    static public Test suite() throws IOException {
+        MultiConfigSuiteBuilder builder = new MultiConfigSuiteBuilder(TestPlannerStatisticsSuite.class);
+
+        VoltProjectBuilder project = new VoltProjectBuilder();
+        project.addLiteralSchema(
+                "CREATE TABLE SKEWED_DATA (" +
+                "  SKEWED INTEGER NOT NULL," +
+                "  OTHER INTEGER NOT NULL," +
+                "  SELECTIVE INTEGER NOT NULL," +
+                "  PAYLOAD INTEGER NOT NULL" +
+                ");" +
+                "CREATE INDEX IDX_SKEWED_OTHER ON SKEWED_DATA (SKEWED, OTHER);" +
+                "CREATE INDEX IDX_SELECTIVE ON SKEWED_DATA (SELECTIVE);" +
+                "CREATE PROCEDURE FindSkewed AS " +
+                "  SELECT PAYLOAD FROM SKEWED_DATA WHERE SKEWED = ? AND OTHER = ? AND SELECTIVE = ?;");
+        project.setUseDDLSchema(true);
+
+        LocalCluster config = new LocalCluster("plannerstatistics.jar", 2, 1, 0, BackendTarget.NATIVE_EE_JNI);
+        boolean success = config.compile(project);
+        assertTrue(success);
+        // collecting statistics changes the catalog, so no server is reused across tests
+        builder.addServerConfig(config, false);
+
+        return builder;
+    }
+}
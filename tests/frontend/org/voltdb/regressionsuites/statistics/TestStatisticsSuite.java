@@ -447,7 +447,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING MEMORY STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[15];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -462,6 +462,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[11] = new ColumnInfo("POOLEDMEMORY", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PHYSICALMEMORY", VoltType.BIGINT);
         expectedSchema[13] = new ColumnInfo("JAVAMAXHEAP", VoltType.INTEGER);
+        expectedSchema[14] = new ColumnInfo("REPAIRLOGMEMORY", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -491,7 +492,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[11];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -501,6 +502,8 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("WRITE_BATCH_SIZE", VoltType.FLOAT);
+        expectedSchema[10] = new ColumnInfo("BYTES_WRITTEN_PER_SECOND", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -584,7 +587,7 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING LIVECLIENTS STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[12];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -594,6 +597,9 @@ public class TestStatisticsSuite extends StatisticsTestSuiteBase {
         expectedSchema[6] = new ColumnInfo("OUTSTANDING_REQUEST_BYTES", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("OUTSTANDING_RESPONSE_MESSAGES", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("OUTSTANDING_TRANSACTIONS", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("ADMISSION_CLASS", VoltType.STRING);
+        expectedSchema[10] = new ColumnInfo("ADMISSION_CLASS_OUTSTANDING_TRANSACTIONS", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("ADMISSION_CLASS_BACKPRESSURE_COUNT", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
         int patientRetries = 2;
         int hostsHeardFrom = 0;
@@ -44,11 +44,17 @@ public class TestStatisticsSuiteCpuStats extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING CPU STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[4];
+        ColumnInfo[] expectedSchema = new ColumnInfo[10];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
         expectedSchema[3] = new ColumnInfo("PERCENT_USED", VoltType.BIGINT);
+        expectedSchema[4] = new ColumnInfo("MINOR_FAULTS", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("MAJOR_FAULTS", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("VOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("INVOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("DISK_READ_BYTES", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("DISK_WRITE_BYTES", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -71,6 +77,33 @@ public class TestStatisticsSuiteCpuStats extends StatisticsTestSuiteBase {
         validateRowSeenAtAllHosts(results[0], columnTargets, true);
     }
 
+    public void testThreadCpuStatistics() throws Exception {
+        System.out.println("\n\nTESTING THREADCPU STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[8];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("THREAD_ID", VoltType.BIGINT);
+        expectedSchema[4] = new ColumnInfo("THREAD_NAME", VoltType.STRING);
+        expectedSchema[5] = new ColumnInfo("ROLE", VoltType.STRING);
+        expectedSchema[6] = new ColumnInfo("CPU_TIME", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("PERCENT_USED", VoltType.FLOAT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        VoltTable[] results = client.callProcedure("@Statistics", "threadcpu", 0).getResults();
+        System.out.println("Node thread cpu statistics table: " + results[0].toString());
+        assertEquals(1, results.length);
+        validateSchema(results[0], expectedTable);
+        // The first system sample is taken at startup, and every node has site threads
+        boolean sawSite = false;
+        while (results[0].advanceRow()) {
+            sawSite |= "SITE".equals(results[0].getString("ROLE"));
+        }
+        assertTrue(sawSite);
+    }
+
     //
     // Build a list of the tests to be run. Use the regression suite
     // helpers to allow multiple backends.
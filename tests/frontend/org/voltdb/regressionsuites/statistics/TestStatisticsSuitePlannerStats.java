@@ -48,7 +48,7 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING PLANNER STATS\n\n\n");
         Client client  = getClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[17];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -62,7 +62,10 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         expectedSchema[10] = new ColumnInfo("PLAN_TIME_MIN", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT);
-        expectedSchema[13] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("PLAN_MEMORY_MIN", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("PLAN_MEMORY_MAX", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("PLAN_MEMORY_AVG", VoltType.BIGINT);
+        expectedSchema[16] = new ColumnInfo("FAILURES", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -102,6 +105,8 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         long plan_time_min_min = Long.MAX_VALUE;
         long plan_time_max_max = Long.MIN_VALUE;
         long plan_time_avg_tot = 0;
+        long plan_memory_max_max = Long.MIN_VALUE;
+        long plan_memory_avg_tot = 0;
         int failures = 0;
         while (stats.advanceRow()) {
             cache1_level += (Integer)stats.get("CACHE1_LEVEL", VoltType.INTEGER);
@@ -112,6 +117,8 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
             plan_time_min_min = Math.min(plan_time_min_min, (Long)stats.get("PLAN_TIME_MIN", VoltType.BIGINT));
             plan_time_max_max = Math.max(plan_time_max_max, (Long)stats.get("PLAN_TIME_MAX", VoltType.BIGINT));
             plan_time_avg_tot += (Long)stats.get("PLAN_TIME_AVG", VoltType.BIGINT);
+            plan_memory_max_max = Math.max(plan_memory_max_max, (Long)stats.get("PLAN_MEMORY_MAX", VoltType.BIGINT));
+            plan_memory_avg_tot += (Long)stats.get("PLAN_MEMORY_AVG", VoltType.BIGINT);
             failures += (Integer)stats.get("FAILURES", VoltType.INTEGER);
             siteIds.add((Long)stats.get("SITE_ID", VoltType.BIGINT));
         }
@@ -140,6 +147,8 @@ public class TestStatisticsSuitePlannerStats extends StatisticsTestSuiteBase {
         assertTrue("Failed max PLAN_TIME_MAX > 0, value was: " + plan_time_max_max, plan_time_max_max > 0);
         assertTrue("Failed total PLAN_TIME_MAX < 100,000,000,000, value was: " + plan_time_max_max, plan_time_max_max < 100000000000L);
         assertTrue("Failed total PLAN_TIME_AVG > 0, value was: " + plan_time_avg_tot, plan_time_avg_tot > 0);
+        assertTrue("Failed max PLAN_MEMORY_MAX > 0, value was: " + plan_memory_max_max, plan_memory_max_max > 0);
+        assertTrue("Failed total PLAN_MEMORY_AVG > 0, value was: " + plan_memory_avg_tot, plan_memory_avg_tot > 0);
         assertTrue("Failed total FAILURES == 0, value was: " + failures, failures == 0);
     }
 
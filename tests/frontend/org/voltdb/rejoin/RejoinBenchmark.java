@@ -0,0 +1,176 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.regressionsuites.LocalCluster;
+
+/**
+ * Loads a local k-safe cluster, kills its last host and times the rejoin of that
+ * host, sampling @Statistics REJOIN on the other hosts while the data streams.
+ * Pass REJOIN_SEND_STREAMS, REJOIN_MAX_WINDOW or SNAPSHOT_BUFFER_COUNT to compare
+ * stream and window settings.
+ * Usage: RejoinBenchmark [MB to load] [hosts] [sites per host]
+ */
+public class RejoinBenchmark {
+
+    private static final String[] FORWARDED_PROPERTIES =
+            { "REJOIN_SEND_STREAMS", "REJOIN_MAX_WINDOW", "SNAPSHOT_BUFFER_COUNT" };
+    private static final int ROW_SIZE = 1024;
+
+    private static final String SCHEMA =
+            "CREATE TABLE P (ID BIGINT NOT NULL, DATA VARCHAR(" + ROW_SIZE + ") NOT NULL, PRIMARY KEY (ID));\n" +
+            "PARTITION TABLE P ON COLUMN ID;\n" +
+            "CREATE TABLE R (ID BIGINT NOT NULL, DATA VARCHAR(" + ROW_SIZE + ") NOT NULL, PRIMARY KEY (ID));\n";
+
+    private static void load(Client client, long rows) throws Exception {
+        final StringBuilder data = new StringBuilder();
+        while (data.length() < ROW_SIZE - 16) {
+            data.append("rejoin benchmark ");
+        }
+        final ProcedureCallback check = new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse response) {
+                if (response.getStatus() != ClientResponse.SUCCESS) {
+                    System.err.println(response.getStatusString());
+                    System.exit(-1);
+                }
+            }
+        };
+        for (long i = 0; i < rows; i++) {
+            final String row = i + data.substring(0, ROW_SIZE - 16);
+            client.callProcedure(check, "P.insert", i, row);
+            // A tenth of the data goes to the replicated table
+            if (i % 10 == 0) {
+                client.callProcedure(check, "R.insert", i, row);
+            }
+        }
+        client.drain();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        final int hosts = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        final int sitesPerHost = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        final long rows = megabytes * 1024L * 1024L / ROW_SIZE;
+        final int rejoinHost = hosts - 1;
+
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema(SCHEMA);
+        LocalCluster cluster = new LocalCluster("rejoinbench.jar", sitesPerHost, hosts, 1, BackendTarget.NATIVE_EE_JNI);
+        cluster.setHasLocalServer(false);
+        cluster.setMaxHeap(4096);
+        for (String property : FORWARDED_PROPERTIES) {
+            if (System.getProperty(property) != null) {
+                cluster.setJavaProperty(property, System.getProperty(property));
+            }
+        }
+        if (!cluster.compile(builder)) {
+            throw new RuntimeException("Failed to compile the benchmark catalog");
+        }
+        cluster.startUp();
+
+        final Client client = ClientFactory.createClient();
+        for (int i = 0; i < rejoinHost; i++) {
+            client.createConnection(cluster.getListenerAddress(i));
+        }
+
+        try {
+            System.out.printf("Loading %d MB, %d rows, into %d hosts with %d sites each\n",
+                              megabytes, rows, hosts, sitesPerHost);
+            long start = System.nanoTime();
+            load(client, rows);
+            System.out.printf("Loaded in %.1f s\n", (System.nanoTime() - start) / 1e9);
+
+            cluster.killSingleHost(rejoinHost);
+            Thread.sleep(1000);
+
+            final AtomicBoolean done = new AtomicBoolean(false);
+            final Thread sampler = new Thread("Rejoin stats sampler") {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        try {
+                            Thread.sleep(1000);
+                            printProgress(client.callProcedure("@Statistics", "REJOIN", 0).getResults()[0]);
+                        } catch (Exception e) {
+                            // The stats are best effort while the cluster changes
+                        }
+                    }
+                }
+            };
+            sampler.setDaemon(true);
+            sampler.start();
+
+            start = System.nanoTime();
+            if (!cluster.recoverOne(rejoinHost, null, "")) {
+                throw new RuntimeException("Host " + rejoinHost + " failed to rejoin");
+            }
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            done.set(true);
+            sampler.join();
+
+            System.out.printf("Rejoined host %d in %.1f s, %.1f MB/s of table data\n",
+                              rejoinHost, seconds, megabytes * 1.1 / seconds);
+            printProgress(client.callProcedure("@Statistics", "REJOIN", 0).getResults()[0]);
+        } finally {
+            client.close();
+            cluster.shutDown();
+        }
+    }
+
+    private static void printProgress(VoltTable stats) {
+        long moved = 0;
+        long total = 0;
+        double mbPerSecond = 0;
+        long remaining = -1;
+        int outstanding = 0;
+        int window = 0;
+        long minRtt = Long.MAX_VALUE;
+        while (stats.advanceRow()) {
+            moved += stats.getLong("MOVED_ROWS");
+            total += Math.max(0, stats.getLong("TOTAL_ROWS"));
+            mbPerSecond += stats.getDouble("MEGABYTES_PER_SECOND");
+            remaining = Math.max(remaining, stats.getLong("ESTIMATED_REMAINING"));
+            outstanding += (int) stats.getLong("OUTSTANDING_BLOCKS");
+            window += (int) stats.getLong("WINDOW");
+            final long rtt = stats.getLong("MIN_ROUND_TRIP");
+            if (rtt > 0) {
+                minRtt = Math.min(minRtt, rtt);
+            }
+        }
+        System.out.printf("  %d/%d rows, %.1f MB/s, %d ms left, %d/%d blocks in flight, min round trip %d us\n",
+                          moved, total, mbPerSecond, remaining, outstanding, window,
+                          minRtt == Long.MAX_VALUE ? 0 : minRtt);
+        System.out.flush();
+    }
+}
@@ -0,0 +1,104 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestStreamSnapshotFlowControl {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Simulate a receiver that applies every block as soon as it arrives: each
+     * block in the window comes back one round trip after it was sent.
+     */
+    private static long runFastReceiver(StreamSnapshotFlowControl fc, long start, long duration, long rtt) {
+        long now = start;
+        while (now < start + duration) {
+            final int window = fc.getWindow();
+            for (int i = 0; i < window; i++) {
+                fc.ackReceived(now, now + rtt);
+            }
+            now += rtt;
+        }
+        return now;
+    }
+
+    @Test
+    public void testWindowGrowsWhileReceiverKeepsUp() {
+        StreamSnapshotFlowControl fc = new StreamSnapshotFlowControl();
+        assertEquals(StreamSnapshotFlowControl.INITIAL_WINDOW, fc.getWindow());
+
+        runFastReceiver(fc, 0, 5000 * MS, MS);
+        assertEquals(StreamSnapshotFlowControl.MAX_WINDOW, fc.getWindow());
+        assertEquals(MS, fc.getMinRttNanos());
+    }
+
+    @Test
+    public void testWindowSettlesAtSlowReceiverRate() {
+        StreamSnapshotFlowControl fc = new StreamSnapshotFlowControl();
+        // Ramp up while the receiver is fast
+        long now = runFastReceiver(fc, 0, 2000 * MS, MS);
+        assertTrue(fc.getWindow() > 16);
+
+        // Then it only applies a block every 10ms, everything sent queues up behind it
+        for (int i = 0; i < 500; i++) {
+            now += 10 * MS;
+            fc.ackReceived(now - MS - 10 * MS * fc.getWindow(), now);
+        }
+        // 100 acks/s over a 1ms round trip is less than a block in flight
+        assertEquals(100.0, fc.getAckRate(), 5.0);
+        assertEquals(1 + StreamSnapshotFlowControl.HEADROOM, fc.getWindow());
+    }
+
+    @Test
+    public void testProbeRttDrainsAndRemeasures() {
+        StreamSnapshotFlowControl fc = new StreamSnapshotFlowControl();
+        long now = runFastReceiver(fc, 0, 1000 * MS, MS);
+        final int window = fc.getWindow();
+
+        // The path gets slower, the old minimum stays until it expires
+        now = runFastReceiver(fc, now, StreamSnapshotFlowControl.MIN_RTT_EXPIRY_NANOS, 5 * MS);
+        assertEquals(MS, fc.getMinRttNanos());
+
+        // The next ack past the expiry starts a probe with the minimum window
+        fc.ackReceived(now, now + 5 * MS);
+        now += 5 * MS;
+        assertEquals(StreamSnapshotFlowControl.MIN_WINDOW, fc.getWindow());
+        assertEquals(5 * MS, fc.getMinRttNanos());
+
+        // Acks during the probe don't reopen the window
+        now = runFastReceiver(fc, now, 150 * MS, 5 * MS);
+        assertEquals(StreamSnapshotFlowControl.MIN_WINDOW, fc.getWindow());
+
+        // Once it is over the window is sized from the new round trip
+        now = runFastReceiver(fc, now, 3000 * MS, 5 * MS);
+        assertTrue(fc.getWindow() >= window);
+    }
+}
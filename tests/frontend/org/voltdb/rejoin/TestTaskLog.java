@@ -24,6 +24,7 @@
 package org.voltdb.rejoin;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -368,4 +369,43 @@ public class TestTaskLog {
         }
         assertEquals(100, count);
     }
+
+    @Test
+    public void testReplayCounters() throws IOException {
+        System.out.println("Running testReplayCounters");
+        // spill several buffers so replay reads them back from disk
+        TxnEgo spego = TxnEgo.makeZero(0);
+        for (int i = 0; i < 10; i++) {
+            final long uniqueId = m_uniqueIdGenerator.getNextUniqueId();
+            StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+            invocation.setProcName("hah");
+            invocation.setParams(1l, "haha", 3.3, new byte[1024 * 128]);
+
+            Iv2InitiateTaskMessage task =
+                new Iv2InitiateTaskMessage(1, 2, Long.MIN_VALUE, spego.getTxnId(), uniqueId,
+                        false, true, invocation, 4, 5, false);
+            task.setSpHandle(spego.getTxnId());
+            spego = spego.makeNext();
+            m_log.logTask(task);
+        }
+        assertEquals(10, m_log.getLoggedTasks());
+        assertEquals(10, m_log.getPendingTasks());
+        assertTrue(m_log.getLoggedBytes() > 10 * 1024 * 128);
+        assertFalse(m_log.isReplaying());
+        assertTrue(TaskLogImpl.getAll().contains(m_log));
+
+        int count = 0;
+        while (!m_log.isEmpty()) {
+            if (m_log.getNextMessage() != null) {
+                count++;
+            }
+        }
+        assertEquals(10, count);
+        assertEquals(10, m_log.getReplayedTasks());
+        assertEquals(0, m_log.getPendingTasks());
+        assertTrue(m_log.isReplaying());
+
+        m_log.close(true);
+        assertFalse(TaskLogImpl.getAll().contains(m_log));
+    }
 }
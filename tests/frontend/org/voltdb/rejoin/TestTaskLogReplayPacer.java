@@ -0,0 +1,88 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestTaskLogReplayPacer {
+
+    private static final double MIN_RATIO = 0.6;
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testRatesAreMeasuredPerInterval() {
+        TaskLogReplayPacer pacer = new TaskLogReplayPacer();
+        pacer.update(0, 0, 0, 0, MIN_RATIO, false);
+        pacer.update(500, 500, 0, 500, MIN_RATIO, false);
+        // Interval not over yet
+        assertEquals(0.0, pacer.getLogRate(), DELTA);
+
+        pacer.update(1000, 2000, 0, 2000, MIN_RATIO, false);
+        assertEquals(2000.0, pacer.getLogRate(), DELTA);
+        assertEquals(0.0, pacer.getReplayRate(), DELTA);
+        // Still recording, replay keeps the minimum share
+        assertEquals(MIN_RATIO, pacer.getReplayRatio(MIN_RATIO), DELTA);
+        assertEquals(-1, pacer.getEstimatedCatchupMillis(2000));
+    }
+
+    @Test
+    public void testRatioRisesWhileLogOutgrowsReplay() {
+        TaskLogReplayPacer pacer = new TaskLogReplayPacer();
+        long logged = 0;
+        long replayed = 0;
+        pacer.update(0, logged, replayed, 0, MIN_RATIO, true);
+        for (int second = 1; second <= 20; second++) {
+            logged += 1000;
+            replayed += 900;
+            pacer.update(second * 1000, logged, replayed, logged - replayed, MIN_RATIO, true);
+        }
+        assertEquals(TaskLogReplayPacer.MAX_REPLAY_RATIO, pacer.getReplayRatio(MIN_RATIO), DELTA);
+        assertEquals(-1, pacer.getEstimatedCatchupMillis(logged - replayed));
+    }
+
+    @Test
+    public void testRatioRelaxesOnceCatchingUp() {
+        TaskLogReplayPacer pacer = new TaskLogReplayPacer();
+        long logged = 0;
+        long replayed = 0;
+        pacer.update(0, logged, replayed, 0, MIN_RATIO, true);
+        // Falling behind for a few seconds
+        for (int second = 1; second <= 4; second++) {
+            logged += 1000;
+            pacer.update(second * 1000, logged, replayed, logged - replayed, MIN_RATIO, true);
+        }
+        assertEquals(MIN_RATIO + 4 * TaskLogReplayPacer.RATIO_STEP, pacer.getReplayRatio(MIN_RATIO), DELTA);
+
+        // Then draining 1000 tasks a second, well within the target
+        for (int second = 5; second <= 20; second++) {
+            logged += 1000;
+            replayed += 2000;
+            pacer.update(second * 1000, logged, replayed, Math.max(0, logged - replayed), MIN_RATIO, true);
+        }
+        assertEquals(MIN_RATIO, pacer.getReplayRatio(MIN_RATIO), DELTA);
+        assertEquals(1000, pacer.getEstimatedCatchupMillis(1000));
+    }
+}
@@ -0,0 +1,182 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.utils.PosixAdvise;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+/**
+ * Writes table save files of increasing size and times loading them the way a
+ * restore does at startup: sites take chunks from the file while it is read,
+ * checksummed and decompressed. Reports the time to load each size and the
+ * throughput of each phase. Set SNAPSHOT_DECOMPRESSION_THREADS to compare pool sizes.
+ * Usage: TableSaveFileBenchmark [sizes in MB, comma separated] [sites] [directory]
+ */
+public class TableSaveFileBenchmark {
+
+    private static final int ROWS_PER_CHUNK = 16 * 1024;
+
+    static {
+        org.voltdb.NativeLibraryLoader.loadVoltDB();
+    }
+
+    private static VoltTable schema() {
+        return new VoltTable(new ColumnInfo("ID", VoltType.BIGINT),
+                             new ColumnInfo("NAME", VoltType.STRING),
+                             new ColumnInfo("VALUE", VoltType.FLOAT));
+    }
+
+    /** A chunk of rows with some repetition in them, serialized the way snapshot targets receive them */
+    private static ByteBuffer chunk() throws Exception {
+        final Random r = new Random(0);
+        final VoltTable t = schema();
+        for (int i = 0; i < ROWS_PER_CHUNK; i++) {
+            t.addRow(i, "customer_" + r.nextInt(100000) + "_" + (i % 10 == 0 ? "premium" : "standard"),
+                     r.nextDouble());
+        }
+        FastSerializer fs = new FastSerializer();
+        fs.writeTable(t);
+        BBContainer c = fs.getBBContainer();
+        ByteBuffer b = c.b();
+        b.getInt();
+        int headerLength = b.getInt();
+        b.position(b.position() + headerLength);// at row count
+        ByteBuffer rows = ByteBuffer.allocate(b.remaining());
+        rows.put(b).flip();
+        c.discard();
+        return rows;
+    }
+
+    private static long write(File f, ByteBuffer rows, long bytes, int partitions) throws Exception {
+        List<Integer> partitionIds = new ArrayList<Integer>();
+        for (int i = 0; i < partitions; i++) {
+            partitionIds.add(i);
+        }
+        DefaultSnapshotDataTarget target = new DefaultSnapshotDataTarget(f, 0, "cluster", "database", "T",
+                partitions, false, partitionIds, schema(), 0, System.currentTimeMillis());
+        long written = 0;
+        for (int chunk = 0; written < bytes; chunk++) {
+            BBContainer container = DBBPool.allocateDirect(rows.remaining() + 4);
+            ByteBuffer payload = container.b();
+            payload.putInt(chunk % partitions);
+            payload.put(rows.duplicate());
+            payload.flip();
+            target.write(Callables.returning(container), -1).get();
+            written += rows.remaining();
+        }
+        target.close();
+        return written;
+    }
+
+    private static void load(File f, long bytes, int sites) throws Exception {
+        // Start from disk rather than the page cache the file was written through
+        try (FileInputStream fis = new FileInputStream(f)) {
+            PosixAdvise.fadvise(fis.getFD(), 0, f.length(), PosixAdvise.POSIX_FADV_DONTNEED);
+        }
+
+        RestoreProgress.begin(f.getParent(), "benchmark");
+        final RestoreProgress.TableProgress progress = RestoreProgress.forTable("T");
+        final TableSaveFile savefile = new TableSaveFile(new FileInputStream(f), sites * 2, null);
+        savefile.setProgress(progress);
+        final AtomicLong rows = new AtomicLong();
+        final long start = System.nanoTime();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < sites; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    progress.startLoader();
+                    BBContainer c;
+                    while ((c = savefile.getNextChunk()) != null) {
+                        final long loadStart = System.nanoTime();
+                        final int chunkBytes = c.b().remaining();
+                        try {
+                            VoltTable t = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), true);
+                            long count = 0;
+                            while (t.advanceRow()) {
+                                count++;
+                            }
+                            rows.addAndGet(count);
+                        } finally {
+                            c.discard();
+                        }
+                        progress.record(RestoreProgress.Phase.LOAD, chunkBytes, System.nanoTime() - loadStart);
+                    }
+                    progress.finishLoader();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, "Site " + i));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        final double seconds = (System.nanoTime() - start) / 1000000000.0;
+        savefile.close();
+
+        System.out.printf("%6d MB %7.2f s %8.1f MB/s from disk %8.1f MB/s loaded %10d rows%n",
+                bytes / (1024 * 1024),
+                seconds,
+                f.length() / (1024.0 * 1024.0) / seconds,
+                bytes / (1024.0 * 1024.0) / seconds,
+                rows.get());
+        System.out.println("          " + progress);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String sizes = args.length > 0 ? args[0] : "64,256,1024,4096";
+        final int sites = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final File dir = args.length > 2 ? new File(args[2]) : new File(System.getProperty("java.io.tmpdir"));
+
+        final ByteBuffer rows = chunk();
+        for (String size : sizes.split(",")) {
+            final File f = File.createTempFile("restorebench", ".vpt", dir);
+            try {
+                final long bytes = write(f, rows, Long.parseLong(size.trim()) * 1024 * 1024, sites);
+                load(f, bytes, sites);
+            } finally {
+                f.delete();
+            }
+        }
+    }
+}
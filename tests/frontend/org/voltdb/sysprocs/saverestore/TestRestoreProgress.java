@@ -0,0 +1,89 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.voltdb.RestoreStatus;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.sysprocs.saverestore.RestoreProgress.Phase;
+import org.voltdb.sysprocs.saverestore.RestoreProgress.TableProgress;
+
+public class TestRestoreProgress {
+
+    @Test
+    public void testPhasesFinishWithTheLastLoader() {
+        RestoreProgress.begin("/tmp/snapshots", "nonce");
+        TableProgress t = RestoreProgress.forTable("T");
+        assertSame(t, RestoreProgress.forTable("T"));
+
+        t.startLoader();
+        t.startLoader();
+        t.record(Phase.READ, 1024 * 1024, 1000000);
+        t.record(Phase.DECOMPRESS, 2 * 1024 * 1024, 4000000);
+        t.record(Phase.LOAD, 2 * 1024 * 1024, 8000000);
+        assertEquals(1000.0, t.get(Phase.READ).getThroughput(), 0.001);
+        assertEquals(500.0, t.get(Phase.DECOMPRESS).getThroughput(), 0.001);
+        assertTrue(t.get(Phase.READ).getStartTime() > 0);
+        assertEquals(0, t.get(Phase.READ).getEndTime());
+
+        assertFalse(t.finishLoader());
+        assertFalse(t.get(Phase.LOAD).isFinished());
+        assertTrue(t.finishLoader());
+        for (Phase phase : Phase.values()) {
+            assertTrue(t.get(phase).isFinished());
+            assertTrue(t.get(phase).getEndTime() >= t.get(phase).getStartTime());
+        }
+
+        // A site that finds the files already read does not report the table again
+        t.startLoader();
+        assertFalse(t.finishLoader());
+
+        // @Statistics RESTORESTATUS has a row per phase of the table
+        RestoreStatus status = new RestoreStatus();
+        VoltTable rows = new VoltTable(status.getColumnSchema().toArray(new ColumnInfo[0]));
+        for (Object[] row : status.getStatsRows(false, System.currentTimeMillis())) {
+            rows.addRow(row);
+        }
+        assertEquals(Phase.values().length, rows.getRowCount());
+        for (Phase phase : Phase.values()) {
+            assertTrue(rows.advanceRow());
+            assertEquals("T", rows.getString("TABLE"));
+            assertEquals(phase.name(), rows.getString("PHASE"));
+            assertEquals("nonce", rows.getString("NONCE"));
+            assertEquals("SUCCESS", rows.getString("RESULT"));
+            assertEquals(t.get(phase).getBytes(), rows.getLong("BYTES"));
+        }
+
+        RestoreProgress.begin("/tmp/snapshots", "next");
+        assertNull(RestoreProgress.getTable("T"));
+        assertEquals("next", RestoreProgress.getNonce());
+    }
+}
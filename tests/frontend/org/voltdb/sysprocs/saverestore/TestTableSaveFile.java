@@ -305,4 +305,46 @@ public class TestTableSaveFile extends TestCase {
             savefile.close();
         }
     }
+
+    public void testParallelDecompressionKeepsChunkOrder() throws Exception {
+        System.out.println("Running testParallelDecompressionKeepsChunkOrder");
+        Pair<VoltTable, File> generated = generateTestTable(100000);
+        File f = generated.getSecond();
+
+        // Only every other chunk is relevant, the rest are skipped by the decompression pool
+        Integer[] relevantPartitionIds = new Integer[50];
+        for (int i = 0; i < relevantPartitionIds.length; i++) {
+            relevantPartitionIds[i] = i * 2;
+        }
+        RestoreProgress.begin(f.getParent(), "nonce");
+        RestoreProgress.TableProgress progress = RestoreProgress.forTable(TABLE_NAME);
+        FileInputStream fis = new FileInputStream(f);
+        TableSaveFile savefile = new TableSaveFile(fis, 16, relevantPartitionIds);
+        savefile.setProgress(progress);
+        try {
+            int expectedPartitionId = 0;
+            while (savefile.hasMoreChunks()) {
+                final BBContainer c = savefile.getNextChunk();
+                if (c == null) {
+                    break;
+                }
+                try {
+                    assertEquals(expectedPartitionId, ((TableSaveFile.Container)c).partitionId);
+                    VoltTable test_table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), false);
+                    assertEquals(1000, test_table.getRowCount());
+                    test_table.advanceRow();
+                    assertEquals(expectedPartitionId * 1000, test_table.getLong(0));
+                } finally {
+                    c.discard();
+                }
+                expectedPartitionId += 2;
+            }
+            assertEquals(100, expectedPartitionId);
+        } finally {
+            savefile.close();
+        }
+        assertTrue(savefile.getCorruptedPartitionIds().isEmpty());
+        assertTrue(progress.get(RestoreProgress.Phase.READ).getBytes() > 0);
+        assertTrue(progress.get(RestoreProgress.Phase.DECOMPRESS).getBytes() > 0);
+    }
 }
@@ -0,0 +1,151 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.voltdb.utils.SystemStatsCollector.Datum;
+import org.voltdb.utils.SystemStatsCollector.History;
+import org.voltdb.utils.SystemStatsCollector.ProcFile;
+
+import junit.framework.TestCase;
+
+public class TestSystemStatsCollector extends TestCase {
+
+    private static long[] sample(long timestamp) {
+        long[] sample = new long[SystemStatsCollector.FIELD_COUNT];
+        sample[SystemStatsCollector.TIMESTAMP] = timestamp;
+        sample[SystemStatsCollector.RSS] = timestamp * 10;
+        return sample;
+    }
+
+    public void testHistoryKeepsMostRecentSamples() {
+        History history = new History(4);
+        assertNull(history.latest());
+        assertTrue(history.toList().isEmpty());
+
+        for (long ii = 1; ii <= 10; ii++) {
+            history.add(sample(ii));
+        }
+        assertEquals(10, history.latest().timestamp);
+        assertEquals(100, history.latest().rss);
+
+        // The slot the writer fills next is not handed to readers
+        List<Datum> samples = history.toList();
+        assertEquals(3, samples.size());
+        assertEquals(8, samples.get(0).timestamp);
+        assertEquals(10, samples.get(2).timestamp);
+
+        long[] out = new long[SystemStatsCollector.FIELD_COUNT];
+        assertTrue(history.readRecent(1, out));
+        assertEquals(9, out[SystemStatsCollector.TIMESTAMP]);
+        assertFalse(history.readRecent(3, out));
+    }
+
+    private static ProcFile procFile(String contents) throws Exception {
+        File file = File.createTempFile("procfile", null);
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(contents.getBytes(StandardCharsets.UTF_8));
+        }
+        ProcFile procFile = new ProcFile(file.getPath());
+        assertTrue(procFile.read());
+        return procFile;
+    }
+
+    public void testParseStat() throws Exception {
+        // A command name may contain spaces and parentheses
+        ProcFile stat = procFile("4242 (Volt (x) 1) S 1 4242 4242 0 -1 4194304 1234 0 56 0 789 321 0 0 20 0 " +
+                "80 0 883066 2568192 5000 18446744073709551615 0\n");
+        assertEquals(1234, stat.statField(7));
+        assertEquals(56, stat.statField(9));
+        assertEquals(789, stat.statField(11));
+        assertEquals(321, stat.statField(12));
+        assertEquals(5000, stat.statField(21));
+        // A negative field is not a counter
+        assertEquals(-1, stat.statField(5));
+        // Re-reading does not duplicate anything
+        assertTrue(stat.read());
+        assertEquals(5000, stat.statField(21));
+    }
+
+    public void testParseLineValues() throws Exception {
+        ProcFile io = procFile("rchar: 3980\nwchar: 7\nread_bytes: 4096\nwrite_bytes: 8192\ncancelled_write_bytes: 12\n");
+        assertEquals(4096, io.lineValue("read_bytes"));
+        assertEquals(8192, io.lineValue("write_bytes"));
+        assertEquals(-1, io.lineValue("syscr"));
+
+        ProcFile status = procFile("Name:\tjava\nvoluntary_ctxt_switches:\t31\nnonvoluntary_ctxt_switches:\t5\n");
+        assertEquals(31, status.lineValue("voluntary_ctxt_switches"));
+        assertEquals(5, status.lineValue("nonvoluntary_ctxt_switches"));
+    }
+
+    public void testSampleThisProcess() throws Exception {
+        if (!new File("/proc/self/stat").exists()) {
+            return;
+        }
+        Datum first = SystemStatsCollector.sampleSystemNow(false, false);
+        assertNotNull(first);
+        assertTrue(first.rss > 0);
+        assertTrue(first.cpumillis >= 0);
+        assertTrue(first.minorfaults > 0);
+        assertTrue(first.voluntaryswitches >= 0);
+
+        // Burn some CPU on this thread so it shows up in the next thread sample
+        long sink = 0;
+        long end = System.nanoTime() + 200 * 1000 * 1000;
+        while (System.nanoTime() < end) {
+            sink += sink * 31 + 7;
+        }
+        Datum second = SystemStatsCollector.sampleSystemNow(false, false);
+        assertTrue(second.cpumillis >= first.cpumillis);
+        assertTrue(SystemStatsCollector.getRecentCpuPercent() >= 0);
+        assertEquals(second.timestamp, SystemStatsCollector.getRecentSample().timestamp);
+
+        ThreadCpuSampler.Snapshot threads = ThreadCpuSampler.getLatest();
+        assertNotNull(threads);
+        assertTrue(threads.intervalNanos > 0);
+        int self = -1;
+        for (int ii = 0; ii < threads.size(); ii++) {
+            if (threads.threadIds[ii] == Thread.currentThread().getId()) {
+                self = ii;
+            }
+        }
+        assertTrue(self >= 0);
+        assertTrue("sink " + sink, threads.percentUsed(self) > 10);
+        // Hottest first
+        assertTrue(threads.intervalCpuNanos[0] >= threads.intervalCpuNanos[threads.size() - 1]);
+    }
+
+    public void testThreadRoles() {
+        assertEquals(ThreadCpuSampler.Role.SITE, ThreadCpuSampler.Role.of("SP 3 Site - 0:3"));
+        assertEquals(ThreadCpuSampler.Role.SITE, ThreadCpuSampler.Role.of("MP Site - 0:16"));
+        assertEquals(ThreadCpuSampler.Role.NETWORK, ThreadCpuSampler.Role.of("Volt Client Network - 0"));
+        assertEquals(ThreadCpuSampler.Role.NETWORK, ThreadCpuSampler.Role.of("Pico Network - Host 1"));
+        assertEquals(ThreadCpuSampler.Role.EXPORT, ThreadCpuSampler.Role.of("ExportDataSource for table T partition 0"));
+        assertEquals(ThreadCpuSampler.Role.OTHER, ThreadCpuSampler.Role.of("Periodic Work"));
+    }
+}
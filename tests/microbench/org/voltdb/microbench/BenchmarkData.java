@@ -0,0 +1,166 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Deterministic values shared by the microbenchmarks, so a run against a change
+ * and a run against its baseline work on exactly the same data.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 0x766f6c74L;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+    private static final int STRING_LENGTH = 24;
+    private static final int VARBINARY_LENGTH = 32;
+
+    /** The column or parameter types a benchmark cycles through */
+    enum Mix {
+        INTS(VoltType.BIGINT, VoltType.INTEGER),
+        MIXED(VoltType.BIGINT, VoltType.STRING, VoltType.FLOAT, VoltType.TIMESTAMP,
+              VoltType.DECIMAL, VoltType.INTEGER, VoltType.VARBINARY),
+        STRINGS(VoltType.STRING);
+
+        private final VoltType[] m_types;
+
+        Mix(VoltType... types) {
+            m_types = types;
+        }
+
+        VoltType typeAt(int index) {
+            return m_types[index % m_types.length];
+        }
+    }
+
+    private BenchmarkData() {}
+
+    static Random random() {
+        return new Random(SEED);
+    }
+
+    static Object value(VoltType type, Random random) {
+        switch (type) {
+        case BIGINT:
+            return random.nextLong();
+        case INTEGER:
+            return random.nextInt();
+        case FLOAT:
+            return random.nextDouble();
+        case TIMESTAMP:
+            // Microseconds within a few centuries of the epoch
+            return new TimestampType(random.nextLong() % 10000000000000000L);
+        case DECIMAL:
+            return new BigDecimal(BigInteger.valueOf(random.nextLong()), 12);
+        case VARBINARY:
+            return bytes(random, VARBINARY_LENGTH);
+        case STRING:
+            return string(random, STRING_LENGTH);
+        default:
+            throw new IllegalArgumentException("No benchmark values for " + type);
+        }
+    }
+
+    static Object[] values(Mix mix, int count, Random random) {
+        final Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = value(mix.typeAt(i), random);
+        }
+        return values;
+    }
+
+    static ColumnInfo[] columns(Mix mix, int count) {
+        final ColumnInfo[] columns = new ColumnInfo[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = new ColumnInfo("C" + i, mix.typeAt(i));
+        }
+        return columns;
+    }
+
+    /** Rows of random values, built up front so a benchmark only times what it measures */
+    static Object[][] rows(Mix mix, int columns, int rows) {
+        final Random random = random();
+        final Object[][] values = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            values[i] = values(mix, columns, random);
+        }
+        return values;
+    }
+
+    static VoltTable table(Mix mix, int columns, int rows) {
+        final VoltTable table = new VoltTable(columns(mix, columns));
+        for (Object[] row : rows(mix, columns, rows)) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    /** @return the table in its wire format, flipped for reading */
+    static ByteBuffer serialize(VoltTable table, boolean direct) {
+        final int size = table.getSerializedSize();
+        final ByteBuffer buf = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        table.flattenToBuffer(buf);
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * @return size bytes of serialized table data of the mix, which compresses
+     * about as well as the snapshot and export data of such a schema
+     */
+    static byte[] payload(Mix mix, int size) {
+        final ByteBuffer table = serialize(table(mix, 8, size / 64 + 1), false);
+        final byte[] payload = new byte[size];
+        int offset = 0;
+        while (offset < size) {
+            final int length = Math.min(table.limit(), size - offset);
+            table.rewind();
+            table.get(payload, offset, length);
+            offset += length;
+        }
+        return payload;
+    }
+
+    static byte[] bytes(Random random, int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    static String string(Random random, int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+
+/**
+ * Serialize a procedure response with one result table, as the server does before
+ * it is written to the client connection, and read it back as the client does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientResponseBenchmark {
+
+    private static final int COLUMNS = 4;
+
+    @Param({"INTS", "MIXED", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    /** Rows in the result table */
+    @Param({"1", "64", "1024"})
+    int size;
+
+    private VoltTable[] m_results;
+    private ByteBuffer m_out;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() {
+        m_results = new VoltTable[] { BenchmarkData.table(mix, COLUMNS, size) };
+        final ClientResponseImpl response = response();
+        m_out = ByteBuffer.allocate(response.getSerializedSize());
+        m_serialized = ByteBuffer.allocate(response.getSerializedSize());
+        response.flattenToBuffer(m_serialized).flip();
+    }
+
+    private ClientResponseImpl response() {
+        return new ClientResponseImpl(ClientResponse.SUCCESS, m_results, null, 42);
+    }
+
+    /** Sizing encodes the status strings, so it is part of every serialization */
+    @Benchmark
+    public ByteBuffer flattenToBuffer() {
+        final ClientResponseImpl response = response();
+        m_out.clear();
+        response.getSerializedSize();
+        return response.flattenToBuffer(m_out);
+    }
+
+    @Benchmark
+    public ClientResponseImpl initFromBuffer() throws IOException {
+        final ClientResponseImpl response = new ClientResponseImpl();
+        response.initFromBuffer(m_serialized.duplicate());
+        return response;
+    }
+}
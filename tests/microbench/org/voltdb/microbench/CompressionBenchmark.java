@@ -0,0 +1,101 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.utils.CompressionService;
+
+/**
+ * Snappy compress and decompress serialized table data through CompressionService,
+ * both the byte array entry points and the direct buffer ones that snapshots use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"INTS", "MIXED", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    /** Uncompressed bytes per operation */
+    @Param({"4096", "65536", "2097152"})
+    int size;
+
+    private byte[] m_bytes;
+    private byte[] m_compressedBytes;
+    private ByteBuffer m_direct;
+    private ByteBuffer m_compressedDirect;
+    private ByteBuffer m_out;
+
+    @Setup
+    public void setup() throws IOException {
+        m_bytes = BenchmarkData.payload(mix, size);
+        m_compressedBytes = CompressionService.compressBytes(m_bytes);
+        m_direct = ByteBuffer.allocateDirect(size);
+        m_direct.put(m_bytes).flip();
+        m_compressedDirect = ByteBuffer.allocateDirect(m_compressedBytes.length);
+        m_compressedDirect.put(m_compressedBytes).flip();
+        m_out = ByteBuffer.allocateDirect(Math.max(size, CompressionService.maxCompressedLength(size)));
+    }
+
+    @Benchmark
+    public byte[] compressBytes() throws IOException {
+        return CompressionService.compressBytes(m_bytes);
+    }
+
+    @Benchmark
+    public byte[] decompressBytes() throws IOException {
+        return CompressionService.decompressBytes(m_compressedBytes);
+    }
+
+    /** Into a caller supplied buffer, without the copy out to a byte array */
+    @Benchmark
+    public int compressBuffer() throws IOException {
+        m_out.clear();
+        return CompressionService.compressBuffer(m_direct.duplicate(), m_out);
+    }
+
+    @Benchmark
+    public int decompressBuffer() throws IOException {
+        m_out.clear();
+        return CompressionService.decompressBuffer(m_compressedDirect.duplicate(), m_out);
+    }
+}
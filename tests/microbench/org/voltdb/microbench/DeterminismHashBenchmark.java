@@ -0,0 +1,133 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.HybridCrc32;
+import org.voltdb.ParameterSet;
+import org.voltdb.iv2.DeterminismHash;
+
+/**
+ * Site thread cost of the determinism hash of a write transaction: offering each
+ * statement's serialized parameters from the direct buffer handed to the EE, and
+ * comparing the hash with those of the other k replicas. The statement loop of the
+ * running HybridCrc32 the hash used to be is measured alongside as the baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeterminismHashBenchmark {
+
+    private static final int PARAMS_PER_STATEMENT = 8;
+
+    @Param({"INTS", "MIXED", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    /** Write statements in the transaction */
+    @Param({"1", "8"})
+    int statements;
+
+    /** Replicas beyond the one that hashed the transaction */
+    @Param({"1", "2"})
+    int k;
+
+    private final DeterminismHash m_hash = new DeterminismHash();
+    private final HybridCrc32 m_hybrid = new HybridCrc32();
+    private ByteBuffer m_psetBuffer;
+    private int[] m_offsets;
+    private int[] m_sqlCRCs;
+    private int[][] m_replicaHashes;
+
+    @Setup
+    public void setup() throws Exception {
+        final ParameterSet[] psets = new ParameterSet[statements];
+        int size = 0;
+        for (int i = 0; i < statements; i++) {
+            psets[i] = ParameterSet.fromArrayNoCopy(
+                    BenchmarkData.values(mix, PARAMS_PER_STATEMENT, BenchmarkData.random()));
+            size += psets[i].getSerializedSize();
+        }
+        m_psetBuffer = ByteBuffer.allocateDirect(size);
+        m_offsets = new int[statements + 1];
+        m_sqlCRCs = new int[statements];
+        for (int i = 0; i < statements; i++) {
+            m_offsets[i] = m_psetBuffer.position();
+            m_sqlCRCs[i] = 0x5eed0000 + i;
+            psets[i].flattenToBuffer(m_psetBuffer);
+        }
+        m_offsets[statements] = m_psetBuffer.position();
+
+        m_replicaHashes = new int[k][];
+        for (int i = 0; i < k; i++) {
+            m_replicaHashes[i] = hash();
+        }
+    }
+
+    @Benchmark
+    public int[] hash() {
+        m_hash.reset(1);
+        for (int i = 0; i < statements; i++) {
+            m_psetBuffer.position(m_offsets[i + 1]);
+            m_hash.offerStatement(m_sqlCRCs[i], m_offsets[i], m_psetBuffer);
+        }
+        return m_hash.get();
+    }
+
+    @Benchmark
+    public int hashAndCompare() {
+        final int[] hashes = hash();
+        int mismatch = -1;
+        for (int[] replica : m_replicaHashes) {
+            mismatch = Math.max(mismatch, DeterminismHash.compareHashes(hashes, replica));
+        }
+        return mismatch;
+    }
+
+    @Benchmark
+    public long hybridCrc32() {
+        m_hybrid.reset();
+        for (int i = 0; i < statements; i++) {
+            m_hybrid.update(m_sqlCRCs[i]);
+            m_psetBuffer.position(m_offsets[i + 1]);
+            m_hybrid.updateFromPosition(m_offsets[i], m_psetBuffer);
+        }
+        return m_hybrid.getValue();
+    }
+}
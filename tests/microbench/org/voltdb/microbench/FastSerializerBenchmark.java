@@ -0,0 +1,172 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Write a run of typed values with a FastSerializer and read them back with a
+ * FastDeserializer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastSerializerBenchmark {
+
+    @Param({"INTS", "MIXED", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    /** Values written per operation */
+    @Param({"4", "32", "256"})
+    int size;
+
+    private VoltType[] m_types;
+    private Object[] m_values;
+    private FastSerializer m_reused;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        m_types = new VoltType[size];
+        m_values = BenchmarkData.values(mix, size, BenchmarkData.random());
+        for (int i = 0; i < size; i++) {
+            m_types[i] = mix.typeAt(i);
+            if (m_types[i] == VoltType.DECIMAL) {
+                // FastSerializer only writes decimals as arrays
+                m_values[i] = new BigDecimal[] { (BigDecimal) m_values[i] };
+            }
+        }
+        m_reused = new FastSerializer();
+        final FastSerializer fs = new FastSerializer();
+        write(fs);
+        final BBContainer written = fs.getBBContainer();
+        m_serialized = ByteBuffer.allocate(written.b().remaining());
+        m_serialized.put(written.b()).flip();
+        written.discard();
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_reused.getBBContainer().discard();
+    }
+
+    /** A fresh serializer per message, which is what most callers do */
+    @Benchmark
+    public int serialize() throws IOException {
+        final FastSerializer fs = new FastSerializer();
+        write(fs);
+        final BBContainer written = fs.getBBContainer();
+        final int size = written.b().remaining();
+        written.discard();
+        return size;
+    }
+
+    @Benchmark
+    public int serializeReused() throws IOException {
+        m_reused.clear();
+        write(m_reused);
+        return m_reused.size();
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole bh) throws IOException {
+        final FastDeserializer fds = new FastDeserializer(m_serialized.duplicate());
+        for (VoltType type : m_types) {
+            switch (type) {
+            case BIGINT:
+            case TIMESTAMP:
+                bh.consume(fds.readLong());
+                break;
+            case INTEGER:
+                bh.consume(fds.readInt());
+                break;
+            case FLOAT:
+                bh.consume(fds.readDouble());
+                break;
+            case DECIMAL:
+                fds.readShort();
+                bh.consume(fds.readBigDecimal());
+                break;
+            case VARBINARY:
+                bh.consume(fds.readVarbinary());
+                break;
+            default:
+                bh.consume(fds.readString());
+            }
+        }
+    }
+
+    private void write(FastSerializer fs) throws IOException {
+        for (int i = 0; i < m_types.length; i++) {
+            final Object value = m_values[i];
+            switch (m_types[i]) {
+            case BIGINT:
+                fs.writeLong((Long) value);
+                break;
+            case TIMESTAMP:
+                fs.writeLong(((TimestampType) value).getTime());
+                break;
+            case INTEGER:
+                fs.writeInt((Integer) value);
+                break;
+            case FLOAT:
+                fs.writeDouble((Double) value);
+                break;
+            case DECIMAL:
+                fs.writeArray((BigDecimal[]) value);
+                break;
+            case VARBINARY:
+                fs.writeVarbinary((byte[]) value);
+                break;
+            default:
+                fs.writeString((String) value);
+            }
+        }
+    }
+}
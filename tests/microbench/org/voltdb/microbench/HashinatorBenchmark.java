@@ -0,0 +1,113 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.ElasticHashinator;
+import org.voltdb.VoltType;
+
+/**
+ * Route keys to partitions the way the client affinity code and the initiator do.
+ * Each operation hashes the next key of a pre-built set so the token lookup does
+ * not always hit the same part of the ring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashinatorBenchmark {
+
+    private static final int KEYS = 4096;
+
+    /** INTS partitions on a BIGINT parameter, STRINGS on a VARCHAR one */
+    @Param({"INTS", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    /** Bytes in each VARCHAR or VARBINARY key */
+    @Param({"8", "64"})
+    int size;
+
+    @Param({"8", "64"})
+    int partitions;
+
+    private ElasticHashinator m_hashinator;
+    private long[] m_longKeys;
+    private byte[][] m_byteKeys;
+    private Object[] m_paramKeys;
+    private VoltType m_paramType;
+    private int m_next;
+
+    @Setup
+    public void setup() {
+        m_hashinator = new ElasticHashinator(partitions);
+        final Random random = BenchmarkData.random();
+        m_longKeys = new long[KEYS];
+        m_byteKeys = new byte[KEYS][];
+        m_paramKeys = new Object[KEYS];
+        m_paramType = mix == BenchmarkData.Mix.INTS ? VoltType.BIGINT : VoltType.STRING;
+        for (int i = 0; i < KEYS; i++) {
+            m_longKeys[i] = random.nextLong();
+            final String key = BenchmarkData.string(random, size);
+            m_byteKeys[i] = key.getBytes(StandardCharsets.UTF_8);
+            m_paramKeys[i] = m_paramType == VoltType.BIGINT ? (Object) m_longKeys[i] : key;
+        }
+    }
+
+    private int next() {
+        m_next = (m_next + 1) & (KEYS - 1);
+        return m_next;
+    }
+
+    @Benchmark
+    public int pHashinateLong() {
+        return m_hashinator.pHashinateLong(m_longKeys[next()]);
+    }
+
+    @Benchmark
+    public int pHashinateBytes() {
+        return m_hashinator.pHashinateBytes(m_byteKeys[next()]);
+    }
+
+    /** The full path for a procedure's partitioning parameter, including type coercion */
+    @Benchmark
+    public int getHashedPartitionForParameter() {
+        return m_hashinator.getHashedPartitionForParameter(m_paramType, m_paramKeys[next()]);
+    }
+}
@@ -0,0 +1,100 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.HybridCrc32;
+
+/**
+ * Checksum serialized table data with HybridCrc32, which switches from the pure Java
+ * CRC32C to the JDK CRC32 above 150 bytes. The JDK CRC32 is measured alongside as
+ * the floor for the large sizes. The cost does not depend on the content, so only
+ * the mixed payload is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HybridCrc32Benchmark {
+
+    /** Bytes checksummed per operation, on both sides of the 150 byte switch */
+    @Param({"64", "128", "4096", "1048576"})
+    int size;
+
+    private byte[] m_bytes;
+    private ByteBuffer m_heap;
+    private ByteBuffer m_direct;
+
+    @Setup
+    public void setup() {
+        m_bytes = BenchmarkData.payload(BenchmarkData.Mix.MIXED, size);
+        m_heap = ByteBuffer.wrap(m_bytes);
+        m_direct = ByteBuffer.allocateDirect(size);
+        m_direct.put(m_bytes).flip();
+    }
+
+    @Benchmark
+    public long updateBytes() {
+        final HybridCrc32 crc = new HybridCrc32();
+        crc.update(m_bytes);
+        return crc.getValue();
+    }
+
+    @Benchmark
+    public long updateHeapBuffer() {
+        final HybridCrc32 crc = new HybridCrc32();
+        crc.update(m_heap.duplicate());
+        return crc.getValue();
+    }
+
+    @Benchmark
+    public long updateDirectBuffer() {
+        final HybridCrc32 crc = new HybridCrc32();
+        crc.update(m_direct.duplicate());
+        return crc.getValue();
+    }
+
+    @Benchmark
+    public long jdkCrc32() {
+        final CRC32 crc = new CRC32();
+        crc.update(m_bytes, 0, m_bytes.length);
+        return crc.getValue();
+    }
+}
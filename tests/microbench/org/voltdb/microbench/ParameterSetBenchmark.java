@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.voltdb.ParameterSet;
+
+/**
+ * Serialize and deserialize the parameters of a procedure invocation, the way the
+ * client and the initiator do for every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterSetBenchmark {
+
+    @Param({"INTS", "MIXED", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    @Param({"4", "32", "256"})
+    int size;
+
+    private Object[] m_params;
+    private ParameterSet m_parameterSet;
+    private ByteBuffer m_out;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        m_params = BenchmarkData.values(mix, size, BenchmarkData.random());
+        m_parameterSet = ParameterSet.fromArrayNoCopy(m_params);
+        m_out = ByteBuffer.allocate(m_parameterSet.getSerializedSize());
+        m_serialized = ByteBuffer.allocate(m_parameterSet.getSerializedSize());
+        m_parameterSet.flattenToBuffer(m_serialized);
+        m_serialized.flip();
+    }
+
+    /** A new parameter set is sized and flattened, as for an outgoing invocation */
+    @Benchmark
+    public ByteBuffer flattenToBuffer() throws IOException {
+        final ParameterSet params = ParameterSet.fromArrayNoCopy(m_params);
+        m_out.clear();
+        params.flattenToBuffer(m_out);
+        return m_out;
+    }
+
+    @Benchmark
+    public ParameterSet fromByteBuffer() throws IOException {
+        return ParameterSet.fromByteBuffer(m_serialized.duplicate());
+    }
+
+    @Benchmark
+    public ParameterSet fromByteBufferNoCopy() throws IOException {
+        return ParameterSet.fromByteBufferNoCopy(m_serialized.duplicate());
+    }
+
+    /**
+     * The parameters of a single statement procedure on their way to the EE buffer,
+     * decoded for the procedure, then copied and encoded again for the statement.
+     */
+    @Benchmark
+    public ByteBuffer forwardToStatement(Blackhole bh) throws IOException {
+        final Object[] args = ParameterSet.fromByteBuffer(m_serialized.duplicate()).toArray();
+        bh.consume(args);
+        final ParameterSet stmtParams = ParameterSet.fromArrayNoCopy(args.clone());
+        m_out.clear();
+        stmtParams.flattenToBuffer(m_out);
+        return m_out;
+    }
+
+    /** The same with a lazy set whose serialized bytes go to the EE buffer as they are */
+    @Benchmark
+    public ByteBuffer forwardToStatementNoCopy(Blackhole bh) throws IOException {
+        final ParameterSet params = ParameterSet.fromByteBufferNoCopy(m_serialized.duplicate());
+        bh.consume(params.toArray());
+        m_out.clear();
+        params.flattenToBuffer(m_out);
+        return m_out;
+    }
+
+    /** Wrapping the values sizes the set and encodes its strings up front */
+    @Benchmark
+    public ParameterSet fromArrayNoCopy() {
+        return ParameterSet.fromArrayNoCopy(m_params);
+    }
+}
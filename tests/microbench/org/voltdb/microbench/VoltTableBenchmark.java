@@ -0,0 +1,135 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.microbench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Build a result table row by row and read every column back, the two things a
+ * stored procedure and a client do with a VoltTable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoltTableBenchmark {
+
+    private static final int COLUMNS = 7;
+
+    @Param({"INTS", "MIXED", "STRINGS"})
+    BenchmarkData.Mix mix;
+
+    /** Rows in the table */
+    @Param({"16", "1024"})
+    int size;
+
+    private ColumnInfo[] m_columns;
+    private VoltType[] m_types;
+    private Object[][] m_rows;
+    private VoltTable m_table;
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() {
+        m_columns = BenchmarkData.columns(mix, COLUMNS);
+        m_types = new VoltType[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            m_types[i] = mix.typeAt(i);
+        }
+        m_rows = BenchmarkData.rows(mix, COLUMNS, size);
+        m_table = BenchmarkData.table(mix, COLUMNS, size);
+        // Without the length prefix, which the client reads before it wraps a result
+        m_serialized = BenchmarkData.serialize(m_table, false);
+        m_serialized.position(4);
+        m_serialized = m_serialized.slice();
+    }
+
+    @Benchmark
+    public VoltTable addRow() {
+        final VoltTable table = new VoltTable(m_columns);
+        for (Object[] row : m_rows) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        iterate(m_table, bh);
+    }
+
+    /** Wrap a table received off the wire and read it, as a client does */
+    @Benchmark
+    public void deserializeAndIterate(Blackhole bh) {
+        iterate(PrivateVoltTableFactory.createVoltTableFromBuffer(m_serialized.duplicate(), true), bh);
+    }
+
+    private void iterate(VoltTable table, Blackhole bh) {
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            for (int i = 0; i < COLUMNS; i++) {
+                switch (m_types[i]) {
+                case BIGINT:
+                case INTEGER:
+                    bh.consume(table.getLong(i));
+                    break;
+                case FLOAT:
+                    bh.consume(table.getDouble(i));
+                    break;
+                case TIMESTAMP:
+                    bh.consume(table.getTimestampAsLong(i));
+                    break;
+                case DECIMAL:
+                    bh.consume(table.getDecimalAsBigDecimal(i));
+                    break;
+                case VARBINARY:
+                    bh.consume(table.getVarbinary(i));
+                    break;
+                default:
+                    bh.consume(table.getString(i));
+                }
+            }
+        }
+    }
+}
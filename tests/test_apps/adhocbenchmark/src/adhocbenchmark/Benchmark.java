@@ -339,6 +339,8 @@ public class Benchmark {
                 double planTimeMin = result.getLong("PLAN_TIME_MIN")/ 1000000.0;
                 double planTimeMax = result.getLong("PLAN_TIME_MAX")/ 1000000.0;
                 double planTimeAvg = result.getLong("PLAN_TIME_AVG")/ 1000000.0;
+                double planMemoryMax = result.getLong("PLAN_MEMORY_MAX")/ 1024.0;
+                double planMemoryAvg = result.getLong("PLAN_MEMORY_AVG")/ 1024.0;
                 long failures    = result.getLong("FAILURES");
                 // Global stats
                 System.out.printf(    "          HOSTNAME: %s\n", hostname);
@@ -364,6 +366,8 @@ public class Benchmark {
                 System.out.printf(    "     PLAN TIME MIN: %6.2f ms\n", planTimeMin);
                 System.out.printf(    "     PLAN TIME MAX: %6.2f ms\n", planTimeMax);
                 System.out.printf(    "     PLAN TIME AVG: %6.2f ms\n", planTimeAvg);
+                System.out.printf(    "   PLAN MEMORY MAX: %6.1f KB\n", planMemoryMax);
+                System.out.printf(    "   PLAN MEMORY AVG: %6.1f KB\n", planMemoryAvg);
                 System.out.printf(    "          FAILURES: %d\n\n", failures);
             }
         }
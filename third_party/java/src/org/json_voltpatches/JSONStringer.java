@@ -24,7 +24,7 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 SOFTWARE.
 */
 
-import java.io.StringWriter;
+import java.io.Writer;
 
 /**
  * JSONStringer provides a quick and convenient way of producing JSON text.
@@ -61,7 +61,7 @@ public class JSONStringer extends JSONWriter {
      * Make a fresh JSONStringer. It can be used to build one JSON text.
      */
     public JSONStringer() {
-        super(new StringWriter());
+        super(new StringBuilderWriter());
     }
 
     /**
@@ -77,4 +77,43 @@ public class JSONStringer extends JSONWriter {
         return isDone() ? getWriter().toString() : null;
     }
 
+    /**
+     * A Writer over an unsynchronized StringBuilder. A JSONStringer is only
+     * ever used by one thread, so the locking in StringWriter's StringBuffer
+     * is pure overhead on every write.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder m_builder = new StringBuilder(256);
+
+        @Override
+        public void write(int c) {
+            m_builder.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            m_builder.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str) {
+            m_builder.append(str);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            m_builder.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public String toString() {
+            return m_builder.toString();
+        }
+    }
 }
@@ -103,7 +103,7 @@ public class JSONWriter {
 
     /**
      * Since
-     *     private final HashSet<String> m_scopeStack[] = new HashSet<String>[MAX_DEPTH];
+     *     private final HashSet<String> m_keyTrackers[] = new HashSet<String>[MAX_DEPTH];
      * gives
      *     error: generic array creation
      * define a trivially compatible class to use in place of the generic for
@@ -114,9 +114,18 @@ public class JSONWriter {
     };
 
     /**
-     * The object/array scope stack.
+     * The object/array scope stack. An entry is true for an object scope,
+     * false for an array scope.
      */
-    private final HashSet<String> m_scopeStack[] = new HashSetOfString[MAX_DEPTH];
+    private final boolean m_scopeIsObject[] = new boolean[MAX_DEPTH];
+
+    /**
+     * The keys seen so far in each active object scope, indexed like the scope
+     * stack. A tracker is allocated the first time an object is opened at its
+     * depth and then cleared and reused by later objects at the same depth, so
+     * writing a large nested document does not allocate a set per object.
+     */
+    private final HashSet<String> m_keyTrackers[] = new HashSetOfString[MAX_DEPTH];
 
     /**
      * The stack top index. A value of -1 indicates that the stack is empty.
@@ -175,26 +184,18 @@ public class JSONWriter {
     }
 
     private static enum ScopeOptions {
-        ArrayWithComma(",[") {
-            @Override
-            HashSetOfString createKeyTracker() { return null; }
-        },
-        ArrayWithoutComma("[") {
-            @Override
-            HashSetOfString createKeyTracker() { return null; }
-        },
-        ObjectWithComma(",{"),
-        ObjectWithoutComma("{"),
+        ArrayWithComma(",[", false),
+        ArrayWithoutComma("[", false),
+        ObjectWithComma(",{", true),
+        ObjectWithoutComma("{", true),
        ;
 
        final String m_prefix;
+       final boolean m_isObject;
 
-        ScopeOptions(String prefix) {
+        ScopeOptions(String prefix, boolean isObject) {
             m_prefix = prefix;
-        }
-
-        HashSetOfString createKeyTracker() {
-            return new HashSetOfString();
+            m_isObject = isObject;
         }
     }
 
@@ -216,9 +217,16 @@ public class JSONWriter {
             throw new JSONException(e);
         }
 
-        HashSetOfString keyTracker = options.createKeyTracker();
-        m_scopeStack[m_top] = keyTracker;
-        m_mode = (keyTracker == null) ? 'a' : 'k';
+        m_scopeIsObject[m_top] = options.m_isObject;
+        if (options.m_isObject) {
+            if (m_keyTrackers[m_top] == null) {
+                m_keyTrackers[m_top] = new HashSetOfString();
+            }
+            else {
+                m_keyTrackers[m_top].clear();
+            }
+        }
+        m_mode = options.m_isObject ? 'k' : 'a';
         m_expectingComma = false;
     }
 
@@ -240,7 +248,7 @@ public class JSONWriter {
         --m_top;
         m_mode = (m_top == -1) ?
                 'd' :
-                (m_scopeStack[m_top] == null) ? 'a' : 'k';
+                m_scopeIsObject[m_top] ? 'k' : 'a';
         m_expectingComma = true;
     }
 
@@ -327,7 +335,7 @@ public class JSONWriter {
         }
 
         // Throw if the key has already been seen in this scope.
-        if ( ! m_scopeStack[m_top].add(string)) {
+        if ( ! m_keyTrackers[m_top].add(string)) {
             throw new JSONException("Duplicate key \"" + string + "\"");
         }
 
@@ -477,7 +485,7 @@ public class JSONWriter {
         assert(aKey != null);
         assert(m_mode == 'k');
         // The key should not have already been seen in this scope.
-        assert(m_scopeStack[m_top].add(aKey));
+        assert(m_keyTrackers[m_top].add(aKey));
 
         try {
             m_writer.write(m_expectingComma ? ",\"" : "\"");
@@ -516,7 +524,7 @@ public class JSONWriter {
         assert(aKey != null);
         assert(m_mode == 'k');
         // The key should not have already been seen in this scope.
-        assert(m_scopeStack[m_top].add(aKey));
+        assert(m_keyTrackers[m_top].add(aKey));
 
         try {
             m_writer.write(m_expectingComma ? ",\"" : "\"");
@@ -549,7 +557,7 @@ public class JSONWriter {
         assert(aKey != null);
         assert(m_mode == 'k');
         // The key should not have already been seen in this scope.
-        assert(m_scopeStack[m_top].add(aKey));
+        assert(m_keyTrackers[m_top].add(aKey));
 
         try {
             m_writer.write(m_expectingComma ? ",\"" : "\"");